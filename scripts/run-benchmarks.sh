@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# 运行JMH基准测试并与基线对比
+#
+# 用法:
+#   scripts/run-benchmarks.sh                    运行全部基准，结果写入target/jmh-result.json，与基线对比
+#   scripts/run-benchmarks.sh --save-baseline    运行后把本次结果保存为基线（src/jmh/baseline/jmh-baseline.json）
+#   JMH_INCLUDES='.*MccScreening.*' scripts/run-benchmarks.sh   只运行匹配的基准
+#
+# 离线运行：先联网执行一次 mvn -Pbenchmark dependency:go-offline，之后设置 MVN_OFFLINE=1 使用本地仓库。
+# 存在回退（变差超过 JMH_THRESHOLD，默认0.10，且超出误差范围）时以非0状态退出。
+set -euo pipefail
+
+PROJECT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+RESULT="${PROJECT_DIR}/target/jmh-result.json"
+BASELINE="${PROJECT_DIR}/src/jmh/baseline/jmh-baseline.json"
+
+SAVE_BASELINE=false
+for arg in "$@"; do
+    case "$arg" in
+        --save-baseline) SAVE_BASELINE=true ;;
+        *) echo "未知参数: $arg" >&2; exit 2 ;;
+    esac
+done
+
+MVN=(mvn -B -f "${PROJECT_DIR}/pom.xml" -Pbenchmark -DskipTests
+     "-Djmh.result=${RESULT}" "-Djmh.baseline=${BASELINE}"
+     "-Djmh.regression-threshold=${JMH_THRESHOLD:-0.10}")
+if [[ -n "${JMH_INCLUDES:-}" ]]; then
+    MVN+=("-Djmh.includes=${JMH_INCLUDES}")
+fi
+if [[ "${MVN_OFFLINE:-0}" == "1" ]]; then
+    MVN+=(-o)
+fi
+
+"${MVN[@]}" test-compile exec:exec@jmh
+
+if [[ "$SAVE_BASELINE" == true ]]; then
+    mkdir -p "$(dirname "$BASELINE")"
+    cp "$RESULT" "$BASELINE"
+    echo "已保存基线: $BASELINE"
+else
+    "${MVN[@]}" exec:java@jmh-compare
+fi
@@ -0,0 +1,60 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.util.AESEncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AES加解密基准测试
+ *
+ * <p>区分使用已派生密钥的加解密和每次从密码与盐值派生密钥（PBKDF2）的开销。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class AesEncryptionBenchmark {
+
+    private static final String SECRET_KEY = "benchmark-secret-key-2025";
+    private static final String SALT = "benchmark-salt";
+
+    @Param({"64", "4096"})
+    public int payloadChars;
+
+    private String plainText;
+    private SecretKeySpec keySpec;
+    private String cipherText;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder builder = new StringBuilder(payloadChars);
+        while (builder.length() < payloadChars) {
+            builder.append("患者主诉胸痛３小时，ECG示ST段抬高（Ⅱ、Ⅲ、aVF），诊断急性下壁心肌梗死。");
+        }
+        plainText = builder.substring(0, payloadChars);
+        keySpec = AESEncryptionUtil.deriveKey(SECRET_KEY, SALT);
+        cipherText = AESEncryptionUtil.encrypt(plainText, keySpec);
+    }
+
+    @Benchmark
+    public String encryptWithDerivedKey() throws Exception {
+        return AESEncryptionUtil.encrypt(plainText, keySpec);
+    }
+
+    @Benchmark
+    public String decryptWithDerivedKey() throws Exception {
+        return AESEncryptionUtil.decrypt(cipherText, keySpec);
+    }
+
+    @Benchmark
+    public SecretKeySpec deriveKey() throws Exception {
+        return AESEncryptionUtil.deriveKey(SECRET_KEY, SALT);
+    }
+}
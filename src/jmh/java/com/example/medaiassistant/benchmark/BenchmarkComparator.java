@@ -0,0 +1,122 @@
+package com.example.medaiassistant.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JMH结果与基线对比
+ *
+ * <p>读取两份JMH JSON结果（-rf json），按基准方法名和参数配对，计算相对基线的变化：
+ * 吞吐量模式（thrpt）越大越好，其余模式（avgt、sample、ss）越小越好。变差超过阈值且差值大于
+ * 两次结果误差之和时判定为回退，存在回退时抛出异常使构建失败。基线文件不存在时只打印提示。</p>
+ *
+ * <pre>
+ * 用法: BenchmarkComparator &lt;基线JSON&gt; &lt;本次结果JSON&gt; [阈值，默认0.10]
+ * </pre>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class BenchmarkComparator {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BenchmarkComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("用法: BenchmarkComparator <基线JSON> <本次结果JSON> [阈值]");
+        }
+        Path baselinePath = Path.of(args[0]);
+        Path currentPath = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        if (!Files.exists(baselinePath)) {
+            System.out.println("基线文件不存在，跳过对比: " + baselinePath
+                + "（可用 scripts/run-benchmarks.sh --save-baseline 保存本次结果作为基线）");
+            return;
+        }
+
+        int regressions = compare(read(baselinePath), read(currentPath), threshold);
+        if (regressions > 0) {
+            throw new IllegalStateException("检测到 " + regressions + " 项性能回退（阈值 "
+                + Math.round(threshold * 100) + "%）");
+        }
+        System.out.println("未检测到性能回退（阈值 " + Math.round(threshold * 100) + "%）");
+    }
+
+    /**
+     * 打印对比表并返回回退项数
+     */
+    static int compare(Map<String, Result> baseline, Map<String, Result> current, double threshold) {
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s  %s%n", "基准", "基线", "本次", "变化", "");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  新增%n", entry.getKey(), "-", now.score, "");
+                continue;
+            }
+            // 正值表示变差
+            double change = now.higherIsBetter()
+                ? (before.score - now.score) / before.score
+                : (now.score - before.score) / before.score;
+            boolean significant = Math.abs(now.score - before.score) > before.error + now.error;
+            String verdict = "";
+            if (change > threshold && significant) {
+                verdict = "回退";
+                regressions++;
+            } else if (change < -threshold && significant) {
+                verdict = "提升";
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s %s%n", entry.getKey(), before.score, now.score,
+                -change * 100, now.unit, verdict);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-90s 本次未运行%n", key);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * 读取JMH JSON结果，键为"基准方法 {参数}"
+     */
+    static Map<String, Result> read(Path path) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        for (JsonNode run : OBJECT_MAPPER.readTree(path.toFile())) {
+            Map<String, String> params = new LinkedHashMap<>();
+            JsonNode paramsNode = run.get("params");
+            if (paramsNode != null) {
+                paramsNode.fields().forEachRemaining(field -> params.put(field.getKey(), field.getValue().asText()));
+            }
+            String key = run.get("benchmark").asText() + " [" + run.get("mode").asText() + "]"
+                + (params.isEmpty() ? "" : " " + params);
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble(0);
+            results.put(key, new Result(run.get("mode").asText(), metric.get("score").asDouble(),
+                Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    /**
+     * 单个基准的得分
+     */
+    record Result(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+}
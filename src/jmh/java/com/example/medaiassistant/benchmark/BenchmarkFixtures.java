@@ -0,0 +1,212 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.model.Drg;
+import com.example.medaiassistant.model.DrgMcc;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试合成数据
+ *
+ * <p>按固定种子生成，每次运行数据完全相同，不依赖数据库或外部文件：</p>
+ * <ul>
+ *   <li>DRG目录：CLOB格式的主要诊断和主要手术（编码 + 名称 + [别名]），约一半记录无手术（"/"）</li>
+ *   <li>MCC字典：编码、名称、类型和以逗号/分号/空格分隔的排除编码</li>
+ *   <li>诊断名称：含全角括号和数字、罗马数字分型以及"左侧""未特指"等修饰词</li>
+ * </ul>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class BenchmarkFixtures {
+
+    public static final int DRG_RECORDS = 2_000;
+    public static final int MCC_ENTRIES = 10_000;
+    public static final long SEED = 20251109L;
+
+    private static final String[] SITES = {
+        "冠状动脉", "左心室", "二尖瓣", "主动脉", "肺", "支气管", "胸膜", "肝", "胆囊", "胰腺",
+        "胃", "十二指肠", "结肠", "直肠", "肾", "输尿管", "膀胱", "前列腺", "子宫", "卵巢",
+        "甲状腺", "垂体", "脑", "脊髓", "股骨颈", "胫骨", "腰椎", "颈椎", "乳腺", "皮肤"
+    };
+
+    private static final String[] DISEASES = {
+        "急性心肌梗死", "慢性心力衰竭", "狭窄", "关闭不全", "恶性肿瘤", "良性肿瘤", "炎", "结石",
+        "出血", "梗死", "骨折", "脓肿", "囊肿", "感染", "穿孔", "梗阻", "动脉瘤", "功能衰竭",
+        "损伤", "溃疡", "继发恶性肿瘤", "原位癌", "血栓形成", "破裂"
+    };
+
+    private static final String[] MODIFIERS = {
+        "未特指", "左侧", "右侧", "双侧", "多发", "复发性", "早期", "晚期", "急性", "慢性", "重型", "非典型"
+    };
+
+    private static final String[] STAGES = {
+        "Ⅰ型", "Ⅱ型", "Ⅲ期", "Ⅳ期", "型２", "１级", "２级", "３级", "（急性加重期）", "（伴出血）",
+        "（术后）", "［继发性］", "，伴并发症", "　", ""
+    };
+
+    private static final String[] PROCEDURES = {
+        "切除术", "部分切除术", "根治术", "修补术", "置换术", "支架置入术", "成形术", "引流术",
+        "造口术", "吻合术", "活组织检查", "内镜下切除术", "经皮穿刺术", "搭桥术", "内固定术"
+    };
+
+    private static final String[] MCC_TYPES = {"MCC", "CC"};
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成DRG实体（主要诊断、主要手术为CLOB文本）
+     */
+    public static List<Drg> drgEntities(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Drg> drgs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder diagnoses = new StringBuilder();
+            int diagnosisLines = 3 + random.nextInt(18);
+            for (int line = 0; line < diagnosisLines; line++) {
+                if (line > 0) {
+                    diagnoses.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+                }
+                diagnoses.append(icdCode(random)).append(' ').append(catalogName(random));
+                appendAliases(diagnoses, random);
+            }
+
+            String procedures = "/";
+            if (random.nextBoolean()) {
+                StringBuilder builder = new StringBuilder();
+                int procedureLines = 1 + random.nextInt(8);
+                for (int line = 0; line < procedureLines; line++) {
+                    if (line > 0) {
+                        builder.append('\n');
+                    }
+                    builder.append(procedureCode(random)).append(' ').append(procedureName(random));
+                    appendAliases(builder, random);
+                }
+                procedures = builder.toString();
+            }
+
+            drgs.add(new Drg((long) i + 1, String.format("%s%02d%d", (char) ('A' + random.nextInt(26)),
+                random.nextInt(100), 1 + random.nextInt(5)), "DRG组" + i + " " + catalogName(random),
+                diagnoses.toString(), procedures, BigDecimal.valueOf(random.nextInt(5000), 3),
+                BigDecimal.valueOf(3000 + random.nextInt(80_000))));
+        }
+        return drgs;
+    }
+
+    /**
+     * 生成MCC字典条目
+     */
+    public static List<DrgMcc> mccDictionary(int count) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        String[] separators = {",", ";", " ", ", ", "; "};
+        List<DrgMcc> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder except = new StringBuilder();
+            int exceptCount = random.nextInt(12);
+            for (int e = 0; e < exceptCount; e++) {
+                if (e > 0) {
+                    except.append(separators[random.nextInt(separators.length)]);
+                }
+                except.append(icdCode(random));
+            }
+            String code = random.nextInt(20) == 0 ? " " + icdCode(random) + " " : icdCode(random);
+            entries.add(new DrgMcc((long) i + 1, code, catalogName(random),
+                exceptCount == 0 ? null : except.toString(), MCC_TYPES[random.nextInt(MCC_TYPES.length)]));
+        }
+        return entries;
+    }
+
+    /**
+     * 生成带全角字符、分型和修饰词的病历诊断名称
+     */
+    public static List<String> diagnosisNames(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(recordName(random));
+        }
+        return names;
+    }
+
+    /**
+     * 病历中书写的诊断名称（修饰词、全角符号、分型）
+     */
+    static String recordName(SplittableRandom random) {
+        StringBuilder name = new StringBuilder();
+        if (random.nextInt(3) == 0) {
+            name.append(MODIFIERS[random.nextInt(MODIFIERS.length)]);
+        }
+        name.append(SITES[random.nextInt(SITES.length)]).append(DISEASES[random.nextInt(DISEASES.length)]);
+        if (random.nextInt(4) == 0) {
+            name.append(MODIFIERS[random.nextInt(MODIFIERS.length)]);
+        }
+        name.append(STAGES[random.nextInt(STAGES.length)]);
+        if (random.nextInt(6) == 0) {
+            name.append("（").append(SITES[random.nextInt(SITES.length)]).append("）");
+        }
+        return name.toString();
+    }
+
+    /**
+     * 目录中的标准诊断名称
+     */
+    static String catalogName(SplittableRandom random) {
+        String name = SITES[random.nextInt(SITES.length)] + DISEASES[random.nextInt(DISEASES.length)];
+        return random.nextInt(5) == 0 ? name + STAGES[random.nextInt(4)] : name;
+    }
+
+    static String procedureName(SplittableRandom random) {
+        return SITES[random.nextInt(SITES.length)] + PROCEDURES[random.nextInt(PROCEDURES.length)];
+    }
+
+    static String icdCode(SplittableRandom random) {
+        return String.format("%s%02d.%d%02d", (char) ('A' + random.nextInt(26)), random.nextInt(100),
+            random.nextInt(10), random.nextInt(100));
+    }
+
+    static String procedureCode(SplittableRandom random) {
+        return String.format("%02d.%02d%02d", random.nextInt(100), random.nextInt(100), random.nextInt(100));
+    }
+
+    /**
+     * 只支持findAll的仓库桩（基准测试不启动Spring和数据库）
+     */
+    public static <R> R findAllRepository(Class<R> repositoryType, List<?> rows) {
+        Object proxy = Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+            (instance, method, args) -> switch (method.getName()) {
+                case "findAll" -> {
+                    if (args != null && args.length > 0) {
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+                    yield rows;
+                }
+                // 无行变更版本时DrgCatalogLoader每次刷新全表加载
+                case "findRowChangeVersions" -> List.of();
+                case "toString" -> repositoryType.getSimpleName() + "Fixture";
+                case "hashCode" -> System.identityHashCode(instance);
+                case "equals" -> instance == args[0];
+                default -> throw new UnsupportedOperationException(method.toString());
+            });
+        return repositoryType.cast(proxy);
+    }
+
+    private static void appendAliases(StringBuilder builder, SplittableRandom random) {
+        int aliases = random.nextInt(4);
+        if (aliases == 0) {
+            return;
+        }
+        builder.append('[');
+        for (int a = 0; a < aliases; a++) {
+            if (a > 0) {
+                builder.append(random.nextBoolean() ? "," : " , ");
+            }
+            builder.append(catalogName(random));
+        }
+        builder.append(']');
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.drg.catalog.ClobParser;
+import com.example.medaiassistant.drg.catalog.DiagnosisEntry;
+import com.example.medaiassistant.drg.catalog.ProcedureEntry;
+import com.example.medaiassistant.model.Drg;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DRG目录CLOB解析基准测试
+ *
+ * <p>每次调用解析全部2000条合成DRG记录的主要诊断和主要手术CLOB，对应一次目录加载的解析开销。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class ClobParserBenchmark {
+
+    private final ClobParser clobParser = new ClobParser();
+    private String[] diagnosisClobs;
+    private String[] procedureClobs;
+
+    @Setup
+    public void setUp() {
+        List<Drg> drgs = BenchmarkFixtures.drgEntities(BenchmarkFixtures.DRG_RECORDS);
+        diagnosisClobs = drgs.stream().map(Drg::getMainDiagnoses).toArray(String[]::new);
+        procedureClobs = drgs.stream().map(Drg::getMainProcedures)
+            .filter(clob -> !"/".equals(clob)).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void parseCatalog(Blackhole blackhole) {
+        for (String clob : diagnosisClobs) {
+            List<DiagnosisEntry> entries = clobParser.parseDiagnoses(clob);
+            blackhole.consume(entries);
+        }
+        for (String clob : procedureClobs) {
+            List<ProcedureEntry> entries = clobParser.parseProcedures(clob);
+            blackhole.consume(entries);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.drg.catalog.ClobParser;
+import com.example.medaiassistant.drg.catalog.DrgCatalogLoader;
+import com.example.medaiassistant.drg.matching.DrgCatalogIndex;
+import com.example.medaiassistant.drg.matching.PrimaryDiagnosisProcedureMatcher;
+import com.example.medaiassistant.dto.drg.DiagnosisEntry;
+import com.example.medaiassistant.dto.drg.DrgCatalog;
+import com.example.medaiassistant.dto.drg.DrgParsedRecord;
+import com.example.medaiassistant.dto.drg.MatchingResult;
+import com.example.medaiassistant.dto.drg.PatientData;
+import com.example.medaiassistant.dto.drg.PatientDiagnosis;
+import com.example.medaiassistant.dto.drg.PatientProcedure;
+import com.example.medaiassistant.dto.drg.ProcedureEntry;
+import com.example.medaiassistant.model.Drg;
+import com.example.medaiassistant.repository.DrgRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DRG主要诊断/手术匹配基准测试
+ *
+ * <p>目录为2000条合成DRG记录，经ClobParser和DrgCatalogLoader按生产路径解析；患者诊断一部分取自目录
+ * （编码精确命中或名称加修饰词），一部分为目录外名称。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DrgMatchingBenchmark {
+
+    private static final int PATIENTS = 64;
+
+    private final PrimaryDiagnosisProcedureMatcher matcher = new PrimaryDiagnosisProcedureMatcher();
+    private DrgCatalogLoader loader;
+    private DrgCatalog catalog;
+    private DrgCatalogIndex index;
+    private PatientData[] patients;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Drg> drgs = BenchmarkFixtures.drgEntities(BenchmarkFixtures.DRG_RECORDS);
+        loader = new DrgCatalogLoader(new ClobParser(),
+            BenchmarkFixtures.findAllRepository(DrgRepository.class, drgs));
+        catalog = loader.getMatchingCatalog();
+        index = DrgCatalogIndex.of(catalog);
+        patients = patients(catalog.getDrgRecords());
+    }
+
+    @Benchmark
+    public MatchingResult matchPatient() {
+        PatientData patient = patients[next++ & (PATIENTS - 1)];
+        return matcher.match(patient, index);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DrgCatalogIndex buildIndex() {
+        // of()按目录实例缓存索引，这里直接构建
+        return DrgCatalogIndex.build(catalog.getDrgRecords());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object reloadCatalog() {
+        return loader.reload();
+    }
+
+    private static PatientData[] patients(List<DrgParsedRecord> records) {
+        SplittableRandom random = new SplittableRandom(BenchmarkFixtures.SEED + 2);
+        PatientData[] patients = new PatientData[PATIENTS];
+        for (int p = 0; p < PATIENTS; p++) {
+            List<PatientDiagnosis> diagnoses = new ArrayList<>();
+            List<PatientProcedure> procedures = new ArrayList<>();
+            int diagnosisCount = 3 + random.nextInt(10);
+            for (int d = 0; d < diagnosisCount; d++) {
+                DrgParsedRecord record = records.get(random.nextInt(records.size()));
+                if (record.getDiagnoses().isEmpty() || random.nextInt(3) == 0) {
+                    diagnoses.add(new PatientDiagnosis(BenchmarkFixtures.icdCode(random),
+                        BenchmarkFixtures.recordName(random)));
+                    continue;
+                }
+                DiagnosisEntry entry = record.getDiagnoses().get(random.nextInt(record.getDiagnoses().size()));
+                diagnoses.add(random.nextBoolean()
+                    ? new PatientDiagnosis(entry.getIcdCodeSafe(), entry.getDiagnosisNameSafe())
+                    : new PatientDiagnosis(BenchmarkFixtures.icdCode(random), "左侧" + entry.getDiagnosisNameSafe()));
+                if (!record.getProcedures().isEmpty() && random.nextBoolean()) {
+                    ProcedureEntry procedure = record.getProcedures().get(0);
+                    procedures.add(new PatientProcedure(procedure.getProcedureCodeSafe(),
+                        procedure.getProcedureNameSafe()));
+                }
+            }
+            patients[p] = new PatientData(diagnoses, procedures);
+        }
+        return patients;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.config.MccScreeningProperties;
+import com.example.medaiassistant.config.TextNormalizerConfig;
+import com.example.medaiassistant.model.DrgMcc;
+import com.example.medaiassistant.model.MccCandidate;
+import com.example.medaiassistant.model.PatientDiagnosis;
+import com.example.medaiassistant.repository.DrgMccRepository;
+import com.example.medaiassistant.service.MccDictionaryArena;
+import com.example.medaiassistant.service.MccScreeningService;
+import com.example.medaiassistant.util.LevenshteinUtil;
+import com.example.medaiassistant.util.TextNormalizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCC预筛选基准测试
+ *
+ * <p>10000条合成MCC字典，单患者20条诊断（含全角字符、分型和修饰词），部分诊断编码与字典精确命中。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MccScreeningBenchmark {
+
+    private static final int DIAGNOSES_PER_PATIENT = 20;
+
+    private MccScreeningService service;
+    private TextNormalizer textNormalizer;
+    private List<DrgMcc> dictionary;
+    private List<PatientDiagnosis> diagnoses;
+
+    @Setup
+    public void setUp() {
+        dictionary = BenchmarkFixtures.mccDictionary(BenchmarkFixtures.MCC_ENTRIES);
+        textNormalizer = new TextNormalizer(new TextNormalizerConfig());
+
+        service = new MccScreeningService();
+        ReflectionTestUtils.setField(service, "levenshteinUtil", new LevenshteinUtil());
+        ReflectionTestUtils.setField(service, "textNormalizer", textNormalizer);
+        ReflectionTestUtils.setField(service, "mccScreeningProperties", new MccScreeningProperties());
+        ReflectionTestUtils.setField(service, "drgMccRepository",
+            BenchmarkFixtures.findAllRepository(DrgMccRepository.class, dictionary));
+        service.init();
+
+        SplittableRandom random = new SplittableRandom(BenchmarkFixtures.SEED + 3);
+        diagnoses = new ArrayList<>(DIAGNOSES_PER_PATIENT);
+        for (int i = 0; i < DIAGNOSES_PER_PATIENT; i++) {
+            String code = i % 5 == 0
+                ? dictionary.get(random.nextInt(dictionary.size())).getMccCode().trim()
+                : BenchmarkFixtures.icdCode(random);
+            diagnoses.add(new PatientDiagnosis(code, BenchmarkFixtures.recordName(random)));
+        }
+    }
+
+    @Benchmark
+    public List<MccCandidate> screenPatient() {
+        return service.screenMccCandidates(diagnoses);
+    }
+
+    @Benchmark
+    public MccDictionaryArena buildDictionary() {
+        return MccDictionaryArena.build(dictionary, textNormalizer::normalize);
+    }
+}
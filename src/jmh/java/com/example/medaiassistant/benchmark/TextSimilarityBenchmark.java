@@ -0,0 +1,68 @@
+package com.example.medaiassistant.benchmark;
+
+import com.example.medaiassistant.config.TextNormalizerConfig;
+import com.example.medaiassistant.util.LevenshteinUtil;
+import com.example.medaiassistant.util.TextNormalizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 诊断名称标准化与编辑距离基准测试
+ *
+ * <p>名称含全角括号和数字、罗马数字分型以及修饰词，每次调用轮换取下一条，避免只测到单个输入。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class TextSimilarityBenchmark {
+
+    private static final int NAMES = 1024;
+    private static final double THRESHOLD = 0.7;
+
+    private final TextNormalizer textNormalizer = new TextNormalizer(new TextNormalizerConfig());
+    private final LevenshteinUtil levenshteinUtil = new LevenshteinUtil();
+    private String[] rawNames;
+    private String[] normalizedNames;
+    private String[] normalizedTargets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> names = BenchmarkFixtures.diagnosisNames(NAMES, BenchmarkFixtures.SEED + 4);
+        List<String> targets = BenchmarkFixtures.diagnosisNames(NAMES, BenchmarkFixtures.SEED + 5);
+        rawNames = names.toArray(String[]::new);
+        normalizedNames = names.stream().map(textNormalizer::normalize).toArray(String[]::new);
+        normalizedTargets = targets.stream().map(textNormalizer::normalize).toArray(String[]::new);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return textNormalizer.normalize(rawNames[next++ & (NAMES - 1)]);
+    }
+
+    @Benchmark
+    public double similarity() {
+        int i = next++ & (NAMES - 1);
+        return levenshteinUtil.calculateSimilarity(normalizedNames[i], normalizedTargets[i]);
+    }
+
+    @Benchmark
+    public double similarityWithThreshold() {
+        int i = next++ & (NAMES - 1);
+        return levenshteinUtil.calculateSimilarity(normalizedNames[i], normalizedTargets[i], THRESHOLD);
+    }
+
+    @Benchmark
+    public double normalizedSimilarity() {
+        int i = next++ & (NAMES - 1);
+        return levenshteinUtil.calculateNormalizedSimilarity(rawNames[i], normalizedTargets[i], textNormalizer);
+    }
+}
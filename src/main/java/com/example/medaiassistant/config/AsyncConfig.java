@@ -89,6 +89,37 @@ public class AsyncConfig {
         return executor;
     }
     
+    /**
+     * 患者上下文组装专用线程池
+     * 并发查询患者数据的各个板块，线程数即单次组装最多占用的数据库连接数
+     * 拒绝策略：CallerRunsPolicy（由调用线程执行）
+     * 
+     * @return 患者上下文组装专用线程池
+     */
+    @Bean("patientContextExecutor")
+    public TaskExecutor patientContextExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // 使用配置化的参数
+        executor.setCorePoolSize(schedulingProperties.getPatientContextPool().getCorePoolSize());
+        executor.setMaxPoolSize(schedulingProperties.getPatientContextPool().getMaxPoolSize());
+        executor.setQueueCapacity(schedulingProperties.getPatientContextPool().getQueueCapacity());
+        
+        // 线程配置
+        executor.setThreadNamePrefix(schedulingProperties.getPatientContextPool().getThreadNamePrefix() + "context-");
+        executor.setDaemon(true);
+        
+        // 拒绝策略：当队列满时，由调用线程执行
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        // 关闭配置
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        
+        executor.initialize();
+        return executor;
+    }
+    
     /**
      * 通用异步执行线程池
      * 用于其他异步任务，避免与手术分析任务竞争资源
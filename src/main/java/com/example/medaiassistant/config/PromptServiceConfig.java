@@ -108,6 +108,21 @@ public class PromptServiceConfig {
         @NotNull
         @Positive
         private long readTimeout = 300000;
+        
+        /**
+         * 认领租约超时时间（毫秒）
+         * 超过该时间仍处于SUBMISSION_STARTED的Prompt可被其他实例重新认领
+         * 默认值：600000毫秒（10分钟）
+         */
+        @NotNull
+        @Min(1000)
+        private long leaseTimeout = 600000;
+        
+        /**
+         * 认领策略：AUTO、SKIP_LOCKED、COMPARE_AND_SET
+         * 默认值：AUTO（Oracle/PostgreSQL使用SKIP_LOCKED，其他数据库使用COMPARE_AND_SET）
+         */
+        private String claimStrategy = "AUTO";
     }
     
     /**
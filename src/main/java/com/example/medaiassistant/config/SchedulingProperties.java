@@ -40,6 +40,11 @@ public class SchedulingProperties {
      */
     private ThreadPoolConfig surgeryAnalysisPool = new ThreadPoolConfig();
 
+    /**
+     * 患者上下文组装线程池配置
+     */
+    private ThreadPoolConfig patientContextPool = new ThreadPoolConfig();
+
     /**
      * 监控配置
      */
@@ -92,6 +97,14 @@ public class SchedulingProperties {
         this.surgeryAnalysisPool = surgeryAnalysisPool;
     }
 
+    public ThreadPoolConfig getPatientContextPool() {
+        return patientContextPool;
+    }
+
+    public void setPatientContextPool(ThreadPoolConfig patientContextPool) {
+        this.patientContextPool = patientContextPool;
+    }
+
     public MonitoringConfig getMonitoring() {
         return monitoring;
     }
@@ -203,6 +216,19 @@ public class SchedulingProperties {
          */
         private int fixedDelayMinutes = 5;
 
+        /**
+         * 每日Prompt生成为其他业务预留的数据库连接数
+         * 并发上限取maxConcurrency与（连接池可用连接数 - 预留数）中的较小值
+         * 默认值：2
+         */
+        private int connectionReserve = 2;
+
+        /**
+         * 每日Prompt生成在数据库拥塞时的最长退避时间（毫秒）
+         * 默认值：2000
+         */
+        private long maxBackoffMillis = 2000;
+
         /**
          * 是否启用科室过滤
          * 默认值：false（禁用）
@@ -349,6 +375,22 @@ public class SchedulingProperties {
             this.fixedDelayMinutes = fixedDelayMinutes;
         }
 
+        public int getConnectionReserve() {
+            return connectionReserve;
+        }
+
+        public void setConnectionReserve(int connectionReserve) {
+            this.connectionReserve = connectionReserve;
+        }
+
+        public long getMaxBackoffMillis() {
+            return maxBackoffMillis;
+        }
+
+        public void setMaxBackoffMillis(long maxBackoffMillis) {
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+
         public boolean isDepartmentFilterEnabled() {
             return departmentFilterEnabled;
         }
@@ -21,6 +21,17 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    /**
+     * 允许前端读取的响应头（科室病人列表新鲜度信息）
+     */
+    private static final String[] EXPOSED_HEADERS = {
+        "X-Patient-List-Synced-At",
+        "X-Patient-List-Age-Seconds",
+        "X-Patient-List-Stale",
+        "X-Patient-List-Refreshing",
+        "X-Patient-List-Refresh-Failed"
+    };
+
     /**
      * 配置CORS跨域支持（Spring MVC方式）
      * 允许前端从不同域访问后端API
@@ -38,6 +49,7 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                .exposedHeaders(EXPOSED_HEADERS)
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -57,6 +69,9 @@ public class WebConfig implements WebMvcConfigurer {
         config.addAllowedOrigin("http://10.120.11.43:8080");
         config.addAllowedMethod("*");
         config.addAllowedHeader("*");
+        for (String header : EXPOSED_HEADERS) {
+            config.addExposedHeader(header);
+        }
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
@@ -45,7 +45,6 @@ import com.example.medaiassistant.model.LongTermOrder;
 import com.example.medaiassistant.model.LabResult;
 import com.example.medaiassistant.model.ExaminationResult;
 import com.example.medaiassistant.model.AlertTask;
-import com.example.medaiassistant.model.EmrContent;
 import com.example.medaiassistant.repository.PatientRepository;
 import com.example.medaiassistant.repository.DiagnosisRepository;
 import com.example.medaiassistant.repository.MedicalRecordRepository;
@@ -55,6 +54,7 @@ import com.example.medaiassistant.repository.ExaminationResultRepository;
 import com.example.medaiassistant.repository.AlertTaskRepository;
 import com.example.medaiassistant.repository.EmrContentRepository;
 import com.example.medaiassistant.service.OrderFormatService;
+import com.example.medaiassistant.service.PatientContextAssembler;
 import com.example.medaiassistant.service.ExaminationResultService;
 import com.example.medaiassistant.service.EmrRecordService;
 import com.example.medaiassistant.service.PatientDataDesensitizationService;
@@ -64,12 +64,7 @@ import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.text.SimpleDateFormat;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.Optional;
-import java.util.Collections;
-import java.time.format.DateTimeFormatter;
-import com.example.medaiassistant.dto.OrderTimelineDTO;
 import com.example.medaiassistant.constant.AIDisclaimerConstants;
 import com.example.medaiassistant.util.AIContentResponseWrapper;
 
@@ -117,6 +112,7 @@ public class AIController {
     private final PatientDataDesensitizationService patientDataDesensitizationService;
     private final NetworkRecoveryService networkRecoveryService;
     private final EmrContentRepository emrContentRepository;
+    private final PatientContextAssembler patientContextAssembler;
 
 
     @Value("${api.base.url:http://localhost:8081}")
@@ -139,7 +135,8 @@ public class AIController {
             EmrRecordService emrRecordService,
             PatientDataDesensitizationService patientDataDesensitizationService,
             NetworkRecoveryService networkRecoveryService,
-            EmrContentRepository emrContentRepository) {
+            EmrContentRepository emrContentRepository,
+            PatientContextAssembler patientContextAssembler) {
         this.restTemplate = restTemplate;
         this.promptResultRepository = promptResultRepository;
         this.promptTemplateRepository = promptTemplateRepository;
@@ -160,6 +157,7 @@ public class AIController {
         this.patientDataDesensitizationService = patientDataDesensitizationService;
         this.networkRecoveryService = networkRecoveryService;
         this.emrContentRepository = emrContentRepository;
+        this.patientContextAssembler = patientContextAssembler;
     }
 
     /**
@@ -583,6 +581,7 @@ public class AIController {
      * @see OrderFormatService#formatTemporaryOrders(List) 临时医嘱格式化服务
      * @see ExaminationResultService#getFormattedResultsByPatientId(String) 检查结果格式化服务
      * @see EmrRecordService#getAdmissionRecordContent(String) 入院记录降级服务
+     * @see PatientContextAssembler#assemble(String, String, String) 各数据板块的组装逻辑
      * 
      * @since 2024
      * @version 2.0.0 (2026-02-14 架构优化版本)
@@ -590,6 +589,7 @@ public class AIController {
      * 
      * @implNote 
      * 关键修改历史：
+     * - 2025-11-09：板块逻辑抽取至PatientContextAssembler，与定时任务共用，各板块并发查询
      * - 2026-02-14：消除HTTP自调用，改为直接数据库查询，解决生产环境超时问题
      * - 2026-02-13：添加手术记录强制包含逻辑
      * - 2026-02-09：实现入院记录三层降级策略
@@ -604,518 +604,7 @@ public class AIController {
                 patientId, promptType, promptName);
 
         try {
-            /**
-             * 数据类型决策逻辑
-             * 
-             * @description
-             * 根据请求参数决定需要获取的数据类型列表：
-             * 1. 若同时提供promptType和promptName，从PromptTemplate表读取requiredDataTypes配置
-             * 2. 若模板配置缺少"手术记录"，代码自动补充，确保手术记录始终被获取
-             * 3. 若模板不存在或配置为空，使用硬编码的默认10种数据类型
-             * 4. 若未提供promptType/promptName参数，直接使用默认10种数据类型
-             * 
-             * @since 2026-02-13 添加手术记录强制包含逻辑
-             */
-            String[] dataTypes;
-            if (promptType != null && promptName != null) {
-                PromptTemplate promptTemplate = promptTemplateRepository.findByPromptTypeAndPromptName(promptType,
-                        promptName);
-                if (promptTemplate != null && promptTemplate.getRequiredDataTypes() != null) {
-                    String configuredTypes = promptTemplate.getRequiredDataTypes();
-                    /**
-                     * 手术记录强制包含逻辑
-                     * 
-                     * @description
-                     * 无论模板配置是否包含"手术记录"，代码层面会自动补充。
-                     * 这确保了手动生成和自动生成Prompt时病人资料的一致性。
-                     * 
-                     * @reason 解决自动生成Prompt时缺少手术记录的问题
-                     * @see doc/问题修复/自动生成Prompt缺少手术记录问题修复-2026年02月13日.md
-                     */
-                    if (!configuredTypes.contains("手术记录")) {
-                        logger.info("Template '{}' missing '手术记录', adding it automatically", promptName);
-                        configuredTypes = configuredTypes + ",手术记录";
-                    }
-                    dataTypes = configuredTypes.split(",");
-                } else {
-                    dataTypes = new String[] {
-                            "一般信息",
-                            "诊断信息",
-                            "病情小结",
-                            "病历记录",
-                            "长期医嘱",
-                            "临时医嘱",
-                            "化验结果",
-                            "检查结果",
-                            "入院记录",
-                            "会诊记录",
-                            "手术记录"
-                    };
-                }
-            } else {
-                dataTypes = new String[] {
-                        "一般信息",
-                        "诊断信息",
-                        "病情小结",
-                        "病历记录",
-                        "长期医嘱",
-                        "临时医嘱",
-                        "化验结果",
-                        "检查结果",
-                        "入院记录",
-                        "会诊记录",
-                        "手术记录"
-                };
-            }
-            StringBuilder result = new StringBuilder();
-
-            // 3. 根据数据类型获取数据
-            for (String dataType : dataTypes) {
-                String trimmedType = dataType.trim().toLowerCase();
-                logger.info("Processing data type: '{}' (trimmed: '{}')", dataType, trimmedType);
-
-                try {
-                    String apiResponse = null;
-                    switch (trimmedType) {
-                        case "一般信息":
-                            logger.info("Fetching basic info for patient: {}", patientId);
-                            try {
-                                // 直接查询数据库，避免HTTP调用超时
-                                Optional<Patient> patientOpt = patientRepository.findById(patientId);
-                                if (patientOpt.isPresent()) {
-                                    Patient patient = patientOpt.get();
-                                    
-                                    // 使用安全的年龄计算方法
-                                    int age = AgeCalculator.calculateAge(patient.getDateOfBirth(), 0);
-                                    
-                                    // 计算住院天数
-                                    long days = 0;
-                                    String admissionTime = "未知";
-                                    if (patient.getAdmissionTime() != null) {
-                                        LocalDate admissionDate = patient.getAdmissionTime().toInstant()
-                                            .atZone(ZoneId.systemDefault())
-                                            .toLocalDate();
-                                        days = ChronoUnit.DAYS.between(admissionDate, LocalDate.now());
-                                        
-                                        // 格式化日期
-                                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy年MM月dd日 HH:mm");
-                                        admissionTime = sdf.format(patient.getAdmissionTime());
-                                    }
-                                    
-                                    // 转换性别为中文（数据库值：1=男性，2=女性）
-                                    String genderInChinese;
-                                    switch (patient.getGender() != null ? patient.getGender() : "") {
-                                        case "1":
-                                            genderInChinese = "男";
-                                            break;
-                                        case "2":
-                                            genderInChinese = "女";
-                                            break;
-                                        default:
-                                            genderInChinese = "未确定";
-                                    }
-                                    
-                                    String basicInfo = String.format("性别：%s，年龄：%d岁，入院时间：%s，住院时间：%d天。",
-                                        genderInChinese, age, admissionTime, days);
-                                    
-                                    result.append("### 一般信息:\n").append(basicInfo);
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("Patient not found: {}", patientId);
-                                    result.append("### 一般信息:\n无基本信息数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get basic info for patient: {}", patientId, e);
-                                result.append("### 一般信息:\n无基本信息数据");
-                            }
-                            break;
-                        case "诊断信息":
-                            /**
-                             * 获取患者诊断信息
-                             * 
-                             * 该方法通过直接查询数据库获取患者的诊断信息，避免了通过REST API调用可能带来的网络问题。
-                             * 如果查询到诊断信息，则将其格式化后添加到结果中；如果没有查询到，则添加提示信息；
-                             * 如果查询过程中出现异常，则记录错误日志但不添加错误信息到结果中。
-                             * 
-                             * @param patientId 患者ID
-                             * @param result    结果字符串构建器
-                             */
-                            try {
-                                logger.info("Attempting to get diagnosis for patient: {}", patientId);
-                                // 直接使用repository查询替代restTemplate调用，避免网络问题
-                                List<Diagnosis> diagnoses = diagnosisRepository.findByPatientId(patientId);
-                                logger.info("Found {} diagnosis records for patient: {}", diagnoses.size(), patientId);
-
-                                if (diagnoses != null && !diagnoses.isEmpty()) {
-                                    List<String> diagnosisNames = diagnoses.stream()
-                                            .map(Diagnosis::getDiagnosisText)
-                                            .collect(Collectors.toList());
-                                    String diagnosisText = String.join(", ", diagnosisNames);
-                                    logger.info("Diagnosis text for patient {}: {}", patientId, diagnosisText);
-                                    result.append("### 目前诊断:\n")
-                                            .append(diagnosisText);
-                                } else {
-                                    logger.warn("No diagnosis found for patient: {}", patientId);
-                                    result.append("### 目前诊断:\n无诊断信息数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get diagnosis names for patient: {}", patientId, e);
-                                result.append("### 目前诊断:\n无诊断信息数据");
-                            }
-                            break;
-                        case "病情小结":
-                            try {
-                                logger.info("Attempting to get medical summary for patient: {}", patientId);
-                                // 直接查询数据库，获取最新的病情小结
-                                List<MedicalRecord> summaries = medicalRecordRepository
-                                    .findByPatientIdAndDeletedOrderByRecordTimeDesc(patientId, 0);
-                                
-                                // 过滤出病情小结类型的记录
-                                Optional<MedicalRecord> latestSummary = summaries.stream()
-                                    .filter(r -> r.getRecordType() != null && r.getRecordType().contains("病情小结"))
-                                    .findFirst();
-                                
-                                if (latestSummary.isPresent() && latestSummary.get().getMedicalContent() != null) {
-                                    result.append("### 病情小结:\n")
-                                            .append(latestSummary.get().getMedicalContent());
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No medical summary found for patient: {}", patientId);
-                                    result.append("### 病情小结:\n无病情小结数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get medical summary for patient: {}", patientId, e);
-                                result.append("### 病情小结:\n无病情小结数据");
-                            }
-                            break;
-                        case "病历记录":
-                            /**
-                             * 获取患者病历记录
-                             * 
-                             * 该方法通过直接查询数据库获取患者的病历记录，避免了通过REST API调用可能带来的网络超时问题。
-                             * 如果查询到病历记录，则将其格式化后添加到结果中；如果没有查询到，则添加提示信息。
-                             * 
-                             * @param patientId 患者ID
-                             * @param result    结果字符串构建器
-                             */
-                            try {
-                                logger.info("Attempting to get medical records for patient: {}", patientId);
-                                // 直接使用repository查询替代restTemplate调用，避免网络超时问题
-                                List<MedicalRecord> records = medicalRecordRepository.findByPatientIdAndDeletedOrderByRecordTimeDesc(patientId, 0);
-                                logger.info("Found {} medical records for patient: {}", records.size(), patientId);
-
-                                if (records != null && !records.isEmpty()) {
-                                    java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("yyyy年MM月dd日 HH:mm");
-                                    StringBuilder recordsBuilder = new StringBuilder();
-                                    for (MedicalRecord record : records) {
-                                        if (record.getRecordTime() != null) {
-                                            recordsBuilder.append(dateFormat.format(record.getRecordTime())).append("\n");
-                                        }
-                                        if (record.getMedicalContent() != null) {
-                                            recordsBuilder.append(record.getMedicalContent()).append("\n\n");
-                                        }
-                                    }
-                                    result.append("### 病历记录:\n").append(recordsBuilder.toString().trim());
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No medical records found for patient: {}", patientId);
-                                    result.append("### 病历记录:\n无病历记录数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get medical records for patient: {}", patientId, e);
-                                result.append("### 病历记录:\n无病历记录数据");
-                            }
-                            break;
-                        case "长期医嘱":
-                            try {
-                                logger.info("Attempting to get long-term orders for patient: {}", patientId);
-                                // 直接调用OrderFormatService格式化长期医嘱
-                                List<String> formattedOrders = orderFormatService.formatLongTermOrders(patientId);
-                                
-                                if (formattedOrders != null && !formattedOrders.isEmpty()) {
-                                    result.append("### 长期医嘱:\n")
-                                            .append(String.join("\n", formattedOrders));
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No long-term orders found for patient: {}", patientId);
-                                    result.append("### 长期医嘱:\n无长期医嘱数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get long-term orders for patient: {}", patientId, e);
-                                result.append("### 长期医嘱:\n无长期医嘱数据");
-                            }
-                            break;
-                        case "临时医嘱":
-                            try {
-                                logger.info("Attempting to get temporary orders for patient: {}", patientId);
-                                // 直接查询数据库并格式化临时医嘱
-                                List<LongTermOrder> tempOrders = longTermOrderRepository
-                                    .findByPatientIdAndRepeatIndicatorOrderByOrderDateAsc(patientId, 0);
-                                
-                                if (tempOrders != null && !tempOrders.isEmpty()) {
-                                    // 转换为OrderTimelineDTO格式
-                                    List<OrderTimelineDTO> dtos = tempOrders.stream()
-                                        .map(order -> new OrderTimelineDTO(
-                                            order.getOrderDate().toInstant().atZone(ZoneId.systemDefault())
-                                                .format(DateTimeFormatter.ofPattern("yyyy年M月d日 H:mm")) + " " + 
-                                                order.getOrderName() + " " + 
-                                                (order.getDosage() != null ? order.getDosage() : "") + 
-                                                (order.getUnit() != null ? order.getUnit() : "") + " " + 
-                                                (order.getFrequency() != null ? order.getFrequency() : "") + " " + 
-                                                (order.getRoute() != null ? order.getRoute() : ""),
-                                            Collections.emptyList()))
-                                        .collect(Collectors.toList());
-                                    
-                                    String formattedTempOrders = orderFormatService.formatTemporaryOrders(dtos);
-                                    result.append("### 临时医嘱:\n")
-                                            .append(formattedTempOrders.isEmpty() ? "无临时医嘱数据" : formattedTempOrders);
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No temporary orders found for patient: {}", patientId);
-                                    result.append("### 临时医嘱:\n无临时医嘱数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get temporary orders for patient: {}", patientId, e);
-                                result.append("### 临时医嘱:\n无临时医嘱数据");
-                            }
-                            break;
-                        case "化验结果":
-                            try {
-                                logger.info("Attempting to get lab results for patient: {}", patientId);
-                                // 直接查询数据库并格式化化验结果
-                                List<LabResult> labResults = labResultRepository.findByPatientId(patientId);
-                                
-                                if (labResults != null && !labResults.isEmpty()) {
-                                    String formattedLabResults = formatLabResults(labResults);
-                                    result.append("### 化验结果:\n")
-                                            .append(formattedLabResults.isEmpty() ? "无化验结果数据" : formattedLabResults);
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No lab results found for patient: {}", patientId);
-                                    result.append("### 化验结果:\n无化验结果数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get lab results for patient: {}", patientId, e);
-                                result.append("### 化验结果:\n无化验结果数据");
-                            }
-                            break;
-                        case "检查结果":
-                            try {
-                                logger.info("Attempting to get examination results for patient: {}", patientId);
-                                // 直接调用ExaminationResultService格式化检查结果
-                                String formattedExamResults = examinationResultService
-                                    .getFormattedResultsByPatientId(patientId);
-                                
-                                if (formattedExamResults != null && !formattedExamResults.isEmpty()) {
-                                    result.append("### 检查结果:\n").append(formattedExamResults);
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No examination results found for patient: {}", patientId);
-                                    result.append("### 检查结果:\n无检查结果数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get examination results for patient: {}", patientId, e);
-                                result.append("### 检查结果:\n无检查结果数据");
-                            }
-                            break;
-                        case "入院记录":
-                            /**
-                             * 入院记录数据获取逻辑（入院记录总结优先）
-                             * 1. 优先从 PromptResult 中查找模板名包含“入院记录总结”的结果内容作为入院记录总结；
-                             * 2. 若无入院记录总结，则从 EMR_CONTENT 表获取原始入院记录内容列表并拼接；
-                             * 3. 当两者都不存在或查询异常时，输出“无入院记录数据”作为无入院病历的统一标记，供定时任务识别并跳过分析。
-                             */
-                            try {
-                                // 1. 优先使用 PromptResult 中的入院记录总结
-                                List<PatientPromptResultDTO> summaryResults = promptResultRepository.findMedicalSummaryByPatientId(patientId);
-                                String admissionSummary = null;
-
-                                if (summaryResults != null && !summaryResults.isEmpty()) {
-                                    for (PatientPromptResultDTO dto : summaryResults) {
-                                        String templateName = dto.getPromptTemplateName();
-                                        if (templateName != null && templateName.contains("入院记录总结")) {
-                                            String content = dto.getOriginalResultContent();
-                                            if (content == null || content.isEmpty()) {
-                                                content = dto.getModifiedResultContent();
-                                            }
-                                            if (content != null && !content.isEmpty()) {
-                                                admissionSummary = content;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-
-                                if (admissionSummary != null) {
-                                    result.append("### 入院记录:\n")
-                                            .append(admissionSummary);
-                                    apiResponse = "success";
-                                } else {
-                                    // 2. 无入院记录总结时，降级到 EMR_CONTENT 原始入院记录
-                                    List<String> admissionContents = emrRecordService.getAdmissionRecordContent(patientId);
-                                    if (admissionContents != null && !admissionContents.isEmpty()) {
-                                        result.append("### 入院记录:\n")
-                                                .append(String.join("\n", admissionContents));
-                                        apiResponse = "success";
-                                    } else {
-                                        // 3. 两者都不存在时，统一标记为无入院记录数据
-                                        result.append("### 入院记录:\n无入院记录数据");
-                                        apiResponse = null;
-                                    }
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get admission record for patient: {}", patientId, e);
-                                result.append("### 入院记录:\n无入院记录数据");
-                                apiResponse = null;
-                            }
-                            break;
-                        case "会诊记录":
-                            /**
-                             * 会诊记录数据获取逻辑
-                             *
-                             * 数据来源：EMR_CONTENT 表中 DOC_TYPE_NAME = "会诊记录" 的记录
-                             * 处理方式参考"手术记录"：
-                             *  - 输出时间 + 会诊内容 + 记录人
-                             *  - 多条记录之间使用 "------" 分隔
-                             *  - 无数据或异常时输出统一标记"无会诊记录数据"
-                             */
-                            try {
-                                logger.info("Attempting to get consultation records for patient: {}", patientId);
-                                // 通过 EmrRecordService 从 EMR_CONTENT 表获取 DOC_TYPE_NAME='会诊记录' 的记录
-                                List<EmrContent> consultationRecords =
-                                        emrRecordService.getEmrRecordsByPatientIdAndDocType(patientId, "会诊记录");
-                                int recordCount = consultationRecords != null ? consultationRecords.size() : 0;
-                                logger.info("Found {} consultation records for patient: {}", recordCount, patientId);
-
-                                if (consultationRecords != null && !consultationRecords.isEmpty()) {
-                                    java.text.SimpleDateFormat dateFormat =
-                                            new java.text.SimpleDateFormat("yyyy年MM月dd日 HH:mm");
-                                    StringBuilder consultationBuilder = new StringBuilder();
-                                    for (EmrContent record : consultationRecords) {
-                                        if (record.getRecordDate() != null) {
-                                            consultationBuilder
-                                                    .append("记录时间: ")
-                                                    .append(dateFormat.format(record.getRecordDate()))
-                                                    .append("\n");
-                                        }
-                                        if (record.getContent() != null && !record.getContent().isEmpty()) {
-                                            consultationBuilder
-                                                    .append(record.getContent())
-                                                    .append("\n");
-                                        }
-                                        if (record.getCreateBy() != null && !record.getCreateBy().isEmpty()) {
-                                            consultationBuilder
-                                                    .append("记录人: ")
-                                                    .append(record.getCreateBy())
-                                                    .append("\n");
-                                        }
-                                        consultationBuilder.append("------\n");
-                                    }
-                                    result.append("### 会诊记录:\n")
-                                            .append(consultationBuilder.toString().trim());
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No consultation records found for patient: {}", patientId);
-                                    result.append("### 会诊记录:\n无会诊记录数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get consultation records for patient: {}", patientId, e);
-                                result.append("### 会诊记录:\n无会诊记录数据");
-                            }
-                            break;
-                        case "手术记录":
-                            /**
-                             * 获取患者手术记录
-                             * 
-                             * @description
-                             * 使用统一的模糊匹配查询方法，兼容EMR_CONTENT表中DOC_TYPE_NAME字段的多种命名变体。
-                             * 避免因精确匹配导致的手术记录遍漏问题。
-                             * 
-                             * @param patientId 患者ID
-                             * @param result 结果字符串构建器
-                             * 
-                             * @process
-                             * 1. 调用 emrContentRepository.findOperationsByPatientId(patientId) 查询手术相关记录
-                             * 2. 查询条件：DOC_TYPE_NAME LIKE '%手术记录%' OR DOC_TYPE_NAME LIKE '%操作记录%'
-                             * 3. 兼容的命名变体包括：
-                             *    - "手术记录"
-                             *    - "手术/操作记录"
-                             *    - "操作记录"
-                             *    - 其他包含相关关键字的变体
-                             * 4. 若查询到记录，按以下格式输出：
-                             *    - 记录时间：yyyy年MM月dd日 HH:mm
-                             *    - 手术记录内容
-                             *    - 记录人
-                             *    - 分隔线 "------"
-                             * 5. 若无数据或查询异常，输出"无手术记录数据"
-                             * 
-                             * @errorHandling
-                             * - 查询异常时记录错误日志，不影响其他数据类型的获取
-                             * - 返回统一格式的"无手术记录数据"标记
-                             * 
-                             * @example
-                             * // 有手术记录的情况
-                             * ### 手术记录:
-                             * 记录时间: 2026年02月08日 14:30
-                             * （手术记录内容）
-                             * 记录人: 张医生
-                             * ------
-                             * 
-                             * // 无手术记录的情况
-                             * ### 手术记录:
-                             * 无手术记录数据
-                             * 
-                             * @since 2026-02-08
-                             * @author System
-                             */
-                            try {
-                                logger.info("Attempting to get surgery records for patient: {}", patientId);
-                                // 使用统一的手术记录查询方法，兼容"手术记录"、"操作记录"、"手术/操作记录"等多种命名
-                                List<EmrContent> surgeryRecords = emrContentRepository.findOperationsByPatientId(patientId);
-                                logger.info("Found {} surgery records for patient: {}", surgeryRecords != null ? surgeryRecords.size() : 0, patientId);
-
-                                if (surgeryRecords != null && !surgeryRecords.isEmpty()) {
-                                    java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("yyyy年MM月dd日 HH:mm");
-                                    StringBuilder surgeriesBuilder = new StringBuilder();
-                                    for (EmrContent record : surgeryRecords) {
-                                        if (record.getRecordDate() != null) {
-                                            surgeriesBuilder.append("记录时间: ").append(dateFormat.format(record.getRecordDate())).append("\n");
-                                        }
-                                        if (record.getContent() != null && !record.getContent().isEmpty()) {
-                                            surgeriesBuilder.append(record.getContent()).append("\n");
-                                        }
-                                        if (record.getCreateBy() != null) {
-                                            surgeriesBuilder.append("记录人: ").append(record.getCreateBy()).append("\n");
-                                        }
-                                        surgeriesBuilder.append("------\n");
-                                    }
-                                    result.append("### 手术记录:\n").append(surgeriesBuilder.toString().trim());
-                                    apiResponse = "success";
-                                } else {
-                                    logger.warn("No surgery records found for patient: {}", patientId);
-                                    result.append("### 手术记录:\n无手术记录数据");
-                                }
-                            } catch (Exception e) {
-                                logger.error("Failed to get surgery records for patient: {}", patientId, e);
-                                result.append("### 手术记录:\n无手术记录数据");
-                            }
-                            break;
-                        default:
-                            logger.warn("Unknown data type: {}", trimmedType);
-                            result.append("\n").append(dataType).append(":\n未知数据类型");
-                    }
-                    result.append("\n------\n");
-                    logger.info("Processed data type: {}, response: {}", trimmedType,
-                            apiResponse != null ? "success" : "null/empty");
-                } catch (Exception e) {
-                    logger.error("Failed to get data for type: {}", trimmedType, e);
-                    result.append("\n").append(dataType).append(":\n数据获取失败: ")
-                            .append(e.getMessage())
-                            .append("\n------\n");
-                }
-            }
-
-            String finalResult = result.toString();
+            String finalResult = patientContextAssembler.assemble(patientId, promptType, promptName);
             logger.info("Returning patient data - length: {}", finalResult.length());
 
             return ResponseEntity.ok(finalResult);
@@ -2132,7 +1621,7 @@ public class AIController {
             try {
                 List<LabResult> labResults = getRecentLabResults(patientId, 2);
                 if (labResults != null && !labResults.isEmpty()) {
-                    String formattedResults = formatLabResults(labResults);
+                    String formattedResults = patientContextAssembler.formatLabResults(labResults);
                     if (formattedResults != null && !formattedResults.isEmpty()) {
                         result.append(formattedResults);
                     } else {
@@ -2319,116 +1808,6 @@ public class AIController {
                 .collect(Collectors.toList());
     }
 
-    /**
-     * 格式化化验结果
-     * 
-     * @param labResults 化验结果列表
-     * @return 格式化后的字符串
-     */
-    private String formatLabResults(List<LabResult> labResults) {
-        if (labResults == null || labResults.isEmpty()) {
-            return "";
-        }
-
-        // 先按时间升序排序，再按异常标志排序（H、L、N）
-        labResults.sort((a, b) -> {
-            try {
-                if (a.getLabReportTime() == null) return 1;
-                if (b.getLabReportTime() == null) return -1;
-                int timeCompare = a.getLabReportTime().compareTo(b.getLabReportTime());
-                if (timeCompare != 0) {
-                    return timeCompare;
-                }
-                int abnormalOrderA = getAbnormalOrder(a.getAbnormalIndicator());
-                int abnormalOrderB = getAbnormalOrder(b.getAbnormalIndicator());
-                return Integer.compare(abnormalOrderA, abnormalOrderB);
-            } catch (Exception e) {
-                return 0;
-            }
-        });
-
-        // 按时间和类型分组
-        Map<String, Map<String, List<LabResult>>> groupedResults = new LinkedHashMap<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy年MM月dd日HH:mm");
-
-        for (LabResult labResult : labResults) {
-            String issueTime = "未知时间";
-            try {
-                if (labResult.getLabReportTime() != null) {
-                    // labReportTime现在是Timestamp类型，直接格式化
-                    issueTime = sdf.format(labResult.getLabReportTime());
-                }
-            } catch (Exception e) {
-                System.out.println("日期格式化失败: " + labResult.getLabReportTime());
-            }
-
-            String labType = labResult.getLabType() != null ? labResult.getLabType() : "未知类型";
-
-            groupedResults
-                    .computeIfAbsent(issueTime, k -> new LinkedHashMap<>())
-                    .computeIfAbsent(labType, k -> new ArrayList<>())
-                    .add(labResult);
-        }
-
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Map<String, List<LabResult>>> timeEntry : groupedResults.entrySet()) {
-            String issueTime = timeEntry.getKey();
-
-            for (Map.Entry<String, List<LabResult>> typeEntry : timeEntry.getValue().entrySet()) {
-                String labType = typeEntry.getKey();
-                sb.append(issueTime).append(" ").append(labType).append("\n");
-
-                for (LabResult labResult : typeEntry.getValue()) {
-                    String labName = labResult.getLabName() != null ? labResult.getLabName() : "未知项目";
-                    String resultValue = labResult.getLabResult() != null ? labResult.getLabResult() : "";
-                    String unit = labResult.getUnit() != null ? labResult.getUnit() : "";
-                    String abnormalIndicator = labResult.getAbnormalIndicator() != null
-                            ? labResult.getAbnormalIndicator()
-                            : "";
-
-                    sb.append(labName).append(" ")
-                            .append(resultValue).append(" ")
-                            .append(unit);
-
-                    if ("h".equalsIgnoreCase(abnormalIndicator)) {
-                        sb.append(" (升高)");
-                    } else if ("l".equalsIgnoreCase(abnormalIndicator)) {
-                        sb.append(" (降低)");
-                    }
-
-                    sb.append("\n");
-                }
-
-                sb.append("\n");
-            }
-        }
-
-        return sb.toString().trim();
-    }
-
-    /**
-     * 异常标志排序权重：H(0) < L(1) < N(2) < 其它/空(3)
-     * 
-     * @param abnormalIndicator 异常标志（H=高于正常值，L=低于正常值，N=正常）
-     * @return 排序权重值
-     */
-    private int getAbnormalOrder(String abnormalIndicator) {
-        if (abnormalIndicator == null) {
-            return 3;
-        }
-        String flag = abnormalIndicator.trim();
-        if ("H".equalsIgnoreCase(flag)) {
-            return 0;
-        }
-        if ("L".equalsIgnoreCase(flag)) {
-            return 1;
-        }
-        if ("N".equalsIgnoreCase(flag)) {
-            return 2;
-        }
-        return 3;
-    }
-
     /**
      * 获取最近几天的检查结果
      * 
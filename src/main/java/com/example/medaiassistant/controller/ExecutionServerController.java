@@ -8,6 +8,7 @@ import java.util.function.Supplier;
 import javax.sql.DataSource;
 import com.zaxxer.hikari.HikariDataSource;
 import com.example.medaiassistant.service.ServerConfigService;
+import com.example.medaiassistant.service.CryptoKeyRing;
 import com.example.medaiassistant.service.EncryptedDataTempService;
 import com.example.medaiassistant.service.AsyncCallbackService;
 import com.example.medaiassistant.model.ServerConfiguration;
@@ -91,6 +92,9 @@ public class ExecutionServerController {
     /** 服务器配置服务 */
     private final ServerConfigService serverConfigService;
 
+    /** AES密钥环 */
+    private final CryptoKeyRing cryptoKeyRing;
+
     /** 加密数据临时表Repository - 使用执行服务器专用Repository */
     private final ExecutionServerEncryptedDataTempRepository encryptedDataTempRepository;
 
@@ -384,13 +388,16 @@ public class ExecutionServerController {
      * @param encryptedDataTempService    加密数据临时表服务
      * @param asyncCallbackService        异步回调服务
      * @param aiModelConfig               AI模型配置
+     * @param cryptoKeyRing               AES密钥环
      */
     public ExecutionServerController(ServerConfigService serverConfigService,
             ExecutionServerEncryptedDataTempRepository encryptedDataTempRepository,
             EncryptedDataTempService encryptedDataTempService,
             AsyncCallbackService asyncCallbackService,
-            AIModelConfig aiModelConfig) {
+            AIModelConfig aiModelConfig,
+            CryptoKeyRing cryptoKeyRing) {
         this.serverConfigService = serverConfigService;
+        this.cryptoKeyRing = cryptoKeyRing;
         this.encryptedDataTempRepository = encryptedDataTempRepository;
         this.encryptedDataTempService = encryptedDataTempService;
         this.asyncCallbackService = asyncCallbackService;
@@ -511,21 +518,16 @@ public class ExecutionServerController {
 
             logger.info("接收到加密Prompt请求，数据长度: {} 字符", encryptedPrompt.length());
 
-            // 从数据库获取AES加密配置
-            ServerConfiguration encryptionKeyConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_KEY");
-            ServerConfiguration encryptionSaltConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_SALT");
+            // 获取AES密钥（由密钥环缓存，配置未变化时不重复派生）
+            CryptoKeyRing.KeyVersion keyVersion = cryptoKeyRing.currentKey();
 
-            if (encryptionKeyConfig == null || encryptionSaltConfig == null) {
+            if (!keyVersion.isPresent()) {
                 logger.error("AES加密配置未找到，请检查数据库配置");
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                         .body(Map.of("error", "AES加密配置未找到，请检查数据库配置"));
             }
 
-            String encryptionKey = encryptionKeyConfig.getConfigData();
-            String encryptionSalt = encryptionSaltConfig.getConfigData();
-
-            if (encryptionKey == null || encryptionKey.trim().isEmpty() ||
-                    encryptionSalt == null || encryptionSalt.trim().isEmpty()) {
+            if (!keyVersion.isUsable()) {
                 logger.error("AES加密密钥或盐值为空");
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                         .body(Map.of("error", "AES加密密钥或盐值为空"));
@@ -535,7 +537,7 @@ public class ExecutionServerController {
             long startTime = System.nanoTime();
 
             // 使用AES解密工具进行解密
-            String decryptedPrompt = AESEncryptionUtil.decrypt(encryptedPrompt, encryptionKey, encryptionSalt);
+            String decryptedPrompt = AESEncryptionUtil.decrypt(encryptedPrompt, keyVersion.getKeySpec());
 
             // 计算解密用时
             long decryptTime = System.nanoTime() - startTime;
@@ -1378,26 +1380,20 @@ public class ExecutionServerController {
      */
     private String encryptProcessingResult(String processingResult) {
         try {
-            // 从数据库获取AES加密配置
-            ServerConfiguration encryptionKeyConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_KEY");
-            ServerConfiguration encryptionSaltConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_SALT");
+            CryptoKeyRing.KeyVersion keyVersion = cryptoKeyRing.currentKey();
 
-            if (encryptionKeyConfig == null || encryptionSaltConfig == null) {
+            if (!keyVersion.isPresent()) {
                 logger.error("AES加密配置未找到，无法加密处理结果");
                 return processingResult; // 返回原始结果
             }
 
-            String encryptionKey = encryptionKeyConfig.getConfigData();
-            String encryptionSalt = encryptionSaltConfig.getConfigData();
-
-            if (encryptionKey == null || encryptionKey.trim().isEmpty() ||
-                    encryptionSalt == null || encryptionSalt.trim().isEmpty()) {
+            if (!keyVersion.isUsable()) {
                 logger.error("AES加密密钥或盐值为空，无法加密处理结果");
                 return processingResult; // 返回原始结果
             }
 
-            // 使用AES加密工具进行加密
-            return AESEncryptionUtil.encrypt(processingResult, encryptionKey, encryptionSalt);
+            // 使用缓存的AES密钥进行加密
+            return AESEncryptionUtil.encrypt(processingResult, keyVersion.getKeySpec());
         } catch (Exception e) {
             logger.error("加密处理结果失败", e);
             return processingResult; // 返回原始结果
@@ -2643,23 +2639,17 @@ public class ExecutionServerController {
      */
     private String decryptPollingData(String encryptedData) {
         try {
-            // 获取AES加密配置
-            var encryptionKeyConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_KEY");
-            var encryptionSaltConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_SALT");
+            CryptoKeyRing.KeyVersion keyVersion = cryptoKeyRing.currentKey();
 
-            if (encryptionKeyConfig == null || encryptionSaltConfig == null) {
+            if (!keyVersion.isPresent()) {
                 throw new IllegalStateException("AES加密配置未找到");
             }
 
-            String encryptionKey = encryptionKeyConfig.getConfigData();
-            String encryptionSalt = encryptionSaltConfig.getConfigData();
-
-            if (encryptionKey == null || encryptionKey.trim().isEmpty() ||
-                    encryptionSalt == null || encryptionSalt.trim().isEmpty()) {
+            if (!keyVersion.isUsable()) {
                 throw new IllegalStateException("AES加密密钥或盐值为空");
             }
 
-            return AESEncryptionUtil.decrypt(encryptedData, encryptionKey, encryptionSalt);
+            return AESEncryptionUtil.decrypt(encryptedData, keyVersion.getKeySpec());
 
         } catch (Exception e) {
             logger.error("解密数据失败", e);
@@ -2833,26 +2823,20 @@ public class ExecutionServerController {
      */
     private String decryptProcessingResult(String encryptedResult) {
         try {
-            // 从数据库获取AES加密配置
-            ServerConfiguration encryptionKeyConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_KEY");
-            ServerConfiguration encryptionSaltConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_SALT");
+            CryptoKeyRing.KeyVersion keyVersion = cryptoKeyRing.currentKey();
 
-            if (encryptionKeyConfig == null || encryptionSaltConfig == null) {
+            if (!keyVersion.isPresent()) {
                 logger.error("AES加密配置未找到，无法解密验证结果");
                 return null;
             }
 
-            String encryptionKey = encryptionKeyConfig.getConfigData();
-            String encryptionSalt = encryptionSaltConfig.getConfigData();
-
-            if (encryptionKey == null || encryptionKey.trim().isEmpty() ||
-                    encryptionSalt == null || encryptionSalt.trim().isEmpty()) {
+            if (!keyVersion.isUsable()) {
                 logger.error("AES加密密钥或盐值为空，无法解密验证结果");
                 return null;
             }
 
-            // 使用AES解密工具进行解密
-            return AESEncryptionUtil.decrypt(encryptedResult, encryptionKey, encryptionSalt);
+            // 使用缓存的AES密钥进行解密
+            return AESEncryptionUtil.decrypt(encryptedResult, keyVersion.getKeySpec());
         } catch (Exception e) {
             logger.error("解密验证结果失败", e);
             return null;
@@ -201,6 +201,7 @@ public class NightlySyncController {
      *   <li>{@code labSyncSuccess/labSyncFailed} - int，化验同步成功/失败数</li>
      *   <li>{@code examSyncSuccess/examSyncFailed} - int，检查同步成功/失败数</li>
      *   <li>{@code emrSyncSuccess/emrSyncFailed} - int，EMR同步成功/失败数</li>
+     *   <li>{@code stageMetrics} - Object，各阶段成功/失败数、吞吐量、平均/最长处理耗时和排队耗时</li>
      *   <li>{@code errorMessage} - String，错误信息（可选）</li>
      * </ul>
      * 
@@ -252,6 +253,7 @@ public class NightlySyncController {
                 response.put("emrSyncFailed", result.getEmrSyncFailed());
                 response.put("orderSyncSuccess", result.getOrderSyncSuccess());
                 response.put("orderSyncFailed", result.getOrderSyncFailed());
+                response.put("stageMetrics", result.getStageMetrics());
                 if (result.getErrorMessage() != null) {
                     response.put("errorMessage", result.getErrorMessage());
                 }
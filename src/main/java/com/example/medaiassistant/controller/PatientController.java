@@ -21,9 +21,9 @@ import com.example.medaiassistant.repository.ConversationHistoryRepository;
 import com.example.medaiassistant.service.OrderFormatService;
 import com.example.medaiassistant.service.PatientStatusUpdateService;
 import com.example.medaiassistant.service.PatientSaveService;
-import com.example.medaiassistant.hospital.service.PatientSyncService;
 import com.example.medaiassistant.hospital.service.HospitalConfigService;
-import com.example.medaiassistant.hospital.dto.PatientSyncResult;
+import com.example.medaiassistant.hospital.service.DepartmentPatientListService;
+import com.example.medaiassistant.hospital.dto.DepartmentPatientList;
 import com.example.medaiassistant.dto.ConversationHistoryDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,10 +71,21 @@ public class PatientController {
     private PatientSaveService patientSaveService;
 
     @Autowired
-    private PatientSyncService patientSyncService;
+    private HospitalConfigService hospitalConfigService;
 
     @Autowired
-    private HospitalConfigService hospitalConfigService;
+    private DepartmentPatientListService departmentPatientListService;
+
+    /** 科室病人列表最近一次成功同步HIS的时间（ISO-8601），尚未同步时不返回 */
+    public static final String HEADER_LIST_SYNCED_AT = "X-Patient-List-Synced-At";
+    /** 科室病人列表距最近一次同步的秒数，尚未同步时为-1 */
+    public static final String HEADER_LIST_AGE_SECONDS = "X-Patient-List-Age-Seconds";
+    /** 科室病人列表是否超出新鲜度窗口 */
+    public static final String HEADER_LIST_STALE = "X-Patient-List-Stale";
+    /** 是否有后台HIS刷新正在进行 */
+    public static final String HEADER_LIST_REFRESHING = "X-Patient-List-Refreshing";
+    /** 最近一次HIS刷新是否失败 */
+    public static final String HEADER_LIST_REFRESH_FAILED = "X-Patient-List-Refresh-Failed";
 
 /**
      * 根据科室获取在院患者列表
@@ -85,6 +96,10 @@ public class PatientController {
      * 请求示例：
      * GET /api/patients/by-department?department=心内科
      * 
+     * 默认（sync=true）在列表超出新鲜度窗口时于后台从HIS刷新，本次请求立即返回主服务器中的现有数据；
+     * sync=false时不刷新。响应头X-Patient-List-Synced-At、X-Patient-List-Age-Seconds、
+     * X-Patient-List-Stale、X-Patient-List-Refreshing、X-Patient-List-Refresh-Failed给出列表的新鲜度。
+     * 
      * 响应示例：
      * [
      *   {
@@ -101,6 +116,7 @@ public class PatientController {
      * ]
      * 
      * @param department 科室名称，用于筛选指定科室的在院患者
+     * @param sync 列表过期时是否从HIS刷新，默认true
      * @return List<PatientDTO> 在院患者信息列表，包含患者的基本信息和状态
      * @since 2025-08-10
      * @author Cline
@@ -117,21 +133,12 @@ public class PatientController {
                     .body("未找到启用的医院配置，请检查医院配置文件");
         }
         
-        // 2. 如果sync=true（默认），执行病人数据同步
-        if (Boolean.TRUE.equals(sync)) {
-            try {
-                PatientSyncResult syncResult = patientSyncService.syncPatients(hospitalId, department);
-                log.info("科室 {} 病人数据同步完成: 新增={}, 更新={}, 出院={}", 
-                        department, syncResult.getAddedCount(), 
-                        syncResult.getUpdatedCount(), syncResult.getDischargedCount());
-            } catch (Exception e) {
-                log.error("科室 {} 病人数据同步失败，继续返回现有数据: {}", department, e.getMessage());
-                // 同步失败时继续返回现有数据，不中断接口
-            }
-        }
+        // 2. 读取科室病人列表：超出新鲜度窗口时后台刷新（同一科室只刷新一次），不等待HIS
+        DepartmentPatientList patientList =
+                departmentPatientListService.getPatients(hospitalId, department, Boolean.TRUE.equals(sync));
         
-        // 3. 查询并返回同步后的病人列表
-        List<Patient> patients = patientRepository.findByDepartmentAndIsInHospital(department, true);
+        // 3. 返回病人列表，新鲜度信息放在响应头中
+        List<Patient> patients = patientList.getPatients();
         List<PatientDTO> patientDTOs = patients.stream().map(patient -> {
             PatientDTO dto = new PatientDTO();
             dto.setPatientId(patient.getPatientId());
@@ -146,7 +153,15 @@ public class PatientController {
             return dto;
         }).collect(Collectors.toList());
         
-        return ResponseEntity.ok(patientDTOs);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HEADER_LIST_STALE, String.valueOf(patientList.isStale()))
+                .header(HEADER_LIST_AGE_SECONDS, String.valueOf(patientList.getAgeSeconds()))
+                .header(HEADER_LIST_REFRESHING, String.valueOf(patientList.isRefreshing()))
+                .header(HEADER_LIST_REFRESH_FAILED, String.valueOf(patientList.isLastRefreshFailed()));
+        if (patientList.getSyncedAt() != null) {
+            response.header(HEADER_LIST_SYNCED_AT, patientList.getSyncedAt().toInstant().toString());
+        }
+        return response.body(patientDTOs);
     }
     
     /**
@@ -350,6 +350,35 @@ public class PerformanceController {
         return databaseConnectionPoolMonitor.getPerformanceMetrics();
     }
 
+    /**
+     * 获取医院HIS/LIS数据库连接池状态
+     * 
+     * @return 各医院连接池状态
+     * 
+     * @description
+     *              返回DynamicJdbcTemplateFactory为各医院创建的连接池的连接数、等待线程数、使用率和健康状态。
+     * 
+     * @example
+     *          GET /api/performance/hospital-pools
+     * 
+     *          响应示例:
+     *          {
+     *          "hospital-001:his": {
+     *          "poolName": "hospital-hospital-001-his",
+     *          "maximumPoolSize": 5,
+     *          "activeConnections": 2,
+     *          "idleConnections": 1,
+     *          "threadsAwaitingConnection": 0,
+     *          "usageRate": "40.00%",
+     *          "healthStatus": "HEALTHY - 连接池运行正常"
+     *          }
+     *          }
+     */
+    @GetMapping("/hospital-pools")
+    public Map<String, Object> getHospitalPoolStatus() {
+        return databaseConnectionPoolMonitor.getHospitalPoolStatus();
+    }
+
     /**
      * 获取线程池状态信息
      * 
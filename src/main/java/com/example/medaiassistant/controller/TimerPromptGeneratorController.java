@@ -6,6 +6,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 /**
  * TimerPromptGenerator控制器类
  * 提供启动、停止和查询定时器状态的接口
@@ -96,4 +98,14 @@ public class TimerPromptGeneratorController {
             timerPromptGenerator.setMaxConcurrency(originalConcurrency);
         }
     }
+
+    /**
+     * 查询每日Prompt生成进度
+     * 
+     * @return 最近一次运行的已处理患者数、失败数、生成Prompt数、完成百分比、预计剩余时间及当前并发数
+     */
+    @GetMapping("/daily-progress")
+    public Map<String, Object> dailyPromptProgress() {
+        return timerPromptGenerator.getDailyPromptProgress();
+    }
 }
@@ -0,0 +1,51 @@
+package com.example.medaiassistant.controller;
+
+import com.example.medaiassistant.dto.drg.PatientScreeningResult;
+import com.example.medaiassistant.dto.drg.WardScreeningRequest;
+import com.example.medaiassistant.service.WardScreeningService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * 病区批量DRG/MCC筛选控制器
+ *
+ * 一次请求筛选整个科室或一组患者，结果以NDJSON流返回，每行一个患者，评估完成即输出。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Profile("!execution")
+@RestController
+@RequestMapping("/api/drg/ward-screening")
+public class WardScreeningController {
+
+    private final WardScreeningService wardScreeningService;
+
+    @Autowired
+    public WardScreeningController(WardScreeningService wardScreeningService) {
+        this.wardScreeningService = wardScreeningService;
+    }
+
+    /**
+     * 批量筛选病区患者
+     *
+     * @param request 筛选请求，指定科室或患者ID列表（患者ID列表优先）
+     * @return 患者筛选结果流；科室和患者ID列表都为空时返回400
+     */
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<PatientScreeningResult>> screen(@RequestBody WardScreeningRequest request) {
+        boolean noDepartment = request.getDepartment() == null || request.getDepartment().isBlank();
+        boolean noPatients = request.getPatientIds() == null || request.getPatientIds().isEmpty();
+        if (noDepartment && noPatients) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(wardScreeningService.screen(request));
+    }
+}
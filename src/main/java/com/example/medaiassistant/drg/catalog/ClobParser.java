@@ -1,9 +1,10 @@
 package com.example.medaiassistant.drg.catalog;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * CLOB解析器实现
@@ -11,19 +12,21 @@ import java.util.regex.Pattern;
  * 负责将DRGs表中的CLOB字段解析为结构化的诊断和手术数据。
  * 支持ICD编码提取、诊断名称解析、别名解析等功能。
  * 
+ * 每行格式：编码 + 空白 + 名称 + 可选的[别名1,别名2,...]。解析为手写的单遍扫描，
+ * 不使用正则，也不先把整个CLOB拆成行数组；既可以直接扫描字符串，也可以从Reader逐块读取。
+ * 结果与原正则 {@code ^(\S+)\s+([^\[]+?)(?:\[(.+)\])?$|^(\S+)\s+(.+)$} 的匹配一致：
+ * <ul>
+ *   <li>行尾为"]"且名称之后第一个"["到行尾之间有内容时，方括号内为别名（逗号分隔）</li>
+ *   <li>否则整段作为名称（名称中可以包含方括号，如"妊娠[妊娠引起的]高血压"）</li>
+ * </ul>
+ * 
  * @author MedAiAssistant Team
- * @version 1.0
+ * @version 1.1
  * @since 2025-10-22
  */
 public class ClobParser {
 
-    // 改进的正则表达式：更精确地匹配CLOB格式
-    // 格式：编码 + 空格 + 名称 + [别名1,别名2,...]
-    // 支持名称中包含方括号的情况
-    private static final Pattern ENTRY_PATTERN = Pattern.compile("^(\\S+)\\s+([^\\[]+?)(?:\\[(.+)\\])?$|^(\\S+)\\s+(.+)$");
-    
-    // 别名分隔符模式
-    private static final Pattern ALIAS_DELIMITER = Pattern.compile("\\s*,\\s*");
+    private static final int READ_BUFFER_SIZE = 4096;
 
     /**
      * 解析诊断CLOB
@@ -31,11 +34,16 @@ public class ClobParser {
      * @return 诊断条目列表
      */
     public List<DiagnosisEntry> parseDiagnoses(String clob) {
-        return parseClob(clob, (code, name, aliases) -> {
-            DiagnosisEntry entry = new DiagnosisEntry(code, name);
-            aliases.forEach(entry::addAlias);
-            return entry;
-        });
+        return parseClob(clob, ClobParser::newDiagnosis);
+    }
+
+    /**
+     * 从Reader流式解析诊断CLOB
+     * @param reader CLOB字符流（由调用方关闭）
+     * @return 诊断条目列表
+     */
+    public List<DiagnosisEntry> parseDiagnosesFrom(Reader reader) {
+        return parseClob(reader, ClobParser::newDiagnosis);
     }
 
     /**
@@ -44,85 +52,204 @@ public class ClobParser {
      * @return 手术条目列表
      */
     public List<ProcedureEntry> parseProcedures(String clob) {
-        return parseClob(clob, (code, name, aliases) -> {
-            ProcedureEntry entry = new ProcedureEntry(code, name);
-            aliases.forEach(entry::addAlias);
-            return entry;
-        });
+        return parseClob(clob, ClobParser::newProcedure);
     }
 
     /**
-     * 通用的CLOB解析逻辑
-     * @param clob CLOB字符串
-     * @param entryFactory 条目工厂
-     * @param <T> 条目类型
-     * @return 条目列表
+     * 从Reader流式解析手术CLOB
+     * @param reader CLOB字符流（由调用方关闭）
+     * @return 手术条目列表
+     */
+    public List<ProcedureEntry> parseProceduresFrom(Reader reader) {
+        return parseClob(reader, ClobParser::newProcedure);
+    }
+
+    private static DiagnosisEntry newDiagnosis(String code, String name, List<String> aliases) {
+        DiagnosisEntry entry = new DiagnosisEntry(code, name);
+        aliases.forEach(entry::addAlias);
+        return entry;
+    }
+
+    private static ProcedureEntry newProcedure(String code, String name, List<String> aliases) {
+        ProcedureEntry entry = new ProcedureEntry(code, name);
+        aliases.forEach(entry::addAlias);
+        return entry;
+    }
+
+    /**
+     * 直接在字符串上按行扫描
      */
     private <T> List<T> parseClob(String clob, EntryFactory<T> entryFactory) {
         List<T> entries = new ArrayList<>();
-        
-        if (clob == null || clob.trim().isEmpty()) {
+        if (clob == null) {
             return entries;
         }
-        
-        String[] lines = clob.split("\\r?\\n");
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-            if (trimmedLine.isEmpty()) {
-                continue;
+
+        int lineStart = 0;
+        int length = clob.length();
+        while (lineStart <= length) {
+            int lineEnd = clob.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
             }
-            
-            // 尝试两种模式匹配
-            Matcher matcher = ENTRY_PATTERN.matcher(trimmedLine);
-            if (matcher.matches()) {
-                String code, name, aliasPart;
-                
-                // 检查是哪种模式匹配成功
-                if (matcher.group(1) != null) {
-                    // 模式1: 编码 + 空格 + 名称 + [别名]
-                    code = matcher.group(1).trim();
-                    name = matcher.group(2).trim();
-                    aliasPart = matcher.group(3);
-                } else {
-                    // 模式2: 编码 + 空格 + 名称（包含方括号）
-                    code = matcher.group(4).trim();
-                    name = matcher.group(5).trim();
-                    aliasPart = null;
+            parseLine(clob, lineStart, lineEnd, entryFactory, entries);
+            lineStart = lineEnd + 1;
+        }
+        return entries;
+    }
+
+    /**
+     * 从Reader逐块读取，按行解析，行缓冲区复用
+     */
+    private <T> List<T> parseClob(Reader reader, EntryFactory<T> entryFactory) {
+        List<T> entries = new ArrayList<>();
+        if (reader == null) {
+            return entries;
+        }
+
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        StringBuilder line = new StringBuilder(256);
+        try {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int segmentStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        line.append(buffer, segmentStart, i - segmentStart);
+                        parseLine(line, 0, line.length(), entryFactory, entries);
+                        line.setLength(0);
+                        segmentStart = i + 1;
+                    }
                 }
-                
-                List<String> aliases = parseAliases(aliasPart);
-                T entry = entryFactory.create(code, name, aliases);
-                entries.add(entry);
-            } else {
-                // 记录格式错误的行，但不抛出异常以保持容错性
-                System.err.println("无法解析CLOB行: " + trimmedLine);
+                line.append(buffer, segmentStart, read - segmentStart);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取CLOB失败", e);
         }
-        
+        parseLine(line, 0, line.length(), entryFactory, entries);
         return entries;
     }
 
     /**
-     * 解析别名列表
-     * @param aliasPart 别名部分字符串
-     * @return 别名列表
+     * 解析一行（[start, end)），空行跳过，无法解析的行记录后跳过
+     * 行尾的"\r"属于空白，与按"\r?\n"拆分后trim的结果相同
+     */
+    private <T> void parseLine(CharSequence text, int start, int end, EntryFactory<T> entryFactory,
+                               List<T> entries) {
+        // 与String.trim()相同：去除首尾 <= ' ' 的字符
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        // 编码：行首连续的非空白字符，之后必须有空白
+        int codeEnd = start;
+        while (codeEnd < end && !isRegexWhitespace(text.charAt(codeEnd))) {
+            codeEnd++;
+        }
+        if (codeEnd == end) {
+            logUnparsedLine(text, start, end);
+            return;
+        }
+        int nameStart = codeEnd;
+        while (nameStart < end && isRegexWhitespace(text.charAt(nameStart))) {
+            nameStart++;
+        }
+        // trim后行尾不是空白，nameStart < end
+
+        String code = trimmed(text, start, codeEnd);
+        int bracket = indexOf(text, '[', nameStart, end);
+        if (bracket < 0) {
+            entries.add(entryFactory.create(code, trimmed(text, nameStart, end), List.of()));
+            return;
+        }
+
+        // 别名形式：名称不以"["开头（或编码后至少两个空白），行尾为"]"，方括号内非空且不跨行终止符
+        boolean aliasForm = text.charAt(end - 1) == ']'
+            && bracket + 1 < end - 1
+            && !containsLineTerminator(text, bracket + 1, end - 1)
+            && (bracket > nameStart || nameStart - codeEnd >= 2);
+        if (aliasForm) {
+            entries.add(entryFactory.create(code, trimmed(text, nameStart, bracket),
+                parseAliases(text, bracket + 1, end - 1)));
+            return;
+        }
+
+        // 整段作为名称（"."不匹配行终止符）
+        if (containsLineTerminator(text, nameStart, end)) {
+            logUnparsedLine(text, start, end);
+            return;
+        }
+        entries.add(entryFactory.create(code, trimmed(text, nameStart, end), List.of()));
+    }
+
+    /**
+     * 解析别名列表：按逗号拆分，去除首尾空白，忽略空项
      */
-    private List<String> parseAliases(String aliasPart) {
-        List<String> aliases = new ArrayList<>();
-        
-        if (aliasPart != null && !aliasPart.trim().isEmpty()) {
-            String[] aliasArray = ALIAS_DELIMITER.split(aliasPart.trim());
-            for (String alias : aliasArray) {
-                String trimmedAlias = alias.trim();
-                if (!trimmedAlias.isEmpty()) {
-                    aliases.add(trimmedAlias);
+    private List<String> parseAliases(CharSequence text, int start, int end) {
+        List<String> aliases = new ArrayList<>(4);
+        int pieceStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ',') {
+                String alias = trimmed(text, pieceStart, i);
+                if (!alias.isEmpty()) {
+                    aliases.add(alias);
                 }
+                pieceStart = i + 1;
             }
         }
-        
         return aliases;
     }
 
+    /**
+     * 正则 \s 对应的空白字符：[ \t\n\x0B\f\r]
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 正则 "." 不匹配的行终止符
+     */
+    private static boolean containsLineTerminator(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(CharSequence text, char target, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String trimmed(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return text.subSequence(start, end).toString();
+    }
+
+    private static void logUnparsedLine(CharSequence text, int start, int end) {
+        // 记录格式错误的行，但不抛出异常以保持容错性
+        System.err.println("无法解析CLOB行: " + text.subSequence(start, end));
+    }
+
     /**
      * 条目工厂接口
      * @param <T> 条目类型
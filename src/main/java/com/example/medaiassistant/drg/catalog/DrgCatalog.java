@@ -1,5 +1,8 @@
 package com.example.medaiassistant.drg.catalog;
 
+import com.example.medaiassistant.drg.matching.DrgCatalogIndex;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -8,6 +11,8 @@ import java.util.Objects;
  * DRG目录不可变快照
  * 
  * 提供线程安全的并发读取能力，一旦构建就不可修改。
+ * 构建时同时生成匹配视图（dto.drg.DrgCatalog）及其倒排索引（DrgCatalogIndex），
+ * 随快照一起原子替换。
  * 
  * @author MedAiAssistant Team
  * @version 1.0
@@ -16,10 +21,19 @@ import java.util.Objects;
 public class DrgCatalog {
     private final String version;
     private final List<DrgParsedRecord> drgRecords;
+    private final com.example.medaiassistant.dto.drg.DrgCatalog matchingCatalog;
+    private final DrgCatalogIndex index;
 
     public DrgCatalog(String version, List<DrgParsedRecord> drgRecords) {
+        this(version, drgRecords, toMatchingCatalog(drgRecords));
+    }
+
+    public DrgCatalog(String version, List<DrgParsedRecord> drgRecords,
+                      com.example.medaiassistant.dto.drg.DrgCatalog matchingCatalog) {
         this.version = version;
         this.drgRecords = Collections.unmodifiableList(drgRecords);
+        this.matchingCatalog = matchingCatalog;
+        this.index = DrgCatalogIndex.of(matchingCatalog);
     }
 
     public String getVersion() {
@@ -34,6 +48,62 @@ public class DrgCatalog {
         return drgRecords.size();
     }
 
+    /**
+     * 获取供PrimaryDiagnosisProcedureMatcher使用的匹配视图
+     *
+     * @return 匹配用DRG目录
+     */
+    public com.example.medaiassistant.dto.drg.DrgCatalog getMatchingCatalog() {
+        return matchingCatalog;
+    }
+
+    /**
+     * 获取随快照构建的倒排索引
+     *
+     * @return DRG目录索引
+     */
+    public DrgCatalogIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 将解析记录转换为匹配视图（仅包含匹配所需的编码、名称与别名）
+     */
+    private static com.example.medaiassistant.dto.drg.DrgCatalog toMatchingCatalog(List<DrgParsedRecord> records) {
+        List<com.example.medaiassistant.dto.drg.DrgParsedRecord> matchingRecords = new ArrayList<>();
+        for (DrgParsedRecord record : records) {
+            matchingRecords.add(toMatchingRecord(null, record.getDrgId(), null, null, record));
+        }
+        return new com.example.medaiassistant.dto.drg.DrgCatalog(matchingRecords);
+    }
+
+    /**
+     * 将单条解析记录转换为匹配视图记录
+     *
+     * @param drgId DRG主键
+     * @param drgCode DRG编码
+     * @param drgName DRG名称
+     * @param insurancePayment 医保支付标准
+     * @param record 解析记录
+     * @return 匹配用DRG记录
+     */
+    static com.example.medaiassistant.dto.drg.DrgParsedRecord toMatchingRecord(
+            Long drgId, String drgCode, String drgName, java.math.BigDecimal insurancePayment,
+            DrgParsedRecord record) {
+        List<com.example.medaiassistant.dto.drg.DiagnosisEntry> diagnoses = new ArrayList<>();
+        for (DiagnosisEntry diagnosis : record.getDiagnoses()) {
+            diagnoses.add(new com.example.medaiassistant.dto.drg.DiagnosisEntry(
+                diagnosis.getIcdCode(), diagnosis.getDiagnosisName(), diagnosis.getAliases()));
+        }
+        List<com.example.medaiassistant.dto.drg.ProcedureEntry> procedures = new ArrayList<>();
+        for (ProcedureEntry procedure : record.getProcedures()) {
+            procedures.add(new com.example.medaiassistant.dto.drg.ProcedureEntry(
+                procedure.getProcedureCode(), procedure.getProcedureName()));
+        }
+        return new com.example.medaiassistant.dto.drg.DrgParsedRecord(
+            drgId, drgCode, drgName, insurancePayment, diagnoses, procedures);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
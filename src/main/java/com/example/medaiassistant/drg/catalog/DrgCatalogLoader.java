@@ -2,6 +2,7 @@ package com.example.medaiassistant.drg.catalog;
 
 import com.example.medaiassistant.model.Drg;
 import com.example.medaiassistant.repository.DrgRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
@@ -10,8 +11,12 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -19,14 +24,30 @@ import java.util.concurrent.atomic.AtomicReference;
  * DRG目录加载器
  * 
  * 负责加载和管理不可变的DrgCatalog快照，支持原子替换和版本管理。
+ * 每次加载都会同时构建匹配视图及DrgCatalogIndex倒排索引，匹配时无需再扫描全目录。
+ * 
+ * 刷新为增量方式：先查询各行的变更版本（Oracle ORA_ROWSCN，不读取CLOB列），与当前目录加载时
+ * 记录的版本比较，只按主键取回新增或变更的行重新解析，未变更的解析记录直接复用，删除的行移除，
+ * 再构建新的不可变目录版本。没有任何变更时保留当前目录。变更版本查询不可用（非Oracle数据库或
+ * 查询失败）时退回全表加载。
+ * 
+ * 每次加载或刷新成功后把解析结果写入本地二进制快照（DrgCatalogSnapshotStore）。启动时先读取快照：
+ * 快照指纹与数据库当前指纹一致时直接发布快照中的目录，再在后台从数据库刷新；不一致时以快照为基础
+ * 同步增量刷新，只重新解析变更的行；没有可用快照时全表加载。
  * 
  * @author MedAiAssistant Team
- * @version 1.0
+ * @version 1.1
  * @since 2025-10-23
  */
+@Slf4j
 @Profile("!execution")
 @Component
 public class DrgCatalogLoader {
+    /** 按主键取回变更行时每次IN列表的大小（Oracle上限1000） */
+    private static final int FETCH_CHUNK_SIZE = 1000;
+    /** 加载时未取到行变更版本，下次刷新一定重新解析 */
+    private static final long UNKNOWN_ROW_VERSION = Long.MIN_VALUE;
+
     private final AtomicReference<DrgCatalog> currentCatalog;
     private final AtomicReference<String> previousVersion;
     private final AtomicLong refreshCount;
@@ -34,18 +55,90 @@ public class DrgCatalogLoader {
     private final List<String> versionHistory;
     private final ClobParser clobParser;
     private final DrgRepository drgRepository;
+    /** 本地快照，为null时不读写快照 */
+    private final DrgCatalogSnapshotStore snapshotStore;
+    /** 串行化加载与刷新（读取方只读currentCatalog） */
+    private final Object reloadLock = new Object();
+    /** 当前目录各行的解析结果及其行变更版本，与当前目录的记录顺序一致；为空时下次刷新全量加载 */
+    private volatile List<LoadedRow> loadedRows = List.of();
+    private final AtomicLong incrementalRefreshCount = new AtomicLong();
+    private volatile int lastReparsedRows;
 
-    @Autowired
     public DrgCatalogLoader(ClobParser clobParser, DrgRepository drgRepository) {
+        this(clobParser, drgRepository, null);
+    }
+
+    @Autowired
+    public DrgCatalogLoader(ClobParser clobParser, DrgRepository drgRepository,
+                            DrgCatalogSnapshotStore snapshotStore) {
         this.clobParser = clobParser;
         this.drgRepository = drgRepository;
+        this.snapshotStore = snapshotStore;
         this.currentCatalog = new AtomicReference<>();
         this.previousVersion = new AtomicReference<>();
         this.refreshCount = new AtomicLong(0);
         this.lastRefreshTime = new AtomicLong(System.currentTimeMillis());
         this.versionHistory = Collections.synchronizedList(new LinkedList<>());
-        // 初始化时立即加载目录
-        loadCatalog();
+        // 初始化时优先从本地快照恢复，否则立即加载目录
+        if (!restoreSnapshot()) {
+            loadCatalog();
+        }
+    }
+
+    /**
+     * 从本地快照恢复目录
+     * 
+     * @return 是否已从快照恢复（包括以快照为基础增量刷新）
+     */
+    private boolean restoreSnapshot() {
+        if (snapshotStore == null || !snapshotStore.isEnabled()) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        DrgCatalogSnapshotStore.Snapshot snapshot = snapshotStore.read();
+        if (snapshot == null || snapshot.rows().isEmpty()) {
+            return false;
+        }
+        Map<Long, Long> rowVersions = fetchRowVersions();
+        if (rowVersions == null || rowVersions.isEmpty()) {
+            return false;
+        }
+
+        synchronized (reloadLock) {
+            loadedRows = snapshot.rows();
+            DrgCatalog restored = buildCatalog(snapshot.version(), snapshot.rows());
+            if (DrgCatalogSnapshotStore.fingerprint(rowVersions) == snapshot.fingerprint()) {
+                currentCatalog.set(restored);
+                lastReparsedRows = 0;
+                log.info("DRG目录已从本地快照恢复: 版本 {}, {} 行, 耗时 {}ms",
+                    restored.getVersion(), restored.getRecordCount(), System.currentTimeMillis() - start);
+                refreshInBackground();
+                return true;
+            }
+
+            DrgCatalog refreshed = reloadChangedRows(restored, rowVersions);
+            if (refreshed == null) {
+                loadedRows = List.of();
+                return false;
+            }
+            currentCatalog.set(refreshed);
+            log.info("DRG目录已从本地快照增量恢复: 版本 {}, 重新解析 {} 行, 耗时 {}ms",
+                refreshed.getVersion(), lastReparsedRows, System.currentTimeMillis() - start);
+            return true;
+        }
+    }
+
+    /**
+     * 后台从数据库刷新，补上指纹比较之后发生的变更
+     */
+    private void refreshInBackground() {
+        Thread.ofVirtual().name("drg-catalog-refresh").start(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.error("DRG目录后台刷新失败，继续使用快照版本: {}", e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -57,22 +150,39 @@ public class DrgCatalogLoader {
      * @throws RuntimeException 如果数据库查询失败
      */
     public DrgCatalog loadCatalog() {
-        DrgCatalog catalog = createCatalog();
-        currentCatalog.set(catalog);
-        return catalog;
+        synchronized (reloadLock) {
+            DrgCatalog catalog = createCatalog();
+            currentCatalog.set(catalog);
+            return catalog;
+        }
     }
 
     /**
      * 重新加载目录（原子替换）
      * 
-     * 重新从数据库加载数据并原子替换当前目录，确保并发读取的一致性。
+     * 只重新解析变更的行，构建新目录后原子替换当前目录，确保并发读取的一致性。
+     * 没有变更时返回当前目录，版本不变；无法增量刷新时全表加载。
      * 
-     * @return 新创建的DrgCatalog实例
+     * @return 刷新后的DrgCatalog实例
      * @throws RuntimeException 如果数据库查询失败
      */
     public DrgCatalog reload() {
+        synchronized (reloadLock) {
+            return reloadLocked();
+        }
+    }
+
+    private DrgCatalog reloadLocked() {
         DrgCatalog oldCatalog = currentCatalog.get();
-        DrgCatalog newCatalog = createCatalog();
+        DrgCatalog newCatalog = reloadChangedRows(oldCatalog, fetchRowVersions());
+        if (newCatalog == null) {
+            newCatalog = createCatalog();
+        } else if (newCatalog == oldCatalog) {
+            // 没有变更，保留当前版本
+            refreshCount.incrementAndGet();
+            lastRefreshTime.set(System.currentTimeMillis());
+            return oldCatalog;
+        }
         
         // 更新版本历史记录
         if (oldCatalog != null) {
@@ -90,17 +200,153 @@ public class DrgCatalogLoader {
     }
 
     /**
-     * 创建新的目录实例
+     * 创建新的目录实例（全表加载）
      * 
      * 提取公共方法消除重复代码，负责从数据库加载记录并生成版本标识。
+     * 行变更版本在读取数据之前查询，期间发生的修改在下次刷新时会被再次取回。
      * 
      * @return 新创建的DrgCatalog实例
      * @throws RuntimeException 如果数据库查询失败
      */
     private DrgCatalog createCatalog() {
-        List<DrgParsedRecord> records = loadRecordsFromDatabase();
-        String version = generateVersion();
-        return new DrgCatalog(version, records);
+        Map<Long, Long> rowVersions = fetchRowVersions();
+        List<Drg> drgEntities = drgRepository.findAll();
+
+        List<LoadedRow> rows = new ArrayList<>(drgEntities.size());
+        boolean trackable = rowVersions != null && !rowVersions.isEmpty();
+        for (Drg drg : drgEntities) {
+            Long rowVersion = rowVersions != null ? rowVersions.get(drg.getDrgId()) : null;
+            rows.add(parseRow(drg, rowVersion != null ? rowVersion : UNKNOWN_ROW_VERSION));
+            trackable &= drg.getDrgId() != null;
+        }
+        lastReparsedRows = rows.size();
+        return publishRows(rows, rowVersions, trackable);
+    }
+
+    /**
+     * 增量刷新：只重新解析新增或变更的行
+     * 
+     * @param current 当前目录
+     * @param rowVersions 数据库当前的行变更版本，查询不可用时为null
+     * @return 新目录；没有变更时返回current；无法增量刷新时返回null
+     */
+    private DrgCatalog reloadChangedRows(DrgCatalog current, Map<Long, Long> rowVersions) {
+        List<LoadedRow> rows = loadedRows;
+        if (current == null || rows.isEmpty()) {
+            return null;
+        }
+        if (rowVersions == null || rowVersions.isEmpty()) {
+            return null;
+        }
+
+        Set<Long> loadedIds = new HashSet<>();
+        List<Long> changedIds = new ArrayList<>();
+        int deleted = 0;
+        for (LoadedRow row : rows) {
+            loadedIds.add(row.drgId);
+            Long rowVersion = rowVersions.get(row.drgId);
+            if (rowVersion == null) {
+                deleted++;
+            } else if (rowVersion != row.rowVersion) {
+                changedIds.add(row.drgId);
+            }
+        }
+        List<Long> addedIds = rowVersions.keySet().stream()
+            .filter(id -> !loadedIds.contains(id))
+            .sorted()
+            .toList();
+        if (changedIds.isEmpty() && addedIds.isEmpty() && deleted == 0) {
+            lastReparsedRows = 0;
+            log.debug("DRG目录无变更，保留版本 {}", current.getVersion());
+            return current;
+        }
+
+        List<Long> fetchIds = new ArrayList<>(changedIds);
+        fetchIds.addAll(addedIds);
+        Map<Long, Drg> fetched = fetchByIds(fetchIds);
+
+        // 保持原有顺序：变更行原位替换，删除行移除，新增行按主键追加
+        List<LoadedRow> next = new ArrayList<>(rows.size() + addedIds.size());
+        for (LoadedRow row : rows) {
+            Long rowVersion = rowVersions.get(row.drgId);
+            if (rowVersion == null) {
+                continue;
+            }
+            if (rowVersion == row.rowVersion) {
+                next.add(row);
+                continue;
+            }
+            Drg drg = fetched.get(row.drgId);
+            if (drg != null) {
+                next.add(parseRow(drg, rowVersion));
+            }
+        }
+        for (Long id : addedIds) {
+            Drg drg = fetched.get(id);
+            if (drg != null) {
+                next.add(parseRow(drg, rowVersions.get(id)));
+            }
+        }
+
+        incrementalRefreshCount.incrementAndGet();
+        lastReparsedRows = fetched.size();
+        log.info("DRG目录增量刷新: 变更 {} 行, 新增 {} 行, 删除 {} 行, 共 {} 行",
+            changedIds.size(), addedIds.size(), deleted, next.size());
+        return publishRows(next, rowVersions, true);
+    }
+
+    /**
+     * 由解析后的行构建新目录版本，记录行状态供下次增量刷新，并写入本地快照
+     */
+    private DrgCatalog publishRows(List<LoadedRow> rows, Map<Long, Long> rowVersions, boolean trackable) {
+        DrgCatalog catalog = buildCatalog(generateVersion(), rows);
+        loadedRows = trackable ? List.copyOf(rows) : List.of();
+        if (trackable && snapshotStore != null) {
+            snapshotStore.write(catalog.getVersion(), DrgCatalogSnapshotStore.fingerprint(rowVersions), loadedRows);
+        }
+        return catalog;
+    }
+
+    private static DrgCatalog buildCatalog(String version, List<LoadedRow> rows) {
+        List<DrgParsedRecord> records = new ArrayList<>(rows.size());
+        List<com.example.medaiassistant.dto.drg.DrgParsedRecord> matchingRecords = new ArrayList<>(rows.size());
+        for (LoadedRow row : rows) {
+            records.add(row.record);
+            matchingRecords.add(row.matchingRecord);
+        }
+        return new DrgCatalog(version, records, new com.example.medaiassistant.dto.drg.DrgCatalog(matchingRecords));
+    }
+
+    /**
+     * 查询各行的变更版本
+     * 
+     * @return 主键到行变更版本的映射；查询不可用时返回null
+     */
+    private Map<Long, Long> fetchRowVersions() {
+        try {
+            List<Object[]> versions = drgRepository.findRowChangeVersions();
+            Map<Long, Long> result = new HashMap<>(versions.size() * 2);
+            for (Object[] row : versions) {
+                if (row.length >= 2 && row[0] instanceof Number id && row[1] instanceof Number version) {
+                    result.put(id.longValue(), version.longValue());
+                }
+            }
+            return result;
+        } catch (RuntimeException e) {
+            log.warn("查询DRG行变更版本失败，目录刷新将全表加载: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Long, Drg> fetchByIds(List<Long> ids) {
+        Map<Long, Drg> fetched = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += FETCH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + FETCH_CHUNK_SIZE));
+            for (Drg drg : drgRepository.findAllById(chunk)) {
+                fetched.put(drg.getDrgId(), drg);
+            }
+        }
+        return fetched;
     }
 
     /**
@@ -126,34 +372,42 @@ public class DrgCatalogLoader {
         return catalog != null ? catalog.getVersion() : null;
     }
 
-    private List<DrgParsedRecord> loadRecordsFromDatabase() {
-        // 实际的数据库查询逻辑
-        List<Drg> drgEntities = drgRepository.findAll();
-        List<DrgParsedRecord> records = new ArrayList<>();
+    /**
+     * 获取当前目录的匹配视图
+     * 
+     * 返回的目录已在加载时构建好DrgCatalogIndex，可直接交给PrimaryDiagnosisProcedureMatcher使用。
+     * 
+     * @return 当前匹配用DRG目录，如果未加载则返回null
+     */
+    public com.example.medaiassistant.dto.drg.DrgCatalog getMatchingCatalog() {
+        DrgCatalog catalog = currentCatalog.get();
+        return catalog != null ? catalog.getMatchingCatalog() : null;
+    }
+
+    /**
+     * 解析单行DRG数据
+     */
+    private LoadedRow parseRow(Drg drg, long rowVersion) {
+        // 解析诊断数据
+        List<DiagnosisEntry> diagnoses = clobParser.parseDiagnoses(drg.getMainDiagnoses());
         
-        for (Drg drg : drgEntities) {
-            // 解析诊断数据
-            List<DiagnosisEntry> diagnoses = clobParser.parseDiagnoses(drg.getMainDiagnoses());
-            
-            // 处理主要手术为空或"/"的情况
-            List<ProcedureEntry> procedures;
-            String mainProcedures = drg.getMainProcedures();
-            if (mainProcedures == null || mainProcedures.trim().isEmpty() || "/".equals(mainProcedures.trim())) {
-                procedures = new ArrayList<>(); // 没有主要手术
-            } else {
-                procedures = clobParser.parseProcedures(mainProcedures);
-            }
-            
-            // 创建解析后的记录
-            DrgParsedRecord record = new DrgParsedRecord(
-                drg.getDrgCode() != null ? drg.getDrgCode() : "UNKNOWN",
-                diagnoses,
-                procedures
-            );
-            records.add(record);
+        // 处理主要手术为空或"/"的情况
+        List<ProcedureEntry> procedures;
+        String mainProcedures = drg.getMainProcedures();
+        if (mainProcedures == null || mainProcedures.trim().isEmpty() || "/".equals(mainProcedures.trim())) {
+            procedures = new ArrayList<>(); // 没有主要手术
+        } else {
+            procedures = clobParser.parseProcedures(mainProcedures);
         }
         
-        return records;
+        // 创建解析后的记录
+        DrgParsedRecord record = new DrgParsedRecord(
+            drg.getDrgCode() != null ? drg.getDrgCode() : "UNKNOWN",
+            diagnoses,
+            procedures
+        );
+        return new LoadedRow(drg.getDrgId(), rowVersion, record, DrgCatalog.toMatchingRecord(
+            drg.getDrgId(), drg.getDrgCode(), drg.getDrgName(), drg.getInsurancePayment(), record));
     }
 
     private String generateVersion() {
@@ -204,4 +458,29 @@ public class DrgCatalogLoader {
     public List<String> getVersionHistory() {
         return new ArrayList<>(versionHistory);
     }
+
+    /**
+     * 获取增量刷新次数（不含无变更和退回全表加载的刷新）
+     * 
+     * @return 增量刷新次数
+     */
+    public long getIncrementalRefreshCount() {
+        return incrementalRefreshCount.get();
+    }
+
+    /**
+     * 获取最近一次加载或刷新重新解析的行数
+     * 
+     * @return 重新解析的行数
+     */
+    public int getLastReparsedRows() {
+        return lastReparsedRows;
+    }
+
+    /**
+     * 已加载的一行：主键、行变更版本、解析记录及其匹配视图
+     */
+    record LoadedRow(Long drgId, long rowVersion, DrgParsedRecord record,
+                             com.example.medaiassistant.dto.drg.DrgParsedRecord matchingRecord) {
+    }
 }
@@ -0,0 +1,297 @@
+package com.example.medaiassistant.drg.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * DRG目录本地二进制快照
+ *
+ * 每次成功加载或刷新目录后，将解析结果（含各行的行变更版本）写入本地磁盘；应用重启时内存映射读取快照，
+ * 不再等待全表读取和CLOB解析。快照带数据库指纹（各行主键与ORA_ROWSCN的摘要），由DrgCatalogLoader与
+ * 数据库当前指纹比较决定是否可直接使用。
+ *
+ * 文件格式（大端序）：
+ * <pre>
+ * int    魔数 "DRGS"
+ * int    格式版本
+ * long   数据库指纹
+ * int    行数
+ * int    正文长度
+ * long   正文CRC32
+ * string 目录版本
+ * 正文：每行 long主键、long行变更版本、string DRG编码、string DRG名称、string 医保支付标准、
+ *       string 解析记录编码、诊断列表、手术列表（条目为编码、名称、别名列表）
+ * </pre>
+ * 字符串为int长度（null为-1）加UTF-8字节，列表为int数量加元素。
+ *
+ * 快照不保存DrgCatalogIndex，读取后随目录一起在内存中重建。文件缺失、格式版本不同或校验失败时返回null，
+ * 由调用方退回数据库加载。写入先写临时文件再原子替换，写入失败只记录日志。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Slf4j
+@Profile("!execution")
+@Component
+public class DrgCatalogSnapshotStore {
+    private static final int MAGIC = 0x44524753;
+    /** 快照格式或解析规则变化时递增，旧快照随之失效 */
+    static final int FORMAT_VERSION = 1;
+
+    private final boolean enabled;
+    private final Path path;
+
+    public DrgCatalogSnapshotStore(
+            @Value("${drg.catalog.snapshot.enabled:true}") boolean enabled,
+            @Value("${drg.catalog.snapshot.path:data/drg-catalog.snapshot}") String path) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 计算数据库指纹
+     *
+     * 与行顺序无关，任一行新增、删除或行变更版本变化都会改变指纹。
+     *
+     * @param rowVersions 主键到行变更版本的映射
+     * @return 指纹
+     */
+    public static long fingerprint(Map<Long, Long> rowVersions) {
+        long sum = 0;
+        long xor = 0;
+        for (Map.Entry<Long, Long> entry : rowVersions.entrySet()) {
+            long h = mix(mix(entry.getKey()) + entry.getValue());
+            sum += h;
+            xor ^= Long.rotateLeft(h, 17);
+        }
+        return mix(sum ^ xor ^ rowVersions.size());
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照；不存在、未启用或无效时返回null
+     */
+    Snapshot read() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 32 || buffer.getInt() != MAGIC) {
+                log.warn("DRG目录快照格式无效，忽略: {}", path);
+                return null;
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                log.info("DRG目录快照格式版本 {} 与当前版本 {} 不同，忽略: {}", formatVersion, FORMAT_VERSION, path);
+                return null;
+            }
+            long fingerprint = buffer.getLong();
+            int rowCount = buffer.getInt();
+            int bodyLength = buffer.getInt();
+            long checksum = buffer.getLong();
+            String version = readString(buffer);
+            if (rowCount < 0 || bodyLength != buffer.remaining()) {
+                log.warn("DRG目录快照长度不一致，忽略: {}", path);
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != checksum) {
+                log.warn("DRG目录快照校验失败，忽略: {}", path);
+                return null;
+            }
+
+            List<DrgCatalogLoader.LoadedRow> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(readRow(buffer));
+            }
+            return new Snapshot(version, fingerprint, List.copyOf(rows));
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取DRG目录快照失败，忽略: {} ({})", path, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 写入快照（临时文件写完后原子替换）
+     *
+     * @param version 目录版本
+     * @param fingerprint 数据库指纹
+     * @param rows 已加载的行
+     */
+    void write(String version, long fingerprint, List<DrgCatalogLoader.LoadedRow> rows) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(rows.size() * 256);
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            for (DrgCatalogLoader.LoadedRow row : rows) {
+                writeRow(body, row);
+            }
+            body.flush();
+            byte[] content = bodyBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(content);
+
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(64);
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeLong(fingerprint);
+            header.writeInt(rows.size());
+            header.writeInt(content.length);
+            header.writeLong(crc.getValue());
+            writeString(header, version);
+            header.flush();
+
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {ByteBuffer.wrap(headerBytes.toByteArray()), ByteBuffer.wrap(content)};
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("DRG目录快照已写入: {} ({} 行, {} 字节)", path, rows.size(), content.length);
+        } catch (IOException | RuntimeException e) {
+            log.warn("写入DRG目录快照失败: {} ({})", path, e.toString());
+        }
+    }
+
+    private static void writeRow(DataOutputStream out, DrgCatalogLoader.LoadedRow row) throws IOException {
+        com.example.medaiassistant.dto.drg.DrgParsedRecord matching = row.matchingRecord();
+        out.writeLong(row.drgId());
+        out.writeLong(row.rowVersion());
+        writeString(out, matching.getDrgCode());
+        writeString(out, matching.getDrgName());
+        writeString(out, matching.getInsurancePayment() != null ? matching.getInsurancePayment().toString() : null);
+
+        DrgParsedRecord record = row.record();
+        writeString(out, record.getDrgId());
+        out.writeInt(record.getDiagnoses().size());
+        for (DiagnosisEntry diagnosis : record.getDiagnoses()) {
+            writeString(out, diagnosis.getIcdCode());
+            writeString(out, diagnosis.getDiagnosisName());
+            writeStrings(out, diagnosis.getAliases());
+        }
+        out.writeInt(record.getProcedures().size());
+        for (ProcedureEntry procedure : record.getProcedures()) {
+            writeString(out, procedure.getProcedureCode());
+            writeString(out, procedure.getProcedureName());
+            writeStrings(out, procedure.getAliases());
+        }
+    }
+
+    private static DrgCatalogLoader.LoadedRow readRow(ByteBuffer in) {
+        long drgId = in.getLong();
+        long rowVersion = in.getLong();
+        String drgCode = readString(in);
+        String drgName = readString(in);
+        String payment = readString(in);
+
+        String recordId = readString(in);
+        int diagnosisCount = in.getInt();
+        List<DiagnosisEntry> diagnoses = new ArrayList<>(diagnosisCount);
+        for (int i = 0; i < diagnosisCount; i++) {
+            DiagnosisEntry diagnosis = new DiagnosisEntry(readString(in), readString(in));
+            readStrings(in).forEach(diagnosis::addAlias);
+            diagnoses.add(diagnosis);
+        }
+        int procedureCount = in.getInt();
+        List<ProcedureEntry> procedures = new ArrayList<>(procedureCount);
+        for (int i = 0; i < procedureCount; i++) {
+            ProcedureEntry procedure = new ProcedureEntry(readString(in), readString(in));
+            readStrings(in).forEach(procedure::addAlias);
+            procedures.add(procedure);
+        }
+
+        DrgParsedRecord record = new DrgParsedRecord(recordId, diagnoses, procedures);
+        return new DrgCatalogLoader.LoadedRow(drgId, rowVersion, record, DrgCatalog.toMatchingRecord(
+            drgId, drgCode, drgName, payment != null ? new BigDecimal(payment) : null, record));
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 读取到的快照：目录版本、数据库指纹及各行解析结果
+     */
+    record Snapshot(String version, long fingerprint, List<DrgCatalogLoader.LoadedRow> rows) {
+    }
+}
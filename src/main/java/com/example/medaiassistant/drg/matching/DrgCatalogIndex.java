@@ -0,0 +1,341 @@
+package com.example.medaiassistant.drg.matching;
+
+import com.example.medaiassistant.dto.drg.DiagnosisEntry;
+import com.example.medaiassistant.dto.drg.DrgCatalog;
+import com.example.medaiassistant.dto.drg.DrgParsedRecord;
+import com.example.medaiassistant.dto.drg.ProcedureEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * DRG目录倒排索引
+ *
+ * 为PrimaryDiagnosisProcedureMatcher提供候选集生成能力，避免对整个目录逐条计算相似度：
+ * 1. ICD编码精确哈希索引（编码 → DRG下标）
+ * 2. 名称/别名的字符二元组（bigram）倒排索引，配合q-gram计数下界筛选候选名称
+ * 3. 单字符名称单独建立字符索引，保证包含关系匹配不被遗漏
+ *
+ * 候选筛选只排除“不可能达到阈值”的名称，最终判定仍交由NameMatcher完成，
+ * 因此匹配结果与逐条比较完全一致。
+ *
+ * 索引一旦构建即不可变，可被多线程并发读取。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-10-22
+ */
+public final class DrgCatalogIndex {
+
+    /**
+     * 已构建索引缓存（按目录实例标识，目录被回收后自动释放）
+     */
+    private static final Map<DrgCatalog, DrgCatalogIndex> INDEX_CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final List<DrgParsedRecord> records;
+    private final boolean[] recordHasProcedures;
+    private final NameIndex diagnosisIndex;
+    private final NameIndex procedureIndex;
+
+    private DrgCatalogIndex(List<DrgParsedRecord> records) {
+        this.records = List.copyOf(records);
+        this.recordHasProcedures = new boolean[this.records.size()];
+
+        NameIndex.Builder diagnosisBuilder = new NameIndex.Builder();
+        NameIndex.Builder procedureBuilder = new NameIndex.Builder();
+
+        for (int i = 0; i < this.records.size(); i++) {
+            DrgParsedRecord record = this.records.get(i);
+            recordHasProcedures[i] = record.hasProcedures();
+
+            for (DiagnosisEntry diagnosis : record.getDiagnoses()) {
+                diagnosisBuilder.addCode(diagnosis.getIcdCode(), i);
+                diagnosisBuilder.addName(diagnosis.getDiagnosisName(), i);
+                for (String alias : diagnosis.getAliases()) {
+                    diagnosisBuilder.addName(alias, i);
+                }
+            }
+
+            for (ProcedureEntry procedure : record.getProcedures()) {
+                procedureBuilder.addCode(procedure.getProcedureCode(), i);
+                procedureBuilder.addName(procedure.getProcedureName(), i);
+            }
+        }
+
+        this.diagnosisIndex = diagnosisBuilder.build();
+        this.procedureIndex = procedureBuilder.build();
+    }
+
+    /**
+     * 获取目录对应的索引
+     *
+     * 同一目录实例只构建一次索引，后续调用直接复用。
+     *
+     * @param catalog DRG目录
+     * @return 目录索引
+     */
+    public static DrgCatalogIndex of(DrgCatalog catalog) {
+        if (catalog == null) {
+            return build(List.of());
+        }
+        DrgCatalogIndex index = INDEX_CACHE.get(catalog);
+        if (index == null) {
+            index = build(catalog.getDrgRecords());
+            INDEX_CACHE.put(catalog, index);
+        }
+        return index;
+    }
+
+    /**
+     * 基于DRG记录列表构建索引
+     *
+     * @param records DRG记录列表（下标顺序即目录顺序）
+     * @return 新构建的索引
+     */
+    public static DrgCatalogIndex build(List<DrgParsedRecord> records) {
+        return new DrgCatalogIndex(records != null ? records : List.of());
+    }
+
+    /**
+     * 获取被索引的DRG记录（按目录顺序）
+     *
+     * @return 不可变的DRG记录列表
+     */
+    public List<DrgParsedRecord> getRecords() {
+        return records;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * 判断指定下标的DRG记录是否包含手术
+     *
+     * @param recordIndex DRG记录下标
+     * @return 如果包含手术返回true
+     */
+    public boolean hasProcedures(int recordIndex) {
+        return recordHasProcedures[recordIndex];
+    }
+
+    /**
+     * 获取诊断侧（诊断名称及别名）索引
+     */
+    NameIndex diagnoses() {
+        return diagnosisIndex;
+    }
+
+    /**
+     * 获取手术侧（手术名称）索引
+     */
+    NameIndex procedures() {
+        return procedureIndex;
+    }
+
+    /**
+     * 单侧（诊断或手术）名称与编码索引
+     */
+    static final class NameIndex {
+
+        private static final int[] EMPTY = new int[0];
+
+        private final Map<String, int[]> codeToRecords;
+        private final String[] names;
+        private final int[] nameOwners;
+        private final int maxNameLength;
+        /** bigram → [nameId, count, nameId, count, ...] */
+        private final Map<Integer, int[]> bigramPostings;
+        /** 单字符名称：字符 → nameId列表 */
+        private final Map<Character, int[]> singleCharNames;
+
+        private NameIndex(Builder builder) {
+            this.codeToRecords = new HashMap<>();
+            builder.codes.forEach((code, owners) -> codeToRecords.put(code, toArray(owners)));
+            this.names = builder.names.toArray(new String[0]);
+            this.nameOwners = toArray(builder.owners);
+
+            Map<Integer, List<Integer>> postings = new HashMap<>();
+            Map<Character, List<Integer>> singles = new HashMap<>();
+            int maxLength = 0;
+            for (int nameId = 0; nameId < names.length; nameId++) {
+                String name = names[nameId];
+                maxLength = Math.max(maxLength, name.length());
+                if (name.length() == 1) {
+                    singles.computeIfAbsent(name.charAt(0), c -> new ArrayList<>()).add(nameId);
+                    continue;
+                }
+                Map<Integer, Integer> grams = countBigrams(name);
+                for (Map.Entry<Integer, Integer> gram : grams.entrySet()) {
+                    List<Integer> posting = postings.computeIfAbsent(gram.getKey(), k -> new ArrayList<>());
+                    posting.add(nameId);
+                    posting.add(gram.getValue());
+                }
+            }
+            this.maxNameLength = maxLength;
+            this.bigramPostings = new HashMap<>();
+            postings.forEach((gram, posting) -> bigramPostings.put(gram, toArray(posting)));
+            this.singleCharNames = new HashMap<>();
+            singles.forEach((c, ids) -> singleCharNames.put(c, toArray(ids)));
+        }
+
+        /**
+         * 获取ICD编码精确匹配的DRG下标
+         *
+         * @param code ICD编码（区分大小写）
+         * @return DRG下标数组，无匹配返回空数组
+         */
+        int[] recordsWithCode(String code) {
+            if (code == null || code.isEmpty()) {
+                return EMPTY;
+            }
+            int[] owners = codeToRecords.get(code);
+            return owners != null ? owners : EMPTY;
+        }
+
+        String name(int nameId) {
+            return names[nameId];
+        }
+
+        int owner(int nameId) {
+            return nameOwners[nameId];
+        }
+
+        /**
+         * 枚举可能与查询名称相似度达到阈值的候选名称
+         *
+         * 筛选依据（q=2的q-gram计数下界）：
+         * - 编辑距离不超过k时，两串共享的bigram数 ≥ max(m,n) - 1 - 2k
+         * - 一方包含另一方时，共享的bigram数 ≥ min(m,n) - 1
+         * 满足任一下界的名称才会成为候选；无法用下界筛选时退化为全量枚举。
+         *
+         * @param query 查询名称
+         * @param threshold 相似度阈值
+         * @param consumer 候选nameId消费者
+         */
+        void forEachCandidate(String query, double threshold, IntConsumer consumer) {
+            if (query == null || query.isEmpty() || names.length == 0) {
+                return;
+            }
+            int m = query.length();
+            if (m < 2 || !canPrune(m, threshold)) {
+                for (int nameId = 0; nameId < names.length; nameId++) {
+                    consumer.accept(nameId);
+                }
+                return;
+            }
+
+            // 单字符名称只可能通过包含关系命中
+            for (int i = 0; i < m; i++) {
+                char c = query.charAt(i);
+                if (query.indexOf(c) != i) {
+                    continue;
+                }
+                int[] ids = singleCharNames.get(c);
+                if (ids != null) {
+                    for (int nameId : ids) {
+                        consumer.accept(nameId);
+                    }
+                }
+            }
+
+            int[] shared = new int[names.length];
+            int[] touched = new int[names.length];
+            int touchedCount = 0;
+            for (Map.Entry<Integer, Integer> gram : countBigrams(query).entrySet()) {
+                int[] posting = bigramPostings.get(gram.getKey());
+                if (posting == null) {
+                    continue;
+                }
+                int queryCount = gram.getValue();
+                for (int p = 0; p < posting.length; p += 2) {
+                    int nameId = posting[p];
+                    if (shared[nameId] == 0) {
+                        touched[touchedCount++] = nameId;
+                    }
+                    shared[nameId] += Math.min(queryCount, posting[p + 1]);
+                }
+            }
+
+            for (int t = 0; t < touchedCount; t++) {
+                int nameId = touched[t];
+                if (shared[nameId] >= requiredSharedBigrams(m, names[nameId].length(), threshold)) {
+                    consumer.accept(nameId);
+                }
+            }
+        }
+
+        /**
+         * 判断在当前阈值下，长度为m的查询与任意长度≥2的名称之间所需共享bigram数是否均至少为1
+         */
+        private boolean canPrune(int m, double threshold) {
+            int upper = Math.max(m, maxNameLength);
+            for (int length = 2; length <= upper; length++) {
+                if (requiredSharedBigrams(m, length, threshold) < 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int requiredSharedBigrams(int m, int n, double threshold) {
+            int containmentBound = Math.min(m, n) - 1;
+            int maxLength = Math.max(m, n);
+            int maxDistance = NameMatcher.maxEditDistance(maxLength, threshold);
+            if (maxDistance < 0) {
+                return containmentBound;
+            }
+            return Math.min(containmentBound, maxLength - 1 - 2 * maxDistance);
+        }
+
+        private static Map<Integer, Integer> countBigrams(String text) {
+            Map<Integer, Integer> grams = new HashMap<>();
+            for (int i = 0; i + 1 < text.length(); i++) {
+                int gram = (text.charAt(i) << 16) | text.charAt(i + 1);
+                grams.merge(gram, 1, Integer::sum);
+            }
+            return grams;
+        }
+
+        private static int[] toArray(List<Integer> values) {
+            int[] array = new int[values.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = values.get(i);
+            }
+            return array;
+        }
+
+        static final class Builder {
+            private final Map<String, List<Integer>> codes = new HashMap<>();
+            private final List<String> names = new ArrayList<>();
+            private final List<Integer> owners = new ArrayList<>();
+
+            void addCode(String code, int recordIndex) {
+                if (code == null || code.isEmpty()) {
+                    return;
+                }
+                List<Integer> recordIndexes = codes.computeIfAbsent(code, k -> new ArrayList<>());
+                if (recordIndexes.isEmpty() || recordIndexes.get(recordIndexes.size() - 1) != recordIndex) {
+                    recordIndexes.add(recordIndex);
+                }
+            }
+
+            void addName(String name, int recordIndex) {
+                if (name == null || name.isEmpty()) {
+                    return;
+                }
+                names.add(name);
+                owners.add(recordIndex);
+            }
+
+            NameIndex build() {
+                return new NameIndex(this);
+            }
+        }
+    }
+}
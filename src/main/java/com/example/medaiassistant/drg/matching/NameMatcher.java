@@ -1,10 +1,12 @@
 package com.example.medaiassistant.drg.matching;
 
+import com.example.medaiassistant.util.EditDistanceKernel;
+
 /**
  * 名称相似度匹配器
  * 
  * 实现诊断和手术名称的相似度匹配功能
- * 使用Levenshtein距离算法计算相似度
+ * 使用Levenshtein距离算法计算相似度（由EditDistanceKernel提供无分配的距离计算）
  * 
  * @author MedAI Assistant Team
  * @since 2025-10-22
@@ -62,9 +64,39 @@ public class NameMatcher {
             throw new IllegalArgumentException("相似度阈值必须在0.0到1.0之间");
         }
         
-        // 计算相似度并比较阈值
-        double similarity = calculateSimilarity(patientName, drgName);
-        return similarity >= threshold;
+        // 完全相同或包含关系无需计算编辑距离
+        if (patientName.equals(drgName) || patientName.contains(drgName) || drgName.contains(patientName)) {
+            return calculateSimilarity(patientName, drgName) >= threshold;
+        }
+        
+        // 以阈值推导的距离上界计算编辑距离，超出上界即可判定不匹配
+        int maxDistance = maxEditDistance(Math.max(patientName.length(), drgName.length()), threshold);
+        return maxDistance >= 0 && EditDistanceKernel.boundedDistance(patientName, drgName, maxDistance) >= 0;
+    }
+
+    /**
+     * 计算相似度仍能达到阈值的最大编辑距离
+     * 
+     * 与calculateSimilarity中的Levenshtein相似度公式保持一致（含短字符串的0.8系数），
+     * 以相同的浮点表达式逐一校验，保证边界判定不变。
+     * 
+     * @param maxLength 两个名称的最大长度
+     * @param threshold 相似度阈值
+     * @return 最大编辑距离，若任何距离都无法达到阈值则返回-1
+     */
+    static int maxEditDistance(int maxLength, double threshold) {
+        int distance = -1;
+        while (distance + 1 <= maxLength) {
+            double similarity = 1.0 - (double) (distance + 1) / maxLength;
+            if (maxLength <= 3) {
+                similarity *= 0.8;
+            }
+            if (similarity < threshold) {
+                break;
+            }
+            distance++;
+        }
+        return distance;
     }
 
     /**
@@ -132,36 +164,7 @@ public class NameMatcher {
      * @return Levenshtein距离
      */
     private static int calculateLevenshteinDistance(String str1, String str2) {
-        int len1 = str1.length();
-        int len2 = str2.length();
-        
-        // 创建距离矩阵
-        int[][] distance = new int[len1 + 1][len2 + 1];
-        
-        // 初始化第一行和第一列
-        for (int i = 0; i <= len1; i++) {
-            distance[i][0] = i;
-        }
-        for (int j = 0; j <= len2; j++) {
-            distance[0][j] = j;
-        }
-        
-        // 填充距离矩阵
-        for (int i = 1; i <= len1; i++) {
-            for (int j = 1; j <= len2; j++) {
-                int cost = (str1.charAt(i - 1) == str2.charAt(j - 1)) ? 0 : 1;
-                
-                distance[i][j] = Math.min(
-                    Math.min(
-                        distance[i - 1][j] + 1,     // 删除
-                        distance[i][j - 1] + 1      // 插入
-                    ),
-                    distance[i - 1][j - 1] + cost   // 替换
-                );
-            }
-        }
-        
-        return distance[len1][len2];
+        return EditDistanceKernel.distance(str1, str2);
     }
 
     /**
@@ -4,8 +4,6 @@ import com.example.medaiassistant.dto.drg.DrgCatalog;
 import com.example.medaiassistant.dto.drg.DrgParsedRecord;
 import com.example.medaiassistant.dto.drg.MatchingResult;
 import com.example.medaiassistant.dto.drg.PatientData;
-import com.example.medaiassistant.dto.drg.DiagnosisEntry;
-import com.example.medaiassistant.dto.drg.ProcedureEntry;
 import com.example.medaiassistant.dto.drg.PatientDiagnosis;
 import com.example.medaiassistant.dto.drg.PatientProcedure;
 import org.springframework.stereotype.Component;
@@ -22,6 +20,8 @@ import java.util.List;
  * 3. 名称相似度匹配
  * 4. 名称收集聚合
  * 
+ * 名称相似度匹配基于DrgCatalogIndex生成的候选集进行，避免全目录逐条计算。
+ * 
  * @author MedAI Assistant Team
  * @since 2025-10-22
  */
@@ -33,6 +33,8 @@ public class PrimaryDiagnosisProcedureMatcher {
     /**
      * 执行完整的DRG匹配流程
      * 
+     * 使用目录对应的倒排索引（DrgCatalogIndex）生成候选集，仅对候选名称计算相似度。
+     * 
      * @param patientData 患者数据
      * @param catalog DRG目录
      * @return 匹配结果，包含主要诊断和手术列表
@@ -43,28 +45,55 @@ public class PrimaryDiagnosisProcedureMatcher {
             return new MatchingResult(List.of(), List.of());
         }
         
+        return match(patientData, DrgCatalogIndex.of(catalog));
+    }
+    
+    /**
+     * 基于预构建的目录索引执行DRG匹配
+     * 
+     * 结果与逐条比较完全一致：
+     * 1. 分流规则与DrgFilter.filterByProcedurePresence相同
+     * 2. ICD编码通过哈希索引精确命中
+     * 3. 名称与别名通过bigram索引筛选候选，再由NameMatcher判定
+     * 4. 按目录顺序收集名称，保证结果顺序不变
+     * 
+     * @param patientData 患者数据
+     * @param index DRG目录索引
+     * @return 匹配结果，包含主要诊断和手术列表
+     */
+    public MatchingResult match(PatientData patientData, DrgCatalogIndex index) {
+        if (patientData == null || index == null || index.size() == 0) {
+            return new MatchingResult(List.of(), List.of());
+        }
+        
         // 1. 分流过滤：根据患者是否有手术过滤DRG记录
-        List<DrgParsedRecord> filteredDrgs = DrgFilter.filterByProcedurePresence(patientData, catalog.getDrgRecords());
+        boolean patientHasProcedures = patientData.hasProcedures();
+        boolean anyEligible = false;
+        for (int i = 0; i < index.size(); i++) {
+            if (index.hasProcedures(i) == patientHasProcedures) {
+                anyEligible = true;
+                break;
+            }
+        }
         
-        if (filteredDrgs.isEmpty()) {
+        if (!anyEligible) {
             return new MatchingResult(List.of(), List.of());
         }
         
-        // 2. 创建名称收集器
-        NameCollector nameCollector = new NameCollector();
+        // 2. 通过索引标记诊断和手术匹配成功的DRG
+        boolean[] diagnosisMatched = matchDiagnoses(patientData, index, patientHasProcedures);
+        boolean[] procedureMatched = matchProcedures(patientData, index, patientHasProcedures);
         
-        // 3. 对每个过滤后的DRG记录进行匹配
-        for (DrgParsedRecord drg : filteredDrgs) {
-            boolean diagnosisMatched = matchDiagnoses(patientData, drg);
-            boolean procedureMatched = matchProcedures(patientData, drg);
-            
-            // 4. 收集匹配成功的名称
-            if (diagnosisMatched || procedureMatched) {
-                nameCollector.collectDrgNames(drg, diagnosisMatched, procedureMatched);
+        // 3. 按目录顺序收集匹配成功的名称
+        NameCollector nameCollector = new NameCollector();
+        List<DrgParsedRecord> records = index.getRecords();
+        for (int i = 0; i < records.size(); i++) {
+            if (diagnosisMatched[i] || procedureMatched[i]) {
+                nameCollector.collectDrgNames(records.get(i), diagnosisMatched[i], procedureMatched[i]);
             }
         }
         
-        // 5. 返回匹配结果
+        // 4. 返回匹配结果
         return new MatchingResult(
             new ArrayList<>(nameCollector.getPrimaryDiagnoses()),
             new ArrayList<>(nameCollector.getPrimaryProcedures())
@@ -75,68 +104,75 @@ public class PrimaryDiagnosisProcedureMatcher {
      * 匹配诊断
      * 
      * @param patientData 患者数据
-     * @param drg DRG记录
-     * @return 是否匹配成功
+     * @param index DRG目录索引
+     * @param patientHasProcedures 患者是否有手术（用于分流）
+     * @return 按DRG下标标记的诊断匹配结果
      */
-    private boolean matchDiagnoses(PatientData patientData, DrgParsedRecord drg) {
-        if (!patientData.hasDiagnoses() || drg.getDiagnoses().isEmpty()) {
-            return false;
+    private boolean[] matchDiagnoses(PatientData patientData, DrgCatalogIndex index, boolean patientHasProcedures) {
+        boolean[] matched = new boolean[index.size()];
+        if (!patientData.hasDiagnoses()) {
+            return matched;
         }
         
-        // 对每个患者诊断进行匹配
+        DrgCatalogIndex.NameIndex diagnoses = index.diagnoses();
         for (PatientDiagnosis patientDiagnosis : patientData.getDiagnoses()) {
-            for (DiagnosisEntry drgDiagnosis : drg.getDiagnoses()) {
-                // 尝试ICD精确匹配
-                if (IcdMatcher.exactMatch(patientDiagnosis.getIcdCode(), drgDiagnosis.getIcdCode())) {
-                    return true;
-                }
-                
-                // 尝试名称相似度匹配
-                if (NameMatcher.similarityMatch(patientDiagnosis.getDiagnosisName(), drgDiagnosis.getDiagnosisName(), DEFAULT_SIMILARITY_THRESHOLD)) {
-                    return true;
-                }
-                
-                // 尝试别名匹配
-                if (drgDiagnosis.hasAliases()) {
-                    for (String alias : drgDiagnosis.getAliases()) {
-                        if (NameMatcher.similarityMatch(patientDiagnosis.getDiagnosisName(), alias, DEFAULT_SIMILARITY_THRESHOLD)) {
-                            return true;
-                        }
-                    }
+            // ICD精确匹配
+            for (int drgIndex : diagnoses.recordsWithCode(patientDiagnosis.getIcdCode())) {
+                if (index.hasProcedures(drgIndex) == patientHasProcedures) {
+                    matched[drgIndex] = true;
                 }
             }
+            
+            // 名称及别名相似度匹配
+            String diagnosisName = patientDiagnosis.getDiagnosisName();
+            diagnoses.forEachCandidate(diagnosisName, DEFAULT_SIMILARITY_THRESHOLD, nameId -> {
+                int drgIndex = diagnoses.owner(nameId);
+                if (!matched[drgIndex]
+                        && index.hasProcedures(drgIndex) == patientHasProcedures
+                        && NameMatcher.similarityMatch(diagnosisName, diagnoses.name(nameId), DEFAULT_SIMILARITY_THRESHOLD)) {
+                    matched[drgIndex] = true;
+                }
+            });
         }
         
-        return false;
+        return matched;
     }
     
     /**
      * 匹配手术
      * 
      * @param patientData 患者数据
-     * @param drg DRG记录
-     * @return 是否匹配成功
+     * @param index DRG目录索引
+     * @param patientHasProcedures 患者是否有手术（用于分流）
+     * @return 按DRG下标标记的手术匹配结果
      */
-    private boolean matchProcedures(PatientData patientData, DrgParsedRecord drg) {
-        if (!patientData.hasProcedures() || drg.getProcedures().isEmpty()) {
-            return false;
+    private boolean[] matchProcedures(PatientData patientData, DrgCatalogIndex index, boolean patientHasProcedures) {
+        boolean[] matched = new boolean[index.size()];
+        if (!patientHasProcedures) {
+            return matched;
         }
         
-        // 对每个患者手术进行匹配
+        DrgCatalogIndex.NameIndex procedures = index.procedures();
         for (PatientProcedure patientProcedure : patientData.getProcedures()) {
-            for (ProcedureEntry drgProcedure : drg.getProcedures()) {
-                // 尝试ICD精确匹配
-                if (IcdMatcher.exactMatch(patientProcedure.getProcedureCode(), drgProcedure.getProcedureCode())) {
-                    return true;
-                }
-                
-                // 尝试名称相似度匹配
-                if (NameMatcher.similarityMatch(patientProcedure.getProcedureName(), drgProcedure.getProcedureName(), DEFAULT_SIMILARITY_THRESHOLD)) {
-                    return true;
+            // ICD精确匹配
+            for (int drgIndex : procedures.recordsWithCode(patientProcedure.getProcedureCode())) {
+                if (index.hasProcedures(drgIndex)) {
+                    matched[drgIndex] = true;
                 }
             }
+            
+            // 名称相似度匹配
+            String procedureName = patientProcedure.getProcedureName();
+            procedures.forEachCandidate(procedureName, DEFAULT_SIMILARITY_THRESHOLD, nameId -> {
+                int drgIndex = procedures.owner(nameId);
+                if (!matched[drgIndex]
+                        && index.hasProcedures(drgIndex)
+                        && NameMatcher.similarityMatch(procedureName, procedures.name(nameId), DEFAULT_SIMILARITY_THRESHOLD)) {
+                    matched[drgIndex] = true;
+                }
+            });
         }
         
-        return false;
+        return matched;
     }
 }
@@ -0,0 +1,58 @@
+package com.example.medaiassistant.dto;
+
+import com.example.medaiassistant.model.DataStatus;
+
+/**
+ * 加密数据状态DTO
+ * 只包含ENCRYPTED_DATA_TEMP表的ID、REQUEST_ID、STATUS和version字段，
+ * 用于轮询服务批量核对状态，避免加载CLOB字段
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public class EncryptedDataStatusDTO {
+    private String id;
+    private String requestId;
+    private DataStatus status;
+    private Integer version;
+
+    public EncryptedDataStatusDTO(String id, String requestId, DataStatus status, Integer version) {
+        this.id = id;
+        this.requestId = requestId;
+        this.status = status;
+        this.version = version;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public DataStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(DataStatus status) {
+        this.status = status;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+}
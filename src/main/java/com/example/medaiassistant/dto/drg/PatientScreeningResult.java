@@ -0,0 +1,67 @@
+package com.example.medaiassistant.dto.drg;
+
+import com.example.medaiassistant.model.MccCandidate;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 病区批量筛选中单个患者的DRG匹配与MCC预筛选结果
+ * 
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Data
+public class PatientScreeningResult {
+    
+    /**
+     * 患者ID
+     */
+    private String patientId;
+    
+    /**
+     * 患者姓名（患者不存在时为null）
+     */
+    private String name;
+    
+    /**
+     * 床号（患者不存在时为null）
+     */
+    private String bedNumber;
+    
+    /**
+     * 诊断数量
+     */
+    private int diagnosisCount;
+    
+    /**
+     * 手术数量
+     */
+    private int procedureCount;
+    
+    /**
+     * 主要诊断与手术匹配结果
+     */
+    private MatchingResult drgMatching;
+    
+    /**
+     * 按来源诊断分组的MCC候选
+     */
+    private Map<String, List<MccCandidate>> mccCandidates;
+    
+    /**
+     * 使用的DRG目录版本
+     */
+    private String catalogVersion;
+    
+    /**
+     * 该患者的筛选耗时（毫秒）
+     */
+    private long elapsedMs;
+    
+    /**
+     * 筛选失败时的错误信息，成功时为null
+     */
+    private String error;
+}
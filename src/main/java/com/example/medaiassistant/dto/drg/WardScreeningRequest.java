@@ -0,0 +1,27 @@
+package com.example.medaiassistant.dto.drg;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 病区批量DRG/MCC筛选请求
+ * 
+ * 指定科室时筛选该科室全部在院患者；指定患者ID列表时只筛选列表中的患者（优先于科室）。
+ * 
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Data
+public class WardScreeningRequest {
+    
+    /**
+     * 科室名称
+     */
+    private String department;
+    
+    /**
+     * 患者ID列表
+     */
+    private List<String> patientIds;
+}
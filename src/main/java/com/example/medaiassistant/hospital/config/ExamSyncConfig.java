@@ -38,6 +38,16 @@ public class ExamSyncConfig {
      */
     private static final String TEMPLATE_FILE_NAME = "exam-results-query.json";
 
+    /**
+     * 增量同步模板文件名
+     */
+    private static final String INCREMENTAL_TEMPLATE_FILE_NAME = "exam-results-incremental.json";
+
+    /**
+     * 科室批量提取模板文件名
+     */
+    private static final String BATCH_TEMPLATE_FILE_NAME = "exam-results-batch.json";
+
     /**
      * 查询名称
      */
@@ -80,6 +90,38 @@ public class ExamSyncConfig {
         return templatePath;
     }
 
+    /**
+     * 根据医院ID构建增量同步模板文件路径
+     * 
+     * <p>路径格式: sql/{hospitalId小写}/exam-results-incremental.json</p>
+     * 
+     * @param hospitalId 医院ID，可为空（将使用默认值）
+     * @return 增量同步模板文件路径
+     * @see com.example.medaiassistant.hospital.service.IncrementalSyncSource
+     */
+    public String getIncrementalTemplateFilePath(String hospitalId) {
+        return String.format("%s%s/%s", 
+            SQL_TEMPLATE_DIR_PREFIX, 
+            resolveHospitalId(hospitalId).toLowerCase(), 
+            INCREMENTAL_TEMPLATE_FILE_NAME);
+    }
+
+    /**
+     * 根据医院ID构建科室批量提取模板文件路径
+     * 
+     * <p>路径格式: sql/{hospitalId小写}/exam-results-batch.json</p>
+     * 
+     * @param hospitalId 医院ID，可为空（将使用默认值）
+     * @return 批量提取模板文件路径
+     * @see com.example.medaiassistant.hospital.service.PatientBatchSource
+     */
+    public String getBatchTemplateFilePath(String hospitalId) {
+        return String.format("%s%s/%s", 
+            SQL_TEMPLATE_DIR_PREFIX, 
+            resolveHospitalId(hospitalId).toLowerCase(), 
+            BATCH_TEMPLATE_FILE_NAME);
+    }
+
     /**
      * 获取模板文件名
      * 
@@ -0,0 +1,47 @@
+package com.example.medaiassistant.hospital.dto;
+
+import com.example.medaiassistant.model.Patient;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 科室在院病人列表及其新鲜度信息
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Data
+public class DepartmentPatientList {
+
+    /**
+     * 主服务器中的在院病人（最近一次同步的结果）
+     */
+    private List<Patient> patients;
+
+    /**
+     * 最近一次成功从HIS同步的时间，本进程启动后尚未同步时为null
+     */
+    private Date syncedAt;
+
+    /**
+     * 距最近一次成功同步的秒数，尚未同步时为-1
+     */
+    private long ageSeconds;
+
+    /**
+     * 是否超出新鲜度窗口（尚未同步也视为过期）
+     */
+    private boolean stale;
+
+    /**
+     * 是否有后台HIS刷新正在进行
+     */
+    private boolean refreshing;
+
+    /**
+     * 最近一次HIS刷新是否失败
+     */
+    private boolean lastRefreshFailed;
+}
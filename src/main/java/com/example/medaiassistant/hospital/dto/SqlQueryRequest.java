@@ -1,6 +1,8 @@
 package com.example.medaiassistant.hospital.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import org.springframework.jdbc.core.RowMapper;
 
 import java.util.Map;
 
@@ -39,4 +41,10 @@ public class SqlQueryRequest {
      * 是否返回列信息
      */
     private Boolean includeColumns = true;
+    
+    /**
+     * 行映射器（模板编译的行映射器，见SqlTemplate.getRowMapper()），为空时按ColumnMapRowMapper映射
+     */
+    @JsonIgnore
+    private RowMapper<Map<String, Object>> rowMapper;
 }
@@ -41,6 +41,11 @@ public class SqlQueryResult {
      */
     private String sql;
     
+    /**
+     * 结果是否因行数上限或内存上限被截断（流式查询）
+     */
+    private boolean truncated;
+    
     /**
      * 警告信息列表
      */
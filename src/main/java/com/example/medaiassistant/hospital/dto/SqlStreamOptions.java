@@ -0,0 +1,30 @@
+package com.example.medaiassistant.hospital.dto;
+
+import lombok.Data;
+
+/**
+ * SQL流式查询选项DTO
+ */
+@Data
+public class SqlStreamOptions {
+    
+    /**
+     * JDBC fetchSize（每次从数据库取回的行数），为空时使用数据源默认值
+     */
+    private Integer fetchSize;
+    
+    /**
+     * 按块处理时每块的最大行数
+     */
+    private int chunkSize = 100;
+    
+    /**
+     * 按块处理时每块的内存上限（估算字节数），达到后提前交付当前块
+     */
+    private long maxChunkBytes = 8L * 1024 * 1024;
+    
+    /**
+     * 本次查询读取数据的内存上限（估算字节数），超出时终止读取并标记结果被截断，为空时不限制
+     */
+    private Long maxBytes;
+}
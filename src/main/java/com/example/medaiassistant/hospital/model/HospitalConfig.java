@@ -87,6 +87,11 @@ public class HospitalConfig {
          * 表前缀
          */
         private String tablePrefix;
+        
+        /**
+         * 连接池配置（可选，未配置时使用默认值）
+         */
+        private PoolConfig pool;
     }
     
     /**
@@ -113,6 +118,53 @@ public class HospitalConfig {
          * 表前缀
          */
         private String tablePrefix;
+        
+        /**
+         * 连接池配置（可选，未配置时使用默认值）
+         */
+        private PoolConfig pool;
+    }
+    
+    /**
+     * 医院数据库连接池配置
+     * 未配置的项使用DynamicJdbcTemplateFactory中的默认值
+     */
+    @Data
+    public static class PoolConfig {
+        /**
+         * 最大连接数
+         */
+        private Integer maxConnections;
+        
+        /**
+         * 最小空闲连接数
+         */
+        private Integer minIdle;
+        
+        /**
+         * 获取连接超时时间（毫秒）
+         */
+        private Long connectionTimeout;
+        
+        /**
+         * 空闲连接回收时间（毫秒）
+         */
+        private Long idleTimeout;
+        
+        /**
+         * 连接最大存活时间（毫秒）
+         */
+        private Long maxLifetime;
+        
+        /**
+         * 连接泄漏检测阈值（毫秒），0表示关闭
+         */
+        private Long leakDetectionThreshold;
+        
+        /**
+         * 连接验证SQL（可选，未配置时使用JDBC4的Connection.isValid）
+         */
+        private String validationQuery;
     }
     
     /**
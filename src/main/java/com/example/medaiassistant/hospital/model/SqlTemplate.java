@@ -1,7 +1,10 @@
 package com.example.medaiassistant.hospital.model;
 
+import com.example.medaiassistant.hospital.util.TemplateRowMapper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -23,6 +26,7 @@ import java.util.regex.Pattern;
  *   <li>{@code sql} - 完整SQL语句（新格式，支持:名称参数）</li>
  *   <li>{@code databaseType} - 数据库类型（his/lis），用于路由数据库连接</li>
  *   <li>{@code parameters} - 参数定义列表</li>
+ *   <li>{@code columns} - 结果列声明（可选），用于编译行映射器</li>
  *   <li>{@code metadata} - 元数据信息</li>
  * </ul>
  * 
@@ -82,6 +86,19 @@ public class SqlTemplate {
      */
     private Metadata metadata;
     
+    /**
+     * 结果列声明（可选）
+     * <p>未声明的列按JDBC类型取值；以字符串返回的时间列应声明type=timestamp和format</p>
+     */
+    private List<Column> columns;
+    
+    /**
+     * 首次查询时编译的行映射器，模板重新加载后随新实例重新编译
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile TemplateRowMapper rowMapper;
+    
     /**
      * 模板参数类
      */
@@ -114,6 +131,28 @@ public class SqlTemplate {
         private String defaultValue;
     }
     
+    /**
+     * 结果列声明类
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Column {
+        /**
+         * 列名（SQL别名，大小写不敏感）
+         */
+        private String name;
+        
+        /**
+         * 取值类型：string, integer, long, decimal, timestamp
+         */
+        private String type;
+        
+        /**
+         * 时间格式（DateTimeFormatter格式，如yyyy-MM-dd HH:mm:ss），仅timestamp类型的字符列使用
+         */
+        private String format;
+    }
+    
     /**
      * 元数据类
      */
@@ -161,6 +200,32 @@ public class SqlTemplate {
         return template;
     }
     
+    /**
+     * 设置结果列声明，已编译的行映射器作废
+     */
+    public void setColumns(List<Column> columns) {
+        this.columns = columns;
+        this.rowMapper = null;
+    }
+    
+    /**
+     * 获取模板的行映射器（首次调用时按列声明编译）
+     */
+    @JsonIgnore
+    public TemplateRowMapper getRowMapper() {
+        TemplateRowMapper mapper = rowMapper;
+        if (mapper == null) {
+            synchronized (this) {
+                mapper = rowMapper;
+                if (mapper == null) {
+                    mapper = new TemplateRowMapper(columns);
+                    rowMapper = mapper;
+                }
+            }
+        }
+        return mapper;
+    }
+    
     /**
      * 便捷方法：检查SQL是否包含命名参数
      */
@@ -0,0 +1,163 @@
+package com.example.medaiassistant.hospital.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 增量同步检查点实体
+ * 记录每家医院、每个源表已同步到的高水位（最后修改时间或单调递增ID）
+ *
+ * <p>水位与同一批次的数据写入在同一事务中推进，事务回滚时水位不变，
+ * 下次从原水位重新拉取（写入为幂等的批量upsert）。VERSION列用于防止
+ * 同一源表的两次同步并发推进水位。</p>
+ *
+ * <p>生产库（ddl-auto=none）建表语句：</p>
+ * <pre>
+ * CREATE TABLE SYNC_CHECKPOINT (
+ *   ID                   NUMBER(19) GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+ *   HOSPITAL_ID          VARCHAR2(50)  NOT NULL,
+ *   SOURCE_NAME          VARCHAR2(50)  NOT NULL,
+ *   WATERMARK_TYPE       VARCHAR2(20)  NOT NULL,
+ *   WATERMARK_TIME       TIMESTAMP,
+ *   WATERMARK_ID         NUMBER(19),
+ *   LAST_SYNC_TIME       TIMESTAMP,
+ *   LAST_FULL_SYNC_TIME  TIMESTAMP,
+ *   LAST_RECORDS_SYNCED  NUMBER(10),
+ *   UPDATED_AT           TIMESTAMP     NOT NULL,
+ *   VERSION              NUMBER(19)    NOT NULL,
+ *   CONSTRAINT UK_SYNC_CHECKPOINT UNIQUE (HOSPITAL_ID, SOURCE_NAME)
+ * );
+ * </pre>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Entity
+@Table(name = "SYNC_CHECKPOINT",
+        uniqueConstraints = @UniqueConstraint(name = "UK_SYNC_CHECKPOINT", columnNames = {"HOSPITAL_ID", "SOURCE_NAME"}))
+@Data
+public class SyncCheckpoint {
+
+    /** 水位类型：最后修改时间 */
+    public static final String TYPE_TIMESTAMP = "TIMESTAMP";
+
+    /** 水位类型：单调递增ID */
+    public static final String TYPE_ID = "ID";
+
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 医院ID
+     */
+    @Column(name = "HOSPITAL_ID", nullable = false, length = 50)
+    private String hospitalId;
+
+    /**
+     * 源表名称，如LAB_RESULTS、EMR_CONTENT
+     */
+    @Column(name = "SOURCE_NAME", nullable = false, length = 50)
+    private String sourceName;
+
+    /**
+     * 水位类型：TIMESTAMP 或 ID
+     */
+    @Column(name = "WATERMARK_TYPE", nullable = false, length = 20)
+    private String watermarkType;
+
+    /**
+     * 时间水位（WATERMARK_TYPE=TIMESTAMP时有效）
+     */
+    @Column(name = "WATERMARK_TIME")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date watermarkTime;
+
+    /**
+     * ID水位（WATERMARK_TYPE=ID时有效）
+     */
+    @Column(name = "WATERMARK_ID")
+    private Long watermarkId;
+
+    /**
+     * 最近一次同步（增量或全量）完成时间
+     */
+    @Column(name = "LAST_SYNC_TIME")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastSyncTime;
+
+    /**
+     * 最近一次全量对账完成时间
+     */
+    @Column(name = "LAST_FULL_SYNC_TIME")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastFullSyncTime;
+
+    /**
+     * 最近一次同步写入（新增+更新）的记录数
+     */
+    @Column(name = "LAST_RECORDS_SYNCED")
+    private Integer lastRecordsSynced;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "UPDATED_AT", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+
+    /**
+     * 乐观锁版本
+     */
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private Long version;
+
+    /**
+     * 创建尚无水位的检查点
+     *
+     * @param hospitalId 医院ID
+     * @param sourceName 源表名称
+     * @param watermarkType 水位类型
+     * @return 检查点
+     */
+    public static SyncCheckpoint create(String hospitalId, String sourceName, String watermarkType) {
+        SyncCheckpoint checkpoint = new SyncCheckpoint();
+        checkpoint.setHospitalId(hospitalId);
+        checkpoint.setSourceName(sourceName);
+        checkpoint.setWatermarkType(watermarkType);
+        checkpoint.setUpdatedAt(new Date());
+        return checkpoint;
+    }
+
+    /**
+     * 获取当前水位
+     *
+     * @return Timestamp或Long，尚未同步过时为null
+     */
+    public Comparable<?> getWatermark() {
+        if (TYPE_ID.equals(watermarkType)) {
+            return watermarkId;
+        }
+        return watermarkTime == null ? null : new java.sql.Timestamp(watermarkTime.getTime());
+    }
+
+    /**
+     * 设置当前水位
+     *
+     * @param watermark Timestamp或Long
+     */
+    public void setWatermark(Comparable<?> watermark) {
+        if (watermark instanceof Long id) {
+            this.watermarkId = id;
+        } else if (watermark instanceof Date time) {
+            this.watermarkTime = time;
+        }
+        this.updatedAt = new Date();
+    }
+}
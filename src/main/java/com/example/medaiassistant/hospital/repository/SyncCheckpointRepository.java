@@ -0,0 +1,35 @@
+package com.example.medaiassistant.hospital.repository;
+
+import com.example.medaiassistant.hospital.model.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 增量同步检查点数据访问接口
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Repository
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, Long> {
+
+    /**
+     * 查询医院某个源表的检查点
+     *
+     * @param hospitalId 医院ID
+     * @param sourceName 源表名称
+     * @return 检查点
+     */
+    Optional<SyncCheckpoint> findByHospitalIdAndSourceName(String hospitalId, String sourceName);
+
+    /**
+     * 查询医院的全部检查点
+     *
+     * @param hospitalId 医院ID
+     * @return 检查点列表
+     */
+    List<SyncCheckpoint> findByHospitalId(String hospitalId);
+}
@@ -0,0 +1,527 @@
+package com.example.medaiassistant.hospital.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 主服务器批量写入（upsert）组件
+ *
+ * <p>供检验、检查、病历、医嘱等同步服务共用，取代逐行"查询是否存在 + save"的写法：</p>
+ * <ol>
+ *   <li>按患者（或科室等范围列）一次查询出目标表中已有记录的业务键及可更新列</li>
+ *   <li>在内存中与源数据比对，分为新增、更新、未变化三类</li>
+ *   <li>新增和更新以JDBC批量语句写入：Oracle使用MERGE（USING DUAL绑定变量），
+ *       其他数据库（测试用H2）使用MERGE INTO ... KEY，仅新增的表使用批量INSERT</li>
+ * </ol>
+ *
+ * <p>业务键中含NULL的记录按SQL语义视为不与任何记录匹配，始终新增，与原先逐行判重的行为一致。
+ * 同一批次内业务键重复的源记录：可更新的表以最后一条为准，仅新增的表只保留第一条。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Component
+@Slf4j
+public class BulkUpsertWriter {
+
+    /** 每次executeBatch的记录数 */
+    static final int BATCH_SIZE = 500;
+
+    /** 预取查询IN列表的最大长度（Oracle限制1000） */
+    static final int MAX_IN_LIST_SIZE = 1000;
+
+    /** 目标表别名，匹配条件中使用 */
+    static final String TARGET_ALIAS = "t";
+
+    /**
+     * SQL方言
+     */
+    enum Dialect {
+        /** MERGE INTO ... USING (SELECT ... FROM DUAL) */
+        ORACLE,
+        /** MERGE INTO ... KEY (...) VALUES (...)，H2等 */
+        STANDARD
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Dialect dialect;
+
+    public BulkUpsertWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 写入单个范围（如一个患者）的源记录
+     *
+     * @param table      目标表定义
+     * @param scopeValue 范围列取值，如患者ID
+     * @param rows       源记录，键为列名，须包含表定义中的全部列
+     * @return 新增、更新、未变化的记录数
+     */
+    public UpsertResult upsert(UpsertTable table, Object scopeValue, List<Map<String, Object>> rows) {
+        return upsert(table, Collections.singletonList(scopeValue), rows);
+    }
+
+    /**
+     * 写入多个范围（如一个科室的全部患者）的源记录，已有记录以一次（超过1000个范围值时分批）查询预取
+     *
+     * @param table       目标表定义
+     * @param scopeValues 范围列取值集合
+     * @param rows        源记录，键为列名，须包含表定义中的全部列
+     * @return 新增、更新、未变化的记录数
+     */
+    public UpsertResult upsert(UpsertTable table, Collection<?> scopeValues, List<Map<String, Object>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Map<List<Object>, List<Object>> existing = fetchExisting(table, scopeValues);
+
+        List<Map<String, Object>> inserts = new ArrayList<>();
+        List<Map<String, Object>> updates = new ArrayList<>();
+        int unchanged = diff(table, existing, rows, inserts, updates);
+
+        write(table, inserts, updates);
+
+        UpsertResult result = new UpsertResult(inserts.size(), updates.size(), unchanged);
+        log.debug("批量写入{}完成 - {}，已有记录: {}，耗时: {}ms",
+                table.getTableName(), result, existing.size(), System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    /**
+     * 当前数据库使用的SQL方言
+     */
+    Dialect resolveDialect() {
+        Dialect resolved = dialect;
+        if (resolved == null) {
+            resolved = Dialect.STANDARD;
+            try {
+                String product = jdbcTemplate.execute(
+                        (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+                if (product != null && product.toLowerCase(Locale.ROOT).contains("oracle")) {
+                    resolved = Dialect.ORACLE;
+                }
+            } catch (Exception e) {
+                log.warn("无法识别数据库类型，批量写入使用标准MERGE语法: {}", e.getMessage());
+            }
+            dialect = resolved;
+            log.info("批量写入使用SQL方言: {}", resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * 预取已有记录：业务键 → 可更新列的取值（均已规范化）
+     */
+    private Map<List<Object>, List<Object>> fetchExisting(UpsertTable table, Collection<?> scopeValues) {
+        Map<List<Object>, List<Object>> existing = new HashMap<>();
+        List<Object> scopes = new ArrayList<>(new LinkedHashSet<>(scopeValues));
+        List<String> keyColumns = table.getKeyColumns();
+        List<String> updateColumns = table.getUpdateColumns();
+
+        for (int from = 0; from < scopes.size(); from += MAX_IN_LIST_SIZE) {
+            List<Object> chunk = scopes.subList(from, Math.min(scopes.size(), from + MAX_IN_LIST_SIZE));
+            jdbcTemplate.query(buildSelectSql(table, chunk.size()), (RowCallbackHandler) rs -> {
+                List<Object> key = new ArrayList<>(keyColumns.size());
+                for (int i = 1; i <= keyColumns.size(); i++) {
+                    key.add(normalize(JdbcUtils.getResultSetValue(rs, i)));
+                }
+                if (key.contains(null)) {
+                    return;
+                }
+                List<Object> values = new ArrayList<>(updateColumns.size());
+                for (int i = 1; i <= updateColumns.size(); i++) {
+                    values.add(normalize(JdbcUtils.getResultSetValue(rs, keyColumns.size() + i)));
+                }
+                existing.put(key, values);
+            }, chunk.toArray());
+        }
+        return existing;
+    }
+
+    /**
+     * 将源记录分为新增和更新两类，返回未变化（含批次内重复）的记录数
+     */
+    private int diff(UpsertTable table, Map<List<Object>, List<Object>> existing, List<Map<String, Object>> rows,
+            List<Map<String, Object>> inserts, List<Map<String, Object>> updates) {
+        int unchanged = 0;
+        // 可被同批次后续记录匹配的源记录
+        Map<List<Object>, Map<String, Object>> pending = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            List<Object> key = normalizedValues(row, table.getKeyColumns());
+            if (key.contains(null)) {
+                inserts.add(row);
+            } else if (pending.containsKey(key)) {
+                unchanged++;
+                if (table.isUpdatable()) {
+                    pending.put(key, row);
+                }
+            } else if (table.getMatchable().test(row)) {
+                pending.put(key, row);
+            } else {
+                // 写入后不满足匹配条件（如医嘱已停止），不参与批次内判重
+                unchanged += classify(table, existing.get(key), row, inserts, updates);
+            }
+        }
+        for (Map.Entry<List<Object>, Map<String, Object>> entry : pending.entrySet()) {
+            unchanged += classify(table, existing.get(entry.getKey()), entry.getValue(), inserts, updates);
+        }
+        return unchanged;
+    }
+
+    private static int classify(UpsertTable table, List<Object> current, Map<String, Object> row,
+            List<Map<String, Object>> inserts, List<Map<String, Object>> updates) {
+        if (current == null) {
+            inserts.add(row);
+            return 0;
+        }
+        if (!table.isUpdatable() || current.equals(normalizedValues(row, table.getUpdateColumns()))) {
+            return 1;
+        }
+        updates.add(row);
+        return 0;
+    }
+
+    private void write(UpsertTable table, List<Map<String, Object>> inserts, List<Map<String, Object>> updates) {
+        if (inserts.isEmpty() && updates.isEmpty()) {
+            return;
+        }
+
+        if (resolveDialect() == Dialect.ORACLE) {
+            List<Map<String, Object>> changed = new ArrayList<>(inserts.size() + updates.size());
+            changed.addAll(inserts);
+            changed.addAll(updates);
+            executeBatch(table, buildOracleMergeSql(table), table.getColumns(), changed);
+            return;
+        }
+
+        if (table.isUpdatable()) {
+            List<String> updateStatementColumns = new ArrayList<>(table.getKeyColumns());
+            updateStatementColumns.addAll(table.getUpdateColumns());
+            executeBatch(table, buildKeyMergeSql(table, table.getColumns()), table.getColumns(), inserts);
+            executeBatch(table, buildKeyMergeSql(table, updateStatementColumns), updateStatementColumns, updates);
+        } else {
+            executeBatch(table, buildInsertSql(table), table.getColumns(), inserts);
+        }
+    }
+
+    private void executeBatch(UpsertTable table, String sql, List<String> columns, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, rows, BATCH_SIZE, (PreparedStatement ps, Map<String, Object> row) -> {
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                Object value = row.get(column);
+                int sqlType = value != null && table.isLob(column) ? Types.CLOB : SqlTypeValue.TYPE_UNKNOWN;
+                StatementCreatorUtils.setParameterValue(ps, i + 1, sqlType, value);
+            }
+        });
+    }
+
+    static String buildSelectSql(UpsertTable table, int scopeCount) {
+        List<String> selected = new ArrayList<>(table.getKeyColumns());
+        selected.addAll(table.getUpdateColumns());
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(prefixed(selected, ", "))
+                .append(" FROM ").append(table.getTableName()).append(' ').append(TARGET_ALIAS)
+                .append(" WHERE ").append(TARGET_ALIAS).append('.').append(table.getScopeColumn());
+        if (scopeCount == 1) {
+            sql.append(" = ?");
+        } else {
+            sql.append(" IN (").append(String.join(", ", Collections.nCopies(scopeCount, "?"))).append(')');
+        }
+        if (table.getMatchCondition() != null) {
+            sql.append(" AND ").append(table.getMatchCondition());
+        }
+        return sql.toString();
+    }
+
+    static String buildOracleMergeSql(UpsertTable table) {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table.getTableName()).append(' ').append(TARGET_ALIAS)
+                .append(" USING (SELECT ")
+                .append(table.getColumns().stream().map(c -> "? AS " + c).collect(Collectors.joining(", ")))
+                .append(" FROM DUAL) s ON (")
+                .append(table.getKeyColumns().stream().map(c -> TARGET_ALIAS + "." + c + " = s." + c)
+                        .collect(Collectors.joining(" AND ")));
+        if (table.getMatchCondition() != null) {
+            sql.append(" AND ").append(table.getMatchCondition());
+        }
+        sql.append(')');
+        if (table.isUpdatable()) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ")
+                    .append(table.getUpdateColumns().stream().map(c -> TARGET_ALIAS + "." + c + " = s." + c)
+                            .collect(Collectors.joining(", ")));
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", table.getColumns()))
+                .append(") VALUES (")
+                .append(table.getColumns().stream().map(c -> "s." + c).collect(Collectors.joining(", ")))
+                .append(')');
+        return sql.toString();
+    }
+
+    static String buildKeyMergeSql(UpsertTable table, List<String> columns) {
+        return "MERGE INTO " + table.getTableName() + " (" + String.join(", ", columns) + ") KEY ("
+                + String.join(", ", table.getKeyColumns()) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    static String buildInsertSql(UpsertTable table) {
+        return "INSERT INTO " + table.getTableName() + " (" + String.join(", ", table.getColumns()) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(table.getColumns().size(), "?")) + ")";
+    }
+
+    private static String prefixed(List<String> columns, String delimiter) {
+        return columns.stream().map(c -> TARGET_ALIAS + "." + c).collect(Collectors.joining(delimiter));
+    }
+
+    private static List<Object> normalizedValues(Map<String, Object> row, List<String> columns) {
+        List<Object> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            values.add(normalize(row.get(column)));
+        }
+        return values;
+    }
+
+    /**
+     * 规范化列值以便比较：空字符串视为NULL（Oracle语义），数值按大小比较，时间精确到毫秒，CLOB读取为字符串
+     */
+    static Object normalize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String s) {
+            return s.isEmpty() ? null : s;
+        }
+        if (value instanceof Number n) {
+            BigDecimal decimal = n instanceof BigDecimal b ? b : new BigDecimal(n.toString());
+            return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+        }
+        if (value instanceof java.util.Date d) {
+            return Instant.ofEpochMilli(d.getTime());
+        }
+        if (value instanceof Clob clob) {
+            try {
+                long length = clob.length();
+                return length == 0 ? null : clob.getSubString(1, (int) length);
+            } catch (SQLException e) {
+                throw new IllegalStateException("读取CLOB字段失败", e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 目标表定义
+     *
+     * <p>columns为新增时写入的全部列，须包含业务键列和范围列；updateColumns为已有记录需要比较和更新的列，
+     * 为空表示只新增不更新（已有记录计为未变化）。matchCondition为已有记录额外需要满足的条件
+     * （以{@value #TARGET_ALIAS}为目标表别名），用于预取和Oracle MERGE的匹配条件，
+     * matchable为同一条件在源记录上的等价判断，用于批次内判重。</p>
+     */
+    public static final class UpsertTable {
+
+        private final String tableName;
+        private final String scopeColumn;
+        private final List<String> keyColumns;
+        private final List<String> columns;
+        private final List<String> updateColumns;
+        private final Set<String> lobColumns;
+        private final String matchCondition;
+        private final Predicate<Map<String, Object>> matchable;
+
+        private UpsertTable(Builder builder) {
+            this.tableName = builder.tableName;
+            this.scopeColumn = builder.scopeColumn;
+            this.keyColumns = List.copyOf(builder.keyColumns);
+            this.columns = List.copyOf(builder.columns);
+            this.updateColumns = List.copyOf(builder.updateColumns);
+            this.lobColumns = Set.copyOf(builder.lobColumns);
+            this.matchCondition = builder.matchCondition;
+            this.matchable = builder.matchable;
+        }
+
+        public static Builder builder(String tableName) {
+            return new Builder(tableName);
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getScopeColumn() {
+            return scopeColumn;
+        }
+
+        public List<String> getKeyColumns() {
+            return keyColumns;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public List<String> getUpdateColumns() {
+            return updateColumns;
+        }
+
+        public String getMatchCondition() {
+            return matchCondition;
+        }
+
+        Predicate<Map<String, Object>> getMatchable() {
+            return matchable;
+        }
+
+        public boolean isUpdatable() {
+            return !updateColumns.isEmpty();
+        }
+
+        boolean isLob(String column) {
+            return lobColumns.contains(column);
+        }
+
+        /**
+         * 目标表定义构建器
+         */
+        public static final class Builder {
+            private final String tableName;
+            private String scopeColumn;
+            private List<String> keyColumns = List.of();
+            private List<String> columns = List.of();
+            private List<String> updateColumns = List.of();
+            private Set<String> lobColumns = Set.of();
+            private String matchCondition;
+            private Predicate<Map<String, Object>> matchable = row -> true;
+
+            private Builder(String tableName) {
+                this.tableName = tableName;
+            }
+
+            /** 预取已有记录的范围列，如PatientID */
+            public Builder scope(String column) {
+                this.scopeColumn = column;
+                return this;
+            }
+
+            /** 业务键列 */
+            public Builder keys(String... columns) {
+                this.keyColumns = Arrays.asList(columns);
+                return this;
+            }
+
+            /** 新增时写入的全部列 */
+            public Builder columns(String... columns) {
+                this.columns = Arrays.asList(columns);
+                return this;
+            }
+
+            /** 已有记录需要比较和更新的列 */
+            public Builder updateColumns(String... columns) {
+                this.updateColumns = Arrays.asList(columns);
+                return this;
+            }
+
+            /** 以CLOB方式绑定的列 */
+            public Builder lobColumns(String... columns) {
+                this.lobColumns = new LinkedHashSet<>(Arrays.asList(columns));
+                return this;
+            }
+
+            /** 已有记录额外需要满足的匹配条件及其在源记录上的等价判断 */
+            public Builder matchCondition(String condition, Predicate<Map<String, Object>> matchable) {
+                this.matchCondition = condition;
+                this.matchable = matchable;
+                return this;
+            }
+
+            public UpsertTable build() {
+                Objects.requireNonNull(scopeColumn, "scopeColumn");
+                if (keyColumns.isEmpty()) {
+                    throw new IllegalStateException("业务键列不能为空 - 表: " + tableName);
+                }
+                if (!columns.containsAll(keyColumns) || !columns.contains(scopeColumn)
+                        || !columns.containsAll(updateColumns)) {
+                    throw new IllegalStateException("写入列须包含业务键列、范围列和更新列 - 表: " + tableName);
+                }
+                if (updateColumns.stream().anyMatch(keyColumns::contains)) {
+                    throw new IllegalStateException("业务键列不能作为更新列 - 表: " + tableName);
+                }
+                return new UpsertTable(this);
+            }
+        }
+    }
+
+    /**
+     * 批量写入结果
+     */
+    public static final class UpsertResult {
+
+        static final UpsertResult EMPTY = new UpsertResult(0, 0, 0);
+
+        private final int inserted;
+        private final int updated;
+        private final int unchanged;
+
+        public UpsertResult(int inserted, int updated, int unchanged) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.unchanged = unchanged;
+        }
+
+        /** 新增记录数 */
+        public int getInserted() {
+            return inserted;
+        }
+
+        /** 更新记录数 */
+        public int getUpdated() {
+            return updated;
+        }
+
+        /** 已存在且未变化（含批次内重复）的记录数 */
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        /** 处理的源记录总数 */
+        public int getProcessed() {
+            return inserted + updated + unchanged;
+        }
+
+        @Override
+        public String toString() {
+            return "新增: " + inserted + " 条, 更新: " + updated + " 条, 未变化: " + unchanged + " 条";
+        }
+    }
+}
@@ -1,154 +1,476 @@
 package com.example.medaiassistant.hospital.service;
 
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.model.HospitalConfig;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.model.SyncCheckpoint;
 import com.example.medaiassistant.hospital.model.SyncResult;
+import com.example.medaiassistant.hospital.repository.SyncCheckpointRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 数据同步执行器
- * 负责执行医院数据同步任务，支持增量同步、全量同步和分批处理
- * 
+ * 基于高水位的增量同步引擎，按源表从HIS拉取水位之后的变更数据并批量写入主服务器
+ *
+ * <p><strong>增量同步</strong>：每家医院、每个源表（{@link IncrementalSyncSource}）在SYNC_CHECKPOINT表中
+ * 保存一个水位（最后修改时间或单调递增ID）。每次按水位分页查询（每页最多批次大小条，按水位列升序），
+ * 每页的批量写入和水位推进在同一个主库事务中提交，任一失败则整页回滚、水位不变。</p>
+ *
+ * <ul>
+ *   <li>时间水位每次运行的第一页向前回退{@code hospital.sync.incremental.overlap-seconds}秒，
+ *       覆盖HIS端晚提交的事务；重复拉取的记录由upsert判重，计为未变化</li>
+ *   <li>满页时，末尾与最后一条水位相同的记录留到下一页，避免同一时间点的记录被分页截断后漏掉</li>
+ *   <li>水位只前进不后退</li>
+ * </ul>
+ *
+ * <p><strong>全量对账</strong>：按增量模板的初始水位（参数defaultValue）从头分页重新拉取，
+ * 作为增量同步的兜底，默认每周日凌晨执行一次。</p>
+ *
+ * <p>没有增量查询模板的医院和源表不做增量同步，继续由夜间同步逐患者拉取。</p>
+ *
  * @author System
- * @version 1.0
+ * @version 2.0
  * @since 2025-12-04
  */
 @Service
 @Slf4j
 public class DataSyncExecutor {
-    
+
     /**
      * 默认批次大小
      */
     private static final int DEFAULT_BATCH_SIZE = 1000;
-    
+
+    /** 全量同步 */
+    static final String SYNC_TYPE_FULL = "FULL";
+
+    /** 增量同步 */
+    static final String SYNC_TYPE_INCREMENTAL = "INCREMENTAL";
+
+    /** 增量查询模板中的水位参数名 */
+    static final String WATERMARK_PARAMETER = "watermark";
+
+    private final List<IncrementalSyncSource> sources;
+    private final SqlExecutionService sqlExecutionService;
+    private final TemplateHotUpdateService templateHotUpdateService;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final SyncCheckpointRepository checkpointRepository;
+    private final HospitalConfigService hospitalConfigService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 医院同步锁，防止同一医院的增量同步和全量对账并发执行
+     */
+    private final Map<String, ReentrantLock> hospitalLocks = new ConcurrentHashMap<>();
+
     /**
      * 当前批次大小
      */
     private int batchSize = DEFAULT_BATCH_SIZE;
-    
+
+    @Value("${hospital.sync.incremental.enabled:false}")
+    private boolean incrementalEnabled;
+
+    @Value("${hospital.sync.incremental.overlap-seconds:300}")
+    private long overlapSeconds;
+
+    @Value("${hospital.sync.incremental.query-timeout-seconds:120}")
+    private int queryTimeoutSeconds;
+
+    public DataSyncExecutor(
+            List<IncrementalSyncSource> sources,
+            SqlExecutionService sqlExecutionService,
+            TemplateHotUpdateService templateHotUpdateService,
+            BulkUpsertWriter bulkUpsertWriter,
+            SyncCheckpointRepository checkpointRepository,
+            HospitalConfigService hospitalConfigService,
+            @Qualifier("transactionManager") PlatformTransactionManager transactionManager) {
+        this.sources = sources;
+        this.sqlExecutionService = sqlExecutionService;
+        this.templateHotUpdateService = templateHotUpdateService;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.checkpointRepository = checkpointRepository;
+        this.hospitalConfigService = hospitalConfigService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * 执行数据同步
-     * 
+     *
      * @param hospitalId 医院ID
-     * @param syncType 同步类型：FULL（全量）或 INCREMENTAL（增量）
-     * @return 同步结果
+     * @param syncType 同步类型：FULL（全量对账）或 INCREMENTAL（增量）
+     * @return 同步结果，recordsSynced为新增和更新的记录数
      */
     public SyncResult executeSync(String hospitalId, String syncType) {
         log.info("执行医院 {} 的{}同步", hospitalId, syncType);
-        
+
         // 生成任务ID
         String taskId = generateTaskId(hospitalId, syncType);
-        
+        long startTime = System.currentTimeMillis();
+        ReentrantLock lock = hospitalLocks.computeIfAbsent(hospitalId, k -> new ReentrantLock());
+
+        if (!lock.tryLock()) {
+            log.warn("医院 {} 的同步正在执行中，跳过本次{}同步", hospitalId, syncType);
+            return SyncResult.error(taskId, hospitalId, syncType, "同步正在执行中");
+        }
+
         try {
-            // 根据同步类型执行不同的同步逻辑
-            int recordsSynced = 0;
-            if ("FULL".equalsIgnoreCase(syncType)) {
-                recordsSynced = executeFullSync(hospitalId);
-            } else if ("INCREMENTAL".equalsIgnoreCase(syncType)) {
-                recordsSynced = executeIncrementalSync(hospitalId);
+            boolean full;
+            if (SYNC_TYPE_FULL.equalsIgnoreCase(syncType)) {
+                full = true;
+            } else if (SYNC_TYPE_INCREMENTAL.equalsIgnoreCase(syncType)) {
+                full = false;
             } else {
                 throw new IllegalArgumentException("不支持的同步类型: " + syncType);
             }
-            
-            log.info("医院 {} 的{}同步完成，同步记录数: {}", hospitalId, syncType, recordsSynced);
-            return SyncResult.success(taskId, hospitalId, syncType, recordsSynced);
-            
+
+            int recordsSynced = 0;
+            List<String> failedSources = new ArrayList<>();
+            for (IncrementalSyncSource source : sources) {
+                try {
+                    recordsSynced += syncSource(hospitalId, source, full).getRecordsWritten();
+                } catch (Exception e) {
+                    log.error("医院 {} 源表 {} 的{}同步失败", hospitalId, source.getSourceName(), syncType, e);
+                    failedSources.add(source.getSourceName() + ": " + e.getMessage());
+                }
+            }
+
+            SyncResult result = failedSources.isEmpty()
+                    ? SyncResult.success(taskId, hospitalId, syncType, recordsSynced)
+                    : SyncResult.error(taskId, hospitalId, syncType, "源表同步失败 - " + String.join("; ", failedSources));
+            result.setRecordsSynced(recordsSynced);
+            result.setStartTime(new Date(startTime));
+            result.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+
+            log.info("医院 {} 的{}同步完成，同步记录数: {}，失败源表: {}，耗时: {}ms",
+                    hospitalId, syncType, recordsSynced, failedSources.size(), result.getExecutionTimeMs());
+            return result;
+
         } catch (Exception e) {
             log.error("医院 {} 的{}同步失败", hospitalId, syncType, e);
             return SyncResult.error(taskId, hospitalId, syncType, e.getMessage());
+        } finally {
+            lock.unlock();
         }
     }
-    
+
     /**
-     * 执行全量同步
-     * 
-     * @param hospitalId 医院ID
-     * @return 同步的记录数
+     * 定时增量同步：对所有启用同步的医院执行增量同步
+     */
+    @Scheduled(cron = "${hospital.sync.incremental.cron:0 */15 * * * ?}")
+    public void scheduledIncrementalSync() {
+        if (!incrementalEnabled) {
+            return;
+        }
+        for (HospitalConfig config : hospitalConfigService.getEnabledAndSyncEnabledConfigs()) {
+            executeSync(config.getId(), SYNC_TYPE_INCREMENTAL);
+        }
+    }
+
+    /**
+     * 定时全量对账：从初始水位重新拉取，兜底增量同步可能遗漏的记录
      */
-    private int executeFullSync(String hospitalId) {
-        log.info("执行医院 {} 的全量同步", hospitalId);
-        // 模拟全量同步逻辑
-        // 实际实现应该从医院数据库读取所有数据并同步到主数据库
-        int totalRecords = 10000; // 模拟总记录数
-        return processInBatches(hospitalId, totalRecords, "FULL");
+    @Scheduled(cron = "${hospital.sync.reconcile.cron:0 30 3 ? * SUN}")
+    public void scheduledReconciliation() {
+        if (!incrementalEnabled) {
+            return;
+        }
+        for (HospitalConfig config : hospitalConfigService.getEnabledAndSyncEnabledConfigs()) {
+            executeSync(config.getId(), SYNC_TYPE_FULL);
+        }
     }
-    
+
     /**
-     * 执行增量同步
-     * 
+     * 检查源表是否已由增量同步负责（增量同步已启用且配置了增量查询模板）
+     *
      * @param hospitalId 医院ID
-     * @return 同步的记录数
+     * @param source 源表
+     * @return 是否由增量同步负责
      */
-    private int executeIncrementalSync(String hospitalId) {
-        log.info("执行医院 {} 的增量同步", hospitalId);
-        // 模拟增量同步逻辑
-        // 实际实现应该基于最后同步时间戳读取新增或修改的数据
-        int newRecords = 100; // 模拟新增记录数
-        return processInBatches(hospitalId, newRecords, "INCREMENTAL");
+    public boolean isIncrementalActive(String hospitalId, IncrementalSyncSource source) {
+        return incrementalEnabled && Files.isRegularFile(Path.of(source.getIncrementalTemplatePath(hospitalId)));
     }
-    
+
     /**
-     * 分批处理数据
-     * 
+     * 同步单个源表
+     *
      * @param hospitalId 医院ID
-     * @param totalRecords 总记录数
-     * @param syncType 同步类型
-     * @return 处理的记录数
-     */
-    private int processInBatches(String hospitalId, int totalRecords, String syncType) {
-        log.info("医院 {} 的{}同步开始分批处理，总记录数: {}，批次大小: {}", 
-                hospitalId, syncType, totalRecords, batchSize);
-        
-        int processedRecords = 0;
-        int batchCount = 0;
-        
-        // 模拟分批处理
-        while (processedRecords < totalRecords) {
-            batchCount++;
-            int currentBatchSize = Math.min(batchSize, totalRecords - processedRecords);
-            
-            log.debug("处理第 {} 批，批次大小: {}，已处理: {}，剩余: {}", 
-                    batchCount, currentBatchSize, processedRecords, totalRecords - processedRecords);
-            
-            // 模拟处理一批数据
-            processedRecords += currentBatchSize;
-            
-            // 模拟处理时间
-            try {
-                Thread.sleep(10); // 模拟处理时间
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("分批处理被中断");
+     * @param source 源表
+     * @param full true为全量对账，false为增量同步
+     * @return 源表同步统计
+     */
+    SourceSyncStats syncSource(String hospitalId, IncrementalSyncSource source, boolean full) {
+        SourceSyncStats stats = new SourceSyncStats(source.getSourceName());
+        String templatePath = source.getIncrementalTemplatePath(hospitalId);
+        if (!Files.isRegularFile(Path.of(templatePath))) {
+            log.debug("医院 {} 源表 {} 未配置增量查询模板，跳过: {}", hospitalId, source.getSourceName(), templatePath);
+            return stats;
+        }
+
+        SqlTemplate template = templateHotUpdateService.loadTemplate(templatePath);
+        if (template == null || template.getEffectiveSql() == null) {
+            throw new IllegalStateException("增量查询模板加载失败: " + templatePath);
+        }
+        String watermarkType = resolveWatermarkType(template);
+        Comparable<?> initialWatermark = resolveInitialWatermark(template, watermarkType);
+
+        SyncCheckpoint checkpoint = checkpointRepository
+                .findByHospitalIdAndSourceName(hospitalId, source.getSourceName())
+                .orElseGet(() -> SyncCheckpoint.create(hospitalId, source.getSourceName(), watermarkType));
+        if (!watermarkType.equals(checkpoint.getWatermarkType())) {
+            log.warn("医院 {} 源表 {} 的水位类型由 {} 变为 {}，从初始水位重新同步",
+                    hospitalId, source.getSourceName(), checkpoint.getWatermarkType(), watermarkType);
+            checkpoint.setWatermarkType(watermarkType);
+            checkpoint.setWatermarkTime(null);
+            checkpoint.setWatermarkId(null);
+        }
+
+        Comparable<?> committed = checkpoint.getWatermark();
+        Comparable<?> lowerBound = full || committed == null ? initialWatermark : applyOverlap(committed);
+        log.info("医院 {} 源表 {} 开始{}同步 - 当前水位: {}, 查询起点: {}",
+                hospitalId, source.getSourceName(), full ? "全量" : "增量", committed, lowerBound);
+
+        while (true) {
+            List<Map<String, Object>> page = fetchPage(hospitalId, template, lowerBound);
+            if (page.isEmpty()) {
+                break;
+            }
+            int end = pageBoundary(page, batchSize, watermarkType);
+            if (end == page.size() && page.size() >= batchSize) {
+                log.warn("医院 {} 源表 {} 的一整页记录水位相同（{}），同一水位超出批次大小的记录将由全量对账补齐",
+                        hospitalId, source.getSourceName(), watermarkOf(page.get(end - 1), watermarkType));
+            }
+            List<Map<String, Object>> batch = page.subList(0, end);
+            Comparable<?> pageWatermark = watermarkOf(batch.get(batch.size() - 1), watermarkType);
+            Comparable<?> advanced = max(committed, pageWatermark);
+
+            checkpoint = writeBatch(source, checkpoint, batch, advanced, stats);
+            committed = advanced;
+            lowerBound = pageWatermark;
+
+            if (page.size() < batchSize) {
                 break;
             }
         }
-        
-        log.info("医院 {} 的{}同步分批处理完成，总批次数: {}，总记录数: {}", 
-                hospitalId, syncType, batchCount, processedRecords);
-        return processedRecords;
+
+        Date now = new Date();
+        checkpoint.setLastSyncTime(now);
+        if (full) {
+            checkpoint.setLastFullSyncTime(now);
+        }
+        checkpoint.setLastRecordsSynced(stats.getRecordsWritten());
+        checkpoint.setUpdatedAt(now);
+        checkpointRepository.save(checkpoint);
+
+        log.info("医院 {} 源表 {} {}同步完成 - 读取: {} 条, 批次: {}, 新增: {} 条, 更新: {} 条, 未变化: {} 条, 水位: {}",
+                hospitalId, source.getSourceName(), full ? "全量" : "增量", stats.getRowsRead(), stats.getBatches(),
+                stats.getInserted(), stats.getUpdated(), stats.getUnchanged(), committed);
+        return stats;
+    }
+
+    /**
+     * 在一个主库事务中写入一页数据并推进水位
+     */
+    private SyncCheckpoint writeBatch(IncrementalSyncSource source, SyncCheckpoint checkpoint,
+            List<Map<String, Object>> batch, Comparable<?> watermark, SourceSyncStats stats) {
+        BulkUpsertWriter.UpsertTable table = source.getTargetTable();
+        List<Map<String, Object>> rows = new ArrayList<>(batch.size());
+        Set<Object> scopeValues = new LinkedHashSet<>();
+        for (Map<String, Object> record : batch) {
+            Map<String, Object> row = source.toTargetRow(record);
+            if (row != null) {
+                rows.add(row);
+                scopeValues.add(row.get(table.getScopeColumn()));
+            }
+        }
+
+        return transactionTemplate.execute(status -> {
+            BulkUpsertWriter.UpsertResult result = bulkUpsertWriter.upsert(table, scopeValues, rows);
+            checkpoint.setWatermark(watermark);
+            SyncCheckpoint saved = checkpointRepository.save(checkpoint);
+            stats.record(batch.size(), result);
+            return saved;
+        });
+    }
+
+    /**
+     * 查询水位之后的一页数据
+     */
+    private List<Map<String, Object>> fetchPage(String hospitalId, SqlTemplate template, Comparable<?> lowerBound) {
+        SqlQueryRequest request = new SqlQueryRequest();
+        request.setSql(template.getEffectiveSql());
+        request.setDatabaseType(template.getDatabaseType() != null ? template.getDatabaseType() : "his");
+        request.setParameters(Map.of(WATERMARK_PARAMETER, lowerBound));
+        request.setMaxRows(batchSize);
+        request.setTimeoutSeconds(queryTimeoutSeconds);
+
+        SqlQueryResult result = sqlExecutionService.executeQuery(hospitalId, request);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("增量查询失败: " + result.getErrorMessage());
+        }
+        return result.getData() != null ? result.getData() : List.of();
+    }
+
+    /**
+     * 计算本页实际处理的记录数
+     *
+     * <p>不满页时全部处理；满页时末尾与最后一条水位相同的记录可能被截断，留到下一页重新拉取。
+     * 整页水位相同时无法留到下一页，全部处理。</p>
+     */
+    static int pageBoundary(List<Map<String, Object>> page, int batchSize, String watermarkType) {
+        int size = page.size();
+        if (size < batchSize) {
+            return size;
+        }
+        Comparable<?> last = watermarkOf(page.get(size - 1), watermarkType);
+        int end = size - 1;
+        while (end > 0 && last.equals(watermarkOf(page.get(end - 1), watermarkType))) {
+            end--;
+        }
+        return end == 0 ? size : end;
+    }
+
+    /**
+     * 读取一行记录的水位值
+     */
+    static Comparable<?> watermarkOf(Map<String, Object> record, String watermarkType) {
+        Object value = record.get(IncrementalSyncSource.WATERMARK_COLUMN);
+        if (value == null) {
+            throw new IllegalStateException("增量查询结果缺少水位列: " + IncrementalSyncSource.WATERMARK_COLUMN);
+        }
+        if (SyncCheckpoint.TYPE_ID.equals(watermarkType)) {
+            if (value instanceof BigDecimal decimal) {
+                return decimal.longValueExact();
+            }
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            return Long.parseLong(value.toString().trim());
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp;
+        }
+        if (value instanceof Date date) {
+            return new Timestamp(date.getTime());
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return Timestamp.valueOf(dateTime);
+        }
+        return Timestamp.valueOf(value.toString().trim());
+    }
+
+    /**
+     * 根据模板中watermark参数的类型确定水位类型，未定义时按时间水位处理
+     */
+    static String resolveWatermarkType(SqlTemplate template) {
+        SqlTemplate.Parameter parameter = findWatermarkParameter(template);
+        String type = parameter != null && parameter.getType() != null
+                ? parameter.getType().trim().toLowerCase(Locale.ROOT) : "";
+        switch (type) {
+            case "long":
+            case "integer":
+            case "int":
+            case "number":
+            case "bigdecimal":
+                return SyncCheckpoint.TYPE_ID;
+            default:
+                return SyncCheckpoint.TYPE_TIMESTAMP;
+        }
+    }
+
+    /**
+     * 初始水位：模板中watermark参数的defaultValue，未配置时从最早的记录开始
+     */
+    static Comparable<?> resolveInitialWatermark(SqlTemplate template, String watermarkType) {
+        SqlTemplate.Parameter parameter = findWatermarkParameter(template);
+        String defaultValue = parameter != null && parameter.getDefaultValue() != null
+                ? parameter.getDefaultValue().trim() : "";
+        if (SyncCheckpoint.TYPE_ID.equals(watermarkType)) {
+            return defaultValue.isEmpty() ? 0L : Long.parseLong(defaultValue);
+        }
+        if (defaultValue.isEmpty()) {
+            return new Timestamp(0L);
+        }
+        if (defaultValue.length() == 10) {
+            return Timestamp.valueOf(LocalDate.parse(defaultValue).atStartOfDay());
+        }
+        return Timestamp.valueOf(defaultValue);
+    }
+
+    private static SqlTemplate.Parameter findWatermarkParameter(SqlTemplate template) {
+        if (template.getParameters() == null) {
+            return null;
+        }
+        for (SqlTemplate.Parameter parameter : template.getParameters()) {
+            if (WATERMARK_PARAMETER.equalsIgnoreCase(parameter.getName())) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 时间水位向前回退重叠窗口，ID水位不回退
+     */
+    private Comparable<?> applyOverlap(Comparable<?> watermark) {
+        if (watermark instanceof Timestamp timestamp && overlapSeconds > 0) {
+            return new Timestamp(timestamp.getTime() - overlapSeconds * 1000);
+        }
+        return watermark;
     }
-    
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable<?> max(Comparable<?> current, Comparable<?> candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        return ((Comparable) candidate).compareTo(current) > 0 ? candidate : current;
+    }
+
     /**
      * 检查是否支持分批处理
-     * 
+     *
      * @return 是否支持分批处理
      */
     public boolean supportsBatchProcessing() {
         return true;
     }
-    
+
     /**
      * 获取当前批次大小
-     * 
+     *
      * @return 批次大小
      */
     public int getBatchSize() {
         return batchSize;
     }
-    
+
     /**
-     * 设置批次大小
-     * 
+     * 设置批次大小（每页增量查询的最大行数）
+     *
      * @param batchSize 批次大小
      */
     public void setBatchSize(int batchSize) {
@@ -158,34 +480,34 @@ public class DataSyncExecutor {
         this.batchSize = batchSize;
         log.info("设置批次大小为: {}", batchSize);
     }
-    
+
     /**
      * 检查是否有指定的同步策略
-     * 
+     *
      * @param strategy 策略名称
      * @return 是否有该策略
      */
     public boolean hasStrategy(String strategy) {
         // 支持的基本策略
-        return "INCREMENTAL".equals(strategy) || 
-               "FULL".equals(strategy) || 
+        return "INCREMENTAL".equals(strategy) ||
+               "FULL".equals(strategy) ||
                "INCREMENTAL_WITH_BATCH".equals(strategy) ||
                "FULL_WITH_BATCH".equals(strategy);
     }
-    
+
     /**
-     * 获取内存使用情况（模拟）
-     * 
-     * @return 内存使用量（字节）
+     * 查询医院的全部同步检查点
+     *
+     * @param hospitalId 医院ID
+     * @return 检查点列表
      */
-    public long getMemoryUsage() {
-        // 模拟内存使用
-        return 1024 * 1024 * 50; // 50MB
+    public List<SyncCheckpoint> getCheckpoints(String hospitalId) {
+        return checkpointRepository.findByHospitalId(hospitalId);
     }
-    
+
     /**
      * 生成任务ID
-     * 
+     *
      * @param hospitalId 医院ID
      * @param syncType 同步类型
      * @return 任务ID
@@ -193,4 +515,57 @@ public class DataSyncExecutor {
     private String generateTaskId(String hospitalId, String syncType) {
         return "sync-" + hospitalId + "-" + syncType.toLowerCase() + "-" + System.currentTimeMillis();
     }
+
+    /**
+     * 单个源表一次同步的统计
+     */
+    static final class SourceSyncStats {
+        private final String sourceName;
+        private int rowsRead;
+        private int batches;
+        private int inserted;
+        private int updated;
+        private int unchanged;
+
+        SourceSyncStats(String sourceName) {
+            this.sourceName = sourceName;
+        }
+
+        void record(int rows, BulkUpsertWriter.UpsertResult result) {
+            rowsRead += rows;
+            batches++;
+            inserted += result.getInserted();
+            updated += result.getUpdated();
+            unchanged += result.getUnchanged();
+        }
+
+        String getSourceName() {
+            return sourceName;
+        }
+
+        int getRowsRead() {
+            return rowsRead;
+        }
+
+        int getBatches() {
+            return batches;
+        }
+
+        int getInserted() {
+            return inserted;
+        }
+
+        int getUpdated() {
+            return updated;
+        }
+
+        int getUnchanged() {
+            return unchanged;
+        }
+
+        /** 新增和更新的记录数 */
+        int getRecordsWritten() {
+            return inserted + updated;
+        }
+    }
 }
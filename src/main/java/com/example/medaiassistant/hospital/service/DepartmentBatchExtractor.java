@@ -0,0 +1,224 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.dto.SqlStreamOptions;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 科室级HIS批量提取器
+ *
+ * <p>夜间同步逐个病人查询HIS时，一个科室N个病人每个数据源需要N次往返。批量提取把一批病人的HIS病人ID
+ * 作为IN列表传给数据源的批量查询模板（见{@link PatientBatchSource}），每块病人只需一次往返，
+ * 结果流式读取并按病人ID（和就诊标识符）在内存中拆分，再逐个病人交给同步服务写入主库。</p>
+ *
+ * <p>SqlSecurityValidator只允许SELECT语句，无法在HIS侧建立临时ID表，因此采用分块IN列表；
+ * 单块病人数受Oracle IN列表上限（1000）约束。</p>
+ *
+ * <p>一块查询失败或结果达到行数上限、内存上限（被截断）时，该块所有病人记为失败，不导入部分数据。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Service
+@Slf4j
+public class DepartmentBatchExtractor {
+
+    /** Oracle IN列表最多1000个元素 */
+    static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final SqlExecutionService sqlExecutionService;
+    private final TemplateHotUpdateService templateHotUpdateService;
+    private final SyncBulkheads syncBulkheads;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int maxRowsPerChunk;
+    private final int queryTimeoutSeconds;
+    private final int fetchSize;
+    private final long maxBytesPerChunk;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong failedRoundTrips = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong unmatchedRows = new AtomicLong();
+
+    public DepartmentBatchExtractor(
+            SqlExecutionService sqlExecutionService,
+            TemplateHotUpdateService templateHotUpdateService,
+            SyncBulkheads syncBulkheads,
+            @Value("${hospital.sync.batch-extraction.enabled:true}") boolean enabled,
+            @Value("${hospital.sync.batch-extraction.chunk-size:500}") int chunkSize,
+            @Value("${hospital.sync.batch-extraction.max-rows-per-chunk:200000}") int maxRowsPerChunk,
+            @Value("${hospital.sync.batch-extraction.query-timeout-seconds:300}") int queryTimeoutSeconds,
+            @Value("${hospital.sync.batch-extraction.fetch-size:500}") int fetchSize,
+            @Value("${hospital.sync.batch-extraction.max-bytes-per-chunk:268435456}") long maxBytesPerChunk) {
+        this.sqlExecutionService = sqlExecutionService;
+        this.templateHotUpdateService = templateHotUpdateService;
+        this.syncBulkheads = syncBulkheads;
+        this.enabled = enabled;
+        this.chunkSize = Math.min(MAX_IN_LIST_SIZE, Math.max(1, chunkSize));
+        this.maxRowsPerChunk = Math.max(1, maxRowsPerChunk);
+        this.queryTimeoutSeconds = Math.max(1, queryTimeoutSeconds);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.maxBytesPerChunk = Math.max(1, maxBytesPerChunk);
+    }
+
+    /**
+     * 检查数据源是否按科室批量提取（批量提取已启用且配置了批量查询模板）
+     *
+     * @param hospitalId 医院ID
+     * @param source     数据源
+     * @return 是否批量提取
+     */
+    public boolean supports(String hospitalId, PatientBatchSource source) {
+        return enabled && Files.isRegularFile(Path.of(source.getBatchTemplatePath(hospitalId)));
+    }
+
+    /**
+     * 每次查询的病人数
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 批量提取一批病人的数据并逐个病人导入
+     *
+     * @param hospitalId           医院ID
+     * @param source               数据源
+     * @param mainServerPatientIds 主服务器病人ID列表
+     * @return 每个病人的导入记录数（按输入顺序），-1表示失败
+     */
+    public Map<String, Integer> extract(String hospitalId, PatientBatchSource source,
+                                        List<String> mainServerPatientIds) {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        String templatePath = source.getBatchTemplatePath(hospitalId);
+        SqlTemplate template = templateHotUpdateService.loadTemplate(templatePath);
+        if (template == null || template.getEffectiveSql() == null) {
+            log.error("批量查询模板加载失败 - 数据源: {}, 路径: {}", source.getSourceName(), templatePath);
+            mainServerPatientIds.forEach(patientId -> results.put(patientId, -1));
+            return results;
+        }
+
+        // HIS病人ID → 主服务器病人ID，同一HIS病人可能对应多次就诊
+        Map<String, List<String>> patientsByHisId = new LinkedHashMap<>();
+        for (String patientId : mainServerPatientIds) {
+            patientsByHisId.computeIfAbsent(normalize(source.toHisPatientId(patientId)), k -> new ArrayList<>())
+                .add(patientId);
+        }
+
+        List<String> hisIds = new ArrayList<>(patientsByHisId.keySet());
+        for (int from = 0; from < hisIds.size(); from += chunkSize) {
+            List<String> chunk = hisIds.subList(from, Math.min(hisIds.size(), from + chunkSize));
+            extractChunk(hospitalId, source, template, chunk, patientsByHisId, results);
+        }
+        return results;
+    }
+
+    private void extractChunk(String hospitalId, PatientBatchSource source, SqlTemplate template, List<String> hisIds,
+                              Map<String, List<String>> patientsByHisId, Map<String, Integer> results) {
+        SqlQueryRequest request = new SqlQueryRequest();
+        request.setSql(template.getEffectiveSql());
+        request.setRowMapper(template.getRowMapper());
+        request.setDatabaseType("his");
+        request.setParameters(Map.of(PatientBatchSource.PATIENT_IDS_PARAM, List.copyOf(hisIds)));
+        request.setMaxRows(maxRowsPerChunk);
+        request.setTimeoutSeconds(queryTimeoutSeconds);
+        SqlStreamOptions options = new SqlStreamOptions();
+        options.setFetchSize(fetchSize);
+        options.setMaxBytes(maxBytesPerChunk);
+
+        // 不按就诊区分的数据源忽略结果中的就诊标识符列
+        boolean visitScoped = source.toHisVisitId(patientsByHisId.get(hisIds.get(0)).get(0)) != null;
+        Map<String, List<Map<String, Object>>> recordsByKey = new HashMap<>();
+        SqlQueryResult queryResult = syncBulkheads.readFromHis(() -> sqlExecutionService.streamQuery(
+            hospitalId, request, options, row -> {
+                recordsByKey.computeIfAbsent(rowKey(row, visitScoped), k -> new ArrayList<>()).add(row);
+                return true;
+            }));
+        roundTrips.incrementAndGet();
+
+        String failure = null;
+        if (!queryResult.isSuccess()) {
+            failure = queryResult.getErrorMessage();
+        } else if (queryResult.isTruncated()) {
+            failure = queryResult.getWarnings() + "，结果被截断，请调小 chunk-size";
+        }
+        if (failure != null) {
+            failedRoundTrips.incrementAndGet();
+            log.error("{}批量查询失败 - 病人数: {}, 原因: {}", source.getSourceName(), hisIds.size(), failure);
+            for (String hisId : hisIds) {
+                patientsByHisId.get(hisId).forEach(patientId -> results.put(patientId, -1));
+            }
+            return;
+        }
+        rows.addAndGet(queryResult.getRowCount());
+
+        // 不按就诊区分时同一HIS病人的多次就诊共用同一组记录（与逐患者查询一致）
+        Set<String> matchedKeys = new HashSet<>();
+        for (String hisId : hisIds) {
+            for (String patientId : patientsByHisId.get(hisId)) {
+                String key = patientKey(hisId, normalize(source.toHisVisitId(patientId)));
+                matchedKeys.add(key);
+                List<Map<String, Object>> records = recordsByKey.getOrDefault(key, Collections.emptyList());
+                results.put(patientId, source.importPatientRecords(patientId, records));
+            }
+        }
+        recordsByKey.keySet().removeAll(matchedKeys);
+
+        int unmatched = recordsByKey.values().stream().mapToInt(List::size).sum();
+        if (unmatched > 0) {
+            unmatchedRows.addAndGet(unmatched);
+            log.warn("{}批量查询有 {} 行未匹配到病人，请检查模板是否返回 {} / {} 列",
+                source.getSourceName(), unmatched,
+                PatientBatchSource.HIS_PATIENT_ID_COLUMN, PatientBatchSource.VISIT_ID_COLUMN);
+        }
+        log.debug("{}批量查询完成 - 病人数: {}, 行数: {}, 耗时: {}ms", source.getSourceName(), hisIds.size(),
+            queryResult.getRowCount(), queryResult.getExecutionTimeMs());
+    }
+
+    /**
+     * 批量提取统计快照
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", enabled);
+        map.put("chunkSize", chunkSize);
+        map.put("roundTrips", roundTrips.get());
+        map.put("failedRoundTrips", failedRoundTrips.get());
+        map.put("rows", rows.get());
+        map.put("unmatchedRows", unmatchedRows.get());
+        return map;
+    }
+
+    private static String rowKey(Map<String, Object> row, boolean visitScoped) {
+        return patientKey(normalize(row.get(PatientBatchSource.HIS_PATIENT_ID_COLUMN)),
+            visitScoped ? normalize(row.get(PatientBatchSource.VISIT_ID_COLUMN)) : null);
+    }
+
+    private static String patientKey(String hisId, String visitId) {
+        return visitId == null ? hisId : hisId + "|" + visitId;
+    }
+
+    /**
+     * 统一ID取值：Oracle NUMBER列返回BigDecimal，与主服务器ID解析出的字符串比较前去掉多余的小数位
+     */
+    private static String normalize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        return value.toString().trim();
+    }
+}
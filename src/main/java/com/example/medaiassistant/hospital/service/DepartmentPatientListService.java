@@ -0,0 +1,229 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.dto.DepartmentPatientList;
+import com.example.medaiassistant.hospital.dto.PatientSyncResult;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.repository.PatientRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * 科室病人列表读取服务（过期后台刷新，单飞）
+ *
+ * <p>病区列表页面每次打开都同步查询HIS会让页面加载时间取决于HIS延迟，交接班时多人同时打开同一病区
+ * 还会产生多次相同的HIS查询和比对写入。本服务按科室记录最近一次成功同步时间：</p>
+ * <ul>
+ *   <li>在新鲜度窗口内直接返回主服务器中的在院病人</li>
+ *   <li>超出窗口时立即返回现有列表，同时在后台发起一次HIS刷新；同一科室最多只有一个刷新在进行，
+ *       并发请求加入正在进行的刷新，不再重复查询HIS</li>
+ *   <li>刷新失败后同样按新鲜度窗口退避，HIS不可用时不会每次请求都重试</li>
+ *   <li>本进程尚未同步过该科室且主服务器中没有病人时，等待首次刷新完成（有超时），避免返回空列表</li>
+ * </ul>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Service
+@Slf4j
+public class DepartmentPatientListService {
+
+    private final PatientSyncService patientSyncService;
+    private final PatientRepository patientRepository;
+    private final long freshnessMillis;
+    private final long firstSyncTimeoutMillis;
+    private final LongSupplier clock;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, DepartmentState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong freshReads = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+    private final AtomicLong refreshesStarted = new AtomicLong();
+    private final AtomicLong refreshesJoined = new AtomicLong();
+    private final AtomicLong refreshesFailed = new AtomicLong();
+
+    @Autowired
+    public DepartmentPatientListService(
+            PatientSyncService patientSyncService,
+            PatientRepository patientRepository,
+            @Value("${hospital.patient-list.freshness-seconds:120}") long freshnessSeconds,
+            @Value("${hospital.patient-list.first-sync-timeout-ms:15000}") long firstSyncTimeoutMillis) {
+        this(patientSyncService, patientRepository, freshnessSeconds, firstSyncTimeoutMillis,
+            System::currentTimeMillis);
+    }
+
+    DepartmentPatientListService(PatientSyncService patientSyncService, PatientRepository patientRepository,
+                                 long freshnessSeconds, long firstSyncTimeoutMillis, LongSupplier clock) {
+        this.patientSyncService = patientSyncService;
+        this.patientRepository = patientRepository;
+        this.freshnessMillis = Math.max(0, freshnessSeconds) * 1000;
+        this.firstSyncTimeoutMillis = Math.max(0, firstSyncTimeoutMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * 获取科室在院病人列表
+     *
+     * @param hospitalId 医院ID
+     * @param department 科室名称
+     * @param refresh    列表过期时是否从HIS刷新
+     * @return 病人列表及新鲜度信息
+     */
+    public DepartmentPatientList getPatients(String hospitalId, String department, boolean refresh) {
+        DepartmentState state = states.computeIfAbsent(hospitalId + "|" + department, k -> new DepartmentState());
+        // 新鲜度按本次请求开始时的同步时间判断，后台刷新可能在返回前就已完成
+        long syncedAt = state.lastSyncedAt;
+        CompletableFuture<PatientSyncResult> refreshing = null;
+        if (refresh && isDue(state)) {
+            refreshing = refresh(hospitalId, department, state);
+        }
+        if (refreshing != null) {
+            staleReads.incrementAndGet();
+        } else {
+            freshReads.incrementAndGet();
+        }
+
+        List<Patient> patients = patientRepository.findByDepartmentAndIsInHospital(department, true);
+        if (patients.isEmpty() && refreshing != null && syncedAt == 0) {
+            awaitFirstSync(department, refreshing);
+            patients = patientRepository.findByDepartmentAndIsInHospital(department, true);
+            syncedAt = state.lastSyncedAt;
+        }
+        return snapshot(patients, state, syncedAt);
+    }
+
+    /**
+     * 距上次成功同步或失败尝试超过新鲜度窗口时需要刷新
+     */
+    private boolean isDue(DepartmentState state) {
+        long last = Math.max(state.lastSyncedAt, state.lastFailedAt);
+        return last == 0 || clock.getAsLong() - last >= freshnessMillis;
+    }
+
+    /**
+     * 发起或加入该科室的后台刷新
+     *
+     * @return 进行中的刷新；抢到刷新槽时另一次刷新已经完成、列表不再过期时返回null
+     */
+    private CompletableFuture<PatientSyncResult> refresh(String hospitalId, String department, DepartmentState state) {
+        CompletableFuture<PatientSyncResult> created = new CompletableFuture<>();
+        CompletableFuture<PatientSyncResult> existing = state.inFlight.compareAndExchange(null, created);
+        if (existing != null) {
+            refreshesJoined.incrementAndGet();
+            return existing;
+        }
+        // 判断过期后、抢到刷新槽前可能刚有一次刷新完成，抢到后再确认一次，避免紧接着重复刷新
+        if (!isDue(state)) {
+            state.inFlight.compareAndSet(created, null);
+            created.complete(null);
+            return null;
+        }
+        refreshesStarted.incrementAndGet();
+        try {
+            refreshExecutor.execute(() -> runRefresh(hospitalId, department, state, created));
+        } catch (RejectedExecutionException e) {
+            state.inFlight.compareAndSet(created, null);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private void runRefresh(String hospitalId, String department, DepartmentState state,
+                            CompletableFuture<PatientSyncResult> future) {
+        PatientSyncResult result = null;
+        RuntimeException failure = null;
+        try {
+            result = patientSyncService.syncPatients(hospitalId, department);
+            if (result != null && result.isSuccess()) {
+                state.lastSyncedAt = clock.getAsLong();
+                state.lastRefreshFailed = false;
+                log.info("科室 {} 病人数据后台同步完成: 新增={}, 更新={}, 出院={}",
+                    department, result.getAddedCount(), result.getUpdatedCount(), result.getDischargedCount());
+            } else {
+                markFailed(state, department, result != null ? result.getErrorMessage() : "同步结果为空");
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            markFailed(state, department, e.getMessage());
+        } finally {
+            // 先清除进行中标记再完成，之后到达的请求按新的同步时间判断是否需要刷新
+            state.inFlight.compareAndSet(future, null);
+        }
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    private void markFailed(DepartmentState state, String department, String reason) {
+        refreshesFailed.incrementAndGet();
+        state.lastFailedAt = clock.getAsLong();
+        state.lastRefreshFailed = true;
+        log.error("科室 {} 病人数据后台同步失败，继续返回现有数据: {}", department, reason);
+    }
+
+    private void awaitFirstSync(String department, CompletableFuture<PatientSyncResult> refreshing) {
+        try {
+            refreshing.get(firstSyncTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("科室 {} 首次同步超过 {}ms 未完成，先返回现有数据", department, firstSyncTimeoutMillis);
+        } catch (ExecutionException e) {
+            log.warn("科室 {} 首次同步失败: {}", department, e.getCause() != null ? e.getCause().getMessage() : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DepartmentPatientList snapshot(List<Patient> patients, DepartmentState state, long syncedAt) {
+        DepartmentPatientList list = new DepartmentPatientList();
+        list.setPatients(patients);
+        list.setSyncedAt(syncedAt == 0 ? null : new Date(syncedAt));
+        list.setAgeSeconds(syncedAt == 0 ? -1 : (clock.getAsLong() - syncedAt) / 1000);
+        list.setStale(syncedAt == 0 || clock.getAsLong() - syncedAt >= freshnessMillis);
+        list.setRefreshing(state.inFlight.get() != null);
+        list.setLastRefreshFailed(state.lastRefreshFailed);
+        return list;
+    }
+
+    /**
+     * 读取统计快照
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("freshnessSeconds", freshnessMillis / 1000);
+        map.put("departments", states.size());
+        map.put("freshReads", freshReads.get());
+        map.put("staleReads", staleReads.get());
+        map.put("refreshesStarted", refreshesStarted.get());
+        map.put("refreshesJoined", refreshesJoined.get());
+        map.put("refreshesFailed", refreshesFailed.get());
+        return map;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 单个科室的同步状态
+     */
+    private static final class DepartmentState {
+        private volatile long lastSyncedAt;
+        private volatile long lastFailedAt;
+        private volatile boolean lastRefreshFailed;
+        private final AtomicReference<CompletableFuture<PatientSyncResult>> inFlight = new AtomicReference<>();
+    }
+}
@@ -1,20 +1,30 @@
 package com.example.medaiassistant.hospital.service;
 
 import com.example.medaiassistant.hospital.model.HospitalConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Component;
 
-import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 动态JdbcTemplate工厂
  * 负责根据医院配置动态创建和管理JdbcTemplate实例
  * 支持HIS和LIS数据库连接
+ *
+ * <p>每个医院的每种数据库对应一个有界的HikariCP连接池（最大连接数、连接验证、空闲回收、泄漏检测），
+ * 连接池参数取自医院配置的pool节点，未配置的项使用默认值。医院配置被删除或连接参数变更时，
+ * 旧连接池在配置变更通知或下一次获取时关闭；应用关闭时关闭全部连接池。</p>
  */
 @Component
 public class DynamicJdbcTemplateFactory {
@@ -27,23 +37,32 @@ public class DynamicJdbcTemplateFactory {
     private static final String ORACLE_DRIVER_CLASS = "oracle.jdbc.OracleDriver";
     
     /**
-     * JdbcTemplate缓存
-     * key: 缓存键（hospitalId + ":" + databaseType）
-     * value: JdbcTemplate实例
+     * 连接池默认参数
+     */
+    static final int DEFAULT_MAX_CONNECTIONS = 5;
+    static final int DEFAULT_MIN_IDLE = 0;
+    static final long DEFAULT_CONNECTION_TIMEOUT = 30000L;
+    static final long DEFAULT_IDLE_TIMEOUT = 300000L;
+    static final long DEFAULT_MAX_LIFETIME = 1800000L;
+    /**
+     * 泄漏检测阈值须大于最长的查询超时（科室批量提取每块查询默认300秒），否则长查询会被误报为连接泄漏
      */
-    private final Map<String, JdbcTemplate> jdbcTemplateCache = new ConcurrentHashMap<>();
+    static final long DEFAULT_LEAK_DETECTION_THRESHOLD = 600000L;
+    static final long VALIDATION_TIMEOUT = 5000L;
     
     /**
-     * 数据源缓存
+     * 连接池缓存
      * key: 缓存键（hospitalId + ":" + databaseType）
-     * value: DataSource实例
+     * value: 连接池及其JdbcTemplate
      */
-    private final Map<String, DataSource> dataSourceCache = new ConcurrentHashMap<>();
+    private final Map<String, PooledTemplate> poolCache = new ConcurrentHashMap<>();
     
     private final HospitalConfigService hospitalConfigService;
     
     public DynamicJdbcTemplateFactory(HospitalConfigService hospitalConfigService) {
         this.hospitalConfigService = hospitalConfigService;
+        // 医院配置文件变更后关闭已删除或连接参数已变更的连接池
+        hospitalConfigService.addConfigChangeListener(this::evictStalePools);
     }
     
     /**
@@ -58,48 +77,60 @@ public class DynamicJdbcTemplateFactory {
     public JdbcTemplate getJdbcTemplate(String hospitalId, String databaseType) {
         String cacheKey = buildCacheKey(hospitalId, databaseType);
         
+        ConnectionSettings settings;
+        try {
+            settings = resolveSettings(hospitalId, databaseType);
+        } catch (IllegalArgumentException e) {
+            // 配置已删除或失效，关闭残留的连接池
+            closePool(cacheKey);
+            throw e;
+        }
+        
         // 检查缓存
-        JdbcTemplate cachedTemplate = jdbcTemplateCache.get(cacheKey);
-        if (cachedTemplate != null) {
+        PooledTemplate cached = poolCache.get(cacheKey);
+        if (cached != null && cached.settings.equals(settings)) {
             log.debug("从缓存获取JdbcTemplate: {}", cacheKey);
-            return cachedTemplate;
+            return cached.jdbcTemplate;
         }
         
-        // 创建新的JdbcTemplate
-        log.info("创建新的JdbcTemplate: {}", cacheKey);
-        JdbcTemplate jdbcTemplate = createJdbcTemplate(hospitalId, databaseType);
-        
-        // 放入缓存
-        jdbcTemplateCache.put(cacheKey, jdbcTemplate);
+        // 创建新的连接池，连接参数变更时替换旧连接池
+        PooledTemplate[] replaced = new PooledTemplate[1];
+        PooledTemplate pooled = poolCache.compute(cacheKey, (key, existing) -> {
+            if (existing != null && existing.settings.equals(settings)) {
+                return existing;
+            }
+            replaced[0] = existing;
+            log.info("创建新的JdbcTemplate: {}", key);
+            return createPooledTemplate(key, hospitalId, databaseType, settings);
+        });
         
-        return jdbcTemplate;
+        if (replaced[0] != null) {
+            log.info("医院数据库连接配置已变更，关闭旧连接池: {}", cacheKey);
+            replaced[0].close();
+        }
+        return pooled.jdbcTemplate;
     }
     
     /**
-     * 创建JdbcTemplate实例
+     * 创建连接池和JdbcTemplate实例
      */
-    private JdbcTemplate createJdbcTemplate(String hospitalId, String databaseType) {
-        DataSource dataSource = createDataSource(hospitalId, databaseType);
+    private PooledTemplate createPooledTemplate(String cacheKey, String hospitalId, String databaseType,
+                                                ConnectionSettings settings) {
+        HikariDataSource dataSource = createDataSource(cacheKey, settings);
         JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
         
         // 配置JdbcTemplate
         configureJdbcTemplate(jdbcTemplate);
         
-        return jdbcTemplate;
+        return new PooledTemplate(hospitalId, databaseType, settings, dataSource, jdbcTemplate);
     }
     
     /**
-     * 创建数据源
+     * 解析医院数据库连接参数
+     * 
+     * @throws IllegalArgumentException 如果医院配置不存在或无效
      */
-    private DataSource createDataSource(String hospitalId, String databaseType) {
-        String cacheKey = buildCacheKey(hospitalId, databaseType);
-        
-        // 检查数据源缓存
-        DataSource cachedDataSource = dataSourceCache.get(cacheKey);
-        if (cachedDataSource != null) {
-            return cachedDataSource;
-        }
-        
+    private ConnectionSettings resolveSettings(String hospitalId, String databaseType) {
         // 获取医院配置
         HospitalConfig config = hospitalConfigService.getConfig(hospitalId);
         if (config == null) {
@@ -118,6 +149,7 @@ public class DynamicJdbcTemplateFactory {
         String url;
         String username;
         String password;
+        HospitalConfig.PoolConfig poolConfig;
         
         if ("his".equalsIgnoreCase(databaseType)) {
             if (hisConfig == null) {
@@ -126,6 +158,7 @@ public class DynamicJdbcTemplateFactory {
             url = hisConfig.getUrl();
             username = hisConfig.getUsername();
             password = hisConfig.getPassword();
+            poolConfig = hisConfig.getPool();
         } else if ("lis".equalsIgnoreCase(databaseType)) {
             if (lisConfig == null) {
                 throw new IllegalArgumentException("医院 " + hospitalId + " 未配置LIS数据库");
@@ -133,6 +166,7 @@ public class DynamicJdbcTemplateFactory {
             url = lisConfig.getUrl();
             username = lisConfig.getUsername();
             password = lisConfig.getPassword();
+            poolConfig = lisConfig.getPool();
         } else {
             throw new IllegalArgumentException("不支持的数据库类型: " + databaseType + "，支持的类型: his, lis");
         }
@@ -148,34 +182,60 @@ public class DynamicJdbcTemplateFactory {
             throw new IllegalArgumentException("数据库密码不能为空");
         }
         
-        // 创建数据源
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(ORACLE_DRIVER_CLASS);
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
+        return new ConnectionSettings(url, username, password,
+                poolConfig != null ? poolConfig : new HospitalConfig.PoolConfig());
+    }
+    
+    /**
+     * 创建连接池数据源
+     */
+    private HikariDataSource createDataSource(String cacheKey, ConnectionSettings settings) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("hospital-" + cacheKey.replace(':', '-'));
+        // Oracle保持显式指定驱动，其他数据库（如测试用的H2）由DriverManager按URL自动识别
+        if (settings.url.startsWith("jdbc:oracle:")) {
+            hikariConfig.setDriverClassName(ORACLE_DRIVER_CLASS);
+        }
+        hikariConfig.setJdbcUrl(settings.url);
+        hikariConfig.setUsername(settings.username);
+        hikariConfig.setPassword(settings.password);
         
         // 配置连接池属性
-        configureDataSource(dataSource);
-        
-        // 放入缓存
-        dataSourceCache.put(cacheKey, dataSource);
+        configureDataSource(hikariConfig, settings.pool);
         
-        log.info("创建数据源成功: {} - {}", cacheKey, url);
+        HikariDataSource dataSource = new HikariDataSource(hikariConfig);
+        log.info("创建数据源成功: {} - {}，最大连接数: {}", cacheKey, settings.url, hikariConfig.getMaximumPoolSize());
         return dataSource;
     }
     
     /**
      * 配置数据源连接池属性
      */
-    private void configureDataSource(DriverManagerDataSource dataSource) {
-        // 设置连接池属性
-        // 注意：DriverManagerDataSource是简单的数据源实现，不支持连接池
-        // 如果需要连接池功能，可以考虑使用HikariCP或其他连接池
-        // 这里使用简单实现，适合轻量级使用场景
+    private void configureDataSource(HikariConfig hikariConfig, HospitalConfig.PoolConfig pool) {
+        int maxConnections = pool.getMaxConnections() != null && pool.getMaxConnections() > 0
+                ? pool.getMaxConnections() : DEFAULT_MAX_CONNECTIONS;
+        int minIdle = pool.getMinIdle() != null ? Math.min(Math.max(0, pool.getMinIdle()), maxConnections)
+                : DEFAULT_MIN_IDLE;
+        hikariConfig.setMaximumPoolSize(maxConnections);
+        hikariConfig.setMinimumIdle(minIdle);
+        hikariConfig.setConnectionTimeout(valueOrDefault(pool.getConnectionTimeout(), DEFAULT_CONNECTION_TIMEOUT));
+        hikariConfig.setIdleTimeout(valueOrDefault(pool.getIdleTimeout(), DEFAULT_IDLE_TIMEOUT));
+        hikariConfig.setMaxLifetime(valueOrDefault(pool.getMaxLifetime(), DEFAULT_MAX_LIFETIME));
+        hikariConfig.setLeakDetectionThreshold(
+                valueOrDefault(pool.getLeakDetectionThreshold(), DEFAULT_LEAK_DETECTION_THRESHOLD));
+        hikariConfig.setValidationTimeout(VALIDATION_TIMEOUT);
         
-        // 可以添加连接验证查询
-        // dataSource.setConnectionProperties("validationQuery=SELECT 1 FROM DUAL");
+        // 未配置验证SQL时使用JDBC4的Connection.isValid验证连接
+        if (pool.getValidationQuery() != null && !pool.getValidationQuery().trim().isEmpty()) {
+            hikariConfig.setConnectionTestQuery(pool.getValidationQuery());
+        }
+        
+        // 启动时不建立连接，与原先按需连接的行为保持一致，医院数据库不可达时不影响应用启动
+        hikariConfig.setInitializationFailTimeout(-1);
+    }
+    
+    private static long valueOrDefault(Long value, long defaultValue) {
+        return value != null ? value : defaultValue;
     }
     
     /**
@@ -215,7 +275,7 @@ public class DynamicJdbcTemplateFactory {
     }
     
     /**
-     * 清除缓存
+     * 清除缓存，并关闭对应的连接池
      * 
      * @param hospitalId 医院ID（可选，如果为null则清除所有缓存）
      * @param databaseType 数据库类型（可选）
@@ -223,39 +283,120 @@ public class DynamicJdbcTemplateFactory {
     public void clearCache(String hospitalId, String databaseType) {
         if (hospitalId == null) {
             // 清除所有缓存
-            jdbcTemplateCache.clear();
-            dataSourceCache.clear();
+            closeAllPools();
             log.info("清除所有JdbcTemplate缓存");
         } else if (databaseType == null) {
             // 清除指定医院的所有缓存
-            String hisKey = buildCacheKey(hospitalId, "his");
-            String lisKey = buildCacheKey(hospitalId, "lis");
-            jdbcTemplateCache.remove(hisKey);
-            jdbcTemplateCache.remove(lisKey);
-            dataSourceCache.remove(hisKey);
-            dataSourceCache.remove(lisKey);
+            closePool(buildCacheKey(hospitalId, "his"));
+            closePool(buildCacheKey(hospitalId, "lis"));
             log.info("清除医院 {} 的所有JdbcTemplate缓存", hospitalId);
         } else {
             // 清除指定医院和数据库类型的缓存
             String cacheKey = buildCacheKey(hospitalId, databaseType);
-            jdbcTemplateCache.remove(cacheKey);
-            dataSourceCache.remove(cacheKey);
+            closePool(cacheKey);
             log.info("清除JdbcTemplate缓存: {}", cacheKey);
         }
     }
     
+    /**
+     * 关闭医院配置已删除或连接参数已变更的连接池
+     * 
+     * <p>由医院配置变更通知触发，也可手动调用。</p>
+     * 
+     * @return 关闭的连接池数量
+     */
+    public int evictStalePools() {
+        int evicted = 0;
+        for (Map.Entry<String, PooledTemplate> entry : poolCache.entrySet()) {
+            PooledTemplate pooled = entry.getValue();
+            boolean stale;
+            try {
+                stale = !pooled.settings.equals(resolveSettings(pooled.hospitalId, pooled.databaseType));
+            } catch (IllegalArgumentException e) {
+                stale = true;
+            }
+            if (stale && poolCache.remove(entry.getKey(), pooled)) {
+                log.info("医院数据库配置已删除或变更，关闭连接池: {}", entry.getKey());
+                pooled.close();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+    
+    /**
+     * 应用关闭时关闭所有连接池
+     */
+    @PreDestroy
+    public void shutdown() {
+        closeAllPools();
+        log.info("医院数据库连接池已全部关闭");
+    }
+    
+    private void closePool(String cacheKey) {
+        PooledTemplate pooled = poolCache.remove(cacheKey);
+        if (pooled != null) {
+            pooled.close();
+        }
+    }
+    
+    private void closeAllPools() {
+        for (String cacheKey : poolCache.keySet()) {
+            closePool(cacheKey);
+        }
+    }
+    
     /**
      * 获取缓存统计信息
      */
     public Map<String, Object> getCacheStats() {
         return Map.of(
-            "jdbcTemplateCacheSize", jdbcTemplateCache.size(),
-            "dataSourceCacheSize", dataSourceCache.size(),
-            "jdbcTemplateCacheKeys", jdbcTemplateCache.keySet(),
-            "dataSourceCacheKeys", dataSourceCache.keySet()
+            "jdbcTemplateCacheSize", poolCache.size(),
+            "dataSourceCacheSize", poolCache.size(),
+            "jdbcTemplateCacheKeys", poolCache.keySet(),
+            "dataSourceCacheKeys", poolCache.keySet(),
+            "pools", getPoolMetrics()
         );
     }
     
+    /**
+     * 获取各医院连接池指标
+     * 
+     * @return key为缓存键（hospitalId:databaseType），value为该连接池的连接数、等待线程数和配置
+     */
+    public Map<String, Object> getPoolMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        for (Map.Entry<String, PooledTemplate> entry : poolCache.entrySet()) {
+            HikariDataSource dataSource = entry.getValue().dataSource;
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("poolName", dataSource.getPoolName());
+            pool.put("jdbcUrl", dataSource.getJdbcUrl());
+            pool.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+            pool.put("minimumIdle", dataSource.getMinimumIdle());
+            HikariPoolMXBean poolMXBean = dataSource.getHikariPoolMXBean();
+            if (poolMXBean != null) {
+                pool.put("activeConnections", poolMXBean.getActiveConnections());
+                pool.put("idleConnections", poolMXBean.getIdleConnections());
+                pool.put("totalConnections", poolMXBean.getTotalConnections());
+                pool.put("threadsAwaitingConnection", poolMXBean.getThreadsAwaitingConnection());
+            }
+            pool.put("connectionTimeout", dataSource.getConnectionTimeout());
+            pool.put("idleTimeout", dataSource.getIdleTimeout());
+            pool.put("maxLifetime", dataSource.getMaxLifetime());
+            pool.put("leakDetectionThreshold", dataSource.getLeakDetectionThreshold());
+            metrics.put(entry.getKey(), pool);
+        }
+        return metrics;
+    }
+    
+    /**
+     * 获取当前连接池（用于测试和监控），未创建时返回null
+     */
+    HikariDataSource getPooledDataSource(String hospitalId, String databaseType) {
+        PooledTemplate pooled = poolCache.get(buildCacheKey(hospitalId, databaseType));
+        return pooled != null ? pooled.dataSource : null;
+    }
+    
     /**
      * 构建缓存键
      */
@@ -268,13 +409,68 @@ public class DynamicJdbcTemplateFactory {
      */
     public String getDataSourceUrl(String hospitalId, String databaseType) {
         try {
-            DataSource dataSource = createDataSource(hospitalId, databaseType);
-            if (dataSource instanceof DriverManagerDataSource) {
-                return ((DriverManagerDataSource) dataSource).getUrl();
-            }
-            return "未知数据源类型";
+            return resolveSettings(hospitalId, databaseType).url;
         } catch (Exception e) {
             return "获取数据源URL失败: " + e.getMessage();
         }
     }
+    
+    /**
+     * 创建连接池时使用的连接参数，用于判断医院配置是否变更
+     */
+    private static final class ConnectionSettings {
+        private final String url;
+        private final String username;
+        private final String password;
+        private final HospitalConfig.PoolConfig pool;
+        private final List<Object> signature;
+        
+        ConnectionSettings(String url, String username, String password, HospitalConfig.PoolConfig pool) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+            this.pool = pool;
+            this.signature = Arrays.asList(url, username, password, pool.getMaxConnections(), pool.getMinIdle(),
+                    pool.getConnectionTimeout(), pool.getIdleTimeout(), pool.getMaxLifetime(),
+                    pool.getLeakDetectionThreshold(), pool.getValidationQuery());
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ConnectionSettings && signature.equals(((ConnectionSettings) o).signature);
+        }
+        
+        @Override
+        public int hashCode() {
+            return signature.hashCode();
+        }
+    }
+    
+    /**
+     * 缓存的连接池及其JdbcTemplate
+     */
+    private static final class PooledTemplate {
+        private final String hospitalId;
+        private final String databaseType;
+        private final ConnectionSettings settings;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        
+        PooledTemplate(String hospitalId, String databaseType, ConnectionSettings settings,
+                       HikariDataSource dataSource, JdbcTemplate jdbcTemplate) {
+            this.hospitalId = hospitalId;
+            this.databaseType = databaseType;
+            this.settings = settings;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = jdbcTemplate;
+        }
+        
+        void close() {
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                log.warn("关闭连接池失败: {}", dataSource.getPoolName(), e);
+            }
+        }
+    }
 }
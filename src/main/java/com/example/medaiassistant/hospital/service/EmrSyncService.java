@@ -2,8 +2,10 @@ package com.example.medaiassistant.hospital.service;
 
 import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.dto.SqlStreamOptions;
 import com.example.medaiassistant.hospital.model.HospitalConfig;
 import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.util.DateConverter;
 import com.example.medaiassistant.hospital.util.PatientIdParser;
 import com.example.medaiassistant.model.EmrContent;
 import com.example.medaiassistant.model.Patient;
@@ -15,7 +17,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -26,7 +27,7 @@ import java.util.*;
  * <ul>
  *   <li>从Oracle HIS系统查询EMR病历内容数据</li>
  *   <li>字段映射与数据转换（含CLOB字段处理）</li>
- *   <li>基于SOURCE_TABLE + SOURCE_ID的重复记录检测与更新策略</li>
+ *   <li>基于SOURCE_TABLE + SOURCE_ID的重复记录检测与更新策略（批量写入，见{@link BulkUpsertWriter}）</li>
  *   <li>单个患者和批量患者导入</li>
  * </ul>
  * 
@@ -40,16 +41,34 @@ import java.util.*;
  */
 @Service
 @Slf4j
-public class EmrSyncService {
+public class EmrSyncService implements IncrementalSyncSource, PatientBatchSource {
     
     /** EMR病历内容源表名称常量 */
     private static final String SOURCE_TABLE_EMR = "emr.emr_content";
     
+    /** 增量同步检查点中的源表名称 */
+    static final String SOURCE_NAME = "EMR_CONTENT";
+    
+    /** 主服务器EMR病历内容表：按SOURCE_TABLE + SOURCE_ID判重，已存在的记录更新病历内容 */
+    static final BulkUpsertWriter.UpsertTable EMR_CONTENT_TABLE = BulkUpsertWriter.UpsertTable.builder("EMR_CONTENT")
+            .scope("PATIENT_ID")
+            .keys("SOURCE_TABLE", "SOURCE_ID")
+            .columns("SOURCE_TABLE", "SOURCE_ID", "PATIENT_ID", "PATI_ID", "VISIT_ID", "PATI_NAME", "DEPT_CODE",
+                    "DEPT_NAME", "DOC_TYPE_NAME", "CONTENT", "CREATEUSERID", "CREATEBY", "RECORD_DATE",
+                    "DOC_TITLE_TIME", "MODIFIEDON", "DELETEMARK")
+            .updateColumns("PATIENT_ID", "PATI_ID", "VISIT_ID", "PATI_NAME", "DEPT_CODE", "DEPT_NAME",
+                    "DOC_TYPE_NAME", "CONTENT", "CREATEUSERID", "CREATEBY", "RECORD_DATE", "DOC_TITLE_TIME",
+                    "MODIFIEDON", "DELETEMARK")
+            .lobColumns("CONTENT")
+            .build();
+    
     private final SqlExecutionService sqlExecutionService;
     private final EmrContentRepository emrContentRepository;
     private final PatientRepository patientRepository;
     private final HospitalConfigService hospitalConfigService;
     private final TemplateHotUpdateService templateHotUpdateService;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final SyncBulkheads syncBulkheads;
     
     @Value("${emr.sync.template.path:sql/hospital-local/emr-content-query.json}")
     private String templateFilePath;
@@ -57,6 +76,18 @@ public class EmrSyncService {
     @Value("${emr.sync.default.hospital:Local}")
     private String defaultHospitalId;
     
+    /**
+     * 逐患者拉取EMR的内存上限（估算字节数），0表示不限制
+     */
+    @Value("${hospital.sync.emr.max-fetch-bytes:67108864}")
+    private long maxFetchBytes;
+    
+    /**
+     * 逐患者拉取EMR的JDBC fetchSize，0使用数据源默认值
+     */
+    @Value("${hospital.sync.emr.fetch-size:20}")
+    private int fetchSize;
+    
     /**
      * 构造函数 - 依赖注入
      * 
@@ -65,18 +96,24 @@ public class EmrSyncService {
      * @param patientRepository 患者数据访问层
      * @param hospitalConfigService 医院配置服务
      * @param templateHotUpdateService SQL模板热更新服务
+     * @param bulkUpsertWriter 主服务器批量写入组件
+     * @param syncBulkheads HIS读取/主库写入舱壁
      */
     public EmrSyncService(
             SqlExecutionService sqlExecutionService,
             EmrContentRepository emrContentRepository,
             PatientRepository patientRepository,
             HospitalConfigService hospitalConfigService,
-            TemplateHotUpdateService templateHotUpdateService) {
+            TemplateHotUpdateService templateHotUpdateService,
+            BulkUpsertWriter bulkUpsertWriter,
+            SyncBulkheads syncBulkheads) {
         this.sqlExecutionService = sqlExecutionService;
         this.emrContentRepository = emrContentRepository;
         this.patientRepository = patientRepository;
         this.hospitalConfigService = hospitalConfigService;
         this.templateHotUpdateService = templateHotUpdateService;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.syncBulkheads = syncBulkheads;
     }
     
     /**
@@ -123,7 +160,8 @@ public class EmrSyncService {
                 oraclePatiId, visitId, targetPatientId);
             
             // 4. 从Oracle HIS系统获取EMR病历内容
-            List<Map<String, Object>> oracleEmrContents = fetchOracleEmrContents(oraclePatiId, visitId);
+            List<Map<String, Object>> oracleEmrContents = syncBulkheads.readFromHis(
+                () -> fetchOracleEmrContents(oraclePatiId, visitId));
             log.info("从Oracle获取到 {} 条EMR病历记录", oracleEmrContents.size());
             
             if (oracleEmrContents.isEmpty()) {
@@ -132,7 +170,8 @@ public class EmrSyncService {
             }
             
             // 5. 插入到主服务器数据库
-            int importedCount = insertEmrContentToMainServer(oracleEmrContents, targetPatientId);
+            int importedCount = syncBulkheads.writeToMainDb(
+                () -> insertEmrContentToMainServer(oracleEmrContents, targetPatientId));
             
             log.info("EMR病历内容导入完成 - 成功导入 {} 条记录，总耗时: {}ms", 
                 importedCount, System.currentTimeMillis() - startTime);
@@ -148,6 +187,9 @@ public class EmrSyncService {
     /**
      * 从Oracle HIS系统获取EMR病历内容数据
      * 
+     * <p>病历含大文本，结果流式读取：已删除的记录读取时即丢弃，只保留有效记录；
+     * 读取量超过内存上限或达到最大行数时结果不完整，抛出异常，该病人本次导入失败，不导入部分记录。</p>
+     * 
      * @param patiId Oracle病人ID（PATI_ID）
      * @param visitId 住院次数（VISIT_ID）
      * @return EMR病历内容列表
@@ -181,6 +223,7 @@ public class EmrSyncService {
             // 创建SQL查询请求
             SqlQueryRequest request = new SqlQueryRequest();
             request.setSql(sql);
+            request.setRowMapper(template.getRowMapper());
             
             // 从模板中读取数据库类型，默认为 his
             String databaseType = template.getDatabaseType();
@@ -193,24 +236,30 @@ public class EmrSyncService {
             request.setMaxRows(2000);
             request.setTimeoutSeconds(60);
             
-            // 执行查询
-            SqlQueryResult queryResult = sqlExecutionService.executeQuery(hospitalId, request);
+            SqlStreamOptions options = new SqlStreamOptions();
+            options.setFetchSize(fetchSize > 0 ? fetchSize : null);
+            options.setMaxBytes(maxFetchBytes > 0 ? maxFetchBytes : null);
             
-            if (queryResult.isSuccess()) {
-                List<Map<String, Object>> data = queryResult.getData();
-                log.info("查询到的EMR病历数据量: {} 条记录", data.size());
-                
-                // 数据过滤：移除无效记录（已删除的记录）
-                List<Map<String, Object>> validData = new ArrayList<>();
-                for (Map<String, Object> record : data) {
-                    if (isValidEmrRecord(record)) {
-                        validData.add(record);
-                    }
+            // 流式执行查询，读取时过滤无效记录（已删除的记录）
+            List<Map<String, Object>> validData = new ArrayList<>();
+            SqlQueryResult queryResult = sqlExecutionService.streamQuery(hospitalId, request, options, record -> {
+                if (isValidEmrRecord(record)) {
+                    validData.add(record);
                 }
+                return true;
+            });
+            
+            if (queryResult.isSuccess()) {
+                log.info("查询到的EMR病历数据量: {} 条记录", queryResult.getRowCount());
                 
-                if (validData.size() < data.size()) {
+                if (validData.size() < queryResult.getRowCount()) {
                     log.warn("数据过滤: 共{}条记录，跳过{}条无效记录", 
-                        data.size(), data.size() - validData.size());
+                        queryResult.getRowCount(), queryResult.getRowCount() - validData.size());
+                }
+                if (queryResult.isTruncated()) {
+                    log.error("EMR病历查询结果被截断，不导入部分记录 - 病人ID: {}, 原因: {}",
+                        patiId, queryResult.getWarnings());
+                    throw new RuntimeException("EMR病历查询结果被截断: " + queryResult.getWarnings());
                 }
                 
                 return validData;
@@ -227,7 +276,8 @@ public class EmrSyncService {
     
     /**
      * 将EMR病历内容插入到主服务器数据库
-     * 逻辑：使用SOURCE_TABLE + SOURCE_ID组合判断重复，存在则更新，不存在则插入
+     * 逻辑：使用SOURCE_TABLE + SOURCE_ID组合判断重复，按患者一次预取已有记录，
+     * 不存在则插入，存在且内容有变化则更新，未变化的记录不写入
      * 
      * @param oracleResults Oracle查询结果列表
      * @param targetPatientId 目标患者ID
@@ -235,42 +285,19 @@ public class EmrSyncService {
      */
     @Transactional(transactionManager = "transactionManager")
     public int insertEmrContentToMainServer(List<Map<String, Object>> oracleResults, String targetPatientId) {
-        int processedCount = 0;
-        int insertedCount = 0;
-        int updatedCount = 0;
-        
         try {
+            List<Map<String, Object>> rows = new ArrayList<>(oracleResults.size());
             for (Map<String, Object> record : oracleResults) {
-                String sourceId = getStringValue(record, "SOURCE_ID");
-                
-                // 使用 SOURCE_TABLE + SOURCE_ID 组合判断重复
-                Optional<EmrContent> existingResult = 
-                    emrContentRepository.findBySourceTableAndSourceId(SOURCE_TABLE_EMR, sourceId);
-                
-                EmrContent emrContent;
-                if (existingResult.isPresent()) {
-                    // 存在则更新
-                    emrContent = existingResult.get();
-                    updateEmrContent(emrContent, record, targetPatientId);
-                    updatedCount++;
-                    log.debug("更新EMR记录 - SourceTable: {}, SourceID: {}", SOURCE_TABLE_EMR, sourceId);
-                } else {
-                    // 不存在则插入
-                    emrContent = convertToEmrContent(record, targetPatientId);
-                    emrContent.setSourceTable(SOURCE_TABLE_EMR);
-                    emrContent.setSourceId(sourceId);
-                    insertedCount++;
-                    log.debug("插入新EMR记录 - SourceTable: {}, SourceID: {}", SOURCE_TABLE_EMR, sourceId);
-                }
-                
-                emrContentRepository.save(emrContent);
-                processedCount++;
+                EmrContent emrContent = convertToEmrContent(record, targetPatientId);
+                emrContent.setSourceTable(SOURCE_TABLE_EMR);
+                rows.add(toColumnValues(emrContent));
             }
             
-            log.info("主服务器数据库操作完成 - 新增: {} 条, 更新: {} 条", 
-                insertedCount, updatedCount);
+            BulkUpsertWriter.UpsertResult result = bulkUpsertWriter.upsert(EMR_CONTENT_TABLE, targetPatientId, rows);
             
-            return processedCount;
+            log.info("主服务器数据库操作完成 - {}", result);
+            
+            return result.getProcessed();
             
         } catch (Exception e) {
             log.error("插入主服务器数据库失败", e);
@@ -322,28 +349,109 @@ public class EmrSyncService {
         return result;
     }
     
+    @Override
+    public String getSourceName() {
+        return SOURCE_NAME;
+    }
+    
     /**
-     * 更新现有EMR病历内容记录
+     * 增量查询模板路径: sql/{hospitalId小写}/emr-content-incremental.json
+     */
+    @Override
+    public String getIncrementalTemplatePath(String hospitalId) {
+        String effectiveHospitalId = hospitalId == null || hospitalId.trim().isEmpty() ? "hospital-local" : hospitalId;
+        return String.format("sql/%s/emr-content-incremental.json", effectiveHospitalId.toLowerCase());
+    }
+    
+    /**
+     * 科室批量提取模板路径: sql/{hospitalId小写}/emr-content-batch.json
+     */
+    @Override
+    public String getBatchTemplatePath(String hospitalId) {
+        String effectiveHospitalId = hospitalId == null || hospitalId.trim().isEmpty() ? "hospital-local" : hospitalId;
+        return String.format("sql/%s/emr-content-batch.json", effectiveHospitalId.toLowerCase());
+    }
+    
+    @Override
+    public String toHisPatientId(String mainServerPatientId) {
+        return PatientIdParser.parsePatiId(mainServerPatientId);
+    }
+    
+    @Override
+    public String toHisVisitId(String mainServerPatientId) {
+        return PatientIdParser.parseVisitIdAsString(mainServerPatientId);
+    }
+    
+    /**
+     * 导入科室批量提取中属于该病人的EMR病历，有效记录过滤与逐患者导入一致
+     */
+    @Override
+    public int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords) {
+        try {
+            List<Map<String, Object>> validRecords = new ArrayList<>(hisRecords.size());
+            for (Map<String, Object> record : hisRecords) {
+                if (isValidEmrRecord(record)) {
+                    validRecords.add(record);
+                }
+            }
+            if (validRecords.isEmpty()) {
+                return 0;
+            }
+            
+            String targetPatientId = parseTargetPatientId(mainServerPatientId);
+            return syncBulkheads.writeToMainDb(
+                () -> insertEmrContentToMainServer(validRecords, targetPatientId));
+            
+        } catch (Exception e) {
+            log.error("EMR病历内容批量导入失败 - 主服务器病人ID: {}", mainServerPatientId, e);
+            return -1;
+        }
+    }
+    
+    @Override
+    public BulkUpsertWriter.UpsertTable getTargetTable() {
+        return EMR_CONTENT_TABLE;
+    }
+    
+    /**
+     * 将增量查询结果转换为EMR_CONTENT列值，删除标记不为0的记录跳过（与逐患者导入一致）
+     */
+    @Override
+    public Map<String, Object> toTargetRow(Map<String, Object> hisRecord) {
+        String mainServerPatientId = getStringValue(hisRecord, PATIENT_ID_COLUMN);
+        if (mainServerPatientId.isEmpty() || !isValidEmrRecord(hisRecord)) {
+            return null;
+        }
+        EmrContent emrContent = convertToEmrContent(hisRecord, parseTargetPatientId(mainServerPatientId));
+        emrContent.setSourceTable(SOURCE_TABLE_EMR);
+        return toColumnValues(emrContent);
+    }
+    
+    /**
+     * 将EmrContent实体转换为主服务器EMR_CONTENT表的列值
      * 
-     * @param existing 现有记录
-     * @param oracleData Oracle源数据
-     * @param targetPatientId 目标患者ID
+     * @param emrContent EMR病历内容实体
+     * @return 列名到取值的映射
      */
-    private void updateEmrContent(EmrContent existing, Map<String, Object> oracleData, String targetPatientId) {
-        existing.setPatientId(targetPatientId);
-        existing.setPatiId(getStringValue(oracleData, "PATI_ID"));
-        existing.setVisitId(getIntegerValue(oracleData, "VISIT_ID"));
-        existing.setPatiName(getStringValue(oracleData, "PATI_NAME"));
-        existing.setDeptCode(getStringValue(oracleData, "DEPT_CODE"));
-        existing.setDeptName(getStringValue(oracleData, "DEPT_NAME"));
-        existing.setDocTypeName(getStringValue(oracleData, "DOC_TYPE_NAME"));
-        existing.setContent(getStringValue(oracleData, "CONTENT"));
-        existing.setCreateUserId(getStringValue(oracleData, "CREATEUSERID"));
-        existing.setCreateBy(getStringValue(oracleData, "CREATEBY"));
-        existing.setRecordDate(convertToTimestamp(oracleData.get("RECORD_DATE")));
-        existing.setDocTitleTime(convertToTimestamp(oracleData.get("DOC_TITLE_TIME")));
-        existing.setModifiedOn(convertToTimestamp(oracleData.get("MODIFIEDON")));
-        existing.setDeleteMark(getIntegerValue(oracleData, "DELETEMARK"));
+    private Map<String, Object> toColumnValues(EmrContent emrContent) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("SOURCE_TABLE", emrContent.getSourceTable());
+        row.put("SOURCE_ID", emrContent.getSourceId());
+        row.put("PATIENT_ID", emrContent.getPatientId());
+        row.put("PATI_ID", emrContent.getPatiId());
+        row.put("VISIT_ID", emrContent.getVisitId());
+        row.put("PATI_NAME", emrContent.getPatiName());
+        row.put("DEPT_CODE", emrContent.getDeptCode());
+        row.put("DEPT_NAME", emrContent.getDeptName());
+        row.put("DOC_TYPE_NAME", emrContent.getDocTypeName());
+        row.put("CONTENT", emrContent.getContent());
+        row.put("CREATEUSERID", emrContent.getCreateUserId());
+        row.put("CREATEBY", emrContent.getCreateBy());
+        row.put("RECORD_DATE", emrContent.getRecordDate());
+        row.put("DOC_TITLE_TIME", emrContent.getDocTitleTime());
+        row.put("MODIFIEDON", emrContent.getModifiedOn());
+        row.put("DELETEMARK", emrContent.getDeleteMark());
+        return row;
     }
     
     /**
@@ -523,20 +631,10 @@ public class EmrSyncService {
                     return null;
                 }
                 
-                SimpleDateFormat[] formats = {
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy/MM/dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy-MM-dd"),
-                    new SimpleDateFormat("yyyy/MM/dd")
-                };
-                
-                for (SimpleDateFormat format : formats) {
-                    try {
-                        Date date = format.parse(strValue);
-                        return new Timestamp(date.getTime());
-                    } catch (Exception e) {
-                        continue;
-                    }
+                // 按常用日期格式依次解析（共享线程安全的DateTimeFormatter）
+                Timestamp timestamp = DateConverter.parseTimestamp(strValue);
+                if (timestamp != null) {
+                    return timestamp;
                 }
                 
                 log.warn("日期时间格式无法解析: {}", strValue);
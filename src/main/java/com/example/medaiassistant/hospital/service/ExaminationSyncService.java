@@ -5,6 +5,7 @@ import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
 import com.example.medaiassistant.hospital.model.HospitalConfig;
 import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.util.DateConverter;
 import com.example.medaiassistant.model.ExaminationResult;
 import com.example.medaiassistant.model.Patient;
 import com.example.medaiassistant.repository.ExaminationResultRepository;
@@ -14,7 +15,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -25,7 +25,7 @@ import java.util.*;
  * <ul>
  *   <li>从Oracle HIS系统查询检查结果数据</li>
  *   <li>字段映射与数据转换（含CLOB字段处理）</li>
- *   <li>重复记录检测与更新策略（存在则更新，不存在则插入）</li>
+ *   <li>重复记录检测与更新策略（存在且有变化则更新，不存在则插入，见{@link BulkUpsertWriter}）</li>
  *   <li>单个患者和批量患者导入</li>
  * </ul>
  * 
@@ -50,7 +50,25 @@ import java.util.*;
  */
 @Service
 @Slf4j
-public class ExaminationSyncService {
+public class ExaminationSyncService implements IncrementalSyncSource, PatientBatchSource {
+    
+    /** 增量同步检查点中的源表名称 */
+    static final String SOURCE_NAME = "EXAMINATION_RESULTS";
+    
+    /**
+     * 主服务器检查结果表：按ExaminationID判重，已存在的记录只更新检查内容，保留分析标记
+     */
+    static final BulkUpsertWriter.UpsertTable EXAMINATION_RESULTS_TABLE =
+            BulkUpsertWriter.UpsertTable.builder("ExaminationResults")
+                    .scope("PatientID")
+                    .keys("ExaminationID")
+                    .columns("ExaminationID", "PatientID", "CheckName", "CheckType", "CheckDescription",
+                            "CheckConclusion", "CheckIssueTime", "CheckExecuteTime", "CheckReportTime",
+                            "UpdateDt", "IsAnalyzed")
+                    .updateColumns("PatientID", "CheckName", "CheckType", "CheckDescription", "CheckConclusion",
+                            "CheckIssueTime", "CheckExecuteTime", "CheckReportTime", "UpdateDt")
+                    .lobColumns("CheckDescription", "CheckConclusion")
+                    .build();
     
     private final SqlExecutionService sqlExecutionService;
     private final ExaminationResultRepository examinationResultRepository;
@@ -58,6 +76,8 @@ public class ExaminationSyncService {
     private final HospitalConfigService hospitalConfigService;
     private final TemplateHotUpdateService templateHotUpdateService;
     private final ExamSyncConfig examSyncConfig;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final SyncBulkheads syncBulkheads;
     
     /**
      * 构造函数 - 依赖注入
@@ -68,13 +88,17 @@ public class ExaminationSyncService {
             PatientRepository patientRepository,
             HospitalConfigService hospitalConfigService,
             TemplateHotUpdateService templateHotUpdateService,
-            ExamSyncConfig examSyncConfig) {
+            ExamSyncConfig examSyncConfig,
+            BulkUpsertWriter bulkUpsertWriter,
+            SyncBulkheads syncBulkheads) {
         this.sqlExecutionService = sqlExecutionService;
         this.examinationResultRepository = examinationResultRepository;
         this.patientRepository = patientRepository;
         this.hospitalConfigService = hospitalConfigService;
         this.templateHotUpdateService = templateHotUpdateService;
         this.examSyncConfig = examSyncConfig;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.syncBulkheads = syncBulkheads;
     }
     
     /**
@@ -168,7 +192,8 @@ public class ExaminationSyncService {
                 oraclePatientId, examResultPatientId);
             
             // 4. 从Oracle HIS系统获取检查结果
-            List<Map<String, Object>> oracleExamResults = fetchOracleExamResults(oraclePatientId);
+            List<Map<String, Object>> oracleExamResults = syncBulkheads.readFromHis(
+                () -> fetchOracleExamResults(oraclePatientId));
             log.info("从Oracle获取到 {} 条检查结果记录", oracleExamResults.size());
             
             if (oracleExamResults.isEmpty()) {
@@ -177,7 +202,8 @@ public class ExaminationSyncService {
             }
             
             // 5. 插入到主服务器数据库
-            int importedCount = insertExamResultsToMainServer(oracleExamResults, examResultPatientId);
+            int importedCount = syncBulkheads.writeToMainDb(
+                () -> insertExamResultsToMainServer(oracleExamResults, examResultPatientId));
             
             log.info("检查结果导入完成 - 成功导入 {} 条记录，总耗时: {}ms", 
                 importedCount, System.currentTimeMillis() - startTime);
@@ -221,6 +247,7 @@ public class ExaminationSyncService {
             // 创建SQL查询请求
             SqlQueryRequest request = new SqlQueryRequest();
             request.setSql(sql);
+            request.setRowMapper(template.getRowMapper());
             request.setDatabaseType("his");
             request.setParameters(Map.of("patientId", patientId));
             request.setMaxRows(2000);
@@ -260,44 +287,22 @@ public class ExaminationSyncService {
     
     /**
      * 将检查结果插入到主服务器数据库
-     * 逻辑：先查询是否存在，存在则更新，不存在则插入
+     * 逻辑：按患者一次预取已有记录，不存在则插入，存在且内容有变化则更新，未变化的记录不写入
      */
     @Transactional(transactionManager = "transactionManager")
     private int insertExamResultsToMainServer(List<Map<String, Object>> oracleResults, String targetPatientId) {
-        int processedCount = 0;
-        int insertedCount = 0;
-        int updatedCount = 0;
-        
         try {
+            List<Map<String, Object>> rows = new ArrayList<>(oracleResults.size());
             for (Map<String, Object> record : oracleResults) {
-                String examinationId = getStringValue(record, "EXAMINATION_ID");
-                
-                // 检查是否已存在
-                Optional<ExaminationResult> existingResult = 
-                    examinationResultRepository.findByExaminationId(examinationId);
-                
-                ExaminationResult examResult;
-                if (existingResult.isPresent()) {
-                    // 存在则更新
-                    examResult = existingResult.get();
-                    updateExaminationResult(examResult, record, targetPatientId);
-                    updatedCount++;
-                    log.debug("更新检查记录 - ExaminationID: {}", examinationId);
-                } else {
-                    // 不存在则插入
-                    examResult = convertToExaminationResult(record, targetPatientId);
-                    insertedCount++;
-                    log.debug("插入新检查记录 - ExaminationID: {}", examinationId);
-                }
-                
-                examinationResultRepository.save(examResult);
-                processedCount++;
+                rows.add(toColumnValues(convertToExaminationResult(record, targetPatientId)));
             }
             
-            log.info("主服务器数据库操作完成 - 新增: {} 条, 更新: {} 条", 
-                insertedCount, updatedCount);
+            BulkUpsertWriter.UpsertResult result =
+                bulkUpsertWriter.upsert(EXAMINATION_RESULTS_TABLE, targetPatientId, rows);
             
-            return processedCount;
+            log.info("主服务器数据库操作完成 - {}", result);
+            
+            return result.getProcessed();
             
         } catch (Exception e) {
             log.error("插入主服务器数据库失败", e);
@@ -347,19 +352,91 @@ public class ExaminationSyncService {
         return result;
     }
     
+    @Override
+    public String getSourceName() {
+        return SOURCE_NAME;
+    }
+    
+    @Override
+    public String getIncrementalTemplatePath(String hospitalId) {
+        return examSyncConfig.getIncrementalTemplateFilePath(hospitalId);
+    }
+    
+    @Override
+    public String getBatchTemplatePath(String hospitalId) {
+        return examSyncConfig.getBatchTemplateFilePath(hospitalId);
+    }
+    
+    @Override
+    public String toHisPatientId(String mainServerPatientId) {
+        return parseOraclePatientId(mainServerPatientId);
+    }
+    
     /**
-     * 更新现有检查结果记录
+     * 检查结果不按就诊区分（与逐患者查询一致，仅按患者ID查询）
      */
-    private void updateExaminationResult(ExaminationResult existing, Map<String, Object> oracleData, String targetPatientId) {
-        existing.setPatientId(targetPatientId);
-        existing.setCheckName(getStringValue(oracleData, "CHECK_NAME"));
-        existing.setCheckType(getStringValue(oracleData, "CHECK_TYPE"));
-        existing.setCheckDescription(getStringValue(oracleData, "CHECK_DESCRIPTION"));
-        existing.setCheckConclusion(getStringValue(oracleData, "CHECK_CONCLUSION"));
-        existing.setCheckIssueTime(convertToTimestamp(oracleData.get("CHECK_ISSUE_TIME")));
-        existing.setCheckExecuteTime(convertToTimestamp(oracleData.get("CHECK_EXECUTE_TIME")));
-        existing.setCheckReportTime(convertToTimestamp(oracleData.get("CHECK_REPORT_TIME")));
-        existing.setUpdateDt(convertToTimestamp(oracleData.get("UPDATE_DT")));
+    @Override
+    public String toHisVisitId(String mainServerPatientId) {
+        return null;
+    }
+    
+    /**
+     * 导入科室批量提取中属于该病人的检查结果，有效记录过滤与逐患者导入一致
+     */
+    @Override
+    public int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords) {
+        try {
+            List<Map<String, Object>> validRecords = new ArrayList<>(hisRecords.size());
+            for (Map<String, Object> record : hisRecords) {
+                if (isValidExamResultRecord(record)) {
+                    validRecords.add(record);
+                }
+            }
+            if (validRecords.isEmpty()) {
+                return 0;
+            }
+            
+            String examResultPatientId = parseExamResultPatientId(mainServerPatientId);
+            return syncBulkheads.writeToMainDb(
+                () -> insertExamResultsToMainServer(validRecords, examResultPatientId));
+            
+        } catch (Exception e) {
+            log.error("检查结果批量导入失败 - 主服务器病人ID: {}", mainServerPatientId, e);
+            return -1;
+        }
+    }
+    
+    @Override
+    public BulkUpsertWriter.UpsertTable getTargetTable() {
+        return EXAMINATION_RESULTS_TABLE;
+    }
+    
+    @Override
+    public Map<String, Object> toTargetRow(Map<String, Object> hisRecord) {
+        String mainServerPatientId = getStringValue(hisRecord, PATIENT_ID_COLUMN);
+        if (mainServerPatientId.isEmpty() || !isValidExamResultRecord(hisRecord)) {
+            return null;
+        }
+        return toColumnValues(convertToExaminationResult(hisRecord, parseExamResultPatientId(mainServerPatientId)));
+    }
+    
+    /**
+     * 将ExaminationResult实体转换为主服务器ExaminationResults表的列值
+     */
+    private Map<String, Object> toColumnValues(ExaminationResult result) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("ExaminationID", result.getExaminationId());
+        row.put("PatientID", result.getPatientId());
+        row.put("CheckName", result.getCheckName());
+        row.put("CheckType", result.getCheckType());
+        row.put("CheckDescription", result.getCheckDescription());
+        row.put("CheckConclusion", result.getCheckConclusion());
+        row.put("CheckIssueTime", result.getCheckIssueTime());
+        row.put("CheckExecuteTime", result.getCheckExecuteTime());
+        row.put("CheckReportTime", result.getCheckReportTime());
+        row.put("UpdateDt", result.getUpdateDt());
+        row.put("IsAnalyzed", result.getIsAnalyzed());
+        return row;
     }
     
     /**
@@ -456,20 +533,10 @@ public class ExaminationSyncService {
                 return new Timestamp(((Date) value).getTime());
             } else if (value instanceof String) {
                 String strValue = value.toString().trim();
-                SimpleDateFormat[] formats = {
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy/MM/dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy-MM-dd"),
-                    new SimpleDateFormat("yyyy/MM/dd")
-                };
-                
-                for (SimpleDateFormat format : formats) {
-                    try {
-                        Date date = format.parse(strValue);
-                        return new Timestamp(date.getTime());
-                    } catch (Exception e) {
-                        continue;
-                    }
+                // 按常用日期格式依次解析（共享线程安全的DateTimeFormatter）
+                Timestamp timestamp = DateConverter.parseTimestamp(strValue);
+                if (timestamp != null) {
+                    return timestamp;
                 }
                 
                 log.warn("日期时间格式无法解析: {}", strValue);
@@ -17,6 +17,7 @@ import java.io.InputStream;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 医院配置文件加载服务
@@ -39,6 +40,12 @@ public class HospitalConfigService {
      */
     private final Map<String, HospitalConfig> configCache = new ConcurrentHashMap<>();
     
+    /**
+     * 配置变更监听器
+     * 配置文件新增、修改、删除或全部重新加载后回调
+     */
+    private final List<Runnable> configChangeListeners = new CopyOnWriteArrayList<>();
+    
     /**
      * 文件监听服务
      */
@@ -221,6 +228,7 @@ public class HospitalConfigService {
         configCache.clear();
         loadAllConfigs();
         log.info("配置文件删除后重新加载，当前配置数量: {}", configCache.size());
+        notifyConfigChanged();
     }
     
     /**
@@ -232,6 +240,7 @@ public class HospitalConfigService {
             try {
                 loadConfig(configFile);
                 log.info("重新加载医院配置文件: {}", fileName);
+                notifyConfigChanged();
             } catch (Exception e) {
                 log.error("重新加载医院配置文件失败: {}", fileName, e);
             }
@@ -299,6 +308,31 @@ public class HospitalConfigService {
         configCache.clear();
         loadAllConfigs();
         log.info("重新加载所有医院配置文件，当前配置数量: {}", configCache.size());
+        notifyConfigChanged();
+    }
+    
+    /**
+     * 注册配置变更监听器
+     * 
+     * @param listener 配置文件新增、修改、删除或全部重新加载后执行的回调
+     */
+    public void addConfigChangeListener(Runnable listener) {
+        if (listener != null) {
+            configChangeListeners.add(listener);
+        }
+    }
+    
+    /**
+     * 通知配置变更监听器，单个监听器异常不影响其他监听器
+     */
+    private void notifyConfigChanged() {
+        for (Runnable listener : configChangeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("医院配置变更监听器执行失败", e);
+            }
+        }
     }
     
     /**
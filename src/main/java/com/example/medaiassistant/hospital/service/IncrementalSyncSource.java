@@ -0,0 +1,61 @@
+package com.example.medaiassistant.hospital.service;
+
+import java.util.Map;
+
+/**
+ * 增量同步源表
+ *
+ * <p>由各同步服务实现，描述一个HIS源表如何按水位增量拉取并写入主服务器。
+ * 增量查询模板（{@link #getIncrementalTemplatePath(String)}）须满足以下约定：</p>
+ * <ul>
+ *   <li>使用命名参数 {@code :watermark} 作为下界：{@code WHERE 修改时间列 > :watermark}，
+ *       参数定义的type为Date/Timestamp时按时间水位处理，为Long/Integer/Number时按ID水位处理，
+ *       defaultValue为首次同步和全量对账的起点</li>
+ *   <li>按水位列升序排序（{@code ORDER BY 修改时间列}），每页最多返回批次大小条</li>
+ *   <li>水位列以别名 {@link #WATERMARK_COLUMN} 返回，主服务器患者ID以别名 {@link #PATIENT_ID_COLUMN} 返回
+ *       （格式：990500000178405-1）</li>
+ *   <li>其余列与该源表逐患者查询模板的别名一致，以便复用字段转换逻辑</li>
+ * </ul>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ * @see DataSyncExecutor
+ */
+public interface IncrementalSyncSource {
+
+    /** 增量查询结果中的水位列别名 */
+    String WATERMARK_COLUMN = "SYNC_WATERMARK";
+
+    /** 增量查询结果中的主服务器患者ID列别名 */
+    String PATIENT_ID_COLUMN = "SYNC_PATIENT_ID";
+
+    /**
+     * 源表名称，作为检查点的键
+     *
+     * @return 源表名称，如LAB_RESULTS
+     */
+    String getSourceName();
+
+    /**
+     * 增量查询模板文件路径
+     *
+     * @param hospitalId 医院ID
+     * @return 模板文件路径，如 sql/{hospitalId小写}/lab-results-incremental.json
+     */
+    String getIncrementalTemplatePath(String hospitalId);
+
+    /**
+     * 主服务器目标表定义
+     *
+     * @return 目标表定义
+     */
+    BulkUpsertWriter.UpsertTable getTargetTable();
+
+    /**
+     * 将一行增量查询结果转换为目标表列值
+     *
+     * @param hisRecord 增量查询结果行
+     * @return 目标表列值，记录无效时返回null（跳过）
+     */
+    Map<String, Object> toTargetRow(Map<String, Object> hisRecord);
+}
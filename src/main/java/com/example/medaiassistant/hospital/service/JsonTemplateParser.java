@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
@@ -143,6 +144,24 @@ public class JsonTemplateParser {
             }
         }
         
+        // 验证结果列声明（时间格式在编译行映射器时使用）
+        if (template.getColumns() != null) {
+            for (SqlTemplate.Column column : template.getColumns()) {
+                if (column.getName() == null || column.getName().trim().isEmpty()) {
+                    log.warn("结果列缺少名称");
+                    return false;
+                }
+                if (column.getFormat() != null && !column.getFormat().isBlank()) {
+                    try {
+                        DateTimeFormatter.ofPattern(column.getFormat());
+                    } catch (IllegalArgumentException e) {
+                        log.warn("结果列{}的时间格式无效: {}", column.getName(), column.getFormat());
+                        return false;
+                    }
+                }
+            }
+        }
+        
         log.debug("模板验证通过: {}", template.getQueryName());
         return true;
     }
@@ -2,9 +2,9 @@ package com.example.medaiassistant.hospital.service;
 
 import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.util.DateConverter;
 import com.example.medaiassistant.model.LabResult;
 import com.example.medaiassistant.model.Patient;
-import com.example.medaiassistant.repository.LabResultRepository;
 import com.example.medaiassistant.repository.PatientRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,8 +23,8 @@ import java.util.*;
  * 根据文档中的流程：
  * 1. 从Oracle LIS系统查询原始数据
  * 2. 数据转换与处理（字段映射、数据类型转换、空值处理）
- * 3. 重复记录检查（基于PatientID、LabName、LabReportTime）
- * 4. 数据插入到MySQL服务器
+ * 3. 重复记录检查（基于PatientID、LabName、LabReportTime、LabResult，按患者一次预取已有记录在内存中比对）
+ * 4. 新记录以JDBC批量语句写入主服务器（见{@link BulkUpsertWriter}）
  * 
  * @author System
  * @version 1.0
@@ -32,13 +32,27 @@ import java.util.*;
  */
 @Service
 @Slf4j
-public class LabSyncService {
+public class LabSyncService implements IncrementalSyncSource, PatientBatchSource {
+    
+    /** 增量同步检查点中的源表名称 */
+    static final String SOURCE_NAME = "LAB_RESULTS";
+    
+    /**
+     * 主服务器检验结果表：按四字段判重，已存在的记录跳过，不做更新
+     */
+    static final BulkUpsertWriter.UpsertTable LAB_RESULTS_TABLE = BulkUpsertWriter.UpsertTable.builder("labresults")
+            .scope("PatientID")
+            .keys("PatientID", "LabName", "LabReportTime", "LabResult")
+            .columns("PatientID", "LabName", "LabType", "LabResult", "ReferenceRange", "Unit",
+                    "ABNORMAL_INDICATOR", "LabIssueTime", "LabReportTime", "IsAnalyzed")
+            .build();
     
     private final SqlExecutionService sqlExecutionService;
-    private final LabResultRepository labResultRepository;
     private final PatientRepository patientRepository;
     private final TemplateHotUpdateService templateHotUpdateService;
     private final HospitalConfigService hospitalConfigService;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final SyncBulkheads syncBulkheads;
     
     /**
      * 默认医院ID配置（仅作为回退值，优先使用HospitalConfigService获取的配置）
@@ -48,16 +62,18 @@ public class LabSyncService {
     
     public LabSyncService(
             SqlExecutionService sqlExecutionService,
-            LabResultRepository labResultRepository,
             PatientRepository patientRepository,
             HospitalConfigService hospitalConfigService,
             SyncLogService syncLogService,
-            TemplateHotUpdateService templateHotUpdateService) {
+            TemplateHotUpdateService templateHotUpdateService,
+            BulkUpsertWriter bulkUpsertWriter,
+            SyncBulkheads syncBulkheads) {
         this.sqlExecutionService = sqlExecutionService;
-        this.labResultRepository = labResultRepository;
         this.patientRepository = patientRepository;
         this.hospitalConfigService = hospitalConfigService;
         this.templateHotUpdateService = templateHotUpdateService;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.syncBulkheads = syncBulkheads;
     }
     
     /**
@@ -113,7 +129,8 @@ public class LabSyncService {
             log.info("解析就诊标识符 - visitId: {}", visitId);
             
             // 5. 从Oracle LIS系统获取检验结果
-            List<Map<String, Object>> oracleLabResults = fetchOracleLabResults(oraclePatientId, visitId, admissionDate);
+            List<Map<String, Object>> oracleLabResults = syncBulkheads.readFromHis(
+                () -> fetchOracleLabResults(oraclePatientId, visitId, admissionDate));
             log.info("从Oracle获取到 {} 条检验结果记录", oracleLabResults.size());
             
             if (oracleLabResults.isEmpty()) {
@@ -122,7 +139,8 @@ public class LabSyncService {
             }
             
             // 5. 插入到主服务器数据库
-            int importedCount = insertLabResultsToMainServer(oracleLabResults, labResultPatientId);
+            int importedCount = syncBulkheads.writeToMainDb(
+                () -> insertLabResultsToMainServer(oracleLabResults, labResultPatientId));
             
             log.info("LIS检验结果导入完成 - 成功导入 {} 条记录，总耗时: {}ms", 
                 importedCount, System.currentTimeMillis() - startTime);
@@ -187,6 +205,7 @@ public class LabSyncService {
             // 创建SQL查询请求
             SqlQueryRequest request = new SqlQueryRequest();
             request.setSql(sql);
+            request.setRowMapper(template.getRowMapper());
             request.setDatabaseType("his");
             request.setParameters(Map.of(
                 "patientId", patientId,
@@ -274,41 +293,24 @@ public class LabSyncService {
     
     /**
      * 将检验结果插入到主服务器数据库
-     * 逻辑：先检查重复，再插入
+     * 逻辑：按患者一次预取已有记录的四字段（PatientID, LabName, LabReportTime, LabResult），
+     * 跳过已存在的记录，新记录批量插入
      * 利用数据库自增主键，无需手动生成LabID
      */
     @Transactional(transactionManager = "transactionManager")
     private int insertLabResultsToMainServer(List<Map<String, Object>> oracleResults, String targetPatientId) {
-        int insertedCount = 0;
-        int skippedCount = 0;
-        
         try {
-            for (int i = 0; i < oracleResults.size(); i++) {
-                Map<String, Object> record = oracleResults.get(i);
-                
-                // 第一步：检查四字段重复记录（PatientID, LabName, LabReportTime, LabResult）
-                if (isLabResultExists(record, targetPatientId)) {
-                    skippedCount++;
-                    log.debug("跳过重复记录 - 索引: {}, PatientID: {}", i, targetPatientId);
-                    continue;
-                }
-                
-                // 第二步：转换数据并插入新记录（不设置LabID，让数据库自动生成）
-                LabResult labResult = convertToLabResult(record, targetPatientId);
-                
-                log.debug("准备插入新记录 - PatientID: {}, LabName: {}", 
-                    targetPatientId, labResult.getLabName());
-                
-                labResultRepository.save(labResult);
-                insertedCount++;
-                
-                log.debug("插入成功 - ID由数据库自动生成: {}", labResult.getId());
+            List<Map<String, Object>> rows = new ArrayList<>(oracleResults.size());
+            for (Map<String, Object> record : oracleResults) {
+                rows.add(toColumnValues(convertToLabResult(record, targetPatientId)));
             }
             
+            BulkUpsertWriter.UpsertResult result = bulkUpsertWriter.upsert(LAB_RESULTS_TABLE, targetPatientId, rows);
+            
             log.info("主服务器数据库操作完成 - 新增: {} 条, 跳过重复: {} 条", 
-                insertedCount, skippedCount);
+                result.getInserted(), result.getUnchanged());
             
-            return insertedCount;
+            return result.getInserted();
             
         } catch (Exception e) {
             log.error("插入主服务器数据库失败", e);
@@ -316,38 +318,98 @@ public class LabSyncService {
         }
     }
     
+    @Override
+    public String getSourceName() {
+        return SOURCE_NAME;
+    }
+    
     /**
-     * 检查检验结果记录是否已存在
-     * 根据文档中的IsMySqlLabRecordExists函数实现
-     * 检查条件：PatientID、LabName、LabReportTime、LabResult
-     * 
-     * LabResult字段已改为VARCHAR类型，可直接使用四字段索引查询
+     * 增量查询模板路径: sql/{hospitalId小写}/lab-results-incremental.json
+     */
+    @Override
+    public String getIncrementalTemplatePath(String hospitalId) {
+        String effectiveHospitalId = hospitalId == null || hospitalId.trim().isEmpty() ? "hospital-Local" : hospitalId;
+        return String.format("sql/%s/lab-results-incremental.json", effectiveHospitalId.toLowerCase());
+    }
+    
+    /**
+     * 科室批量提取模板路径: sql/{hospitalId小写}/lab-results-batch.json
+     */
+    @Override
+    public String getBatchTemplatePath(String hospitalId) {
+        String effectiveHospitalId = hospitalId == null || hospitalId.trim().isEmpty() ? "hospital-Local" : hospitalId;
+        return String.format("sql/%s/lab-results-batch.json", effectiveHospitalId.toLowerCase());
+    }
+    
+    @Override
+    public String toHisPatientId(String mainServerPatientId) {
+        return parseOraclePatientId(mainServerPatientId);
+    }
+    
+    @Override
+    public String toHisVisitId(String mainServerPatientId) {
+        return parseVisitId(mainServerPatientId);
+    }
+    
+    /**
+     * 导入科室批量提取中属于该病人的检验结果，有效记录过滤与逐患者导入一致
      */
-    private boolean isLabResultExists(Map<String, Object> record, String targetPatientId) {
+    @Override
+    public int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords) {
         try {
-            String labName = getStringValue(record, "LAB_NAME");
-            Object reportTime = record.get("REPORT_TIME");
-            String labResultValue = getStringValue(record, "LAB_RESULT");
-            
-            if (labName == null || reportTime == null || labResultValue == null) {
-                return false;
+            List<Map<String, Object>> validRecords = new ArrayList<>(hisRecords.size());
+            for (Map<String, Object> record : hisRecords) {
+                if (isValidLabResultRecord(record)) {
+                    validRecords.add(record);
+                }
             }
-            
-            Timestamp reportTimeTs = convertToMySqlDateTime(reportTime);
-            if (reportTimeTs == null) {
-                return false;
+            if (validRecords.isEmpty()) {
+                return 0;
             }
             
-            // LABRESULT已改为VARCHAR类型，直接使用四字段JPA查询
-            List<LabResult> existingResults = labResultRepository.findByPatientIdAndLabNameAndLabReportTimeAndLabResult(
-                targetPatientId, labName, reportTimeTs, labResultValue.trim());
-            
-            return !existingResults.isEmpty();
+            String labResultPatientId = parseLabResultPatientId(mainServerPatientId);
+            return syncBulkheads.writeToMainDb(
+                () -> insertLabResultsToMainServer(validRecords, labResultPatientId));
             
         } catch (Exception e) {
-            log.error("检查重复记录失败", e);
-            return false;
+            log.error("LIS检验结果批量导入失败 - 主服务器病人ID: {}", mainServerPatientId, e);
+            return -1;
+        }
+    }
+    
+    @Override
+    public BulkUpsertWriter.UpsertTable getTargetTable() {
+        return LAB_RESULTS_TABLE;
+    }
+    
+    /**
+     * 将增量查询结果转换为labresults列值，患者ID转换为LabResult格式（990500000178405_1）
+     */
+    @Override
+    public Map<String, Object> toTargetRow(Map<String, Object> hisRecord) {
+        String mainServerPatientId = getStringValue(hisRecord, PATIENT_ID_COLUMN);
+        if (mainServerPatientId.isEmpty() || !isValidLabResultRecord(hisRecord)) {
+            return null;
         }
+        return toColumnValues(convertToLabResult(hisRecord, parseLabResultPatientId(mainServerPatientId)));
+    }
+    
+    /**
+     * 将LabResult实体转换为主服务器labresults表的列值
+     */
+    private Map<String, Object> toColumnValues(LabResult labResult) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("PatientID", labResult.getPatientId());
+        row.put("LabName", labResult.getLabName());
+        row.put("LabType", labResult.getLabType());
+        row.put("LabResult", labResult.getLabResult());
+        row.put("ReferenceRange", labResult.getReferenceRange());
+        row.put("Unit", labResult.getUnit());
+        row.put("ABNORMAL_INDICATOR", labResult.getAbnormalIndicator());
+        row.put("LabIssueTime", labResult.getLabIssueTime());
+        row.put("LabReportTime", labResult.getLabReportTime());
+        row.put("IsAnalyzed", labResult.getIsAnalyzed());
+        return row;
     }
     
     /**
@@ -440,21 +502,10 @@ public class LabSyncService {
                 return new Timestamp(((Date) value).getTime());
             } else if (value instanceof String) {
                 String strValue = value.toString().trim();
-                // 尝试解析常见日期格式
-                SimpleDateFormat[] formats = {
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy/MM/dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy-MM-dd"),
-                    new SimpleDateFormat("yyyy/MM/dd")
-                };
-                
-                for (SimpleDateFormat format : formats) {
-                    try {
-                        Date date = format.parse(strValue);
-                        return new Timestamp(date.getTime());
-                    } catch (Exception e) {
-                        continue;
-                    }
+                // 按常用日期格式依次解析（共享线程安全的DateTimeFormatter）
+                Timestamp timestamp = DateConverter.parseTimestamp(strValue);
+                if (timestamp != null) {
+                    return timestamp;
                 }
                 
                 log.warn("日期时间格式无法解析: {}", strValue);
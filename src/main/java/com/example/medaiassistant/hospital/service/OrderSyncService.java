@@ -5,17 +5,16 @@ import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
 import com.example.medaiassistant.hospital.model.HospitalConfig;
 import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.util.DateConverter;
 import com.example.medaiassistant.hospital.util.PatientIdParser;
 import com.example.medaiassistant.model.LongTermOrder;
 import com.example.medaiassistant.model.Patient;
-import com.example.medaiassistant.repository.LongTermOrderRepository;
 import com.example.medaiassistant.repository.PatientRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -26,7 +25,8 @@ import java.util.*;
  * <ul>
  *   <li>从Oracle HIS系统查询医嘱数据（V_SS_ORDERS视图）</li>
  *   <li>字段映射与数据转换（DOCTOR→PHYSICIAN, ORDER_TEXT→ORDERNAME等）</li>
- *   <li>重复记录检测与更新策略（按ORDERID判断）</li>
+ *   <li>重复记录检测（PatientID + OrderName + OrderDate + RepeatIndicator且未停止，按患者一次预取，
+ *       新记录批量写入，见{@link BulkUpsertWriter}）</li>
  *   <li>主服务器独有字段默认值设置（ISANALYZED=0, ISTRIGGERED=0）</li>
  * </ul>
  * 
@@ -50,42 +50,60 @@ import java.util.*;
  * @version 1.0
  * @since 2026-01-10
  * @see com.example.medaiassistant.model.LongTermOrder
- * @see com.example.medaiassistant.repository.LongTermOrderRepository
  */
 @Service
 @Slf4j
-public class OrderSyncService {
+public class OrderSyncService implements IncrementalSyncSource, PatientBatchSource {
+    
+    /** 增量同步检查点中的源表名称 */
+    static final String SOURCE_NAME = "LONG_TERM_ORDERS";
+    
+    /**
+     * 主服务器医嘱表：与未停止的医嘱按PatientID + OrderName + OrderDate + RepeatIndicator判重，
+     * 已存在的医嘱跳过，不做更新；已停用的医嘱不视为重复
+     */
+    static final BulkUpsertWriter.UpsertTable LONG_TERM_ORDERS_TABLE = BulkUpsertWriter.UpsertTable.builder("longtermorders")
+            .scope("PatientID")
+            .keys("PatientID", "OrderName", "OrderDate", "REPEAT_INDICATOR")
+            .columns("PatientID", "REPEAT_INDICATOR", "Physician", "OrderName", "Dosage", "Unit", "Frequency",
+                    "Route", "OrderDate", "stoptime", "IsAnalyzed", "VISIT_ID", "IsTriggered")
+            .matchCondition(BulkUpsertWriter.TARGET_ALIAS + ".stoptime IS NULL", row -> row.get("stoptime") == null)
+            .build();
     
     private final SqlExecutionService sqlExecutionService;
-    private final LongTermOrderRepository longTermOrderRepository;
     private final PatientRepository patientRepository;
     private final HospitalConfigService hospitalConfigService;
     private final TemplateHotUpdateService templateHotUpdateService;
     private final OrderSyncConfig orderSyncConfig;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final SyncBulkheads syncBulkheads;
     
     /**
      * 构造函数 - 依赖注入
      *
      * @param sqlExecutionService SQL执行服务，用于连接Oracle数据库并执行SQL查询
-     * @param longTermOrderRepository 长期医嘱数据访问层，用于保存和查询医嘱记录
      * @param patientRepository 患者数据访问层，用于验证患者ID有效性
      * @param hospitalConfigService 医院配置服务，用于获取当前活动医院ID
      * @param templateHotUpdateService 模板热更新服务，用于动态加载SQL模板
      * @param orderSyncConfig 医嘱同步配置，包含模板路径、查询名称等配置项
+     * @param bulkUpsertWriter 主服务器批量写入组件，用于判重和批量保存医嘱记录
+     * @param syncBulkheads 同步舱壁，限制HIS读取和主库写入的并发数
      */
     public OrderSyncService(
             SqlExecutionService sqlExecutionService,
-            LongTermOrderRepository longTermOrderRepository,
             PatientRepository patientRepository,
             HospitalConfigService hospitalConfigService,
             TemplateHotUpdateService templateHotUpdateService,
-            OrderSyncConfig orderSyncConfig) {
+            OrderSyncConfig orderSyncConfig,
+            BulkUpsertWriter bulkUpsertWriter,
+            SyncBulkheads syncBulkheads) {
         this.sqlExecutionService = sqlExecutionService;
-        this.longTermOrderRepository = longTermOrderRepository;
         this.patientRepository = patientRepository;
         this.hospitalConfigService = hospitalConfigService;
         this.templateHotUpdateService = templateHotUpdateService;
         this.orderSyncConfig = orderSyncConfig;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.syncBulkheads = syncBulkheads;
     }
     
     /**
@@ -191,7 +209,8 @@ public class OrderSyncService {
                 oraclePatientId, orderPatientId, visitId);
             
             // 4. 从Oracle HIS系统获取医嘱数据
-            List<Map<String, Object>> oracleOrders = fetchOracleOrders(oraclePatientId, visitId);
+            List<Map<String, Object>> oracleOrders = syncBulkheads.readFromHis(
+                () -> fetchOracleOrders(oraclePatientId, visitId));
             log.info("从Oracle获取到 {} 条医嘱记录", oracleOrders.size());
             
             if (oracleOrders.isEmpty()) {
@@ -200,7 +219,8 @@ public class OrderSyncService {
             }
             
             // 5. 插入到主服务器数据库
-            int importedCount = insertOrdersToMainServer(oracleOrders, orderPatientId);
+            int importedCount = syncBulkheads.writeToMainDb(
+                () -> insertOrdersToMainServer(oracleOrders, orderPatientId));
             
             log.info("[执行命令] OrderSyncService.importOrders - 执行完成, 成功导入 {} 条记录，总耗时: {}ms", 
                 importedCount, System.currentTimeMillis() - startTime);
@@ -259,6 +279,7 @@ public class OrderSyncService {
             // 创建SQL查询请求
             SqlQueryRequest request = new SqlQueryRequest();
             request.setSql(sql);
+            request.setRowMapper(template.getRowMapper());
             request.setDatabaseType("his");
             request.setParameters(Map.of(
                 "patientId", patientId,
@@ -312,53 +333,30 @@ public class OrderSyncService {
      */
     @Transactional(transactionManager = "transactionManager")
     public int insertOrdersToMainServer(List<Map<String, Object>> oracleResults, String targetPatientId) {
-        int processedCount = 0;
-        int insertedCount = 0;
         int skippedCount = 0;
         
         try {
+            List<Map<String, Object>> rows = new ArrayList<>(oracleResults.size());
             for (Map<String, Object> record : oracleResults) {
-                String orderName = getStringValue(record, "ORDER_NAME");
-                java.sql.Timestamp orderDate = convertToTimestamp(record.get("ORDER_DATE"));
-                Integer repeatIndicator = getIntegerValue(record, "REPEAT_INDICATOR");
-                
-                if (orderName.isEmpty()) {
+                if (getStringValue(record, "ORDER_NAME").isEmpty()) {
                     log.warn("跳过无效记录：医嘱名称为空");
                     skippedCount++;
                     continue;
                 }
-                
-                // 重复判断：PatientID + OrderName + OrderDate + RepeatIndicator + StopTime is Null
-                // 已停用的医嘱不视为重复，允许同一患者在不同时间有相同医嘱
-                // 临时医嘱(repeatIndicator=0)和长期医嘱(repeatIndicator=1)分别判重
-                // 重复则跳过，不重复则插入
-                boolean exists = longTermOrderRepository.existsActiveOrder(
-                    targetPatientId, orderName, orderDate, repeatIndicator);
-                
-                if (exists) {
-                    String orderType = (repeatIndicator != null && repeatIndicator == 0) ? "临时医嘱" : "长期医嘱";
-                    log.debug("跳过重复{} - PatientID: {}, OrderName: {}, OrderDate: {}", 
-                        orderType, targetPatientId, orderName, orderDate);
-                    skippedCount++;
-                    continue;
-                }
-                
-                // 不存在则插入新医嘱
-                LongTermOrder order = convertToLongTermOrder(record, targetPatientId);
-                longTermOrderRepository.save(order);
-                insertedCount++;
-                
-                String orderType = (repeatIndicator != null && repeatIndicator == 0) ? "临时医嘱" : "长期医嘱";
-                log.debug("插入新{}记录 - PatientID: {}, OrderName: {}", 
-                    orderType, targetPatientId, orderName);
-                
-                processedCount++;
+                rows.add(toColumnValues(convertToLongTermOrder(record, targetPatientId)));
             }
             
+            // 重复判断：PatientID + OrderName + OrderDate + RepeatIndicator + StopTime is Null
+            // 已停用的医嘱不视为重复，允许同一患者在不同时间有相同医嘱
+            // 临时医嘱(repeatIndicator=0)和长期医嘱(repeatIndicator=1)分别判重
+            // 重复则跳过，不重复则插入
+            BulkUpsertWriter.UpsertResult result = bulkUpsertWriter.upsert(LONG_TERM_ORDERS_TABLE, targetPatientId, rows);
+            skippedCount += result.getUnchanged();
+            
             log.info("主服务器数据库操作完成 - 新增: {} 条, 跳过重复: {} 条", 
-                insertedCount, skippedCount);
+                result.getInserted(), skippedCount);
             
-            return processedCount;
+            return result.getInserted();
             
         } catch (Exception e) {
             log.error("插入主服务器数据库失败", e);
@@ -366,6 +364,98 @@ public class OrderSyncService {
         }
     }
     
+    @Override
+    public String getSourceName() {
+        return SOURCE_NAME;
+    }
+    
+    @Override
+    public String getIncrementalTemplatePath(String hospitalId) {
+        return orderSyncConfig.getIncrementalTemplateFilePath(hospitalId);
+    }
+    
+    @Override
+    public String getBatchTemplatePath(String hospitalId) {
+        return orderSyncConfig.getBatchTemplateFilePath(hospitalId);
+    }
+    
+    @Override
+    public String toHisPatientId(String mainServerPatientId) {
+        return PatientIdParser.parsePatiId(mainServerPatientId);
+    }
+    
+    @Override
+    public String toHisVisitId(String mainServerPatientId) {
+        return PatientIdParser.parseVisitIdAsString(mainServerPatientId);
+    }
+    
+    /**
+     * 导入科室批量提取中属于该病人的医嘱，有效记录过滤与逐患者导入一致
+     */
+    @Override
+    public int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords) {
+        try {
+            List<Map<String, Object>> validRecords = new ArrayList<>(hisRecords.size());
+            for (Map<String, Object> record : hisRecords) {
+                if (isValidOrderRecord(record)) {
+                    validRecords.add(record);
+                }
+            }
+            if (validRecords.isEmpty()) {
+                return 0;
+            }
+            
+            String orderPatientId = parseOrderPatientId(mainServerPatientId);
+            return syncBulkheads.writeToMainDb(
+                () -> insertOrdersToMainServer(validRecords, orderPatientId));
+            
+        } catch (Exception e) {
+            log.error("医嘱批量导入失败 - 主服务器病人ID: {}", mainServerPatientId, e);
+            return -1;
+        }
+    }
+    
+    @Override
+    public BulkUpsertWriter.UpsertTable getTargetTable() {
+        return LONG_TERM_ORDERS_TABLE;
+    }
+    
+    /**
+     * 将增量查询结果转换为longtermorders列值，医嘱名称为空的记录跳过（与逐患者导入一致）
+     */
+    @Override
+    public Map<String, Object> toTargetRow(Map<String, Object> hisRecord) {
+        String mainServerPatientId = getStringValue(hisRecord, PATIENT_ID_COLUMN);
+        if (mainServerPatientId.isEmpty() || getStringValue(hisRecord, "ORDER_NAME").isEmpty()) {
+            return null;
+        }
+        return toColumnValues(convertToLongTermOrder(hisRecord, parseOrderPatientId(mainServerPatientId)));
+    }
+    
+    /**
+     * 将LongTermOrder实体转换为主服务器longtermorders表的列值
+     *
+     * @param order 医嘱实体
+     * @return 列名到取值的映射
+     */
+    private Map<String, Object> toColumnValues(LongTermOrder order) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("PatientID", order.getPatientId());
+        row.put("REPEAT_INDICATOR", order.getRepeatIndicator());
+        row.put("Physician", order.getPhysician());
+        row.put("OrderName", order.getOrderName());
+        row.put("Dosage", order.getDosage());
+        row.put("Unit", order.getUnit());
+        row.put("Frequency", order.getFrequency());
+        row.put("Route", order.getRoute());
+        row.put("OrderDate", order.getOrderDate());
+        row.put("stoptime", order.getStopTime());
+        row.put("IsAnalyzed", order.getIsAnalyzed());
+        row.put("VISIT_ID", order.getVisitId());
+        row.put("IsTriggered", order.getIsTriggered());
+        return row;
+    }
+    
     /**
      * 将Oracle数据转换为LongTermOrder实体
      * 
@@ -571,20 +661,10 @@ public class OrderSyncService {
                 return new Timestamp(((Date) value).getTime());
             } else if (value instanceof String) {
                 String strValue = value.toString().trim();
-                SimpleDateFormat[] formats = {
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy/MM/dd HH:mm:ss"),
-                    new SimpleDateFormat("yyyy-MM-dd"),
-                    new SimpleDateFormat("yyyy/MM/dd")
-                };
-                
-                for (SimpleDateFormat format : formats) {
-                    try {
-                        Date date = format.parse(strValue);
-                        return new Timestamp(date.getTime());
-                    } catch (Exception e) {
-                        continue;
-                    }
+                // 按常用日期格式依次解析（共享线程安全的DateTimeFormatter）
+                Timestamp timestamp = DateConverter.parseTimestamp(strValue);
+                if (timestamp != null) {
+                    return timestamp;
                 }
                 
                 log.warn("日期时间格式无法解析: {}", strValue);
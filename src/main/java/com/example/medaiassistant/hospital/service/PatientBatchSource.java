@@ -0,0 +1,72 @@
+package com.example.medaiassistant.hospital.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可按科室批量提取的HIS数据源
+ *
+ * <p>夜间同步逐个病人查询HIS时，每个病人每个数据源各需一次往返。实现该接口的同步服务提供批量查询模板，
+ * 由{@link DepartmentBatchExtractor}把一个科室的病人ID分块后以IN列表一次查询，按病人拆分结果后
+ * 交回同步服务写入主库。</p>
+ *
+ * <p>批量查询模板约定：</p>
+ * <ul>
+ *   <li>参数 {@code :patientIds} 为HIS病人ID列表，展开为IN列表</li>
+ *   <li>结果必须包含 {@code SYNC_HIS_PATIENT_ID} 列（HIS病人ID），用于按病人拆分</li>
+ *   <li>按就诊区分的数据源还须返回 {@code SYNC_VISIT_ID} 列（就诊标识符）</li>
+ *   <li>其余列别名与逐患者查询模板一致</li>
+ * </ul>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public interface PatientBatchSource {
+
+    /** 批量查询模板的病人ID列表参数名 */
+    String PATIENT_IDS_PARAM = "patientIds";
+
+    /** 批量查询结果中的HIS病人ID列 */
+    String HIS_PATIENT_ID_COLUMN = "SYNC_HIS_PATIENT_ID";
+
+    /** 批量查询结果中的就诊标识符列 */
+    String VISIT_ID_COLUMN = "SYNC_VISIT_ID";
+
+    /**
+     * 数据源名称（与增量同步检查点的源表名称一致）
+     */
+    String getSourceName();
+
+    /**
+     * 科室批量提取模板路径，模板文件不存在时该数据源按病人逐个查询
+     *
+     * @param hospitalId 医院ID
+     * @return 模板文件路径
+     */
+    String getBatchTemplatePath(String hospitalId);
+
+    /**
+     * 主服务器病人ID对应的HIS病人ID（批量查询IN列表中的值）
+     *
+     * @param mainServerPatientId 主服务器病人ID
+     * @return HIS病人ID
+     */
+    String toHisPatientId(String mainServerPatientId);
+
+    /**
+     * 主服务器病人ID对应的就诊标识符，不按就诊区分的数据源返回null
+     *
+     * @param mainServerPatientId 主服务器病人ID
+     * @return 就诊标识符，或null
+     */
+    String toHisVisitId(String mainServerPatientId);
+
+    /**
+     * 导入批量查询中属于该病人的记录（可能为空列表）
+     *
+     * @param mainServerPatientId 主服务器病人ID
+     * @param hisRecords          该病人的HIS记录
+     * @return 导入的记录数量，-1表示失败
+     */
+    int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords);
+}
@@ -2,19 +2,26 @@ package com.example.medaiassistant.hospital.service;
 
 import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.dto.SqlStreamOptions;
 import com.example.medaiassistant.hospital.dto.SqlUpdateRequest;
 import com.example.medaiassistant.hospital.dto.SqlUpdateResult;
+import com.example.medaiassistant.hospital.util.TemplateRowMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * SQL执行服务
@@ -59,15 +66,16 @@ public class SqlExecutionService {
                                           request.getSql());
             }
             
-            // 获取JdbcTemplate
-            JdbcTemplate jdbcTemplate = jdbcTemplateFactory.getJdbcTemplate(hospitalId, request.getDatabaseType());
-            
-            // 配置JdbcTemplate
-            configureJdbcTemplate(jdbcTemplate, request);
+            // 获取按本次请求配置的JdbcTemplate
+            JdbcTemplate jdbcTemplate = statementTemplate(
+                    jdbcTemplateFactory.getJdbcTemplate(hospitalId, request.getDatabaseType()),
+                    request.getTimeoutSeconds(), request.getMaxRows());
             
             // 执行查询
             List<Map<String, Object>> data;
-            if (request.getParameters() != null && !request.getParameters().isEmpty()) {
+            if (request.getRowMapper() != null) {
+                data = executeMappedQuery(jdbcTemplate, request);
+            } else if (request.getParameters() != null && !request.getParameters().isEmpty()) {
                 data = executeParameterizedQuery(jdbcTemplate, request.getSql(), request.getParameters());
             } else {
                 data = jdbcTemplate.queryForList(request.getSql());
@@ -96,6 +104,220 @@ public class SqlExecutionService {
         }
     }
     
+    /**
+     * 流式执行SQL查询
+     * 
+     * <p>逐行读取结果集并交给rowConsumer处理，不在内存中保存整个结果集，适用于按科室或病人ID分组
+     * 一次拉取大量记录的同步查询。返回结果的data为空列表，rowCount为已处理的行数。</p>
+     * 
+     * @param hospitalId 医院ID
+     * @param request 查询请求（maxRows限制读取的总行数）
+     * @param rowConsumer 行处理器，抛出异常时查询中止并返回错误结果
+     * @return 查询结果（不含数据）
+     */
+    public SqlQueryResult streamQuery(String hospitalId, SqlQueryRequest request,
+                                      Consumer<Map<String, Object>> rowConsumer) {
+        return streamQuery(hospitalId, request, new SqlStreamOptions(), row -> {
+            rowConsumer.accept(row);
+            return true;
+        });
+    }
+    
+    /**
+     * 流式执行SQL查询（逐行处理）
+     * 
+     * <p>结果集逐行映射后立即交给rowHandler，handler返回false时停止读取并关闭游标，剩余行不再从数据库取回。
+     * 按options设置fetchSize，累计读取数据量超过maxBytes时终止读取，结果标记为截断。fetchSize、maxRows和
+     * 查询超时只设置在本次执行的语句上。</p>
+     * 
+     * @param hospitalId 医院ID
+     * @param request 查询请求（maxRows限制读取的总行数，为null时不限制行数）
+     * @param options 流式选项
+     * @param rowHandler 行处理器，返回false提前终止
+     * @return 查询结果（不含数据），rowCount为已交给handler的行数
+     */
+    public SqlQueryResult streamQuery(String hospitalId, SqlQueryRequest request, SqlStreamOptions options,
+                                      RowHandler rowHandler) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            validateInput(hospitalId, request.getSql(), request.getDatabaseType());
+            
+            if (!sqlSecurityValidator.isSqlSafe(request.getSql())) {
+                return SqlQueryResult.error("SQL语句不安全，可能包含危险操作", 
+                                          "SQL_SECURITY_ERROR", 
+                                          System.currentTimeMillis() - startTime, 
+                                          request.getSql());
+            }
+            
+            // 流式读取的行数由maxRows显式限制，未指定时不限制，不沿用共享实例的默认行数上限
+            JdbcTemplate jdbcTemplate = statementTemplate(
+                    jdbcTemplateFactory.getJdbcTemplate(hospitalId, request.getDatabaseType()),
+                    request.getTimeoutSeconds(), request.getMaxRows() != null ? request.getMaxRows() : 0);
+            if (options.getFetchSize() != null && options.getFetchSize() > 0) {
+                jdbcTemplate.setFetchSize(options.getFetchSize());
+            }
+            
+            StreamingExtractor extractor = new StreamingExtractor(options, request.getRowMapper(), rowHandler);
+            if (request.getParameters() != null && !request.getParameters().isEmpty()) {
+                List<String> orderedParamNames = new ArrayList<>();
+                String positionalSql = convertNamedParametersToPositional(
+                        request.getSql(), request.getParameters(), orderedParamNames);
+                Object[] args = extractOrderedParameterValues(request.getParameters(), orderedParamNames);
+                jdbcTemplate.query(positionalSql, extractor, args);
+            } else {
+                jdbcTemplate.query(request.getSql(), extractor);
+            }
+            
+            long executionTime = System.currentTimeMillis() - startTime;
+            log.info("SQL流式查询执行成功 - 医院ID: {}, 数据库类型: {}, 执行时间: {}ms, 处理行数: {}, 估算数据量: {}KB", 
+                    hospitalId, request.getDatabaseType(), executionTime, extractor.rowCount, extractor.bytes / 1024);
+            
+            SqlQueryResult result = SqlQueryResult.success(Collections.emptyList(), Collections.emptyList(),
+                    executionTime, request.getSql());
+            result.setRowCount(extractor.rowCount);
+            if (extractor.memoryCapReached) {
+                result.setTruncated(true);
+                result.setWarnings(List.of("读取数据量超过内存上限 " + options.getMaxBytes() + " 字节，已终止读取"));
+                log.warn("SQL流式查询超过内存上限，已终止读取 - 医院ID: {}, 已处理行数: {}", hospitalId, extractor.rowCount);
+            } else if (!extractor.stoppedByHandler && request.getMaxRows() != null
+                    && extractor.rowCount >= request.getMaxRows()) {
+                result.setTruncated(true);
+                result.setWarnings(List.of("查询结果达到最大行数限制 " + request.getMaxRows()));
+            }
+            return result;
+            
+        } catch (Exception e) {
+            long executionTime = System.currentTimeMillis() - startTime;
+            log.error("SQL流式查询执行失败 - 医院ID: {}, SQL: {}", hospitalId, request.getSql(), e);
+            return handleQueryException(e, executionTime, request.getSql());
+        }
+    }
+    
+    /**
+     * 流式执行SQL查询（按块处理）
+     * 
+     * <p>行累积到chunkSize行或maxChunkBytes估算字节数时作为一块交给chunkHandler，块处理完后即释放，
+     * 内存中最多保留一块数据。chunkHandler返回false时停止读取。</p>
+     * 
+     * @param hospitalId 医院ID
+     * @param request 查询请求
+     * @param options 流式选项
+     * @param chunkHandler 块处理器，返回false提前终止
+     * @return 查询结果（不含数据），rowCount为已读取的行数
+     */
+    public SqlQueryResult streamQueryInChunks(String hospitalId, SqlQueryRequest request, SqlStreamOptions options,
+                                              ChunkHandler chunkHandler) {
+        int chunkSize = Math.max(1, options.getChunkSize());
+        List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+        long[] chunkBytes = {0};
+        boolean[] stopped = {false};
+        
+        SqlQueryResult result = streamQuery(hospitalId, request, options, row -> {
+            chunk.add(row);
+            chunkBytes[0] += estimateRowBytes(row);
+            if (chunk.size() >= chunkSize || chunkBytes[0] >= options.getMaxChunkBytes()) {
+                boolean proceed = chunkHandler.handle(new ArrayList<>(chunk));
+                chunk.clear();
+                chunkBytes[0] = 0;
+                stopped[0] = !proceed;
+                return proceed;
+            }
+            return true;
+        });
+        
+        // 交付最后一块（提前终止时不再交付）
+        if (result.isSuccess() && !stopped[0] && !chunk.isEmpty()) {
+            chunkHandler.handle(new ArrayList<>(chunk));
+        }
+        return result;
+    }
+    
+    /**
+     * 估算一行数据占用的内存字节数（字符串按UTF-16计算，包含Map条目开销）
+     */
+    static long estimateRowBytes(Map<String, Object> row) {
+        long bytes = 64;
+        for (Object value : row.values()) {
+            bytes += 48;
+            if (value instanceof CharSequence text) {
+                bytes += 40 + 2L * text.length();
+            } else if (value instanceof byte[] binary) {
+                bytes += 16 + binary.length;
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * 流式查询行处理器
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * 处理一行数据
+         * @param row 列名到取值的映射（列名大小写不敏感）
+         * @return true继续读取，false终止读取
+         */
+        boolean handle(Map<String, Object> row);
+    }
+    
+    /**
+     * 流式查询块处理器
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+        /**
+         * 处理一块数据
+         * @param rows 本块的行
+         * @return true继续读取，false终止读取
+         */
+        boolean handle(List<Map<String, Object>> rows);
+    }
+    
+    /**
+     * 自行驱动结果集游标的提取器：可提前终止并统计读取量
+     */
+    private static final class StreamingExtractor implements ResultSetExtractor<Void> {
+        
+        private final SqlStreamOptions options;
+        private final RowHandler rowHandler;
+        private final RowMapper<Map<String, Object>> rowMapper;
+        private int rowCount;
+        private long bytes;
+        private boolean memoryCapReached;
+        private boolean stoppedByHandler;
+        
+        private StreamingExtractor(SqlStreamOptions options, RowMapper<Map<String, Object>> rowMapper,
+                                   RowHandler rowHandler) {
+            this.options = options;
+            this.rowMapper = rowMapper;
+            this.rowHandler = rowHandler;
+        }
+        
+        @Override
+        public Void extractData(ResultSet rs) throws SQLException {
+            RowMapper<Map<String, Object>> mapper = bindRowMapper(rowMapper, rs);
+            while (rs.next()) {
+                Map<String, Object> row = mapper.mapRow(rs, rowCount);
+                long rowBytes = estimateRowBytes(row);
+                if (options.getMaxBytes() != null && bytes + rowBytes > options.getMaxBytes()) {
+                    memoryCapReached = true;
+                    break;
+                }
+                bytes += rowBytes;
+                rowCount++;
+                if (!rowHandler.handle(row)) {
+                    stoppedByHandler = true;
+                    break;
+                }
+            }
+            return null;
+        }
+    }
+    
     /**
      * 执行SQL更新
      * 
@@ -118,11 +340,10 @@ public class SqlExecutionService {
                                            request.getSql());
             }
             
-            // 获取JdbcTemplate
-            JdbcTemplate jdbcTemplate = jdbcTemplateFactory.getJdbcTemplate(hospitalId, request.getDatabaseType());
-            
-            // 配置JdbcTemplate
-            configureJdbcTemplate(jdbcTemplate, request);
+            // 获取按本次请求配置的JdbcTemplate
+            JdbcTemplate jdbcTemplate = statementTemplate(
+                    jdbcTemplateFactory.getJdbcTemplate(hospitalId, request.getDatabaseType()),
+                    request.getTimeoutSeconds(), null);
             
             // 执行更新
             int affectedRows;
@@ -185,25 +406,23 @@ public class SqlExecutionService {
     }
     
     /**
-     * 配置JdbcTemplate（查询）
-     */
-    private void configureJdbcTemplate(JdbcTemplate jdbcTemplate, SqlQueryRequest request) {
-        if (request.getTimeoutSeconds() != null) {
-            jdbcTemplate.setQueryTimeout(request.getTimeoutSeconds());
-        }
-        
-        if (request.getMaxRows() != null) {
-            jdbcTemplate.setMaxRows(request.getMaxRows());
-        }
-    }
-    
-    /**
-     * 配置JdbcTemplate（更新）
+     * 创建按本次请求配置的JdbcTemplate
+     * 
+     * <p>工厂缓存的JdbcTemplate按医院和数据库类型共享，并发调用方修改它的查询超时和最大行数会互相覆盖，
+     * 导致查询按别的调用方的行数上限被驱动截断。这里在同一连接池上新建JdbcTemplate，继承共享实例的默认设置，
+     * 再按请求覆盖，设置只作用于本次执行的语句，共享实例保持不变。</p>
+     * 
+     * @param shared 工厂缓存的共享JdbcTemplate（只读取其设置）
+     * @param timeoutSeconds 查询超时（秒），为null时使用共享实例的默认值
+     * @param maxRows 最大行数，为null时使用共享实例的默认值，0表示不限制
      */
-    private void configureJdbcTemplate(JdbcTemplate jdbcTemplate, SqlUpdateRequest request) {
-        if (request.getTimeoutSeconds() != null) {
-            jdbcTemplate.setQueryTimeout(request.getTimeoutSeconds());
-        }
+    private JdbcTemplate statementTemplate(JdbcTemplate shared, Integer timeoutSeconds, Integer maxRows) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shared.getDataSource());
+        jdbcTemplate.setExceptionTranslator(shared.getExceptionTranslator());
+        jdbcTemplate.setFetchSize(shared.getFetchSize());
+        jdbcTemplate.setQueryTimeout(timeoutSeconds != null ? timeoutSeconds : shared.getQueryTimeout());
+        jdbcTemplate.setMaxRows(maxRows != null ? maxRows : shared.getMaxRows());
+        return jdbcTemplate;
     }
     
     /**
@@ -220,6 +439,40 @@ public class SqlExecutionService {
         return jdbcTemplate.queryForList(positionalSql, args);
     }
     
+    /**
+     * 按请求指定的行映射器执行查询
+     */
+    private List<Map<String, Object>> executeMappedQuery(JdbcTemplate jdbcTemplate, SqlQueryRequest request) {
+        ResultSetExtractor<List<Map<String, Object>>> extractor = rs -> {
+            RowMapper<Map<String, Object>> mapper = bindRowMapper(request.getRowMapper(), rs);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            int rowNum = 0;
+            while (rs.next()) {
+                rows.add(mapper.mapRow(rs, rowNum++));
+            }
+            return rows;
+        };
+        if (request.getParameters() != null && !request.getParameters().isEmpty()) {
+            List<String> orderedParamNames = new ArrayList<>();
+            String positionalSql = convertNamedParametersToPositional(
+                    request.getSql(), request.getParameters(), orderedParamNames);
+            Object[] args = extractOrderedParameterValues(request.getParameters(), orderedParamNames);
+            return jdbcTemplate.query(positionalSql, extractor, args);
+        }
+        return jdbcTemplate.query(request.getSql(), extractor);
+    }
+    
+    /**
+     * 按结果集绑定行映射器：模板行映射器每个结果集编译（或复用）一次列序号，未指定时使用ColumnMapRowMapper
+     */
+    private static RowMapper<Map<String, Object>> bindRowMapper(RowMapper<Map<String, Object>> rowMapper,
+                                                                ResultSet rs) throws SQLException {
+        if (rowMapper instanceof TemplateRowMapper templateRowMapper) {
+            return templateRowMapper.compile(rs.getMetaData());
+        }
+        return rowMapper != null ? rowMapper : new ColumnMapRowMapper();
+    }
+    
     /**
      * 执行参数化更新
      */
@@ -252,18 +505,23 @@ public class SqlExecutionService {
     }
     
     /**
-     * 按指定顺序提取参数值
+     * 按指定顺序提取参数值，集合参数按元素展开
      */
     private Object[] extractOrderedParameterValues(Map<String, Object> parameters, List<String> orderedParamNames) {
         if (parameters == null || parameters.isEmpty() || orderedParamNames.isEmpty()) {
             return new Object[0];
         }
         
-        Object[] args = new Object[orderedParamNames.size()];
-        for (int i = 0; i < orderedParamNames.size(); i++) {
-            args[i] = parameters.get(orderedParamNames.get(i));
+        List<Object> args = new ArrayList<>(orderedParamNames.size());
+        for (String paramName : orderedParamNames) {
+            Object value = parameters.get(paramName);
+            if (value instanceof Collection<?> values) {
+                args.addAll(values);
+            } else {
+                args.add(value);
+            }
         }
-        return args;
+        return args.toArray();
     }
     
     /**
@@ -298,7 +556,7 @@ public class SqlExecutionService {
             if (paramEnd > paramStart) {
                 String paramName = sql.substring(paramStart, paramEnd);
                 if (parameters.containsKey(paramName)) {
-                    result.append("?");
+                    result.append(placeholdersFor(parameters.get(paramName)));
                     orderedParamNames.add(paramName);
                     lastIndex = paramEnd;
                 } else {
@@ -316,6 +574,16 @@ public class SqlExecutionService {
         return result.toString();
     }
     
+    /**
+     * 参数占位符：集合参数（用于IN列表）展开为与元素个数相同的占位符，空集合展开为NULL（不匹配任何行）
+     */
+    private String placeholdersFor(Object value) {
+        if (value instanceof Collection<?> values) {
+            return values.isEmpty() ? "NULL" : String.join(", ", Collections.nCopies(values.size(), "?"));
+        }
+        return "?";
+    }
+    
     /**
      * 判断字符是否可以作为参数名的一部分
      */
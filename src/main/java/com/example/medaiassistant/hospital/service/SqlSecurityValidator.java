@@ -1,13 +1,19 @@
 package com.example.medaiassistant.hospital.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 /**
@@ -19,9 +25,16 @@ import java.util.regex.Pattern;
  * 3. 强制参数化查询
  * 4. 安全审计日志记录
  * 5. 支持自定义安全规则
+ *
+ * <p>所有危险关键字在类加载时编译为一个正则，一次扫描判断是否包含任一关键字；只有命中时才按原顺序
+ * 逐个确定报告的关键字，拒绝原因与逐个编译检查时一致。自定义规则在首次使用时编译并缓存。</p>
+ *
+ * <p>验证结论按SQL原文缓存（有容量上限，超出时整体清空），同一模板SQL再次执行时不再重复扫描。
+ * 自定义规则变更或模板重新加载时清空缓存；每条结论记录写入时的缓存代数，代数不一致的结论视为失效，
+ * 与清空并发写入的旧结论不会被使用。缓存命中时通过和拒绝都照常记录审计日志。</p>
  * 
  * @author System
- * @version 1.0
+ * @version 1.1
  * @since 2025-12-03
  */
 @Slf4j
@@ -36,18 +49,74 @@ public class SqlSecurityValidator {
         "DROP", "DELETE", "UPDATE", "INSERT", "ALTER", 
         "TRUNCATE", "CREATE", "GRANT", "REVOKE", "EXECUTE"
     ));
+
+    /**
+     * 所有危险关键字合并后的正则（作为独立单词出现）
+     */
+    private static final Pattern DANGEROUS_KEYWORD_PATTERN =
+        Pattern.compile("\\b(?:" + String.join("|", DANGEROUS_KEYWORDS) + ")\\b");
+
+    /**
+     * 单个危险关键字的正则，按DANGEROUS_KEYWORDS的迭代顺序，用于确定报告的关键字
+     */
+    private static final Map<String, Pattern> KEYWORD_PATTERNS = new LinkedHashMap<>();
+
+    static {
+        for (String keyword : DANGEROUS_KEYWORDS) {
+            KEYWORD_PATTERNS.put(keyword, Pattern.compile("\\b" + keyword + "\\b"));
+        }
+    }
+
+    /**
+     * WHERE子句中的直接值：= 123 或 = 'value'
+     */
+    private static final Pattern LITERAL_VALUE_PATTERN = Pattern.compile("=\\s*\\d+|=\\s*'[^']*'");
     
     /**
      * 自定义安全规则集合
      * 可以动态添加自定义的安全规则
      */
     private final Set<String> customDangerousPatterns = new HashSet<>();
+
+    /**
+     * 已编译的自定义规则
+     */
+    private final Map<String, Pattern> compiledCustomPatterns = new ConcurrentHashMap<>();
+
+    /**
+     * 验证结论缓存，键为SQL原文（自定义规则作用于原文，因此不做空白或大小写归一化）
+     */
+    private final Map<String, Verdict> verdictCache = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存代数，清空缓存时递增，避免把清空前开始的验证结论写回缓存
+     */
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * 验证结论缓存的最大条目数，0表示不缓存
+     */
+    @Value("${hospital.sql-security.verdict-cache-size:1024}")
+    private int verdictCacheSize = 1024;
     
     /**
      * 日期时间格式化器，用于审计日志
      */
     private static final DateTimeFormatter DATE_TIME_FORMATTER = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 模板重新加载时清空验证结论缓存
+     *
+     * @param templateCache 模板缓存
+     */
+    @Autowired(required = false)
+    public void setTemplateCache(TemplateCache templateCache) {
+        templateCache.addReloadListener(this::clearVerdictCache);
+    }
     
     /**
      * 验证SQL语句是否安全
@@ -56,9 +125,20 @@ public class SqlSecurityValidator {
      * @return true表示安全，false表示危险
      */
     public boolean isSqlSafe(String sql) {
+        Verdict cached = sql != null ? verdictCache.get(sql) : null;
+        if (cached != null && cached.generation == cacheGeneration.get()) {
+            cacheHits.incrementAndGet();
+            logSecurityAudit(generateAuditId(), sql, cached.safe, cached.reason, LocalDateTime.now());
+            if (!cached.safe) {
+                log.warn("SQL语句安全验证未通过（缓存结论）: {}", sql);
+            }
+            return cached.safe;
+        }
+
         // 记录审计日志开始
         String auditId = generateAuditId();
         LocalDateTime startTime = LocalDateTime.now();
+        long generation = cacheGeneration.get();
         
         try {
             // 处理null和空字符串
@@ -68,6 +148,7 @@ public class SqlSecurityValidator {
                 log.warn("SQL语句为null或空，视为不安全");
                 return false;
             }
+            cacheMisses.incrementAndGet();
             
             // 转换为大写进行关键字检测（大小写不敏感）
             String upperSql = sql.toUpperCase().trim();
@@ -77,29 +158,27 @@ public class SqlSecurityValidator {
                 String reason = "SQL语句不是SELECT查询";
                 logSecurityAudit(auditId, sql, false, reason, startTime);
                 log.warn("SQL语句不是SELECT查询: {}", sql);
-                return false;
+                return cacheVerdict(sql, generation, false, reason);
             }
             
-            // 检查危险关键字
-            for (String keyword : DANGEROUS_KEYWORDS) {
-                // 使用正则表达式确保关键字是独立的单词
-                // 匹配 " DROP " 或 "DROP " 或 " DROP" 或 "DROP"（作为独立单词）
-                String pattern = "\\b" + keyword + "\\b";
-                if (Pattern.compile(pattern).matcher(upperSql).find()) {
-                    String reason = "SQL语句包含危险关键字: " + keyword;
-                    logSecurityAudit(auditId, sql, false, reason, startTime);
-                    log.warn("SQL语句包含危险关键字 '{}': {}", keyword, sql);
-                    return false;
-                }
+            // 检查危险关键字（一次扫描，命中后再确定具体关键字）
+            if (DANGEROUS_KEYWORD_PATTERN.matcher(upperSql).find()) {
+                String keyword = findDangerousKeyword(upperSql);
+                String reason = "SQL语句包含危险关键字: " + keyword;
+                logSecurityAudit(auditId, sql, false, reason, startTime);
+                log.warn("SQL语句包含危险关键字 '{}': {}", keyword, sql);
+                return cacheVerdict(sql, generation, false, reason);
             }
             
             // 检查自定义安全规则
             for (String customPattern : customDangerousPatterns) {
-                if (Pattern.compile(customPattern, Pattern.CASE_INSENSITIVE).matcher(sql).find()) {
+                Pattern compiled = compiledCustomPatterns.computeIfAbsent(customPattern,
+                    p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE));
+                if (compiled.matcher(sql).find()) {
                     String reason = "SQL语句违反自定义安全规则: " + customPattern;
                     logSecurityAudit(auditId, sql, false, reason, startTime);
                     log.warn("SQL语句违反自定义安全规则 '{}': {}", customPattern, sql);
-                    return false;
+                    return cacheVerdict(sql, generation, false, reason);
                 }
             }
             
@@ -110,22 +189,75 @@ public class SqlSecurityValidator {
                 String reason = "SQL语句未使用参数化查询，可能存在SQL注入风险";
                 logSecurityAudit(auditId, sql, false, reason, startTime);
                 log.warn("SQL语句未使用参数化查询，可能存在SQL注入风险: {}", sql);
-                return false;
+                return cacheVerdict(sql, generation, false, reason);
             }
             
             // 记录安全验证通过
             logSecurityAudit(auditId, sql, true, "SQL语句安全验证通过", startTime);
             log.debug("SQL语句安全验证通过: {}", sql);
-            return true;
+            return cacheVerdict(sql, generation, true, "SQL语句安全验证通过");
             
         } catch (Exception e) {
-            // 记录验证过程中的异常
+            // 记录验证过程中的异常（不缓存）
             String reason = "安全验证过程中发生异常: " + e.getMessage();
             logSecurityAudit(auditId, sql, false, reason, startTime);
             log.error("SQL安全验证过程中发生异常: {}", sql, e);
             return false;
         }
     }
+
+    /**
+     * 按DANGEROUS_KEYWORDS的迭代顺序返回第一个出现的关键字
+     */
+    private static String findDangerousKeyword(String upperSql) {
+        for (Map.Entry<String, Pattern> entry : KEYWORD_PATTERNS.entrySet()) {
+            if (entry.getValue().matcher(upperSql).find()) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("危险关键字正则与单个关键字正则不一致");
+    }
+
+    /**
+     * 写入验证结论缓存并返回结论
+     * 验证期间缓存被清空（规则变更或模板重新加载）时不写入；写入后代数已变化时移除刚写入的结论
+     */
+    private boolean cacheVerdict(String sql, long generation, boolean safe, String reason) {
+        if (verdictCacheSize > 0 && cacheGeneration.get() == generation) {
+            if (verdictCache.size() >= verdictCacheSize) {
+                verdictCache.clear();
+            }
+            Verdict verdict = new Verdict(safe, reason, generation);
+            verdictCache.put(sql, verdict);
+            if (cacheGeneration.get() != generation) {
+                verdictCache.remove(sql, verdict);
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * 清空验证结论缓存
+     */
+    public void clearVerdictCache() {
+        cacheGeneration.incrementAndGet();
+        verdictCache.clear();
+        log.debug("SQL安全验证结论缓存已清空");
+    }
+
+    /**
+     * 获取验证结论缓存统计
+     *
+     * @return 缓存条目数、命中数和未命中数
+     */
+    public Map<String, Object> getVerdictCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", verdictCache.size());
+        stats.put("maxSize", verdictCacheSize);
+        stats.put("hits", cacheHits.get());
+        stats.put("misses", cacheMisses.get());
+        return stats;
+    }
     
     /**
      * 检查是否为参数化查询
@@ -163,12 +295,9 @@ public class SqlSecurityValidator {
         
         // 检查是否有直接的值（这是一个简化的检查）
         // 匹配模式：= 123 或 = 'value'
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("=\\s*\\d+|=\\s*'[^']*'");
-        java.util.regex.Matcher matcher = pattern.matcher(whereClause);
-        
         // 如果没有找到直接值，视为参数化查询
         // 注意：这是一个保守的检查，可能会误判一些复杂情况
-        return !matcher.find();
+        return !LITERAL_VALUE_PATTERN.matcher(whereClause).find();
     }
     
     /**
@@ -224,6 +353,7 @@ public class SqlSecurityValidator {
     public void addCustomSecurityRule(String pattern) {
         if (pattern != null && !pattern.trim().isEmpty()) {
             customDangerousPatterns.add(pattern);
+            clearVerdictCache();
             log.info("添加自定义安全规则: {}", pattern);
         }
     }
@@ -235,6 +365,8 @@ public class SqlSecurityValidator {
      */
     public void removeCustomSecurityRule(String pattern) {
         if (customDangerousPatterns.remove(pattern)) {
+            compiledCustomPatterns.remove(pattern);
+            clearVerdictCache();
             log.info("移除自定义安全规则: {}", pattern);
         }
     }
@@ -254,6 +386,14 @@ public class SqlSecurityValidator {
     public void clearCustomSecurityRules() {
         int count = customDangerousPatterns.size();
         customDangerousPatterns.clear();
+        compiledCustomPatterns.clear();
+        clearVerdictCache();
         log.info("清空所有自定义安全规则，共{}条", count);
     }
+
+    /**
+     * 缓存的验证结论及写入时的缓存代数
+     */
+    private record Verdict(boolean safe, String reason, long generation) {
+    }
 }
@@ -0,0 +1,153 @@
+package com.example.medaiassistant.hospital.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 医院数据同步舱壁
+ *
+ * <p>分别限制同时进行的HIS读取和主库写入数量。化验、检查、EMR、医嘱同步服务读取HIS和写入主库时
+ * 各自占用对应舱壁的许可，夜间同步并行处理病人时，HIS慢查询只占满读舱壁，不会挤占主库写入的并发，
+ * 反之亦然。</p>
+ *
+ * <p>每个舱壁累计调用次数、等待许可耗时和持有许可耗时，用于判断瓶颈在HIS侧还是主库侧。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Component
+@Slf4j
+public class SyncBulkheads {
+
+    private final Bulkhead hisRead;
+    private final Bulkhead mainDbWrite;
+
+    public SyncBulkheads(
+            @Value("${hospital.sync.bulkhead.his-read-concurrency:8}") int hisReadConcurrency,
+            @Value("${hospital.sync.bulkhead.main-db-write-concurrency:4}") int mainDbWriteConcurrency) {
+        this.hisRead = new Bulkhead("hisRead", hisReadConcurrency);
+        this.mainDbWrite = new Bulkhead("mainDbWrite", mainDbWriteConcurrency);
+        log.info("同步舱壁初始化 - HIS读取并发: {}, 主库写入并发: {}", hisRead.getPermits(), mainDbWrite.getPermits());
+    }
+
+    /**
+     * 占用HIS读取许可执行查询
+     *
+     * @param action 查询操作
+     * @return 查询结果
+     */
+    public <T> T readFromHis(Supplier<T> action) {
+        return hisRead.call(action);
+    }
+
+    /**
+     * 占用主库写入许可执行写入
+     *
+     * @param action 写入操作
+     * @return 写入结果
+     */
+    public <T> T writeToMainDb(Supplier<T> action) {
+        return mainDbWrite.call(action);
+    }
+
+    public Bulkhead getHisRead() {
+        return hisRead;
+    }
+
+    public Bulkhead getMainDbWrite() {
+        return mainDbWrite;
+    }
+
+    /**
+     * 舱壁统计快照
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(hisRead.getName(), hisRead.toMap());
+        map.put(mainDbWrite.getName(), mainDbWrite.toMap());
+        return map;
+    }
+
+    /**
+     * 单个舱壁：公平信号量加耗时统计
+     */
+    public static final class Bulkhead {
+
+        private final String name;
+        private final int permits;
+        private final Semaphore semaphore;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong holdNanos = new AtomicLong();
+
+        Bulkhead(String name, int permits) {
+            this.name = name;
+            this.permits = Math.max(1, permits);
+            this.semaphore = new Semaphore(this.permits, true);
+        }
+
+        <T> T call(Supplier<T> action) {
+            long requested = System.nanoTime();
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待" + name + "许可时被中断", e);
+            }
+            long acquired = System.nanoTime();
+            long waited = acquired - requested;
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            calls.incrementAndGet();
+            try {
+                return action.get();
+            } finally {
+                holdNanos.addAndGet(System.nanoTime() - acquired);
+                semaphore.release();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPermits() {
+            return permits;
+        }
+
+        /** 正在占用许可的调用数 */
+        public int getInUse() {
+            return permits - semaphore.availablePermits();
+        }
+
+        /** 正在等待许可的线程数 */
+        public int getWaiting() {
+            return semaphore.getQueueLength();
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public Map<String, Object> toMap() {
+            long count = calls.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("permits", permits);
+            map.put("inUse", getInUse());
+            map.put("waiting", getWaiting());
+            map.put("calls", count);
+            map.put("avgWaitMs", count == 0 ? 0 : waitNanos.get() / count / 1_000_000);
+            map.put("maxWaitMs", maxWaitNanos.get() / 1_000_000);
+            map.put("avgHoldMs", count == 0 ? 0 : holdNanos.get() / count / 1_000_000);
+            return map;
+        }
+    }
+}
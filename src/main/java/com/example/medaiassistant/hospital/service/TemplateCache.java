@@ -6,222 +6,304 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
 /**
  * 模板缓存管理
  * 负责缓存SQL模板，支持热更新
- * 
+ *
+ * <p>缓存内容发布为不可变快照（文件路径、查询名称、分类三个索引），由一个volatile引用持有，
+ * 读取只取一次快照引用后查哈希表，不加锁。加载和热更新在锁外解析模板文件，再在写锁内基于当前快照
+ * 构建新快照并整体替换，读取方看到的要么是旧快照要么是新快照，不会看到更新到一半的索引。</p>
+ *
+ * <p>热更新时模板文件解析或验证失败，保留上一个有效版本。</p>
+ *
+ * <p>每次发布新快照后通知已注册的重新加载监听器（例如清空按SQL文本缓存的安全验证结论）。</p>
+ *
  * @author System
- * @version 1.0
+ * @version 1.1
  * @since 2025-12-03
  */
 @Slf4j
 @Component
 public class TemplateCache {
-    
+
     private final JsonTemplateParser jsonTemplateParser;
-    private final Map<String, SqlTemplate> templateCache = new ConcurrentHashMap<>();
-    private final Map<String, Path> templatePaths = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    
+
+    /** 当前快照，读取方无锁访问 */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** 串行化快照替换（只在构建和发布新快照时持有，不覆盖文件解析） */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** 快照发布后的回调 */
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+
     public TemplateCache(JsonTemplateParser jsonTemplateParser) {
         this.jsonTemplateParser = jsonTemplateParser;
     }
-    
+
+    /**
+     * 注册模板加载、重新加载、移除或清空后的回调
+     *
+     * @param listener 回调（在发布快照的线程中执行，不持有锁）
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
     /**
      * 获取模板
-     * 
+     *
      * @param filePath 模板文件路径
      * @return SQL模板对象
      */
     public SqlTemplate getTemplate(String filePath) {
-        lock.readLock().lock();
-        try {
-            SqlTemplate template = templateCache.get(filePath);
-            if (template != null) {
-                return template;
-            }
-        } finally {
-            lock.readLock().unlock();
+        CachedTemplate cached = snapshot.byPath.get(filePath);
+        if (cached != null) {
+            return cached.template;
         }
-        
+
         // 缓存未命中，加载模板
         return loadTemplate(filePath);
     }
-    
+
     /**
      * 获取模板（通过查询名称）
-     * 
+     *
      * @param queryName 查询名称
      * @return SQL模板对象
      */
     public SqlTemplate getTemplateByName(String queryName) {
-        lock.readLock().lock();
-        try {
-            return templateCache.values().stream()
-                    .filter(template -> queryName.equals(template.getQueryName()))
-                    .findFirst()
-                    .orElse(null);
-        } finally {
-            lock.readLock().unlock();
+        if (queryName == null) {
+            return null;
         }
+        return snapshot.byName.get(queryName);
     }
-    
+
+    /**
+     * 获取指定分类（metadata.category）的所有模板
+     *
+     * @param category 分类名称
+     * @return 模板列表（按加载顺序），没有时返回空列表
+     */
+    public List<SqlTemplate> getTemplatesByCategory(String category) {
+        if (category == null) {
+            return List.of();
+        }
+        return snapshot.byCategory.getOrDefault(category, List.of());
+    }
+
     /**
      * 加载模板到缓存
-     * 
+     *
      * @param filePath 模板文件路径
      * @return 加载的SQL模板对象
      */
     public SqlTemplate loadTemplate(String filePath) {
-        lock.writeLock().lock();
-        try {
-            Path path = Path.of(filePath);
-            SqlTemplate template = jsonTemplateParser.parseFromFile(path);
-            
-            if (template != null && jsonTemplateParser.validateTemplate(template)) {
-                templateCache.put(filePath, template);
-                templatePaths.put(filePath, path);
-                log.info("模板已加载到缓存: {} -> {}", filePath, template.getQueryName());
-                return template;
-            } else {
-                log.error("模板加载或验证失败: {}", filePath);
-                return null;
-            }
-        } catch (IOException e) {
-            log.error("加载模板文件失败: {}", filePath, e);
+        Path path = Path.of(filePath);
+        SqlTemplate template = parse(filePath, path);
+        if (template == null) {
             return null;
-        } finally {
-            lock.writeLock().unlock();
         }
+
+        publish(current -> current.with(filePath, new CachedTemplate(path, template)));
+        log.info("模板已加载到缓存: {} -> {}", filePath, template.getQueryName());
+        return template;
     }
-    
+
     /**
      * 处理文件变更事件
-     * 
+     *
      * @param filePath 变更的文件路径
      */
     public void onFileChanged(String filePath) {
         log.info("检测到模板文件变更，重新加载: {}", filePath);
-        
-        // 从缓存中移除旧模板
-        lock.writeLock().lock();
-        try {
-            templateCache.remove(filePath);
-            templatePaths.remove(filePath);
-        } finally {
-            lock.writeLock().unlock();
+
+        // 新模板解析成功后整体替换，失败时保留旧模板
+        if (loadTemplate(filePath) == null && snapshot.byPath.containsKey(filePath)) {
+            log.warn("模板重新加载失败，继续使用上一个有效版本: {}", filePath);
         }
-        
-        // 重新加载模板
-        loadTemplate(filePath);
     }
-    
+
     /**
      * 从缓存中移除模板
-     * 
+     *
      * @param filePath 模板文件路径
      * @return 是否成功移除
      */
     public boolean removeTemplate(String filePath) {
-        lock.writeLock().lock();
-        try {
-            SqlTemplate removed = templateCache.remove(filePath);
-            templatePaths.remove(filePath);
-            
-            if (removed != null) {
-                log.info("模板已从缓存移除: {} -> {}", filePath, removed.getQueryName());
-                return true;
-            }
-            return false;
-        } finally {
-            lock.writeLock().unlock();
+        CachedTemplate[] removed = new CachedTemplate[1];
+        publish(current -> {
+            removed[0] = current.byPath.get(filePath);
+            return removed[0] == null ? current : current.without(filePath);
+        });
+
+        if (removed[0] != null) {
+            log.info("模板已从缓存移除: {} -> {}", filePath, removed[0].template.getQueryName());
+            return true;
         }
+        return false;
     }
-    
+
     /**
      * 清空缓存
      */
     public void clearCache() {
-        lock.writeLock().lock();
-        try {
-            int size = templateCache.size();
-            templateCache.clear();
-            templatePaths.clear();
-            log.info("模板缓存已清空，移除了 {} 个模板", size);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        int[] size = new int[1];
+        publish(current -> {
+            size[0] = current.byPath.size();
+            return Snapshot.EMPTY;
+        });
+        log.info("模板缓存已清空，移除了 {} 个模板", size[0]);
     }
-    
+
     /**
      * 获取缓存大小
      */
     public int getCacheSize() {
-        lock.readLock().lock();
-        try {
-            return templateCache.size();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.byPath.size();
     }
-    
+
     /**
      * 检查模板是否在缓存中
      */
     public boolean containsTemplate(String filePath) {
-        lock.readLock().lock();
-        try {
-            return templateCache.containsKey(filePath);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.byPath.containsKey(filePath);
     }
-    
+
     /**
      * 获取所有缓存的模板查询名称
      */
     public String[] getCachedTemplateNames() {
-        lock.readLock().lock();
-        try {
-            return templateCache.values().stream()
-                    .map(SqlTemplate::getQueryName)
-                    .toArray(String[]::new);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return snapshot.byPath.values().stream()
+                .map(cached -> cached.template.getQueryName())
+                .toArray(String[]::new);
     }
-    
+
     /**
      * 重新加载所有缓存中的模板
+     *
+     * <p>先在锁外解析全部模板文件，再一次性发布新快照。</p>
+     *
      * @return 成功重新加载的模板数量
      */
     public int reloadAllTemplates() {
-        lock.writeLock().lock();
+        Map<String, CachedTemplate> current = snapshot.byPath;
+        Map<String, CachedTemplate> reloaded = new LinkedHashMap<>();
+        for (Map.Entry<String, CachedTemplate> entry : current.entrySet()) {
+            SqlTemplate template = parse(entry.getKey(), entry.getValue().path);
+            if (template != null) {
+                reloaded.put(entry.getKey(), new CachedTemplate(entry.getValue().path, template));
+                log.debug("模板重新加载成功: {}", entry.getKey());
+            }
+        }
+
+        publish(latest -> {
+            Map<String, CachedTemplate> byPath = new LinkedHashMap<>(latest.byPath);
+            // 只替换仍在缓存中的模板，解析期间被移除的不再加回
+            reloaded.forEach((filePath, cached) -> byPath.computeIfPresent(filePath, (k, v) -> cached));
+            return Snapshot.of(byPath);
+        });
+
+        log.info("重新加载了 {}/{} 个模板", reloaded.size(), current.size());
+        return reloaded.size();
+    }
+
+    /**
+     * 解析并验证模板文件（不持有锁）
+     */
+    private SqlTemplate parse(String filePath, Path path) {
         try {
-            int successCount = 0;
-            Map<String, Path> pathsCopy = new ConcurrentHashMap<>(templatePaths);
-            
-            for (Map.Entry<String, Path> entry : pathsCopy.entrySet()) {
-                try {
-                    SqlTemplate template = jsonTemplateParser.parseFromFile(entry.getValue());
-                    if (template != null && jsonTemplateParser.validateTemplate(template)) {
-                        templateCache.put(entry.getKey(), template);
-                        successCount++;
-                        log.debug("模板重新加载成功: {}", entry.getKey());
-                    }
-                } catch (IOException e) {
-                    log.error("重新加载模板失败: {}", entry.getKey(), e);
-                }
+            SqlTemplate template = jsonTemplateParser.parseFromFile(path);
+            if (template != null && jsonTemplateParser.validateTemplate(template)) {
+                return template;
             }
-            
-            log.info("重新加载了 {}/{} 个模板", successCount, pathsCopy.size());
-            return successCount;
+            log.error("模板加载或验证失败: {}", filePath);
+        } catch (IOException e) {
+            log.error("加载模板文件失败: {}", filePath, e);
+        }
+        return null;
+    }
+
+    /**
+     * 基于当前快照构建新快照并发布，然后通知重新加载监听器
+     */
+    private void publish(UnaryOperator<Snapshot> update) {
+        writeLock.lock();
+        try {
+            snapshot = update.apply(snapshot);
         } finally {
-            lock.writeLock().unlock();
+            writeLock.unlock();
+        }
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("模板缓存重新加载回调执行失败", e);
+            }
+        }
+    }
+
+    /**
+     * 缓存的模板及其文件路径
+     */
+    private record CachedTemplate(Path path, SqlTemplate template) {
+    }
+
+    /**
+     * 不可变缓存快照：文件路径、查询名称、分类三个索引
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of());
+
+        private final Map<String, CachedTemplate> byPath;
+        private final Map<String, SqlTemplate> byName;
+        private final Map<String, List<SqlTemplate>> byCategory;
+
+        private Snapshot(Map<String, CachedTemplate> byPath, Map<String, SqlTemplate> byName,
+                         Map<String, List<SqlTemplate>> byCategory) {
+            this.byPath = byPath;
+            this.byName = byName;
+            this.byCategory = byCategory;
+        }
+
+        /**
+         * 按文件路径索引构建快照（byPath须为新建的Map，之后不再修改），同名模板取先加载的一个
+         */
+        private static Snapshot of(Map<String, CachedTemplate> byPath) {
+            Map<String, SqlTemplate> byName = new HashMap<>();
+            Map<String, List<SqlTemplate>> byCategory = new HashMap<>();
+            for (CachedTemplate cached : byPath.values()) {
+                SqlTemplate template = cached.template;
+                if (template.getQueryName() != null) {
+                    byName.putIfAbsent(template.getQueryName(), template);
+                }
+                if (template.getMetadata() != null && template.getMetadata().getCategory() != null) {
+                    byCategory.computeIfAbsent(template.getMetadata().getCategory(), k -> new ArrayList<>())
+                            .add(template);
+                }
+            }
+            Map<String, List<SqlTemplate>> categories = new HashMap<>();
+            byCategory.forEach((category, templates) -> categories.put(category, List.copyOf(templates)));
+            return new Snapshot(Collections.unmodifiableMap(byPath), Map.copyOf(byName),
+                    Map.copyOf(categories));
+        }
+
+        private Snapshot with(String filePath, CachedTemplate cached) {
+            Map<String, CachedTemplate> next = new LinkedHashMap<>(byPath);
+            next.put(filePath, cached);
+            return of(next);
+        }
+
+        private Snapshot without(String filePath) {
+            Map<String, CachedTemplate> next = new LinkedHashMap<>(byPath);
+            next.remove(filePath);
+            return of(next);
         }
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -70,7 +71,7 @@ public class ThreadSafeTemplateManager {
     }
     
     /**
-     * 获取模板（线程安全）
+     * 获取模板（线程安全，读取TemplateCache的不可变快照，不加锁）
      * 
      * @param filePath 模板文件路径
      * @return SQL模板对象
@@ -207,16 +208,20 @@ public class ThreadSafeTemplateManager {
             return true; // 没有锁，说明没有更新在进行
         }
         
-        long startTime = System.currentTimeMillis();
-        while (lock.isLocked() && (System.currentTimeMillis() - startTime) < timeoutMs) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
-            }
+        if (lock.isHeldByCurrentThread()) {
+            return true;
         }
         
-        return !lock.isLocked();
+        // 阻塞等待文件锁释放（不轮询），拿到锁即说明更新已完成
+        try {
+            if (lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                lock.unlock();
+                return true;
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
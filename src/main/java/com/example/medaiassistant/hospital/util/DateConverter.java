@@ -2,8 +2,16 @@ package com.example.medaiassistant.hospital.util;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.sql.Timestamp;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
 import java.util.Date;
 
 /**
@@ -17,6 +25,17 @@ import java.util.Date;
 @Slf4j
 public class DateConverter {
     
+    /**
+     * 同步数据常用时间格式（依次尝试），DateTimeFormatter线程安全，全局共享
+     * <p>单字母字段兼容1-2位数字，与原SimpleDateFormat宽松解析的结果一致</p>
+     */
+    private static final DateTimeFormatter[] TIMESTAMP_FORMATTERS = {
+        DateTimeFormatter.ofPattern("y-M-d H:m:s"),
+        DateTimeFormatter.ofPattern("y/M/d H:m:s"),
+        DateTimeFormatter.ofPattern("y-M-d"),
+        DateTimeFormatter.ofPattern("y/M/d")
+    };
+    
     /**
      * 将对象转换为Date类型
      * 支持多种日期格式的转换
@@ -107,4 +126,49 @@ public class DateConverter {
     public static String formatToOracleDate(Date date) {
         return formatDate(date, "yyyy-MM-dd HH:mm:ss");
     }
+    
+    /**
+     * 解析时间字符串为Timestamp
+     * 依次尝试 yyyy-MM-dd HH:mm:ss、yyyy/MM/dd HH:mm:ss、yyyy-MM-dd、yyyy/MM/dd，
+     * 忽略格式之后的多余字符（如毫秒".0"）
+     * 
+     * @param text 时间字符串
+     * @return Timestamp，为空或无法解析时返回null
+     */
+    public static Timestamp parseTimestamp(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String trimmed = text.trim();
+        for (DateTimeFormatter formatter : TIMESTAMP_FORMATTERS) {
+            // 先做不抛异常的试探解析，格式不匹配时不产生异常开销
+            ParsePosition position = new ParsePosition(0);
+            if (formatter.parseUnresolved(trimmed, position) != null && position.getErrorIndex() < 0) {
+                Timestamp timestamp = parseTimestamp(trimmed, formatter);
+                if (timestamp != null) {
+                    return timestamp;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 按指定格式解析时间字符串为Timestamp，格式不含时分秒时取当天零点
+     * 
+     * @param text 时间字符串（已去除首尾空白）
+     * @param formatter 时间格式
+     * @return Timestamp，无法解析时返回null
+     */
+    public static Timestamp parseTimestamp(String text, DateTimeFormatter formatter) {
+        try {
+            TemporalAccessor parsed = formatter.parse(text, new ParsePosition(0));
+            if (parsed.isSupported(ChronoField.HOUR_OF_DAY)) {
+                return Timestamp.valueOf(LocalDateTime.from(parsed));
+            }
+            return Timestamp.valueOf(LocalDate.from(parsed).atStartOfDay());
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
 }
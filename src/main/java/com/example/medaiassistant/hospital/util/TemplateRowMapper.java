@@ -0,0 +1,274 @@
+package com.example.medaiassistant.hospital.util;
+
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * SQL模板编译后的行映射器
+ *
+ * <p>ColumnMapRowMapper每行都要读取ResultSetMetaData、按列名建立大小写不敏感的Map并逐个判断取值类型，
+ * 同步服务再按列名取值、用多个日期格式依次尝试解析时间字符串。模板行映射器在首次查询时从ResultSetMetaData
+ * 解析一次列序号和列名，为每列预先选定取值转换器，之后每行只按序号取值：</p>
+ * <ul>
+ *   <li>模板{@code columns}中声明为timestamp的列按声明的format（线程安全的DateTimeFormatter）解析为Timestamp</li>
+ *   <li>其余列按JDBC类型选择转换器：字符/CLOB列直接取字符串，TIMESTAMP列取Timestamp，NUMBER列取BigDecimal</li>
+ *   <li>行数据为共享列序号表的数组，对外仍是大小写不敏感的{@code Map<String, Object>}，同步服务无需修改</li>
+ * </ul>
+ *
+ * <p>列结构与上次查询不同（模板热更新后SQL变化）时重新编译。映射器由{@link SqlTemplate#getRowMapper()}
+ * 按模板实例懒加载，模板重新加载后随新实例重新编译。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class TemplateRowMapper implements RowMapper<Map<String, Object>> {
+
+    /** 模板声明的列，键为大写列名 */
+    private final Map<String, SqlTemplate.Column> declaredColumns;
+
+    /** 最近一次编译的结果集映射 */
+    private volatile CompiledMapper compiled;
+
+    public TemplateRowMapper(List<SqlTemplate.Column> columns) {
+        Map<String, SqlTemplate.Column> declared = new HashMap<>();
+        if (columns != null) {
+            for (SqlTemplate.Column column : columns) {
+                if (column.getName() != null) {
+                    declared.put(column.getName().trim().toUpperCase(Locale.ROOT), column);
+                }
+            }
+        }
+        this.declaredColumns = declared;
+    }
+
+    /**
+     * 按结果集列结构取编译后的映射器（列结构不变时复用上次的编译结果）
+     *
+     * <p>查询方应每个结果集调用一次，再用返回的映射器逐行映射。</p>
+     *
+     * @param metaData 结果集元数据
+     * @return 绑定列序号的映射器
+     */
+    public CompiledMapper compile(ResultSetMetaData metaData) throws SQLException {
+        CompiledMapper current = compiled;
+        if (current != null && current.matches(metaData)) {
+            return current;
+        }
+        CompiledMapper fresh = new CompiledMapper(metaData, declaredColumns);
+        compiled = fresh;
+        return fresh;
+    }
+
+    /**
+     * 单行映射（每行检查一次列结构），批量读取时应先{@link #compile}再逐行映射
+     */
+    @Override
+    public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return compile(rs.getMetaData()).mapRow(rs, rowNum);
+    }
+
+    /**
+     * 绑定列序号和列转换器的映射器
+     */
+    public static final class CompiledMapper implements RowMapper<Map<String, Object>> {
+
+        private final String[] labels;
+        private final int[] jdbcTypes;
+        private final ColumnReader[] readers;
+        private final Map<String, Integer> indexByLabel;
+
+        private CompiledMapper(ResultSetMetaData metaData, Map<String, SqlTemplate.Column> declaredColumns)
+                throws SQLException {
+            int count = metaData.getColumnCount();
+            labels = new String[count];
+            jdbcTypes = new int[count];
+            readers = new ColumnReader[count];
+            Map<String, Integer> index = new LinkedCaseInsensitiveMap<>(count);
+            for (int i = 0; i < count; i++) {
+                labels[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+                jdbcTypes[i] = metaData.getColumnType(i + 1);
+                readers[i] = readerFor(declaredColumns.get(labels[i].toUpperCase(Locale.ROOT)), jdbcTypes[i]);
+                index.put(labels[i], i);
+            }
+            indexByLabel = index;
+        }
+
+        private boolean matches(ResultSetMetaData metaData) throws SQLException {
+            if (metaData.getColumnCount() != labels.length) {
+                return false;
+            }
+            for (int i = 0; i < labels.length; i++) {
+                if (metaData.getColumnType(i + 1) != jdbcTypes[i]
+                        || !labels[i].equals(JdbcUtils.lookupColumnName(metaData, i + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Object[] values = new Object[readers.length];
+            for (int i = 0; i < readers.length; i++) {
+                values[i] = readers[i].read(rs, i + 1);
+            }
+            return new CompiledRow(this, values);
+        }
+
+        private int indexOf(Object key) {
+            if (!(key instanceof String label)) {
+                return -1;
+            }
+            Integer index = indexByLabel.get(label);
+            return index == null ? -1 : index;
+        }
+    }
+
+    /**
+     * 单列取值转换器
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    /**
+     * 按模板声明和JDBC类型选择列转换器，未识别的类型与ColumnMapRowMapper取值一致
+     */
+    static ColumnReader readerFor(SqlTemplate.Column declared, int jdbcType) {
+        String type = declared == null || declared.getType() == null
+            ? "" : declared.getType().trim().toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "timestamp", "datetime", "date" -> timestampReader(declared.getFormat(), jdbcType);
+            case "string", "varchar", "clob" -> ResultSet::getString;
+            case "decimal", "number" -> ResultSet::getBigDecimal;
+            case "integer", "int" -> (rs, index) -> {
+                int value = rs.getInt(index);
+                return rs.wasNull() ? null : value;
+            };
+            case "long" -> (rs, index) -> {
+                long value = rs.getLong(index);
+                return rs.wasNull() ? null : value;
+            };
+            default -> readerForJdbcType(jdbcType);
+        };
+    }
+
+    private static ColumnReader readerForJdbcType(int jdbcType) {
+        return switch (jdbcType) {
+            case Types.CHAR, Types.VARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGVARCHAR,
+                 Types.LONGNVARCHAR, Types.CLOB, Types.NCLOB -> ResultSet::getString;
+            case Types.TIMESTAMP -> ResultSet::getTimestamp;
+            case Types.NUMERIC, Types.DECIMAL -> ResultSet::getBigDecimal;
+            default -> JdbcUtils::getResultSetValue;
+        };
+    }
+
+    /**
+     * 时间列转换器：字符列按声明格式解析（未声明时按常用格式依次尝试），无法解析时保留原字符串交给同步服务处理
+     */
+    private static ColumnReader timestampReader(String format, int jdbcType) {
+        boolean textColumn = switch (jdbcType) {
+            case Types.CHAR, Types.VARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGVARCHAR,
+                 Types.LONGNVARCHAR -> true;
+            default -> false;
+        };
+        if (!textColumn) {
+            return ResultSet::getTimestamp;
+        }
+        DateTimeFormatter formatter = format == null || format.isBlank() ? null : DateTimeFormatter.ofPattern(format);
+        return (rs, index) -> {
+            String text = rs.getString(index);
+            if (text == null || text.isBlank()) {
+                return text;
+            }
+            String trimmed = text.trim();
+            Timestamp timestamp = formatter != null
+                ? DateConverter.parseTimestamp(trimmed, formatter)
+                : DateConverter.parseTimestamp(trimmed);
+            return timestamp != null ? timestamp : text;
+        };
+    }
+
+    /**
+     * 编译后的一行数据：值数组 + 共享的列序号表，列名大小写不敏感
+     *
+     * <p>可修改已有列的值；新增的键保存在附加Map中。不支持删除列。</p>
+     */
+    static final class CompiledRow extends AbstractMap<String, Object> {
+
+        private final CompiledMapper mapper;
+        private final Object[] values;
+        private Map<String, Object> extra;
+
+        private CompiledRow(CompiledMapper mapper, Object[] values) {
+            this.mapper = mapper;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = mapper.indexOf(key);
+            if (index >= 0) {
+                return values[index];
+            }
+            return extra == null ? null : extra.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return mapper.indexOf(key) >= 0 || (extra != null && extra.containsKey(key));
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            int index = mapper.indexOf(key);
+            if (index >= 0) {
+                Object previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            if (extra == null) {
+                extra = new LinkedCaseInsensitiveMap<>();
+            }
+            return extra.put(key, value);
+        }
+
+        @Override
+        public int size() {
+            return values.length + (extra == null ? 0 : extra.size());
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    List<Entry<String, Object>> entries = new ArrayList<>(size());
+                    for (int i = 0; i < values.length; i++) {
+                        entries.add(new SimpleImmutableEntry<>(mapper.labels[i], values[i]));
+                    }
+                    if (extra != null) {
+                        entries.addAll(extra.entrySet());
+                    }
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompiledRow.this.size();
+                }
+            };
+        }
+    }
+}
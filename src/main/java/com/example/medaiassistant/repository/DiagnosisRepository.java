@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,12 @@ public interface DiagnosisRepository extends JpaRepository<Diagnosis, Integer> {
 @Query("SELECT d FROM Diagnosis d WHERE d.patientId = :patientId AND (d.isDeleted = 0 OR d.isDeleted IS NULL)")
 List<Diagnosis> findByPatientId(@Param("patientId") String patientId);
 
+/**
+ * 批量查询多个患者的有效诊断（病区批量筛选用，调用方按IN列表上限分批）
+ */
+@Query("SELECT d FROM Diagnosis d WHERE d.patientId IN :patientIds AND (d.isDeleted = 0 OR d.isDeleted IS NULL)")
+List<Diagnosis> findByPatientIdIn(@Param("patientIds") Collection<String> patientIds);
+
 @Query("SELECT d FROM Diagnosis d WHERE d.isDeleted = 0 OR d.isDeleted IS NULL")
 List<Diagnosis> findAllActiveDiagnoses();
 
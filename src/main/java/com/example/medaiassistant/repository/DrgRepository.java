@@ -97,4 +97,13 @@ public interface DrgRepository extends JpaRepository<Drg, Long> {
      */
     @Query("SELECT COUNT(d) FROM Drg d WHERE d.mainProcedures IS NULL OR d.mainProcedures = ''")
     long countDrgsWithoutProcedures();
+    
+    /**
+     * 查询每条DRG记录的行变更版本，不读取CLOB列，用于目录增量刷新
+     * ORA_ROWSCN为行（或所在数据块）最近一次提交的SCN，行被修改后一定变大
+     * 
+     * @return [DRGID, ORA_ROWSCN] 列表
+     */
+    @Query(value = "SELECT DRGID, ORA_ROWSCN FROM DRGS", nativeQuery = true)
+    List<Object[]> findRowChangeVersions();
 }
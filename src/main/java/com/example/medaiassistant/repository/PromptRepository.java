@@ -5,7 +5,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +25,14 @@ public interface PromptRepository extends JpaRepository<Prompt, Integer> {
     
     long countByStatusName(String statusName);
 
+    /**
+     * 按PromptId升序分页查询指定状态的Prompt ID（键集分页）
+     * 只返回ID，处理过程中状态变化不会导致后续页跳过记录
+     */
+    @Query("SELECT p.promptId FROM Prompt p WHERE p.statusName IN :statusNames AND p.promptId > :afterPromptId ORDER BY p.promptId")
+    List<Integer> findPromptIdsByStatusNameInAfter(@Param("statusNames") Collection<String> statusNames,
+            @Param("afterPromptId") Integer afterPromptId, Pageable pageable);
+
     long countByPatientIdAndPromptTemplateNameAndSubmissionTimeAfter(String patientId, String promptTemplateName, java.time.LocalDateTime submissionTimeAfter);
 
     Optional<Prompt> findTopByPatientIdAndPromptTemplateNameOrderBySubmissionTimeDesc(String patientId, String promptTemplateName);
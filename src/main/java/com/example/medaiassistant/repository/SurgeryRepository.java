@@ -6,10 +6,16 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
 @Repository
 public interface SurgeryRepository extends JpaRepository<Surgery, Integer> {
     List<Surgery> findByPatientId(String patientId);
+
+    /**
+     * 批量查询多个患者的手术（病区批量筛选用，调用方按IN列表上限分批）
+     */
+    List<Surgery> findByPatientIdIn(Collection<String> patientIds);
 }
@@ -1,5 +1,6 @@
 package com.example.medaiassistant.repository.executionserver;
 
+import com.example.medaiassistant.dto.EncryptedDataStatusDTO;
 import com.example.medaiassistant.model.DataStatus;
 import com.example.medaiassistant.model.EncryptedDataTemp;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +34,18 @@ public interface ExecutionServerEncryptedDataTempRepository extends JpaRepositor
      */
     Optional<EncryptedDataTemp> findByRequestId(String requestId);
 
+    /**
+     * 根据请求ID列表批量查询记录状态
+     * 只选择ID、REQUEST_ID、STATUS和version字段，不加载CLOB字段，
+     * 用于轮询服务一次核对一页Prompt的处理状态
+     * 
+     * @param requestIds 请求ID列表（Oracle限制IN列表不超过1000项）
+     * @return 加密数据状态列表，不存在的请求ID不返回
+     */
+    @Query("SELECT new com.example.medaiassistant.dto.EncryptedDataStatusDTO(e.id, e.requestId, e.status, e.version) " +
+            "FROM EncryptedDataTemp e WHERE e.requestId IN :requestIds")
+    List<EncryptedDataStatusDTO> findStatusByRequestIdIn(@Param("requestIds") Collection<String> requestIds);
+
     /**
      * 根据状态查找记录
      * 
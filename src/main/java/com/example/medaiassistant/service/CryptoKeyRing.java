@@ -0,0 +1,228 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.ServerConfiguration;
+import com.example.medaiassistant.util.AESEncryptionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * AES密钥环
+ *
+ * 缓存由AES_ENCRYPTION_KEY与AES_ENCRYPTION_SALT派生出的AES密钥，避免每次加解密都
+ * 查询两次配置表并执行65536次PBKDF2迭代：
+ * 1. 同一组(密钥, 盐值)只派生一次，派生结果以版本号标识
+ * 2. 通过ServerConfigService保存配置后立即重新读取配置；直接修改数据库的变更
+ *    在重新校验间隔到期后被发现
+ * 3. 重新读取时配置内容未变化则沿用已派生的密钥，内容变化时派生新版本（密钥轮换）
+ *
+ * 加解密本身由AESEncryptionUtil完成，Cipher与SecureRandom按线程复用。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Component
+public class CryptoKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(CryptoKeyRing.class);
+
+    public static final String KEY_CONFIG_NAME = "AES_ENCRYPTION_KEY";
+    public static final String SALT_CONFIG_NAME = "AES_ENCRYPTION_SALT";
+
+    /**
+     * 重新校验配置内容的间隔（毫秒）
+     */
+    static final long REVALIDATE_INTERVAL_MILLIS = 60_000L;
+
+    private final ServerConfigService serverConfigService;
+    private final LongSupplier clock;
+    private final AtomicReference<KeyVersion> current = new AtomicReference<>();
+    private final Object refreshLock = new Object();
+
+    @Autowired
+    public CryptoKeyRing(ServerConfigService serverConfigService) {
+        this(serverConfigService, System::currentTimeMillis);
+    }
+
+    CryptoKeyRing(ServerConfigService serverConfigService, LongSupplier clock) {
+        this.serverConfigService = serverConfigService;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取当前密钥版本
+     *
+     * 缓存有效时直接返回；需要重新读取配置时只有一个线程执行读取和派生，
+     * 其余线程等待其结果。
+     *
+     * @return 当前密钥版本（配置缺失时isPresent()为false）
+     * @throws Exception 密钥派生失败时抛出
+     */
+    public KeyVersion currentKey() throws Exception {
+        KeyVersion version = current.get();
+        if (isFresh(version)) {
+            return version;
+        }
+        synchronized (refreshLock) {
+            version = current.get();
+            if (isFresh(version)) {
+                return version;
+            }
+            version = reload(version);
+            current.set(version);
+            return version;
+        }
+    }
+
+    /**
+     * 判断AES加密配置是否完整（密钥与盐值均已配置且非空白）
+     *
+     * @return 配置完整返回true
+     */
+    public boolean isConfigured() throws Exception {
+        return currentKey().isUsable();
+    }
+
+    /**
+     * 使用当前密钥加密
+     *
+     * @param plainText 明文
+     * @return Base64编码的加密字符串
+     * @throws IllegalStateException 当AES加密配置未找到时抛出
+     * @throws IllegalArgumentException 当明文、密钥或盐值为空时抛出
+     * @throws Exception 加密失败时抛出
+     */
+    public String encrypt(String plainText) throws Exception {
+        return AESEncryptionUtil.encrypt(plainText, requireKey().getKeySpec());
+    }
+
+    /**
+     * 使用当前密钥解密
+     *
+     * @param encryptedText Base64编码的加密字符串
+     * @return 解密后的明文
+     * @throws IllegalStateException 当AES加密配置未找到时抛出
+     * @throws IllegalArgumentException 当密文、密钥或盐值为空时抛出
+     * @throws Exception 解密失败时抛出
+     */
+    public String decrypt(String encryptedText) throws Exception {
+        return AESEncryptionUtil.decrypt(encryptedText, requireKey().getKeySpec());
+    }
+
+    /**
+     * 使缓存失效，下次使用时重新读取配置
+     */
+    public void invalidate() {
+        current.set(null);
+    }
+
+    private KeyVersion requireKey() throws Exception {
+        KeyVersion version = currentKey();
+        if (!version.isPresent()) {
+            throw new IllegalStateException("AES加密配置未找到");
+        }
+        if (version.getKeySpec() == null) {
+            throw new IllegalArgumentException(isEmpty(version.secretKey) ? "加密密钥不能为空" : "盐值不能为空");
+        }
+        return version;
+    }
+
+    private boolean isFresh(KeyVersion version) {
+        return version != null
+            && version.configRevision == serverConfigService.getConfigRevision()
+            && clock.getAsLong() - version.validatedAt < REVALIDATE_INTERVAL_MILLIS;
+    }
+
+    private KeyVersion reload(KeyVersion previous) throws Exception {
+        long revision = serverConfigService.getConfigRevision();
+        long now = clock.getAsLong();
+
+        ServerConfiguration keyConfig = serverConfigService.getConfigByName(KEY_CONFIG_NAME);
+        ServerConfiguration saltConfig = serverConfigService.getConfigByName(SALT_CONFIG_NAME);
+        boolean present = keyConfig != null && saltConfig != null;
+        String secretKey = present ? keyConfig.getConfigData() : null;
+        String salt = present ? saltConfig.getConfigData() : null;
+
+        if (previous != null && previous.sameMaterial(present, secretKey, salt)) {
+            return previous.revalidated(revision, now);
+        }
+
+        SecretKeySpec keySpec = null;
+        if (present && !isEmpty(secretKey) && !isEmpty(salt)) {
+            keySpec = AESEncryptionUtil.deriveKey(secretKey, salt);
+        }
+        long versionNumber = previous != null ? previous.version + 1 : 1;
+        if (previous != null) {
+            logger.info("AES加密配置已变更，密钥轮换至版本 {}", versionNumber);
+        }
+        return new KeyVersion(versionNumber, present, secretKey, salt, keySpec, revision, now);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * 某一版本的(密钥, 盐值)及其派生出的AES密钥（不可变）
+     */
+    public static final class KeyVersion {
+        private final long version;
+        private final boolean present;
+        private final String secretKey;
+        private final String salt;
+        private final SecretKeySpec keySpec;
+        private final long configRevision;
+        private final long validatedAt;
+
+        private KeyVersion(long version, boolean present, String secretKey, String salt,
+                           SecretKeySpec keySpec, long configRevision, long validatedAt) {
+            this.version = version;
+            this.present = present;
+            this.secretKey = secretKey;
+            this.salt = salt;
+            this.keySpec = keySpec;
+            this.configRevision = configRevision;
+            this.validatedAt = validatedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 密钥与盐值配置记录是否都存在
+         */
+        public boolean isPresent() {
+            return present;
+        }
+
+        /**
+         * 密钥与盐值是否都已配置且非空白
+         */
+        public boolean isUsable() {
+            return present && secretKey != null && !secretKey.trim().isEmpty()
+                && salt != null && !salt.trim().isEmpty();
+        }
+
+        /**
+         * 派生出的AES密钥，配置缺失或为空时返回null
+         */
+        public SecretKeySpec getKeySpec() {
+            return keySpec;
+        }
+
+        private boolean sameMaterial(boolean otherPresent, String otherKey, String otherSalt) {
+            return present == otherPresent && Objects.equals(secretKey, otherKey) && Objects.equals(salt, otherSalt);
+        }
+
+        private KeyVersion revalidated(long revision, long now) {
+            return new KeyVersion(version, present, secretKey, salt, keySpec, revision, now);
+        }
+    }
+}
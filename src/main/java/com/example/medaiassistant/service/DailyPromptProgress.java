@@ -0,0 +1,155 @@
+package com.example.medaiassistant.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 每日Prompt生成任务的运行进度
+ *
+ * 记录已处理患者数、失败数和已生成Prompt数，按已用时间和已处理患者数推算剩余时间（ETA），
+ * 供接口查询和日志输出。每次运行创建一个新实例，各处理线程并发更新。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public class DailyPromptProgress {
+
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final AtomicInteger processedPatients = new AtomicInteger();
+    private final AtomicInteger failedPatients = new AtomicInteger();
+    private final AtomicInteger promptsGenerated = new AtomicInteger();
+
+    private volatile long totalPatients = -1;
+    private volatile long finishedMillis = -1;
+
+    public DailyPromptProgress() {
+        this(System::currentTimeMillis);
+    }
+
+    DailyPromptProgress(LongSupplier clock) {
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+    }
+
+    /**
+     * 设置本次运行的在院患者总数（来自首页查询的总记录数）
+     */
+    public void setTotalPatients(long totalPatients) {
+        this.totalPatients = totalPatients;
+    }
+
+    /**
+     * 记录一个患者处理成功
+     *
+     * @param prompts 为该患者生成的Prompt数
+     */
+    public void recordSuccess(int prompts) {
+        promptsGenerated.addAndGet(prompts);
+        processedPatients.incrementAndGet();
+    }
+
+    /**
+     * 记录一个患者处理失败
+     */
+    public void recordFailure() {
+        failedPatients.incrementAndGet();
+        processedPatients.incrementAndGet();
+    }
+
+    /**
+     * 标记运行结束
+     */
+    public void markFinished() {
+        finishedMillis = clock.getAsLong();
+    }
+
+    public long getTotalPatients() {
+        return totalPatients;
+    }
+
+    public int getProcessedPatients() {
+        return processedPatients.get();
+    }
+
+    public int getFailedPatients() {
+        return failedPatients.get();
+    }
+
+    public int getPromptsGenerated() {
+        return promptsGenerated.get();
+    }
+
+    public boolean isFinished() {
+        return finishedMillis >= 0;
+    }
+
+    /**
+     * 已用时间（毫秒），运行结束后固定为总耗时
+     */
+    public long getElapsedMillis() {
+        long end = finishedMillis >= 0 ? finishedMillis : clock.getAsLong();
+        return end - startMillis;
+    }
+
+    /**
+     * 预计剩余时间（毫秒）
+     *
+     * @return 运行结束后为0；尚未处理任何患者或总数未知时为-1
+     */
+    public long estimateRemainingMillis() {
+        if (isFinished()) {
+            return 0;
+        }
+        int processed = processedPatients.get();
+        long total = totalPatients;
+        if (processed == 0 || total < 0) {
+            return -1;
+        }
+        long remaining = Math.max(0, total - processed);
+        return getElapsedMillis() * remaining / processed;
+    }
+
+    /**
+     * 完成百分比（0-100），总数未知时为-1
+     */
+    public double getPercentComplete() {
+        long total = totalPatients;
+        if (total < 0) {
+            return -1;
+        }
+        if (total == 0) {
+            return 100.0;
+        }
+        return Math.min(100.0, processedPatients.get() * 100.0 / total);
+    }
+
+    /**
+     * 进度快照
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long remainingMillis = estimateRemainingMillis();
+        map.put("totalPatients", totalPatients);
+        map.put("processedPatients", getProcessedPatients());
+        map.put("failedPatients", getFailedPatients());
+        map.put("promptsGenerated", getPromptsGenerated());
+        map.put("percentComplete", String.format("%.1f%%", Math.max(0, getPercentComplete())));
+        map.put("startTime", toLocalDateTime(startMillis).toString());
+        map.put("elapsedSeconds", getElapsedMillis() / 1000);
+        map.put("etaSeconds", remainingMillis < 0 ? null : remainingMillis / 1000);
+        map.put("estimatedFinishTime", remainingMillis < 0 ? null
+                : toLocalDateTime(startMillis + getElapsedMillis() + remainingMillis).toString());
+        map.put("finished", isFinished());
+        return map;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.medaiassistant.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.IntSupplier;
+
+/**
+ * 每日Prompt生成的自适应并发闸门
+ *
+ * 1. 并发上限 = min(timer.maxConcurrency, 连接池可用连接数 - 预留连接数)，至少为1，每次运行开始时计算
+ * 2. 以信号量控制同时处理的患者数，每个患者处理完成后按连接池等待线程数和处理耗时调整许可：
+ *    有线程在等待连接、或耗时滑动平均超过基线的2倍时许可减半；连续顺畅完成一轮后许可加1，不超过上限
+ * 3. 许可已降到1仍然拥塞时，获取许可前按指数退避暂停（最长maxBackoffMillis），恢复顺畅后立即取消暂停
+ *
+ * 取代原先每个患者固定休眠500ms、每页固定休眠2秒的做法：数据库空闲时不再等待，繁忙时才降速。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public class DailyPromptThrottle {
+
+    /** 耗时滑动平均超过基线的倍数视为数据库变慢 */
+    static final double LATENCY_DEGRADATION_FACTOR = 2.0;
+
+    /** 耗时滑动平均中新样本的权重 */
+    static final double LATENCY_EWMA_WEIGHT = 0.2;
+
+    /** 建立耗时基线前需要的样本数 */
+    static final int BASELINE_WARMUP_SAMPLES = 3;
+
+    /** 首次退避时长 */
+    static final long INITIAL_BACKOFF_MILLIS = 100;
+
+    private final AdjustablePermits permits;
+    private final int ceiling;
+    private final long maxBackoffMillis;
+    private final IntSupplier threadsAwaitingConnection;
+
+    // 以下字段由this保护
+    private int limit;
+    private int healthyCompletions;
+    private int decreaseCooldown;
+    private int latencySamples;
+    private double latencyEwma;
+    private double baselineLatency = Double.MAX_VALUE;
+
+    private volatile long backoffMillis;
+
+    /**
+     * @param ceiling                   并发上限（见{@link #computeCeiling}）
+     * @param maxBackoffMillis          最长退避时长
+     * @param threadsAwaitingConnection 当前等待连接的线程数，未知时返回负数
+     */
+    public DailyPromptThrottle(int ceiling, long maxBackoffMillis, IntSupplier threadsAwaitingConnection) {
+        this.ceiling = Math.max(1, ceiling);
+        this.maxBackoffMillis = Math.max(0, maxBackoffMillis);
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.limit = this.ceiling;
+        this.permits = new AdjustablePermits(this.ceiling);
+    }
+
+    /**
+     * 计算并发上限
+     *
+     * @param maxConcurrency       配置的最大并发数
+     * @param availableConnections 连接池当前可用连接数，未知时传负数
+     * @param connectionReserve    为接口请求等其他业务预留的连接数
+     * @return 并发上限，至少为1
+     */
+    public static int computeCeiling(int maxConcurrency, int availableConnections, int connectionReserve) {
+        int ceiling = Math.max(1, maxConcurrency);
+        if (availableConnections >= 0) {
+            ceiling = Math.min(ceiling, Math.max(1, availableConnections - Math.max(0, connectionReserve)));
+        }
+        return ceiling;
+    }
+
+    /**
+     * 获取一个处理许可，拥塞退避期间先暂停
+     *
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public void acquire() throws InterruptedException {
+        long pause = backoffMillis;
+        if (pause > 0) {
+            Thread.sleep(pause);
+        }
+        permits.acquire();
+    }
+
+    /**
+     * 归还许可，并按本次处理耗时和连接池状态调整并发
+     *
+     * @param latencyMillis 本次处理耗时
+     */
+    public void release(long latencyMillis) {
+        try {
+            adjust(latencyMillis);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 当前并发许可数
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 并发上限
+     */
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    /**
+     * 当前退避时长，0表示未退避
+     */
+    public long getBackoffMillis() {
+        return backoffMillis;
+    }
+
+    /**
+     * 耗时滑动平均（毫秒），尚无样本时为0
+     */
+    public synchronized long getAverageLatencyMillis() {
+        return Math.round(latencyEwma);
+    }
+
+    /**
+     * 当前可获取的许可数（减半后可能暂时为负）
+     */
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private synchronized void adjust(long latencyMillis) {
+        latencyEwma = latencySamples == 0 ? latencyMillis
+                : LATENCY_EWMA_WEIGHT * latencyMillis + (1 - LATENCY_EWMA_WEIGHT) * latencyEwma;
+        latencySamples++;
+        if (latencySamples >= BASELINE_WARMUP_SAMPLES) {
+            baselineLatency = Math.min(baselineLatency, latencyEwma);
+        }
+
+        boolean congested = threadsAwaitingConnection.getAsInt() > 0
+                || (baselineLatency != Double.MAX_VALUE && latencyEwma > baselineLatency * LATENCY_DEGRADATION_FACTOR);
+
+        if (decreaseCooldown > 0) {
+            // 减半前已在处理中的患者完成时反映的是旧并发下的状态，不重复减半
+            decreaseCooldown--;
+            return;
+        }
+
+        if (congested) {
+            healthyCompletions = 0;
+            if (limit > 1) {
+                int reduced = Math.max(1, limit / 2);
+                // 可用许可 = 许可数 - 处理中患者数，当前患者尚未归还许可
+                decreaseCooldown = limit - permits.availablePermits() - 1;
+                permits.shrink(limit - reduced);
+                limit = reduced;
+            } else {
+                backoffMillis = backoffMillis == 0 ? Math.min(INITIAL_BACKOFF_MILLIS, maxBackoffMillis)
+                        : Math.min(maxBackoffMillis, backoffMillis * 2);
+            }
+        } else {
+            backoffMillis = 0;
+            healthyCompletions++;
+            if (healthyCompletions >= limit && limit < ceiling) {
+                limit++;
+                healthyCompletions = 0;
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 可减少许可的信号量
+     */
+    private static final class AdjustablePermits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        AdjustablePermits(int permits) {
+            super(permits);
+        }
+
+        void shrink(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+}
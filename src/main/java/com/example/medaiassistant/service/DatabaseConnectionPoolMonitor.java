@@ -1,5 +1,6 @@
 package com.example.medaiassistant.service;
 
+import com.example.medaiassistant.hospital.service.DynamicJdbcTemplateFactory;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +28,9 @@ public class DatabaseConnectionPoolMonitor {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired(required = false)
+    private DynamicJdbcTemplateFactory dynamicJdbcTemplateFactory;
+
     /**
      * 获取连接池状态信息
      * 
@@ -73,6 +77,82 @@ public class DatabaseConnectionPoolMonitor {
         return status;
     }
 
+    /**
+     * 获取各医院HIS/LIS数据库连接池状态
+     * 
+     * @return key为hospitalId:databaseType，value为连接数、等待线程数、使用率和健康状态
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getHospitalPoolStatus() {
+        Map<String, Object> status = new HashMap<>();
+        if (dynamicJdbcTemplateFactory == null) {
+            return status;
+        }
+
+        try {
+            for (Map.Entry<String, Object> entry : dynamicJdbcTemplateFactory.getPoolMetrics().entrySet()) {
+                Map<String, Object> pool = new HashMap<>((Map<String, Object>) entry.getValue());
+                int active = (Integer) pool.getOrDefault("activeConnections", 0);
+                int awaiting = (Integer) pool.getOrDefault("threadsAwaitingConnection", 0);
+                int maximum = (Integer) pool.get("maximumPoolSize");
+                double usageRate = maximum > 0 ? (double) active / maximum : 0.0;
+                pool.put("usageRate", String.format("%.2f%%", usageRate * 100));
+                if (usageRate >= 0.9) {
+                    pool.put("healthStatus", "CRITICAL - 连接池使用率过高");
+                } else if (awaiting > 0) {
+                    pool.put("healthStatus", "WARNING - 有线程等待连接");
+                } else {
+                    pool.put("healthStatus", "HEALTHY - 连接池运行正常");
+                }
+                status.put(entry.getKey(), pool);
+            }
+        } catch (Exception e) {
+            logger.error("获取医院数据库连接池状态失败", e);
+            status.put("error", "获取医院数据库连接池状态失败: " + e.getMessage());
+        }
+
+        return status;
+    }
+
+    /**
+     * 获取连接池当前可借出的连接数（最大连接数 - 活跃连接数）
+     * 
+     * @return 可用连接数，非Hikari数据源或连接池尚未初始化时返回-1
+     */
+    public int getAvailableConnections() {
+        try {
+            if (dataSource instanceof HikariDataSource) {
+                HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+                if (hikariDataSource.getHikariPoolMXBean() != null) {
+                    return Math.max(0, hikariDataSource.getMaximumPoolSize()
+                            - hikariDataSource.getHikariPoolMXBean().getActiveConnections());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("获取连接池可用连接数失败", e);
+        }
+        return -1;
+    }
+
+    /**
+     * 获取当前等待连接的线程数
+     * 
+     * @return 等待线程数，非Hikari数据源或连接池尚未初始化时返回-1
+     */
+    public int getThreadsAwaitingConnection() {
+        try {
+            if (dataSource instanceof HikariDataSource) {
+                HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+                if (hikariDataSource.getHikariPoolMXBean() != null) {
+                    return hikariDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("获取等待连接线程数失败", e);
+        }
+        return -1;
+    }
+
     /**
      * 计算连接池使用率
      * 
@@ -183,6 +263,16 @@ public class DatabaseConnectionPoolMonitor {
                 logger.error("连接泄漏检测告警 - {}", leakInfo.get("message"));
             }
 
+            // 医院HIS/LIS数据库连接池
+            for (Map.Entry<String, Object> entry : getHospitalPoolStatus().entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    Object poolHealth = ((Map<?, ?>) entry.getValue()).get("healthStatus");
+                    if (poolHealth != null && !poolHealth.toString().startsWith("HEALTHY")) {
+                        logger.warn("医院数据库连接池监控告警 - {}: {}", entry.getKey(), poolHealth);
+                    }
+                }
+            }
+
         } catch (Exception e) {
             logger.error("定期连接池监控失败", e);
         }
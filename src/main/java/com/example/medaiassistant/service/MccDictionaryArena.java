@@ -0,0 +1,339 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.DrgMcc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * MCC字典紧凑存储（不可变）
+ *
+ * 在字典加载时一次性完成所有与患者诊断无关的预处理，筛选时只需按下标读取：
+ * - 标准化后的MCC名称连续存放在同一个char数组中（偏移量 + 长度）
+ * - MCC类型标志（MCC / CC / 其他）
+ * - 去除前后空格的MCC编码
+ * - 预先拆分的排除编码列表，以及按大小写折叠、排序去重后的排除键（二分查找，查找时不分配对象）
+ *
+ * 实例一旦构建即不可修改，由MccScreeningService通过原子引用整体替换，
+ * 并发筛选的线程始终看到完整一致的字典版本。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class MccDictionaryArena {
+
+    public static final byte TYPE_OTHER = 0;
+    public static final byte TYPE_MCC = 1;
+    public static final byte TYPE_CC = 2;
+
+    private static final String[] NO_EXCLUSIONS = new String[0];
+
+    private final DrgMcc[] entries;
+    private final char[] nameChars;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+    private final boolean[] hasName;
+    private final byte[] typeFlags;
+    private final String[] trimmedCodes;
+    private final String[][] exclusionCodes;
+    private final String[][] exclusionKeys;
+    /** 构建时各记录的MCC_EXCEPT引用，用于判断记录加载后是否被修改 */
+    private final String[] exclusionSources;
+    private final Map<DrgMcc, Integer> indexes;
+    private final CharSequence[] nameViews;
+
+    private MccDictionaryArena(List<DrgMcc> mccs, UnaryOperator<String> normalizer) {
+        int size = mccs.size();
+        this.entries = mccs.toArray(new DrgMcc[0]);
+        this.nameOffsets = new int[size];
+        this.nameLengths = new int[size];
+        this.hasName = new boolean[size];
+        this.typeFlags = new byte[size];
+        this.trimmedCodes = new String[size];
+        this.exclusionCodes = new String[size][];
+        this.exclusionKeys = new String[size][];
+        this.exclusionSources = new String[size];
+        this.indexes = new IdentityHashMap<>(size);
+        this.nameViews = new CharSequence[size];
+
+        // 先标准化全部名称，再一次性拷贝到连续的char数组
+        String[] normalizedNames = new String[size];
+        int totalLength = 0;
+        for (int i = 0; i < size; i++) {
+            DrgMcc mcc = entries[i];
+            if (mcc.getMccName() != null) {
+                hasName[i] = true;
+                normalizedNames[i] = normalizer.apply(mcc.getMccName());
+                if (normalizedNames[i] != null) {
+                    totalLength += normalizedNames[i].length();
+                }
+            }
+            typeFlags[i] = toTypeFlag(mcc.getMccType());
+            trimmedCodes[i] = mcc.getMccCode() != null ? mcc.getMccCode().trim() : null;
+            exclusionSources[i] = mcc.getMccExcept();
+            exclusionCodes[i] = splitExclusionCodes(mcc.getMccExcept());
+            exclusionKeys[i] = toExclusionKeys(exclusionCodes[i]);
+            indexes.putIfAbsent(mcc, i);
+        }
+
+        this.nameChars = new char[totalLength];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            nameOffsets[i] = offset;
+            if (normalizedNames[i] != null) {
+                String name = normalizedNames[i];
+                name.getChars(0, name.length(), nameChars, offset);
+                nameLengths[i] = name.length();
+                offset += name.length();
+                nameViews[i] = new PackedName(nameChars, nameOffsets[i], nameLengths[i]);
+            }
+        }
+    }
+
+    /**
+     * 构建字典紧凑存储
+     *
+     * @param mccs MCC字典记录（按筛选顺序）
+     * @param normalizer 名称标准化函数
+     * @return 不可变的字典紧凑存储
+     */
+    public static MccDictionaryArena build(List<DrgMcc> mccs, UnaryOperator<String> normalizer) {
+        return new MccDictionaryArena(mccs != null ? mccs : List.of(), normalizer);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    /**
+     * 获取原始MCC字典记录
+     */
+    public DrgMcc entry(int index) {
+        return entries[index];
+    }
+
+    /**
+     * 原始记录的MCC名称是否非空（决定是否参与名称相似度匹配）
+     */
+    public boolean hasName(int index) {
+        return hasName[index];
+    }
+
+    /**
+     * 获取标准化后的MCC名称视图（直接引用紧凑数组，不产生拷贝）
+     * 名称为空或标准化结果为null时返回null
+     */
+    public CharSequence normalizedName(int index) {
+        return nameViews[index];
+    }
+
+    public int normalizedNameLength(int index) {
+        return nameLengths[index];
+    }
+
+    public byte typeFlag(int index) {
+        return typeFlags[index];
+    }
+
+    /**
+     * 获取去除前后空格的MCC编码，原始编码为空时返回null
+     */
+    public String trimmedCode(int index) {
+        return trimmedCodes[index];
+    }
+
+    /**
+     * 获取预先拆分的排除编码（已去除空白项）
+     */
+    public String[] exclusionCodes(int index) {
+        return exclusionCodes[index];
+    }
+
+    /**
+     * 诊断编码是否在该记录的排除列表中
+     *
+     * 与按原规则拆分MCC_EXCEPT后逐项equalsIgnoreCase比较的结果一致。
+     *
+     * @param index 记录下标
+     * @param codeKey 诊断编码的排除键（exclusionKey计算，调用方每条诊断计算一次）
+     * @return 是否被排除
+     */
+    public boolean isExcluded(int index, String codeKey) {
+        return containsKey(exclusionKeys[index], codeKey);
+    }
+
+    /**
+     * 查找记录在字典中的下标（按对象标识）
+     *
+     * @param mcc MCC字典记录
+     * @return 下标；不是本字典中的记录，或其MCC_EXCEPT在加载后被修改时返回-1
+     */
+    public int indexOf(DrgMcc mcc) {
+        Integer index = mcc != null ? indexes.get(mcc) : null;
+        if (index == null || exclusionSources[index] != mcc.getMccExcept()) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * 获取原始字典记录列表（只读）
+     */
+    public List<DrgMcc> entries() {
+        return List.of(entries);
+    }
+
+    private static byte toTypeFlag(String mccType) {
+        if ("MCC".equalsIgnoreCase(mccType)) {
+            return TYPE_MCC;
+        }
+        if ("CC".equalsIgnoreCase(mccType)) {
+            return TYPE_CC;
+        }
+        return TYPE_OTHER;
+    }
+
+    /**
+     * 计算诊断编码的排除键：去除前后空格后按大小写折叠
+     *
+     * 对合法的UTF-16字符串，两个编码trim后equalsIgnoreCase相等当且仅当排除键相等。
+     *
+     * @param code 诊断编码（非空）
+     * @return 排除键
+     */
+    public static String exclusionKey(String code) {
+        String trimmed = code.trim();
+        StringBuilder folded = null;
+        for (int i = 0; i < trimmed.length(); ) {
+            int codePoint = trimmed.codePointAt(i);
+            int foldedCodePoint = Character.toLowerCase(Character.toUpperCase(codePoint));
+            if (folded == null && foldedCodePoint != codePoint) {
+                folded = new StringBuilder(trimmed.length()).append(trimmed, 0, i);
+            }
+            if (folded != null) {
+                folded.appendCodePoint(foldedCodePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return folded != null ? folded.toString() : trimmed;
+    }
+
+    /**
+     * 解析MCC_EXCEPT为排序去重的排除键（用于不在字典中的记录）
+     *
+     * @param except 排除条件
+     * @return 排除键数组
+     */
+    public static String[] exclusionKeys(String except) {
+        return toExclusionKeys(splitExclusionCodes(except));
+    }
+
+    /**
+     * 在排序的排除键中二分查找
+     */
+    public static boolean containsKey(String[] keys, String codeKey) {
+        return keys.length != 0 && Arrays.binarySearch(keys, codeKey) >= 0;
+    }
+
+    /**
+     * 拆分排除编码（支持逗号、分号、空白分隔，与原有排除规则解析方式一致）
+     *
+     * 等价于except.split("[,;\\s]+")后逐项trim并去除空白项，不使用正则表达式。
+     */
+    private static String[] splitExclusionCodes(String except) {
+        if (except == null || except.isBlank()) {
+            return NO_EXCLUSIONS;
+        }
+        List<String> codes = new ArrayList<>();
+        int length = except.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isDelimiter(except.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !isDelimiter(except.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String trimmed = except.substring(start, i).trim();
+                if (!trimmed.isBlank()) {
+                    codes.add(trimmed);
+                }
+            }
+        }
+        return codes.isEmpty() ? NO_EXCLUSIONS : codes.toArray(new String[0]);
+    }
+
+    /**
+     * 分隔符：逗号、分号及正则\s匹配的空白字符
+     */
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == ';' || c == ' ' || c == '\t' || c == '\n'
+            || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static String[] toExclusionKeys(String[] codes) {
+        if (codes.length == 0) {
+            return NO_EXCLUSIONS;
+        }
+        String[] keys = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            keys[i] = exclusionKey(codes[i]);
+        }
+        Arrays.sort(keys);
+        int unique = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (unique == 0 || !keys[i].equals(keys[unique - 1])) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return unique == keys.length ? keys : Arrays.copyOf(keys, unique);
+    }
+
+    /**
+     * 紧凑数组中单个名称的只读字符序列视图
+     */
+    private static final class PackedName implements CharSequence {
+        private final char[] chars;
+        private final int offset;
+        private final int length;
+
+        private PackedName(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -11,13 +11,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -43,14 +43,10 @@ public class MccScreeningService {
     private DrgMccRepository drgMccRepository;
     
     /**
-     * MCC字典缓存 - 使用不可变对象确保线程安全
+     * MCC字典缓存 - 预标准化名称、类型标志、排除编码统一存放在不可变的紧凑存储中，
+     * 热刷新时整体原子替换，保证并发筛选始终读取一致的字典版本
      */
-    private AtomicReference<List<DrgMcc>> cachedMccDictionary = new AtomicReference<>();
-    
-    /**
-     * 规范化MCC名称缓存 - 提高相似度计算性能
-     */
-    private AtomicReference<Map<String, String>> normalizedMccNames = new AtomicReference<>();
+    private AtomicReference<MccDictionaryArena> cachedMccDictionary = new AtomicReference<>();
     
     /**
      * 初始化方法 - 启动时预加载MCC字典到内存
@@ -74,20 +70,8 @@ public class MccScreeningService {
     private void loadMccDictionary() {
         List<DrgMcc> allMccs = drgMccRepository.findAll();
         
-        // 预计算规范化名称，提高相似度计算性能
-        Map<String, String> normalized = new HashMap<>();
-        for (DrgMcc mcc : allMccs) {
-            if (mcc.getMccCode() != null && mcc.getMccName() != null) {
-                String normalizedName = textNormalizer.normalize(mcc.getMccName());
-                if (normalizedName != null) {
-                    normalized.put(mcc.getMccCode(), normalizedName);
-                }
-            }
-        }
-        
-        // 使用不可变对象确保线程安全
-        cachedMccDictionary.set(Collections.unmodifiableList(allMccs));
-        normalizedMccNames.set(Collections.unmodifiableMap(normalized));
+        // 加载时一次性完成名称标准化、编码去空格和排除编码拆分，筛选时不再重复计算
+        cachedMccDictionary.set(MccDictionaryArena.build(allMccs, textNormalizer::normalize));
     }
     
     /**
@@ -102,8 +86,8 @@ public class MccScreeningService {
      * 获取缓存的MCC字典
      * 如果缓存为空，则从数据库加载
      */
-    private List<DrgMcc> getCachedMccDictionary() {
-        List<DrgMcc> cached = cachedMccDictionary.get();
+    private MccDictionaryArena getCachedMccDictionary() {
+        MccDictionaryArena cached = cachedMccDictionary.get();
         if (cached == null || cached.isEmpty()) {
             loadMccDictionary();
             cached = cachedMccDictionary.get();
@@ -124,6 +108,21 @@ public class MccScreeningService {
         );
     }
     
+    /**
+     * 计算两个诊断名称的相似度（带阈值提前放弃）
+     * 由阈值推导编辑距离上界，明显不相似的名称对在计算早期即被放弃
+     * 
+     * @param diagnosis 患者诊断名称
+     * @param mccName MCC名称
+     * @param threshold 相似度阈值
+     * @return 达到阈值时返回相似度值（0.0-1.0），否则返回0.0
+     */
+    public double calculateSimilarity(String diagnosis, String mccName, double threshold) {
+        return levenshteinUtil.calculateNormalizedSimilarity(
+            diagnosis, mccName, textNormalizer, threshold
+        );
+    }
+    
     /**
      * 尝试进行CODE精确匹配
      * 
@@ -198,7 +197,7 @@ public class MccScreeningService {
         }
         
         // 检查是否在排除列表中
-        return isInExclusionList(diagnosisIcdCode, except);
+        return isInExclusionList(diagnosisIcdCode, mcc);
     }
     
     /**
@@ -231,21 +230,34 @@ public class MccScreeningService {
     
     /**
      * 检查诊断编码是否在排除列表中
+     * 
+     * 字典中的记录直接使用加载时解析好的排除键；其他记录（或加载后MCC_EXCEPT被修改的记录）按相同规则现场解析。
+     * 排除条件支持逗号、分号、空格分隔，比较忽略大小写。
      */
-    private boolean isInExclusionList(String diagnosisIcdCode, String except) {
-        // 解析排除条件（支持逗号、分号、空格分隔）
-        String[] exclusionCodes = except.split("[,;\\s]+");
-        
-        // 检查患者诊断编码是否在排除列表中（忽略大小写）
-        for (String exclusionCode : exclusionCodes) {
-            String trimmedExclusionCode = exclusionCode.trim();
-            if (!trimmedExclusionCode.isBlank() && 
-                diagnosisIcdCode.trim().equalsIgnoreCase(trimmedExclusionCode)) {
-                return true;
-            }
+    private boolean isInExclusionList(String diagnosisIcdCode, DrgMcc mcc) {
+        String codeKey = MccDictionaryArena.exclusionKey(diagnosisIcdCode);
+        MccDictionaryArena dictionary = cachedMccDictionary.get();
+        int index = dictionary != null ? dictionary.indexOf(mcc) : -1;
+        if (index >= 0) {
+            return dictionary.isExcluded(index, codeKey);
+        }
+        return MccDictionaryArena.containsKey(MccDictionaryArena.exclusionKeys(mcc.getMccExcept()), codeKey);
+    }
+    
+    /**
+     * 计算诊断的排除键（每条诊断计算一次）
+     * 判定条件与checkExclusionRules一致：排除规则关闭或诊断编码为空时返回null，表示不排除
+     */
+    private String exclusionKeyOf(PatientDiagnosis diagnosis) {
+        if (!isExclusionCheckEnabled()) {
+            return null;
         }
         
-        return false;
+        String diagnosisIcdCode = diagnosis.getIcdCode();
+        if (isBlankDiagnosisCode(diagnosisIcdCode)) {
+            return null;
+        }
+        return MccDictionaryArena.exclusionKey(diagnosisIcdCode);
     }
     
     /**
@@ -327,8 +339,20 @@ public class MccScreeningService {
      * @return 按诊断分组的候选结果
      */
     public Map<String, List<MccCandidate>> screenMccCandidatesGrouped(List<PatientDiagnosis> diagnoses) {
+        return screenMccCandidatesGrouped(diagnoses, name -> textNormalizer.normalize(name));
+    }
+    
+    /**
+     * 按来源诊断分组候选（使用调用方提供的诊断名称标准化结果）
+     * 
+     * @param diagnoses 患者诊断列表
+     * @param normalizedNames 诊断名称到标准化名称的映射，结果须与TextNormalizer.normalize一致
+     * @return 按诊断分组的候选结果
+     */
+    public Map<String, List<MccCandidate>> screenMccCandidatesGrouped(List<PatientDiagnosis> diagnoses,
+                                                                      Function<String, String> normalizedNames) {
         // 获取所有候选（平铺列表）
-        List<MccCandidate> allCandidates = screenMccCandidates(diagnoses);
+        List<MccCandidate> allCandidates = screenMccCandidates(diagnoses, normalizedNames);
         
         // 按来源诊断分组，并对每组内的候选进行排序
         Map<String, List<MccCandidate>> grouped = allCandidates.stream()
@@ -382,21 +406,39 @@ public class MccScreeningService {
      * 对每个患者诊断，遍历MCC字典，生成候选列表
      * 使用缓存提高性能，支持并发访问
      * 
+     * 患者诊断名称每条只标准化一次，字典侧名称在加载时已完成标准化，
+     * 相似度计算直接读取紧凑存储中的名称，不产生中间字符串。
+     * 
      * @param diagnoses 患者诊断列表
      * @return 所有候选结果列表
      */
     public List<MccCandidate> screenMccCandidates(List<PatientDiagnosis> diagnoses) {
+        return screenMccCandidates(diagnoses, name -> textNormalizer.normalize(name));
+    }
+    
+    /**
+     * 筛选MCC候选（平铺列表，使用调用方提供的诊断名称标准化结果）
+     * 
+     * 批量筛选时同一诊断名称在整批患者中只标准化一次，由调用方传入标准化结果。
+     * 
+     * @param diagnoses 患者诊断列表
+     * @param normalizedNames 诊断名称到标准化名称的映射，结果须与TextNormalizer.normalize一致
+     * @return 所有候选结果列表
+     */
+    public List<MccCandidate> screenMccCandidates(List<PatientDiagnosis> diagnoses,
+                                                  Function<String, String> normalizedNames) {
         if (diagnoses == null || diagnoses.isEmpty()) {
             return new ArrayList<>();
         }
         
-        // 使用缓存获取MCC字典记录，避免重复数据库查询
-        List<DrgMcc> allMccs = getCachedMccDictionary();
-        if (allMccs.isEmpty()) {
+        // 使用缓存获取MCC字典，避免重复数据库查询
+        MccDictionaryArena dictionary = getCachedMccDictionary();
+        if (dictionary.isEmpty()) {
             return new ArrayList<>();
         }
         
         List<MccCandidate> allCandidates = new ArrayList<>();
+        double threshold = getGlobalThreshold();
         
         // 对每个患者诊断进行筛选
         for (PatientDiagnosis diagnosis : diagnoses) {
@@ -405,23 +447,39 @@ public class MccScreeningService {
                 continue;
             }
             
+            String diagnosisCode = diagnosis.getIcdCode() != null ? diagnosis.getIcdCode().trim() : null;
+            String normalizedDiagnosis = normalizedNames.apply(diagnosis.getDiagnosisName());
+            String exclusionKey = exclusionKeyOf(diagnosis);
+            
             // 对每个MCC记录进行匹配
-            for (DrgMcc mcc : allMccs) {
-                // 1. 尝试CODE精确匹配
-                Optional<MccCandidate> codeMatch = tryCodeExactMatch(diagnosis, mcc);
-                if (codeMatch.isPresent()) {
-                    allCandidates.add(codeMatch.get());
+            for (int i = 0; i < dictionary.size(); i++) {
+                DrgMcc mcc = dictionary.entry(i);
+                
+                // 1. 尝试CODE精确匹配（与tryCodeExactMatch规则一致）
+                String mccCode = dictionary.trimmedCode(i);
+                if (diagnosisCode != null && mccCode != null && diagnosisCode.equalsIgnoreCase(mccCode)) {
+                    allCandidates.add(MccCandidate.builder()
+                        .mccCode(mcc.getMccCode())
+                        .mccName(mcc.getMccName())
+                        .mccType(mcc.getMccType())
+                        .similarity(1.0)
+                        .matchType(MccCandidate.MATCH_TYPE_CODE_MATCH)
+                        .excluded(false)
+                        .sourceDiagnosis(diagnosis.getDiagnosisName())
+                        .sourceIcdCode(diagnosis.getIcdCode())
+                        .build());
                     continue; // CODE匹配成功，跳过名称相似度匹配
                 }
                 
                 // 2. 名称相似度匹配
-                if (diagnosis.hasDiagnosisName() && mcc.getMccName() != null) {
-                    double similarity = calculateSimilarity(diagnosis.getDiagnosisName(), mcc.getMccName());
+                if (dictionary.hasName(i)) {
+                    double similarity = levenshteinUtil.calculateSimilarity(
+                        normalizedDiagnosis, dictionary.normalizedName(i), threshold);
                     
                     // 检查是否通过相似度阈值
-                    if (isSimilarityAboveThreshold(similarity)) {
+                    if (isSimilarityAboveThreshold(similarity, threshold)) {
                         // 检查排除规则
-                        boolean excluded = checkExclusionRules(diagnosis, mcc);
+                        boolean excluded = exclusionKey != null && dictionary.isExcluded(i, exclusionKey);
                         
                         // 创建候选结果
                         MccCandidate candidate = MccCandidate.builder()
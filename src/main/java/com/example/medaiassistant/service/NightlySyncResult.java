@@ -2,6 +2,9 @@ package com.example.medaiassistant.service;
 
 import lombok.Data;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 夜间同步结果统计类
  * 
@@ -14,6 +17,7 @@ import lombok.Data;
  *   <li>检查结果同步统计（按病人）</li>
  *   <li>EMR病历同步统计（按病人）</li>
  *   <li>医嘱同步统计（按病人）</li>
+ *   <li>各阶段运行指标（吞吐量、处理耗时、排队耗时）</li>
  * </ul>
  * 
  * <p><strong>使用场景</strong>：</p>
@@ -117,4 +121,12 @@ public class NightlySyncResult {
      * 医嘱同步失败的病人数量
      */
     private int orderSyncFailed;
+
+    // ========== 阶段运行指标 ==========
+
+    /**
+     * 各阶段运行指标，键为阶段名称（病人列表、化验、检查、EMR、医嘱），
+     * 值为 {@link NightlySyncStageMetrics#toMap()} 快照
+     */
+    private Map<String, Map<String, Object>> stageMetrics = new LinkedHashMap<>();
 }
@@ -16,24 +16,38 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 夜间数据同步服务
  * 每天凌晨1点执行病人列表、化验、检查、EMR病历、医嘱的同步任务
  * 
- * <p><strong>执行顺序</strong>：</p>
+ * <p><strong>执行流程</strong>（流水线）：</p>
  * <ol>
- *   <li>病人列表同步 - 从HIS系统同步在院病人列表</li>
+ *   <li>病人列表同步 - 各科室并发从HIS系统同步在院病人列表</li>
  *   <li>化验同步 - 为每个在院病人同步LIS检验结果</li>
  *   <li>检查同步 - 为每个在院病人同步检查结果</li>
  *   <li>EMR病历同步 - 为每个在院病人同步EMR病历内容</li>
  *   <li>医嘱同步 - 为每个在院病人同步长期医嘱数据</li>
  * </ol>
+ * <p>后四个阶段并行执行，各有独立的有界队列和工作线程；某个科室的病人列表就绪后即进入各阶段，
+ * 不等待其他科室。</p>
+ * 
+ * <p>已配置增量查询模板并启用增量同步的源表（见 {@link DataSyncExecutor}）
+ * 由增量同步按水位持续拉取，夜间同步跳过其逐患者拉取步骤。</p>
+ * 
+ * <p>配置了科室批量查询模板的源表（见 {@link DepartmentBatchExtractor}）按病人分块以IN列表
+ * 查询HIS，每块一次往返，代替逐患者查询。</p>
  * 
  * @author System
- * @version 1.1
+ * @version 1.2
  * @since 2026-01-13
  */
 @Service
@@ -49,6 +63,9 @@ public class NightlySyncService {
     private final HospitalConfigService hospitalConfigService;
     private final PatientRepository patientRepository;
     private final SchedulingProperties schedulingProperties;
+    private final DataSyncExecutor dataSyncExecutor;
+    private final SyncBulkheads syncBulkheads;
+    private final DepartmentBatchExtractor departmentBatchExtractor;
 
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     
@@ -67,6 +84,15 @@ public class NightlySyncService {
     @Value("${hospital.default.id:hospital-Local}")
     private String defaultHospitalId;
 
+    @Value("${nightly.sync.department-concurrency:4}")
+    private int departmentConcurrency;
+
+    @Value("${nightly.sync.stage-concurrency:4}")
+    private int stageConcurrency;
+
+    @Value("${nightly.sync.stage-queue-capacity:100}")
+    private int stageQueueCapacity;
+
     /**
      * 构造函数，通过依赖注入初始化所有同步服务
      *
@@ -78,6 +104,9 @@ public class NightlySyncService {
      * @param hospitalConfigService 医院配置服务，提供医院ID等配置
      * @param patientRepository 病人数据访问层，查询在院病人列表
      * @param schedulingProperties 调度配置属性，提供科室过滤等配置
+     * @param dataSyncExecutor 增量同步执行器，判断源表是否已由增量同步负责
+     * @param syncBulkheads 同步舱壁，运行汇总中输出HIS读取和主库写入的等待情况
+     * @param departmentBatchExtractor 科室批量提取器，按病人分块批量查询HIS
      */
     public NightlySyncService(
             PatientSyncService patientSyncService,
@@ -87,7 +116,10 @@ public class NightlySyncService {
             OrderSyncService orderSyncService,
             HospitalConfigService hospitalConfigService,
             PatientRepository patientRepository,
-            SchedulingProperties schedulingProperties) {
+            SchedulingProperties schedulingProperties,
+            DataSyncExecutor dataSyncExecutor,
+            SyncBulkheads syncBulkheads,
+            DepartmentBatchExtractor departmentBatchExtractor) {
         this.patientSyncService = patientSyncService;
         this.labSyncService = labSyncService;
         this.examinationSyncService = examinationSyncService;
@@ -96,6 +128,9 @@ public class NightlySyncService {
         this.hospitalConfigService = hospitalConfigService;
         this.patientRepository = patientRepository;
         this.schedulingProperties = schedulingProperties;
+        this.dataSyncExecutor = dataSyncExecutor;
+        this.syncBulkheads = syncBulkheads;
+        this.departmentBatchExtractor = departmentBatchExtractor;
     }
 
     /**
@@ -132,21 +167,23 @@ public class NightlySyncService {
     /**
      * 夜间定时同步任务入口方法
      * 
-     * <p>每天凌晨1点自动执行，按顺序执行以下四步同步：</p>
+     * <p>每天凌晨1点自动执行，按流水线方式执行同步：</p>
      * <ol>
-     *   <li>病人列表同步 - 遍历配置的科室，同步在院病人</li>
-     *   <li>化验同步 - 为<strong>指定科室</strong>的在院病人同步LIS检验结果</li>
-     *   <li>检查同步 - 为<strong>指定科室</strong>的在院病人同步检查报告</li>
-     *   <li>EMR同步 - 为<strong>指定科室</strong>的在院病人同步电子病历</li>
+     *   <li>病人列表同步 - 多个科室并发同步在院病人（并发数 {@code nightly.sync.department-concurrency}）</li>
+     *   <li>化验、检查、EMR、医嘱同步 - 四个阶段并行，某个科室的病人列表就绪后立即进入各阶段的有界队列，
+     *       每个阶段由 {@code nightly.sync.stage-concurrency} 个工作线程处理，
+     *       队列容量为 {@code nightly.sync.stage-queue-capacity}</li>
      * </ol>
      * 
      * <p><strong>同步范围</strong>：只同步配置文件中 {@code scheduling.timer.target-departments} 指定科室的病人，
      * 不同步其他科室的病人数据</p>
-     * <p><strong>并发控制</strong>：使用AtomicBoolean确保同一时间只有一个任务执行</p>
+     * <p><strong>并发控制</strong>：使用AtomicBoolean确保同一时间只有一个任务执行；
+     * 各阶段的HIS读取和主库写入并发由 {@link SyncBulkheads} 分别限制</p>
      * <p><strong>异常处理</strong>：单个病人/科室失败不影响其他同步继续执行</p>
+     * <p><strong>运行指标</strong>：每个阶段的成功/失败数、吞吐量、处理耗时和排队耗时记录在
+     * {@link NightlySyncResult#getStageMetrics()}，运行结束时输出汇总</p>
      * 
      * @see #triggerManualSync() 手动触发入口
-     * @see #getTargetDepartments() 获取目标科室列表
      */
     @Scheduled(cron = "${nightly.sync.cron:0 0 1 * * ?}")
     public void executeNightlySync() {
@@ -167,53 +204,15 @@ public class NightlySyncService {
         log.info("开始时间: {}", startTimeStr);
 
         NightlySyncResult result = new NightlySyncResult();
+        List<NightlySyncStageMetrics> stageMetrics = new ArrayList<>();
 
         try {
-            // 第一步：病人列表同步
-            log.info("【第1步】开始病人列表同步...");
-            syncPatientList(result);
-            log.info("【第1步】病人列表同步完成 - 成功科室: {}, 失败科室: {}", 
-                result.getPatientSyncSuccessDepts(), result.getPatientSyncFailedDepts());
-
-            // 获取指定科室的在院病人列表（只同步指定科室的病人）
             List<String> targetDepartments = getTargetDepartments();
-            List<Patient> inHospitalPatients = new ArrayList<>();
-            if (!targetDepartments.isEmpty()) {
-                for (String deptName : targetDepartments) {
-                    List<Patient> deptPatients = patientRepository.findByDepartmentAndIsInHospital(deptName, true);
-                    inHospitalPatients.addAll(deptPatients);
-                }
-                log.info("获取到指定科室 {} 共 {} 个在院病人，准备进行化验、检查、EMR同步", 
-                    targetDepartments, inHospitalPatients.size());
+            if (targetDepartments.isEmpty()) {
+                log.warn("未配置目标科室，跳过病人列表、化验、检查、EMR、医嘱同步");
             } else {
-                log.warn("未配置目标科室，跳过化验、检查、EMR同步");
+                runPipeline(getActiveHospitalId(), targetDepartments, result, stageMetrics);
             }
-            result.setTotalPatients(inHospitalPatients.size());
-
-            // 第二步：化验同步
-            log.info("【第2步】开始化验同步...");
-            syncLabResults(inHospitalPatients, result);
-            log.info("【第2步】化验同步完成 - 成功: {}, 失败: {}", 
-                result.getLabSyncSuccess(), result.getLabSyncFailed());
-
-            // 第三步：检查同步
-            log.info("【第3步】开始检查同步...");
-            syncExaminationResults(inHospitalPatients, result);
-            log.info("【第3步】检查同步完成 - 成功: {}, 失败: {}", 
-                result.getExamSyncSuccess(), result.getExamSyncFailed());
-
-            // 第四步：EMR病历同步
-            log.info("【第4步】开始EMR病历同步...");
-            syncEmrContent(inHospitalPatients, result);
-            log.info("【第4步】EMR病历同步完成 - 成功: {}, 失败: {}", 
-                result.getEmrSyncSuccess(), result.getEmrSyncFailed());
-
-            // 第五步：医嘱同步
-            log.info("【第5步】开始医嘱同步...");
-            syncOrders(inHospitalPatients, result);
-            log.info("【第5步】医嘱同步完成 - 成功: {}, 失败: {}", 
-                result.getOrderSyncSuccess(), result.getOrderSyncFailed());
-
             result.setSuccess(true);
 
         } catch (Exception e) {
@@ -224,6 +223,9 @@ public class NightlySyncService {
             isRunning.set(false);
             long duration = System.currentTimeMillis() - startTime;
             result.setDurationMs(duration);
+            for (NightlySyncStageMetrics metrics : stageMetrics) {
+                result.getStageMetrics().put(metrics.getStageName(), metrics.toMap());
+            }
             // 保存本次同步结果，供外部查询
             this.lastSyncResult = result;
 
@@ -237,198 +239,184 @@ public class NightlySyncService {
             log.info("  - 检查同步: 成功 {}, 失败 {}", result.getExamSyncSuccess(), result.getExamSyncFailed());
             log.info("  - EMR同步: 成功 {}, 失败 {}", result.getEmrSyncSuccess(), result.getEmrSyncFailed());
             log.info("  - 医嘱同步: 成功 {}, 失败 {}", result.getOrderSyncSuccess(), result.getOrderSyncFailed());
+            log.info("阶段指标:");
+            for (NightlySyncStageMetrics metrics : stageMetrics) {
+                log.info("  - {}", metrics);
+            }
+            log.info("  - 同步舱壁: {}", syncBulkheads.toMap());
+            log.info("  - 批量提取: {}", departmentBatchExtractor.toMap());
             log.info("============================================");
         }
     }
 
     /**
-     * 同步病人列表（第一步）
+     * 执行同步流水线
      * 
-     * <p>遍历配置的目标科室，逐个调用PatientSyncService同步在院病人。</p>
-     * <p>单个科室同步失败不影响其他科室继续执行。</p>
+     * <p>科室病人列表同步在虚拟线程上并发执行，同时启动化验、检查、EMR、医嘱四个阶段；
+     * 每个阶段按科室顺序等待病人列表就绪后投递到自己的有界队列。
+     * 方法在所有科室和阶段处理完成后返回，并写入统计结果。</p>
      *
-     * @param result 同步结果对象，用于记录成功/失败科室数量
+     * @param hospitalId 医院ID
+     * @param departments 目标科室列表
+     * @param result 同步结果对象
+     * @param stageMetrics 输出参数，按执行顺序收集各阶段指标
      */
-    private void syncPatientList(NightlySyncResult result) {
-        String hospitalId = getActiveHospitalId();
-        List<String> targetDepartments = getTargetDepartments();
+    private void runPipeline(String hospitalId, List<String> departments,
+                             NightlySyncResult result, List<NightlySyncStageMetrics> stageMetrics) {
+        NightlySyncStageMetrics departmentMetrics = new NightlySyncStageMetrics("病人列表");
+        stageMetrics.add(departmentMetrics);
+
+        NightlySyncStage labStage = createStage(hospitalId, "化验", labSyncService,
+            patientId -> labSyncService.importLabResults(patientId));
+        NightlySyncStage examStage = createStage(hospitalId, "检查", examinationSyncService,
+            patientId -> examinationSyncService.importExaminationResults(patientId));
+        NightlySyncStage emrStage = createStage(hospitalId, "EMR", emrSyncService,
+            patientId -> emrSyncService.importEmrContent(patientId));
+        NightlySyncStage orderStage = createStage(hospitalId, "医嘱", orderSyncService,
+            patientId -> orderSyncService.importOrders(patientId));
+        List<NightlySyncStage> stages = new ArrayList<>();
+        for (NightlySyncStage stage : Arrays.asList(labStage, examStage, emrStage, orderStage)) {
+            if (stage != null) {
+                stages.add(stage);
+                stageMetrics.add(stage.getMetrics());
+            }
+        }
 
-        if (targetDepartments.isEmpty()) {
-            log.warn("未配置目标科室，跳过病人列表同步");
-            return;
+        log.info("同步流水线启动 - 科室: {}, 科室并发: {}, 阶段: {}, 每阶段并发: {}, 队列容量: {}",
+            departments, Math.max(1, departmentConcurrency), stages.size(),
+            Math.max(1, stageConcurrency), Math.max(1, stageQueueCapacity));
+
+        Semaphore departmentPermits = new Semaphore(Math.max(1, departmentConcurrency));
+        List<Future<List<Patient>>> departmentPatients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            departmentMetrics.markStarted();
+            for (String deptName : departments) {
+                departmentPatients.add(executor.submit(
+                    () -> syncDepartment(hospitalId, deptName, departmentPermits, departmentMetrics)));
+            }
+            for (NightlySyncStage stage : stages) {
+                stage.start(executor, departmentPatients);
+            }
+        }
+        departmentMetrics.markFinished();
+
+        int totalPatients = 0;
+        List<String> failedQueries = new ArrayList<>();
+        for (int i = 0; i < departments.size(); i++) {
+            try {
+                totalPatients += departmentPatients.get(i).get().size();
+            } catch (ExecutionException e) {
+                failedQueries.add(departments.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("夜间同步被中断", e);
+            }
         }
 
-        log.info("准备同步 {} 个科室的病人列表", targetDepartments.size());
+        result.setPatientSyncSuccessDepts(departmentMetrics.getSucceeded());
+        result.setPatientSyncFailedDepts(departmentMetrics.getFailed());
+        result.setTotalPatients(totalPatients);
+        if (labStage != null) {
+            result.setLabSyncSuccess(labStage.getMetrics().getSucceeded());
+            result.setLabSyncFailed(labStage.getMetrics().getFailed());
+        }
+        if (examStage != null) {
+            result.setExamSyncSuccess(examStage.getMetrics().getSucceeded());
+            result.setExamSyncFailed(examStage.getMetrics().getFailed());
+        }
+        if (emrStage != null) {
+            result.setEmrSyncSuccess(emrStage.getMetrics().getSucceeded());
+            result.setEmrSyncFailed(emrStage.getMetrics().getFailed());
+        }
+        if (orderStage != null) {
+            result.setOrderSyncSuccess(orderStage.getMetrics().getSucceeded());
+            result.setOrderSyncFailed(orderStage.getMetrics().getFailed());
+        }
 
-        int successCount = 0;
-        int failedCount = 0;
+        if (!failedQueries.isEmpty()) {
+            throw new IllegalStateException("科室在院病人查询失败: " + failedQueries);
+        }
+    }
 
-        for (String deptName : targetDepartments) {
+    /**
+     * 同步单个科室的病人列表并查询其在院病人（病人列表阶段）
+     * 
+     * <p>调用PatientSyncService同步科室在院病人，无论同步成功与否都从主库查询该科室的在院病人，
+     * 交给后续阶段处理。科室同步失败不影响其他科室继续执行。</p>
+     *
+     * @param hospitalId 医院ID
+     * @param deptName 科室名称
+     * @param permits 科室并发许可
+     * @param metrics 病人列表阶段指标
+     * @return 科室在院病人列表
+     * @throws InterruptedException 等待并发许可时被中断
+     */
+    private List<Patient> syncDepartment(String hospitalId, String deptName, Semaphore permits,
+                                         NightlySyncStageMetrics metrics) throws InterruptedException {
+        long requested = System.nanoTime();
+        permits.acquire();
+        long started = System.nanoTime();
+        try {
+            boolean success = false;
             try {
                 log.info("正在同步科室 [{}] 的病人列表...", deptName);
                 com.example.medaiassistant.hospital.dto.PatientSyncResult syncResult = 
                     patientSyncService.syncPatients(hospitalId, deptName);
                 
                 if (syncResult.isSuccess()) {
-                    successCount++;
+                    success = true;
                     log.info("科室 [{}] 病人列表同步成功 - 新增: {}, 更新: {}, 出院: {}", 
                         deptName, syncResult.getAddedCount(), 
                         syncResult.getUpdatedCount(), syncResult.getDischargedCount());
                 } else {
-                    failedCount++;
                     log.error("科室 [{}] 病人列表同步失败: {}", deptName, syncResult.getErrorMessage());
                 }
             } catch (Exception e) {
-                failedCount++;
                 log.error("科室 [{}] 病人列表同步异常: {}", deptName, e.getMessage(), e);
             }
-        }
-
-        result.setPatientSyncSuccessDepts(successCount);
-        result.setPatientSyncFailedDepts(failedCount);
-    }
-
-    /**
-     * 同步化验结果（第二步）
-     * 
-     * <p>遍历指定科室的在院病人，逐个调用LabSyncService导入LIS检验结果。</p>
-     * <p>单个病人同步失败不影响其他病人继续执行。</p>
-     *
-     * @param patients 指定科室的在院病人列表
-     * @param result 同步结果对象，用于记录成功/失败病人数量
-     */
-    private void syncLabResults(List<Patient> patients, NightlySyncResult result) {
-        SyncStatistics stats = syncPatientData(patients, 
-            patientId -> labSyncService.importLabResults(patientId),
-            "化验");
-        result.setLabSyncSuccess(stats.successCount);
-        result.setLabSyncFailed(stats.failedCount);
-    }
 
-    /**
-     * 同步检查结果（第三步）
-     * 
-     * <p>遍历指定科室的在院病人，逐个调用ExaminationSyncService导入检查报告。</p>
-     * <p>单个病人同步失败不影响其他病人继续执行。</p>
-     *
-     * @param patients 指定科室的在院病人列表
-     * @param result 同步结果对象，用于记录成功/失败病人数量
-     */
-    private void syncExaminationResults(List<Patient> patients, NightlySyncResult result) {
-        SyncStatistics stats = syncPatientData(patients, 
-            patientId -> examinationSyncService.importExaminationResults(patientId),
-            "检查");
-        result.setExamSyncSuccess(stats.successCount);
-        result.setExamSyncFailed(stats.failedCount);
-    }
+            long latency = System.nanoTime() - started;
+            long queueWait = started - requested;
+            if (success) {
+                metrics.recordSuccess(0, latency, queueWait);
+            } else {
+                metrics.recordFailure(latency, queueWait);
+            }
 
-    /**
-     * 同步EMR病历内容（第四步）
-     * 
-     * <p>遍历指定科室的在院病人，逐个调用EmrSyncService导入电子病历内容。</p>
-     * <p>单个病人同步失败不影响其他病人继续执行。</p>
-     *
-     * @param patients 指定科室的在院病人列表
-     * @param result 同步结果对象，用于记录成功/失败病人数量
-     */
-    private void syncEmrContent(List<Patient> patients, NightlySyncResult result) {
-        SyncStatistics stats = syncPatientData(patients, 
-            patientId -> emrSyncService.importEmrContent(patientId),
-            "EMR");
-        result.setEmrSyncSuccess(stats.successCount);
-        result.setEmrSyncFailed(stats.failedCount);
+            List<Patient> patients = patientRepository.findByDepartmentAndIsInHospital(deptName, true);
+            log.info("科室 [{}] 共 {} 个在院病人，进入化验、检查、EMR、医嘱同步", deptName, patients.size());
+            return patients;
+        } finally {
+            permits.release();
+        }
     }
 
     /**
-     * 同步医嘱数据（第五步）
+     * 创建病人数据阶段
      * 
-     * <p>遍历指定科室的在院病人，逐个调用OrderSyncService导入长期医嘱数据。</p>
-     * <p>单个病人同步失败不影响其他病人继续执行。</p>
+     * <p>源表已由增量同步负责时（见 {@link DataSyncExecutor#isIncrementalActive}）不创建阶段，
+     * 跳过逐患者拉取；配置了批量查询模板时创建批量阶段，按块调用批量提取器。</p>
      *
-     * @param patients 指定科室的在院病人列表
-     * @param result 同步结果对象，用于记录成功/失败病人数量
-     */
-    private void syncOrders(List<Patient> patients, NightlySyncResult result) {
-        SyncStatistics stats = syncPatientData(patients, 
-            patientId -> orderSyncService.importOrders(patientId),
-            "医嘱");
-        result.setOrderSyncSuccess(stats.successCount);
-        result.setOrderSyncFailed(stats.failedCount);
-    }
-    
-    /**
-     * 通用病人数据同步模板方法
-     * 
-     * <p>提取了三种同步方法的公共逻辑：</p>
-     * <ol>
-     *   <li>遍历病人列表</li>
-     *   <li>调用同步操作（策略模式）</li>
-     *   <li>处理返回值和异常</li>
-     *   <li>统计成功/失败数量</li>
-     * </ol>
-     * 
-     * @param patients 在院病人列表
-     * @param syncOperation 同步操作策略（函数式接口）
-     * @param syncType 同步类型名称（用于日志）
-     * @return 同步统计结果
+     * @param hospitalId 医院ID
+     * @param stageName 阶段名称
+     * @param source 阶段对应的源表
+     * @param operation 单个病人的同步操作
+     * @return 阶段，跳过时返回null
      */
-    private SyncStatistics syncPatientData(List<Patient> patients, 
-                                            PatientSyncOperation syncOperation, 
-                                            String syncType) {
-        int successCount = 0;
-        int failedCount = 0;
-
-        for (Patient patient : patients) {
-            try {
-                String patientId = patient.getPatientId();
-                int importedCount = syncOperation.execute(patientId);
-                
-                if (importedCount >= 0) {
-                    successCount++;
-                    if (importedCount > 0) {
-                        log.debug("病人 [{}] {}同步成功，导入 {} 条记录", patientId, syncType, importedCount);
-                    }
-                } else {
-                    failedCount++;
-                    log.warn("病人 [{}] {}同步失败", patientId, syncType);
-                }
-            } catch (Exception e) {
-                failedCount++;
-                log.error("病人 [{}] {}同步异常: {}", patient.getPatientId(), syncType, e.getMessage());
-            }
+    private NightlySyncStage createStage(String hospitalId, String stageName, IncrementalSyncSource source,
+                                         NightlySyncStage.PatientSyncOperation operation) {
+        if (dataSyncExecutor.isIncrementalActive(hospitalId, source)) {
+            log.info("{}数据已由增量同步负责，跳过逐患者同步", stageName);
+            return null;
         }
-
-        return new SyncStatistics(successCount, failedCount);
-    }
-    
-    /**
-     * 病人同步操作策略接口
-     * 
-     * <p>函数式接口，用于定义不同类型的同步操作</p>
-     */
-    @FunctionalInterface
-    private interface PatientSyncOperation {
-        /**
-         * 执行同步操作
-         * @param patientId 病人ID
-         * @return 导入的记录数，>=0表示成功，<0表示失败
-         */
-        int execute(String patientId);
-    }
-    
-    /**
-     * 同步统计结果类
-     * 
-     * <p>用于封装同步操作的统计结果</p>
-     */
-    private static class SyncStatistics {
-        final int successCount;
-        final int failedCount;
-        
-        SyncStatistics(int successCount, int failedCount) {
-            this.successCount = successCount;
-            this.failedCount = failedCount;
+        if (source instanceof PatientBatchSource batchSource
+                && departmentBatchExtractor.supports(hospitalId, batchSource)) {
+            log.info("{}数据按科室批量提取，每次查询 {} 个病人", stageName, departmentBatchExtractor.getChunkSize());
+            return new NightlySyncStage(stageName,
+                patientIds -> departmentBatchExtractor.extract(hospitalId, batchSource, patientIds),
+                departmentBatchExtractor.getChunkSize(), stageConcurrency, stageQueueCapacity);
         }
+        return new NightlySyncStage(stageName, operation, stageConcurrency, stageQueueCapacity);
     }
 
     /**
@@ -0,0 +1,207 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.Patient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 夜间同步的病人数据阶段（化验、检查、EMR、医嘱各一个）
+ *
+ * 每个阶段有自己的有界队列和固定数量的工作线程：投递线程按科室顺序等待病人列表就绪，
+ * 把病人逐个放入本阶段队列（队列满时只阻塞本阶段的投递），工作线程从队列取出病人执行同步。
+ * 各阶段互不共享队列和线程，EMR等慢阶段积压时不影响其他阶段的进度；
+ * HIS读取和主库写入的并发由各同步服务内的舱壁统一限制。
+ *
+ * 批量模式下投递线程把科室病人按批次大小分块入队，工作线程一次处理一块（一次HIS查询），
+ * 指标仍按病人统计，每个病人的处理耗时取所在块耗时的平均值。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Slf4j
+class NightlySyncStage {
+
+    /** 队列结束标记 */
+    private static final QueuedBatch END = new QueuedBatch(Collections.emptyList(), 0);
+
+    private final String name;
+    private final BatchSyncOperation operation;
+    private final int batchSize;
+    private final int workers;
+    private final BlockingQueue<QueuedBatch> queue;
+    private final NightlySyncStageMetrics metrics;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    /**
+     * @param name          阶段名称（用于日志）
+     * @param operation     单个病人的同步操作
+     * @param workers       工作线程数
+     * @param queueCapacity 队列容量
+     */
+    NightlySyncStage(String name, PatientSyncOperation operation, int workers, int queueCapacity) {
+        this(name, patientIds -> Map.of(patientIds.get(0), operation.execute(patientIds.get(0))),
+            1, workers, queueCapacity);
+    }
+
+    /**
+     * @param name          阶段名称（用于日志）
+     * @param operation     一批病人的同步操作
+     * @param batchSize     每批病人数
+     * @param workers       工作线程数
+     * @param queueCapacity 队列容量（批数）
+     */
+    NightlySyncStage(String name, BatchSyncOperation operation, int batchSize, int workers, int queueCapacity) {
+        this.name = name;
+        this.operation = operation;
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Math.max(1, workers);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.metrics = new NightlySyncStageMetrics(name);
+    }
+
+    /**
+     * 启动投递线程和工作线程
+     *
+     * @param executor    执行线程池
+     * @param departments 各科室在院病人列表（按科室顺序，完成一个投递一个）
+     */
+    void start(ExecutorService executor, List<Future<List<Patient>>> departments) {
+        metrics.markStarted();
+        activeWorkers.set(workers);
+        executor.execute(() -> feed(departments));
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    NightlySyncStageMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void feed(List<Future<List<Patient>>> departments) {
+        try {
+            for (Future<List<Patient>> department : departments) {
+                List<Patient> patients;
+                try {
+                    patients = department.get();
+                } catch (ExecutionException e) {
+                    // 科室病人列表查询失败已在科室阶段记录，这里跳过该科室
+                    continue;
+                }
+                for (int from = 0; from < patients.size(); from += batchSize) {
+                    List<String> patientIds = new ArrayList<>();
+                    for (Patient patient : patients.subList(from, Math.min(patients.size(), from + batchSize))) {
+                        patientIds.add(patient.getPatientId());
+                    }
+                    queue.put(new QueuedBatch(patientIds, System.nanoTime()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("{}阶段投递被中断", name);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                QueuedBatch item = queue.take();
+                if (item == END) {
+                    break;
+                }
+                process(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                metrics.markFinished();
+            }
+        }
+    }
+
+    private void process(QueuedBatch item) {
+        long started = System.nanoTime();
+        long queueWait = started - item.enqueuedNanos;
+        Map<String, Integer> importedCounts;
+        try {
+            importedCounts = operation.execute(item.patientIds);
+        } catch (Exception e) {
+            long latency = (System.nanoTime() - started) / item.patientIds.size();
+            for (String patientId : item.patientIds) {
+                metrics.recordFailure(latency, queueWait);
+                log.error("病人 [{}] {}同步异常: {}", patientId, name, e.getMessage());
+            }
+            return;
+        }
+
+        long latency = (System.nanoTime() - started) / item.patientIds.size();
+        for (String patientId : item.patientIds) {
+            Integer importedCount = importedCounts.get(patientId);
+            if (importedCount != null && importedCount >= 0) {
+                metrics.recordSuccess(importedCount, latency, queueWait);
+                if (importedCount > 0) {
+                    log.debug("病人 [{}] {}同步成功，导入 {} 条记录", patientId, name, importedCount);
+                }
+            } else {
+                metrics.recordFailure(latency, queueWait);
+                log.warn("病人 [{}] {}同步失败", patientId, name);
+            }
+        }
+    }
+
+    /**
+     * 病人同步操作
+     */
+    @FunctionalInterface
+    interface PatientSyncOperation {
+        /**
+         * 执行同步操作
+         * @param patientId 病人ID
+         * @return 导入的记录数，>=0表示成功，<0表示失败
+         */
+        int execute(String patientId);
+    }
+
+    /**
+     * 批量同步操作
+     */
+    @FunctionalInterface
+    interface BatchSyncOperation {
+        /**
+         * 执行同步操作
+         * @param patientIds 病人ID列表
+         * @return 每个病人导入的记录数，>=0表示成功，<0或缺失表示失败
+         */
+        Map<String, Integer> execute(List<String> patientIds);
+    }
+
+    private static final class QueuedBatch {
+        private final List<String> patientIds;
+        private final long enqueuedNanos;
+
+        private QueuedBatch(List<String> patientIds, long enqueuedNanos) {
+            this.patientIds = patientIds;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
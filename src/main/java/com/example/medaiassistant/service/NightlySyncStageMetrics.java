@@ -0,0 +1,160 @@
+package com.example.medaiassistant.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 夜间同步单个阶段的运行指标
+ *
+ * 记录阶段内每个处理单元（科室或病人）的成功/失败数、导入记录数、处理耗时和排队等待耗时，
+ * 按阶段起止时间计算吞吐量。每次运行为每个阶段创建一个新实例，各处理线程并发更新。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public class NightlySyncStageMetrics {
+
+    private final String stageName;
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    private volatile long startMillis = -1;
+    private volatile long finishMillis = -1;
+
+    public NightlySyncStageMetrics(String stageName) {
+        this.stageName = stageName;
+    }
+
+    /**
+     * 标记阶段开始
+     */
+    public void markStarted() {
+        startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 标记阶段结束
+     */
+    public void markFinished() {
+        finishMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 记录一个处理单元成功
+     *
+     * @param importedRecords 导入的记录数
+     * @param latency         处理耗时（纳秒）
+     * @param queueWait       排队等待耗时（纳秒）
+     */
+    public void recordSuccess(int importedRecords, long latency, long queueWait) {
+        records.addAndGet(importedRecords);
+        succeeded.incrementAndGet();
+        recordTiming(latency, queueWait);
+    }
+
+    /**
+     * 记录一个处理单元失败
+     *
+     * @param latency   处理耗时（纳秒）
+     * @param queueWait 排队等待耗时（纳秒）
+     */
+    public void recordFailure(long latency, long queueWait) {
+        failed.incrementAndGet();
+        recordTiming(latency, queueWait);
+    }
+
+    private void recordTiming(long latency, long queueWait) {
+        latencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        queueWaitNanos.addAndGet(queueWait);
+        maxQueueWaitNanos.accumulateAndGet(queueWait, Math::max);
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public int getSucceeded() {
+        return succeeded.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getProcessed() {
+        return succeeded.get() + failed.get();
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    /**
+     * 阶段已用时间（毫秒），结束后固定为阶段总耗时，尚未开始时为0
+     */
+    public long getElapsedMillis() {
+        if (startMillis < 0) {
+            return 0;
+        }
+        long end = finishMillis >= 0 ? finishMillis : System.currentTimeMillis();
+        return end - startMillis;
+    }
+
+    /**
+     * 吞吐量（每秒处理单元数）
+     */
+    public double getThroughputPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getProcessed() * 1000.0 / elapsed;
+    }
+
+    public long getAverageLatencyMillis() {
+        int processed = getProcessed();
+        return processed == 0 ? 0 : latencyNanos.get() / processed / 1_000_000;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000;
+    }
+
+    public long getAverageQueueWaitMillis() {
+        int processed = getProcessed();
+        return processed == 0 ? 0 : queueWaitNanos.get() / processed / 1_000_000;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000;
+    }
+
+    /**
+     * 指标快照
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("succeeded", getSucceeded());
+        map.put("failed", getFailed());
+        map.put("records", getRecords());
+        map.put("elapsedMs", getElapsedMillis());
+        map.put("throughputPerSecond", String.format("%.2f", getThroughputPerSecond()));
+        map.put("avgLatencyMs", getAverageLatencyMillis());
+        map.put("maxLatencyMs", getMaxLatencyMillis());
+        map.put("avgQueueWaitMs", getAverageQueueWaitMillis());
+        map.put("maxQueueWaitMs", getMaxQueueWaitMillis());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: 成功 %d, 失败 %d, 记录 %d, 耗时 %dms, 吞吐 %.2f/s, 平均处理 %dms, 最长处理 %dms, 平均排队 %dms",
+                stageName, getSucceeded(), getFailed(), getRecords(), getElapsedMillis(), getThroughputPerSecond(),
+                getAverageLatencyMillis(), getMaxLatencyMillis(), getAverageQueueWaitMillis());
+    }
+}
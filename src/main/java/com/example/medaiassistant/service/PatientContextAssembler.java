@@ -0,0 +1,650 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.dto.OrderTimelineDTO;
+import com.example.medaiassistant.dto.PatientPromptResultDTO;
+import com.example.medaiassistant.model.Diagnosis;
+import com.example.medaiassistant.model.EmrContent;
+import com.example.medaiassistant.model.LabResult;
+import com.example.medaiassistant.model.LongTermOrder;
+import com.example.medaiassistant.model.MedicalRecord;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.model.PromptTemplate;
+import com.example.medaiassistant.repository.DiagnosisRepository;
+import com.example.medaiassistant.repository.EmrContentRepository;
+import com.example.medaiassistant.repository.LabResultRepository;
+import com.example.medaiassistant.repository.LongTermOrderRepository;
+import com.example.medaiassistant.repository.MedicalRecordRepository;
+import com.example.medaiassistant.repository.PatientRepository;
+import com.example.medaiassistant.repository.PromptResultRepository;
+import com.example.medaiassistant.repository.PromptTemplateRepository;
+import com.example.medaiassistant.util.AgeCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * 患者上下文组装服务
+ *
+ * 根据Prompt模板的requiredDataTypes组装患者综合数据文本（"### 一般信息:"、"### 入院记录:"等分段），
+ * 供AIController的/api/ai/patient-data接口和TimerPromptGenerator的定时任务在进程内直接调用，
+ * 不再经过HTTP自调用、序列化和"data:"前缀清理。
+ *
+ * 1. 各数据板块互不依赖，在有界线程池patientContextExecutor上并发查询和格式化
+ * 2. 结果按数据类型的原始顺序拼接，每个板块后追加"------"分隔线，输出与原接口完全一致
+ * 3. 单个板块查询失败时输出该板块的"无XX数据"标记，不影响其他板块
+ * 4. 线程池饱和拒绝任务时在调用线程中直接执行该板块
+ * 5. 同一患者需要组装多个Prompt时，通过snapshot创建PatientContextSnapshot共享已生成的板块
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Service
+public class PatientContextAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientContextAssembler.class);
+
+    /**
+     * 无入院病历标记，定时任务据此跳过诊断/诊疗类分析
+     */
+    public static final String NO_ADMISSION_RECORD_MARKER = "无入院记录数据";
+
+    /**
+     * 板块分隔线
+     */
+    static final String SECTION_SEPARATOR = "\n------\n";
+
+    /**
+     * 强制包含的数据类型
+     */
+    static final String SURGERY_RECORD_TYPE = "手术记录";
+
+    /**
+     * 模板未配置requiredDataTypes时使用的默认数据类型，也是全部可识别的数据类型
+     */
+    static final List<String> DEFAULT_DATA_TYPES = Collections.unmodifiableList(Arrays.asList(
+            "一般信息",
+            "诊断信息",
+            "病情小结",
+            "病历记录",
+            "长期医嘱",
+            "临时医嘱",
+            "化验结果",
+            "检查结果",
+            "入院记录",
+            "会诊记录",
+            "手术记录"));
+
+    private final PromptTemplateRepository promptTemplateRepository;
+    private final PatientRepository patientRepository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final LongTermOrderRepository longTermOrderRepository;
+    private final LabResultRepository labResultRepository;
+    private final PromptResultRepository promptResultRepository;
+    private final OrderFormatService orderFormatService;
+    private final ExaminationResultService examinationResultService;
+    private final EmrRecordService emrRecordService;
+    private final EmrContentRepository emrContentRepository;
+    private final Executor executor;
+
+    public PatientContextAssembler(PromptTemplateRepository promptTemplateRepository,
+            PatientRepository patientRepository,
+            DiagnosisRepository diagnosisRepository,
+            MedicalRecordRepository medicalRecordRepository,
+            LongTermOrderRepository longTermOrderRepository,
+            LabResultRepository labResultRepository,
+            PromptResultRepository promptResultRepository,
+            OrderFormatService orderFormatService,
+            ExaminationResultService examinationResultService,
+            EmrRecordService emrRecordService,
+            EmrContentRepository emrContentRepository,
+            @Qualifier("patientContextExecutor") Executor executor) {
+        this.promptTemplateRepository = promptTemplateRepository;
+        this.patientRepository = patientRepository;
+        this.diagnosisRepository = diagnosisRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.longTermOrderRepository = longTermOrderRepository;
+        this.labResultRepository = labResultRepository;
+        this.promptResultRepository = promptResultRepository;
+        this.orderFormatService = orderFormatService;
+        this.examinationResultService = examinationResultService;
+        this.emrRecordService = emrRecordService;
+        this.emrContentRepository = emrContentRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * 组装患者综合数据文本
+     *
+     * @param patientId  患者ID
+     * @param promptType Prompt类型（可选）
+     * @param promptName Prompt名称（可选）
+     * @return 按板块分段的患者数据文本
+     */
+    public String assemble(String patientId, String promptType, String promptName) {
+        List<String> dataTypes = resolveDataTypes(promptType, promptName);
+        String result = snapshot(patientId).compose(dataTypes);
+
+        logger.info("Assembled patient data - patientId: {}, sections: {}, length: {}",
+                patientId, dataTypes.size(), result.length());
+        return result;
+    }
+
+    /**
+     * 创建患者上下文快照
+     *
+     * 同一患者在一次运行中需要组装多个Prompt时使用，各板块只查询、格式化一次
+     *
+     * @param patientId 患者ID
+     * @return 患者上下文快照
+     */
+    public PatientContextSnapshot snapshot(String patientId) {
+        return new PatientContextSnapshot(this, patientId, executor);
+    }
+
+    /**
+     * 数据类型决策逻辑
+     *
+     * 1. 若同时提供promptType和promptName，从PromptTemplate表读取requiredDataTypes配置
+     * 2. 若模板配置缺少"手术记录"，自动补充，确保手动生成和自动生成Prompt时病人资料一致
+     * 3. 若模板不存在、配置为空或未提供参数，使用默认数据类型
+     *
+     * @param promptType Prompt类型
+     * @param promptName Prompt名称
+     * @return 数据类型列表（保留模板配置中的原始写法）
+     */
+    public List<String> resolveDataTypes(String promptType, String promptName) {
+        if (promptType == null || promptName == null) {
+            return DEFAULT_DATA_TYPES;
+        }
+        PromptTemplate promptTemplate = promptTemplateRepository.findByPromptTypeAndPromptName(promptType, promptName);
+        if (promptTemplate == null || promptTemplate.getRequiredDataTypes() == null) {
+            return DEFAULT_DATA_TYPES;
+        }
+        String configuredTypes = promptTemplate.getRequiredDataTypes();
+        if (!configuredTypes.contains(SURGERY_RECORD_TYPE)) {
+            logger.info("Template '{}' missing '手术记录', adding it automatically", promptName);
+            configuredTypes = configuredTypes + "," + SURGERY_RECORD_TYPE;
+        }
+        return Arrays.asList(configuredTypes.split(","));
+    }
+
+    /**
+     * 获取Prompt模板文本
+     *
+     * @param promptType Prompt类型
+     * @param promptName Prompt名称
+     * @return 模板文本，模板不存在时返回null
+     */
+    public String findPromptTemplate(String promptType, String promptName) {
+        PromptTemplate promptTemplate = promptTemplateRepository.findByPromptTypeAndPromptName(promptType, promptName);
+        if (promptTemplate == null) {
+            logger.warn("Prompt not found - Type: '{}', Name: '{}'", promptType, promptName);
+            return null;
+        }
+        return promptTemplate.getPrompt();
+    }
+
+    /**
+     * 生成单个数据板块（含"### XX:"标题，不含分隔线）
+     *
+     * @param patientId 患者ID
+     * @param dataType  数据类型
+     * @return 板块文本
+     */
+    public String renderSection(String patientId, String dataType) {
+        return snapshot(patientId).section(dataType);
+    }
+
+    /**
+     * 按数据类型生成板块，由PatientContextSnapshot在线程池上调用
+     *
+     * @param snapshot    患者上下文快照
+     * @param trimmedType 去除空白后的数据类型
+     * @return 板块文本
+     */
+    String render(PatientContextSnapshot snapshot, String trimmedType) {
+        String patientId = snapshot.getPatientId();
+        switch (trimmedType) {
+            case "一般信息":
+                return renderBasicInfo(patientId);
+            case "诊断信息":
+                return renderDiagnoses(patientId);
+            case "病情小结":
+                return renderMedicalSummary(snapshot);
+            case "病历记录":
+                return renderMedicalRecords(snapshot);
+            case "长期医嘱":
+                return renderLongTermOrders(patientId);
+            case "临时医嘱":
+                return renderTemporaryOrders(patientId);
+            case "化验结果":
+                return renderLabResults(patientId);
+            case "检查结果":
+                return renderExaminationResults(patientId);
+            case "入院记录":
+                return renderAdmissionRecord(patientId);
+            case "会诊记录":
+                return renderConsultationRecords(patientId);
+            case "手术记录":
+                return renderSurgeryRecords(patientId);
+            default:
+                return renderUnknownSection(trimmedType);
+        }
+    }
+
+    /**
+     * 未知数据类型的占位内容（保留模板配置中的原始写法）
+     */
+    String renderUnknownSection(String dataType) {
+        logger.warn("Unknown data type: {}", dataType.trim().toLowerCase());
+        return "\n" + dataType + ":\n未知数据类型";
+    }
+
+    /**
+     * 查询未删除的病历（按记录时间倒序），病情小结和病历记录共用
+     */
+    List<MedicalRecord> loadMedicalRecords(String patientId) {
+        return medicalRecordRepository.findByPatientIdAndDeletedOrderByRecordTimeDesc(patientId, 0);
+    }
+
+    /**
+     * 一般信息：性别、年龄、入院时间、住院天数
+     */
+    private String renderBasicInfo(String patientId) {
+        try {
+            Optional<Patient> patientOpt = patientRepository.findById(patientId);
+            if (!patientOpt.isPresent()) {
+                logger.warn("Patient not found: {}", patientId);
+                return "### 一般信息:\n无基本信息数据";
+            }
+            Patient patient = patientOpt.get();
+            int age = AgeCalculator.calculateAge(patient.getDateOfBirth(), 0);
+
+            long days = 0;
+            String admissionTime = "未知";
+            if (patient.getAdmissionTime() != null) {
+                LocalDate admissionDate = patient.getAdmissionTime().toInstant()
+                        .atZone(ZoneId.systemDefault())
+                        .toLocalDate();
+                days = ChronoUnit.DAYS.between(admissionDate, LocalDate.now());
+                admissionTime = new SimpleDateFormat("yyyy年MM月dd日 HH:mm").format(patient.getAdmissionTime());
+            }
+
+            // 数据库值：1=男性，2=女性
+            String genderInChinese;
+            switch (patient.getGender() != null ? patient.getGender() : "") {
+                case "1":
+                    genderInChinese = "男";
+                    break;
+                case "2":
+                    genderInChinese = "女";
+                    break;
+                default:
+                    genderInChinese = "未确定";
+            }
+
+            return "### 一般信息:\n" + String.format("性别：%s，年龄：%d岁，入院时间：%s，住院时间：%d天。",
+                    genderInChinese, age, admissionTime, days);
+        } catch (Exception e) {
+            logger.error("Failed to get basic info for patient: {}", patientId, e);
+            return "### 一般信息:\n无基本信息数据";
+        }
+    }
+
+    /**
+     * 诊断信息：目前诊断列表
+     */
+    private String renderDiagnoses(String patientId) {
+        try {
+            List<Diagnosis> diagnoses = diagnosisRepository.findByPatientId(patientId);
+            if (diagnoses != null && !diagnoses.isEmpty()) {
+                String diagnosisText = diagnoses.stream()
+                        .map(Diagnosis::getDiagnosisText)
+                        .collect(Collectors.joining(", "));
+                return "### 目前诊断:\n" + diagnosisText;
+            }
+            logger.warn("No diagnosis found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get diagnosis names for patient: {}", patientId, e);
+        }
+        return "### 目前诊断:\n无诊断信息数据";
+    }
+
+    /**
+     * 病情小结：最新一条病情小结内容
+     */
+    private String renderMedicalSummary(PatientContextSnapshot snapshot) {
+        String patientId = snapshot.getPatientId();
+        try {
+            List<MedicalRecord> summaries = snapshot.medicalRecords();
+            Optional<MedicalRecord> latestSummary = summaries.stream()
+                    .filter(r -> r.getRecordType() != null && r.getRecordType().contains("病情小结"))
+                    .findFirst();
+            if (latestSummary.isPresent() && latestSummary.get().getMedicalContent() != null) {
+                return "### 病情小结:\n" + latestSummary.get().getMedicalContent();
+            }
+            logger.warn("No medical summary found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get medical summary for patient: {}", patientId, e);
+        }
+        return "### 病情小结:\n无病情小结数据";
+    }
+
+    /**
+     * 病历记录：按记录时间倒序的病历时间轴
+     */
+    private String renderMedicalRecords(PatientContextSnapshot snapshot) {
+        String patientId = snapshot.getPatientId();
+        try {
+            List<MedicalRecord> records = snapshot.medicalRecords();
+            if (records != null && !records.isEmpty()) {
+                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy年MM月dd日 HH:mm");
+                StringBuilder recordsBuilder = new StringBuilder();
+                for (MedicalRecord record : records) {
+                    if (record.getRecordTime() != null) {
+                        recordsBuilder.append(dateFormat.format(record.getRecordTime())).append("\n");
+                    }
+                    if (record.getMedicalContent() != null) {
+                        recordsBuilder.append(record.getMedicalContent()).append("\n\n");
+                    }
+                }
+                return "### 病历记录:\n" + recordsBuilder.toString().trim();
+            }
+            logger.warn("No medical records found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get medical records for patient: {}", patientId, e);
+        }
+        return "### 病历记录:\n无病历记录数据";
+    }
+
+    /**
+     * 长期医嘱：由OrderFormatService格式化
+     */
+    private String renderLongTermOrders(String patientId) {
+        try {
+            List<String> formattedOrders = orderFormatService.formatLongTermOrders(patientId);
+            if (formattedOrders != null && !formattedOrders.isEmpty()) {
+                return "### 长期医嘱:\n" + String.join("\n", formattedOrders);
+            }
+            logger.warn("No long-term orders found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get long-term orders for patient: {}", patientId, e);
+        }
+        return "### 长期医嘱:\n无长期医嘱数据";
+    }
+
+    /**
+     * 临时医嘱：转换为OrderTimelineDTO后由OrderFormatService格式化
+     */
+    private String renderTemporaryOrders(String patientId) {
+        try {
+            List<LongTermOrder> tempOrders = longTermOrderRepository
+                    .findByPatientIdAndRepeatIndicatorOrderByOrderDateAsc(patientId, 0);
+            if (tempOrders != null && !tempOrders.isEmpty()) {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy年M月d日 H:mm");
+                List<OrderTimelineDTO> dtos = tempOrders.stream()
+                        .map(order -> new OrderTimelineDTO(
+                                order.getOrderDate().toInstant().atZone(ZoneId.systemDefault()).format(formatter) + " " +
+                                        order.getOrderName() + " " +
+                                        (order.getDosage() != null ? order.getDosage() : "") +
+                                        (order.getUnit() != null ? order.getUnit() : "") + " " +
+                                        (order.getFrequency() != null ? order.getFrequency() : "") + " " +
+                                        (order.getRoute() != null ? order.getRoute() : ""),
+                                Collections.emptyList()))
+                        .collect(Collectors.toList());
+                String formattedTempOrders = orderFormatService.formatTemporaryOrders(dtos);
+                return "### 临时医嘱:\n" + (formattedTempOrders.isEmpty() ? "无临时医嘱数据" : formattedTempOrders);
+            }
+            logger.warn("No temporary orders found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get temporary orders for patient: {}", patientId, e);
+        }
+        return "### 临时医嘱:\n无临时医嘱数据";
+    }
+
+    /**
+     * 化验结果：按报告时间和化验类型分组
+     */
+    private String renderLabResults(String patientId) {
+        try {
+            List<LabResult> labResults = labResultRepository.findByPatientId(patientId);
+            if (labResults != null && !labResults.isEmpty()) {
+                String formattedLabResults = formatLabResults(labResults);
+                return "### 化验结果:\n" + (formattedLabResults.isEmpty() ? "无化验结果数据" : formattedLabResults);
+            }
+            logger.warn("No lab results found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get lab results for patient: {}", patientId, e);
+        }
+        return "### 化验结果:\n无化验结果数据";
+    }
+
+    /**
+     * 检查结果：由ExaminationResultService格式化
+     */
+    private String renderExaminationResults(String patientId) {
+        try {
+            String formattedExamResults = examinationResultService.getFormattedResultsByPatientId(patientId);
+            if (formattedExamResults != null && !formattedExamResults.isEmpty()) {
+                return "### 检查结果:\n" + formattedExamResults;
+            }
+            logger.warn("No examination results found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get examination results for patient: {}", patientId, e);
+        }
+        return "### 检查结果:\n无检查结果数据";
+    }
+
+    /**
+     * 入院记录（入院记录总结优先）
+     *
+     * 1. 优先使用PromptResult中模板名包含"入院记录总结"的结果内容
+     * 2. 无入院记录总结时，降级到EMR_CONTENT表的原始入院记录
+     * 3. 两者都不存在或查询异常时输出"无入院记录数据"标记
+     */
+    private String renderAdmissionRecord(String patientId) {
+        try {
+            List<PatientPromptResultDTO> summaryResults = promptResultRepository.findMedicalSummaryByPatientId(patientId);
+            if (summaryResults != null) {
+                for (PatientPromptResultDTO dto : summaryResults) {
+                    String templateName = dto.getPromptTemplateName();
+                    if (templateName != null && templateName.contains("入院记录总结")) {
+                        String content = dto.getOriginalResultContent();
+                        if (content == null || content.isEmpty()) {
+                            content = dto.getModifiedResultContent();
+                        }
+                        if (content != null && !content.isEmpty()) {
+                            return "### 入院记录:\n" + content;
+                        }
+                    }
+                }
+            }
+
+            List<String> admissionContents = emrRecordService.getAdmissionRecordContent(patientId);
+            if (admissionContents != null && !admissionContents.isEmpty()) {
+                return "### 入院记录:\n" + String.join("\n", admissionContents);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to get admission record for patient: {}", patientId, e);
+        }
+        return "### 入院记录:\n" + NO_ADMISSION_RECORD_MARKER;
+    }
+
+    /**
+     * 会诊记录：EMR_CONTENT表中DOC_TYPE_NAME为"会诊记录"的记录
+     */
+    private String renderConsultationRecords(String patientId) {
+        try {
+            List<EmrContent> consultationRecords =
+                    emrRecordService.getEmrRecordsByPatientIdAndDocType(patientId, "会诊记录");
+            if (consultationRecords != null && !consultationRecords.isEmpty()) {
+                return "### 会诊记录:\n" + formatEmrRecords(consultationRecords, true);
+            }
+            logger.warn("No consultation records found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get consultation records for patient: {}", patientId, e);
+        }
+        return "### 会诊记录:\n无会诊记录数据";
+    }
+
+    /**
+     * 手术记录：DOC_TYPE_NAME模糊匹配"手术记录"或"操作记录"
+     */
+    private String renderSurgeryRecords(String patientId) {
+        try {
+            List<EmrContent> surgeryRecords = emrContentRepository.findOperationsByPatientId(patientId);
+            if (surgeryRecords != null && !surgeryRecords.isEmpty()) {
+                return "### 手术记录:\n" + formatEmrRecords(surgeryRecords, false);
+            }
+            logger.warn("No surgery records found for patient: {}", patientId);
+        } catch (Exception e) {
+            logger.error("Failed to get surgery records for patient: {}", patientId, e);
+        }
+        return "### 手术记录:\n无手术记录数据";
+    }
+
+    /**
+     * 格式化EMR记录：记录时间 + 内容 + 记录人，多条记录之间以"------"分隔
+     *
+     * @param records              EMR记录
+     * @param skipEmptyCreator     记录人为空字符串时是否省略"记录人"行
+     */
+    private static String formatEmrRecords(List<EmrContent> records, boolean skipEmptyCreator) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy年MM月dd日 HH:mm");
+        StringBuilder builder = new StringBuilder();
+        for (EmrContent record : records) {
+            if (record.getRecordDate() != null) {
+                builder.append("记录时间: ").append(dateFormat.format(record.getRecordDate())).append("\n");
+            }
+            if (record.getContent() != null && !record.getContent().isEmpty()) {
+                builder.append(record.getContent()).append("\n");
+            }
+            if (record.getCreateBy() != null && !(skipEmptyCreator && record.getCreateBy().isEmpty())) {
+                builder.append("记录人: ").append(record.getCreateBy()).append("\n");
+            }
+            builder.append("------\n");
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * 格式化化验结果
+     *
+     * 先按报告时间升序、再按异常标志（H、L、N）排序，按时间和化验类型分组输出
+     *
+     * @param labResults 化验结果列表
+     * @return 格式化后的字符串
+     */
+    public String formatLabResults(List<LabResult> labResults) {
+        if (labResults == null || labResults.isEmpty()) {
+            return "";
+        }
+
+        labResults.sort((a, b) -> {
+            try {
+                if (a.getLabReportTime() == null) return 1;
+                if (b.getLabReportTime() == null) return -1;
+                int timeCompare = a.getLabReportTime().compareTo(b.getLabReportTime());
+                if (timeCompare != 0) {
+                    return timeCompare;
+                }
+                return Integer.compare(getAbnormalOrder(a.getAbnormalIndicator()),
+                        getAbnormalOrder(b.getAbnormalIndicator()));
+            } catch (Exception e) {
+                return 0;
+            }
+        });
+
+        Map<String, Map<String, List<LabResult>>> groupedResults = new LinkedHashMap<>();
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy年MM月dd日HH:mm");
+
+        for (LabResult labResult : labResults) {
+            String issueTime = "未知时间";
+            try {
+                if (labResult.getLabReportTime() != null) {
+                    issueTime = sdf.format(labResult.getLabReportTime());
+                }
+            } catch (Exception e) {
+                logger.warn("日期格式化失败: {}", labResult.getLabReportTime());
+            }
+
+            String labType = labResult.getLabType() != null ? labResult.getLabType() : "未知类型";
+
+            groupedResults
+                    .computeIfAbsent(issueTime, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(labType, k -> new ArrayList<>())
+                    .add(labResult);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Map<String, List<LabResult>>> timeEntry : groupedResults.entrySet()) {
+            String issueTime = timeEntry.getKey();
+
+            for (Map.Entry<String, List<LabResult>> typeEntry : timeEntry.getValue().entrySet()) {
+                sb.append(issueTime).append(" ").append(typeEntry.getKey()).append("\n");
+
+                for (LabResult labResult : typeEntry.getValue()) {
+                    String labName = labResult.getLabName() != null ? labResult.getLabName() : "未知项目";
+                    String resultValue = labResult.getLabResult() != null ? labResult.getLabResult() : "";
+                    String unit = labResult.getUnit() != null ? labResult.getUnit() : "";
+                    String abnormalIndicator = labResult.getAbnormalIndicator() != null
+                            ? labResult.getAbnormalIndicator()
+                            : "";
+
+                    sb.append(labName).append(" ")
+                            .append(resultValue).append(" ")
+                            .append(unit);
+
+                    if ("h".equalsIgnoreCase(abnormalIndicator)) {
+                        sb.append(" (升高)");
+                    } else if ("l".equalsIgnoreCase(abnormalIndicator)) {
+                        sb.append(" (降低)");
+                    }
+
+                    sb.append("\n");
+                }
+
+                sb.append("\n");
+            }
+        }
+
+        return sb.toString().trim();
+    }
+
+    /**
+     * 异常标志排序权重：H(0) < L(1) < N(2) < 其它/空(3)
+     */
+    private static int getAbnormalOrder(String abnormalIndicator) {
+        if (abnormalIndicator == null) {
+            return 3;
+        }
+        String flag = abnormalIndicator.trim();
+        if ("H".equalsIgnoreCase(flag)) {
+            return 0;
+        }
+        if ("L".equalsIgnoreCase(flag)) {
+            return 1;
+        }
+        if ("N".equalsIgnoreCase(flag)) {
+            return 2;
+        }
+        return 3;
+    }
+}
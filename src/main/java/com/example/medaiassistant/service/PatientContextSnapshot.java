@@ -0,0 +1,156 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.MedicalRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个患者的上下文快照
+ *
+ * 在一次任务运行中为同一患者组装多个Prompt（如诊断分析、诊疗计划补充、病情小结）时共享：
+ * 1. 每个数据板块只查询、格式化一次，之后各Prompt按模板requiredDataTypes直接复用已生成的板块文本
+ * 2. 病情小结和病历记录共用同一次病历查询
+ * 3. 板块在有界线程池上并发生成，prefetch可提前提交多个模板所需板块的并集
+ *
+ * 快照只在一次运行内有效，不跨运行缓存，由PatientContextAssembler#snapshot创建。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public class PatientContextSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientContextSnapshot.class);
+
+    private final PatientContextAssembler assembler;
+    private final String patientId;
+    private final Executor executor;
+
+    /** 已提交的板块，key为去除空白后的数据类型 */
+    private final ConcurrentMap<String, CompletableFuture<String>> sections = new ConcurrentHashMap<>();
+
+    /** 病情小结和病历记录共用的病历列表 */
+    private final AtomicReference<CompletableFuture<List<MedicalRecord>>> medicalRecords = new AtomicReference<>();
+
+    PatientContextSnapshot(PatientContextAssembler assembler, String patientId, Executor executor) {
+        this.assembler = assembler;
+        this.patientId = patientId;
+        this.executor = executor;
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * 提前提交一组数据类型的板块生成任务（并发执行），已提交的板块不会重复生成
+     *
+     * @param dataTypes 数据类型
+     */
+    public void prefetch(Collection<String> dataTypes) {
+        for (String dataType : dataTypes) {
+            sectionFuture(dataType);
+        }
+    }
+
+    /**
+     * 按数据类型顺序拼接患者数据文本，每个板块后追加"------"分隔线
+     *
+     * @param dataTypes 数据类型（通常来自PatientContextAssembler#resolveDataTypes）
+     * @return 患者数据文本
+     */
+    public String compose(List<String> dataTypes) {
+        prefetch(dataTypes);
+
+        StringBuilder result = new StringBuilder();
+        for (String dataType : dataTypes) {
+            try {
+                result.append(section(dataType)).append(PatientContextAssembler.SECTION_SEPARATOR);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Failed to get data for type: {}", dataType.trim(), cause);
+                result.append("\n").append(dataType).append(":\n数据获取失败: ")
+                        .append(cause.getMessage())
+                        .append(PatientContextAssembler.SECTION_SEPARATOR);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 获取单个板块文本（含"### XX:"标题，不含分隔线），必要时等待生成完成
+     *
+     * @param dataType 数据类型
+     * @return 板块文本
+     * @throws CompletionException 板块生成过程中出现未处理的异常
+     */
+    public String section(String dataType) {
+        return sectionFuture(dataType).join();
+    }
+
+    /**
+     * 已提交生成的板块数量
+     */
+    public int sectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * 病历列表（按记录时间倒序），同一快照内只查询一次
+     */
+    List<MedicalRecord> medicalRecords() {
+        CompletableFuture<List<MedicalRecord>> future = medicalRecords.get();
+        if (future == null) {
+            CompletableFuture<List<MedicalRecord>> created = new CompletableFuture<>();
+            if (medicalRecords.compareAndSet(null, created)) {
+                try {
+                    created.complete(assembler.loadMedicalRecords(patientId));
+                } catch (RuntimeException e) {
+                    created.completeExceptionally(e);
+                }
+            }
+            future = medicalRecords.get();
+        }
+        return future.join();
+    }
+
+    private CompletableFuture<String> sectionFuture(String dataType) {
+        String trimmedType = dataType.trim().toLowerCase();
+        if (!PatientContextAssembler.DEFAULT_DATA_TYPES.contains(trimmedType)) {
+            // 未知数据类型不查询数据库，保留原始写法输出
+            return CompletableFuture.completedFuture(assembler.renderUnknownSection(dataType));
+        }
+        CompletableFuture<String> existing = sections.get(trimmedType);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<String> created = new CompletableFuture<>();
+        existing = sections.putIfAbsent(trimmedType, created);
+        if (existing != null) {
+            return existing;
+        }
+        Runnable task = () -> {
+            try {
+                created.complete(assembler.render(this, trimmedType));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            // 线程池拒绝时在调用线程中执行
+            logger.debug("Patient context executor rejected section {}, running inline", trimmedType);
+            task.run();
+        }
+        return created;
+    }
+}
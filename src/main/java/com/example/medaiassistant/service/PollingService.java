@@ -7,7 +7,6 @@ import com.example.medaiassistant.model.Prompt;
 import com.example.medaiassistant.repository.EncryptedDataTempRepository;
 import com.example.medaiassistant.repository.PromptResultRepository;
 import com.example.medaiassistant.repository.PromptRepository;
-import com.example.medaiassistant.util.AESEncryptionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,7 +49,7 @@ public class PollingService {
     private PromptRepository promptRepository;
 
     @Autowired
-    private ServerConfigService serverConfigService;
+    private CryptoKeyRing cryptoKeyRing;
 
     @Autowired
     private OptimisticLockRetryService optimisticLockRetryService;
@@ -460,17 +459,14 @@ public class PollingService {
      */
     private String decryptData(String encryptedContent) {
         try {
-            // 获取AES加密密钥和盐值
-            String encryptionKey = serverConfigService.getAesEncryptionKey();
-            String encryptionSalt = serverConfigService.getAesEncryptionSalt();
-            
-            if (encryptionKey == null || encryptionSalt == null) {
+            // 密钥由密钥环缓存，配置未变化时不再查询配置表或重新派生
+            if (!cryptoKeyRing.isConfigured()) {
                 logger.error("AES加密配置未设置，无法解密数据");
                 return null;
             }
-            
+
             // 解密数据
-            String decryptedResult = AESEncryptionUtil.decrypt(encryptedContent, encryptionKey, encryptionSalt);
+            String decryptedResult = cryptoKeyRing.decrypt(encryptedContent);
             logger.info("数据解密成功，解密后长度: {} 字符", decryptedResult.length());
             return decryptedResult;
         } catch (Exception e) {
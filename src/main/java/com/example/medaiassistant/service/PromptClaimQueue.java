@@ -0,0 +1,286 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.config.PromptServiceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Prompt认领队列
+ *
+ * 基于prompts表的认领式工作队列，允许多个主服务器实例同时提交Prompt而不重复提交、
+ * 也不互相阻塞。沿用既有状态流转：待处理 → SUBMISSION_STARTED → 已提交。
+ *
+ * 1. 认领：按Priority、SubmissionTime顺序取一批待处理Prompt，原子地更新为SUBMISSION_STARTED，
+ *    ProcessingStartTime记录认领时间，作为租约起点和租约令牌
+ * 2. Oracle/PostgreSQL使用SELECT ... FOR UPDATE SKIP LOCKED，其他数据库使用带条件的UPDATE
+ *    （比较并交换），同一行只有一个实例认领成功
+ * 3. 租约超时（实例崩溃或提交卡住）的SUBMISSION_STARTED记录会被重新认领；ProcessingStartTime为空的
+ *    SUBMISSION_STARTED记录不是本队列认领的（如单条手动提交），没有租约，不会被认领
+ * 4. 完成或释放时校验租约令牌，租约已被其他实例接管的记录不会被覆盖
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Component
+public class PromptClaimQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptClaimQueue.class);
+
+    static final String STATUS_PENDING = "待处理";
+    static final String STATUS_CLAIMED = "SUBMISSION_STARTED";
+    static final String STATUS_SUBMITTED = "已提交";
+
+    /**
+     * 认领策略
+     */
+    public enum ClaimStrategy {
+        /** 根据数据库类型自动选择 */
+        AUTO,
+        /** SELECT ... FOR UPDATE SKIP LOCKED */
+        SKIP_LOCKED,
+        /** 带条件的UPDATE（比较并交换） */
+        COMPARE_AND_SET
+    }
+
+    /** 可认领条件：待处理，或SUBMISSION_STARTED且租约已过期（租约时间为空时不认领） */
+    private static final String CLAIMABLE_CONDITION =
+            "(StatusName = ? OR (StatusName = ? AND ProcessingStartTime < ?))";
+
+    private static final String SELECT_CANDIDATES_SQL =
+            "SELECT PromptId FROM prompts WHERE " + CLAIMABLE_CONDITION + " ORDER BY Priority, SubmissionTime, PromptId";
+
+    private static final String SELECT_SKIP_LOCKED_SQL = SELECT_CANDIDATES_SQL + " FOR UPDATE SKIP LOCKED";
+
+    private static final String MARK_CLAIMED_SQL =
+            "UPDATE prompts SET StatusName = ?, ProcessingStartTime = ? WHERE PromptId = ?";
+
+    private static final String CAS_CLAIM_SQL =
+            "UPDATE prompts SET StatusName = ?, ProcessingStartTime = ? WHERE PromptId = ? AND " + CLAIMABLE_CONDITION;
+
+    private static final String COMPLETE_SQL =
+            "UPDATE prompts SET StatusName = ?, SubmissionTime = ?, ProcessingStartTime = ?, RetryCount = COALESCE(RetryCount, 0) "
+                    + "WHERE PromptId = ? AND StatusName = ? AND ProcessingStartTime = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE prompts SET StatusName = ?, ProcessingStartTime = NULL "
+                    + "WHERE PromptId = ? AND StatusName = ? AND ProcessingStartTime = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PromptServiceConfig promptServiceConfig;
+    private final LongSupplier clock;
+
+    private volatile ClaimStrategy resolvedStrategy;
+
+    @Autowired
+    public PromptClaimQueue(JdbcTemplate jdbcTemplate,
+            @Qualifier("transactionManager") PlatformTransactionManager transactionManager,
+            PromptServiceConfig promptServiceConfig) {
+        this(jdbcTemplate, transactionManager, promptServiceConfig, System::currentTimeMillis);
+    }
+
+    PromptClaimQueue(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            PromptServiceConfig promptServiceConfig, LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.promptServiceConfig = promptServiceConfig;
+        this.clock = clock;
+    }
+
+    /**
+     * 认领一批待提交的Prompt
+     *
+     * @param batchSize 最多认领数量
+     * @return 认领结果（按Priority、SubmissionTime排序），没有可认领记录时为空
+     */
+    public ClaimBatch claim(int batchSize) {
+        if (batchSize <= 0) {
+            return ClaimBatch.EMPTY;
+        }
+
+        // 租约令牌精确到秒，兼容ProcessingStartTime为DATE类型的数据库
+        long now = clock.getAsLong();
+        Timestamp leaseToken = new Timestamp(now - now % 1000);
+        Timestamp expiredBefore = new Timestamp(now - promptServiceConfig.getSubmission().getLeaseTimeout());
+
+        List<Integer> promptIds = resolveStrategy() == ClaimStrategy.SKIP_LOCKED
+                ? claimSkipLocked(batchSize, leaseToken, expiredBefore)
+                : claimCompareAndSet(batchSize, leaseToken, expiredBefore);
+
+        if (promptIds.isEmpty()) {
+            return ClaimBatch.EMPTY;
+        }
+        logger.debug("认领 {} 个Prompt，租约令牌: {}", promptIds.size(), leaseToken);
+        return new ClaimBatch(promptIds, leaseToken);
+    }
+
+    /**
+     * 标记已认领的Prompt为已提交
+     *
+     * @param promptId   Prompt ID
+     * @param leaseToken 认领时的租约令牌
+     * @return true表示更新成功，false表示租约已失效（已被其他实例重新认领或状态已变化）
+     */
+    public boolean complete(Integer promptId, Timestamp leaseToken) {
+        Timestamp now = new Timestamp(clock.getAsLong());
+        int updated = jdbcTemplate.update(COMPLETE_SQL, STATUS_SUBMITTED, now, now, promptId,
+                STATUS_CLAIMED, leaseToken);
+        return updated == 1;
+    }
+
+    /**
+     * 释放已认领的Prompt，恢复为待处理状态以便下次重新认领
+     *
+     * @param promptId   Prompt ID
+     * @param leaseToken 认领时的租约令牌
+     * @return true表示释放成功，false表示租约已失效
+     */
+    public boolean release(Integer promptId, Timestamp leaseToken) {
+        int updated = jdbcTemplate.update(RELEASE_SQL, STATUS_PENDING, promptId, STATUS_CLAIMED, leaseToken);
+        return updated == 1;
+    }
+
+    /**
+     * 获取实际使用的认领策略
+     *
+     * @return 认领策略（不会返回AUTO）
+     */
+    public ClaimStrategy resolveStrategy() {
+        ClaimStrategy strategy = resolvedStrategy;
+        if (strategy == null) {
+            strategy = determineStrategy();
+            resolvedStrategy = strategy;
+            logger.info("Prompt认领队列使用策略: {}", strategy);
+        }
+        return strategy;
+    }
+
+    private ClaimStrategy determineStrategy() {
+        ClaimStrategy configured = parseStrategy(promptServiceConfig.getSubmission().getClaimStrategy());
+        if (configured != ClaimStrategy.AUTO) {
+            return configured;
+        }
+        try {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            String normalized = product == null ? "" : product.toLowerCase(Locale.ROOT);
+            if (normalized.contains("oracle") || normalized.contains("postgresql")) {
+                return ClaimStrategy.SKIP_LOCKED;
+            }
+        } catch (Exception e) {
+            logger.warn("无法识别数据库类型，Prompt认领队列使用比较并交换策略: {}", e.getMessage());
+        }
+        return ClaimStrategy.COMPARE_AND_SET;
+    }
+
+    private static ClaimStrategy parseStrategy(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ClaimStrategy.AUTO;
+        }
+        try {
+            return ClaimStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("未知的Prompt认领策略: {}，使用AUTO", value);
+            return ClaimStrategy.AUTO;
+        }
+    }
+
+    /**
+     * SKIP LOCKED认领：在一个短事务中锁定并更新一批记录，其他实例跳过已锁定的行
+     */
+    private List<Integer> claimSkipLocked(int batchSize, Timestamp leaseToken, Timestamp expiredBefore) {
+        List<Integer> claimed = transactionTemplate.execute(status -> {
+            List<Integer> locked = selectCandidates(SELECT_SKIP_LOCKED_SQL, batchSize, expiredBefore);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+            List<Object[]> batchArgs = new ArrayList<>(locked.size());
+            for (Integer promptId : locked) {
+                batchArgs.add(new Object[] { STATUS_CLAIMED, leaseToken, promptId });
+            }
+            jdbcTemplate.batchUpdate(MARK_CLAIMED_SQL, batchArgs);
+            return locked;
+        });
+        return claimed == null ? Collections.emptyList() : claimed;
+    }
+
+    /**
+     * 比较并交换认领：逐行执行带可认领条件的UPDATE（自动提交），更新到1行即认领成功
+     */
+    private List<Integer> claimCompareAndSet(int batchSize, Timestamp leaseToken, Timestamp expiredBefore) {
+        List<Integer> candidates = selectCandidates(SELECT_CANDIDATES_SQL, batchSize, expiredBefore);
+        List<Integer> claimed = new ArrayList<>(candidates.size());
+        for (Integer promptId : candidates) {
+            int updated = jdbcTemplate.update(CAS_CLAIM_SQL, STATUS_CLAIMED, leaseToken, promptId,
+                    STATUS_PENDING, STATUS_CLAIMED, expiredBefore);
+            if (updated == 1) {
+                claimed.add(promptId);
+            }
+        }
+        return claimed;
+    }
+
+    private List<Integer> selectCandidates(String sql, int batchSize, Timestamp expiredBefore) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setMaxRows(batchSize);
+            ps.setFetchSize(batchSize);
+            ps.setString(1, STATUS_PENDING);
+            ps.setString(2, STATUS_CLAIMED);
+            ps.setTimestamp(3, expiredBefore);
+            return ps;
+        }, (rs, rowNum) -> rs.getInt(1));
+    }
+
+    /**
+     * 一次认领的结果
+     */
+    public static final class ClaimBatch {
+        static final ClaimBatch EMPTY = new ClaimBatch(Collections.emptyList(), null);
+
+        private final List<Integer> promptIds;
+        private final Timestamp leaseToken;
+
+        ClaimBatch(List<Integer> promptIds, Timestamp leaseToken) {
+            this.promptIds = Collections.unmodifiableList(promptIds);
+            this.leaseToken = leaseToken;
+        }
+
+        /**
+         * 认领到的Prompt ID（按认领顺序）
+         */
+        public List<Integer> getPromptIds() {
+            return promptIds;
+        }
+
+        /**
+         * 租约令牌，完成或释放时用于校验租约
+         */
+        public Timestamp getLeaseToken() {
+            return leaseToken;
+        }
+
+        public boolean isEmpty() {
+            return promptIds.isEmpty();
+        }
+
+        public int size() {
+            return promptIds.size();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.medaiassistant.service;
 
 import com.example.medaiassistant.config.PromptServiceConfig;
+import com.example.medaiassistant.dto.EncryptedDataStatusDTO;
 import com.example.medaiassistant.model.DataStatus;
 import com.example.medaiassistant.model.EncryptedDataTemp;
 import com.example.medaiassistant.model.PromptResult;
@@ -8,9 +9,10 @@ import com.example.medaiassistant.model.Prompt;
 import com.example.medaiassistant.repository.executionserver.ExecutionServerEncryptedDataTempRepository;
 import com.example.medaiassistant.repository.PromptResultRepository;
 import com.example.medaiassistant.repository.PromptRepository;
-import com.example.medaiassistant.util.AESEncryptionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -18,9 +20,14 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
 
 import java.sql.Clob;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -43,13 +50,34 @@ import java.util.Optional;
 public class PromptPollingService {
     private static final Logger logger = LoggerFactory.getLogger(PromptPollingService.class);
 
+    /** 轮询核对的Prompt状态 */
+    private static final List<String> SUBMITTED_STATUS_NAMES = List.of("已提交", "SUBMISSION_STARTED");
+
+    /** 执行服务器REQUEST_ID前缀 */
+    private static final String REQUEST_ID_PREFIX = "cdwyy";
+
+    private static final String STATUS_COMPLETED = "已完成";
+    private static final String STATUS_FAILED = "执行失败";
+
+    /** 每页最大Prompt数量（Oracle IN列表上限） */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /** 从SENT数据补齐已完成状态，已完成的Prompt不重复更新 */
+    private static final String MARK_COMPLETED_SQL =
+            "UPDATE prompts SET StatusName = ?, ExecutionTime = ? WHERE PromptId = ? AND StatusName <> ?";
+
+    /** 根据ERROR数据标记执行失败，错误信息写入ExecutionResult */
+    private static final String MARK_FAILED_SQL =
+            "UPDATE prompts SET StatusName = ?, ExecutionTime = ?, ExecutionResult = ? WHERE PromptId = ?";
+
     private final ExecutionServerEncryptedDataTempRepository executionEncryptedDataTempRepository;
     private final EncryptedDataTempService encryptedDataTempService;
     private final PromptResultRepository promptResultRepository;
     private final PromptRepository promptRepository;
-    private final ServerConfigService serverConfigService;
+    private final CryptoKeyRing cryptoKeyRing;
     private final OptimisticLockRetryService optimisticLockRetryService;
     private final PromptServiceConfig promptServiceConfig;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * 轮询服务启用状态标志
@@ -65,22 +93,27 @@ public class PromptPollingService {
             EncryptedDataTempService encryptedDataTempService,
             PromptResultRepository promptResultRepository,
             PromptRepository promptRepository,
-            ServerConfigService serverConfigService,
+            CryptoKeyRing cryptoKeyRing,
             OptimisticLockRetryService optimisticLockRetryService,
-            PromptServiceConfig promptServiceConfig) {
+            PromptServiceConfig promptServiceConfig,
+            JdbcTemplate jdbcTemplate) {
         this.executionEncryptedDataTempRepository = executionEncryptedDataTempRepository;
         this.encryptedDataTempService = encryptedDataTempService;
         this.promptResultRepository = promptResultRepository;
         this.promptRepository = promptRepository;
-        this.serverConfigService = serverConfigService;
+        this.cryptoKeyRing = cryptoKeyRing;
         this.optimisticLockRetryService = optimisticLockRetryService;
         this.promptServiceConfig = promptServiceConfig;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
      * 轮询Prompt表中状态为"已提交"的记录
      * 使用配置文件中的轮询间隔，实现真正的独立调度
      * 取消readOnly=true，确保内部独立事务能正确提交
+     * 
+     * 按PromptId键集分页处理，每页只向执行服务器发起一次REQUEST_ID IN查询，
+     * SENT/ERROR状态对应的Prompt状态更新通过JDBC批量提交
      */
     @Scheduled(fixedDelayString = "${prompt.polling.interval:30000}")
     @Transactional(transactionManager = "transactionManager", isolation = org.springframework.transaction.annotation.Isolation.READ_COMMITTED)
@@ -90,42 +123,36 @@ public class PromptPollingService {
             return;
         }
         try {
-            logger.info("开始轮询Prompt表，查找状态为'已提交'和'SUBMISSION_STARTED'的数据...");
+            logger.info("开始轮询Prompt表，分页核对状态为'已提交'和'SUBMISSION_STARTED'的数据...");
 
-            // 查询所有状态为"已提交"的Prompt
-            List<Prompt> submittedPrompts = promptRepository.findByStatusName("已提交");
+            int pageSize = resolvePageSize();
+            ReconcileStats stats = new ReconcileStats();
+            Integer afterPromptId = Integer.MIN_VALUE;
 
-            // 查询所有状态为"SUBMISSION_STARTED"的Prompt
-            List<Prompt> submissionStartedPrompts = promptRepository.findByStatusName("SUBMISSION_STARTED");
+            while (true) {
+                List<Integer> promptIds = promptRepository.findPromptIdsByStatusNameInAfter(
+                        SUBMITTED_STATUS_NAMES, afterPromptId, PageRequest.of(0, pageSize));
+                if (promptIds.isEmpty()) {
+                    break;
+                }
 
-            // 合并两个列表
-            List<Prompt> allPrompts = new ArrayList<>();
-            allPrompts.addAll(submittedPrompts);
-            allPrompts.addAll(submissionStartedPrompts);
+                reconcilePage(promptIds, stats);
+                stats.pages++;
 
-            if (allPrompts.isEmpty()) {
-                logger.info("未找到状态为'已提交'或'SUBMISSION_STARTED'的Prompt数据");
-                return;
+                afterPromptId = promptIds.get(promptIds.size() - 1);
+                if (promptIds.size() < pageSize) {
+                    break;
+                }
             }
 
-            logger.info("找到 {} 条状态为'已提交'或'SUBMISSION_STARTED'的Prompt数据 （已提交: {}, SUBMISSION_STARTED: {}）",
-                    allPrompts.size(), submittedPrompts.size(), submissionStartedPrompts.size());
-
-            int successCount = 0;
-            int errorCount = 0;
-
-            // 处理每条已提交的Prompt
-            for (Prompt prompt : allPrompts) {
-                try {
-                    processSubmittedPrompt(prompt);
-                    successCount++;
-                } catch (Exception e) {
-                    logger.error("处理Prompt ID: {} 时发生错误: {}", prompt.getPromptId(), e.getMessage(), e);
-                    errorCount++;
-                }
+            if (stats.checked == 0) {
+                logger.info("未找到状态为'已提交'或'SUBMISSION_STARTED'的Prompt数据");
+                return;
             }
 
-            logger.info("Prompt轮询处理完成 - 成功: {} 条, 失败: {} 条", successCount, errorCount);
+            logger.info("Prompt轮询处理完成 - 核对: {} 条（{} 页）, 处理结果: {} 条, 补齐已完成: {} 条, 标记执行失败: {} 条, 等待执行服务器: {} 条, 失败: {} 条",
+                    stats.checked, stats.pages, stats.processed, stats.completed, stats.markedFailed,
+                    stats.waiting, stats.failed);
 
         } catch (Exception e) {
             logger.error("轮询Prompt表时发生异常: {}", e.getMessage(), e);
@@ -133,68 +160,142 @@ public class PromptPollingService {
     }
 
     /**
-     * 处理已提交状态的Prompt
-     * 检查对应的ENCRYPTED_DATA_TEMP表中是否有处理结果
+     * 核对一页已提交Prompt的处理状态
      * 
-     * 修复数据不一致问题：
-     * 1. 处理所有可能的状态，而不仅仅是ENCRYPTED状态
-     * 2. 增强状态检查和错误处理
-     * 3. 提供更详细的日志记录
+     * 1. 一次REQUEST_ID IN查询获取本页全部ENCRYPTED_DATA_TEMP记录的ID、状态和版本
+     * 2. SENT状态：Prompt尚未更新为已完成，批量补齐状态
+     * 3. ENCRYPTED/ERROR状态：按ID一次加载完整记录（需要读取CLOB），
+     *    版本与核对时一致才处理，否则留待下次轮询
+     * 4. 其他状态或尚无记录：等待执行服务器处理
      * 
-     * @param prompt 已提交的Prompt
+     * @param promptIds 本页Prompt ID（升序）
+     * @param stats     本次轮询统计
      */
-    private void processSubmittedPrompt(Prompt prompt) {
+    private void reconcilePage(List<Integer> promptIds, ReconcileStats stats) {
+        stats.checked += promptIds.size();
+
+        Map<String, Integer> promptIdByRequestId = new HashMap<>(promptIds.size() * 2);
+        for (Integer promptId : promptIds) {
+            promptIdByRequestId.put(REQUEST_ID_PREFIX + promptId, promptId);
+        }
+
+        List<EncryptedDataStatusDTO> dataStatuses;
         try {
-            Integer promptId = prompt.getPromptId();
-            String requestId = "cdwyy" + promptId;
+            dataStatuses = executionEncryptedDataTempRepository.findStatusByRequestIdIn(promptIdByRequestId.keySet());
+        } catch (Exception e) {
+            // 查询失败时本页留待下次轮询
+            logger.error("批量查询执行服务器REQUEST_ID数据失败 - Prompt ID: {} ~ {}，共 {} 条，错误: {}",
+                    promptIds.get(0), promptIds.get(promptIds.size() - 1), promptIds.size(), e.getMessage(), e);
+            stats.failed += promptIds.size();
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> completedArgs = new ArrayList<>();
+        Map<String, EncryptedDataStatusDTO> pendingById = new HashMap<>();
+
+        for (EncryptedDataStatusDTO dataStatus : dataStatuses) {
+            Integer promptId = promptIdByRequestId.get(dataStatus.getRequestId());
+            if (promptId == null) {
+                continue;
+            }
+            DataStatus currentStatus = dataStatus.getStatus();
 
-            logger.info("处理已提交的Prompt, ID: {}, 请求ID: {}", promptId, requestId);
+            if (currentStatus == DataStatus.ENCRYPTED || currentStatus == DataStatus.ERROR) {
+                pendingById.put(dataStatus.getId(), dataStatus);
+            } else if (currentStatus == DataStatus.SENT) {
+                // 数据已发送但Prompt状态尚未更新
+                completedArgs.add(new Object[] { STATUS_COMPLETED, now, promptId, STATUS_COMPLETED });
+            } else {
+                logger.debug("Prompt ID: {} 对应的数据状态为: {}，等待处理完成", promptId, currentStatus);
+                stats.waiting++;
+            }
+        }
+        stats.waiting += promptIds.size() - dataStatuses.size();
 
-            // 由于REQUEST_ID与ID相同且有唯一约束，直接使用findByRequestId查询
-            Optional<EncryptedDataTemp> encryptedDataOptional;
+        List<Object[]> failedArgs = new ArrayList<>();
+        if (!pendingById.isEmpty()) {
+            List<EncryptedDataTemp> pendingData;
             try {
-                encryptedDataOptional = executionEncryptedDataTempRepository.findByRequestId(requestId);
+                pendingData = executionEncryptedDataTempRepository.findAllById(pendingById.keySet());
             } catch (Exception e) {
-                // 如果查询失败，记录错误并返回空
-                logger.error("查询执行服务器REQUEST_ID数据失败 - Prompt ID: {}, Request ID: {}, 错误: {}", promptId, requestId,
-                        e.getMessage(), e);
-                encryptedDataOptional = Optional.empty();
+                logger.error("批量加载执行服务器加密数据失败 - 共 {} 条，留待下次轮询，错误: {}",
+                        pendingById.size(), e.getMessage(), e);
+                pendingData = List.of();
+                stats.failed += pendingById.size();
             }
 
-            if (encryptedDataOptional.isPresent()) {
-                EncryptedDataTemp encryptedData = encryptedDataOptional.get();
-                DataStatus currentStatus = encryptedData.getStatus();
-
-                // 如果数据状态为ENCRYPTED，说明执行服务器已经处理完成
-                if (currentStatus == DataStatus.ENCRYPTED) {
-                    logger.info("找到对应的加密数据，开始处理Prompt ID: {}", promptId);
-                    processEncryptedData(encryptedData);
-                }
-                // 如果状态为SENT，说明已经处理完成，需要更新Prompt状态
-                else if (currentStatus == DataStatus.SENT) {
-                    logger.info("Prompt ID: {} 对应的数据状态为SENT，但Prompt状态尚未更新，开始更新Prompt状态", promptId);
-                    updatePromptStatusFromSentData(promptId, encryptedData);
+            for (EncryptedDataTemp encryptedData : pendingData) {
+                EncryptedDataStatusDTO snapshot = pendingById.get(encryptedData.getId());
+                Integer promptId = promptIdByRequestId.get(encryptedData.getRequestId());
+                if (snapshot == null || promptId == null) {
+                    continue;
                 }
-                // 如果状态为ERROR，记录错误信息
-                else if (currentStatus == DataStatus.ERROR) {
-                    logger.warn("Prompt ID: {} 对应的数据状态为ERROR，需要人工干预", promptId);
-                    handleErrorStatus(promptId, encryptedData);
+                if (!Objects.equals(snapshot.getVersion(), encryptedData.getVersion())) {
+                    logger.info("Prompt ID: {} 对应的数据在核对后已变更（版本 {} -> {}），留待下次轮询",
+                            promptId, snapshot.getVersion(), encryptedData.getVersion());
+                    stats.waiting++;
+                    continue;
                 }
-                // 其他状态表示数据正在处理中
-                else {
-                    logger.info("Prompt ID: {} 对应的数据状态为: {}，等待处理完成",
-                            promptId, currentStatus);
+
+                try {
+                    if (encryptedData.getStatus() == DataStatus.ENCRYPTED) {
+                        logger.info("找到对应的加密数据，开始处理Prompt ID: {}", promptId);
+                        processEncryptedData(encryptedData);
+                        stats.processed++;
+                    } else {
+                        logger.warn("Prompt ID: {} 对应的数据状态为ERROR，需要人工干预", promptId);
+                        failedArgs.add(new Object[] { STATUS_FAILED, now,
+                                "错误: " + extractErrorMessage(encryptedData), promptId });
+                    }
+                } catch (Exception e) {
+                    logger.error("处理Prompt ID: {} 时发生错误: {}", promptId, e.getMessage(), e);
+                    stats.failed++;
                 }
-            } else {
-                logger.info("Prompt ID: {} 尚未找到对应的加密数据，等待执行服务器处理", promptId);
             }
+        }
 
+        stats.completed += applyStatusBatch(MARK_COMPLETED_SQL, completedArgs, "从SENT状态数据更新Prompt为'已完成'");
+        stats.markedFailed += applyStatusBatch(MARK_FAILED_SQL, failedArgs, "根据ERROR状态数据更新Prompt为'执行失败'");
+    }
+
+    /**
+     * 通过JDBC批量执行Prompt状态更新
+     * 
+     * @param sql         更新语句
+     * @param batchArgs   每行的参数
+     * @param description 操作描述（用于日志）
+     * @return 成功更新的行数（驱动未返回行数时按成功计）
+     */
+    private int applyStatusBatch(String sql, List<Object[]> batchArgs, String description) {
+        if (batchArgs.isEmpty()) {
+            return 0;
+        }
+        try {
+            int[] counts = jdbcTemplate.batchUpdate(sql, batchArgs);
+            int updated = 0;
+            for (int count : counts) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    updated++;
+                }
+            }
+            logger.info("批量{} - 提交: {} 条, 更新: {} 条", description, batchArgs.size(), updated);
+            return updated;
         } catch (Exception e) {
-            logger.error("处理已提交Prompt时发生异常 - Prompt ID: {}: {}",
-                    prompt.getPromptId(), e.getMessage(), e);
+            logger.error("批量{}失败 - 共 {} 条，留待下次轮询: {}", description, batchArgs.size(), e.getMessage(), e);
+            return 0;
         }
     }
 
+    /**
+     * 计算每页核对的Prompt数量
+     * 使用轮询批量处理大小，不超过Oracle IN列表上限
+     */
+    private int resolvePageSize() {
+        int batchSize = promptServiceConfig.getPolling().getBatchSize();
+        return Math.max(1, Math.min(batchSize, MAX_PAGE_SIZE));
+    }
+
     /**
      * 处理已加密状态的数据
      * 从ENCRYPTED_DATA_TEMP表的EXECUTION_RESULT字段获取加密数据，解密后更新Prompt表状态
@@ -573,17 +674,14 @@ public class PromptPollingService {
      */
     private String decryptData(String encryptedContent) {
         try {
-            // 获取AES加密密钥和盐值
-            String encryptionKey = serverConfigService.getAesEncryptionKey();
-            String encryptionSalt = serverConfigService.getAesEncryptionSalt();
-
-            if (encryptionKey == null || encryptionSalt == null) {
+            // 密钥由密钥环缓存，配置未变化时不再查询配置表或重新派生
+            if (!cryptoKeyRing.isConfigured()) {
                 logger.error("AES加密配置未设置，无法解密数据");
                 return null;
             }
 
             // 解密数据
-            String decryptedResult = AESEncryptionUtil.decrypt(encryptedContent, encryptionKey, encryptionSalt);
+            String decryptedResult = cryptoKeyRing.decrypt(encryptedContent);
             logger.info("数据解密成功，解密后长度: {} 字符", decryptedResult.length());
             return decryptedResult;
         } catch (Exception e) {
@@ -592,45 +690,6 @@ public class PromptPollingService {
         }
     }
 
-    /**
-     * 从SENT状态的数据更新Prompt状态
-     * 当ENCRYPTED_DATA_TEMP表状态为SENT但Prompt状态尚未更新时调用
-     * 
-     * @param promptId      Prompt ID
-     * @param encryptedData 加密数据记录
-     */
-    private void updatePromptStatusFromSentData(Integer promptId, EncryptedDataTemp encryptedData) {
-        try {
-            logger.info("开始从SENT状态数据更新Prompt状态, Prompt ID: {}", promptId);
-
-            // 使用乐观锁重试机制更新Prompt状态
-            optimisticLockRetryService.executeWithOptimisticLockRetry(
-                    () -> {
-                        Optional<Prompt> promptOptional = promptRepository.findById(promptId);
-                        if (promptOptional.isPresent()) {
-                            Prompt prompt = promptOptional.get();
-
-                            // 检查当前Prompt状态，避免重复更新
-                            if (!"已完成".equals(prompt.getStatusName())) {
-                                prompt.setStatusName("已完成");
-                                prompt.setExecutionTime(LocalDateTime.now());
-                                promptRepository.save(prompt);
-                                logger.info("Prompt ID: {} 状态已从SENT数据更新为'已完成'", promptId);
-                            } else {
-                                logger.info("Prompt ID: {} 状态已经是'已完成'，无需更新", promptId);
-                            }
-                        } else {
-                            logger.warn("未找到对应的Prompt记录，Prompt ID: {}", promptId);
-                        }
-                        return null;
-                    },
-                    null, // entity refresher
-                    "从SENT状态更新Prompt状态 - Prompt ID: " + promptId);
-        } catch (Exception e) {
-            logger.error("从SENT状态数据更新Prompt状态时发生异常 - Prompt ID: {}: {}", promptId, e.getMessage(), e);
-        }
-    }
-
     /**
      * 在独立事务中更新Prompt状态
      * 使用REQUIRES_NEW传播确保在只读事务中也能正确提交
@@ -729,36 +788,24 @@ public class PromptPollingService {
     }
 
     /**
-     * 处理ERROR状态的数据
-     * 当ENCRYPTED_DATA_TEMP表状态为ERROR时调用
+     * 提取ERROR状态数据中的错误信息
      * 
-     * @param promptId      Prompt ID
      * @param encryptedData 加密数据记录
+     * @return 错误信息，无法提取时返回默认描述
      */
-    private void handleErrorStatus(Integer promptId, EncryptedDataTemp encryptedData) {
-        try {
-            logger.info("开始处理ERROR状态数据, Prompt ID: {}", promptId);
-
-            // 提取错误信息
-            String errorMessage = "执行服务器处理失败";
-            if (encryptedData.getErrorMessage() != null) {
-                try {
-                    String errorContent = extractClobContent(encryptedData.getErrorMessage());
-                    if (errorContent != null && !errorContent.trim().isEmpty()) {
-                        errorMessage = errorContent;
-                    }
-                } catch (Exception e) {
-                    logger.warn("提取错误信息失败: {}", e.getMessage());
+    private String extractErrorMessage(EncryptedDataTemp encryptedData) {
+        String errorMessage = "执行服务器处理失败";
+        if (encryptedData.getErrorMessage() != null) {
+            try {
+                String errorContent = extractClobContent(encryptedData.getErrorMessage());
+                if (errorContent != null && !errorContent.trim().isEmpty()) {
+                    errorMessage = errorContent;
                 }
+            } catch (Exception e) {
+                logger.warn("提取错误信息失败: {}", e.getMessage());
             }
-
-            // 更新Prompt表状态为错误
-            updatePromptStatusWithError(promptId.toString(), "执行失败", errorMessage);
-
-            logger.warn("ERROR状态数据处理完成 - Prompt ID: {}", promptId);
-        } catch (Exception e) {
-            logger.error("处理ERROR状态数据时发生异常 - Prompt ID: {}: {}", promptId, e.getMessage(), e);
         }
+        return errorMessage;
     }
 
     /**
@@ -854,4 +901,17 @@ public class PromptPollingService {
             return "轮询服务健康状态 - 异常: " + e.getMessage();
         }
     }
+
+    /**
+     * 单次轮询的核对统计
+     */
+    private static final class ReconcileStats {
+        private int pages;
+        private int checked;
+        private int processed;
+        private int completed;
+        private int markedFailed;
+        private int waiting;
+        private int failed;
+    }
 }
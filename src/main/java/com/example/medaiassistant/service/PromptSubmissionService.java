@@ -6,8 +6,6 @@ import com.example.medaiassistant.model.EncryptedDataTemp;
 import com.example.medaiassistant.model.DataStatus;
 import com.example.medaiassistant.repository.PromptRepository;
 import com.example.medaiassistant.repository.executionserver.ExecutionServerEncryptedDataTempRepository;
-import com.example.medaiassistant.util.AESEncryptionUtil;
-import com.example.medaiassistant.model.ServerConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.retry.annotation.Backoff;
@@ -18,8 +16,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -43,8 +43,9 @@ public class PromptSubmissionService {
 
     private final PromptRepository promptRepository;
     private final PromptServiceConfig promptServiceConfig;
-    private final ServerConfigService serverConfigService;
+    private final CryptoKeyRing cryptoKeyRing;
     private final ExecutionServerEncryptedDataTempRepository executionEncryptedDataTempRepository;
+    private final PromptClaimQueue promptClaimQueue;
 
     /**
      * 提交服务启用状态标志
@@ -57,17 +58,20 @@ public class PromptSubmissionService {
      * 
      * @param promptRepository            Prompt数据访问层
      * @param promptServiceConfig         Prompt服务配置
-     * @param serverConfigService         服务器配置服务
+     * @param cryptoKeyRing               AES密钥环
      * @param encryptedDataTempRepository 加密数据临时表数据访问层
+     * @param promptClaimQueue            Prompt认领队列
      */
     public PromptSubmissionService(PromptRepository promptRepository,
             PromptServiceConfig promptServiceConfig,
-            ServerConfigService serverConfigService,
-            ExecutionServerEncryptedDataTempRepository executionEncryptedDataTempRepository) {
+            CryptoKeyRing cryptoKeyRing,
+            ExecutionServerEncryptedDataTempRepository executionEncryptedDataTempRepository,
+            PromptClaimQueue promptClaimQueue) {
         this.promptRepository = promptRepository;
         this.promptServiceConfig = promptServiceConfig;
-        this.serverConfigService = serverConfigService;
+        this.cryptoKeyRing = cryptoKeyRing;
         this.executionEncryptedDataTempRepository = executionEncryptedDataTempRepository;
+        this.promptClaimQueue = promptClaimQueue;
     }
 
     /**
@@ -146,11 +150,13 @@ public class PromptSubmissionService {
 
     /**
      * 独立的提交任务调度器
-     * 定期查询并提交待处理的Prompt
+     * 定期认领并提交待处理的Prompt
      * 使用配置文件中的间隔时间，实现真正的独立调度
+     * 
+     * 通过PromptClaimQueue认领，多个主服务器实例同时运行时各自认领不同的Prompt，
+     * 认领在独立的短事务中提交，后续加密和写入执行服务器不持有prompts表的行锁
      */
     @Scheduled(fixedDelayString = "${prompt.submission.interval:10000}")
-    @Transactional(transactionManager = "transactionManager")
     public void submitPendingPrompts() {
         if (!submissionEnabled || !promptServiceConfig.getSubmission().isEnabled()) {
             logger.debug("提交服务已禁用，跳过执行");
@@ -158,36 +164,41 @@ public class PromptSubmissionService {
         }
 
         try {
-            // 分页查询待处理Prompt（状态为"待处理"）
+            // 按优先级和提交时间认领一批待处理Prompt
             int pageSize = promptServiceConfig.getSubmission().getPageSize();
-            List<Prompt> pendingPrompts = promptRepository.findByStatusName("待处理");
+            PromptClaimQueue.ClaimBatch claimBatch = promptClaimQueue.claim(pageSize);
 
-            if (pendingPrompts.isEmpty()) {
+            if (claimBatch.isEmpty()) {
                 logger.debug("没有待处理的Prompt，跳过执行");
                 return;
             }
 
-            // 限制处理数量
-            if (pendingPrompts.size() > pageSize) {
-                pendingPrompts = pendingPrompts.subList(0, pageSize);
-            }
+            logger.info("开始执行独立提交任务 - 认领到 {} 个待处理的Prompt", claimBatch.size());
 
-            logger.info("开始执行独立提交任务 - 找到 {} 个待处理的Prompt", pendingPrompts.size());
+            Map<Integer, Prompt> promptsById = new HashMap<>();
+            for (Prompt prompt : promptRepository.findAllById(claimBatch.getPromptIds())) {
+                promptsById.put(prompt.getPromptId(), prompt);
+            }
 
             int submittedCount = 0;
-            for (Prompt prompt : pendingPrompts) {
+            for (Integer promptId : claimBatch.getPromptIds()) {
+                Prompt prompt = promptsById.get(promptId);
+                if (prompt == null) {
+                    logger.warn("认领的Prompt ID: {} 已不存在，跳过", promptId);
+                    continue;
+                }
                 try {
-                    // 调用提交方法，将状态从"待处理"更新为"已提交"
-                    if (submitPromptInternal(prompt)) {
+                    // 将已认领的Prompt写入执行服务器并更新为"已提交"
+                    if (submitClaimedPrompt(prompt, claimBatch.getLeaseToken())) {
                         submittedCount++;
                     }
                 } catch (Exception e) {
-                    logger.error("提交Prompt ID: {} 失败: {}", prompt.getPromptId(), e.getMessage());
+                    logger.error("提交Prompt ID: {} 失败: {}", promptId, e.getMessage());
                 }
             }
 
-            logger.info("独立提交任务完成 - 查询到 {} 个待处理Prompt，成功提交 {} 个",
-                    pendingPrompts.size(), submittedCount);
+            logger.info("独立提交任务完成 - 认领 {} 个待处理Prompt，成功提交 {} 个",
+                    claimBatch.size(), submittedCount);
 
         } catch (Exception e) {
             logger.error("独立提交任务执行失败", e);
@@ -195,26 +206,20 @@ public class PromptSubmissionService {
     }
 
     /**
-     * 内部提交方法
-     * 将单个Prompt从"待处理"状态更新为"已提交"状态，并直接保存到ENCRYPTED_DATA_TEMP表
+     * 提交已认领的Prompt
+     * 直接保存到ENCRYPTED_DATA_TEMP表，成功后凭租约令牌更新为"已提交"；
+     * 失败时释放认领，恢复为"待处理"以便下次重新提交
      * 
-     * @param prompt 要提交的Prompt对象
+     * @param prompt     已认领（SUBMISSION_STARTED）的Prompt对象
+     * @param leaseToken 认领时的租约令牌
      * @return 提交结果，true表示成功，false表示失败
      */
-    @Retryable(retryFor = { Exception.class }, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
-    @Transactional(transactionManager = "transactionManager")
-    private boolean submitPromptInternal(Prompt prompt) {
+    private boolean submitClaimedPrompt(Prompt prompt, Timestamp leaseToken) {
         Integer promptId = prompt.getPromptId();
 
         try {
             logger.info("开始提交Prompt ID: {}", promptId);
 
-            // 检查当前状态是否允许提交
-            if (!"待处理".equals(prompt.getStatusName())) {
-                logger.warn("Prompt ID: {} 当前状态为 {}，不允许提交", promptId, prompt.getStatusName());
-                return false;
-            }
-
             // 1. 组合Prompt内容
             String combinedPrompt = combinePromptContent(prompt);
             logger.debug("组合后的Prompt内容长度: {} 字符", combinedPrompt.length());
@@ -223,37 +228,45 @@ public class PromptSubmissionService {
             String encryptedData = encryptPrompt(combinedPrompt);
             logger.info("Prompt加密完成, 加密后长度: {} 字符", encryptedData.length());
 
-            // 3. 直接保存到ENCRYPTED_DATA_TEMP表
+            // 3. 直接保存到ENCRYPTED_DATA_TEMP表（已存在相同requestId时视为成功，重新认领时不会重复写入）
             boolean saveSuccess = saveToEncryptedDataTemp(encryptedData, promptId);
 
             if (saveSuccess) {
                 // 4. 保存成功，更新Prompt状态为"已提交"
-                prompt.setStatusName("已提交");
-                prompt.setSubmissionTime(LocalDateTime.now());
-                prompt.setProcessingStartTime(LocalDateTime.now());
-
-                // 重置重试计数
-                if (prompt.getRetryCount() == null) {
-                    prompt.setRetryCount(0);
+                if (promptClaimQueue.complete(promptId, leaseToken)) {
+                    logger.info("Prompt ID: {} 提交成功，状态已更新为'已提交'", promptId);
+                    return true;
                 }
-
-                promptRepository.save(prompt);
-
-                logger.info("Prompt ID: {} 提交成功，状态已更新为'已提交'", promptId);
-                return true;
+                logger.warn("Prompt ID: {} 已写入执行服务器，但认领租约已失效，状态由当前持有者或轮询服务更新", promptId);
+                return false;
             } else {
-                // 保存失败，保持状态为"待处理"
-                logger.error("Prompt ID: {} 保存到ENCRYPTED_DATA_TEMP表失败，保持状态为'待处理'", promptId);
+                // 保存失败，恢复状态为"待处理"
+                logger.error("Prompt ID: {} 保存到ENCRYPTED_DATA_TEMP表失败，恢复状态为'待处理'", promptId);
+                releaseClaim(promptId, leaseToken);
                 return false;
             }
 
         } catch (Exception e) {
             logger.error("提交Prompt ID: {} 失败: {}", promptId, e.getMessage(), e);
-            // 保存失败，保持状态为"待处理"
+            // 提交失败，恢复状态为"待处理"
+            releaseClaim(promptId, leaseToken);
             return false;
         }
     }
 
+    /**
+     * 释放认领，释放失败时等待租约过期后被重新认领
+     */
+    private void releaseClaim(Integer promptId, Timestamp leaseToken) {
+        try {
+            if (!promptClaimQueue.release(promptId, leaseToken)) {
+                logger.warn("Prompt ID: {} 认领租约已失效，无需释放", promptId);
+            }
+        } catch (Exception e) {
+            logger.error("释放Prompt ID: {} 的认领失败，将在租约过期后重新认领: {}", promptId, e.getMessage());
+        }
+    }
+
     /**
      * 检查Prompt状态是否允许提交
      * 只有"待处理"状态的Prompt才允许提交
@@ -377,17 +390,8 @@ public class PromptSubmissionService {
      * @throws Exception 加密失败时抛出异常
      */
     private String encryptPrompt(String plainPrompt) throws Exception {
-        ServerConfiguration encryptionKeyConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_KEY");
-        ServerConfiguration encryptionSaltConfig = serverConfigService.getConfigByName("AES_ENCRYPTION_SALT");
-
-        if (encryptionKeyConfig == null || encryptionSaltConfig == null) {
-            throw new RuntimeException("AES加密配置未找到");
-        }
-
-        String encryptionKey = encryptionKeyConfig.getConfigData();
-        String encryptionSalt = encryptionSaltConfig.getConfigData();
-
-        return AESEncryptionUtil.encrypt(plainPrompt, encryptionKey, encryptionSalt);
+        // 密钥由密钥环缓存，配置未变化时不再查询配置表或重新派生
+        return cryptoKeyRing.encrypt(plainPrompt);
     }
 
     /**
@@ -5,6 +5,7 @@ import com.example.medaiassistant.model.ServerConfiguration;
 import com.example.medaiassistant.repository.ServerConfigurationRepository;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.beans.factory.annotation.Autowired;
 
 
@@ -24,6 +25,9 @@ public class ServerConfigService {
     /** 存储执行服务器IP的静态变量 */
     private static String decryptionServerIp;
 
+    /** 配置修订号，每次通过本服务保存配置时递增，供缓存配置派生结果的组件判断是否需要重新加载 */
+    private final AtomicLong configRevision = new AtomicLong();
+
     /**
      * 根据配置名称获取服务器配置
      * 
@@ -48,6 +52,14 @@ public class ServerConfigService {
      * @see ServerConfiguration 服务器配置实体类
      */
     public ServerConfiguration saveOrUpdateConfig(ServerConfigDTO configDTO) {
+        try {
+            return doSaveOrUpdateConfig(configDTO);
+        } finally {
+            configRevision.incrementAndGet();
+        }
+    }
+
+    private ServerConfiguration doSaveOrUpdateConfig(ServerConfigDTO configDTO) {
         ServerConfiguration existingConfig = serverConfigurationRepository.findByConfigName(configDTO.getConfigName());
 
         if (existingConfig == null) {
@@ -69,6 +81,17 @@ public class ServerConfigService {
         }
     }
 
+    /**
+     * 获取配置修订号
+     * 
+     * 修订号只反映通过本服务进行的配置变更，直接修改数据库的变更需要调用方自行定期重新读取。
+     * 
+     * @return 当前配置修订号
+     */
+    public long getConfigRevision() {
+        return configRevision.get();
+    }
+
     /**
      * 获取执行服务器IP
      * 
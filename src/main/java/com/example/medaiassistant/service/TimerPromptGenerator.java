@@ -86,6 +86,15 @@ public class TimerPromptGenerator {
     private static final int INTERVAL_DAILY = 24;
     private static final int INTERVAL_BIDAILY = 48;
 
+    /**
+     * 每日自动生成的Prompt模板（promptType, promptName）
+     */
+    private static final String[][] DAILY_PROMPT_TEMPLATES = {
+        { "诊断分析", "诊断分析" },
+        { "诊疗计划", "诊疗计划补充" },
+        { "资料总结", "病情小结" }
+    };
+
     /**
      * 任务调度器，用于调度和执行定时任务
      */
@@ -116,6 +125,14 @@ public class TimerPromptGenerator {
         private final EmrContentRepository emrContentRepository;
     private final PromptGenerationLogService promptGenerationLogService;
     private final PromptsTaskUpdater promptsTaskUpdater;
+    private final PatientContextAssembler patientContextAssembler;
+    private final DatabaseConnectionPoolMonitor connectionPoolMonitor;
+
+    /**
+     * 最近一次每日Prompt生成的进度和并发闸门，供进度查询接口读取
+     */
+    private volatile DailyPromptProgress dailyPromptProgress;
+    private volatile DailyPromptThrottle dailyPromptThrottle;
     // 配置缓存
     private String cachedDailyTaskTime = "0 0 7 * * *";
     private int cachedMaxConcurrency = 5;
@@ -217,6 +234,8 @@ public class TimerPromptGenerator {
      * @param taskScheduler              任务调度器
      * @param alertRuleService           告警规则服务
      * @param patientStatusUpdateService 患者状态更新服务
+     * @param patientContextAssembler    患者上下文组装服务，进程内获取患者数据和Prompt模板
+     * @param connectionPoolMonitor      连接池监控服务，用于计算每日Prompt生成的并发上限和拥塞退避
      */
     public TimerPromptGenerator(TaskScheduler taskScheduler,
             AlertRuleService alertRuleService,
@@ -236,7 +255,9 @@ public class TimerPromptGenerator {
             EmrContentRepository emrContentRepository,
             SurgeryRepository surgeryRepository,
             PromptGenerationLogService promptGenerationLogService,
-            PromptsTaskUpdater promptsTaskUpdater) {
+            PromptsTaskUpdater promptsTaskUpdater,
+            PatientContextAssembler patientContextAssembler,
+            DatabaseConnectionPoolMonitor connectionPoolMonitor) {
         this.taskScheduler = taskScheduler;
         this.alertRuleService = alertRuleService;
         this.patientStatusUpdateService = patientStatusUpdateService;
@@ -255,6 +276,8 @@ public class TimerPromptGenerator {
         this.emrContentRepository = emrContentRepository;
         this.promptGenerationLogService = promptGenerationLogService;
         this.promptsTaskUpdater = promptsTaskUpdater;
+        this.patientContextAssembler = patientContextAssembler;
+        this.connectionPoolMonitor = connectionPoolMonitor;
         loadConfig();
     }
 
@@ -523,10 +546,11 @@ public class TimerPromptGenerator {
     /**
      * 每日定时自动生成Prompt任务
      * 使用专用线程池，避免与手术分析任务竞争资源
-     * 优化数据库连接和并发控制，解决卡顿问题
+     * 患者在虚拟线程上并发处理，并发数由DailyPromptThrottle按连接池余量和数据库延迟自适应控制
      * 
      * @function dailyPromptGeneration
-     * @description 定时执行每日Prompt生成任务，为所有在院患者生成诊断分析和诊疗计划Prompt
+     * @description 定时执行每日Prompt生成任务，为所有在院患者生成诊断分析和诊疗计划Prompt，
+     *              运行进度和ETA可通过getDailyPromptProgress查询
      * @returns {void}
      * @throws {Error} 当任务执行过程中发生异常时抛出错误
      * @example
@@ -535,27 +559,35 @@ public class TimerPromptGenerator {
      * 
      * @since 2025-08-06
      * @author Cline
-     * @version 1.3.0 - 优化数据库连接和并发控制，解决卡顿问题
+     * @version 1.4.0 - 以自适应并发闸门取代固定休眠
      */
     @Async("promptGenerationExecutor")
     @Scheduled(cron = "${scheduling.timer.daily-time:0 0 7 * * *}")
     public void dailyPromptGeneration() {
-        System.out.println("开始执行每日Prompt生成任务 - 优化版");
-        long startTime = System.currentTimeMillis();
-        
-        // 使用原子变量来统计处理结果
-        java.util.concurrent.atomic.AtomicInteger totalPatientsProcessed = new java.util.concurrent.atomic.AtomicInteger(0);
-        java.util.concurrent.atomic.AtomicInteger totalPromptsGenerated = new java.util.concurrent.atomic.AtomicInteger(0);
-        java.util.concurrent.atomic.AtomicInteger totalFailures = new java.util.concurrent.atomic.AtomicInteger(0);
+        System.out.println("开始执行每日Prompt生成任务 - 并发版");
+        DailyPromptProgress progress = new DailyPromptProgress();
+        DailyPromptThrottle throttle = createDailyPromptThrottle();
+        this.dailyPromptProgress = progress;
+        this.dailyPromptThrottle = throttle;
+        System.out.println("每日Prompt生成并发上限: " + throttle.getCeiling());
+
+        // 虚拟线程执行每个患者的生成，并发数由自适应闸门控制；退出try时等待所有患者处理完成
+        try (ExecutorService workers = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("daily-prompt-", 0).factory())) {
+            // 每次运行只解析一次模板的requiredDataTypes和模板内容
+            List<DailyPrompt> dailyPrompts = resolveDailyPrompts();
 
-        try {
             int page = 0;
-            int pageSize = 20; // 进一步减少每页大小，降低数据库压力
+            int pageSize = 20;
             boolean hasMore = true;
 
             while (hasMore) {
                 // 分页获取在院患者，避免一次性加载所有数据到内存
-                List<Patient> inHospitalPatients = findInHospitalPatientsByPage(page, pageSize);
+                org.springframework.data.domain.Page<Patient> patientPage = findInHospitalPatientPage(page, pageSize);
+                List<Patient> inHospitalPatients = patientPage.getContent();
+                if (page == 0) {
+                    progress.setTotalPatients(patientPage.getTotalElements());
+                }
 
                 if (inHospitalPatients.isEmpty()) {
                     hasMore = false;
@@ -564,58 +596,100 @@ public class TimerPromptGenerator {
 
                 System.out.println("处理第 " + page + " 页，共 " + inHospitalPatients.size() + " 个患者");
 
-                // 使用更保守的并发控制 - 串行处理每个患者
                 for (Patient patient : inHospitalPatients) {
                     final String patientId = patient.getPatientId();
-                    
-                    try {
-                        // 串行处理每个患者，避免数据库连接竞争
-                        generateAndSavePromptOptimized(patientId, "诊断分析", "诊断分析");
-                        generateAndSavePromptOptimized(patientId, "诊疗计划", "诊疗计划补充");
-                        // 生成病情小结（promptType为"资料总结"）
-                        generateAndSavePromptOptimized(patientId, "资料总结", "病情小结");
-                        totalPromptsGenerated.addAndGet(3);
-                        System.out.println("患者 " + patientId + " 的Prompt生成完成（诊断分析、诊疗计划、病情小结）");
-                    } catch (Exception e) {
-                        totalFailures.incrementAndGet();
-                        System.err.println("患者ID " + patientId + " 的Prompt生成失败: " + e.getMessage());
-                        // 继续处理其他患者，不中断整个任务
-                    }
-                    
-                    totalPatientsProcessed.incrementAndGet();
-                    
-                    // 每个患者处理完成后添加短暂延迟，避免数据库压力过大
-                    try {
-                        Thread.sleep(500); // 500ms延迟
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                    // 获取许可：达到并发上限时等待，数据库拥塞时先退避
+                    throttle.acquire();
+                    workers.execute(() -> generateDailyPromptsWithThrottle(patientId, dailyPrompts, throttle, progress));
                 }
 
                 page++;
-
-                // 每页处理完成后添加更长的延迟
-                try {
-                    Thread.sleep(2000); // 2秒延迟
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+                logDailyPromptProgress(progress, throttle);
             }
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("每日Prompt生成任务被中断");
         } catch (Exception e) {
             System.err.println("每日Prompt生成任务执行失败: " + e.getMessage());
             e.printStackTrace();
         }
 
-        long endTime = System.currentTimeMillis();
-        long duration = (endTime - startTime) / 1000;
+        progress.markFinished();
         System.out.println("每日Prompt生成任务完成");
-        System.out.println("总共处理患者: " + totalPatientsProcessed.get() + " 个");
-        System.out.println("总共生成Prompt: " + totalPromptsGenerated.get() + " 个");
-        System.out.println("生成失败: " + totalFailures.get() + " 个");
-        System.out.println("总耗时: " + duration + " 秒");
+        System.out.println("总共处理患者: " + progress.getProcessedPatients() + " 个");
+        System.out.println("总共生成Prompt: " + progress.getPromptsGenerated() + " 个");
+        System.out.println("生成失败: " + progress.getFailedPatients() + " 个");
+        System.out.println("总耗时: " + progress.getElapsedMillis() / 1000 + " 秒");
+    }
+
+    /**
+     * 在并发闸门内为单个患者生成每日Prompt
+     * 
+     * @param patientId    患者ID
+     * @param dailyPrompts 本次运行解析的每日Prompt
+     * @param throttle     并发闸门，处理完成后归还许可并反馈耗时
+     * @param progress     运行进度
+     * @since 2025-11-09
+     */
+    void generateDailyPromptsWithThrottle(String patientId, List<DailyPrompt> dailyPrompts,
+            DailyPromptThrottle throttle, DailyPromptProgress progress) {
+        long startTime = System.currentTimeMillis();
+        try {
+            generateDailyPromptsForPatient(patientId, dailyPrompts);
+            progress.recordSuccess(dailyPrompts.size());
+            System.out.println("患者 " + patientId + " 的Prompt生成完成（诊断分析、诊疗计划、病情小结）");
+        } catch (Exception e) {
+            progress.recordFailure();
+            System.err.println("患者ID " + patientId + " 的Prompt生成失败: " + e.getMessage());
+            // 继续处理其他患者，不中断整个任务
+        } finally {
+            throttle.release(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 创建每日Prompt生成的并发闸门
+     * 
+     * @return 并发上限取timer.maxConcurrency与连接池可用连接数（扣除预留）中的较小值
+     * @since 2025-11-09
+     */
+    DailyPromptThrottle createDailyPromptThrottle() {
+        SchedulingProperties.TimerConfig timerConfig = schedulingProperties.getTimer();
+        int availableConnections = connectionPoolMonitor != null ? connectionPoolMonitor.getAvailableConnections() : -1;
+        int ceiling = DailyPromptThrottle.computeCeiling(timerConfig.getMaxConcurrency(), availableConnections,
+                timerConfig.getConnectionReserve());
+        return new DailyPromptThrottle(ceiling, timerConfig.getMaxBackoffMillis(),
+                () -> connectionPoolMonitor != null ? connectionPoolMonitor.getThreadsAwaitingConnection() : -1);
+    }
+
+    /**
+     * 获取每日Prompt生成进度
+     * 
+     * @return 最近一次运行的进度（已处理、失败、生成数、完成百分比、ETA）及当前并发状态；从未运行时返回空Map
+     * @since 2025-11-09
+     */
+    public Map<String, Object> getDailyPromptProgress() {
+        DailyPromptProgress progress = this.dailyPromptProgress;
+        if (progress == null) {
+            return new HashMap<>();
+        }
+        Map<String, Object> result = progress.toMap();
+        DailyPromptThrottle throttle = this.dailyPromptThrottle;
+        if (throttle != null) {
+            result.put("concurrencyLimit", throttle.getLimit());
+            result.put("concurrencyCeiling", throttle.getCeiling());
+            result.put("backoffMillis", throttle.getBackoffMillis());
+            result.put("averagePatientMillis", throttle.getAverageLatencyMillis());
+        }
+        return result;
+    }
+
+    private void logDailyPromptProgress(DailyPromptProgress progress, DailyPromptThrottle throttle) {
+        long remainingMillis = progress.estimateRemainingMillis();
+        System.out.println("每日Prompt生成进度: " + progress.getProcessedPatients() + "/" + progress.getTotalPatients()
+                + "，当前并发: " + throttle.getLimit()
+                + (remainingMillis >= 0 ? "，预计剩余: " + remainingMillis / 1000 + " 秒" : ""));
     }
 
     /**
@@ -626,6 +700,17 @@ public class TimerPromptGenerator {
      * @return 当前页的患者列表
      */
     public List<Patient> findInHospitalPatientsByPage(int page, int pageSize) {
+        return findInHospitalPatientPage(page, pageSize).getContent();
+    }
+
+    /**
+     * 分页查询在院患者（支持科室过滤），返回包含总记录数的分页结果
+     * 
+     * @param page     页码（从0开始）
+     * @param pageSize 每页大小
+     * @return 当前页的分页结果
+     */
+    private org.springframework.data.domain.Page<Patient> findInHospitalPatientPage(int page, int pageSize) {
         // 使用真正的数据库分页查询，避免内存占用过高
         PageRequest pageable = PageRequest.of(page, pageSize);
 
@@ -657,12 +742,49 @@ public class TimerPromptGenerator {
                 patientRepository.findByDepartmentsAndIsInHospitalSafe(targetDepartments, true, pageable);
             System.out.println("查询结果: " + patientPage.getContent().size() + " 个患者");
             System.out.println("=== 科室过滤调试信息结束 ===");
-            return patientPage.getContent();
+            return patientPage;
         } else {
             // 未启用科室过滤，查询所有在院患者
             System.out.println("未启用科室过滤，处理所有在院患者");
-            org.springframework.data.domain.Page<Patient> patientPage = patientRepository.findByIsInHospital(true, pageable);
-            return patientPage.getContent();
+            return patientRepository.findByIsInHospital(true, pageable);
+        }
+    }
+
+    /**
+     * 解析每日Prompt模板
+     * 
+     * @return 每日Prompt列表，包含各模板的requiredDataTypes和模板内容
+     * @description 每次运行开始时解析一次，运行期间所有患者共用，避免每个患者重复查询PromptTemplate表
+     * @since 2025-11-09
+     */
+    List<DailyPrompt> resolveDailyPrompts() {
+        List<DailyPrompt> dailyPrompts = new ArrayList<>(DAILY_PROMPT_TEMPLATES.length);
+        for (String[] template : DAILY_PROMPT_TEMPLATES) {
+            String promptType = template[0];
+            String promptName = template[1];
+            dailyPrompts.add(new DailyPrompt(promptType, promptName,
+                    patientContextAssembler.resolveDataTypes(promptType, promptName),
+                    loadPromptTemplate(promptType, promptName)));
+        }
+        return dailyPrompts;
+    }
+
+    /**
+     * 为单个患者生成全部每日Prompt
+     * 
+     * @param patientId    患者ID
+     * @param dailyPrompts 本次运行解析的每日Prompt
+     * @description 创建患者上下文快照并预取各模板所需板块的并集，各数据板块只查询、格式化一次，
+     *              诊断分析、诊疗计划补充、病情小结按各自模板的requiredDataTypes从共享板块拼接
+     * @since 2025-11-09
+     */
+    void generateDailyPromptsForPatient(String patientId, List<DailyPrompt> dailyPrompts) {
+        PatientContextSnapshot snapshot = patientContextAssembler.snapshot(patientId);
+        for (DailyPrompt dailyPrompt : dailyPrompts) {
+            snapshot.prefetch(dailyPrompt.getDataTypes());
+        }
+        for (DailyPrompt dailyPrompt : dailyPrompts) {
+            generateAndSavePromptOptimized(snapshot, dailyPrompt);
         }
     }
 
@@ -674,21 +796,21 @@ public class TimerPromptGenerator {
      * @description 该方法生成并保存Prompt记录，采用串行处理方式避免数据库连接竞争
      *              如果未获取到有效的患者数据或返回内容包含“无入院记录数据”标记则跳过保存，确保仅在存在入院病历资料时执行诊断/诊疗类分析，
      *              从而与患者分析准入逻辑保持一致。
-     * @param {string} patientId - 患者ID
-     * @param {string} promptType - Prompt类型
-     * @param {string} promptName - Prompt名称
+     * @param {PatientContextSnapshot} snapshot - 患者上下文快照
+     * @param {DailyPrompt} dailyPrompt - 每日Prompt（类型、名称、所需数据类型、模板内容）
      * @returns {void}
      * @throws {Error} 当保存过程中发生异常时抛出错误
      * @since 2025-09-27
      * @author Cline
-     * @version 1.3.0 - 优化数据库连接和并发控制
-     * @example
-     *          generateAndSavePromptOptimized("12345", "诊断分析", "诊断分析");
+     * @version 1.4.0 - 患者数据从共享快照拼接
      */
-    private void generateAndSavePromptOptimized(String patientId, String promptType, String promptName) {
+    private void generateAndSavePromptOptimized(PatientContextSnapshot snapshot, DailyPrompt dailyPrompt) {
+        String patientId = snapshot.getPatientId();
+        String promptType = dailyPrompt.getPromptType();
+        String promptName = dailyPrompt.getPromptName();
         try {
-            // 调用API获取患者数据
-            String patientData = callPatientDataApi(patientId, promptType, promptName);
+            // 从患者上下文快照拼接患者数据
+            String patientData = loadPatientContext(snapshot, dailyPrompt);
 
             // 检查是否成功获取到患者数据
             if (patientData == null || patientData.isEmpty() || patientData.contains("失败") || patientData.contains("无入院记录数据")) {
@@ -698,11 +820,8 @@ public class TimerPromptGenerator {
                 return;
             }
 
-            // 调用API获取模板数据
-            String promptTemplate = callPromptApi(promptType, promptName);
-
             // 创建并保存Prompt对象
-            savePromptToDatabase(patientId, promptType, promptName, patientData, promptTemplate);
+            savePromptToDatabase(patientId, promptType, promptName, patientData, dailyPrompt.getTemplateContent());
 
         } catch (Exception e) {
             System.err.println("生成Prompt失败 - 患者ID: " + patientId +
@@ -772,122 +891,64 @@ public class TimerPromptGenerator {
 
 
     /**
-     * 调用患者数据API获取患者数据（优化版 - 带超时和重试机制）
-     * 
-     * @param {string} patientId - 患者ID
-     * @param {string} promptType - Prompt类型
-     * @param {string} promptName - Prompt名称
-     * @returns {string|null} 处理后的患者数据字符串，已去除SSE格式的"data:"前缀，如果获取失败返回null
-     * @throws {Error} 当API调用发生异常时抛出错误
-     * @description 该方法通过REST API调用获取患者数据，支持超时控制和重试机制
-     * @example
-     *          const patientData = callPatientDataApi("12345", "诊断分析", "诊断分析");
-     *          if (patientData) {
-     *          // 处理有效数据
-     *          }
-     */
-    private String callPatientDataApi(String patientId, String promptType, String promptName) {
-        return callPatientDataApiWithRetry(patientId, promptType, promptName, 
-                apiProperties.getBase().getRetry().getMaxAttempts());
-    }
-
-    /**
-     * 带重试机制的API调用函数
-     * 
-     * @param patientId 患者ID
-     * @param promptType Prompt类型
-     * @param promptName Prompt名称
-     * @param maxRetries 最大重试次数
-     * @return 处理后的患者数据字符串，如果获取失败返回null
+     * 进程内组装患者数据
+     * 
+     * @param snapshot    患者上下文快照
+     * @param dailyPrompt 每日Prompt
+     * @return 患者数据字符串，如果获取失败或包含错误信息返回null
+     * @description 从PatientContextSnapshot按模板requiredDataTypes拼接，替代原先对/api/ai/patient-data的HTTP自调用，
+     *              省去序列化、回环网络和"data:"前缀清理；调用统计仍计入性能监控指标
+     * @since 2025-11-09
      */
-    private String callPatientDataApiWithRetry(String patientId, String promptType, String promptName, int maxRetries) {
-        String url = "";
-        int attempt = 0;
-        
-        while (attempt <= maxRetries) {
-            long startTime = System.currentTimeMillis();
-            totalApiCalls.incrementAndGet();
-            
-            try {
-                // 调用患者数据API - 使用配置的基础URL
-                url = apiProperties.getBase().getUrl() + "/api/ai/patient-data?patientId=" + patientId +
-                        "&promptType=" + promptType +
-                        "&promptName=" + promptName;
-                
-                System.out.println("第" + (attempt + 1) + "次尝试获取患者数据 - URL: " + url);
-                
-                String result = restTemplate.getForObject(url, String.class);
-                
-                // 去除每行开头的"data:"前缀
-                if (result != null) {
-                    result = result.replaceAll("(?m)^data:", "").trim();
-                    // 检查结果是否为空或包含错误信息
-                    if (result.isEmpty() || result.contains("失败") || result.contains("错误")) {
-                        System.err.println("获取的患者数据无效 - URL: " + url + ", 结果: " + result);
-                        failedApiCalls.incrementAndGet();
-                        return null;
-                    }
-                }
-                
-                long endTime = System.currentTimeMillis();
-                long processingTime = endTime - startTime;
-                totalProcessingTime.addAndGet(processingTime);
-                successfulApiCalls.incrementAndGet();
-                
-                System.out.println("成功获取患者数据 - URL: " + url + ", 结果长度: " + (result != null ? result.length() : 0) + ", 耗时: " + processingTime + "ms");
-                return result;
-                
-            } catch (Exception e) {
-                long endTime = System.currentTimeMillis();
-                long processingTime = endTime - startTime;
-                totalProcessingTime.addAndGet(processingTime);
-                
-                attempt++;
-                if (attempt > maxRetries) {
-                    failedApiCalls.incrementAndGet();
-                    System.err.println("调用患者数据API失败，达到最大重试次数(" + maxRetries + ") - URL: " + url + ", 错误: " + e.getMessage() + ", 耗时: " + processingTime + "ms");
-                    e.printStackTrace();
-                    return null;
-                } else {
-                    System.err.println("第" + attempt + "次调用患者数据API失败，准备重试 - URL: " + url + ", 错误: " + e.getMessage() + ", 耗时: " + processingTime + "ms");
-                    // 简单的重试延迟
-                    try {
-                        Thread.sleep(1000 * attempt); // 指数退避的简单实现
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        return null;
-                    }
-                }
+    private String loadPatientContext(PatientContextSnapshot snapshot, DailyPrompt dailyPrompt) {
+        String patientId = snapshot.getPatientId();
+        String promptType = dailyPrompt.getPromptType();
+        String promptName = dailyPrompt.getPromptName();
+        long startTime = System.currentTimeMillis();
+        totalApiCalls.incrementAndGet();
+
+        try {
+            String result = snapshot.compose(dailyPrompt.getDataTypes()).trim();
+            long processingTime = System.currentTimeMillis() - startTime;
+            totalProcessingTime.addAndGet(processingTime);
+
+            // 检查结果是否为空或包含错误信息
+            if (result.isEmpty() || result.contains("失败") || result.contains("错误")) {
+                System.err.println("获取的患者数据无效 - 患者ID: " + patientId + ", 类型: " + promptType + ", 名称: " + promptName);
+                failedApiCalls.incrementAndGet();
+                return null;
             }
+
+            successfulApiCalls.incrementAndGet();
+            System.out.println("成功获取患者数据 - 患者ID: " + patientId + ", 名称: " + promptName
+                    + ", 结果长度: " + result.length() + ", 耗时: " + processingTime + "ms");
+            return result;
+        } catch (Exception e) {
+            totalProcessingTime.addAndGet(System.currentTimeMillis() - startTime);
+            failedApiCalls.incrementAndGet();
+            System.err.println("组装患者数据失败 - 患者ID: " + patientId + ", 类型: " + promptType
+                    + ", 名称: " + promptName + ", 错误: " + e.getMessage());
+            return null;
         }
-        
-        return null;
     }
 
     /**
-     * 调用Prompt模板API获取模板内容
+     * 获取Prompt模板内容
      * 
      * @param promptType Prompt类型
      * @param promptName Prompt名称
-     * @return 处理后的模板内容字符串，已去除SSE格式的"data:"前缀
+     * @return 模板内容字符串，模板不存在或查询失败时返回"获取Prompt模板失败"
      */
-    private String callPromptApi(String promptType, String promptName) {
-        String url = "";
+    private String loadPromptTemplate(String promptType, String promptName) {
         try {
-            // 调用Prompt模板API - 使用配置的基础URL
-            url = apiProperties.getBase().getUrl() + "/api/ai/prompt?promptType=" +
-                    promptType +
-                    "&promptName=" + promptName;
-            String result = restTemplate.getForObject(url, String.class);
-            // 去除每行开头的"data:"前缀
-            if (result != null) {
-                result = result.replaceAll("(?m)^data:", "").trim();
+            String result = patientContextAssembler.findPromptTemplate(promptType, promptName);
+            if (result == null) {
+                System.err.println("未找到Prompt模板 - 类型: " + promptType + ", 名称: " + promptName);
+                return "获取Prompt模板失败";
             }
-            System.out.println("成功获取Prompt模板 - URL: " + url + ", 结果: " + result);
-            return result;
+            return result.trim();
         } catch (Exception e) {
-            System.err.println("调用Prompt API失败 - URL: " + url + ", 错误: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("获取Prompt模板失败 - 类型: " + promptType + ", 名称: " + promptName + ", 错误: " + e.getMessage());
             return "获取Prompt模板失败";
         }
     }
@@ -1243,8 +1304,8 @@ public class TimerPromptGenerator {
                 return null; // 数据构建失败，跳过
             }
             
-            // 步顈5：调用API获取模板内容
-            String promptTemplate = callPromptApi(promptType, templateName);
+            // 步顈5：获取模板内容
+            String promptTemplate = loadPromptTemplate(promptType, templateName);
             
             // 步顈6：保存到数据库
             Prompt prompt = new Prompt();
@@ -1982,4 +2043,36 @@ public class TimerPromptGenerator {
         return content.toString();
     }
 
+    /**
+     * 每日Prompt：模板类型、名称、所需数据类型和模板内容，每次运行解析一次
+     */
+    static final class DailyPrompt {
+        private final String promptType;
+        private final String promptName;
+        private final List<String> dataTypes;
+        private final String templateContent;
+
+        DailyPrompt(String promptType, String promptName, List<String> dataTypes, String templateContent) {
+            this.promptType = promptType;
+            this.promptName = promptName;
+            this.dataTypes = dataTypes;
+            this.templateContent = templateContent;
+        }
+
+        String getPromptType() {
+            return promptType;
+        }
+
+        String getPromptName() {
+            return promptName;
+        }
+
+        List<String> getDataTypes() {
+            return dataTypes;
+        }
+
+        String getTemplateContent() {
+            return templateContent;
+        }
+    }
 }
@@ -0,0 +1,227 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.drg.catalog.DrgCatalog;
+import com.example.medaiassistant.drg.catalog.DrgCatalogLoader;
+import com.example.medaiassistant.drg.matching.DrgCatalogIndex;
+import com.example.medaiassistant.drg.matching.PrimaryDiagnosisProcedureMatcher;
+import com.example.medaiassistant.dto.drg.PatientData;
+import com.example.medaiassistant.dto.drg.PatientProcedure;
+import com.example.medaiassistant.dto.drg.PatientScreeningResult;
+import com.example.medaiassistant.dto.drg.WardScreeningRequest;
+import com.example.medaiassistant.model.Diagnosis;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.model.PatientDiagnosis;
+import com.example.medaiassistant.model.Surgery;
+import com.example.medaiassistant.repository.DiagnosisRepository;
+import com.example.medaiassistant.repository.PatientRepository;
+import com.example.medaiassistant.repository.SurgeryRepository;
+import com.example.medaiassistant.util.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 病区批量DRG匹配与MCC预筛选服务
+ *
+ * 编码审核按病区整体查看时，逐个患者调用单患者接口会重复查询和重复标准化。本服务一次处理一批患者：
+ * <ul>
+ *   <li>患者、诊断、手术各用批量IN查询取回（按Oracle IN列表上限分批），不再逐个患者查询</li>
+ *   <li>整批患者中每个不同的诊断名称只标准化一次，MCC预筛选直接使用标准化结果</li>
+ *   <li>所有患者共享同一个不可变DRG目录快照及其倒排索引，在并行调度器上并行评估</li>
+ *   <li>结果以流的形式返回，每个患者评估完成即输出，顺序为完成顺序</li>
+ * </ul>
+ * 单个患者评估失败只在该患者结果中记录错误，不影响其余患者。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@Slf4j
+@Profile("!execution")
+@Service
+public class WardScreeningService {
+
+    /** 批量IN查询每批的患者数（Oracle上限1000） */
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
+    private final PatientRepository patientRepository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final SurgeryRepository surgeryRepository;
+    private final DrgCatalogLoader drgCatalogLoader;
+    private final PrimaryDiagnosisProcedureMatcher primaryMatcher;
+    private final MccScreeningService mccScreeningService;
+    private final TextNormalizer textNormalizer;
+    private final int parallelism;
+
+    @Autowired
+    public WardScreeningService(PatientRepository patientRepository,
+                                DiagnosisRepository diagnosisRepository,
+                                SurgeryRepository surgeryRepository,
+                                DrgCatalogLoader drgCatalogLoader,
+                                PrimaryDiagnosisProcedureMatcher primaryMatcher,
+                                MccScreeningService mccScreeningService,
+                                TextNormalizer textNormalizer,
+                                @Value("${drg.ward-screening.parallelism:0}") int parallelism) {
+        this.patientRepository = patientRepository;
+        this.diagnosisRepository = diagnosisRepository;
+        this.surgeryRepository = surgeryRepository;
+        this.drgCatalogLoader = drgCatalogLoader;
+        this.primaryMatcher = primaryMatcher;
+        this.mccScreeningService = mccScreeningService;
+        this.textNormalizer = textNormalizer;
+        // 未配置时按CPU核数并行
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 批量筛选病区患者
+     *
+     * 批量查询在弹性调度器上执行，患者评估在并行调度器上执行。
+     *
+     * @param request 筛选请求（科室或患者ID列表）
+     * @return 按完成顺序输出的患者筛选结果
+     * @throws IllegalArgumentException 科室和患者ID列表都为空时
+     */
+    public Flux<PatientScreeningResult> screen(WardScreeningRequest request) {
+        if (request == null || (isBlank(request.getDepartment())
+                && (request.getPatientIds() == null || request.getPatientIds().isEmpty()))) {
+            return Flux.error(new IllegalArgumentException("科室和患者ID列表不能同时为空"));
+        }
+        return Mono.fromCallable(() -> loadBatch(request))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(batch -> Flux.fromIterable(batch.patientIds())
+                .flatMap(patientId -> Mono.fromCallable(() -> evaluate(patientId, batch))
+                    .subscribeOn(Schedulers.parallel()), parallelism));
+    }
+
+    /**
+     * 批量取回患者、诊断和手术，并对整批不同的诊断名称做一次标准化
+     */
+    private Batch loadBatch(WardScreeningRequest request) {
+        long start = System.currentTimeMillis();
+        Map<String, Patient> patients = new LinkedHashMap<>();
+        List<String> patientIds;
+        if (request.getPatientIds() != null && !request.getPatientIds().isEmpty()) {
+            patientIds = List.copyOf(new LinkedHashSet<>(request.getPatientIds()));
+            for (List<String> chunk : chunks(patientIds)) {
+                patientRepository.findAllById(chunk).forEach(patient -> patients.put(patient.getPatientId(), patient));
+            }
+        } else {
+            patientRepository.findByDepartmentAndIsInHospital(request.getDepartment(), true)
+                .forEach(patient -> patients.put(patient.getPatientId(), patient));
+            patientIds = List.copyOf(patients.keySet());
+        }
+
+        Map<String, List<Diagnosis>> diagnoses = new HashMap<>();
+        Map<String, List<Surgery>> surgeries = new HashMap<>();
+        for (List<String> chunk : chunks(patientIds)) {
+            for (Diagnosis diagnosis : diagnosisRepository.findByPatientIdIn(chunk)) {
+                diagnoses.computeIfAbsent(diagnosis.getPatientId(), k -> new ArrayList<>()).add(diagnosis);
+            }
+            for (Surgery surgery : surgeryRepository.findByPatientIdIn(chunk)) {
+                surgeries.computeIfAbsent(surgery.getPatientId(), k -> new ArrayList<>()).add(surgery);
+            }
+        }
+
+        // 整批中每个不同的诊断名称只标准化一次
+        Map<String, String> normalizedNames = new HashMap<>();
+        for (List<Diagnosis> patientDiagnoses : diagnoses.values()) {
+            for (Diagnosis diagnosis : patientDiagnoses) {
+                String name = diagnosis.getDiagnosisText();
+                if (name != null && !name.isBlank()) {
+                    normalizedNames.computeIfAbsent(name, textNormalizer::normalize);
+                }
+            }
+        }
+
+        DrgCatalog catalog = drgCatalogLoader.getCurrentCatalog();
+        log.info("病区批量筛选数据已加载: 科室={}, 患者 {} 人, 不同诊断名称 {} 个, 耗时 {}ms",
+            request.getDepartment(), patientIds.size(), normalizedNames.size(), System.currentTimeMillis() - start);
+        return new Batch(patientIds, patients, diagnoses, surgeries, normalizedNames,
+            catalog != null ? catalog.getVersion() : null, catalog != null ? catalog.getIndex() : null);
+    }
+
+    /**
+     * 评估单个患者：DRG主要诊断与手术匹配、MCC预筛选
+     */
+    private PatientScreeningResult evaluate(String patientId, Batch batch) {
+        long start = System.nanoTime();
+        PatientScreeningResult result = new PatientScreeningResult();
+        result.setPatientId(patientId);
+        result.setCatalogVersion(batch.catalogVersion());
+        Patient patient = batch.patients().get(patientId);
+        if (patient != null) {
+            result.setName(patient.getName());
+            result.setBedNumber(patient.getBedNumber());
+        }
+
+        try {
+            List<Diagnosis> diagnoses = batch.diagnoses().getOrDefault(patientId, List.of());
+            List<Surgery> surgeries = batch.surgeries().getOrDefault(patientId, List.of());
+            result.setDiagnosisCount(diagnoses.size());
+            result.setProcedureCount(surgeries.size());
+
+            List<com.example.medaiassistant.dto.drg.PatientDiagnosis> drgDiagnoses = new ArrayList<>(diagnoses.size());
+            List<PatientDiagnosis> mccDiagnoses = new ArrayList<>(diagnoses.size());
+            for (Diagnosis diagnosis : diagnoses) {
+                drgDiagnoses.add(new com.example.medaiassistant.dto.drg.PatientDiagnosis(
+                    diagnosis.getIcd10Code(), diagnosis.getDiagnosisText()));
+                mccDiagnoses.add(new PatientDiagnosis(diagnosis.getIcd10Code(), diagnosis.getDiagnosisText()));
+            }
+            List<PatientProcedure> procedures = new ArrayList<>(surgeries.size());
+            for (Surgery surgery : surgeries) {
+                procedures.add(new PatientProcedure(surgery.getSurgeryCode(), surgery.getSurgeryName()));
+            }
+
+            result.setDrgMatching(primaryMatcher.match(new PatientData(drgDiagnoses, procedures), batch.index()));
+            result.setMccCandidates(mccScreeningService.screenMccCandidatesGrouped(mccDiagnoses, normalizer(batch)));
+        } catch (RuntimeException e) {
+            log.warn("患者 {} 批量筛选失败: {}", patientId, e.getMessage(), e);
+            result.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        result.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * 读取整批的标准化结果，不在其中的名称再单独标准化
+     */
+    private Function<String, String> normalizer(Batch batch) {
+        return name -> {
+            String normalized = batch.normalizedNames().get(name);
+            return normalized != null ? normalized : textNormalizer.normalize(name);
+        };
+    }
+
+    private static List<List<String>> chunks(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + QUERY_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * 一批患者的共享只读数据：患者、诊断、手术、诊断名称标准化结果及DRG目录索引
+     */
+    private record Batch(List<String> patientIds, Map<String, Patient> patients,
+                         Map<String, List<Diagnosis>> diagnoses, Map<String, List<Surgery>> surgeries,
+                         Map<String, String> normalizedNames, String catalogVersion, DrgCatalogIndex index) {
+    }
+}
@@ -7,6 +7,8 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.security.spec.KeySpec;
 import java.util.Base64;
 
@@ -32,7 +34,8 @@ import java.util.Base64;
  * @see javax.crypto.spec.IvParameterSpec
  * 
  * @security 该类使用PBKDF2WithHmacSHA256密钥派生算法，65536次迭代增强安全性
- * @performance 单次加密解密操作通常在10ms以内，适合实时数据处理
+ * @performance 密钥派生耗时较长，高频调用方应通过deriveKey派生一次后使用SecretKeySpec重载
+ *              （参见CryptoKeyRing）；Cipher与SecureRandom按线程复用
  */
 public class AESEncryptionUtil {
     
@@ -42,6 +45,18 @@ public class AESEncryptionUtil {
     private static final int ITERATION_COUNT = 65536;
     private static final int IV_LENGTH = 16;
     
+    /** 线程私有的Cipher实例（每次使用前重新init，无需重复getInstance） */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法创建加密器: " + ALGORITHM, e);
+        }
+    });
+    
+    /** 线程私有的随机数生成器，避免每次加密都新建SecureRandom */
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    
     /**
      * AES-256加密方法
      * 
@@ -72,18 +87,34 @@ public class AESEncryptionUtil {
             throw new IllegalArgumentException("盐值不能为空");
         }
         
+        return encrypt(plainText, deriveKey(secretKey, salt));
+    }
+    
+    /**
+     * AES-256加密方法（使用已派生的密钥）
+     * 
+     * @param {string} plainText - 待加密的明文数据，不能为空
+     * @param {SecretKeySpec} keySpec - 通过deriveKey派生的AES密钥
+     * @returns {string} Base64编码的加密字符串，包含16字节IV和加密数据
+     * @throws {IllegalArgumentException} 当plainText或keySpec为空时抛出
+     * @throws {Exception} 加密过程中发生其他异常时抛出
+     */
+    public static String encrypt(String plainText, SecretKeySpec keySpec) throws Exception {
+        if (plainText == null || plainText.isEmpty()) {
+            throw new IllegalArgumentException("明文不能为空");
+        }
+        if (keySpec == null) {
+            throw new IllegalArgumentException("加密密钥不能为空");
+        }
+        
         // 生成随机初始化向量
         byte[] iv = new byte[IV_LENGTH];
-        java.security.SecureRandom random = new java.security.SecureRandom();
-        random.nextBytes(iv);
+        RANDOM.get().nextBytes(iv);
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
         
-        // 生成密钥
-        SecretKeySpec secretKeySpec = generateSecretKey(secretKey, salt);
-        
         // 初始化加密器
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, ivSpec);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
         
         // 加密数据
         byte[] encryptedData = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
@@ -128,6 +159,26 @@ public class AESEncryptionUtil {
             throw new IllegalArgumentException("盐值不能为空");
         }
         
+        return decrypt(encryptedText, deriveKey(secretKey, salt));
+    }
+    
+    /**
+     * AES-256解密方法（使用已派生的密钥）
+     * 
+     * @param {string} encryptedText - Base64编码的加密字符串，必须包含IV和加密数据
+     * @param {SecretKeySpec} keySpec - 通过deriveKey派生的AES密钥，必须与加密时相同
+     * @returns {string} 解密后的原始明文数据
+     * @throws {IllegalArgumentException} 当encryptedText或keySpec为空、或加密数据格式无效时抛出
+     * @throws {Exception} 解密过程中发生其他异常时抛出
+     */
+    public static String decrypt(String encryptedText, SecretKeySpec keySpec) throws Exception {
+        if (encryptedText == null || encryptedText.isEmpty()) {
+            throw new IllegalArgumentException("加密文本不能为空");
+        }
+        if (keySpec == null) {
+            throw new IllegalArgumentException("加密密钥不能为空");
+        }
+        
         // Base64解码
         byte[] combined = Base64.getDecoder().decode(encryptedText);
         
@@ -135,36 +186,28 @@ public class AESEncryptionUtil {
             throw new IllegalArgumentException("无效的加密数据");
         }
         
-        // 提取IV和加密数据
-        byte[] iv = new byte[IV_LENGTH];
-        byte[] encryptedData = new byte[combined.length - IV_LENGTH];
-        System.arraycopy(combined, 0, iv, 0, IV_LENGTH);
-        System.arraycopy(combined, IV_LENGTH, encryptedData, 0, encryptedData.length);
-        
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
-        SecretKeySpec secretKeySpec = generateSecretKey(secretKey, salt);
-        
-        // 初始化解密器
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, ivSpec);
+        // 初始化解密器（IV与密文直接引用解码后的数组，无需拷贝）
+        IvParameterSpec ivSpec = new IvParameterSpec(combined, 0, IV_LENGTH);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
         
         // 解密数据
-        byte[] decryptedData = cipher.doFinal(encryptedData);
+        byte[] decryptedData = cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH);
         
         return new String(decryptedData, StandardCharsets.UTF_8);
     }
     
     /**
-     * 生成AES密钥
+     * 派生AES密钥
      * 使用PBKDF2WithHmacSHA256算法从密码和盐值派生加密密钥
+     * 派生过程需要65536次迭代，调用方应缓存结果而不是每次加解密都重新派生
      * 
      * @param {string} secretKey - 原始密钥字符串
      * @param {string} salt - 盐值字符串
      * @returns {SecretKeySpec} 生成的AES密钥对象
      * @throws {Exception} 密钥生成过程中发生异常时抛出
-     * @private
      */
-    private static SecretKeySpec generateSecretKey(String secretKey, String salt) throws Exception {
+    public static SecretKeySpec deriveKey(String secretKey, String salt) throws Exception {
         SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_ALGORITHM);
         KeySpec spec = new PBEKeySpec(secretKey.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), ITERATION_COUNT, KEY_LENGTH);
         SecretKey tmp = factory.generateSecret(spec);
@@ -184,8 +227,7 @@ public class AESEncryptionUtil {
      */
     public static String generateRandomKey() {
         byte[] key = new byte[32]; // 256位
-        java.security.SecureRandom random = new java.security.SecureRandom();
-        random.nextBytes(key);
+        RANDOM.get().nextBytes(key);
         return Base64.getEncoder().encodeToString(key);
     }
     
@@ -202,8 +244,7 @@ public class AESEncryptionUtil {
      */
     public static String generateRandomSalt() {
         byte[] salt = new byte[16];
-        java.security.SecureRandom random = new java.security.SecureRandom();
-        random.nextBytes(salt);
+        RANDOM.get().nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
     
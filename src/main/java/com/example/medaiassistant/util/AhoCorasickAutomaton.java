@@ -0,0 +1,196 @@
+package com.example.medaiassistant.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho–Corasick多模式匹配自动机（不可变）
+ *
+ * 一次线性扫描即可找出文本中出现的全部模式串。模式串按构建时的下标编号，
+ * 调用方可据此按配置顺序逐个处理命中的模式，而不必对每个模式单独扫描全文。
+ *
+ * 空模式串不进入自动机，视为在任意文本中都"出现"。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class AhoCorasickAutomaton {
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final String[] patterns;
+    /** 每个状态的出边字符（升序）及目标状态 */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** 每个状态可识别的模式下标（含失败链上的后缀模式，升序） */
+    private final int[][] outputs;
+    /** 空模式串下标（升序） */
+    private final int[] emptyPatterns;
+
+    private AhoCorasickAutomaton(List<String> patterns) {
+        this.patterns = patterns.toArray(new String[0]);
+
+        List<Map<Character, Integer>> gotoEdges = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        List<Integer> empties = new ArrayList<>();
+        gotoEdges.add(new HashMap<>());
+        ownOutputs.add(new ArrayList<>());
+
+        // 1. 构建字典树
+        for (int p = 0; p < this.patterns.length; p++) {
+            String pattern = this.patterns[p];
+            if (pattern.isEmpty()) {
+                empties.add(p);
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = gotoEdges.get(state).get(pattern.charAt(i));
+                if (next == null) {
+                    next = gotoEdges.size();
+                    gotoEdges.get(state).put(pattern.charAt(i), next);
+                    gotoEdges.add(new HashMap<>());
+                    ownOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ownOutputs.get(state).add(p);
+        }
+
+        int stateCount = gotoEdges.size();
+        this.edgeChars = new char[stateCount][];
+        this.edgeTargets = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            Character[] keys = gotoEdges.get(s).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            edgeChars[s] = new char[keys.length];
+            edgeTargets[s] = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                edgeChars[s][i] = keys[i];
+                edgeTargets[s][i] = gotoEdges.get(s).get(keys[i]);
+            }
+        }
+
+        // 2. 按广度优先顺序计算失败链接与输出集合
+        this.fail = new int[stateCount];
+        this.outputs = new int[stateCount][];
+        outputs[0] = NO_OUTPUT;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            outputs[target] = toSortedArray(ownOutputs.get(target), NO_OUTPUT);
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int target = edgeTargets[state][i];
+                int f = fail[state];
+                int fallback;
+                while ((fallback = edge(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[target] = fallback >= 0 ? fallback : 0;
+                outputs[target] = toSortedArray(ownOutputs.get(target), outputs[fail[target]]);
+                queue.add(target);
+            }
+        }
+
+        this.emptyPatterns = toSortedArray(empties, NO_OUTPUT);
+    }
+
+    /**
+     * 构建自动机
+     *
+     * @param patterns 模式串列表（列表下标即模式编号）
+     * @return 不可变的自动机
+     */
+    public static AhoCorasickAutomaton build(List<String> patterns) {
+        return new AhoCorasickAutomaton(patterns != null ? patterns : List.of());
+    }
+
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    public String pattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * 查找文本中出现的、编号不小于minIndex的最小模式编号
+     *
+     * @param text 文本缓冲区
+     * @param length 文本长度
+     * @param minIndex 最小模式编号
+     * @return 命中的最小模式编号，没有命中返回-1
+     */
+    public int firstPatternFrom(char[] text, int length, int minIndex) {
+        int best = Integer.MAX_VALUE;
+        for (int p : emptyPatterns) {
+            if (p >= minIndex) {
+                best = p;
+                break;
+            }
+        }
+        if (best == minIndex || outputs.length == 1) {
+            return best == Integer.MAX_VALUE ? -1 : best;
+        }
+
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = next(state, text[i]);
+            int[] out = outputs[state];
+            for (int p : out) {
+                if (p >= minIndex) {
+                    if (p < best) {
+                        best = p;
+                    }
+                    break;
+                }
+            }
+            if (best == minIndex) {
+                break;
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = edge(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int edge(int state, char c) {
+        int index = Arrays.binarySearch(edgeChars[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    private static int[] toSortedArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        int[] merged = new int[own.size() + inherited.length];
+        for (int i = 0; i < own.size(); i++) {
+            merged[i] = own.get(i);
+        }
+        System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.medaiassistant.util;
+
+/**
+ * 编辑距离计算内核
+ *
+ * 为NameMatcher、LevenshteinUtil和MCC预筛选提供统一的、无分配的Levenshtein距离计算：
+ * 1. 较短字符串不超过64个字符时，使用Myers/Hyyrö位并行算法，每个字符只需常数次位运算
+ * 2. 两个字符串都超过64个字符时，使用带宽受限（Ukkonen band）的动态规划
+ * 3. 提供带上界的boundedDistance接口，一旦确定距离超过上界立即放弃计算
+ *
+ * 所有工作缓冲区按线程复用，计算过程中不产生临时对象。
+ * 距离按UTF-16字符计算，与Apache Commons Text的LevenshteinDistance结果一致。
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+public final class EditDistanceKernel {
+
+    /**
+     * 位并行算法支持的最大模式串长度
+     */
+    public static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private EditDistanceKernel() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 计算两个字符串之间的Levenshtein距离
+     *
+     * @param a 字符串1
+     * @param b 字符串2
+     * @return Levenshtein距离
+     * @throws IllegalArgumentException 如果任一字符串为null
+     */
+    public static int distance(CharSequence a, CharSequence b) {
+        return boundedDistance(a, b, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 计算不超过上界的Levenshtein距离
+     *
+     * 当距离必然超过maxDist时提前结束计算，适用于只关心"是否达到相似度阈值"的场景。
+     *
+     * @param a 字符串1
+     * @param b 字符串2
+     * @param maxDist 距离上界（非负）
+     * @return 距离不超过maxDist时返回精确距离，否则返回-1
+     * @throws IllegalArgumentException 如果任一字符串为null或上界为负数
+     */
+    public static int boundedDistance(CharSequence a, CharSequence b, int maxDist) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("字符串不能为null");
+        }
+        if (maxDist < 0) {
+            throw new IllegalArgumentException("距离上界不能为负数");
+        }
+
+        // 保证a为较短的字符串
+        if (a.length() > b.length()) {
+            CharSequence tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int m = a.length();
+        int n = b.length();
+
+        if (n - m > maxDist) {
+            return -1;
+        }
+        if (m == 0) {
+            return n;
+        }
+
+        if (m <= MAX_BIT_PARALLEL_LENGTH) {
+            return bitParallelDistance(a, b, maxDist);
+        }
+        return bandedDistance(a, b, Math.min(maxDist, n));
+    }
+
+    /**
+     * 根据相似度阈值计算允许的最大编辑距离
+     *
+     * 相似度按 1 - 距离 / 最大长度 计算，与LevenshteinUtil.calculateSimilarity的公式保持一致，
+     * 因此返回值可直接作为boundedDistance的上界而不改变阈值判定结果。
+     *
+     * @param maxLength 两个字符串的最大长度
+     * @param threshold 相似度阈值
+     * @return 相似度仍不低于阈值的最大距离，任何距离都达不到阈值时返回-1
+     */
+    public static int maxDistanceForSimilarity(int maxLength, double threshold) {
+        if (maxLength <= 0) {
+            return threshold <= 1.0 ? 0 : -1;
+        }
+        int distance = (int) Math.min(maxLength, Math.max(0, Math.floor((1.0 - threshold) * maxLength) + 1));
+        // 浮点误差修正：以与相似度计算完全相同的表达式校验边界
+        while (distance >= 0 && 1.0 - ((double) distance / maxLength) < threshold) {
+            distance--;
+        }
+        return distance;
+    }
+
+    /**
+     * Myers/Hyyrö位并行编辑距离（模式串a长度不超过64）
+     */
+    private static int bitParallelDistance(CharSequence a, CharSequence b, int maxDist) {
+        int m = a.length();
+        int n = b.length();
+        Workspace ws = WORKSPACE.get();
+        ws.loadPattern(a);
+        try {
+            long pv = m == 64 ? -1L : (1L << m) - 1;
+            long mv = 0L;
+            long last = 1L << (m - 1);
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                long eq = ws.mask(b.charAt(j));
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & last) != 0) {
+                    score++;
+                } else if ((mh & last) != 0) {
+                    score--;
+                }
+
+                // 最终距离至少为当前得分减去剩余列数
+                if (score - (n - j - 1) > maxDist) {
+                    return -1;
+                }
+
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+
+            return score <= maxDist ? score : -1;
+        } finally {
+            ws.clearPattern();
+        }
+    }
+
+    /**
+     * 带宽受限的动态规划编辑距离（仅计算主对角线两侧maxDist范围内的单元格）
+     */
+    private static int bandedDistance(CharSequence a, CharSequence b, int maxDist) {
+        int m = a.length();
+        int n = b.length();
+        int inf = maxDist + 1;
+        Workspace ws = WORKSPACE.get();
+        int[] prev = ws.row(0, n + 2);
+        int[] cur = ws.row(1, n + 2);
+
+        int firstHi = Math.min(n, maxDist);
+        for (int j = 0; j <= firstHi; j++) {
+            prev[j] = j;
+        }
+        prev[firstHi + 1] = inf;
+
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(1, i - maxDist);
+            int hi = Math.min(n, i + maxDist);
+            char ca = a.charAt(i - 1);
+
+            cur[lo - 1] = lo == 1 ? Math.min(i, inf) : inf;
+            int rowMin = cur[lo - 1];
+
+            for (int j = lo; j <= hi; j++) {
+                int value = prev[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                int up = prev[j] + 1;
+                if (up < value) {
+                    value = up;
+                }
+                int left = cur[j - 1] + 1;
+                if (left < value) {
+                    value = left;
+                }
+                if (value > inf) {
+                    value = inf;
+                }
+                cur[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            cur[hi + 1] = inf;
+
+            if (rowMin > maxDist) {
+                return -1;
+            }
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        int result = prev[n];
+        return result <= maxDist ? result : -1;
+    }
+
+    /**
+     * 线程私有工作区：模式串字符掩码哈希表与动态规划行缓冲
+     */
+    private static final class Workspace {
+        private static final int TABLE_SIZE = 128;
+        private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+        private final int[] keys = new int[TABLE_SIZE];
+        private final long[] masks = new long[TABLE_SIZE];
+        private final int[] usedSlots = new int[MAX_BIT_PARALLEL_LENGTH];
+        private int usedCount;
+        private final int[][] rows = new int[2][];
+
+        Workspace() {
+            java.util.Arrays.fill(keys, -1);
+        }
+
+        void loadPattern(CharSequence pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int slot = slotOf(c);
+                if (keys[slot] < 0) {
+                    keys[slot] = c;
+                    usedSlots[usedCount++] = slot;
+                }
+                masks[slot] |= 1L << i;
+            }
+        }
+
+        long mask(char c) {
+            int slot = slotOf(c);
+            return keys[slot] == c ? masks[slot] : 0L;
+        }
+
+        void clearPattern() {
+            for (int i = 0; i < usedCount; i++) {
+                int slot = usedSlots[i];
+                keys[slot] = -1;
+                masks[slot] = 0L;
+            }
+            usedCount = 0;
+        }
+
+        int[] row(int index, int minLength) {
+            int[] row = rows[index];
+            if (row == null || row.length < minLength) {
+                row = new int[Math.max(minLength, row == null ? 0 : row.length * 2)];
+                rows[index] = row;
+            }
+            return row;
+        }
+
+        /**
+         * 线性探测定位字符所在槽位（返回已占用的同字符槽位或第一个空槽位）
+         */
+        private int slotOf(char c) {
+            int slot = (c * 0x9E3779B1) >>> 25 & TABLE_MASK;
+            while (keys[slot] >= 0 && keys[slot] != c) {
+                slot = (slot + 1) & TABLE_MASK;
+            }
+            return slot;
+        }
+    }
+}
@@ -5,7 +5,8 @@ import org.springframework.stereotype.Component;
 
 /**
  * 字符串相似度计算工具类
- * 使用Apache Commons Text的Levenshtein距离算法
+ * 距离计算由EditDistanceKernel提供（位并行 + 带宽受限动态规划，无临时分配），
+ * 结果与Apache Commons Text的Levenshtein距离算法一致
  * 
  * @author MedAI Assistant Team
  * @since 2025-10-16
@@ -15,12 +16,17 @@ public class LevenshteinUtil {
     
     private final LevenshteinDistance levenshteinDistance;
     
+    /**
+     * 最大距离阈值，为null时不限制
+     */
+    private final Integer threshold;
+    
     /**
      * 默认构造函数
      * 使用默认的Levenshtein距离计算器（无阈值限制）
      */
     public LevenshteinUtil() {
-        this.levenshteinDistance = LevenshteinDistance.getDefaultInstance();
+        this(null);
     }
     
     /**
@@ -30,6 +36,7 @@ public class LevenshteinUtil {
      */
     public LevenshteinUtil(Integer threshold) {
         this.levenshteinDistance = LevenshteinDistance.getDefaultInstance();
+        this.threshold = threshold;
     }
     
     /**
@@ -43,7 +50,26 @@ public class LevenshteinUtil {
         if (s1 == null || s2 == null) {
             return -1;
         }
-        return levenshteinDistance.apply(s1, s2);
+        if (threshold != null) {
+            return calculateBoundedDistance(s1, s2, threshold);
+        }
+        return EditDistanceKernel.distance(s1, s2);
+    }
+    
+    /**
+     * 计算不超过上界的Levenshtein距离
+     * 一旦确定距离超过上界即停止计算
+     * 
+     * @param s1 字符串1
+     * @param s2 字符串2
+     * @param maxDistance 距离上界
+     * @return 距离不超过上界时返回精确距离，否则（或任一字符串为null、上界为负数）返回-1
+     */
+    public int calculateBoundedDistance(String s1, String s2, int maxDistance) {
+        if (s1 == null || s2 == null || maxDistance < 0) {
+            return -1;
+        }
+        return EditDistanceKernel.boundedDistance(s1, s2, maxDistance);
     }
     
     /**
@@ -76,6 +102,40 @@ public class LevenshteinUtil {
         return 1.0 - ((double) distance / maxLength);
     }
     
+    /**
+     * 计算两个字符串的相似度（带阈值提前放弃）
+     * 根据阈值推导出距离上界，距离超过上界的字符串对不再继续计算
+     * 
+     * 接受任意字符序列，可直接用于预先标准化并紧凑存储的字典名称
+     * 
+     * @param s1 字符串1
+     * @param s2 字符串2
+     * @param threshold 相似度阈值
+     * @return 相似度达到阈值时返回精确相似度，否则返回0.0
+     */
+    public double calculateSimilarity(CharSequence s1, CharSequence s2, double threshold) {
+        if (s1 == null || s2 == null) {
+            return 0.0;
+        }
+        
+        int maxLength = Math.max(s1.length(), s2.length());
+        if (maxLength == 0) {
+            return 1.0;
+        }
+        
+        int maxDistance = EditDistanceKernel.maxDistanceForSimilarity(maxLength, threshold);
+        if (maxDistance < 0) {
+            return 0.0;
+        }
+        
+        int distance = EditDistanceKernel.boundedDistance(s1, s2, maxDistance);
+        if (distance < 0) {
+            return 0.0;
+        }
+        
+        return 1.0 - ((double) distance / maxLength);
+    }
+    
     /**
      * 计算两个字符串的相似度百分比
      * 
@@ -97,7 +157,7 @@ public class LevenshteinUtil {
      * @return 如果相似度大于等于阈值则返回true
      */
     public boolean isSimilar(String s1, String s2, double threshold) {
-        double similarity = calculateSimilarity(s1, s2);
+        double similarity = calculateSimilarity(s1, s2, threshold);
         return similarity >= threshold;
     }
     
@@ -190,6 +250,26 @@ public class LevenshteinUtil {
         return calculateSimilarity(normalizedS1, normalizedS2);
     }
     
+    /**
+     * 计算标准化后的字符串相似度（带阈值提前放弃）
+     * 
+     * @param s1 字符串1
+     * @param s2 字符串2
+     * @param textNormalizer 文本标准化器
+     * @param threshold 相似度阈值
+     * @return 标准化后的相似度达到阈值时返回精确相似度，否则返回0.0
+     */
+    public double calculateNormalizedSimilarity(String s1, String s2, TextNormalizer textNormalizer, double threshold) {
+        if (textNormalizer == null) {
+            return calculateSimilarity(s1, s2, threshold);
+        }
+        
+        String normalizedS1 = textNormalizer.normalize(s1);
+        String normalizedS2 = textNormalizer.normalize(s2);
+        
+        return calculateSimilarity(normalizedS1, normalizedS2, threshold);
+    }
+    
     /**
      * 计算标准化后的字符串相似度百分比
      * 
@@ -213,7 +293,7 @@ public class LevenshteinUtil {
      * @return 如果标准化后的相似度大于等于阈值则返回true
      */
     public boolean isNormalizedSimilar(String s1, String s2, double threshold, TextNormalizer textNormalizer) {
-        double similarity = calculateNormalizedSimilarity(s1, s2, textNormalizer);
+        double similarity = calculateNormalizedSimilarity(s1, s2, textNormalizer, threshold);
         return similarity >= threshold;
     }
     
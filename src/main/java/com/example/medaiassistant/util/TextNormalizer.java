@@ -20,6 +20,10 @@ import java.util.regex.Pattern;
  * 特别注意：本工具会保留DRGs主要诊断中的关键词，如"急性"、"亚急性"、"稳定性"等，
  * 确保DRGs匹配时不会因为过度标准化导致匹配失败。
  * 
+ * 配置在加载时编译为不可变的规则集：全角半角映射为65536项的字符转换表，
+ * 修饰词与数字转换分别编译为Aho–Corasick自动机。标准化在线程私有缓冲区中完成，
+ * 只在最后生成一个结果字符串。输出与逐步执行各处理步骤的结果完全一致。
+ * 
  * @author MedAI Assistant Team
  * @since 2025-10-16
  * @version 2.0
@@ -35,6 +39,11 @@ public class TextNormalizer {
     private char[] fullWidthChars;
     private char[] halfWidthChars;
     
+    // 由运行时配置编译出的规则（配置变更时整体替换）
+    private volatile CompiledRules rules;
+    
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+    
     // 正则表达式模式
     private static final Pattern MULTIPLE_SPACES = Pattern.compile("\\s+");
     private static final Pattern BRACKET_CONTENT = Pattern.compile("\\[.*?\\]");
@@ -64,6 +73,17 @@ public class TextNormalizer {
         // 初始化全角半角字符映射
         this.fullWidthChars = config.getFullWidthChars().toCharArray();
         this.halfWidthChars = config.getHalfWidthChars().toCharArray();
+        
+        compileRules();
+    }
+    
+    /**
+     * 按当前修饰词集合与数字转换映射的迭代顺序编译规则
+     * 逐个替换的结果依赖处理顺序，编译后的规则保持与原集合完全相同的顺序
+     */
+    private void compileRules() {
+        this.rules = new CompiledRules(fullWidthChars, halfWidthChars,
+            new ArrayList<>(modifiers), new ArrayList<>(numberConversions.entrySet()));
     }
     
     /**
@@ -77,24 +97,30 @@ public class TextNormalizer {
             return "";
         }
         
-        String result = text;
+        CompiledRules current = rules;
+        Workspace ws = WORKSPACE.get();
         
-        // 1. 全角→半角转换
-        result = fullWidthToHalfWidth(result);
+        // 1. 全角→半角转换，同时去除多余空格
+        ws.load(text);
+        ws.translate(current.widthTable);
+        ws.collapseSpaces();
         
-        // 2. 去除多余空格
-        result = removeExtraSpaces(result);
-        
-        // 3. 去除常见修饰词
-        result = removeModifiers(result);
+        // 2. 去除常见修饰词
+        if (ws.length > 0 && ws.replaceSequentially(current.modifierAutomaton, current.modifierReplacements)) {
+            ws.collapseSpaces();
+        }
         
-        // 4. 统一数字格式
-        result = normalizeNumbers(result);
+        // 3. 统一数字格式
+        if (ws.length > 0) {
+            ws.replaceSequentially(current.numberAutomaton, current.numberReplacements);
+        }
         
-        // 5. 去除方括号内容（别名）
-        result = removeBracketContent(result);
+        // 4. 去除方括号内容（别名）
+        if (ws.length > 0) {
+            ws.removeBracketContent();
+        }
         
-        return result.trim();
+        return ws.toTrimmedString();
     }
     
     /**
@@ -106,14 +132,10 @@ public class TextNormalizer {
             return text;
         }
         
+        char[] widthTable = rules.widthTable;
         char[] chars = text.toCharArray();
         for (int i = 0; i < chars.length; i++) {
-            for (int j = 0; j < fullWidthChars.length; j++) {
-                if (chars[i] == fullWidthChars[j]) {
-                    chars[i] = halfWidthChars[j];
-                    break;
-                }
-            }
+            chars[i] = widthTable[chars[i]];
         }
         
         return new String(chars);
@@ -143,13 +165,13 @@ public class TextNormalizer {
             return text;
         }
         
-        String result = text;
-        for (String modifier : modifiers) {
-            // 中文文本没有单词边界，直接替换
-            result = result.replace(modifier, "");
-        }
-        
-        return removeExtraSpaces(result);
+        CompiledRules current = rules;
+        Workspace ws = WORKSPACE.get();
+        ws.load(text);
+        // 中文文本没有单词边界，直接替换
+        ws.replaceSequentially(current.modifierAutomaton, current.modifierReplacements);
+        ws.collapseSpaces();
+        return ws.toString();
     }
     
     /**
@@ -163,12 +185,13 @@ public class TextNormalizer {
             return text;
         }
         
-        String result = text;
-        for (Map.Entry<String, String> conversion : numberConversions.entrySet()) {
-            result = result.replace(conversion.getKey(), conversion.getValue());
+        CompiledRules current = rules;
+        Workspace ws = WORKSPACE.get();
+        ws.load(text);
+        if (!ws.replaceSequentially(current.numberAutomaton, current.numberReplacements)) {
+            return text;
         }
-        
-        return result;
+        return ws.toString();
     }
     
     /**
@@ -276,6 +299,7 @@ public class TextNormalizer {
     public void addModifier(String modifier) {
         if (modifier != null && !modifier.trim().isEmpty()) {
             modifiers.add(modifier.trim());
+            compileRules();
         }
     }
     
@@ -285,8 +309,8 @@ public class TextNormalizer {
      * @param modifier 修饰词
      */
     public void removeModifier(String modifier) {
-        if (modifier != null) {
-            modifiers.remove(modifier);
+        if (modifier != null && modifiers.remove(modifier)) {
+            compileRules();
         }
     }
     
@@ -310,4 +334,225 @@ public class TextNormalizer {
         snapshot.put("halfWidthChars", String.valueOf(halfWidthChars));
         return snapshot;
     }
+    
+    /**
+     * 编译后的标准化规则（不可变）
+     */
+    private static final class CompiledRules {
+        
+        /** 全角→半角字符转换表，下标为原字符 */
+        private final char[] widthTable = new char[Character.MAX_VALUE + 1];
+        private final AhoCorasickAutomaton modifierAutomaton;
+        private final char[][] modifierReplacements;
+        private final AhoCorasickAutomaton numberAutomaton;
+        private final char[][] numberReplacements;
+        
+        private CompiledRules(char[] fullWidthChars, char[] halfWidthChars,
+                              List<String> orderedModifiers, List<Map.Entry<String, String>> orderedConversions) {
+            for (int c = 0; c < widthTable.length; c++) {
+                widthTable[c] = (char) c;
+            }
+            // 同一全角字符出现多次时以首次出现的映射为准
+            int pairs = Math.min(fullWidthChars.length, halfWidthChars.length);
+            for (int j = pairs - 1; j >= 0; j--) {
+                widthTable[fullWidthChars[j]] = halfWidthChars[j];
+            }
+            
+            this.modifierAutomaton = AhoCorasickAutomaton.build(orderedModifiers);
+            this.modifierReplacements = new char[orderedModifiers.size()][0];
+            
+            List<String> keys = new ArrayList<>(orderedConversions.size());
+            this.numberReplacements = new char[orderedConversions.size()][];
+            for (int i = 0; i < orderedConversions.size(); i++) {
+                keys.add(orderedConversions.get(i).getKey());
+                numberReplacements[i] = orderedConversions.get(i).getValue().toCharArray();
+            }
+            this.numberAutomaton = AhoCorasickAutomaton.build(keys);
+        }
+    }
+    
+    /**
+     * 线程私有的标准化缓冲区
+     * 
+     * 各处理步骤直接在字符数组上完成，语义分别与String.trim、
+     * "\\s+"正则替换、String.replace和"\\[.*?\\]"正则替换保持一致。
+     */
+    private static final class Workspace {
+        
+        private char[] text = new char[64];
+        private char[] spare = new char[64];
+        private int length;
+        
+        void load(String source) {
+            length = source.length();
+            text = ensureCapacity(text, length);
+            source.getChars(0, length, text, 0);
+        }
+        
+        void translate(char[] table) {
+            for (int i = 0; i < length; i++) {
+                text[i] = table[text[i]];
+            }
+        }
+        
+        /**
+         * 去除首尾空白并将连续空白压缩为单个空格（等价于removeExtraSpaces）
+         */
+        void collapseSpaces() {
+            int start = 0;
+            int end = length;
+            while (start < end && text[start] <= ' ') {
+                start++;
+            }
+            while (end > start && text[end - 1] <= ' ') {
+                end--;
+            }
+            int out = 0;
+            int i = start;
+            while (i < end) {
+                char c = text[i];
+                if (isRegexSpace(c)) {
+                    while (i < end && isRegexSpace(text[i])) {
+                        i++;
+                    }
+                    text[out++] = ' ';
+                } else {
+                    text[out++] = c;
+                    i++;
+                }
+            }
+            length = out;
+        }
+        
+        /**
+         * 按模式编号顺序逐个执行全量替换
+         * 
+         * 先由自动机一次扫描找出当前文本中实际出现的最小编号模式，跳过未出现的模式；
+         * 替换后文本发生变化，才需要为后续编号的模式重新扫描。
+         * 
+         * @return 是否发生过替换
+         */
+        boolean replaceSequentially(AhoCorasickAutomaton automaton, char[][] replacements) {
+            boolean replaced = false;
+            int next = 0;
+            while (next < automaton.patternCount()) {
+                int index = automaton.firstPatternFrom(text, length, next);
+                if (index < 0) {
+                    break;
+                }
+                replaceAll(automaton.pattern(index), replacements[index]);
+                replaced = true;
+                next = index + 1;
+            }
+            return replaced;
+        }
+        
+        /**
+         * 与String.replace(target, replacement)语义一致的全量替换
+         */
+        private void replaceAll(String target, char[] replacement) {
+            int targetLength = target.length();
+            int out = 0;
+            if (targetLength == 0) {
+                spare = ensureCapacity(spare, length + (length + 1) * replacement.length);
+                for (int i = 0; i <= length; i++) {
+                    System.arraycopy(replacement, 0, spare, out, replacement.length);
+                    out += replacement.length;
+                    if (i < length) {
+                        spare[out++] = text[i];
+                    }
+                }
+            } else {
+                int maxOccurrences = length / targetLength;
+                spare = ensureCapacity(spare, length + maxOccurrences * Math.max(0, replacement.length - targetLength));
+                char first = target.charAt(0);
+                int i = 0;
+                while (i < length) {
+                    if (text[i] == first && i + targetLength <= length && regionMatches(i, target)) {
+                        System.arraycopy(replacement, 0, spare, out, replacement.length);
+                        out += replacement.length;
+                        i += targetLength;
+                    } else {
+                        spare[out++] = text[i++];
+                    }
+                }
+            }
+            char[] tmp = text;
+            text = spare;
+            spare = tmp;
+            length = out;
+        }
+        
+        private boolean regionMatches(int offset, String target) {
+            for (int k = 1; k < target.length(); k++) {
+                if (text[offset + k] != target.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * 去除方括号内容并去除首尾空白（等价于removeBracketContent）
+         * 与正则"\\[.*?\\]"一致，方括号内容不能跨越行终止符
+         */
+        void removeBracketContent() {
+            int out = 0;
+            int i = 0;
+            while (i < length) {
+                char c = text[i];
+                if (c == '[') {
+                    int close = i + 1;
+                    while (close < length && text[close] != ']' && !isLineTerminator(text[close])) {
+                        close++;
+                    }
+                    if (close < length && text[close] == ']') {
+                        i = close + 1;
+                        continue;
+                    }
+                }
+                text[out++] = c;
+                i++;
+            }
+            length = out;
+        }
+        
+        String toTrimmedString() {
+            int start = 0;
+            int end = length;
+            while (start < end && text[start] <= ' ') {
+                start++;
+            }
+            while (end > start && text[end - 1] <= ' ') {
+                end--;
+            }
+            return new String(text, start, end - start);
+        }
+        
+        @Override
+        public String toString() {
+            return new String(text, 0, length);
+        }
+        
+        private static char[] ensureCapacity(char[] buffer, int capacity) {
+            if (buffer.length >= capacity) {
+                return buffer;
+            }
+            return new char[Math.max(capacity, buffer.length * 2)];
+        }
+        
+        /**
+         * 正则表达式"\\s"匹配的字符：空格、\t、\n、\x0B、\f、\r
+         */
+        private static boolean isRegexSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+        
+        /**
+         * 正则表达式"."不匹配的行终止符
+         */
+        private static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+    }
 }
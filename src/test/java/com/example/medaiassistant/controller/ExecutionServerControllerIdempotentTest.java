@@ -6,6 +6,7 @@ import com.example.medaiassistant.repository.executionserver.ExecutionServerEncr
 import com.example.medaiassistant.service.EncryptedDataTempService;
 import com.example.medaiassistant.service.ServerConfigService;
 import com.example.medaiassistant.service.AsyncCallbackService;
+import com.example.medaiassistant.service.CryptoKeyRing;
 import com.example.medaiassistant.config.AIModelConfig;
 
 import org.junit.jupiter.api.Test;
@@ -43,6 +44,9 @@ class ExecutionServerControllerIdempotentTest {
     @Mock
     private AIModelConfig aiModelConfig;
 
+    @Mock
+    private CryptoKeyRing cryptoKeyRing;
+
     private ExecutionServerController controller;
     
     private static final String TEST_ID = "24791";
@@ -55,7 +59,8 @@ class ExecutionServerControllerIdempotentTest {
             encryptedDataTempRepository,
             encryptedDataTempService,
             asyncCallbackService,
-            aiModelConfig
+            aiModelConfig,
+            cryptoKeyRing
         );
     }
 
@@ -3,7 +3,13 @@ package com.example.medaiassistant.drg.catalog;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -314,4 +320,78 @@ class ClobParserTest {
         // 检查别名
         assertThat(result.get(3).getAliases()).containsExactly("房颤");
     }
+
+    @Test
+    void shouldParseSameEntriesFromReaderAcrossBufferBoundaries() {
+        // 给定一个超过读取缓冲区大小、使用\r\n换行的CLOB
+        StringBuilder clob = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            clob.append("I48.").append(String.format("%03d", i)).append(" 阵发性心房颤动").append(i)
+                .append("[房颤").append(i).append(", AF]\r\n");
+        }
+
+        // 当分别从字符串和Reader解析时
+        List<DiagnosisEntry> fromString = clobParser.parseDiagnoses(clob.toString());
+        List<DiagnosisEntry> fromReader = clobParser.parseDiagnosesFrom(new StringReader(clob.toString()));
+
+        // 那么结果应该一致
+        assertThat(fromString).hasSize(500);
+        assertThat(fromReader).isEqualTo(fromString);
+        assertThat(fromString.get(499).getDiagnosisName()).isEqualTo("阵发性心房颤动499");
+        assertThat(fromString.get(499).getAliases()).containsExactly("房颤499", "AF");
+    }
+
+    @Test
+    void shouldMatchRegexParserOnRandomLines() {
+        // 给定由编码字符、中文、空白、方括号、逗号和控制字符随机组成的CLOB
+        String[] alphabet = {"I", "4", "8", ".", "0", "x", "阵", "发", "性", " ", " ", "\t", "[", "]", ",",
+            "(", ")", "\r", "\n", "\u0001", "\u0085", "\f", "\u000B", "　"};
+        Random random = new Random(20251109L);
+
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder clob = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                clob.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String text = clob.toString();
+
+            // 那么手写解析器与原正则实现的结果应该一致
+            List<DiagnosisEntry> expected = parseWithRegex(text);
+            assertThat(clobParser.parseDiagnoses(text)).as("CLOB: %s", text).isEqualTo(expected);
+            assertThat(clobParser.parseDiagnosesFrom(new StringReader(text))).as("CLOB: %s", text).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * 原正则实现（按"\r?\n"拆分，每行匹配ENTRY_PATTERN），作为对照
+     */
+    private static List<DiagnosisEntry> parseWithRegex(String clob) {
+        Pattern entryPattern = Pattern.compile("^(\\S+)\\s+([^\\[]+?)(?:\\[(.+)\\])?$|^(\\S+)\\s+(.+)$");
+        Pattern aliasDelimiter = Pattern.compile("\\s*,\\s*");
+        List<DiagnosisEntry> entries = new ArrayList<>();
+        if (clob == null || clob.trim().isEmpty()) {
+            return entries;
+        }
+        for (String line : clob.split("\\r?\\n")) {
+            String trimmedLine = line.trim();
+            Matcher matcher = entryPattern.matcher(trimmedLine);
+            if (trimmedLine.isEmpty() || !matcher.matches()) {
+                continue;
+            }
+            boolean aliasForm = matcher.group(1) != null;
+            DiagnosisEntry entry = new DiagnosisEntry(matcher.group(aliasForm ? 1 : 4).trim(),
+                matcher.group(aliasForm ? 2 : 5).trim());
+            String aliasPart = aliasForm ? matcher.group(3) : null;
+            if (aliasPart != null && !aliasPart.trim().isEmpty()) {
+                for (String alias : aliasDelimiter.split(aliasPart.trim())) {
+                    if (!alias.trim().isEmpty()) {
+                        entry.addAlias(alias.trim());
+                    }
+                }
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
 }
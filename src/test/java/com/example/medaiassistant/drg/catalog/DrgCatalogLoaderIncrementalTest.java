@@ -0,0 +1,166 @@
+package com.example.medaiassistant.drg.catalog;
+
+import com.example.medaiassistant.model.Drg;
+import com.example.medaiassistant.repository.DrgRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * DrgCatalogLoader增量刷新测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DRG目录增量刷新测试")
+class DrgCatalogLoaderIncrementalTest {
+
+    private static final int ROWS = 2000;
+
+    @Mock
+    private DrgRepository drgRepository;
+
+    /** 模拟DRGS表：主键 -> 行 */
+    private final Map<Long, Drg> table = new LinkedHashMap<>();
+    /** 模拟ORA_ROWSCN：主键 -> 行变更版本 */
+    private final Map<Long, Long> rowVersions = new LinkedHashMap<>();
+    private long scn = 1000;
+
+    private DrgCatalogLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= ROWS; id++) {
+            put(drg(id, "I48.%03d 阵发性心房颤动%d[房颤%d]".formatted(id % 1000, id, id)));
+        }
+        lenient().when(drgRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(table.values()));
+        lenient().when(drgRepository.findRowChangeVersions()).thenAnswer(invocation -> versionRows());
+        lenient().when(drgRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Drg> rows = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                if (table.containsKey((Long) id)) {
+                    rows.add(table.get((Long) id));
+                }
+            }
+            return rows;
+        });
+
+        loader = new DrgCatalogLoader(new ClobParser(), drgRepository);
+        assertThat(loader.getCurrentCatalog().getRecordCount()).isEqualTo(ROWS);
+        assertThat(loader.getLastReparsedRows()).isEqualTo(ROWS);
+    }
+
+    @Test
+    @DisplayName("单行修改只取回并重新解析该行，其余记录复用")
+    void shouldReparseOnlyChangedRow() {
+        DrgCatalog before = loader.getCurrentCatalog();
+        put(drg(7L, "I21.000 急性前壁心肌梗死[前壁心梗]"));
+
+        long start = System.nanoTime();
+        DrgCatalog after = loader.reload();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("增量刷新 " + ROWS + " 行目录中的1行耗时: " + elapsedMs + "ms");
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(loader.getLastReparsedRows()).isEqualTo(1);
+        assertThat(loader.getIncrementalRefreshCount()).isEqualTo(1);
+        verify(drgRepository, times(1)).findAll();
+        verify(drgRepository).findAllById(List.of(7L));
+
+        assertThat(after.getDrgRecords().get(6).getDiagnoses().get(0).getDiagnosisName()).isEqualTo("急性前壁心肌梗死");
+        assertThat(after.getMatchingCatalog().getDrgRecords().get(6).getDiagnoses().get(0).getAliases())
+            .containsExactly("前壁心梗");
+        assertThat(after.getDrgRecords().get(5)).isSameAs(before.getDrgRecords().get(5));
+        assertThat(after.getDrgRecords().get(7)).isSameAs(before.getDrgRecords().get(7));
+        assertThat(loader.getPreviousVersion()).isEqualTo(before.getVersion());
+    }
+
+    @Test
+    @DisplayName("新增和删除的行反映到新版本，新增行追加在末尾")
+    void shouldApplyInsertsAndDeletes() {
+        table.remove(3L);
+        rowVersions.remove(3L);
+        put(drg(5000L, "J18.900 肺炎"));
+
+        DrgCatalog after = loader.reload();
+
+        assertThat(after.getRecordCount()).isEqualTo(ROWS);
+        assertThat(after.getMatchingCatalog().getDrgRecords().get(ROWS - 1).getDrgId()).isEqualTo(5000L);
+        assertThat(after.getMatchingCatalog().getDrgRecords().stream().noneMatch(r -> r.getDrgId() == 3L)).isTrue();
+        assertThat(loader.getLastReparsedRows()).isEqualTo(1);
+        verify(drgRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("没有变更时保留当前目录和版本")
+    void shouldKeepCatalogWhenNothingChanged() {
+        DrgCatalog before = loader.getCurrentCatalog();
+
+        DrgCatalog after = loader.reload();
+
+        assertThat(after).isSameAs(before);
+        assertThat(loader.getRefreshCount()).isEqualTo(1);
+        assertThat(loader.getVersionHistory()).isEmpty();
+        verify(drgRepository, never()).findAllById(anyIterable());
+        verify(drgRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("增量刷新结果与全表加载一致")
+    void shouldMatchFullLoad() {
+        for (long id = 10; id <= ROWS; id += 97) {
+            put(drg(id, "K35.800 急性阑尾炎%d[阑尾炎,急性阑尾炎]\nK35.900 阑尾炎".formatted(id)));
+        }
+        table.remove(20L);
+        rowVersions.remove(20L);
+
+        DrgCatalog incremental = loader.reload();
+        DrgCatalog full = new DrgCatalogLoader(new ClobParser(), drgRepository).getCurrentCatalog();
+
+        assertThat(incremental.getDrgRecords()).isEqualTo(full.getDrgRecords());
+    }
+
+    @Test
+    @DisplayName("行变更版本查询不可用时全表加载")
+    void shouldFallBackToFullLoad() {
+        when(drgRepository.findRowChangeVersions()).thenThrow(new IllegalStateException("ORA_ROWSCN不可用"));
+        put(drg(1L, "I10.x00 原发性高血压"));
+
+        DrgCatalog after = loader.reload();
+
+        assertThat(after.getDrgRecords().get(0).getDiagnoses().get(0).getIcdCode()).isEqualTo("I10.x00");
+        assertThat(loader.getLastReparsedRows()).isEqualTo(ROWS);
+        assertThat(loader.getIncrementalRefreshCount()).isZero();
+        verify(drgRepository, times(2)).findAll();
+    }
+
+    private void put(Drg drg) {
+        table.put(drg.getDrgId(), drg);
+        rowVersions.put(drg.getDrgId(), ++scn);
+    }
+
+    private List<Object[]> versionRows() {
+        List<Object[]> rows = new ArrayList<>();
+        rowVersions.forEach((id, version) -> rows.add(new Object[]{BigDecimal.valueOf(id), BigDecimal.valueOf(version)}));
+        return rows;
+    }
+
+    private static Drg drg(long id, String diagnoses) {
+        return new Drg(id, "DRG" + id, "DRG组" + id, diagnoses, id % 2 == 0 ? "/" : "37.9000x001 经皮左心耳封堵术",
+            BigDecimal.ONE, BigDecimal.valueOf(10000));
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.medaiassistant.drg.catalog;
+
+import com.example.medaiassistant.model.Drg;
+import com.example.medaiassistant.repository.DrgRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * DRG目录本地快照测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DRG目录本地快照测试")
+class DrgCatalogSnapshotStoreTest {
+
+    private static final int ROWS = 2000;
+
+    @Mock
+    private DrgRepository drgRepository;
+
+    @TempDir
+    Path snapshotDir;
+
+    /** 模拟DRGS表：主键 -> 行 */
+    private final Map<Long, Drg> table = new LinkedHashMap<>();
+    /** 模拟ORA_ROWSCN：主键 -> 行变更版本 */
+    private final Map<Long, Long> rowVersions = new LinkedHashMap<>();
+    private long scn = 1000;
+
+    private DrgCatalogSnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= ROWS; id++) {
+            put(drg(id, "I48.%03d 阵发性心房颤动%d[房颤%d, 心房纤颤]\nI10.x00 高血压".formatted(id % 1000, id, id)));
+        }
+        lenient().when(drgRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(table.values()));
+        lenient().when(drgRepository.findRowChangeVersions()).thenAnswer(invocation -> versionRows());
+        lenient().when(drgRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Drg> rows = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                if (table.containsKey((Long) id)) {
+                    rows.add(table.get((Long) id));
+                }
+            }
+            return rows;
+        });
+        store = new DrgCatalogSnapshotStore(true, snapshotDir.resolve("drg-catalog.snapshot").toString());
+    }
+
+    @Test
+    @DisplayName("加载后写入快照，读取结果与数据库加载一致")
+    void shouldRoundTripCatalog() {
+        DrgCatalog loaded = new DrgCatalogLoader(new ClobParser(), drgRepository, store).getCurrentCatalog();
+
+        DrgCatalogSnapshotStore.Snapshot snapshot = store.read();
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.version()).isEqualTo(loaded.getVersion());
+        assertThat(snapshot.fingerprint()).isEqualTo(DrgCatalogSnapshotStore.fingerprint(rowVersions));
+        assertThat(snapshot.rows()).hasSize(ROWS);
+        assertThat(snapshot.rows().stream().map(DrgCatalogLoader.LoadedRow::record).toList())
+            .isEqualTo(loaded.getDrgRecords());
+        com.example.medaiassistant.dto.drg.DrgParsedRecord matching = snapshot.rows().get(0).matchingRecord();
+        assertThat(matching.getDrgId()).isEqualTo(1L);
+        assertThat(matching.getDrgName()).isEqualTo("DRG组1");
+        assertThat(matching.getInsurancePayment()).isEqualByComparingTo("10000");
+        assertThat(matching.getDiagnoses().get(0).getAliases()).containsExactly("房颤1", "心房纤颤");
+    }
+
+    @Test
+    @DisplayName("指纹一致时启动不读取全表，直接使用快照目录")
+    void shouldStartFromSnapshotWithoutFullLoad() {
+        DrgCatalog first = new DrgCatalogLoader(new ClobParser(), drgRepository, store).getCurrentCatalog();
+        clearInvocations(drgRepository);
+
+        long start = System.nanoTime();
+        DrgCatalogLoader restarted = new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("从快照恢复 " + ROWS + " 行目录耗时: " + elapsedMs + "ms");
+
+        assertThat(restarted.getVersion()).isEqualTo(first.getVersion());
+        assertThat(restarted.getCurrentCatalog().getDrgRecords()).isEqualTo(first.getDrgRecords());
+        assertThat(restarted.getLastReparsedRows()).isZero();
+        assertThat(restarted.getCurrentCatalog().getIndex()).isNotNull();
+        verify(drgRepository, never()).findAll();
+        verify(drgRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("指纹不一致时以快照为基础只重新解析变更行")
+    void shouldRefreshChangedRowsOnTopOfSnapshot() {
+        new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+        put(drg(7L, "I21.000 急性前壁心肌梗死[前壁心梗]"));
+        table.remove(9L);
+        rowVersions.remove(9L);
+        clearInvocations(drgRepository);
+
+        DrgCatalogLoader restarted = new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+
+        verify(drgRepository, never()).findAll();
+        verify(drgRepository).findAllById(List.of(7L));
+        assertThat(restarted.getLastReparsedRows()).isEqualTo(1);
+        assertThat(restarted.getCurrentCatalog().getDrgRecords())
+            .isEqualTo(new DrgCatalogLoader(new ClobParser(), drgRepository).getCurrentCatalog().getDrgRecords());
+
+        // 增量刷新后的结果同样写回快照
+        assertThat(store.read().fingerprint()).isEqualTo(DrgCatalogSnapshotStore.fingerprint(rowVersions));
+    }
+
+    @Test
+    @DisplayName("快照损坏时忽略快照，从数据库全表加载")
+    void shouldIgnoreCorruptedSnapshot() throws IOException {
+        new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+        byte[] bytes = Files.readAllBytes(store.getPath());
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(store.getPath(), bytes);
+
+        assertThat(store.read()).isNull();
+
+        clearInvocations(drgRepository);
+        DrgCatalogLoader restarted = new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+        assertThat(restarted.getCurrentCatalog().getRecordCount()).isEqualTo(ROWS);
+        verify(drgRepository, times(1)).findAll();
+        assertThat(store.read()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("行变更版本查询不可用时不写快照，也不使用快照")
+    void shouldNotUseSnapshotWithoutRowVersions() {
+        new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+        when(drgRepository.findRowChangeVersions()).thenThrow(new IllegalStateException("ORA_ROWSCN不可用"));
+        clearInvocations(drgRepository);
+
+        new DrgCatalogLoader(new ClobParser(), drgRepository, store);
+
+        verify(drgRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("指纹与行顺序无关，版本变化、增删行都会改变指纹")
+    void shouldFingerprintRowVersions() {
+        long fingerprint = DrgCatalogSnapshotStore.fingerprint(rowVersions);
+        Map<Long, Long> reversed = new LinkedHashMap<>();
+        new ArrayList<>(rowVersions.keySet()).reversed().forEach(id -> reversed.put(id, rowVersions.get(id)));
+        assertThat(DrgCatalogSnapshotStore.fingerprint(reversed)).isEqualTo(fingerprint);
+
+        Map<Long, Long> changed = new LinkedHashMap<>(rowVersions);
+        changed.put(5L, changed.get(5L) + 1);
+        assertThat(DrgCatalogSnapshotStore.fingerprint(changed)).isNotEqualTo(fingerprint);
+
+        Map<Long, Long> removed = new LinkedHashMap<>(rowVersions);
+        removed.remove(5L);
+        assertThat(DrgCatalogSnapshotStore.fingerprint(removed)).isNotEqualTo(fingerprint);
+    }
+
+    private void put(Drg drg) {
+        table.put(drg.getDrgId(), drg);
+        rowVersions.put(drg.getDrgId(), ++scn);
+    }
+
+    private List<Object[]> versionRows() {
+        List<Object[]> rows = new ArrayList<>();
+        rowVersions.forEach((id, version) -> rows.add(new Object[]{BigDecimal.valueOf(id), BigDecimal.valueOf(version)}));
+        return rows;
+    }
+
+    private static Drg drg(long id, String diagnoses) {
+        return new Drg(id, "DRG" + id, "DRG组" + id, diagnoses, id % 2 == 0 ? "/" : "37.9000x001 经皮左心耳封堵术[左心耳封堵]",
+            BigDecimal.ONE, BigDecimal.valueOf(10000));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.medaiassistant.drg.matching;
+
+import com.example.medaiassistant.dto.drg.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DrgCatalogIndex测试类
+ *
+ * 验证基于倒排索引的候选匹配与逐条比较的匹配结果完全一致
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-10-22
+ */
+@DisplayName("DRG目录倒排索引测试")
+class DrgCatalogIndexTest {
+
+    private static final double THRESHOLD = 0.7;
+    private static final String ALPHABET = "心房颤动高血压糖尿病型慢性急性肾功能不全冠状动脉粥样硬化肺炎";
+
+    private final PrimaryDiagnosisProcedureMatcher matcher = new PrimaryDiagnosisProcedureMatcher();
+
+    @Test
+    @DisplayName("ICD编码应通过哈希索引精确命中")
+    void shouldFindRecordsByExactIcdCode() {
+        // Given
+        DrgCatalog catalog = new DrgCatalog(Arrays.asList(
+            record(1L, List.of(new DiagnosisEntry("I48.000", "心房颤动", List.of())), List.of()),
+            record(2L, List.of(new DiagnosisEntry("I10", "原发性高血压", List.of())), List.of()),
+            record(3L, List.of(new DiagnosisEntry("I48.000", "阵发性心房颤动", List.of())), List.of())
+        ));
+
+        // When
+        DrgCatalogIndex index = DrgCatalogIndex.of(catalog);
+
+        // Then
+        assertThat(index.diagnoses().recordsWithCode("I48.000")).containsExactly(0, 2);
+        assertThat(index.diagnoses().recordsWithCode("i48.000")).isEmpty();
+        assertThat(index.diagnoses().recordsWithCode(null)).isEmpty();
+        assertThat(index.diagnoses().recordsWithCode("")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("同一目录实例应复用已构建的索引")
+    void shouldReuseIndexForSameCatalogInstance() {
+        DrgCatalog catalog = new DrgCatalog(List.of(
+            record(1L, List.of(new DiagnosisEntry("I10", "高血压", List.of())), List.of())
+        ));
+
+        assertThat(DrgCatalogIndex.of(catalog)).isSameAs(DrgCatalogIndex.of(catalog));
+    }
+
+    @Test
+    @DisplayName("单字符名称应能通过包含关系命中")
+    void shouldMatchSingleCharacterNamesByContainment() {
+        // Given
+        DrgCatalog catalog = new DrgCatalog(List.of(
+            record(1L, List.of(new DiagnosisEntry("X00", "瘤", List.of())), List.of()),
+            record(2L, List.of(new DiagnosisEntry("X01", "肺炎", List.of("炎"))), List.of())
+        ));
+        PatientData patientData = new PatientData(
+            List.of(new PatientDiagnosis(null, "恶性肿瘤")), List.of());
+
+        // When
+        MatchingResult result = matcher.match(patientData, catalog);
+
+        // Then
+        assertThat(result.getPrimaryDiagnoses()).containsExactly("瘤");
+        assertThat(result).usingRecursiveComparison().isEqualTo(bruteForceMatch(patientData, catalog));
+    }
+
+    @Test
+    @DisplayName("索引匹配结果应与逐条比较完全一致")
+    void shouldReturnSameResultsAsBruteForceMatching() {
+        Random random = new Random(20251022L);
+        DrgCatalog catalog = randomCatalog(random, 300);
+
+        for (int i = 0; i < 500; i++) {
+            PatientData patientData = randomPatient(random);
+
+            MatchingResult expected = bruteForceMatch(patientData, catalog);
+            MatchingResult actual = matcher.match(patientData, catalog);
+
+            assertThat(actual.getPrimaryDiagnoses())
+                .as("诊断结果 %s", patientData)
+                .containsExactlyElementsOf(expected.getPrimaryDiagnoses());
+            assertThat(actual.getPrimaryProcedures())
+                .as("手术结果 %s", patientData)
+                .containsExactlyElementsOf(expected.getPrimaryProcedures());
+        }
+    }
+
+    /**
+     * 逐条比较的参考实现（索引引入前的匹配逻辑）
+     */
+    private MatchingResult bruteForceMatch(PatientData patientData, DrgCatalog catalog) {
+        List<DrgParsedRecord> filteredDrgs = DrgFilter.filterByProcedurePresence(patientData, catalog.getDrgRecords());
+        NameCollector nameCollector = new NameCollector();
+        for (DrgParsedRecord drg : filteredDrgs) {
+            boolean diagnosisMatched = false;
+            for (PatientDiagnosis diagnosis : patientData.getDiagnoses()) {
+                for (DiagnosisEntry entry : drg.getDiagnoses()) {
+                    if (IcdMatcher.exactMatch(diagnosis.getIcdCode(), entry.getIcdCode())
+                            || NameMatcher.similarityMatch(diagnosis.getDiagnosisName(), entry.getDiagnosisName(), THRESHOLD)
+                            || entry.getAliases().stream().anyMatch(alias ->
+                                NameMatcher.similarityMatch(diagnosis.getDiagnosisName(), alias, THRESHOLD))) {
+                        diagnosisMatched = true;
+                    }
+                }
+            }
+            boolean procedureMatched = false;
+            for (PatientProcedure procedure : patientData.getProcedures()) {
+                for (ProcedureEntry entry : drg.getProcedures()) {
+                    if (IcdMatcher.exactMatch(procedure.getProcedureCode(), entry.getProcedureCode())
+                            || NameMatcher.similarityMatch(procedure.getProcedureName(), entry.getProcedureName(), THRESHOLD)) {
+                        procedureMatched = true;
+                    }
+                }
+            }
+            if (diagnosisMatched || procedureMatched) {
+                nameCollector.collectDrgNames(drg, diagnosisMatched, procedureMatched);
+            }
+        }
+        return new MatchingResult(
+            new ArrayList<>(nameCollector.getPrimaryDiagnoses()),
+            new ArrayList<>(nameCollector.getPrimaryProcedures()));
+    }
+
+    private DrgCatalog randomCatalog(Random random, int size) {
+        List<DrgParsedRecord> records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            List<DiagnosisEntry> diagnoses = new ArrayList<>();
+            int diagnosisCount = 1 + random.nextInt(3);
+            for (int d = 0; d < diagnosisCount; d++) {
+                List<String> aliases = new ArrayList<>();
+                int aliasCount = random.nextInt(3);
+                for (int a = 0; a < aliasCount; a++) {
+                    aliases.add(randomName(random));
+                }
+                diagnoses.add(new DiagnosisEntry(randomCode(random), randomName(random), aliases));
+            }
+            List<ProcedureEntry> procedures = new ArrayList<>();
+            if (random.nextBoolean()) {
+                int procedureCount = 1 + random.nextInt(2);
+                for (int p = 0; p < procedureCount; p++) {
+                    procedures.add(new ProcedureEntry(randomCode(random), randomName(random)));
+                }
+            }
+            records.add(record((long) i, diagnoses, procedures));
+        }
+        return new DrgCatalog(records);
+    }
+
+    private PatientData randomPatient(Random random) {
+        List<PatientDiagnosis> diagnoses = new ArrayList<>();
+        int diagnosisCount = random.nextInt(4);
+        for (int i = 0; i < diagnosisCount; i++) {
+            diagnoses.add(new PatientDiagnosis(random.nextInt(4) == 0 ? null : randomCode(random), randomName(random)));
+        }
+        List<PatientProcedure> procedures = new ArrayList<>();
+        int procedureCount = random.nextInt(3);
+        for (int i = 0; i < procedureCount; i++) {
+            procedures.add(new PatientProcedure(randomCode(random), randomName(random)));
+        }
+        return new PatientData(diagnoses, procedures);
+    }
+
+    private String randomName(Random random) {
+        int length = 1 + random.nextInt(12);
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // 偏向字母表前部，提高相似名称出现的概率
+            int bound = random.nextInt(4) == 0 ? ALPHABET.length() : 8;
+            name.append(ALPHABET.charAt(random.nextInt(bound)));
+        }
+        return name.toString();
+    }
+
+    private String randomCode(Random random) {
+        return "I" + random.nextInt(60);
+    }
+
+    private DrgParsedRecord record(Long id, List<DiagnosisEntry> diagnoses, List<ProcedureEntry> procedures) {
+        return new DrgParsedRecord(id, "DRG" + id, "DRG名称" + id, BigDecimal.valueOf(1000),
+            diagnoses, procedures);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.medaiassistant.hospital.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BulkUpsertWriter测试（H2内存数据库，使用各同步服务的目标表定义）
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("主服务器批量写入测试")
+class BulkUpsertWriterTest {
+
+    private static final String PATIENT_ID = "990500000178405-1";
+    private static final Timestamp REPORT_TIME = Timestamp.valueOf("2025-11-01 08:30:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private BulkUpsertWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bulk_upsert_writer;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE ExaminationResults (ExaminationID VARCHAR(50) PRIMARY KEY, "
+                + "PatientID VARCHAR(50), CheckName VARCHAR(200), CheckType VARCHAR(50), CheckDescription CLOB, "
+                + "CheckConclusion CLOB, CheckIssueTime TIMESTAMP, CheckExecuteTime TIMESTAMP, "
+                + "CheckReportTime TIMESTAMP, UpdateDt TIMESTAMP, IsAnalyzed INT)");
+        jdbcTemplate.execute("CREATE TABLE labresults (ID BIGINT AUTO_INCREMENT PRIMARY KEY, PatientID VARCHAR(50), "
+                + "LabName VARCHAR(200), LabType VARCHAR(200), LabResult VARCHAR(255), ReferenceRange VARCHAR(100), "
+                + "Unit VARCHAR(50), ABNORMAL_INDICATOR VARCHAR(10), LabIssueTime TIMESTAMP, "
+                + "LabReportTime TIMESTAMP, IsAnalyzed INT)");
+        jdbcTemplate.execute("CREATE TABLE longtermorders (OrderID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "PatientID VARCHAR(50), REPEAT_INDICATOR INT, Physician VARCHAR(50), OrderName VARCHAR(200), "
+                + "Dosage VARCHAR(50), Unit VARCHAR(50), Frequency VARCHAR(50), Route VARCHAR(50), "
+                + "OrderDate TIMESTAMP, stoptime TIMESTAMP, IsAnalyzed INT, VISIT_ID BIGINT, IsTriggered INT)");
+        jdbcTemplate.execute("CREATE TABLE EMR_CONTENT (ID BIGINT AUTO_INCREMENT PRIMARY KEY, PATIENT_ID VARCHAR(50), "
+                + "PATI_ID VARCHAR(50), VISIT_ID INT, PATI_NAME VARCHAR(200), DEPT_CODE VARCHAR(50), "
+                + "DEPT_NAME VARCHAR(50), DOC_TYPE_NAME VARCHAR(100), RECORD_DATE TIMESTAMP, CONTENT CLOB, "
+                + "CREATEUSERID VARCHAR(20), CREATEBY VARCHAR(20), DOC_TITLE_TIME TIMESTAMP, MODIFIEDON TIMESTAMP, "
+                + "DELETEMARK INT, SOURCE_TABLE VARCHAR(100), SOURCE_ID VARCHAR(50))");
+        writer = new BulkUpsertWriter(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE ExaminationResults");
+        jdbcTemplate.execute("DROP TABLE labresults");
+        jdbcTemplate.execute("DROP TABLE longtermorders");
+        jdbcTemplate.execute("DROP TABLE EMR_CONTENT");
+    }
+
+    @Test
+    @DisplayName("已有记录按一次预取比对：新增、内容变化的更新、未变化的不写入，更新保留分析标记")
+    void testUpsertClassifiesInsertUpdateUnchanged() {
+        BulkUpsertWriter.UpsertResult first = writer.upsert(ExaminationSyncService.EXAMINATION_RESULTS_TABLE,
+                PATIENT_ID, List.of(exam("EXAM_001", "结论1"), exam("EXAM_002", "结论2"), exam("EXAM_003", "结论3")));
+        assertEquals(3, first.getInserted());
+        assertEquals(BulkUpsertWriter.Dialect.STANDARD, writer.resolveDialect());
+
+        jdbcTemplate.update("UPDATE ExaminationResults SET IsAnalyzed = 1");
+        BulkUpsertWriter.UpsertResult second = writer.upsert(ExaminationSyncService.EXAMINATION_RESULTS_TABLE,
+                PATIENT_ID, List.of(exam("EXAM_001", "结论1"), exam("EXAM_002", "新结论"), exam("EXAM_004", "结论4")));
+
+        assertEquals(1, second.getInserted());
+        assertEquals(1, second.getUpdated());
+        assertEquals(1, second.getUnchanged());
+        assertEquals(3, second.getProcessed());
+        assertEquals("新结论", jdbcTemplate.queryForObject(
+                "SELECT CheckConclusion FROM ExaminationResults WHERE ExaminationID = 'EXAM_002'", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT IsAnalyzed FROM ExaminationResults WHERE ExaminationID = 'EXAM_002'", Integer.class));
+        assertEquals(4, count("ExaminationResults"));
+    }
+
+    @Test
+    @DisplayName("仅新增的表跳过已存在和批次内重复的记录，业务键含NULL的记录始终新增")
+    void testInsertOnlyTableSkipsDuplicates() {
+        writer.upsert(LabSyncService.LAB_RESULTS_TABLE, PATIENT_ID, List.of(lab("血常规", "6.5", REPORT_TIME)));
+
+        BulkUpsertWriter.UpsertResult result = writer.upsert(LabSyncService.LAB_RESULTS_TABLE, PATIENT_ID, List.of(
+                lab("血常规", "6.5", REPORT_TIME),
+                lab("血常规", "7.1", REPORT_TIME),
+                lab("血常规", "7.1", REPORT_TIME),
+                lab("肝功能", "35", null),
+                lab("肝功能", "35", null)));
+
+        assertEquals(3, result.getInserted());
+        assertEquals(0, result.getUpdated());
+        assertEquals(2, result.getUnchanged());
+        assertEquals(4, count("labresults"));
+    }
+
+    @Test
+    @DisplayName("医嘱只与未停止的医嘱判重，已停止的医嘱不视为重复")
+    void testMatchConditionExcludesStoppedOrders() {
+        Timestamp orderDate = Timestamp.valueOf("2025-11-02 09:00:00");
+        writer.upsert(OrderSyncService.LONG_TERM_ORDERS_TABLE, PATIENT_ID, List.of(
+                order("阿司匹林", orderDate, Timestamp.valueOf("2025-11-03 09:00:00")),
+                order("氯吡格雷", orderDate, null)));
+
+        BulkUpsertWriter.UpsertResult result = writer.upsert(OrderSyncService.LONG_TERM_ORDERS_TABLE, PATIENT_ID,
+                List.of(
+                        order("氯吡格雷", orderDate, null),
+                        order("阿司匹林", orderDate, Timestamp.valueOf("2025-11-04 09:00:00")),
+                        order("阿司匹林", orderDate, null),
+                        order("阿司匹林", orderDate, null)));
+
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getUnchanged());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM longtermorders WHERE OrderName = '阿司匹林' AND stoptime IS NOT NULL", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM longtermorders WHERE OrderName = '阿司匹林' AND stoptime IS NULL", Integer.class));
+    }
+
+    @Test
+    @DisplayName("多个范围值一次预取，CLOB内容变化时更新，批次内重复以最后一条为准")
+    void testMultipleScopesAndLobContent() {
+        String otherPatient = "990500000178406-1";
+        String longContent = "病程记录".repeat(3000);
+        writer.upsert(EmrSyncService.EMR_CONTENT_TABLE, List.of(PATIENT_ID, otherPatient), List.of(
+                emr("S1", PATIENT_ID, "入院记录"), emr("S2", otherPatient, "入院记录")));
+
+        BulkUpsertWriter.UpsertResult result = writer.upsert(EmrSyncService.EMR_CONTENT_TABLE,
+                List.of(PATIENT_ID, otherPatient), List.of(
+                        emr("S1", PATIENT_ID, "入院记录"),
+                        emr("S2", otherPatient, "旧版本"),
+                        emr("S2", otherPatient, longContent),
+                        emr("S3", otherPatient, "首次病程")));
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getUnchanged());
+        assertEquals(longContent, jdbcTemplate.queryForObject(
+                "SELECT CONTENT FROM EMR_CONTENT WHERE SOURCE_ID = 'S2'", String.class));
+        assertEquals(3, count("EMR_CONTENT"));
+    }
+
+    @Test
+    @DisplayName("Oracle方言生成带绑定变量的MERGE语句，仅新增的表不含WHEN MATCHED")
+    void testOracleMergeSql() {
+        String orderSql = BulkUpsertWriter.buildOracleMergeSql(OrderSyncService.LONG_TERM_ORDERS_TABLE);
+        assertTrue(orderSql.startsWith("MERGE INTO longtermorders t USING (SELECT ? AS PatientID, ? AS REPEAT_INDICATOR"));
+        assertTrue(orderSql.contains("ON (t.PatientID = s.PatientID AND t.OrderName = s.OrderName AND "
+                + "t.OrderDate = s.OrderDate AND t.REPEAT_INDICATOR = s.REPEAT_INDICATOR AND t.stoptime IS NULL)"));
+        assertFalse(orderSql.contains("WHEN MATCHED"));
+
+        String emrSql = BulkUpsertWriter.buildOracleMergeSql(EmrSyncService.EMR_CONTENT_TABLE);
+        assertTrue(emrSql.contains("WHEN MATCHED THEN UPDATE SET t.PATIENT_ID = s.PATIENT_ID"));
+        assertFalse(emrSql.contains("t.SOURCE_ID = s.SOURCE_ID,"), "业务键列不能出现在UPDATE SET中");
+        assertTrue(emrSql.endsWith("WHEN NOT MATCHED THEN INSERT (" + String.join(", ",
+                EmrSyncService.EMR_CONTENT_TABLE.getColumns()) + ") VALUES (s.SOURCE_TABLE, s.SOURCE_ID, "
+                + "s.PATIENT_ID, s.PATI_ID, s.VISIT_ID, s.PATI_NAME, s.DEPT_CODE, s.DEPT_NAME, s.DOC_TYPE_NAME, "
+                + "s.CONTENT, s.CREATEUSERID, s.CREATEBY, s.RECORD_DATE, s.DOC_TITLE_TIME, s.MODIFIEDON, s.DELETEMARK)"));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static Map<String, Object> exam(String examinationId, String conclusion) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("ExaminationID", examinationId);
+        row.put("PatientID", PATIENT_ID);
+        row.put("CheckName", "胸部CT");
+        row.put("CheckType", "CT");
+        row.put("CheckDescription", "检查所见");
+        row.put("CheckConclusion", conclusion);
+        row.put("CheckIssueTime", REPORT_TIME);
+        row.put("CheckExecuteTime", REPORT_TIME);
+        row.put("CheckReportTime", REPORT_TIME);
+        row.put("UpdateDt", REPORT_TIME);
+        row.put("IsAnalyzed", 0);
+        return row;
+    }
+
+    private static Map<String, Object> lab(String labName, String labResult, Timestamp reportTime) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("PatientID", PATIENT_ID);
+        row.put("LabName", labName);
+        row.put("LabType", labName);
+        row.put("LabResult", labResult);
+        row.put("ReferenceRange", "");
+        row.put("Unit", "");
+        row.put("ABNORMAL_INDICATOR", "");
+        row.put("LabIssueTime", reportTime);
+        row.put("LabReportTime", reportTime);
+        row.put("IsAnalyzed", 0);
+        return row;
+    }
+
+    private static Map<String, Object> order(String orderName, Timestamp orderDate, Timestamp stopTime) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("PatientID", PATIENT_ID);
+        row.put("REPEAT_INDICATOR", 1);
+        row.put("Physician", "张医生");
+        row.put("OrderName", orderName);
+        row.put("Dosage", "100");
+        row.put("Unit", "mg");
+        row.put("Frequency", "qd");
+        row.put("Route", "口服");
+        row.put("OrderDate", orderDate);
+        row.put("stoptime", stopTime);
+        row.put("IsAnalyzed", 0);
+        row.put("VISIT_ID", 1L);
+        row.put("IsTriggered", 0);
+        return row;
+    }
+
+    private static Map<String, Object> emr(String sourceId, String patientId, String content) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("SOURCE_TABLE", "emr.emr_content");
+        row.put("SOURCE_ID", sourceId);
+        row.put("PATIENT_ID", patientId);
+        row.put("PATI_ID", patientId.substring(0, patientId.indexOf('-')));
+        row.put("VISIT_ID", 1);
+        row.put("PATI_NAME", "测试患者");
+        row.put("DEPT_CODE", "D001");
+        row.put("DEPT_NAME", "心内科");
+        row.put("DOC_TYPE_NAME", "病程记录");
+        row.put("CONTENT", content);
+        row.put("CREATEUSERID", "u001");
+        row.put("CREATEBY", "张医生");
+        row.put("RECORD_DATE", REPORT_TIME);
+        row.put("DOC_TITLE_TIME", REPORT_TIME);
+        row.put("MODIFIEDON", REPORT_TIME);
+        row.put("DELETEMARK", 0);
+        return row;
+    }
+}
@@ -1,159 +1,316 @@
 package com.example.medaiassistant.hospital.service;
 
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.model.SyncCheckpoint;
 import com.example.medaiassistant.hospital.model.SyncResult;
+import com.example.medaiassistant.hospital.repository.SyncCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 /**
- * 数据同步执行器TDD测试
- * 按照TDD红-绿-重构流程实现任务4.2：数据同步执行器
- * 
- * 红阶段：测试失败，因为DataSyncExecutor类不存在
- * 绿阶段：创建DataSyncExecutor类和SyncResult类，测试通过
- * 重构阶段：优化代码结构，添加同步策略模式
- * 
+ * 数据同步执行器测试
+ * 验证基于水位的增量同步：分页、同水位截断、水位推进与全量对账
+ *
  * @author System
- * @version 1.0
+ * @version 2.0
  * @since 2025-12-04
  */
 @ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
 @DisplayName("数据同步执行器TDD测试")
 class DataSyncExecutorTddTest {
-    
-    // 绿阶段：测试已通过，DataSyncExecutor类已实现
-    // 重构阶段：可以优化代码结构，添加同步策略模式
-    
+
+    private static final String HOSPITAL_ID = "hospital-001";
+
+    private static final BulkUpsertWriter.UpsertTable TARGET_TABLE = BulkUpsertWriter.UpsertTable.builder("labresults")
+            .scope("PatientID")
+            .keys("PatientID", "LabName")
+            .columns("PatientID", "LabName", "LabResult")
+            .build();
+
+    @Mock
+    private SqlExecutionService sqlExecutionService;
+
+    @Mock
+    private TemplateHotUpdateService templateHotUpdateService;
+
+    @Mock
+    private BulkUpsertWriter bulkUpsertWriter;
+
+    @Mock
+    private SyncCheckpointRepository checkpointRepository;
+
+    @Mock
+    private HospitalConfigService hospitalConfigService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private IncrementalSyncSource source;
+
+    @TempDir
+    Path tempDir;
+
+    private DataSyncExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new DataSyncExecutor(List.of(source), sqlExecutionService, templateHotUpdateService,
+                bulkUpsertWriter, checkpointRepository, hospitalConfigService, transactionManager);
+        ReflectionTestUtils.setField(executor, "incrementalEnabled", true);
+        ReflectionTestUtils.setField(executor, "overlapSeconds", 300L);
+        ReflectionTestUtils.setField(executor, "queryTimeoutSeconds", 120);
+
+        when(source.getSourceName()).thenReturn("LAB_RESULTS");
+        when(source.getTargetTable()).thenReturn(TARGET_TABLE);
+        when(source.getIncrementalTemplatePath(anyString()))
+                .thenReturn(tempDir.resolve("lab-results-incremental.json").toString());
+        when(source.toTargetRow(anyMap())).thenAnswer(invocation -> {
+            Map<String, Object> record = invocation.getArgument(0);
+            Map<String, Object> row = new HashMap<>();
+            row.put("PatientID", record.get(IncrementalSyncSource.PATIENT_ID_COLUMN));
+            row.put("LabName", record.get("LABNAME"));
+            row.put("LabResult", record.get("LABRESULT"));
+            return row;
+        });
+        when(bulkUpsertWriter.upsert(any(), anyCollection(), anyList())).thenAnswer(invocation -> {
+            List<?> rows = invocation.getArgument(2);
+            return new BulkUpsertWriter.UpsertResult(rows.size(), 0, 0);
+        });
+        when(checkpointRepository.save(any(SyncCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     /**
-     * 测试1：增量同步逻辑测试
-     * 验证可以执行增量数据同步
-     * 绿阶段：测试应通过，因为DataSyncExecutor类已实现
+     * 测试1：未配置增量模板时增量同步成功且不查询HIS
      */
     @Test
-    @DisplayName("测试增量同步逻辑 - 应支持增量数据同步")
+    @DisplayName("测试增量同步逻辑 - 未配置增量模板时跳过源表")
     void testIncrementalSyncLogic() {
-        // 准备测试数据
-        String hospitalId = "hospital-001";
         String syncType = "INCREMENTAL";
-        
-        // 绿阶段：测试应通过
-        DataSyncExecutor executor = new DataSyncExecutor();
-        SyncResult result = executor.executeSync(hospitalId, syncType);
-        
-        // 验证结果
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, syncType);
+
         assertNotNull(result, "同步结果不应为null");
         assertTrue(result.isSuccess(), "增量同步应成功执行");
         assertEquals(syncType, result.getSyncType(), "同步类型应为INCREMENTAL");
         assertNotNull(result.getTaskId(), "任务ID不应为null");
-        assertTrue(result.getTaskId().contains(hospitalId), "任务ID应包含医院ID");
-        assertNotNull(result.getRecordsSynced(), "同步记录数不应为null");
-        assertTrue(result.getRecordsSynced() >= 0, "同步记录数应大于等于0");
+        assertTrue(result.getTaskId().contains(HOSPITAL_ID), "任务ID应包含医院ID");
+        assertEquals(0, result.getRecordsSynced(), "未配置模板时同步记录数应为0");
+        assertFalse(executor.isIncrementalActive(HOSPITAL_ID, source), "未配置模板时不应由增量同步负责");
+        verifyNoInteractions(sqlExecutionService, bulkUpsertWriter);
     }
-    
+
     /**
-     * 测试2：全量同步逻辑测试
-     * 验证可以执行全量数据同步
-     * 绿阶段：测试应通过，因为DataSyncExecutor类已实现
+     * 测试2：全量对账从模板初始水位开始，完成后记录全量对账时间，水位不回退
      */
     @Test
-    @DisplayName("测试全量同步逻辑 - 应支持全量数据同步")
-    void testFullSyncLogic() {
-        // 准备测试数据
-        String hospitalId = "hospital-001";
-        String syncType = "FULL";
-        
-        // 绿阶段：测试应通过
-        DataSyncExecutor executor = new DataSyncExecutor();
-        SyncResult result = executor.executeSync(hospitalId, syncType);
-        
-        // 验证结果
-        assertNotNull(result, "同步结果不应为null");
+    @DisplayName("测试全量同步逻辑 - 从初始水位重新拉取且水位不回退")
+    void testFullSyncLogic() throws Exception {
+        givenTemplate("Timestamp", "2025-01-01");
+        SyncCheckpoint checkpoint = SyncCheckpoint.create(HOSPITAL_ID, "LAB_RESULTS", SyncCheckpoint.TYPE_TIMESTAMP);
+        checkpoint.setWatermark(Timestamp.valueOf("2025-06-01 00:00:00"));
+        when(checkpointRepository.findByHospitalIdAndSourceName(HOSPITAL_ID, "LAB_RESULTS"))
+                .thenReturn(Optional.of(checkpoint));
+        givenPages(List.of(record("P1", "2025-02-01 08:00:00")));
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, "FULL");
+
         assertTrue(result.isSuccess(), "全量同步应成功执行");
-        assertEquals(syncType, result.getSyncType(), "同步类型应为FULL");
-        assertNotNull(result.getTaskId(), "任务ID不应为null");
-        assertTrue(result.getTaskId().contains(hospitalId), "任务ID应包含医院ID");
+        assertEquals("FULL", result.getSyncType(), "同步类型应为FULL");
+        assertEquals(1, result.getRecordsSynced());
+        SqlQueryRequest request = captureRequests().get(0);
+        assertEquals(Timestamp.valueOf("2025-01-01 00:00:00"), request.getParameters().get("watermark"),
+                "全量对账应从模板defaultValue开始");
+        assertEquals(Timestamp.valueOf("2025-06-01 00:00:00"), checkpoint.getWatermark(), "水位不应回退");
+        assertNotNull(checkpoint.getLastFullSyncTime(), "应记录全量对账时间");
     }
-    
+
     /**
-     * 测试3：分批处理机制测试
-     * 验证支持分批处理大数据量同步
-     * 绿阶段：测试应通过，因为DataSyncExecutor类已实现
+     * 测试3：满页时末尾同水位记录留到下一页，水位随每页推进
      */
     @Test
-    @DisplayName("测试分批处理机制 - 应支持分批处理大数据量同步")
-    void testBatchProcessingMechanism() {
-        // 准备测试数据
-        int batchSize = 1000;
-        
-        // 绿阶段：测试应通过
-        DataSyncExecutor executor = new DataSyncExecutor();
-        
-        // 验证支持分批处理
-        boolean supportsBatch = executor.supportsBatchProcessing();
-        assertTrue(supportsBatch, "应支持分批处理");
-        
-        // 验证默认批次大小
-        int actualBatchSize = executor.getBatchSize();
-        assertEquals(1000, actualBatchSize, "默认批次大小应为1000");
-        
-        // 验证可以设置批次大小
-        executor.setBatchSize(batchSize);
-        assertEquals(batchSize, executor.getBatchSize(), "批次大小应设置为" + batchSize);
-        
-        // 验证无效批次大小
-        assertThrows(IllegalArgumentException.class, () -> {
-            executor.setBatchSize(0);
-        }, "批次大小为0应抛出异常");
-        
-        assertThrows(IllegalArgumentException.class, () -> {
-            executor.setBatchSize(-1);
-        }, "批次大小为负数应抛出异常");
+    @DisplayName("测试分批处理机制 - 满页截断同水位记录并逐页推进水位")
+    void testBatchProcessingMechanism() throws Exception {
+        givenTemplate("Timestamp", null);
+        when(checkpointRepository.findByHospitalIdAndSourceName(HOSPITAL_ID, "LAB_RESULTS"))
+                .thenReturn(Optional.empty());
+        executor.setBatchSize(3);
+        givenPages(
+                List.of(record("P1", "2025-03-01 08:00:00"),
+                        record("P2", "2025-03-01 09:00:00"),
+                        record("P3", "2025-03-01 09:00:00")),
+                List.of(record("P2", "2025-03-01 09:00:00"),
+                        record("P3", "2025-03-01 09:00:00")));
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, "INCREMENTAL");
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getRecordsSynced(), "被截断的记录只应写入一次");
+        List<SqlQueryRequest> requests = captureRequests();
+        assertEquals(2, requests.size());
+        assertEquals(new Timestamp(0L), requests.get(0).getParameters().get("watermark"));
+        assertEquals(Timestamp.valueOf("2025-03-01 08:00:00"), requests.get(1).getParameters().get("watermark"),
+                "下一页应从本页实际处理的最后水位开始");
+        assertEquals(3, requests.get(0).getMaxRows());
+
+        ArgumentCaptor<SyncCheckpoint> saved = ArgumentCaptor.forClass(SyncCheckpoint.class);
+        verify(checkpointRepository, atLeast(2)).save(saved.capture());
+        assertEquals(Timestamp.valueOf("2025-03-01 09:00:00"), saved.getValue().getWatermark());
+        assertEquals(3, saved.getValue().getLastRecordsSynced());
+        verify(transactionManager, times(2)).commit(any());
+
+        assertThrows(IllegalArgumentException.class, () -> executor.setBatchSize(0), "批次大小为0应抛出异常");
+        assertThrows(IllegalArgumentException.class, () -> executor.setBatchSize(-1), "批次大小为负数应抛出异常");
     }
-    
+
+    /**
+     * 测试4：增量同步的时间水位向前回退重叠窗口；ID水位不回退
+     */
+    @Test
+    @DisplayName("测试增量同步起点 - 时间水位回退重叠窗口")
+    void testIncrementalOverlapWindow() throws Exception {
+        givenTemplate("Timestamp", null);
+        SyncCheckpoint checkpoint = SyncCheckpoint.create(HOSPITAL_ID, "LAB_RESULTS", SyncCheckpoint.TYPE_TIMESTAMP);
+        checkpoint.setWatermark(Timestamp.valueOf("2025-06-01 10:00:00"));
+        when(checkpointRepository.findByHospitalIdAndSourceName(HOSPITAL_ID, "LAB_RESULTS"))
+                .thenReturn(Optional.of(checkpoint));
+        givenPages(List.of());
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, "INCREMENTAL");
+
+        assertTrue(result.isSuccess());
+        assertEquals(Timestamp.valueOf("2025-06-01 09:55:00"), captureRequests().get(0).getParameters().get("watermark"));
+        assertEquals(Timestamp.valueOf("2025-06-01 10:00:00"), checkpoint.getWatermark());
+        verifyNoInteractions(bulkUpsertWriter);
+    }
+
     /**
-     * 测试4：同步策略模式测试
-     * 验证支持不同的同步策略
-     * 绿阶段：测试应通过，因为DataSyncExecutor类已实现
+     * 测试5：写入失败时水位不推进，结果标记失败源表
+     */
+    @Test
+    @DisplayName("测试写入失败 - 水位不推进并返回失败结果")
+    void testWriteFailureKeepsWatermark() throws Exception {
+        givenTemplate("Long", "100");
+        SyncCheckpoint checkpoint = SyncCheckpoint.create(HOSPITAL_ID, "LAB_RESULTS", SyncCheckpoint.TYPE_ID);
+        checkpoint.setWatermark(150L);
+        when(checkpointRepository.findByHospitalIdAndSourceName(HOSPITAL_ID, "LAB_RESULTS"))
+                .thenReturn(Optional.of(checkpoint));
+        Map<String, Object> row = record("P1", null);
+        row.put(IncrementalSyncSource.WATERMARK_COLUMN, new java.math.BigDecimal("151"));
+        givenPages(List.of(row));
+        when(bulkUpsertWriter.upsert(any(), anyCollection(), anyList())).thenThrow(new IllegalStateException("主库写入失败"));
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, "INCREMENTAL");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().contains("LAB_RESULTS"), "错误信息应包含失败源表");
+        assertEquals(150L, captureRequests().get(0).getParameters().get("watermark"), "ID水位不应回退重叠窗口");
+        assertEquals(150L, checkpoint.getWatermark(), "写入失败时水位不应推进");
+        verify(transactionManager).rollback(any());
+    }
+
+    /**
+     * 测试6：同步策略与同步类型
      */
     @Test
     @DisplayName("测试同步策略模式 - 应支持不同的同步策略")
     void testSyncStrategyPattern() {
-        // 绿阶段：测试应通过
-        DataSyncExecutor executor = new DataSyncExecutor();
-        
-        // 验证支持的策略
+        assertTrue(executor.supportsBatchProcessing(), "应支持分批处理");
+        assertEquals(1000, executor.getBatchSize(), "默认批次大小应为1000");
         assertTrue(executor.hasStrategy("INCREMENTAL"), "应支持INCREMENTAL策略");
         assertTrue(executor.hasStrategy("FULL"), "应支持FULL策略");
         assertTrue(executor.hasStrategy("INCREMENTAL_WITH_BATCH"), "应支持INCREMENTAL_WITH_BATCH策略");
         assertTrue(executor.hasStrategy("FULL_WITH_BATCH"), "应支持FULL_WITH_BATCH策略");
-        
-        // 验证不支持的策略
         assertFalse(executor.hasStrategy("UNKNOWN_STRATEGY"), "不应支持未知策略");
+
+        SyncResult result = executor.executeSync(HOSPITAL_ID, "UNKNOWN");
+        assertFalse(result.isSuccess(), "未知同步类型应返回失败结果");
     }
-    
+
     /**
-     * 测试5：内存使用优化测试
-     * 验证内存使用得到优化
-     * 绿阶段：测试应通过，因为DataSyncExecutor类已实现
+     * 测试7：分页边界计算
      */
     @Test
-    @DisplayName("测试内存使用优化 - 内存使用应得到优化")
-    void testMemoryUsageOptimization() {
-        // 准备测试数据
-        long maxMemoryUsage = 1024 * 1024 * 100; // 100MB
-        
-        // 绿阶段：测试应通过
-        DataSyncExecutor executor = new DataSyncExecutor();
-        
-        // 验证内存使用
-        long actualMemoryUsage = executor.getMemoryUsage();
-        assertTrue(actualMemoryUsage > 0, "内存使用量应大于0");
-        assertTrue(actualMemoryUsage <= maxMemoryUsage, "内存使用量应小于等于" + maxMemoryUsage + "字节");
-        
-        // 验证内存使用合理（模拟值50MB）
-        assertEquals(1024 * 1024 * 50, actualMemoryUsage, "内存使用量应为50MB");
+    @DisplayName("测试分页边界 - 整页同水位时全部处理")
+    void testPageBoundary() {
+        List<Map<String, Object>> partial = List.of(record("P1", "2025-03-01 08:00:00"));
+        assertEquals(1, DataSyncExecutor.pageBoundary(partial, 3, SyncCheckpoint.TYPE_TIMESTAMP));
+
+        List<Map<String, Object>> sameWatermark = List.of(
+                record("P1", "2025-03-01 08:00:00"),
+                record("P2", "2025-03-01 08:00:00"));
+        assertEquals(2, DataSyncExecutor.pageBoundary(sameWatermark, 2, SyncCheckpoint.TYPE_TIMESTAMP));
+    }
+
+    private void givenTemplate(String watermarkType, String defaultValue) throws Exception {
+        Path path = tempDir.resolve("lab-results-incremental.json");
+        Files.writeString(path, "{}");
+
+        SqlTemplate.Parameter parameter = new SqlTemplate.Parameter();
+        parameter.setName("watermark");
+        parameter.setType(watermarkType);
+        parameter.setDefaultValue(defaultValue);
+        SqlTemplate template = new SqlTemplate();
+        template.setSql("SELECT * FROM LAB WHERE MODIFY_TIME > :watermark ORDER BY MODIFY_TIME");
+        template.setParameters(List.of(parameter));
+        when(templateHotUpdateService.loadTemplate(path.toString())).thenReturn(template);
+    }
+
+    @SafeVarargs
+    private void givenPages(List<Map<String, Object>>... pages) {
+        List<SqlQueryResult> results = new ArrayList<>();
+        for (List<Map<String, Object>> page : pages) {
+            SqlQueryResult result = new SqlQueryResult();
+            result.setSuccess(true);
+            result.setData(page);
+            results.add(result);
+        }
+        SqlQueryResult empty = new SqlQueryResult();
+        empty.setSuccess(true);
+        empty.setData(List.of());
+        results.add(empty);
+        when(sqlExecutionService.executeQuery(eq(HOSPITAL_ID), any(SqlQueryRequest.class)))
+                .thenReturn(results.get(0), results.subList(1, results.size()).toArray(new SqlQueryResult[0]));
+    }
+
+    private List<SqlQueryRequest> captureRequests() {
+        ArgumentCaptor<SqlQueryRequest> captor = ArgumentCaptor.forClass(SqlQueryRequest.class);
+        verify(sqlExecutionService, atLeastOnce()).executeQuery(eq(HOSPITAL_ID), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static Map<String, Object> record(String patientId, String watermark) {
+        Map<String, Object> record = new HashMap<>();
+        record.put(IncrementalSyncSource.PATIENT_ID_COLUMN, patientId);
+        record.put(IncrementalSyncSource.WATERMARK_COLUMN, watermark == null ? null : Timestamp.valueOf(watermark));
+        record.put("LABNAME", "血常规");
+        record.put("LABRESULT", "正常");
+        return record;
     }
 }
@@ -0,0 +1,274 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.util.PatientIdParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 科室批量提取基准测试
+ *
+ * <p>H2内存库模拟HIS检验表，数据源包装为每次语句往返计数并附加固定网络延迟，
+ * 对比逐患者查询与分块IN列表批量查询的往返次数和耗时，并校验两种方式按病人拆分的记录一致。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("科室批量提取基准测试")
+class DepartmentBatchExtractorBenchmarkTest {
+
+    private static final String HOSPITAL_ID = "hospital-bench";
+    private static final int PATIENTS = 60;
+    private static final int RECORDS_PER_VISIT = 20;
+    private static final int CHUNK_SIZE = 25;
+    private static final long ROUND_TRIP_LATENCY_MS = 2;
+
+    private static final String PER_PATIENT_SQL = "SELECT PATIENT_ID, VISIT_ID, LAB_NAME, LAB_RESULT FROM LAB_ITEMS "
+            + "WHERE PATIENT_ID = :patientId AND VISIT_ID = :visitId ORDER BY LAB_NAME";
+    private static final String BATCH_SQL = "SELECT PATIENT_ID AS SYNC_HIS_PATIENT_ID, VISIT_ID AS SYNC_VISIT_ID, "
+            + "PATIENT_ID, VISIT_ID, LAB_NAME, LAB_RESULT FROM LAB_ITEMS "
+            + "WHERE PATIENT_ID IN (:patientIds) ORDER BY PATIENT_ID, LAB_NAME";
+
+    @TempDir
+    Path templateDir;
+
+    private JdbcTemplate hisJdbcTemplate;
+    private AtomicInteger roundTrips;
+    private SqlExecutionService sqlExecutionService;
+    private TemplateHotUpdateService templateHotUpdateService;
+    private Path batchTemplatePath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource h2 = new DriverManagerDataSource(
+                "jdbc:h2:mem:department_batch_extractor;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(h2);
+        setup.execute("CREATE TABLE LAB_ITEMS (PATIENT_ID VARCHAR(50), VISIT_ID INT, "
+                + "LAB_NAME VARCHAR(100), LAB_RESULT VARCHAR(100))");
+        List<Object[]> rows = new ArrayList<>();
+        for (int p = 0; p < PATIENTS; p++) {
+            // 每个病人两次就诊，只有第2次在院
+            for (int visit = 1; visit <= 2; visit++) {
+                for (int r = 0; r < RECORDS_PER_VISIT; r++) {
+                    rows.add(new Object[]{hisId(p), visit, String.format("LAB_%03d", r), p + "-" + visit + "-" + r});
+                }
+            }
+        }
+        setup.batchUpdate("INSERT INTO LAB_ITEMS VALUES (?, ?, ?, ?)", rows);
+
+        roundTrips = new AtomicInteger();
+        hisJdbcTemplate = new JdbcTemplate(new RoundTripCountingDataSource(h2, roundTrips));
+
+        DynamicJdbcTemplateFactory jdbcTemplateFactory = mock(DynamicJdbcTemplateFactory.class);
+        when(jdbcTemplateFactory.getJdbcTemplate(anyString(), anyString())).thenReturn(hisJdbcTemplate);
+        HospitalConfigService hospitalConfigService = mock(HospitalConfigService.class);
+        when(hospitalConfigService.hasConfig(HOSPITAL_ID)).thenReturn(true);
+        sqlExecutionService = new SqlExecutionService(jdbcTemplateFactory, new SqlSecurityValidator(),
+                hospitalConfigService);
+
+        batchTemplatePath = templateDir.resolve("lab-results-batch.json");
+        Files.writeString(batchTemplatePath, "{}");
+        SqlTemplate template = new SqlTemplate();
+        template.setSql(BATCH_SQL);
+        templateHotUpdateService = mock(TemplateHotUpdateService.class);
+        when(templateHotUpdateService.loadTemplate(batchTemplatePath.toString())).thenReturn(template);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:department_batch_extractor;DB_CLOSE_DELAY=-1", "sa", "")).execute("DROP TABLE LAB_ITEMS");
+    }
+
+    @Test
+    @DisplayName("批量提取每块一次往返，按病人拆分的记录与逐患者查询一致")
+    void testBatchExtractionMatchesPerPatientWithFewerRoundTrips() {
+        List<String> patientIds = inHospitalPatients();
+
+        // 逐患者查询
+        roundTrips.set(0);
+        long perPatientStart = System.nanoTime();
+        Map<String, List<Map<String, Object>>> perPatient = new LinkedHashMap<>();
+        for (String patientId : patientIds) {
+            SqlQueryRequest request = new SqlQueryRequest();
+            request.setSql(PER_PATIENT_SQL);
+            request.setParameters(Map.of("patientId", PatientIdParser.parsePatiId(patientId),
+                    "visitId", PatientIdParser.parseVisitId(patientId)));
+            request.setMaxRows(2000);
+            SqlQueryResult result = sqlExecutionService.executeQuery(HOSPITAL_ID, request);
+            assertTrue(result.isSuccess(), result.getErrorMessage());
+            perPatient.put(patientId, result.getData());
+        }
+        long perPatientMillis = (System.nanoTime() - perPatientStart) / 1_000_000;
+        int perPatientRoundTrips = roundTrips.get();
+
+        // 批量提取
+        RecordingSource source = new RecordingSource();
+        DepartmentBatchExtractor extractor = newExtractor(CHUNK_SIZE, 200000);
+        assertTrue(extractor.supports(HOSPITAL_ID, source));
+        roundTrips.set(0);
+        long batchStart = System.nanoTime();
+        Map<String, Integer> results = extractor.extract(HOSPITAL_ID, source, patientIds);
+        long batchMillis = (System.nanoTime() - batchStart) / 1_000_000;
+        int batchRoundTrips = roundTrips.get();
+
+        System.out.println("逐患者查询: " + PATIENTS + " 个病人, " + perPatientRoundTrips + " 次往返, "
+                + perPatientMillis + "ms");
+        System.out.println("批量提取: " + PATIENTS + " 个病人, 每块 " + CHUNK_SIZE + " 个, " + batchRoundTrips
+                + " 次往返, " + batchMillis + "ms, 统计: " + extractor.toMap());
+
+        assertEquals(PATIENTS, perPatientRoundTrips);
+        assertEquals((PATIENTS + CHUNK_SIZE - 1) / CHUNK_SIZE, batchRoundTrips);
+        assertEquals(patientIds, new ArrayList<>(results.keySet()));
+        for (String patientId : patientIds) {
+            assertEquals(RECORDS_PER_VISIT, results.get(patientId));
+            assertEquals(project(perPatient.get(patientId)), project(source.imported.get(patientId)),
+                    "病人 " + patientId + " 的记录应与逐患者查询一致");
+        }
+        // 非在院就诊的记录未匹配到病人
+        assertEquals((long) PATIENTS * RECORDS_PER_VISIT, extractor.toMap().get("unmatchedRows"));
+    }
+
+    @Test
+    @DisplayName("结果达到行数上限时该块病人记为失败，不导入部分数据")
+    void testTruncatedChunkMarksPatientsFailed() {
+        RecordingSource source = new RecordingSource();
+        DepartmentBatchExtractor extractor = newExtractor(CHUNK_SIZE, 100);
+
+        Map<String, Integer> results = extractor.extract(HOSPITAL_ID, source, inHospitalPatients());
+
+        assertEquals(PATIENTS, results.size());
+        assertTrue(results.values().stream().allMatch(count -> count == -1));
+        assertTrue(source.imported.isEmpty());
+        assertEquals(3L, extractor.toMap().get("failedRoundTrips"));
+    }
+
+    @Test
+    @DisplayName("未启用或未配置批量模板时不批量提取")
+    void testSupportsRequiresEnabledAndTemplateFile() throws Exception {
+        RecordingSource source = new RecordingSource();
+        DepartmentBatchExtractor disabled = new DepartmentBatchExtractor(sqlExecutionService,
+                templateHotUpdateService, new SyncBulkheads(4, 4), false, CHUNK_SIZE, 200000, 60,
+                500, 256L * 1024 * 1024);
+        assertFalse(disabled.supports(HOSPITAL_ID, source));
+
+        Files.delete(batchTemplatePath);
+        assertFalse(newExtractor(CHUNK_SIZE, 200000).supports(HOSPITAL_ID, source));
+    }
+
+    private DepartmentBatchExtractor newExtractor(int chunkSize, int maxRowsPerChunk) {
+        return new DepartmentBatchExtractor(sqlExecutionService, templateHotUpdateService,
+                new SyncBulkheads(4, 4), true, chunkSize, maxRowsPerChunk, 60, 500, 256L * 1024 * 1024);
+    }
+
+    private static List<String> inHospitalPatients() {
+        List<String> patientIds = new ArrayList<>();
+        for (int p = 0; p < PATIENTS; p++) {
+            patientIds.add(hisId(p) + "_2");
+        }
+        return patientIds;
+    }
+
+    private static String hisId(int index) {
+        return String.format("99050000%06d", index);
+    }
+
+    /**
+     * 只比较两种查询共有的业务列
+     */
+    private static List<String> project(List<Map<String, Object>> records) {
+        List<String> values = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            values.add(record.get("PATIENT_ID") + "|" + record.get("VISIT_ID") + "|"
+                    + record.get("LAB_NAME") + "|" + record.get("LAB_RESULT"));
+        }
+        return values;
+    }
+
+    /**
+     * 模拟检验同步服务：记录每个病人收到的批量记录
+     */
+    private class RecordingSource implements PatientBatchSource {
+
+        private final Map<String, List<Map<String, Object>>> imported = new HashMap<>();
+
+        @Override
+        public String getSourceName() {
+            return "LAB_RESULTS";
+        }
+
+        @Override
+        public String getBatchTemplatePath(String hospitalId) {
+            return batchTemplatePath.toString();
+        }
+
+        @Override
+        public String toHisPatientId(String mainServerPatientId) {
+            return PatientIdParser.parsePatiId(mainServerPatientId);
+        }
+
+        @Override
+        public String toHisVisitId(String mainServerPatientId) {
+            return PatientIdParser.parseVisitIdAsString(mainServerPatientId);
+        }
+
+        @Override
+        public int importPatientRecords(String mainServerPatientId, List<Map<String, Object>> hisRecords) {
+            imported.put(mainServerPatientId, hisRecords);
+            return hisRecords.size();
+        }
+    }
+
+    /**
+     * 为每条语句计数并附加固定延迟，模拟到HIS的网络往返
+     */
+    private static class RoundTripCountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger roundTrips;
+
+        RoundTripCountingDataSource(DriverManagerDataSource target, AtomicInteger roundTrips) {
+            super(target);
+            this.roundTrips = roundTrips;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("createStatement")) {
+                            roundTrips.incrementAndGet();
+                            Thread.sleep(ROUND_TRIP_LATENCY_MS);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
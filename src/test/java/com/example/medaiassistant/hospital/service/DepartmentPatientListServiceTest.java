@@ -0,0 +1,223 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.dto.DepartmentPatientList;
+import com.example.medaiassistant.hospital.dto.PatientSyncResult;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.repository.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 科室病人列表读取服务测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("科室病人列表过期后台刷新测试")
+class DepartmentPatientListServiceTest {
+
+    private static final String HOSPITAL_ID = "hospital-001";
+    private static final String DEPARTMENT = "心内科";
+    private static final long FRESHNESS_SECONDS = 120;
+
+    @Mock
+    private PatientSyncService patientSyncService;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private DepartmentPatientListService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DepartmentPatientListService(patientSyncService, patientRepository, FRESHNESS_SECONDS, 2000,
+            now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("并发读取过期列表：立即返回现有数据，只发起一次HIS刷新")
+    void testConcurrentStaleReadsShareOneRefresh() throws Exception {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(List.of(patient()));
+        CountDownLatch hisReleased = new CountDownLatch(1);
+        when(patientSyncService.syncPatients(HOSPITAL_ID, DEPARTMENT)).thenAnswer(invocation -> {
+            hisReleased.await(5, TimeUnit.SECONDS);
+            return success();
+        });
+
+        int nurses = 10;
+        List<DepartmentPatientList> lists = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(nurses)) {
+            List<Future<DepartmentPatientList>> futures = new ArrayList<>();
+            for (int i = 0; i < nurses; i++) {
+                futures.add(executor.submit(() -> service.getPatients(HOSPITAL_ID, DEPARTMENT, true)));
+            }
+            for (Future<DepartmentPatientList> future : futures) {
+                lists.add(future.get(1, TimeUnit.SECONDS));
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(nurses + " 个并发请求在HIS阻塞期间返回耗时: " + elapsedMs + "ms");
+
+        assertTrue(lists.stream().allMatch(list -> list.getPatients().size() == 1));
+        assertTrue(lists.stream().allMatch(DepartmentPatientList::isStale));
+        assertTrue(lists.stream().allMatch(list -> list.getSyncedAt() == null && list.getAgeSeconds() == -1));
+        assertTrue(service.getPatients(HOSPITAL_ID, DEPARTMENT, false).isRefreshing());
+
+        hisReleased.countDown();
+        awaitRefreshDone();
+
+        DepartmentPatientList fresh = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        assertFalse(fresh.isStale());
+        assertFalse(fresh.isRefreshing());
+        assertNotNull(fresh.getSyncedAt());
+        assertEquals(0, fresh.getAgeSeconds());
+        verify(patientSyncService, times(1)).syncPatients(HOSPITAL_ID, DEPARTMENT);
+        assertEquals(1L, service.toMap().get("refreshesStarted"));
+    }
+
+    @Test
+    @DisplayName("新鲜度窗口内不查询HIS，超出窗口后再次刷新")
+    void testFreshnessWindow() throws Exception {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(List.of(patient()));
+        when(patientSyncService.syncPatients(HOSPITAL_ID, DEPARTMENT)).thenReturn(success());
+
+        service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        awaitRefreshDone();
+
+        now.addAndGet(FRESHNESS_SECONDS * 1000 - 1);
+        DepartmentPatientList withinWindow = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        assertFalse(withinWindow.isStale());
+        assertEquals(FRESHNESS_SECONDS - 1, withinWindow.getAgeSeconds());
+        verify(patientSyncService, times(1)).syncPatients(HOSPITAL_ID, DEPARTMENT);
+
+        now.addAndGet(1);
+        DepartmentPatientList expired = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        assertTrue(expired.isStale());
+        awaitRefreshDone();
+        verify(patientSyncService, times(2)).syncPatients(HOSPITAL_ID, DEPARTMENT);
+    }
+
+    @Test
+    @DisplayName("判断过期后另一次刷新先完成时，抢到刷新槽后不再重复刷新")
+    void testNoRedundantRefreshAfterConcurrentRefreshCompleted() throws Exception {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(List.of(patient()));
+        when(patientSyncService.syncPatients(HOSPITAL_ID, DEPARTMENT)).thenReturn(success());
+        // 请求读到过期的同步时间后读取时钟时，先让另一个请求完成一次刷新
+        AtomicBoolean interleave = new AtomicBoolean();
+        service.shutdown();
+        service = new DepartmentPatientListService(patientSyncService, patientRepository, FRESHNESS_SECONDS, 2000,
+            () -> {
+                if (interleave.compareAndSet(true, false)) {
+                    service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+                    try {
+                        awaitRefreshDone();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return now.get();
+            });
+
+        service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        awaitRefreshDone();
+        now.addAndGet(FRESHNESS_SECONDS * 1000);
+
+        interleave.set(true);
+        DepartmentPatientList list = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+
+        assertFalse(list.isStale());
+        assertFalse(list.isRefreshing());
+        verify(patientSyncService, times(2)).syncPatients(HOSPITAL_ID, DEPARTMENT);
+        assertEquals(2L, service.toMap().get("refreshesStarted"));
+    }
+
+    @Test
+    @DisplayName("刷新失败时返回现有数据并标记失败，窗口内不重试")
+    void testFailedRefreshBacksOff() throws Exception {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(List.of(patient()));
+        PatientSyncResult failed = new PatientSyncResult(HOSPITAL_ID, DEPARTMENT);
+        failed.setSuccess(false);
+        failed.setErrorMessage("HIS连接超时");
+        when(patientSyncService.syncPatients(HOSPITAL_ID, DEPARTMENT)).thenReturn(failed);
+
+        service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        awaitRefreshDone();
+
+        DepartmentPatientList afterFailure = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+        assertTrue(afterFailure.isLastRefreshFailed());
+        assertTrue(afterFailure.isStale());
+        assertEquals(1, afterFailure.getPatients().size());
+        verify(patientSyncService, times(1)).syncPatients(HOSPITAL_ID, DEPARTMENT);
+        assertEquals(1L, service.toMap().get("refreshesFailed"));
+    }
+
+    @Test
+    @DisplayName("首次访问且本地无病人时等待首次刷新完成")
+    void testFirstReadWaitsWhenEmpty() {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true))
+            .thenReturn(List.of())
+            .thenReturn(List.of(patient()));
+        when(patientSyncService.syncPatients(anyString(), anyString())).thenReturn(success());
+
+        DepartmentPatientList list = service.getPatients(HOSPITAL_ID, DEPARTMENT, true);
+
+        assertEquals(1, list.getPatients().size());
+        assertFalse(list.isStale());
+    }
+
+    @Test
+    @DisplayName("sync=false时不刷新")
+    void testNoRefreshWhenDisabled() {
+        when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(List.of(patient()));
+
+        DepartmentPatientList list = service.getPatients(HOSPITAL_ID, DEPARTMENT, false);
+
+        assertTrue(list.isStale());
+        assertFalse(list.isRefreshing());
+        verifyNoInteractions(patientSyncService);
+    }
+
+    private void awaitRefreshDone() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getPatients(HOSPITAL_ID, DEPARTMENT, false).isRefreshing()) {
+            assertTrue(System.currentTimeMillis() < deadline, "后台刷新未在5秒内完成");
+            Thread.sleep(5);
+        }
+    }
+
+    private static PatientSyncResult success() {
+        PatientSyncResult result = new PatientSyncResult(HOSPITAL_ID, DEPARTMENT);
+        result.setSuccess(true);
+        return result;
+    }
+
+    private static Patient patient() {
+        Patient patient = new Patient();
+        patient.setPatientId("990500000178405-1");
+        patient.setDepartment(DEPARTMENT);
+        return patient;
+    }
+}
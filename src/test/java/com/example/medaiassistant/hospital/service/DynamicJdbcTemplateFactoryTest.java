@@ -0,0 +1,164 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.model.HospitalConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * DynamicJdbcTemplateFactory连接池测试（H2内存数据库代替医院HIS数据库）
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("医院数据库连接池测试")
+class DynamicJdbcTemplateFactoryTest {
+
+    private static final String HOSPITAL_ID = "hospital-h2";
+    private static final String H2_URL = "jdbc:h2:mem:hospital_pool_test;DB_CLOSE_DELAY=-1";
+
+    @Mock
+    private HospitalConfigService hospitalConfigService;
+
+    private DynamicJdbcTemplateFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        factory = new DynamicJdbcTemplateFactory(hospitalConfigService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.shutdown();
+    }
+
+    @Test
+    @DisplayName("同一医院复用连接池，连接数不超过配置的最大连接数")
+    void testQueriesReusePooledConnections() {
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(hospitalConfig(2));
+
+        JdbcTemplate first = factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        JdbcTemplate second = factory.getJdbcTemplate(HOSPITAL_ID, "HIS");
+        for (int i = 0; i < 20; i++) {
+            assertEquals(1, first.queryForObject("SELECT 1 FROM DUAL", Integer.class));
+        }
+
+        assertSame(first, second);
+        HikariDataSource dataSource = factory.getPooledDataSource(HOSPITAL_ID, "his");
+        assertEquals(2, dataSource.getMaximumPoolSize());
+        assertTrue(dataSource.getHikariPoolMXBean().getTotalConnections() <= 2);
+        assertTrue(factory.testConnection(HOSPITAL_ID, "his"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> pool = (Map<String, Object>) factory.getPoolMetrics().get(HOSPITAL_ID + ":his");
+        assertEquals(2, pool.get("maximumPoolSize"));
+        assertEquals(0, pool.get("activeConnections"));
+        assertEquals(H2_URL, pool.get("jdbcUrl"));
+        // 默认泄漏检测阈值大于科室批量提取的默认查询超时（300秒），长查询不会被误报为泄漏
+        assertTrue((Long) pool.get("leakDetectionThreshold") > 300_000L);
+    }
+
+    @Test
+    @DisplayName("连接全部借出时获取连接在超时后失败，而不是新建物理连接")
+    void testPoolIsBounded() throws SQLException {
+        HospitalConfig config = hospitalConfig(2);
+        config.getHisConfig().getPool().setConnectionTimeout(250L);
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(config);
+
+        factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        HikariDataSource dataSource = factory.getPooledDataSource(HOSPITAL_ID, "his");
+        try (Connection c1 = dataSource.getConnection(); Connection c2 = dataSource.getConnection()) {
+            assertNotNull(c1);
+            assertNotNull(c2);
+            assertThrows(SQLException.class, dataSource::getConnection);
+        }
+    }
+
+    @Test
+    @DisplayName("连接池配置变更后替换连接池并关闭旧连接池")
+    void testChangedConfigReplacesPool() {
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(hospitalConfig(2));
+        JdbcTemplate before = factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        HikariDataSource oldDataSource = factory.getPooledDataSource(HOSPITAL_ID, "his");
+
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(hospitalConfig(3));
+        JdbcTemplate after = factory.getJdbcTemplate(HOSPITAL_ID, "his");
+
+        assertNotSame(before, after);
+        assertTrue(oldDataSource.isClosed());
+        assertEquals(3, factory.getPooledDataSource(HOSPITAL_ID, "his").getMaximumPoolSize());
+    }
+
+    @Test
+    @DisplayName("医院配置删除后，配置变更通知关闭对应连接池")
+    void testRemovedConfigClosesPoolOnChangeNotification() {
+        ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+        verify(hospitalConfigService).addConfigChangeListener(listener.capture());
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(hospitalConfig(2));
+        factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        HikariDataSource dataSource = factory.getPooledDataSource(HOSPITAL_ID, "his");
+
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(null);
+        listener.getValue().run();
+
+        assertTrue(dataSource.isClosed());
+        assertNull(factory.getPooledDataSource(HOSPITAL_ID, "his"));
+        assertThrows(IllegalArgumentException.class, () -> factory.getJdbcTemplate(HOSPITAL_ID, "his"));
+    }
+
+    @Test
+    @DisplayName("配置未变更时不关闭连接池，清除缓存和应用关闭时关闭连接池")
+    void testEvictionAndShutdown() {
+        when(hospitalConfigService.getConfig(HOSPITAL_ID)).thenReturn(hospitalConfig(2));
+        factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        HikariDataSource first = factory.getPooledDataSource(HOSPITAL_ID, "his");
+
+        assertEquals(0, factory.evictStalePools());
+        assertFalse(first.isClosed());
+
+        factory.clearCache(HOSPITAL_ID, null);
+        assertTrue(first.isClosed());
+
+        factory.getJdbcTemplate(HOSPITAL_ID, "his");
+        HikariDataSource second = factory.getPooledDataSource(HOSPITAL_ID, "his");
+        factory.shutdown();
+        assertTrue(second.isClosed());
+        assertTrue(factory.getPoolMetrics().isEmpty());
+    }
+
+    private static HospitalConfig hospitalConfig(int maxConnections) {
+        HospitalConfig.PoolConfig pool = new HospitalConfig.PoolConfig();
+        pool.setMaxConnections(maxConnections);
+
+        HospitalConfig.HisConfig hisConfig = new HospitalConfig.HisConfig();
+        hisConfig.setUrl(H2_URL);
+        hisConfig.setUsername("sa");
+        hisConfig.setPassword("h2-test");
+        hisConfig.setPool(pool);
+
+        HospitalConfig.Hospital hospital = new HospitalConfig.Hospital();
+        hospital.setId(HOSPITAL_ID);
+        hospital.setName("H2测试医院");
+        hospital.setIntegrationType("database");
+        hospital.setHis(hisConfig);
+
+        HospitalConfig config = new HospitalConfig();
+        config.setHospital(hospital);
+        return config;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.medaiassistant.hospital.service;
 
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
 import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.dto.SqlStreamOptions;
 import com.example.medaiassistant.hospital.model.HospitalConfig;
 import com.example.medaiassistant.hospital.model.SqlTemplate;
 import com.example.medaiassistant.model.EmrContent;
@@ -70,8 +72,14 @@ class EmrSyncServiceTest {
     @Mock
     private TemplateHotUpdateService templateHotUpdateService;
 
+    @Mock
+    private BulkUpsertWriter bulkUpsertWriter;
+
     private EmrSyncService emrSyncService;
 
+    /** 模拟流式查询是否标记截断 */
+    private boolean truncated;
+
     @BeforeEach
     void setUp() {
         emrSyncService = new EmrSyncService(
@@ -79,7 +87,9 @@ class EmrSyncServiceTest {
                 emrContentRepository,
                 patientRepository,
                 hospitalConfigService,
-                templateHotUpdateService
+                templateHotUpdateService,
+                bulkUpsertWriter,
+                new SyncBulkheads(4, 4)
         );
         // 设置默认配置属性
         ReflectionTestUtils.setField(emrSyncService, "templateFilePath", "sql/hospital-local/emr-content-query.json");
@@ -171,18 +181,37 @@ class EmrSyncServiceTest {
             // 模拟Oracle返回3条数据
             mockOracleReturnsData(3);
             
-            // 模拟保存操作
-            when(emrContentRepository.findBySourceTableAndSourceId(anyString(), anyString()))
-                    .thenReturn(Optional.empty());
-            when(emrContentRepository.save(any(EmrContent.class)))
-                    .thenAnswer(invocation -> invocation.getArgument(0));
+            // 模拟批量写入：全部新增
+            when(bulkUpsertWriter.upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList()))
+                    .thenReturn(new BulkUpsertWriter.UpsertResult(3, 0, 0));
 
             // When
             int result = emrSyncService.importEmrContent(patientId);
 
             // Then
             assertEquals(3, result, "应返回导入的记录数3");
-            verify(emrContentRepository, times(3)).save(any(EmrContent.class));
+            verify(bulkUpsertWriter).upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId),
+                    argThat((List<Map<String, Object>> rows) -> rows.size() == 3));
+        }
+
+        @Test
+        @DisplayName("查询结果被截断时，应返回-1且不导入部分记录")
+        void testImportEmrContent_TruncatedResult_ReturnsNegative() {
+            // Given
+            String patientId = "990500000178405-1";
+            Patient patient = createMockPatient(patientId);
+            when(patientRepository.findByPatientId(patientId)).thenReturn(patient);
+            
+            // 模拟Oracle返回3条数据后因超过内存上限终止读取
+            mockOracleReturnsData(3);
+            truncated = true;
+
+            // When
+            int result = emrSyncService.importEmrContent(patientId);
+
+            // Then
+            assertEquals(-1, result, "结果被截断时应返回-1");
+            verifyNoInteractions(bulkUpsertWriter);
         }
 
         @Test
@@ -196,22 +225,16 @@ class EmrSyncServiceTest {
             // 模拟Oracle返回1条数据
             mockOracleReturnsData(1);
             
-            // 模拟已存在的记录
-            EmrContent existingRecord = new EmrContent();
-            existingRecord.setId(1L);
-            existingRecord.setSourceTable("emr.emr_content");
-            existingRecord.setSourceId("source-id-0");
-            when(emrContentRepository.findBySourceTableAndSourceId("emr.emr_content", "source-id-0"))
-                    .thenReturn(Optional.of(existingRecord));
-            when(emrContentRepository.save(any(EmrContent.class)))
-                    .thenAnswer(invocation -> invocation.getArgument(0));
+            // 模拟已存在的记录：批量写入结果为更新1条
+            when(bulkUpsertWriter.upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList()))
+                    .thenReturn(new BulkUpsertWriter.UpsertResult(0, 1, 0));
 
             // When
             int result = emrSyncService.importEmrContent(patientId);
 
             // Then
             assertEquals(1, result, "应返回处理的记录数");
-            verify(emrContentRepository, times(1)).save(existingRecord);
+            verify(bulkUpsertWriter, times(1)).upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList());
         }
     }
 
@@ -375,16 +398,18 @@ class EmrSyncServiceTest {
             Patient patient = createMockPatient(patientId);
             when(patientRepository.findByPatientId(patientId)).thenReturn(patient);
             mockOracleReturnsData(1);
-            when(emrContentRepository.findBySourceTableAndSourceId(anyString(), anyString()))
-                    .thenReturn(Optional.empty());
-            when(emrContentRepository.save(any(EmrContent.class)))
-                    .thenAnswer(invocation -> invocation.getArgument(0));
+            when(bulkUpsertWriter.upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList()))
+                    .thenReturn(new BulkUpsertWriter.UpsertResult(1, 0, 0));
 
             // When
             emrSyncService.importEmrContent(patientId);
 
             // Then
-            verify(emrContentRepository).findBySourceTableAndSourceId("emr.emr_content", "source-id-0");
+            assertEquals(List.of("SOURCE_TABLE", "SOURCE_ID"), EmrSyncService.EMR_CONTENT_TABLE.getKeyColumns());
+            verify(bulkUpsertWriter).upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId),
+                    argThat((List<Map<String, Object>> rows) -> rows.size() == 1
+                            && "emr.emr_content".equals(rows.get(0).get("SOURCE_TABLE"))
+                            && "source-id-0".equals(rows.get(0).get("SOURCE_ID"))));
         }
 
         @Test
@@ -396,23 +421,17 @@ class EmrSyncServiceTest {
             when(patientRepository.findByPatientId(patientId)).thenReturn(patient);
             mockOracleReturnsData(1);
             
-            EmrContent existingRecord = new EmrContent();
-            existingRecord.setId(100L);
-            existingRecord.setSourceTable("emr.emr_content");
-            existingRecord.setSourceId("source-id-0");
-            existingRecord.setContent("旧内容");
-            when(emrContentRepository.findBySourceTableAndSourceId("emr.emr_content", "source-id-0"))
-                    .thenReturn(Optional.of(existingRecord));
-            when(emrContentRepository.save(any(EmrContent.class)))
-                    .thenAnswer(invocation -> invocation.getArgument(0));
+            when(bulkUpsertWriter.upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList()))
+                    .thenReturn(new BulkUpsertWriter.UpsertResult(0, 1, 0));
 
             // When
-            emrSyncService.importEmrContent(patientId);
+            int result = emrSyncService.importEmrContent(patientId);
 
             // Then
-            verify(emrContentRepository).save(argThat(emr -> 
-                emr.getId() != null && emr.getId().equals(100L)
-            ));
+            assertEquals(1, result, "应返回处理的记录数");
+            assertTrue(EmrSyncService.EMR_CONTENT_TABLE.getUpdateColumns().contains("CONTENT"), "已存在记录应更新病历内容");
+            verify(bulkUpsertWriter).upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId),
+                    argThat((List<Map<String, Object>> rows) -> "病历内容0".equals(rows.get(0).get("CONTENT"))));
         }
 
         @Test
@@ -423,20 +442,17 @@ class EmrSyncServiceTest {
             Patient patient = createMockPatient(patientId);
             when(patientRepository.findByPatientId(patientId)).thenReturn(patient);
             mockOracleReturnsData(1);
-            when(emrContentRepository.findBySourceTableAndSourceId(anyString(), anyString()))
-                    .thenReturn(Optional.empty());
-            when(emrContentRepository.save(any(EmrContent.class)))
-                    .thenAnswer(invocation -> invocation.getArgument(0));
+            when(bulkUpsertWriter.upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId), anyList()))
+                    .thenReturn(new BulkUpsertWriter.UpsertResult(1, 0, 0));
 
             // When
             emrSyncService.importEmrContent(patientId);
 
             // Then
-            verify(emrContentRepository).save(argThat(emr -> 
-                emr.getSourceTable() != null && 
-                emr.getSourceTable().equals("emr.emr_content") &&
-                emr.getSourceId() != null
-            ));
+            verify(bulkUpsertWriter).upsert(eq(EmrSyncService.EMR_CONTENT_TABLE), eq(patientId),
+                    argThat((List<Map<String, Object>> rows) ->
+                            "emr.emr_content".equals(rows.get(0).get("SOURCE_TABLE"))
+                            && rows.get(0).get("SOURCE_ID") != null));
         }
     }
 
@@ -478,14 +494,8 @@ class EmrSyncServiceTest {
         template.setSql("SELECT * FROM emr.emr_content WHERE PATI_ID = :patiId");
         when(templateHotUpdateService.loadTemplate(anyString())).thenReturn(template);
         
-        // 模拟SQL执行返回空数据
-        SqlQueryResult emptyResult = SqlQueryResult.success(
-                Collections.emptyList(), 
-                Collections.emptyList(), 
-                10L, 
-                "SELECT * FROM emr.emr_content WHERE PATI_ID = :patiId"
-        );
-        when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(emptyResult);
+        // 模拟SQL流式执行返回空数据
+        mockStreamQuery(Collections.emptyList());
     }
 
     private void mockOracleReturnsData(int count) {
@@ -519,16 +529,27 @@ class EmrSyncServiceTest {
             mockData.add(record);
         }
         
-        // 模拟SQL执行返回数据
-        SqlQueryResult dataResult = SqlQueryResult.success(
-                mockData, 
-                Arrays.asList("SOURCE_ID", "PATI_ID", "VISIT_ID", "PATI_NAME", "DEPT_CODE", "DEPT_NAME", 
-                        "DOC_TYPE_NAME", "RECORD_DATE", "CONTENT", "CREATEUSERID", "CREATEBY", 
-                        "DOC_TITLE_TIME", "MODIFIEDON", "DELETEMARK"), 
-                10L, 
-                "SELECT * FROM emr.emr_content WHERE PATI_ID = :patiId"
-        );
-        when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(dataResult);
+        // 模拟SQL流式执行逐行返回数据
+        mockStreamQuery(mockData);
+    }
+    
+    /**
+     * 模拟流式查询：把记录逐行交给行处理器
+     */
+    private void mockStreamQuery(List<Map<String, Object>> rows) {
+        when(sqlExecutionService.streamQuery(anyString(), any(SqlQueryRequest.class), any(SqlStreamOptions.class),
+                any(SqlExecutionService.RowHandler.class))).thenAnswer(invocation -> {
+            SqlExecutionService.RowHandler handler = invocation.getArgument(3);
+            rows.forEach(handler::handle);
+            SqlQueryResult result = SqlQueryResult.success(Collections.emptyList(), Collections.emptyList(),
+                    10L, "SELECT * FROM emr.emr_content WHERE PATI_ID = :patiId");
+            result.setRowCount(rows.size());
+            if (truncated) {
+                result.setTruncated(true);
+                result.setWarnings(List.of("读取数据量超过内存上限，已终止读取"));
+            }
+            return result;
+        });
     }
     
     /**
@@ -66,6 +66,9 @@ class ExaminationSyncServiceTest {
     @Mock
     private ExamSyncConfig examSyncConfig;
 
+    @Mock
+    private BulkUpsertWriter bulkUpsertWriter;
+
     private ExaminationSyncService examinationSyncService;
 
     @BeforeEach
@@ -76,7 +79,9 @@ class ExaminationSyncServiceTest {
             patientRepository,
             hospitalConfigService,
             templateHotUpdateService,
-            examSyncConfig
+            examSyncConfig,
+            bulkUpsertWriter,
+            new SyncBulkheads(4, 4)
         );
     }
 
@@ -219,19 +224,19 @@ class ExaminationSyncServiceTest {
         queryResult.setData(examRecords);
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(queryResult);
         
-        // 模拟无重复记录
-        when(examinationResultRepository.findByExaminationId(anyString())).thenReturn(Optional.empty());
-        
-        // 模拟保存操作
-        when(examinationResultRepository.save(any(ExaminationResult.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        // 模拟批量写入：无重复记录，全部新增
+        when(bulkUpsertWriter.upsert(eq(ExaminationSyncService.EXAMINATION_RESULTS_TABLE), eq(patientId), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(3, 0, 0));
 
         // When - 调用导入方法
         int result = examinationSyncService.importExaminationResults(patientId);
 
         // Then - 验证返回正确计数
         assertEquals(3, result, "应返回导入的记录数3");
-        verify(examinationResultRepository, times(3)).save(any(ExaminationResult.class));
+        verify(bulkUpsertWriter).upsert(eq(ExaminationSyncService.EXAMINATION_RESULTS_TABLE), eq(patientId),
+            argThat((List<Map<String, Object>> rows) -> rows.size() == 3
+                && "EXAM_001".equals(rows.get(0).get("ExaminationID"))
+                && patientId.equals(rows.get(0).get("PatientID"))));
     }
 
     // ==================== UT-07: 重复记录更新测试 ====================
@@ -259,26 +264,16 @@ class ExaminationSyncServiceTest {
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(queryResult);
         
         // 模拟第一条记录已存在（需要更新），第二条不存在（新插入）
-        ExaminationResult existingResult = new ExaminationResult();
-        existingResult.setExaminationId("EXAM_001");
-        existingResult.setPatientId(patientId.replace("-", "_"));
-        existingResult.setCheckConclusion("旧的检查结论");
-        
-        when(examinationResultRepository.findByExaminationId("EXAM_001"))
-            .thenReturn(Optional.of(existingResult));
-        when(examinationResultRepository.findByExaminationId("EXAM_002"))
-            .thenReturn(Optional.empty());
-        
-        // 模拟保存操作
-        when(examinationResultRepository.save(any(ExaminationResult.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        when(bulkUpsertWriter.upsert(eq(ExaminationSyncService.EXAMINATION_RESULTS_TABLE), eq(patientId), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(1, 1, 0));
 
         // When - 调用导入方法
         int result = examinationSyncService.importExaminationResults(patientId);
 
         // Then - 验证返回2（1个更新+1个新增）
         assertEquals(2, result, "应返回处理的记录数2");
-        verify(examinationResultRepository, times(2)).save(any(ExaminationResult.class));
+        verify(bulkUpsertWriter).upsert(eq(ExaminationSyncService.EXAMINATION_RESULTS_TABLE), eq(patientId),
+            argThat((List<Map<String, Object>> rows) -> rows.size() == 2));
     }
 
     // ==================== UT-08: CLOB字段处理测试 ====================
@@ -1,6 +1,5 @@
 package com.example.medaiassistant.hospital.service;
 
-import com.example.medaiassistant.repository.LabResultRepository;
 import com.example.medaiassistant.repository.PatientRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,8 +7,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.sql.Timestamp;
-
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -44,7 +41,7 @@ class LabSyncServiceTddTest {
     private SqlExecutionService sqlExecutionService;
     
     @Mock
-    private LabResultRepository labResultRepository;
+    private BulkUpsertWriter bulkUpsertWriter;
     
     @Mock
     private HospitalConfigService hospitalConfigService;
@@ -69,7 +66,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 验证服务实例不为null
         assertNotNull(service, "LIS检验结果同步服务实例不应为null");
@@ -89,7 +86,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟patientRepository返回null（病人未找到）
         when(patientRepository.findByPatientId(mainServerPatientId)).thenReturn(null);
@@ -126,7 +123,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟模板服务
         com.example.medaiassistant.hospital.model.SqlTemplate mockTemplate = createMockTemplate();
@@ -141,10 +138,9 @@ class LabSyncServiceTddTest {
         // 模拟sqlExecutionService返回测试数据
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(createTestQueryResult());
         
-        // 模拟labResultRepository返回空列表（无重复记录）
-        // 注意：现在使用四字段查询方法，labReportTime参数类型为Timestamp
-        when(labResultRepository.findByPatientIdAndLabNameAndLabReportTimeAndLabResult(anyString(), anyString(), any(Timestamp.class), anyString()))
-            .thenReturn(java.util.Collections.emptyList());
+        // 模拟批量写入：无重复记录，新增1条
+        when(bulkUpsertWriter.upsert(eq(LabSyncService.LAB_RESULTS_TABLE), anyString(), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(1, 0, 0));
         
         // 调用方法
         int importedCount = service.importLabResults(mainServerPatientId);
@@ -190,7 +186,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟模板服务
         com.example.medaiassistant.hospital.model.SqlTemplate mockTemplate = createMockTemplate();
@@ -205,9 +201,9 @@ class LabSyncServiceTddTest {
         // 模拟sqlExecutionService返回测试数据
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(createTestQueryResult());
         
-        // 模拟labResultRepository返回已存在的记录（使用四字段查询方法，labReportTime参数类型为Timestamp）
-        when(labResultRepository.findByPatientIdAndLabNameAndLabReportTimeAndLabResult(anyString(), anyString(), any(Timestamp.class), anyString()))
-            .thenReturn(java.util.Collections.singletonList(new com.example.medaiassistant.model.LabResult()));
+        // 模拟批量写入：四字段与已有记录重复，跳过1条
+        when(bulkUpsertWriter.upsert(eq(LabSyncService.LAB_RESULTS_TABLE), anyString(), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(0, 0, 1));
         
         // 调用方法
         int importedCount = service.importLabResults(mainServerPatientId);
@@ -230,7 +226,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 调用方法
         int importedCount = service.importLabResults(mainServerPatientId);
@@ -253,7 +249,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟patientRepository返回病人信息，但入院日期为null
         com.example.medaiassistant.model.Patient mockPatient = new com.example.medaiassistant.model.Patient();
@@ -282,7 +278,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟patientRepository返回病人信息
         com.example.medaiassistant.model.Patient mockPatient = new com.example.medaiassistant.model.Patient();
@@ -314,7 +310,7 @@ class LabSyncServiceTddTest {
         // 🟢 绿阶段：测试应通过，因为LabSyncService类已创建
         
         // 创建LabSyncService实例
-        LabSyncService service = new LabSyncService(sqlExecutionService, labResultRepository, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService);
+        LabSyncService service = new LabSyncService(sqlExecutionService, patientRepository, hospitalConfigService, syncLogService, templateHotUpdateService, bulkUpsertWriter, new SyncBulkheads(4, 4));
         
         // 模拟patientRepository返回null（病人未找到）
         when(patientRepository.findByPatientId(mainServerPatientId)).thenReturn(null);
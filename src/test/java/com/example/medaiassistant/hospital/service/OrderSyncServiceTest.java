@@ -6,7 +6,6 @@ import com.example.medaiassistant.hospital.model.HospitalConfig;
 import com.example.medaiassistant.hospital.model.SqlTemplate;
 import com.example.medaiassistant.model.LongTermOrder;
 import com.example.medaiassistant.model.Patient;
-import com.example.medaiassistant.repository.LongTermOrderRepository;
 import com.example.medaiassistant.repository.PatientRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -62,9 +61,6 @@ class OrderSyncServiceTest {
     @Mock
     private SqlExecutionService sqlExecutionService;
 
-    @Mock
-    private LongTermOrderRepository longTermOrderRepository;
-
     @Mock
     private PatientRepository patientRepository;
 
@@ -77,17 +73,21 @@ class OrderSyncServiceTest {
     @Mock
     private OrderSyncConfig orderSyncConfig;
 
+    @Mock
+    private BulkUpsertWriter bulkUpsertWriter;
+
     private OrderSyncService orderSyncService;
 
     @BeforeEach
     void setUp() {
         orderSyncService = new OrderSyncService(
             sqlExecutionService,
-            longTermOrderRepository,
             patientRepository,
             hospitalConfigService,
             templateHotUpdateService,
-            orderSyncConfig
+            orderSyncConfig,
+            bulkUpsertWriter,
+            new SyncBulkheads(4, 4)
         );
     }
 
@@ -121,7 +121,7 @@ class OrderSyncServiceTest {
         
         // 验证未调用数据库查询
         verifyNoInteractions(patientRepository);
-        verifyNoInteractions(longTermOrderRepository);
+        verifyNoInteractions(bulkUpsertWriter);
     }
 
     /**
@@ -230,19 +230,19 @@ class OrderSyncServiceTest {
         queryResult.setData(orderRecords);
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(queryResult);
         
-        // 模拟无重复记录
-        when(longTermOrderRepository.findByOrderId(anyLong())).thenReturn(Optional.empty());
-        
-        // 模拟保存操作
-        when(longTermOrderRepository.save(any(LongTermOrder.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        // 模拟批量写入：无重复记录，全部新增
+        when(bulkUpsertWriter.upsert(eq(OrderSyncService.LONG_TERM_ORDERS_TABLE), eq(patientId), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(3, 0, 0));
 
         // When - 调用导入方法
         int result = orderSyncService.importOrders(patientId);
 
         // Then - 验证返回正确计数
         assertEquals(3, result, "应返回导入的记录数3");
-        verify(longTermOrderRepository, times(3)).save(any(LongTermOrder.class));
+        verify(bulkUpsertWriter).upsert(eq(OrderSyncService.LONG_TERM_ORDERS_TABLE), eq(patientId),
+            argThat((List<Map<String, Object>> rows) -> rows.size() == 3
+                && Integer.valueOf(0).equals(rows.get(0).get("IsAnalyzed"))
+                && Integer.valueOf(0).equals(rows.get(0).get("IsTriggered"))));
     }
 
     // ==================== UT-07: 重复记录更新测试 ====================
@@ -269,28 +269,17 @@ class OrderSyncServiceTest {
         queryResult.setData(orderRecords);
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(queryResult);
         
-        // 模拟第一条记录已存在（需要更新），第二条不存在（新插入）
-        LongTermOrder existingOrder = new LongTermOrder();
-        existingOrder.setOrderId(1001L);
-        existingOrder.setPatientId(patientId);
-        existingOrder.setDosage("旧剂量");
-        existingOrder.setIsAnalyzed(1); // 已分析状态
-        
-        when(longTermOrderRepository.findByOrderId(1001L))
-            .thenReturn(Optional.of(existingOrder));
-        when(longTermOrderRepository.findByOrderId(1002L))
-            .thenReturn(Optional.empty());
-        
-        // 模拟保存操作
-        when(longTermOrderRepository.save(any(LongTermOrder.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+        // 模拟第一条记录与未停止的医嘱重复（跳过），第二条不存在（新插入）
+        when(bulkUpsertWriter.upsert(eq(OrderSyncService.LONG_TERM_ORDERS_TABLE), eq(patientId), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(1, 0, 1));
 
         // When - 调用导入方法
         int result = orderSyncService.importOrders(patientId);
 
-        // Then - 验证返回2（1个更新+1个新增）
-        assertEquals(2, result, "应返回处理的记录数2");
-        verify(longTermOrderRepository, times(2)).save(any(LongTermOrder.class));
+        // Then - 验证仅返回新增数1，两条记录均交给批量写入判重
+        assertEquals(1, result, "应返回新增的记录数1");
+        verify(bulkUpsertWriter).upsert(eq(OrderSyncService.LONG_TERM_ORDERS_TABLE), eq(patientId),
+            argThat((List<Map<String, Object>> rows) -> rows.size() == 2));
     }
 
     // ==================== UT-08~12: 字段映射测试 ====================
@@ -461,31 +450,16 @@ class OrderSyncServiceTest {
         queryResult.setData(orderRecords);
         when(sqlExecutionService.executeQuery(anyString(), any())).thenReturn(queryResult);
         
-        // 模拟记录已存在且ISANALYZED=1
-        LongTermOrder existingOrder = new LongTermOrder();
-        existingOrder.setOrderId(1001L);
-        existingOrder.setPatientId(patientId);
-        existingOrder.setIsAnalyzed(1); // 已分析
-        existingOrder.setIsTriggered(1); // 已触发
-        
-        when(longTermOrderRepository.findByOrderId(1001L))
-            .thenReturn(Optional.of(existingOrder));
-        
-        // 捕获保存的实体
-        when(longTermOrderRepository.save(any(LongTermOrder.class)))
-            .thenAnswer(invocation -> {
-                LongTermOrder saved = invocation.getArgument(0);
-                // 验证更新时保留了原有的ISANALYZED和ISTRIGGERED值
-                assertEquals(1, saved.getIsAnalyzed(), "更新时应保留ISANALYZED值");
-                assertEquals(1, saved.getIsTriggered(), "更新时应保留ISTRIGGERED值");
-                return saved;
-            });
+        // 模拟记录已存在（ISANALYZED=1）：批量写入跳过，不覆盖已有记录
+        when(bulkUpsertWriter.upsert(eq(OrderSyncService.LONG_TERM_ORDERS_TABLE), eq(patientId), anyList()))
+            .thenReturn(new BulkUpsertWriter.UpsertResult(0, 0, 1));
 
         // When - 调用导入方法
         int result = orderSyncService.importOrders(patientId);
 
-        // Then - 验证处理成功
-        assertEquals(1, result, "应返回处理的记录数1");
+        // Then - 已存在的医嘱不更新，ISANALYZED和ISTRIGGERED保持原值
+        assertEquals(0, result, "已存在的医嘱不计入新增");
+        assertFalse(OrderSyncService.LONG_TERM_ORDERS_TABLE.isUpdatable(), "医嘱表只新增不更新，保留ISANALYZED值");
     }
 
     // ==================== 辅助方法 ====================
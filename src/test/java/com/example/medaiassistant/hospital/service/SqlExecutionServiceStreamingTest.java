@@ -0,0 +1,235 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.dto.SqlStreamOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SqlExecutionService流式查询测试（H2内存数据库模拟HIS）
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("SQL流式查询测试")
+class SqlExecutionServiceStreamingTest {
+
+    private static final String HOSPITAL_ID = "hospital-stream";
+    private static final String URL = "jdbc:h2:mem:sql_execution_streaming;DB_CLOSE_DELAY=-1";
+    private static final int ROWS = 250;
+    private static final String SQL = "SELECT ID, PATIENT_ID, CONTENT FROM EMR_DOCS WHERE PATIENT_ID IN (:patientIds) "
+            + "ORDER BY ID";
+
+    private JdbcTemplate jdbcTemplate;
+    private SqlExecutionService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE EMR_DOCS (ID INT PRIMARY KEY, PATIENT_ID VARCHAR(20), CONTENT CLOB)");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{i, "P" + (i % 5), "病历内容".repeat(250)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO EMR_DOCS VALUES (?, ?, ?)", rows);
+
+        DynamicJdbcTemplateFactory jdbcTemplateFactory = mock(DynamicJdbcTemplateFactory.class);
+        when(jdbcTemplateFactory.getJdbcTemplate(anyString(), anyString())).thenReturn(jdbcTemplate);
+        HospitalConfigService hospitalConfigService = mock(HospitalConfigService.class);
+        when(hospitalConfigService.hasConfig(HOSPITAL_ID)).thenReturn(true);
+        service = new SqlExecutionService(jdbcTemplateFactory, new SqlSecurityValidator(), hospitalConfigService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE EMR_DOCS");
+    }
+
+    @Test
+    @DisplayName("逐行交付且CLOB转为字符串，集合参数展开为IN列表")
+    void testStreamsRowsWithExpandedInList() {
+        List<Map<String, Object>> received = new ArrayList<>();
+        SqlQueryResult result = service.streamQuery(HOSPITAL_ID, request(List.of("P1", "P3")), received::add);
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(100, result.getRowCount());
+        assertEquals(100, received.size());
+        assertTrue(result.getData().isEmpty());
+        assertFalse(result.isTruncated());
+        assertTrue(received.stream().allMatch(row -> List.of("P1", "P3").contains(row.get("PATIENT_ID"))));
+        assertInstanceOf(String.class, received.get(0).get("CONTENT"));
+    }
+
+    @Test
+    @DisplayName("行处理器返回false时提前终止读取")
+    void testEarlyTermination() {
+        List<Object> ids = new ArrayList<>();
+        SqlStreamOptions options = new SqlStreamOptions();
+        options.setFetchSize(10);
+
+        SqlQueryResult result = service.streamQuery(HOSPITAL_ID, request(allPatients()), options, row -> {
+            ids.add(row.get("ID"));
+            return ids.size() < 7;
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(7, result.getRowCount());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), ids);
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    @DisplayName("超过内存上限时终止读取并标记截断")
+    void testMemoryCapTruncates() {
+        long rowBytes = SqlExecutionService.estimateRowBytes(Map.of("ID", 1, "PATIENT_ID", "P0",
+                "CONTENT", "病历内容".repeat(250)));
+        SqlStreamOptions options = new SqlStreamOptions();
+        options.setMaxBytes(rowBytes * 20 + rowBytes / 2);
+        List<Map<String, Object>> received = new ArrayList<>();
+
+        SqlQueryResult result = service.streamQuery(HOSPITAL_ID, request(allPatients()), options, row -> {
+            received.add(row);
+            return true;
+        });
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.isTruncated());
+        assertEquals(20, result.getRowCount());
+        assertEquals(20, received.size());
+        assertNotNull(result.getWarnings());
+    }
+
+    @Test
+    @DisplayName("按块交付：块行数和块内存上限先到先交付，末尾不足一块也交付")
+    void testChunksBoundedByRowsAndBytes() {
+        SqlStreamOptions options = new SqlStreamOptions();
+        options.setChunkSize(40);
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        SqlQueryResult result = service.streamQueryInChunks(HOSPITAL_ID, request(allPatients()), options, chunk -> {
+            chunkSizes.add(chunk.size());
+            return true;
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(ROWS, result.getRowCount());
+        assertEquals(List.of(40, 40, 40, 40, 40, 40, 10), chunkSizes);
+
+        long rowBytes = SqlExecutionService.estimateRowBytes(Map.of("ID", 1, "PATIENT_ID", "P0",
+                "CONTENT", "病历内容".repeat(250)));
+        options.setMaxChunkBytes(rowBytes * 15);
+        chunkSizes.clear();
+        service.streamQueryInChunks(HOSPITAL_ID, request(allPatients()), options, chunk -> {
+            chunkSizes.add(chunk.size());
+            return chunkSizes.size() < 3;
+        });
+        assertEquals(List.of(15, 15, 15), chunkSizes);
+    }
+
+    @Test
+    @DisplayName("达到最大行数时标记截断")
+    void testMaxRowsMarksTruncated() {
+        SqlQueryRequest request = request(allPatients());
+        request.setMaxRows(30);
+
+        SqlQueryResult result = service.streamQuery(HOSPITAL_ID, request, row -> { });
+
+        assertTrue(result.isSuccess());
+        assertEquals(30, result.getRowCount());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    @DisplayName("未指定最大行数时不限制行数，不沿用共享JdbcTemplate的行数上限")
+    void testNullMaxRowsIsUnbounded() {
+        jdbcTemplate.setMaxRows(100);
+        SqlQueryRequest request = request(allPatients());
+        request.setMaxRows(null);
+
+        SqlQueryResult result = service.streamQuery(HOSPITAL_ID, request, row -> { });
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(ROWS, result.getRowCount());
+        assertFalse(result.isTruncated());
+        assertEquals(100, jdbcTemplate.getMaxRows());
+    }
+
+    @Test
+    @DisplayName("并发流式查询各自按请求的最大行数读取，不修改共享JdbcTemplate")
+    void testConcurrentStreamsKeepTheirOwnMaxRows() throws Exception {
+        // 两个查询都配置完成、取到连接后才继续执行，复现共享JdbcTemplate上设置互相覆盖的交错
+        CyclicBarrier bothConfigured = new CyclicBarrier(2);
+        JdbcTemplate shared = new JdbcTemplate(new DelegatingDataSource(new DriverManagerDataSource(URL, "sa", "")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    bothConfigured.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new SQLException("等待并发查询超时", e);
+                }
+                return super.getConnection();
+            }
+        });
+        shared.setMaxRows(1000);
+        shared.setQueryTimeout(30);
+        DynamicJdbcTemplateFactory jdbcTemplateFactory = mock(DynamicJdbcTemplateFactory.class);
+        when(jdbcTemplateFactory.getJdbcTemplate(anyString(), anyString())).thenReturn(shared);
+        HospitalConfigService hospitalConfigService = mock(HospitalConfigService.class);
+        when(hospitalConfigService.hasConfig(HOSPITAL_ID)).thenReturn(true);
+        SqlExecutionService concurrentService = new SqlExecutionService(jdbcTemplateFactory,
+                new SqlSecurityValidator(), hospitalConfigService);
+
+        SqlQueryRequest large = request(allPatients());
+        large.setMaxRows(200);
+        large.setTimeoutSeconds(300);
+        SqlQueryRequest small = request(allPatients());
+        small.setMaxRows(5);
+        small.setTimeoutSeconds(60);
+
+        CompletableFuture<SqlQueryResult> largeResult = CompletableFuture.supplyAsync(
+                () -> concurrentService.streamQuery(HOSPITAL_ID, large, row -> { }));
+        CompletableFuture<SqlQueryResult> smallResult = CompletableFuture.supplyAsync(
+                () -> concurrentService.streamQuery(HOSPITAL_ID, small, row -> { }));
+
+        SqlQueryResult largeRows = largeResult.get(30, TimeUnit.SECONDS);
+        SqlQueryResult smallRows = smallResult.get(30, TimeUnit.SECONDS);
+        assertTrue(largeRows.isSuccess(), largeRows.getErrorMessage());
+        assertTrue(smallRows.isSuccess(), smallRows.getErrorMessage());
+        assertEquals(200, largeRows.getRowCount());
+        assertEquals(5, smallRows.getRowCount());
+        assertEquals(1000, shared.getMaxRows());
+        assertEquals(30, shared.getQueryTimeout());
+    }
+
+    private static SqlQueryRequest request(List<String> patientIds) {
+        SqlQueryRequest request = new SqlQueryRequest();
+        request.setSql(SQL);
+        request.setParameters(Map.of("patientIds", patientIds));
+        request.setMaxRows(10000);
+        return request;
+    }
+
+    private static List<String> allPatients() {
+        return List.of("P0", "P1", "P2", "P3", "P4");
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.medaiassistant.hospital.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL安全验证器预编译规则与验证结论缓存测试
+ *
+ * <p>以原实现（逐个编译关键字正则）为参照，对比通过/拒绝结论和审计日志中的拒绝原因。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("SQL安全验证结论缓存测试")
+class SqlSecurityValidatorVerdictCacheTest {
+
+    private static final List<String> SAMPLES = List.of(
+        "SELECT * FROM LAB_RESULT WHERE PATIENT_ID = :patientId",
+        "select * from lab_result where patient_id = ?",
+        "  SELECT a, b FROM t",
+        "SELECT * FROM patients WHERE id = 1",
+        "SELECT * FROM patients WHERE name = 'test'",
+        "SELECT * FROM patients WHERE name =   '张三' AND dept = :dept",
+        "SELECT * FROM t WHERE x=42",
+        "SELECT updated_at, created_by FROM t WHERE id = :id",
+        "SELECT * FROM t; DROP TABLE t",
+        "SELECT * FROM t WHERE a = :a; delete from t",
+        "SELECT * FROM t UNION SELECT * FROM t2 WHERE 1 = 1",
+        "SELECT 'DROP' FROM dual",
+        "SELECT * FROM t WHERE note = 'update' AND id = :id",
+        "SELECT * FROM t WHERE x = :x; INSERT INTO t VALUES (1); UPDATE t SET a = 1",
+        "SELECT * FROM t WHERE x = :x; CREATE TABLE y (a int); GRANT ALL ON y TO z; REVOKE ALL ON y FROM z",
+        "SELECT * FROM t WHERE x = :x AND TRUNCATE_FLAG = 1",
+        "SELECT * FROM t WHERE x = :x; TRUNCATE TABLE t; ALTER TABLE t ADD c int; EXECUTE p",
+        "SELECT * FROM DROPPED_ITEMS WHERE id = :id",
+        "SELECT * FROM t WHERE dropped = :d OR deleted = :e",
+        "SELECT\nDROP\nFROM t",
+        "SELECT * FROM t WHERE x = :x -- drop",
+        "UPDATE t SET a = 1",
+        "drop table patients",
+        "WITH a AS (SELECT 1 FROM dual) SELECT * FROM a",
+        "SELECT * FROM t WHEREVER",
+        "SELECT * FROM t where a='x' and b = 2",
+        "SELECT * FROM t WHERE a = '1' AND b = ?",
+        "selectx * from t",
+        "SELECT * FROM EXECUTE_LOG WHERE ID = :id",
+        "SELECT * FROM t WHERE ID IN (:ids) AND STATUS = 'A'",
+        "SELECT * FROM t /* sleep */ WHERE a = :a",
+        "SELECT * FROM t WHERE a = :a UNION ALL SELECT * FROM all_users",
+        "SELECT * FROM t WHERE a = :a AND b IN (SELECT pg_sleep(5))"
+    );
+
+    private SqlSecurityValidator validator;
+    private Logger validatorLogger;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    void setUp() {
+        validator = new SqlSecurityValidator();
+        validatorLogger = (Logger) LoggerFactory.getLogger(SqlSecurityValidator.class);
+        appender = new ListAppender<>();
+        appender.start();
+        validatorLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorLogger.detachAppender(appender);
+        validatorLogger.setLevel(null);
+    }
+
+    @Test
+    @DisplayName("预编译规则的结论与拒绝原因和原实现一致，缓存命中后不变")
+    void testVerdictsMatchLegacyImplementation() {
+        LegacyValidator legacy = new LegacyValidator();
+        for (int pass = 0; pass < 2; pass++) {
+            for (String sql : SAMPLES) {
+                String expectedReason = legacy.rejectionReason(sql);
+                boolean safe = validator.isSqlSafe(sql);
+
+                assertEquals(expectedReason == null, safe, "结论不一致: " + sql);
+                if (!safe) {
+                    assertEquals(expectedReason, lastAuditReason(), "拒绝原因不一致: " + sql);
+                }
+            }
+        }
+        assertEquals((long) SAMPLES.size(), validator.getVerdictCacheStats().get("hits"));
+        assertEquals((long) SAMPLES.size(), validator.getVerdictCacheStats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("null和空字符串不缓存，仍按原原因拒绝")
+    void testNullAndBlankAreNotCached() {
+        assertFalse(validator.isSqlSafe(null));
+        assertEquals("SQL语句为null或空", lastAuditReason());
+        assertFalse(validator.isSqlSafe("   "));
+        assertEquals("SQL语句为null或空", lastAuditReason());
+        assertEquals(0, validator.getVerdictCacheStats().get("size"));
+    }
+
+    @Test
+    @DisplayName("自定义规则变更清空缓存，结论与原实现一致")
+    void testCustomRulesInvalidateCache() {
+        String sql = "SELECT * FROM t WHERE a = :a UNION ALL SELECT * FROM all_users";
+        assertTrue(validator.isSqlSafe(sql));
+        assertEquals(1, validator.getVerdictCacheStats().get("size"));
+
+        validator.addCustomSecurityRule("union\\s+all");
+        validator.addCustomSecurityRule("pg_sleep");
+        LegacyValidator legacy = new LegacyValidator();
+        legacy.customPatterns.addAll(validator.getCustomSecurityRules());
+        for (String sample : SAMPLES) {
+            String expectedReason = legacy.rejectionReason(sample);
+            assertEquals(expectedReason == null, validator.isSqlSafe(sample), "结论不一致: " + sample);
+            if (expectedReason != null) {
+                assertEquals(expectedReason, lastAuditReason(), "拒绝原因不一致: " + sample);
+            }
+        }
+        assertFalse(validator.isSqlSafe(sql));
+
+        validator.removeCustomSecurityRule("union\\s+all");
+        assertTrue(validator.isSqlSafe(sql));
+
+        // 无效的自定义正则在验证时按原实现以异常原因拒绝，且不缓存
+        validator.addCustomSecurityRule("(unclosed");
+        assertFalse(validator.isSqlSafe(sql));
+        assertTrue(lastAuditReason().startsWith("安全验证过程中发生异常: "));
+        validator.clearCustomSecurityRules();
+        assertTrue(validator.isSqlSafe(sql));
+    }
+
+    @Test
+    @DisplayName("写入缓存与规则变更交错时，旧规则下的结论不被使用")
+    void testRuleChangeDuringCacheWriteDoesNotKeepStaleVerdict() {
+        String sql = "SELECT * FROM t WHERE a = :a UNION ALL SELECT * FROM all_users";
+        // 在写入缓存的代数检查之后、put之前变更规则，复现另一线程的清空与写入交错
+        AtomicBoolean changeRuleOnPut = new AtomicBoolean(true);
+        ReflectionTestUtils.setField(validator, "verdictCache", new ConcurrentHashMap<String, Object>() {
+            @Override
+            public Object put(String key, Object value) {
+                if (changeRuleOnPut.compareAndSet(true, false)) {
+                    validator.addCustomSecurityRule("union\\s+all");
+                }
+                return super.put(key, value);
+            }
+        });
+
+        assertTrue(validator.isSqlSafe(sql));
+        assertEquals(0, validator.getVerdictCacheStats().get("size"));
+
+        assertFalse(validator.isSqlSafe(sql));
+        assertEquals("SQL语句违反自定义安全规则: union\\s+all", lastAuditReason());
+        assertFalse(validator.isSqlSafe(sql));
+        assertEquals(1L, validator.getVerdictCacheStats().get("hits"));
+    }
+
+    @Test
+    @DisplayName("缓存命中的通过结论仍记录审计日志")
+    void testCachedAcceptIsAudited() {
+        String sql = "SELECT * FROM LAB_RESULT WHERE PATIENT_ID = :patientId";
+        assertTrue(validator.isSqlSafe(sql));
+        long auditsBefore = auditCount();
+
+        assertTrue(validator.isSqlSafe(sql));
+
+        assertEquals(1L, validator.getVerdictCacheStats().get("hits"));
+        assertEquals(auditsBefore + 1, auditCount());
+        assertEquals("SQL语句安全验证通过", lastAuditReason());
+    }
+
+    @Test
+    @DisplayName("缓存有容量上限")
+    void testCacheIsBounded() {
+        ReflectionTestUtils.setField(validator, "verdictCacheSize", 8);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(validator.isSqlSafe("SELECT * FROM t" + i + " WHERE id = :id"));
+            assertTrue((int) validator.getVerdictCacheStats().get("size") <= 8);
+        }
+
+        ReflectionTestUtils.setField(validator, "verdictCacheSize", 0);
+        validator.clearVerdictCache();
+        assertTrue(validator.isSqlSafe("SELECT * FROM t WHERE id = :id"));
+        assertEquals(0, validator.getVerdictCacheStats().get("size"));
+    }
+
+    @Test
+    @DisplayName("模板重新加载后清空缓存")
+    void testTemplateReloadClearsCache(@TempDir Path templateDir) throws Exception {
+        TemplateCache templateCache = new TemplateCache(new JsonTemplateParser());
+        validator.setTemplateCache(templateCache);
+        Path file = templateDir.resolve("lab.json");
+        Files.writeString(file, """
+            {
+                "queryName": "labResults",
+                "sql": "SELECT * FROM LAB_RESULT WHERE PATIENT_ID = :patientId"
+            }
+            """);
+        String sql = templateCache.getTemplate(file.toString()).getSql();
+
+        assertTrue(validator.isSqlSafe(sql));
+        assertEquals(1, validator.getVerdictCacheStats().get("size"));
+
+        templateCache.onFileChanged(file.toString());
+        assertEquals(0, validator.getVerdictCacheStats().get("size"));
+
+        assertTrue(validator.isSqlSafe(sql));
+        templateCache.reloadAllTemplates();
+        assertEquals(0, validator.getVerdictCacheStats().get("size"));
+    }
+
+    @Test
+    @DisplayName("重复验证同一模板SQL的耗时：缓存对比原实现")
+    void testRepeatedValidationThroughput() {
+        validatorLogger.setLevel(Level.OFF);
+        LegacyValidator legacy = new LegacyValidator();
+        List<String> templateSql = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            templateSql.add("SELECT a.PATIENT_ID, a.ITEM_NAME, a.RESULT_VALUE, a.UNIT, a.REPORT_TIME FROM LAB_RESULT_"
+                + i + " a JOIN LAB_MASTER b ON a.REQ_NO = b.REQ_NO WHERE a.PATIENT_ID IN (:patientIds)"
+                + " AND b.STATUS = :status ORDER BY a.REPORT_TIME");
+        }
+        int iterations = 50_000;
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int legacySafe = 0;
+            for (int i = 0; i < iterations; i++) {
+                if (legacy.rejectionReason(templateSql.get(i % templateSql.size())) == null) {
+                    legacySafe++;
+                }
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int cachedSafe = 0;
+            for (int i = 0; i < iterations; i++) {
+                if (validator.isSqlSafe(templateSql.get(i % templateSql.size()))) {
+                    cachedSafe++;
+                }
+            }
+            long cachedNanos = System.nanoTime() - start;
+
+            assertEquals(iterations, legacySafe);
+            assertEquals(iterations, cachedSafe);
+            System.out.printf("第%d轮 %,d 次验证 - 原实现: %dms, 预编译+结论缓存: %dms, 比值: %.1fx%n",
+                round + 1, iterations, legacyNanos / 1_000_000, cachedNanos / 1_000_000,
+                (double) legacyNanos / Math.max(1, cachedNanos));
+        }
+    }
+
+    /**
+     * 已记录的审计日志条数
+     */
+    private long auditCount() {
+        return appender.list.stream()
+            .filter(event -> event.getFormattedMessage().startsWith("SQL安全审计"))
+            .count();
+    }
+
+    /**
+     * 最近一条审计日志中的原因
+     */
+    private String lastAuditReason() {
+        for (int i = appender.list.size() - 1; i >= 0; i--) {
+            String message = appender.list.get(i).getFormattedMessage();
+            if (message.startsWith("SQL安全审计")) {
+                int start = message.indexOf("| 原因: ") + "| 原因: ".length();
+                return message.substring(start, message.lastIndexOf(" | SQL: "));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 原实现的验证逻辑（每次调用逐个编译关键字正则），返回拒绝原因，通过时返回null
+     */
+    private static final class LegacyValidator {
+
+        private static final Set<String> DANGEROUS_KEYWORDS = new HashSet<>(Arrays.asList(
+            "DROP", "DELETE", "UPDATE", "INSERT", "ALTER",
+            "TRUNCATE", "CREATE", "GRANT", "REVOKE", "EXECUTE"
+        ));
+
+        private final Set<String> customPatterns = new HashSet<>();
+
+        private String rejectionReason(String sql) {
+            if (sql == null || sql.trim().isEmpty()) {
+                return "SQL语句为null或空";
+            }
+            String upperSql = sql.toUpperCase().trim();
+            if (!upperSql.startsWith("SELECT")) {
+                return "SQL语句不是SELECT查询";
+            }
+            for (String keyword : DANGEROUS_KEYWORDS) {
+                if (Pattern.compile("\\b" + keyword + "\\b").matcher(upperSql).find()) {
+                    return "SQL语句包含危险关键字: " + keyword;
+                }
+            }
+            for (String customPattern : customPatterns) {
+                if (Pattern.compile(customPattern, Pattern.CASE_INSENSITIVE).matcher(sql).find()) {
+                    return "SQL语句违反自定义安全规则: " + customPattern;
+                }
+            }
+            String lowerSql = sql.toLowerCase();
+            int whereIndex = lowerSql.indexOf("where");
+            if (whereIndex == -1 || sql.contains(":") || sql.contains("?")) {
+                return null;
+            }
+            String whereClause = lowerSql.substring(whereIndex + 5);
+            return Pattern.compile("=\\s*\\d+|=\\s*'[^']*'").matcher(whereClause).find()
+                ? "SQL语句未使用参数化查询，可能存在SQL注入风险" : null;
+        }
+    }
+}
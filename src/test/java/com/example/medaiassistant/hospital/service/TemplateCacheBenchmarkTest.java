@@ -0,0 +1,208 @@
+package com.example.medaiassistant.hospital.service;
+
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TemplateCache并发读取微基准测试
+ *
+ * <p>多个读线程按查询名称和文件路径查找模板，同时一个写线程不断触发文件变更重新加载，
+ * 对比快照缓存与原读写锁加线性查找实现的读取吞吐量。</p>
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("模板缓存并发读取基准测试")
+class TemplateCacheBenchmarkTest {
+
+    private static final int TEMPLATES = 200;
+    private static final int READERS = 4;
+    private static final long PHASE_MILLIS = 500;
+
+    @TempDir
+    Path templateDir;
+
+    private final List<String> filePaths = new ArrayList<>();
+    private final List<String> queryNames = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < TEMPLATES; i++) {
+            Path file = templateDir.resolve("template-" + i + ".json");
+            Files.writeString(file, templateJson(i, 1));
+            filePaths.add(file.toString());
+            queryNames.add("query" + i);
+        }
+    }
+
+    @Test
+    @DisplayName("按名称、路径和分类索引查找，重新加载后索引一致")
+    void testIndexesFollowReload() throws IOException {
+        TemplateCache cache = new TemplateCache(new JsonTemplateParser());
+        filePaths.forEach(cache::loadTemplate);
+
+        assertEquals(TEMPLATES, cache.getCacheSize());
+        assertEquals("query7", cache.getTemplateByName("query7").getQueryName());
+        assertEquals(TEMPLATES / 2, cache.getTemplatesByCategory("lab").size());
+        assertTrue(cache.getTemplatesByCategory("missing").isEmpty());
+
+        Files.writeString(Path.of(filePaths.get(7)), templateJson(7, 2).replace("\"order\"", "\"lab\""));
+        cache.onFileChanged(filePaths.get(7));
+
+        assertEquals("2.0", cache.getTemplateByName("query7").getMetadata().getVersion());
+        assertSame(cache.getTemplate(filePaths.get(7)), cache.getTemplateByName("query7"));
+        assertEquals(TEMPLATES / 2 + 1, cache.getTemplatesByCategory("lab").size());
+        assertEquals(TEMPLATES / 2 - 1, cache.getTemplatesByCategory("order").size());
+
+        // 变更后的文件无效时保留上一个有效版本
+        Files.writeString(Path.of(filePaths.get(7)), "{ invalid");
+        cache.onFileChanged(filePaths.get(7));
+        assertEquals("2.0", cache.getTemplateByName("query7").getMetadata().getVersion());
+
+        assertTrue(cache.removeTemplate(filePaths.get(8)));
+        assertNull(cache.getTemplateByName("query8"));
+        assertEquals(TEMPLATES - 1, cache.reloadAllTemplates());
+        assertEquals(TEMPLATES - 1, cache.getCacheSize());
+    }
+
+    @Test
+    @DisplayName("并发重新加载时的读取吞吐量：快照缓存对比读写锁加线性查找")
+    void testReaderThroughputUnderConcurrentReloads() throws Exception {
+        TemplateCache cache = new TemplateCache(new JsonTemplateParser());
+        filePaths.forEach(cache::loadTemplate);
+        LockedLinearCache baseline = new LockedLinearCache(new JsonTemplateParser());
+        filePaths.forEach(baseline::load);
+
+        for (int round = 0; round < 2; round++) {
+            ThroughputResult snapshotResult = measure(cache::getTemplateByName,
+                    () -> cache.onFileChanged(filePaths.get(0)));
+            ThroughputResult lockedResult = measure(baseline::getByName,
+                    () -> baseline.load(filePaths.get(0)));
+
+            assertEquals(0, snapshotResult.misses, "快照缓存重新加载期间读取不应返回null");
+            assertEquals(0, lockedResult.misses);
+            assertTrue(snapshotResult.reloads > 0 && lockedResult.reloads > 0);
+            System.out.printf("第%d轮 %d个读线程 %dms - 快照缓存: %,d 次读取 (%d 次重新加载), "
+                            + "读写锁+线性查找: %,d 次读取 (%d 次重新加载), 比值: %.1fx%n",
+                    round + 1, READERS, PHASE_MILLIS, snapshotResult.reads, snapshotResult.reloads,
+                    lockedResult.reads, lockedResult.reloads,
+                    (double) snapshotResult.reads / Math.max(1, lockedResult.reads));
+        }
+    }
+
+    private ThroughputResult measure(Function<String, SqlTemplate> reader, Runnable reload) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        AtomicLong reloads = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(READERS + 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            for (int r = 0; r < READERS; r++) {
+                int offset = r;
+                executor.submit(() -> {
+                    started.countDown();
+                    long local = 0;
+                    int i = offset;
+                    while (running.get()) {
+                        if (reader.apply(queryNames.get(i++ % TEMPLATES)) == null) {
+                            misses.incrementAndGet();
+                        }
+                        local++;
+                    }
+                    reads.addAndGet(local);
+                });
+            }
+            executor.submit(() -> {
+                started.countDown();
+                while (running.get()) {
+                    reload.run();
+                    reloads.incrementAndGet();
+                }
+            });
+            started.await();
+            Thread.sleep(PHASE_MILLIS);
+            running.set(false);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        return new ThroughputResult(reads.get(), misses.get(), reloads.get());
+    }
+
+    private static String templateJson(int index, int version) {
+        return """
+            {
+                "queryName": "query%d",
+                "description": "基准测试模板%d",
+                "sql": "SELECT * FROM LAB_RESULT WHERE PATIENT_ID = :patientId",
+                "metadata": {
+                    "category": "%s",
+                    "version": "%d.0"
+                }
+            }
+            """.formatted(index, index, index % 2 == 0 ? "lab" : "order", version);
+    }
+
+    private record ThroughputResult(long reads, long misses, long reloads) {
+    }
+
+    /**
+     * 原实现的读取方式：读写锁保护，按名称线性查找，重新加载时先移除再加载
+     */
+    private static final class LockedLinearCache {
+
+        private final JsonTemplateParser parser;
+        private final Map<String, SqlTemplate> templates = new ConcurrentHashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private LockedLinearCache(JsonTemplateParser parser) {
+            this.parser = parser;
+        }
+
+        private SqlTemplate getByName(String queryName) {
+            lock.readLock().lock();
+            try {
+                return templates.values().stream()
+                        .filter(template -> queryName.equals(template.getQueryName()))
+                        .findFirst()
+                        .orElse(null);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void load(String filePath) {
+            lock.writeLock().lock();
+            try {
+                templates.put(filePath, parser.parseFromFile(Path.of(filePath)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.medaiassistant.hospital.util;
+
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
+import com.example.medaiassistant.hospital.service.DynamicJdbcTemplateFactory;
+import com.example.medaiassistant.hospital.service.HospitalConfigService;
+import com.example.medaiassistant.hospital.service.SqlExecutionService;
+import com.example.medaiassistant.hospital.service.SqlSecurityValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TemplateRowMapper测试（H2内存数据库模拟HIS）
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("模板行映射器测试")
+class TemplateRowMapperTest {
+
+    private static final String HOSPITAL_ID = "hospital-mapper";
+    private static final String URL = "jdbc:h2:mem:template_row_mapper;DB_CLOSE_DELAY=-1";
+    private static final int ROWS = 20000;
+    private static final String SQL = "SELECT ID, PATIENT_ID AS patient_id, LAB_RESULT, AMOUNT, REPORT_TIME, "
+            + "REPORT_TEXT, CONTENT FROM LAB_ROWS ORDER BY ID";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE LAB_ROWS (ID INT PRIMARY KEY, PATIENT_ID VARCHAR(20), "
+                + "LAB_RESULT VARCHAR(50), AMOUNT DECIMAL(10, 2), REPORT_TIME TIMESTAMP, REPORT_TEXT VARCHAR(20), "
+                + "CONTENT CLOB)");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String reportText = i % 100 == 99 ? "未出报告" : String.format("20240105 08%02d%02d", i % 60, i % 60);
+            rows.add(new Object[]{i, "P" + (i % 50), i % 7 == 0 ? null : " " + i + " ", new BigDecimal(i + ".50"),
+                Timestamp.valueOf("2024-01-05 08:00:00"), reportText, "内容" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO LAB_ROWS VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE LAB_ROWS");
+    }
+
+    @Test
+    @DisplayName("未声明列时取值与ColumnMapRowMapper一致，列名大小写不敏感")
+    void testMatchesColumnMapRowMapper() {
+        TemplateRowMapper mapper = new TemplateRowMapper(null);
+
+        List<Map<String, Object>> expected = jdbcTemplate.query(SQL + " LIMIT 50", new ColumnMapRowMapper());
+        List<Map<String, Object>> actual = jdbcTemplate.query(SQL + " LIMIT 50", mapper);
+
+        assertEquals(expected, actual);
+        Map<String, Object> row = actual.get(1);
+        assertEquals("P1", row.get("patient_id"));
+        assertEquals("P1", row.get("PATIENT_ID"));
+        assertEquals(" 1 ", row.get("lab_result"));
+        assertInstanceOf(Timestamp.class, row.get("REPORT_TIME"));
+        assertInstanceOf(String.class, row.get("CONTENT"));
+        assertNull(actual.get(0).get("LAB_RESULT"));
+        assertTrue(actual.get(0).containsKey("LAB_RESULT"));
+        assertFalse(row.containsKey("MISSING"));
+        assertEquals(expected.get(1).keySet(), row.keySet());
+
+        row.put("LAB_RESULT", "changed");
+        row.put("EXTRA", 1);
+        assertEquals("changed", row.get("lab_result"));
+        assertEquals(1, row.get("extra"));
+        assertEquals(8, row.size());
+    }
+
+    @Test
+    @DisplayName("声明了格式的字符时间列解析为Timestamp，无法解析时保留原字符串")
+    void testDeclaredTimestampFormat() {
+        SqlTemplate template = new SqlTemplate();
+        template.setColumns(List.of(column("report_text", "timestamp", "yyyyMMdd HHmmss")));
+
+        List<Map<String, Object>> rows = jdbcTemplate.query(SQL + " LIMIT 100", template.getRowMapper());
+
+        assertEquals(Timestamp.valueOf("2024-01-05 08:01:01"), rows.get(1).get("REPORT_TEXT"));
+        assertEquals("未出报告", rows.get(99).get("REPORT_TEXT"));
+    }
+
+    @Test
+    @DisplayName("列结构不变时复用编译结果，变化时重新编译；重新设置列声明后模板重新编译")
+    void testCompiledMapperReuse() {
+        SqlTemplate template = new SqlTemplate();
+        TemplateRowMapper mapper = template.getRowMapper();
+        assertSame(mapper, template.getRowMapper());
+
+        ResultSetExtractor<TemplateRowMapper.CompiledMapper> compile = rs -> mapper.compile(rs.getMetaData());
+        TemplateRowMapper.CompiledMapper first = jdbcTemplate.query(SQL, compile);
+        TemplateRowMapper.CompiledMapper second = jdbcTemplate.query(SQL, compile);
+        TemplateRowMapper.CompiledMapper other = jdbcTemplate.query("SELECT ID, CONTENT FROM LAB_ROWS", compile);
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+
+        template.setColumns(List.of(column("REPORT_TEXT", "timestamp", "yyyyMMdd HHmmss")));
+        assertNotSame(mapper, template.getRowMapper());
+    }
+
+    @Test
+    @DisplayName("SqlExecutionService按请求中的模板行映射器查询和流式读取")
+    void testSqlExecutionServiceUsesTemplateRowMapper() {
+        DynamicJdbcTemplateFactory jdbcTemplateFactory = mock(DynamicJdbcTemplateFactory.class);
+        when(jdbcTemplateFactory.getJdbcTemplate(anyString(), anyString())).thenReturn(jdbcTemplate);
+        HospitalConfigService hospitalConfigService = mock(HospitalConfigService.class);
+        when(hospitalConfigService.hasConfig(HOSPITAL_ID)).thenReturn(true);
+        SqlExecutionService service = new SqlExecutionService(jdbcTemplateFactory, new SqlSecurityValidator(),
+                hospitalConfigService);
+
+        SqlTemplate template = new SqlTemplate();
+        template.setSql("SELECT ID, REPORT_TEXT FROM LAB_ROWS WHERE PATIENT_ID = :patientId ORDER BY ID");
+        template.setColumns(List.of(column("REPORT_TEXT", "timestamp", "yyyyMMdd HHmmss")));
+        SqlQueryRequest request = new SqlQueryRequest();
+        request.setSql(template.getEffectiveSql());
+        request.setParameters(Map.of("patientId", "P1"));
+        request.setRowMapper(template.getRowMapper());
+
+        SqlQueryResult result = service.executeQuery(HOSPITAL_ID, request);
+        List<Object> streamed = new ArrayList<>();
+        service.streamQuery(HOSPITAL_ID, request, row -> streamed.add(row.get("report_text")));
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(400, result.getData().size());
+        assertEquals(Timestamp.valueOf("2024-01-05 08:01:01"), result.getData().get(0).get("REPORT_TEXT"));
+        assertEquals(400, streamed.size());
+        assertEquals(Timestamp.valueOf("2024-01-05 08:01:01"), streamed.get(0));
+    }
+
+    @Test
+    @DisplayName("性能对比：编译映射器与ColumnMapRowMapper加逐行解析时间字符串")
+    void testCompiledMapperThroughput() {
+        SqlTemplate template = new SqlTemplate();
+        template.setColumns(List.of(column("REPORT_TEXT", "timestamp", "yyyyMMdd HHmmss")));
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            List<Object> baseline = new ArrayList<>();
+            jdbcTemplate.query(SQL, new ColumnMapRowMapper())
+                .forEach(row -> baseline.add(parseWithSimpleDateFormat(row.get("REPORT_TEXT"))));
+            long baselineMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            List<Object> compiled = new ArrayList<>();
+            jdbcTemplate.query(SQL, template.getRowMapper()).forEach(row -> compiled.add(row.get("REPORT_TEXT")));
+            long compiledMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(ROWS, compiled.size());
+            assertEquals(baseline.get(1), compiled.get(1));
+            System.out.println("第" + (round + 1) + "轮 " + ROWS + " 行 - ColumnMapRowMapper+逐行解析: " + baselineMs
+                    + "ms, 模板行映射器: " + compiledMs + "ms");
+        }
+    }
+
+    /**
+     * 原同步服务的解析方式：每次新建SimpleDateFormat
+     */
+    private static Object parseWithSimpleDateFormat(Object value) {
+        try {
+            return new Timestamp(new SimpleDateFormat("yyyyMMdd HHmmss").parse(value.toString()).getTime());
+        } catch (ParseException e) {
+            return value;
+        }
+    }
+
+    private static SqlTemplate.Column column(String name, String type, String format) {
+        SqlTemplate.Column column = new SqlTemplate.Column();
+        column.setName(name);
+        column.setType(type);
+        column.setFormat(format);
+        return column;
+    }
+}
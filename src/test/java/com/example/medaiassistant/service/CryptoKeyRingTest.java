@@ -0,0 +1,155 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.ServerConfiguration;
+import com.example.medaiassistant.util.AESEncryptionUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CryptoKeyRing单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AES密钥环测试")
+class CryptoKeyRingTest {
+
+    @Mock
+    private ServerConfigService serverConfigService;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private CryptoKeyRing keyRing;
+
+    @BeforeEach
+    void setUp() {
+        keyRing = new CryptoKeyRing(serverConfigService, now::get);
+    }
+
+    @Test
+    @DisplayName("配置未变化时只读取并派生一次密钥")
+    void testDerivesKeyOnce() throws Exception {
+        stubConfig("secret-key", "salt-value");
+
+        String encrypted = keyRing.encrypt("患者病历摘要");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("患者病历摘要", keyRing.decrypt(encrypted));
+        }
+
+        verify(serverConfigService, times(1)).getConfigByName(CryptoKeyRing.KEY_CONFIG_NAME);
+        verify(serverConfigService, times(1)).getConfigByName(CryptoKeyRing.SALT_CONFIG_NAME);
+        assertEquals(1, keyRing.currentKey().getVersion());
+    }
+
+    @Test
+    @DisplayName("与字符串形式的AESEncryptionUtil接口互通")
+    void testInteroperatesWithStringApi() throws Exception {
+        stubConfig("secret-key", "salt-value");
+
+        String fromRing = keyRing.encrypt("血常规结果");
+        String fromUtil = AESEncryptionUtil.encrypt("影像检查结果", "secret-key", "salt-value");
+
+        assertEquals("血常规结果", AESEncryptionUtil.decrypt(fromRing, "secret-key", "salt-value"));
+        assertEquals("影像检查结果", keyRing.decrypt(fromUtil));
+    }
+
+    @Test
+    @DisplayName("通过ServerConfigService保存配置后立即轮换密钥")
+    void testRotatesWhenRevisionChanges() throws Exception {
+        stubConfig("old-key", "salt-value");
+        String encryptedWithOldKey = keyRing.encrypt("医嘱内容");
+
+        stubConfig("new-key", "salt-value");
+        when(serverConfigService.getConfigRevision()).thenReturn(1L);
+
+        String encryptedWithNewKey = keyRing.encrypt("医嘱内容");
+
+        assertEquals(2, keyRing.currentKey().getVersion());
+        assertEquals("医嘱内容", AESEncryptionUtil.decrypt(encryptedWithNewKey, "new-key", "salt-value"));
+        assertEquals("医嘱内容", AESEncryptionUtil.decrypt(encryptedWithOldKey, "old-key", "salt-value"));
+    }
+
+    @Test
+    @DisplayName("重新校验间隔到期后发现数据库中的配置变更")
+    void testRevalidatesAfterInterval() throws Exception {
+        stubConfig("old-key", "salt-value");
+        keyRing.currentKey();
+
+        stubConfig("new-key", "salt-value");
+        now.addAndGet(CryptoKeyRing.REVALIDATE_INTERVAL_MILLIS - 1);
+        assertEquals(1, keyRing.currentKey().getVersion(), "间隔未到期时应继续使用缓存");
+
+        now.addAndGet(1);
+        assertEquals(2, keyRing.currentKey().getVersion());
+    }
+
+    @Test
+    @DisplayName("重新校验时配置内容未变化则沿用原密钥版本")
+    void testKeepsVersionWhenMaterialUnchanged() throws Exception {
+        stubConfig("secret-key", "salt-value");
+        CryptoKeyRing.KeyVersion first = keyRing.currentKey();
+
+        when(serverConfigService.getConfigRevision()).thenReturn(5L);
+        CryptoKeyRing.KeyVersion second = keyRing.currentKey();
+
+        assertEquals(first.getVersion(), second.getVersion());
+        assertSame(first.getKeySpec(), second.getKeySpec());
+        verify(serverConfigService, times(2)).getConfigByName(CryptoKeyRing.KEY_CONFIG_NAME);
+    }
+
+    @Test
+    @DisplayName("invalidate后重新读取配置")
+    void testInvalidate() throws Exception {
+        stubConfig("secret-key", "salt-value");
+        keyRing.currentKey();
+
+        keyRing.invalidate();
+        keyRing.currentKey();
+
+        verify(serverConfigService, times(2)).getConfigByName(CryptoKeyRing.KEY_CONFIG_NAME);
+    }
+
+    @Test
+    @DisplayName("配置记录缺失时抛出IllegalStateException")
+    void testMissingConfig() throws Exception {
+        when(serverConfigService.getConfigByName(CryptoKeyRing.KEY_CONFIG_NAME)).thenReturn(null);
+        when(serverConfigService.getConfigByName(CryptoKeyRing.SALT_CONFIG_NAME)).thenReturn(null);
+
+        assertFalse(keyRing.isConfigured());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> keyRing.encrypt("内容"));
+        assertEquals("AES加密配置未找到", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("密钥或盐值为空白时视为未配置")
+    void testBlankConfig() throws Exception {
+        stubConfig("   ", "salt-value");
+        assertFalse(keyRing.isConfigured());
+
+        keyRing.invalidate();
+        stubConfig("", "salt-value");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> keyRing.encrypt("内容"));
+        assertEquals("加密密钥不能为空", e.getMessage());
+    }
+
+    private void stubConfig(String key, String salt) {
+        when(serverConfigService.getConfigByName(CryptoKeyRing.KEY_CONFIG_NAME)).thenReturn(config(key));
+        when(serverConfigService.getConfigByName(CryptoKeyRing.SALT_CONFIG_NAME)).thenReturn(config(salt));
+    }
+
+    private static ServerConfiguration config(String data) {
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setConfigData(data);
+        return configuration;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.medaiassistant.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DailyPromptProgress单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("每日Prompt生成进度测试")
+class DailyPromptProgressTest {
+
+    private final AtomicLong now = new AtomicLong(1_762_650_000_000L);
+
+    @Test
+    @DisplayName("按已处理患者的平均耗时推算剩余时间")
+    void testEstimatesRemainingTime() {
+        DailyPromptProgress progress = new DailyPromptProgress(now::get);
+        assertEquals(-1, progress.estimateRemainingMillis(), "总数未知时无法推算");
+
+        progress.setTotalPatients(10);
+        assertEquals(-1, progress.estimateRemainingMillis(), "尚未处理患者时无法推算");
+
+        now.addAndGet(4_000);
+        progress.recordSuccess(3);
+        progress.recordFailure();
+
+        assertEquals(16_000, progress.estimateRemainingMillis());
+        assertEquals(20.0, progress.getPercentComplete());
+        Map<String, Object> map = progress.toMap();
+        assertEquals(2, map.get("processedPatients"));
+        assertEquals(1, map.get("failedPatients"));
+        assertEquals(3, map.get("promptsGenerated"));
+        assertEquals(16L, map.get("etaSeconds"));
+        assertEquals(false, map.get("finished"));
+    }
+
+    @Test
+    @DisplayName("运行结束后耗时固定，剩余时间为0")
+    void testFinishedRun() {
+        DailyPromptProgress progress = new DailyPromptProgress(now::get);
+        progress.setTotalPatients(0);
+
+        now.addAndGet(3_000);
+        progress.markFinished();
+        now.addAndGet(60_000);
+
+        assertTrue(progress.isFinished());
+        assertEquals(3_000, progress.getElapsedMillis());
+        assertEquals(0, progress.estimateRemainingMillis());
+        assertEquals(100.0, progress.getPercentComplete());
+        assertEquals("100.0%", progress.toMap().get("percentComplete"));
+    }
+}
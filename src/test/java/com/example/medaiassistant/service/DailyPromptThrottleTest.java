@@ -0,0 +1,113 @@
+package com.example.medaiassistant.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DailyPromptThrottle单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("每日Prompt生成自适应并发闸门测试")
+class DailyPromptThrottleTest {
+
+    private final AtomicInteger threadsAwaiting = new AtomicInteger();
+
+    @Test
+    @DisplayName("并发上限取maxConcurrency与可用连接数扣除预留后的较小值，至少为1")
+    void testComputeCeiling() {
+        assertEquals(5, DailyPromptThrottle.computeCeiling(5, 20, 2));
+        assertEquals(2, DailyPromptThrottle.computeCeiling(5, 4, 2));
+        assertEquals(1, DailyPromptThrottle.computeCeiling(5, 1, 2));
+        assertEquals(5, DailyPromptThrottle.computeCeiling(5, -1, 2), "连接池状态未知时只按maxConcurrency限制");
+        assertEquals(1, DailyPromptThrottle.computeCeiling(0, -1, 2));
+    }
+
+    @Test
+    @DisplayName("有线程等待连接时许可减半，减半前已在处理中的患者不重复减半")
+    void testHalvesOnceWhenThreadsAwaitConnection() throws InterruptedException {
+        DailyPromptThrottle throttle = newThrottle(8, 2000);
+        for (int i = 0; i < 8; i++) {
+            throttle.acquire();
+        }
+
+        threadsAwaiting.set(3);
+        for (int i = 0; i < 8; i++) {
+            throttle.release(10);
+        }
+
+        assertEquals(4, throttle.getLimit());
+        assertEquals(4, throttle.availablePermits());
+        assertEquals(0, throttle.getBackoffMillis());
+    }
+
+    @Test
+    @DisplayName("拥塞解除后每顺畅完成一轮许可加1，不超过上限")
+    void testAdditiveIncreaseUpToCeiling() throws InterruptedException {
+        DailyPromptThrottle throttle = newThrottle(4, 2000);
+        threadsAwaiting.set(1);
+        complete(throttle, 1);
+        assertEquals(2, throttle.getLimit());
+
+        threadsAwaiting.set(0);
+        complete(throttle, 2);
+        assertEquals(3, throttle.getLimit());
+        complete(throttle, 3);
+        assertEquals(4, throttle.getLimit());
+        complete(throttle, 10);
+        assertEquals(4, throttle.getLimit());
+        assertEquals(4, throttle.availablePermits());
+    }
+
+    @Test
+    @DisplayName("处理耗时超过基线2倍时许可减半")
+    void testHalvesWhenLatencyDegrades() throws InterruptedException {
+        DailyPromptThrottle throttle = newThrottle(4, 2000);
+        for (int i = 0; i < DailyPromptThrottle.BASELINE_WARMUP_SAMPLES; i++) {
+            throttle.acquire();
+            throttle.release(10);
+        }
+        assertEquals(4, throttle.getLimit());
+        assertEquals(10, throttle.getAverageLatencyMillis());
+
+        throttle.acquire();
+        throttle.release(100);
+
+        assertEquals(2, throttle.getLimit());
+    }
+
+    @Test
+    @DisplayName("许可为1仍拥塞时指数退避，恢复后取消退避")
+    void testBackoffAtMinimumConcurrency() throws InterruptedException {
+        DailyPromptThrottle throttle = newThrottle(1, 300);
+        threadsAwaiting.set(1);
+
+        complete(throttle, 1);
+        assertEquals(100, throttle.getBackoffMillis());
+        complete(throttle, 1);
+        assertEquals(200, throttle.getBackoffMillis());
+        complete(throttle, 1);
+        assertEquals(300, throttle.getBackoffMillis());
+
+        threadsAwaiting.set(0);
+        complete(throttle, 1);
+        assertEquals(0, throttle.getBackoffMillis());
+        assertEquals(1, throttle.getLimit());
+    }
+
+    private DailyPromptThrottle newThrottle(int ceiling, long maxBackoffMillis) {
+        return new DailyPromptThrottle(ceiling, maxBackoffMillis, threadsAwaiting::get);
+    }
+
+    private static void complete(DailyPromptThrottle throttle, int patients) throws InterruptedException {
+        for (int i = 0; i < patients; i++) {
+            throttle.acquire();
+            throttle.release(10);
+        }
+    }
+}
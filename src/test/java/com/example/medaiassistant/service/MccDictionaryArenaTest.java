@@ -0,0 +1,169 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.model.DrgMcc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MccDictionaryArena单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("MCC字典紧凑存储测试")
+class MccDictionaryArenaTest {
+
+    @Test
+    @DisplayName("应按原始顺序保存标准化名称、编码和类型标志")
+    void shouldPackNormalizedNamesInOrder() {
+        // Given
+        List<DrgMcc> mccs = Arrays.asList(
+            new DrgMcc(1L, " I48.000 ", "心房颤动（持续性）", null, "MCC"),
+            new DrgMcc(2L, "I50.000", "心力衰竭", null, "cc"),
+            new DrgMcc(3L, null, null, null, null)
+        );
+
+        // When
+        MccDictionaryArena arena = MccDictionaryArena.build(mccs, name -> name.replace("（持续性）", ""));
+
+        // Then
+        assertThat(arena.size()).isEqualTo(3);
+        assertThat(arena.entry(0)).isSameAs(mccs.get(0));
+        assertThat(arena.normalizedName(0).toString()).isEqualTo("心房颤动");
+        assertThat(arena.normalizedName(1).toString()).isEqualTo("心力衰竭");
+        assertThat(arena.normalizedNameLength(1)).isEqualTo(4);
+        assertThat(arena.trimmedCode(0)).isEqualTo("I48.000");
+        assertThat(arena.typeFlag(0)).isEqualTo(MccDictionaryArena.TYPE_MCC);
+        assertThat(arena.typeFlag(1)).isEqualTo(MccDictionaryArena.TYPE_CC);
+
+        // 名称为空的记录不参与名称匹配
+        assertThat(arena.hasName(2)).isFalse();
+        assertThat(arena.normalizedName(2)).isNull();
+        assertThat(arena.trimmedCode(2)).isNull();
+        assertThat(arena.typeFlag(2)).isEqualTo(MccDictionaryArena.TYPE_OTHER);
+    }
+
+    @Test
+    @DisplayName("标准化结果为null时名称视图应为null")
+    void shouldKeepNullNormalizedName() {
+        MccDictionaryArena arena = MccDictionaryArena.build(
+            List.of(new DrgMcc(1L, "I10", "高血压", null, "CC")), name -> null);
+
+        assertThat(arena.hasName(0)).isTrue();
+        assertThat(arena.normalizedName(0)).isNull();
+    }
+
+    @Test
+    @DisplayName("排除编码应按逗号、分号、空白预先拆分并去除空项")
+    void shouldPreSplitExclusionCodes() {
+        // Given
+        List<DrgMcc> mccs = Arrays.asList(
+            new DrgMcc(1L, "A", "甲", " I10 ,I11;; I12\tI13 ", "MCC"),
+            new DrgMcc(2L, "B", "乙", "   ", "MCC"),
+            new DrgMcc(3L, "C", "丙", null, "MCC"),
+            new DrgMcc(4L, "D", "丁", ",;", "MCC")
+        );
+
+        // When
+        MccDictionaryArena arena = MccDictionaryArena.build(mccs, name -> name);
+
+        // Then
+        assertThat(arena.exclusionCodes(0)).containsExactly("I10", "I11", "I12", "I13");
+        assertThat(arena.exclusionCodes(1)).isEmpty();
+        assertThat(arena.exclusionCodes(2)).isEmpty();
+        assertThat(arena.exclusionCodes(3)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("排除判定应与按正则拆分后逐项忽略大小写比较一致")
+    void shouldMatchRegexExclusionRules() {
+        // 分隔符、控制字符、非\s空白、大小写折叠特殊字符（开尔文符号、带点I、无点i、ß）及补充平面字符
+        int[] alphabet = "Ii1.0xX,; \t\n\u000B\f\r\u0001\u001C\u00A0\u2003K\u212Ak\u0130\u0131\u00DF\u00B5\u00FF\uD801\uDC00\uD801\uDC28aA"
+            .codePoints().toArray();
+        SplittableRandom random = new SplittableRandom(20251109);
+        int excludedCount = 0;
+
+        for (int n = 0; n < 50_000; n++) {
+            String except = randomText(random, alphabet, random.nextInt(12));
+            MccDictionaryArena arena = MccDictionaryArena.build(
+                List.of(new DrgMcc(1L, "A", "甲", except, "MCC")), name -> name);
+            String[] tokens = except.split("[,;\\s]+");
+
+            for (int k = 0; k < 4; k++) {
+                String code = k < 2 && tokens.length > 0
+                    ? " " + randomCase(random, tokens[random.nextInt(tokens.length)]) + "\t"
+                    : randomText(random, alphabet, 1 + random.nextInt(4));
+                if (except.isBlank() || code.isBlank()) {
+                    continue;
+                }
+
+                boolean expected = regexExcluded(code, except);
+                String key = MccDictionaryArena.exclusionKey(code);
+                assertThat(arena.isExcluded(0, key)).as("code=%s except=%s", code, except).isEqualTo(expected);
+                assertThat(MccDictionaryArena.containsKey(MccDictionaryArena.exclusionKeys(except), key))
+                    .as("code=%s except=%s", code, except).isEqualTo(expected);
+                excludedCount += expected ? 1 : 0;
+            }
+        }
+        assertThat(excludedCount).isGreaterThan(10_000);
+    }
+
+    @Test
+    @DisplayName("排除键应大小写折叠、排序去重，并可按记录标识查找下标")
+    void shouldFoldSortAndIndexExclusionKeys() {
+        DrgMcc first = new DrgMcc(1L, "A", "甲", "i10;I13, I10 i11", "MCC");
+        DrgMcc second = new DrgMcc(2L, "B", "乙", null, "MCC");
+        MccDictionaryArena arena = MccDictionaryArena.build(List.of(first, second), name -> name);
+
+        assertThat(MccDictionaryArena.exclusionKeys(first.getMccExcept())).containsExactly("i10", "i11", "i13");
+        assertThat(MccDictionaryArena.exclusionKey(" I48.000X001 ")).isEqualTo("i48.000x001");
+        assertThat(arena.isExcluded(0, MccDictionaryArena.exclusionKey("I11"))).isTrue();
+        assertThat(arena.isExcluded(1, MccDictionaryArena.exclusionKey("I11"))).isFalse();
+
+        assertThat(arena.indexOf(second)).isEqualTo(1);
+        assertThat(arena.indexOf(new DrgMcc(1L, "A", "甲", "i10;I13, I10 i11", "MCC"))).isEqualTo(-1);
+        first.setMccExcept("I20");
+        assertThat(arena.indexOf(first)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("空字典应构建为空的紧凑存储")
+    void shouldBuildEmptyArena() {
+        assertThat(MccDictionaryArena.build(null, name -> name).isEmpty()).isTrue();
+        assertThat(MccDictionaryArena.build(List.of(), name -> name).size()).isZero();
+    }
+
+    /**
+     * 原排除规则：按[,;\s]+拆分，逐项trim后忽略大小写比较
+     */
+    private static boolean regexExcluded(String code, String except) {
+        for (String token : except.split("[,;\\s]+")) {
+            String trimmed = token.trim();
+            if (!trimmed.isBlank() && code.trim().equalsIgnoreCase(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomText(SplittableRandom random, int[] alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.appendCodePoint(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String randomCase(SplittableRandom random, String text) {
+        StringBuilder result = new StringBuilder();
+        text.codePoints().forEach(codePoint -> result.appendCodePoint(
+            random.nextBoolean() ? Character.toUpperCase(codePoint) : Character.toLowerCase(codePoint)));
+        return result.toString();
+    }
+}
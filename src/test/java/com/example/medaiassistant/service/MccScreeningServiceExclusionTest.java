@@ -209,4 +209,26 @@ class MccScreeningServiceExclusionTest {
         // Then - 验证结果
         assertThat(excluded).isFalse(); // 诊断对象为空，不应该被排除
     }
+
+    /**
+     * 字典记录使用加载时解析的排除键；加载后MCC_EXCEPT被修改时按新值判定
+     */
+    @Test
+    @DisplayName("字典记录使用预解析排除键，记录被修改后按新值判定")
+    void shouldUsePrecomputedKeysForDictionaryEntries() {
+        // Given - 加载包含该记录的字典
+        when(mccScreeningProperties.isExclusionCheckEnabled()).thenReturn(true);
+        DrgMcc mcc = new DrgMcc(1L, "I50.000", "心力衰竭", "i10; I11.000,e11.900", "MCC");
+        when(drgMccRepository.findAll()).thenReturn(java.util.List.of(mcc));
+        mccScreeningService.init();
+        
+        // When / Then - 与原规则一致：忽略大小写、去除前后空格
+        assertThat(mccScreeningService.checkExclusionRules(new PatientDiagnosis(" I10 ", "高血压"), mcc)).isTrue();
+        assertThat(mccScreeningService.checkExclusionRules(new PatientDiagnosis("E11.900", "糖尿病"), mcc)).isTrue();
+        assertThat(mccScreeningService.checkExclusionRules(new PatientDiagnosis("I11", "心脏病"), mcc)).isFalse();
+        
+        mcc.setMccExcept("I11");
+        assertThat(mccScreeningService.checkExclusionRules(new PatientDiagnosis("I10", "高血压"), mcc)).isFalse();
+        assertThat(mccScreeningService.checkExclusionRules(new PatientDiagnosis("i11", "心脏病"), mcc)).isTrue();
+    }
 }
@@ -20,6 +20,7 @@ import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.Mockito.when;
 
 /**
@@ -94,7 +95,7 @@ class MccScreeningServiceGroupingSortingTest {
         when(drgMccRepository.findAll()).thenReturn(mockMccs);
         
         // 设置相似度计算Mock
-        when(levenshteinUtil.calculateNormalizedSimilarity(any(), any(), any()))
+        when(levenshteinUtil.calculateSimilarity(any(), any(), anyDouble()))
             .thenReturn(0.8);
 
         // When
@@ -175,7 +176,7 @@ class MccScreeningServiceGroupingSortingTest {
         when(drgMccRepository.findAll()).thenReturn(mockMccs);
         
         // 设置相似度计算Mock
-        when(levenshteinUtil.calculateNormalizedSimilarity(any(), any(), any()))
+        when(levenshteinUtil.calculateSimilarity(any(), any(), anyDouble()))
             .thenReturn(0.8);
 
         // When
@@ -214,7 +215,7 @@ class MccScreeningServiceGroupingSortingTest {
         when(drgMccRepository.findAll()).thenReturn(mockMccs);
         
         // 设置相似度计算Mock
-        when(levenshteinUtil.calculateNormalizedSimilarity(any(), any(), any()))
+        when(levenshteinUtil.calculateSimilarity(any(), any(), anyDouble()))
             .thenReturn(0.8);
 
         // When
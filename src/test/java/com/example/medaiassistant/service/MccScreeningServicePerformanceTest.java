@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
@@ -315,8 +316,8 @@ class MccScreeningServicePerformanceTest {
      */
     private void setupSimilarityMocks() {
         // 为所有可能的诊断名称设置默认相似度值
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            any(String.class), any(String.class), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            any(), any(), anyDouble()
         )).thenReturn(0.7); // 默认返回0.7的相似度
     }
 }
@@ -19,8 +19,9 @@ import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
@@ -72,6 +73,9 @@ class MccScreeningServiceTopKTest {
         } catch (Exception e) {
             throw new RuntimeException("设置依赖失败", e);
         }
+        
+        // 标准化保持原文，便于按名称设置相似度Mock
+        lenient().when(textNormalizer.normalize(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     /**
@@ -99,17 +103,17 @@ class MccScreeningServiceTopKTest {
         lenient().when(mccScreeningProperties.isExclusionCheckEnabled()).thenReturn(true);
         
         // 设置相似度计算Mock
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心房颤动"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心力衰竭"), anyDouble()
         )).thenReturn(0.8);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("高血压"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("高血压"), anyDouble()
         )).thenReturn(0.6);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("2型糖尿病"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("2型糖尿病"), anyDouble()
         )).thenReturn(0.2); // 低于阈值，应被过滤
         
         // When - 执行测试方法
@@ -152,23 +156,23 @@ class MccScreeningServiceTopKTest {
         lenient().when(mccScreeningProperties.isExclusionCheckEnabled()).thenReturn(true);
         
         // 设置相似度计算Mock
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心房颤动"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心力衰竭"), anyDouble()
         )).thenReturn(0.9);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心肌梗死"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心肌梗死"), anyDouble()
         )).thenReturn(0.8);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("脑梗死"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("脑梗死"), anyDouble()
         )).thenReturn(0.7);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("高血压"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("高血压"), anyDouble()
         )).thenReturn(0.6);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("2型糖尿病"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("2型糖尿病"), anyDouble()
         )).thenReturn(0.4);
         
         // When - 执行测试方法
@@ -212,11 +216,11 @@ class MccScreeningServiceTopKTest {
         lenient().when(mccScreeningProperties.isExclusionCheckEnabled()).thenReturn(true);
         
         // 设置相似度计算Mock
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心房颤动"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心力衰竭"), anyDouble()
         )).thenReturn(0.8);
         
         // When - 执行测试方法
@@ -258,20 +262,20 @@ class MccScreeningServiceTopKTest {
         lenient().when(mccScreeningProperties.isExclusionCheckEnabled()).thenReturn(true);
         
         // 设置相似度计算Mock
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心房颤动"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心力衰竭"), anyDouble()
         )).thenReturn(0.9);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心肌梗死"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心肌梗死"), anyDouble()
         )).thenReturn(0.8);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("高血压"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("高血压"), anyDouble()
         )).thenReturn(0.7);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("2型糖尿病"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("2型糖尿病"), anyDouble()
         )).thenReturn(0.6);
         
         // When - 执行测试方法
@@ -311,37 +315,37 @@ class MccScreeningServiceTopKTest {
         
         // 设置相似度计算Mock
         // 心房颤动相关相似度
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心房颤动"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心力衰竭"), anyDouble()
         )).thenReturn(0.8);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("心肌梗死"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("心肌梗死"), anyDouble()
         )).thenReturn(0.7);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("高血压"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("高血压"), anyDouble()
         )).thenReturn(0.6);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心房颤动"), eq("2型糖尿病"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心房颤动"), text("2型糖尿病"), anyDouble()
         )).thenReturn(0.4);
         
         // 心力衰竭相关相似度
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心力衰竭"), eq("心力衰竭"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心力衰竭"), text("心力衰竭"), anyDouble()
         )).thenReturn(1.0);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心力衰竭"), eq("心房颤动"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心力衰竭"), text("心房颤动"), anyDouble()
         )).thenReturn(0.8);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心力衰竭"), eq("心肌梗死"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心力衰竭"), text("心肌梗死"), anyDouble()
         )).thenReturn(0.7);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心力衰竭"), eq("高血压"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心力衰竭"), text("高血压"), anyDouble()
         )).thenReturn(0.6);
-        lenient().when(levenshteinUtil.calculateNormalizedSimilarity(
-            eq("心力衰竭"), eq("2型糖尿病"), any()
+        lenient().when(levenshteinUtil.calculateSimilarity(
+            text("心力衰竭"), text("2型糖尿病"), anyDouble()
         )).thenReturn(0.4);
         
         // When - 执行测试方法
@@ -355,4 +359,11 @@ class MccScreeningServiceTopKTest {
         assertThat(grouped.get("心房颤动")).hasSize(2);
         assertThat(grouped.get("心力衰竭")).hasSize(2);
     }
+
+    /**
+     * 按字符内容匹配名称参数（字典名称以紧凑字符序列形式传入）
+     */
+    private static CharSequence text(String expected) {
+        return argThat(actual -> actual != null && expected.contentEquals(actual));
+    }
 }
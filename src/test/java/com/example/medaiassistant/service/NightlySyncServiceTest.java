@@ -3,6 +3,9 @@ package com.example.medaiassistant.service;
 import com.example.medaiassistant.config.SchedulingProperties;
 import com.example.medaiassistant.model.Patient;
 import com.example.medaiassistant.hospital.dto.PatientSyncResult;
+import com.example.medaiassistant.hospital.dto.SqlQueryRequest;
+import com.example.medaiassistant.hospital.dto.SqlQueryResult;
+import com.example.medaiassistant.hospital.model.SqlTemplate;
 import com.example.medaiassistant.hospital.service.*;
 import com.example.medaiassistant.repository.PatientRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,18 +13,31 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -97,6 +113,15 @@ class NightlySyncServiceTest {
     @Mock
     private SchedulingProperties.TimerConfig timerConfig;
 
+    @Mock
+    private DataSyncExecutor dataSyncExecutor;
+
+    @Mock
+    private SyncBulkheads syncBulkheads;
+
+    @Mock
+    private DepartmentBatchExtractor departmentBatchExtractor;
+
     @InjectMocks
     private NightlySyncService nightlySyncService;
 
@@ -413,6 +438,185 @@ class NightlySyncServiceTest {
             // Then: 两个病人都应被处理
             verify(labSyncService, times(2)).importLabResults(anyString());
         }
+
+        @Test
+        @DisplayName("已由增量同步负责的源表应跳过逐患者同步")
+        void shouldSkipSourceCoveredByIncrementalSync() {
+            // Given: 化验已配置增量同步，其余源表未配置
+            when(timerConfig.isDepartmentFilterEnabled()).thenReturn(true);
+            when(timerConfig.getTargetDepartments()).thenReturn(Collections.singletonList("心内科"));
+            when(hospitalConfigService.getAllConfigs()).thenReturn(Collections.emptyList());
+            when(patientSyncService.syncPatients(anyString(), anyString())).thenReturn(mock(PatientSyncResult.class));
+            when(patientRepository.findByDepartmentAndIsInHospital("心内科", true)).thenReturn(createTestPatients(2));
+            lenient().when(dataSyncExecutor.isIncrementalActive("hospital-Local", labSyncService)).thenReturn(true);
+            when(examinationSyncService.importExaminationResults(anyString())).thenReturn(1);
+
+            // When
+            nightlySyncService.executeNightlySync();
+
+            // Then: 化验不再逐患者拉取，检查仍逐患者拉取
+            verify(labSyncService, never()).importLabResults(anyString());
+            verify(examinationSyncService, times(2)).importExaminationResults(anyString());
+        }
+
+        @Test
+        @DisplayName("配置批量查询模板的源表应按块批量提取")
+        void shouldExtractInBatchesWhenBatchTemplateConfigured() {
+            // Given: 化验配置了批量查询模板，每块2个病人
+            when(timerConfig.isDepartmentFilterEnabled()).thenReturn(true);
+            when(timerConfig.getTargetDepartments()).thenReturn(Collections.singletonList("心内科"));
+            when(hospitalConfigService.getAllConfigs()).thenReturn(Collections.emptyList());
+            when(patientSyncService.syncPatients(anyString(), anyString())).thenReturn(mock(PatientSyncResult.class));
+            when(patientRepository.findByDepartmentAndIsInHospital("心内科", true)).thenReturn(createTestPatients(5));
+            lenient().when(departmentBatchExtractor.supports("hospital-Local", labSyncService)).thenReturn(true);
+            when(departmentBatchExtractor.getChunkSize()).thenReturn(2);
+            when(departmentBatchExtractor.extract(eq("hospital-Local"), eq(labSyncService), anyList()))
+                .thenAnswer(invocation -> {
+                    List<String> patientIds = invocation.getArgument(2);
+                    Map<String, Integer> results = new LinkedHashMap<>();
+                    patientIds.forEach(patientId -> results.put(patientId, 1));
+                    return results;
+                });
+
+            // When
+            nightlySyncService.executeNightlySync();
+
+            // Then: 5个病人分3块提取，不再逐患者查询
+            verify(departmentBatchExtractor, times(3)).extract(eq("hospital-Local"), eq(labSyncService), anyList());
+            verify(labSyncService, never()).importLabResults(anyString());
+            NightlySyncResult result = nightlySyncService.getLastSyncResult();
+            assertEquals(5, result.getLabSyncSuccess());
+            assertEquals(0, result.getLabSyncFailed());
+        }
+
+        @Test
+        @DisplayName("批量提取与逐患者查询在同一次运行中并发执行，各自按自己的行数上限读取")
+        void shouldKeepBatchAndPerPatientLimitsApartInOneRun(@TempDir Path templateDir) throws Exception {
+            // Given: H2模拟HIS，3个科室各8个病人，每个病人40行；化验按科室批量提取，检查和EMR逐患者查询
+            int departments = 3;
+            int patientsPerDepartment = 8;
+            int rowsPerPatient = 40;
+            String url = "jdbc:h2:mem:nightly_mixed_sync;DB_CLOSE_DELAY=-1";
+            JdbcTemplate shared = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+            shared.execute("CREATE TABLE HIS_ITEMS (PATIENT_ID VARCHAR(20), ITEM_NO INT)");
+            List<String> deptNames = new ArrayList<>();
+            List<Object[]> rows = new ArrayList<>();
+            for (int d = 0; d < departments; d++) {
+                String deptName = "科室" + d;
+                deptNames.add(deptName);
+                List<Patient> patients = new ArrayList<>();
+                for (int i = 0; i < patientsPerDepartment; i++) {
+                    Patient patient = new Patient();
+                    patient.setPatientId(String.format("P%d%02d", d, i));
+                    patients.add(patient);
+                    for (int r = 0; r < rowsPerPatient; r++) {
+                        rows.add(new Object[]{patient.getPatientId(), r});
+                    }
+                }
+                when(patientRepository.findByDepartmentAndIsInHospital(deptName, true)).thenReturn(patients);
+            }
+            shared.batchUpdate("INSERT INTO HIS_ITEMS VALUES (?, ?)", rows);
+            // 工厂缓存的共享JdbcTemplate默认设置
+            shared.setMaxRows(1000);
+            shared.setQueryTimeout(30);
+
+            try {
+                when(timerConfig.isDepartmentFilterEnabled()).thenReturn(true);
+                when(timerConfig.getTargetDepartments()).thenReturn(deptNames);
+                when(hospitalConfigService.getAllConfigs()).thenReturn(Collections.emptyList());
+                when(hospitalConfigService.hasConfig("hospital-Local")).thenReturn(true);
+                when(patientSyncService.syncPatients(anyString(), anyString())).thenReturn(mock(PatientSyncResult.class));
+
+                DynamicJdbcTemplateFactory jdbcTemplateFactory = mock(DynamicJdbcTemplateFactory.class);
+                when(jdbcTemplateFactory.getJdbcTemplate(anyString(), anyString())).thenReturn(shared);
+                SqlExecutionService sqlExecutionService = new SqlExecutionService(jdbcTemplateFactory,
+                    new SqlSecurityValidator(), hospitalConfigService);
+
+                Path batchTemplate = Files.writeString(templateDir.resolve("lab-batch.json"), "{}");
+                SqlTemplate template = new SqlTemplate();
+                template.setSql("SELECT PATIENT_ID AS SYNC_HIS_PATIENT_ID, PATIENT_ID, ITEM_NO FROM HIS_ITEMS "
+                    + "WHERE PATIENT_ID IN (:patientIds) ORDER BY PATIENT_ID, ITEM_NO");
+                TemplateHotUpdateService templateHotUpdateService = mock(TemplateHotUpdateService.class);
+                when(templateHotUpdateService.loadTemplate(batchTemplate.toString())).thenReturn(template);
+                SyncBulkheads bulkheads = new SyncBulkheads(8, 4);
+                DepartmentBatchExtractor extractor = new DepartmentBatchExtractor(sqlExecutionService,
+                    templateHotUpdateService, bulkheads, true, 3, 200000, 300, 500, 256L * 1024 * 1024);
+
+                Map<String, Integer> labRecords = new ConcurrentHashMap<>();
+                when(labSyncService.getBatchTemplatePath(anyString())).thenReturn(batchTemplate.toString());
+                lenient().when(labSyncService.getSourceName()).thenReturn("LAB_RESULTS");
+                when(labSyncService.toHisPatientId(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+                when(labSyncService.importPatientRecords(anyString(), anyList())).thenAnswer(invocation -> {
+                    List<?> records = invocation.getArgument(1);
+                    labRecords.put(invocation.getArgument(0), records.size());
+                    return records.size();
+                });
+
+                // 逐患者查询的行数上限远小于批量查询
+                String missingTemplate = templateDir.resolve("missing.json").toString();
+                OrderSyncService orderSyncService = mock(OrderSyncService.class);
+                when(examinationSyncService.getBatchTemplatePath(anyString())).thenReturn(missingTemplate);
+                when(emrSyncService.getBatchTemplatePath(anyString())).thenReturn(missingTemplate);
+                when(orderSyncService.getBatchTemplatePath(anyString())).thenReturn(missingTemplate);
+                Map<String, Integer> examRows = new ConcurrentHashMap<>();
+                Map<String, Integer> emrRows = new ConcurrentHashMap<>();
+                when(examinationSyncService.importExaminationResults(anyString())).thenAnswer(invocation ->
+                    perPatientQuery(sqlExecutionService, invocation.getArgument(0), 5, examRows));
+                when(emrSyncService.importEmrContent(anyString())).thenAnswer(invocation ->
+                    perPatientQuery(sqlExecutionService, invocation.getArgument(0), 2, emrRows));
+
+                NightlySyncService mixedSyncService = new NightlySyncService(patientSyncService, labSyncService,
+                    examinationSyncService, emrSyncService, orderSyncService, hospitalConfigService,
+                    patientRepository, schedulingProperties, dataSyncExecutor, bulkheads, extractor);
+                ReflectionTestUtils.setField(mixedSyncService, "nightlySyncEnabled", true);
+                ReflectionTestUtils.setField(mixedSyncService, "defaultHospitalId", "hospital-Local");
+                ReflectionTestUtils.setField(mixedSyncService, "departmentConcurrency", departments);
+                ReflectionTestUtils.setField(mixedSyncService, "stageConcurrency", 4);
+                ReflectionTestUtils.setField(mixedSyncService, "stageQueueCapacity", 100);
+
+                // When
+                mixedSyncService.executeNightlySync();
+
+                // Then: 批量提取的每个病人取回全部记录，逐患者查询按各自上限读取，共享JdbcTemplate未被修改
+                int totalPatients = departments * patientsPerDepartment;
+                NightlySyncResult result = mixedSyncService.getLastSyncResult();
+                assertTrue(result.isSuccess(), result.getErrorMessage());
+                assertEquals(totalPatients, result.getLabSyncSuccess());
+                assertEquals(0, result.getLabSyncFailed());
+                assertEquals(totalPatients, result.getExamSyncSuccess());
+                assertEquals(totalPatients, result.getEmrSyncSuccess());
+                assertEquals(totalPatients, labRecords.size());
+                assertTrue(labRecords.values().stream().allMatch(count -> count == rowsPerPatient),
+                    "批量提取的记录数: " + labRecords);
+                assertTrue(examRows.values().stream().allMatch(count -> count == 5), "检查查询行数: " + examRows);
+                assertTrue(emrRows.values().stream().allMatch(count -> count == 2), "EMR查询行数: " + emrRows);
+                assertEquals(0L, extractor.toMap().get("failedRoundTrips"));
+                assertEquals(1000, shared.getMaxRows());
+                assertEquals(30, shared.getQueryTimeout());
+                verify(labSyncService, never()).importLabResults(anyString());
+            } finally {
+                shared.execute("DROP TABLE HIS_ITEMS");
+            }
+        }
+
+        /**
+         * 模拟逐患者同步：按病人查询HIS，行数上限为maxRows
+         */
+        private int perPatientQuery(SqlExecutionService sqlExecutionService, String patientId, int maxRows,
+                                    Map<String, Integer> rowCounts) {
+            SqlQueryRequest request = new SqlQueryRequest();
+            request.setSql("SELECT PATIENT_ID, ITEM_NO FROM HIS_ITEMS WHERE PATIENT_ID = :patientId ORDER BY ITEM_NO");
+            request.setParameters(Map.of("patientId", patientId));
+            request.setDatabaseType("his");
+            request.setMaxRows(maxRows);
+            request.setTimeoutSeconds(60);
+            SqlQueryResult queryResult = sqlExecutionService.executeQuery("hospital-Local", request);
+            if (!queryResult.isSuccess()) {
+                return -1;
+            }
+            rowCounts.put(patientId, queryResult.getData().size());
+            return queryResult.getData().size();
+        }
     }
 
     // ==================== 同步顺序测试 ====================
@@ -422,7 +626,7 @@ class NightlySyncServiceTest {
     class SyncOrderTests {
         
         @Test
-        @DisplayName("应按照病人列表->化验->检查->EMR的顺序执行")
+        @DisplayName("病人列表同步应先于化验、检查、EMR执行")
         void shouldExecuteInCorrectOrder() {
             // Given
             when(timerConfig.isDepartmentFilterEnabled()).thenReturn(true);
@@ -443,12 +647,16 @@ class NightlySyncServiceTest {
             // When
             nightlySyncService.executeNightlySync();
             
-            // Then: 验证调用顺序
-            var inOrder = inOrder(patientSyncService, labSyncService, examinationSyncService, emrSyncService);
-            inOrder.verify(patientSyncService).syncPatients(anyString(), anyString());
-            inOrder.verify(labSyncService).importLabResults(anyString());
-            inOrder.verify(examinationSyncService).importExaminationResults(anyString());
-            inOrder.verify(emrSyncService).importEmrContent(anyString());
+            // Then: 化验、检查、EMR并行执行，但都在科室病人列表同步之后
+            var labOrder = inOrder(patientSyncService, labSyncService);
+            labOrder.verify(patientSyncService).syncPatients(anyString(), anyString());
+            labOrder.verify(labSyncService).importLabResults(anyString());
+            var examOrder = inOrder(patientSyncService, examinationSyncService);
+            examOrder.verify(patientSyncService).syncPatients(anyString(), anyString());
+            examOrder.verify(examinationSyncService).importExaminationResults(anyString());
+            var emrOrder = inOrder(patientSyncService, emrSyncService);
+            emrOrder.verify(patientSyncService).syncPatients(anyString(), anyString());
+            emrOrder.verify(emrSyncService).importEmrContent(anyString());
         }
     }
 
@@ -521,6 +729,39 @@ class NightlySyncServiceTest {
     @Nested
     @DisplayName("性能测试")
     class PerformanceTests {
+
+        @Test
+        @DisplayName("慢阶段积压时其他阶段应继续处理")
+        void shouldNotStallOtherStagesWhenOneStageIsSlow() {
+            // Given: 每阶段1个工作线程、队列容量1；EMR阻塞到化验全部完成
+            ReflectionTestUtils.setField(nightlySyncService, "stageConcurrency", 1);
+            ReflectionTestUtils.setField(nightlySyncService, "stageQueueCapacity", 1);
+            when(timerConfig.isDepartmentFilterEnabled()).thenReturn(true);
+            when(timerConfig.getTargetDepartments()).thenReturn(Arrays.asList("科室A", "科室B"));
+            when(hospitalConfigService.getAllConfigs()).thenReturn(Collections.emptyList());
+            when(patientRepository.findByDepartmentAndIsInHospital("科室A", true)).thenReturn(createTestPatients(5));
+            when(patientRepository.findByDepartmentAndIsInHospital("科室B", true)).thenReturn(createTestPatients(5));
+
+            CountDownLatch labFinished = new CountDownLatch(10);
+            when(labSyncService.importLabResults(anyString())).thenAnswer(inv -> {
+                labFinished.countDown();
+                return 1;
+            });
+            when(emrSyncService.importEmrContent(anyString()))
+                .thenAnswer(inv -> labFinished.await(5, TimeUnit.SECONDS) ? 1 : -1);
+
+            // When
+            nightlySyncService.executeNightlySync();
+
+            // Then: 化验未被EMR积压拖住，EMR等到化验完成后全部成功
+            NightlySyncResult result = nightlySyncService.getLastSyncResult();
+            assertEquals(10, result.getTotalPatients());
+            assertEquals(10, result.getLabSyncSuccess());
+            assertEquals(10, result.getEmrSyncSuccess(), "EMR等待超时说明化验阶段被EMR队列阻塞");
+            assertEquals(2, result.getPatientSyncFailedDepts(), "syncPatients未配置返回值，科室同步计为失败");
+            assertEquals(10, result.getStageMetrics().get("化验").get("succeeded"));
+            assertTrue(result.getStageMetrics().containsKey("病人列表"));
+        }
         
         @Test
         @DisplayName("批量病人同步应在合理时间内完成")
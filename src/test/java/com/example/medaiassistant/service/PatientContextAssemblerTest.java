@@ -0,0 +1,256 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.dto.PatientPromptResultDTO;
+import com.example.medaiassistant.model.Diagnosis;
+import com.example.medaiassistant.model.MedicalRecord;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.model.PromptTemplate;
+import com.example.medaiassistant.repository.DiagnosisRepository;
+import com.example.medaiassistant.repository.EmrContentRepository;
+import com.example.medaiassistant.repository.LabResultRepository;
+import com.example.medaiassistant.repository.LongTermOrderRepository;
+import com.example.medaiassistant.repository.MedicalRecordRepository;
+import com.example.medaiassistant.repository.PatientRepository;
+import com.example.medaiassistant.repository.PromptResultRepository;
+import com.example.medaiassistant.repository.PromptTemplateRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * PatientContextAssembler单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("患者上下文组装服务测试")
+class PatientContextAssemblerTest {
+
+    private static final String PATIENT_ID = "990500000283143_1";
+
+    @Mock
+    private PromptTemplateRepository promptTemplateRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private DiagnosisRepository diagnosisRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private LongTermOrderRepository longTermOrderRepository;
+
+    @Mock
+    private LabResultRepository labResultRepository;
+
+    @Mock
+    private PromptResultRepository promptResultRepository;
+
+    @Mock
+    private OrderFormatService orderFormatService;
+
+    @Mock
+    private ExaminationResultService examinationResultService;
+
+    @Mock
+    private EmrRecordService emrRecordService;
+
+    @Mock
+    private EmrContentRepository emrContentRepository;
+
+    @Test
+    @DisplayName("按模板requiredDataTypes顺序组装，并自动补充手术记录")
+    void testAssemblesTemplateDataTypesInOrder() {
+        stubTemplate("诊断分析", "诊断分析", "诊断信息,一般信息");
+        when(diagnosisRepository.findByPatientId(PATIENT_ID))
+                .thenReturn(List.of(diagnosis("原发性高血压"), diagnosis("2型糖尿病")));
+
+        String result = newAssembler(Runnable::run).assemble(PATIENT_ID, "诊断分析", "诊断分析");
+
+        assertEquals("### 目前诊断:\n原发性高血压, 2型糖尿病\n------\n"
+                + "### 一般信息:\n无基本信息数据\n------\n"
+                + "### 手术记录:\n无手术记录数据\n------\n", result);
+    }
+
+    @Test
+    @DisplayName("模板不存在时使用默认数据类型，无入院病历时输出统一标记")
+    void testDefaultDataTypesWhenTemplateMissing() {
+        String result = newAssembler(Runnable::run).assemble(PATIENT_ID, "诊断分析", "不存在的模板");
+
+        int lastIndex = -1;
+        for (String header : new String[] { "### 一般信息:", "### 目前诊断:", "### 病情小结:", "### 病历记录:",
+                "### 长期医嘱:", "### 临时医嘱:", "### 化验结果:", "### 检查结果:", "### 入院记录:",
+                "### 会诊记录:", "### 手术记录:" }) {
+            int index = result.indexOf(header);
+            assertTrue(index > lastIndex, "板块顺序错误: " + header);
+            lastIndex = index;
+        }
+        assertTrue(result.contains("### 入院记录:\n" + PatientContextAssembler.NO_ADMISSION_RECORD_MARKER));
+        assertEquals(PatientContextAssembler.DEFAULT_DATA_TYPES,
+                newAssembler(Runnable::run).resolveDataTypes(null, null));
+    }
+
+    @Test
+    @DisplayName("入院记录优先使用入院记录总结，不再查询原始入院记录")
+    void testAdmissionSummaryPreferred() {
+        PatientPromptResultDTO summary = new PatientPromptResultDTO();
+        summary.setPromptTemplateName("入院记录总结");
+        summary.setOriginalResultContent("");
+        summary.setModifiedResultContent("患者因胸痛3天入院");
+        when(promptResultRepository.findMedicalSummaryByPatientId(PATIENT_ID)).thenReturn(List.of(summary));
+
+        String section = newAssembler(Runnable::run).renderSection(PATIENT_ID, "入院记录");
+
+        assertEquals("### 入院记录:\n患者因胸痛3天入院", section);
+        verify(emrRecordService, never()).getAdmissionRecordContent(anyString());
+    }
+
+    @Test
+    @DisplayName("未知数据类型和查询失败的板块输出占位内容，不影响其他板块")
+    void testUnknownAndFailingSections() {
+        stubTemplate("资料总结", "病情小结", "体温单,化验结果");
+        when(labResultRepository.findByPatientId(PATIENT_ID)).thenThrow(new RuntimeException("连接超时"));
+
+        String result = newAssembler(Runnable::run).assemble(PATIENT_ID, "资料总结", "病情小结");
+
+        assertEquals("\n体温单:\n未知数据类型\n------\n"
+                + "### 化验结果:\n无化验结果数据\n------\n"
+                + "### 手术记录:\n无手术记录数据\n------\n", result);
+    }
+
+    @Test
+    @DisplayName("各板块在线程池上并发查询，结果按原始顺序拼接")
+    void testSectionsFetchedConcurrently() throws Exception {
+        stubTemplate("诊断分析", "诊断分析", "一般信息,诊断信息");
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean(true);
+        when(patientRepository.findById(PATIENT_ID)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            overlapped.compareAndSet(true, bothStarted.await(5, TimeUnit.SECONDS));
+            return Optional.<Patient>empty();
+        });
+        when(diagnosisRepository.findByPatientId(PATIENT_ID)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            overlapped.compareAndSet(true, bothStarted.await(5, TimeUnit.SECONDS));
+            return List.of(diagnosis("冠心病"));
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            String result = newAssembler(pool).assemble(PATIENT_ID, "诊断分析", "诊断分析");
+
+            assertTrue(overlapped.get(), "一般信息和诊断信息应同时在查询");
+            assertEquals("### 一般信息:\n无基本信息数据\n------\n"
+                    + "### 目前诊断:\n冠心病\n------\n"
+                    + "### 手术记录:\n无手术记录数据\n------\n", result);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("线程池拒绝任务时在调用线程中执行")
+    void testRejectedSectionsRunInline() {
+        stubTemplate("诊断分析", "诊断分析", "诊断信息");
+        when(diagnosisRepository.findByPatientId(PATIENT_ID)).thenReturn(List.of(diagnosis("肺炎")));
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException("队列已满");
+        };
+
+        String result = newAssembler(rejecting).assemble(PATIENT_ID, "诊断分析", "诊断分析");
+
+        assertEquals("### 目前诊断:\n肺炎\n------\n### 手术记录:\n无手术记录数据\n------\n", result);
+    }
+
+    @Test
+    @DisplayName("同一快照内多个模板共享已生成的板块，每个数据类型只查询一次")
+    void testSnapshotSharesSectionsAcrossTemplates() {
+        when(diagnosisRepository.findByPatientId(PATIENT_ID)).thenReturn(List.of(diagnosis("慢性心力衰竭")));
+        when(medicalRecordRepository.findByPatientIdAndDeletedOrderByRecordTimeDesc(PATIENT_ID, 0))
+                .thenReturn(List.of(medicalRecord("病情小结", "病情平稳"), medicalRecord("日常病程记录", "查房记录")));
+
+        PatientContextSnapshot snapshot = newAssembler(Runnable::run).snapshot(PATIENT_ID);
+        String diagnosisPrompt = snapshot.compose(List.of("诊断信息", "病历记录", "手术记录"));
+        String summaryPrompt = snapshot.compose(List.of(" 诊断信息", "病情小结", "手术记录"));
+
+        assertEquals("### 目前诊断:\n慢性心力衰竭\n------\n"
+                + "### 病历记录:\n病情平稳\n\n查房记录\n------\n"
+                + "### 手术记录:\n无手术记录数据\n------\n", diagnosisPrompt);
+        assertEquals("### 目前诊断:\n慢性心力衰竭\n------\n"
+                + "### 病情小结:\n病情平稳\n------\n"
+                + "### 手术记录:\n无手术记录数据\n------\n", summaryPrompt);
+        assertEquals(4, snapshot.sectionCount());
+        verify(diagnosisRepository, times(1)).findByPatientId(PATIENT_ID);
+        verify(medicalRecordRepository, times(1)).findByPatientIdAndDeletedOrderByRecordTimeDesc(PATIENT_ID, 0);
+        verify(emrContentRepository, times(1)).findOperationsByPatientId(PATIENT_ID);
+    }
+
+    @Test
+    @DisplayName("不同快照之间不共享板块")
+    void testSnapshotsAreIndependent() {
+        PatientContextAssembler assembler = newAssembler(Runnable::run);
+
+        assembler.snapshot(PATIENT_ID).section("诊断信息");
+        assembler.snapshot(PATIENT_ID).section("诊断信息");
+
+        verify(diagnosisRepository, times(2)).findByPatientId(PATIENT_ID);
+    }
+
+    @Test
+    @DisplayName("模板不存在时findPromptTemplate返回null")
+    void testFindPromptTemplate() {
+        stubTemplate("诊疗计划", "诊疗计划补充", null).setPrompt("请补充诊疗计划");
+        when(promptTemplateRepository.findByPromptTypeAndPromptName("诊疗计划", "不存在")).thenReturn(null);
+
+        PatientContextAssembler assembler = newAssembler(Runnable::run);
+
+        assertEquals("请补充诊疗计划", assembler.findPromptTemplate("诊疗计划", "诊疗计划补充"));
+        assertNull(assembler.findPromptTemplate("诊疗计划", "不存在"));
+    }
+
+    private PatientContextAssembler newAssembler(Executor executor) {
+        return new PatientContextAssembler(promptTemplateRepository, patientRepository, diagnosisRepository,
+                medicalRecordRepository, longTermOrderRepository, labResultRepository, promptResultRepository,
+                orderFormatService, examinationResultService, emrRecordService, emrContentRepository, executor);
+    }
+
+    private PromptTemplate stubTemplate(String promptType, String promptName, String requiredDataTypes) {
+        PromptTemplate template = new PromptTemplate();
+        template.setRequiredDataTypes(requiredDataTypes);
+        when(promptTemplateRepository.findByPromptTypeAndPromptName(promptType, promptName)).thenReturn(template);
+        return template;
+    }
+
+    private static MedicalRecord medicalRecord(String recordType, String content) {
+        MedicalRecord record = new MedicalRecord();
+        record.setRecordType(recordType);
+        record.setMedicalContent(content);
+        return record;
+    }
+
+    private static Diagnosis diagnosis(String text) {
+        Diagnosis diagnosis = new Diagnosis();
+        diagnosis.setDiagnosisText(text);
+        return diagnosis;
+    }
+}
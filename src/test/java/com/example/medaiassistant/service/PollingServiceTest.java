@@ -42,7 +42,7 @@ class PollingServiceTest {
     private PromptRepository promptRepository;
 
     @Mock
-    private ServerConfigService serverConfigService;
+    private CryptoKeyRing cryptoKeyRing;
 
     @Mock
     private OptimisticLockRetryService optimisticLockRetryService;
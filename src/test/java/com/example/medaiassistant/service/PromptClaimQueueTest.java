@@ -0,0 +1,171 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.config.PromptServiceConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptClaimQueue测试（H2内存数据库，比较并交换策略）
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("Prompt认领队列测试")
+class PromptClaimQueueTest {
+
+    private static final long BASE_TIME = 1_762_650_000_000L;
+
+    private final AtomicLong now = new AtomicLong(BASE_TIME);
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private PromptServiceConfig promptServiceConfig;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:prompt_claim_queue;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE prompts (PromptId INT PRIMARY KEY, StatusName VARCHAR(50), "
+                + "Priority INT, SubmissionTime TIMESTAMP, ProcessingStartTime TIMESTAMP, RetryCount INT)");
+
+        promptServiceConfig = new PromptServiceConfig();
+        promptServiceConfig.getSubmission().setLeaseTimeout(60_000);
+        promptServiceConfig.getSubmission().setClaimStrategy("COMPARE_AND_SET");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE prompts");
+    }
+
+    @Test
+    @DisplayName("按Priority、SubmissionTime顺序认领并更新为SUBMISSION_STARTED")
+    void testClaimsInPriorityOrder() {
+        insertPrompt(1, "待处理", 2, 10);
+        insertPrompt(2, "待处理", 1, 20);
+        insertPrompt(3, "待处理", 1, 10);
+        insertPrompt(4, "已提交", 0, 0);
+
+        PromptClaimQueue.ClaimBatch batch = newQueue().claim(2);
+
+        assertEquals(List.of(3, 2), batch.getPromptIds());
+        assertEquals("SUBMISSION_STARTED", statusOf(3));
+        assertEquals("SUBMISSION_STARTED", statusOf(2));
+        assertEquals("待处理", statusOf(1));
+        assertEquals(PromptClaimQueue.ClaimStrategy.COMPARE_AND_SET, newQueue().resolveStrategy());
+    }
+
+    @Test
+    @DisplayName("多个实例认领到互不重叠的Prompt")
+    void testInstancesClaimDisjointBatches() {
+        for (int i = 1; i <= 10; i++) {
+            insertPrompt(i, "待处理", 1, i);
+        }
+        PromptClaimQueue nodeA = newQueue();
+        PromptClaimQueue nodeB = newQueue();
+
+        List<Integer> claimed = new ArrayList<>();
+        claimed.addAll(nodeA.claim(4).getPromptIds());
+        claimed.addAll(nodeB.claim(4).getPromptIds());
+        claimed.addAll(nodeA.claim(4).getPromptIds());
+
+        assertEquals(10, claimed.size());
+        assertEquals(10, new HashSet<>(claimed).size(), "同一Prompt不应被认领两次");
+        assertTrue(nodeB.claim(4).isEmpty());
+    }
+
+    @Test
+    @DisplayName("租约过期的SUBMISSION_STARTED记录被重新认领，旧租约无法再完成")
+    void testExpiredLeaseIsReclaimed() {
+        insertPrompt(1, "待处理", 1, 1);
+        PromptClaimQueue nodeA = newQueue();
+        PromptClaimQueue nodeB = newQueue();
+
+        PromptClaimQueue.ClaimBatch first = nodeA.claim(5);
+        assertEquals(List.of(1), first.getPromptIds());
+
+        now.addAndGet(59_000);
+        assertTrue(nodeB.claim(5).isEmpty(), "租约未过期时不应被重新认领");
+
+        now.addAndGet(2_000);
+        PromptClaimQueue.ClaimBatch second = nodeB.claim(5);
+        assertEquals(List.of(1), second.getPromptIds());
+
+        assertFalse(nodeA.complete(1, first.getLeaseToken()), "旧租约不应覆盖新持有者");
+        assertTrue(nodeB.complete(1, second.getLeaseToken()));
+        assertEquals("已提交", statusOf(1));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT RetryCount FROM prompts WHERE PromptId = 1", Integer.class));
+    }
+
+    @Test
+    @DisplayName("没有租约时间的SUBMISSION_STARTED记录（单条手动提交中）不被认领")
+    void testStartedWithoutLeaseIsNotClaimed() {
+        insertPrompt(1, "SUBMISSION_STARTED", 1, 1);
+        insertPrompt(2, "待处理", 1, 2);
+        PromptClaimQueue queue = newQueue();
+
+        PromptClaimQueue.ClaimBatch batch = queue.claim(5);
+        assertEquals(List.of(2), batch.getPromptIds());
+        assertTrue(queue.complete(2, batch.getLeaseToken()));
+
+        now.addAndGet(3_600_000L);
+        assertTrue(queue.claim(5).isEmpty());
+        assertEquals("SUBMISSION_STARTED", statusOf(1));
+        assertNull(jdbcTemplate.queryForObject("SELECT ProcessingStartTime FROM prompts WHERE PromptId = 1", Timestamp.class));
+    }
+
+    @Test
+    @DisplayName("释放认领后恢复为待处理并可再次认领")
+    void testReleaseReturnsPromptToPending() {
+        insertPrompt(1, "待处理", 1, 1);
+        PromptClaimQueue queue = newQueue();
+
+        PromptClaimQueue.ClaimBatch batch = queue.claim(5);
+        assertTrue(queue.release(1, batch.getLeaseToken()));
+        assertEquals("待处理", statusOf(1));
+        assertNull(jdbcTemplate.queryForObject("SELECT ProcessingStartTime FROM prompts WHERE PromptId = 1", Timestamp.class));
+
+        now.addAndGet(1_000);
+        assertEquals(List.of(1), queue.claim(5).getPromptIds());
+    }
+
+    @Test
+    @DisplayName("没有可认领记录时返回空结果")
+    void testEmptyQueue() {
+        insertPrompt(1, "已完成", 1, 1);
+
+        PromptClaimQueue.ClaimBatch batch = newQueue().claim(5);
+
+        assertTrue(batch.isEmpty());
+        assertEquals(Set.of(), new HashSet<>(batch.getPromptIds()));
+    }
+
+    private PromptClaimQueue newQueue() {
+        return new PromptClaimQueue(jdbcTemplate, transactionManager, promptServiceConfig, now::get);
+    }
+
+    private void insertPrompt(int promptId, String status, int priority, int submissionOffsetSeconds) {
+        jdbcTemplate.update("INSERT INTO prompts (PromptId, StatusName, Priority, SubmissionTime) VALUES (?, ?, ?, ?)",
+                promptId, status, priority, new Timestamp(BASE_TIME - 3_600_000L + submissionOffsetSeconds * 1000L));
+    }
+
+    private String statusOf(int promptId) {
+        return jdbcTemplate.queryForObject("SELECT StatusName FROM prompts WHERE PromptId = ?", String.class, promptId);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.config.PromptServiceConfig;
+import com.example.medaiassistant.dto.EncryptedDataStatusDTO;
+import com.example.medaiassistant.model.DataStatus;
+import com.example.medaiassistant.model.EncryptedDataTemp;
+import com.example.medaiassistant.repository.PromptRepository;
+import com.example.medaiassistant.repository.PromptResultRepository;
+import com.example.medaiassistant.repository.executionserver.ExecutionServerEncryptedDataTempRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.rowset.serial.SerialClob;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PromptPollingService分页批量核对测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Prompt轮询服务分页批量核对测试")
+class PromptPollingServiceTest {
+
+    @Mock
+    private ExecutionServerEncryptedDataTempRepository executionEncryptedDataTempRepository;
+
+    @Mock
+    private EncryptedDataTempService encryptedDataTempService;
+
+    @Mock
+    private PromptResultRepository promptResultRepository;
+
+    @Mock
+    private PromptRepository promptRepository;
+
+    @Mock
+    private CryptoKeyRing cryptoKeyRing;
+
+    @Mock
+    private OptimisticLockRetryService optimisticLockRetryService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchArgsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> requestIdsCaptor;
+
+    private PromptServiceConfig promptServiceConfig;
+
+    private PromptPollingService promptPollingService;
+
+    @BeforeEach
+    void setUp() {
+        promptServiceConfig = new PromptServiceConfig();
+        promptServiceConfig.getPolling().setBatchSize(2);
+
+        promptPollingService = new PromptPollingService(executionEncryptedDataTempRepository,
+                encryptedDataTempService, promptResultRepository, promptRepository, cryptoKeyRing,
+                optimisticLockRetryService, promptServiceConfig, jdbcTemplate);
+        promptPollingService.enablePolling();
+    }
+
+    @Test
+    @DisplayName("按PromptId键集分页，每页只发起一次REQUEST_ID IN查询")
+    void testPagesByPromptIdWithOneLookupPerPage() {
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(Integer.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(1, 2));
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(2), any(Pageable.class)))
+                .thenReturn(List.of(3));
+        when(executionEncryptedDataTempRepository.findStatusByRequestIdIn(anyCollection())).thenReturn(List.of());
+
+        promptPollingService.pollSubmittedPrompts();
+
+        verify(executionEncryptedDataTempRepository, times(2)).findStatusByRequestIdIn(requestIdsCaptor.capture());
+        assertEquals(Set.of("cdwyy1", "cdwyy2"), Set.copyOf(requestIdsCaptor.getAllValues().get(0)));
+        assertEquals(Set.of("cdwyy3"), Set.copyOf(requestIdsCaptor.getAllValues().get(1)));
+        verify(promptRepository, never()).findByStatusName(anyString());
+        verify(executionEncryptedDataTempRepository, never()).findByRequestId(anyString());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("SENT状态的数据批量补齐Prompt已完成状态，不加载完整记录")
+    void testSentStatusesAreBatchUpdated() {
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(Integer.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(10, 11));
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(11), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(executionEncryptedDataTempRepository.findStatusByRequestIdIn(anyCollection())).thenReturn(List.of(
+                new EncryptedDataStatusDTO("cdwyy10", "cdwyy10", DataStatus.SENT, 3),
+                new EncryptedDataStatusDTO("cdwyy11", "cdwyy11", DataStatus.PROCESSING, 1)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1 });
+
+        promptPollingService.pollSubmittedPrompts();
+
+        verify(jdbcTemplate).batchUpdate(contains("StatusName <> ?"), batchArgsCaptor.capture());
+        List<Object[]> batchArgs = batchArgsCaptor.getValue();
+        assertEquals(1, batchArgs.size());
+        assertEquals("已完成", batchArgs.get(0)[0]);
+        assertEquals(10, batchArgs.get(0)[2]);
+        verify(executionEncryptedDataTempRepository, never()).findAllById(any());
+        verify(promptRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("ERROR状态的数据批量标记执行失败，核对后已变更的记录留待下次轮询")
+    void testErrorStatusesAreBatchUpdatedWhenVersionUnchanged() throws Exception {
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(Integer.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(20));
+        when(executionEncryptedDataTempRepository.findStatusByRequestIdIn(anyCollection())).thenReturn(List.of(
+                new EncryptedDataStatusDTO("cdwyy20", "cdwyy20", DataStatus.ERROR, 5)));
+        when(executionEncryptedDataTempRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(errorData("cdwyy20", 5, "模型调用超时")));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1 });
+
+        promptPollingService.pollSubmittedPrompts();
+
+        verify(jdbcTemplate).batchUpdate(contains("ExecutionResult = ?"), batchArgsCaptor.capture());
+        Object[] args = batchArgsCaptor.getValue().get(0);
+        assertEquals("执行失败", args[0]);
+        assertEquals("错误: 模型调用超时", args[2]);
+        assertEquals(20, args[3]);
+    }
+
+    @Test
+    @DisplayName("核对后版本已变化的记录不处理")
+    void testChangedVersionIsSkipped() throws Exception {
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(Integer.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(30));
+        when(executionEncryptedDataTempRepository.findStatusByRequestIdIn(anyCollection())).thenReturn(List.of(
+                new EncryptedDataStatusDTO("cdwyy30", "cdwyy30", DataStatus.ERROR, 1)));
+        when(executionEncryptedDataTempRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(errorData("cdwyy30", 2, "错误")));
+
+        promptPollingService.pollSubmittedPrompts();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("执行服务器查询失败时跳过本页，不抛出异常")
+    void testLookupFailureSkipsPage() {
+        when(promptRepository.findPromptIdsByStatusNameInAfter(anyCollection(), eq(Integer.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(40));
+        when(executionEncryptedDataTempRepository.findStatusByRequestIdIn(anyCollection()))
+                .thenThrow(new RuntimeException("执行服务器连接失败"));
+
+        assertDoesNotThrow(() -> promptPollingService.pollSubmittedPrompts());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static EncryptedDataTemp errorData(String id, int version, String errorMessage) throws Exception {
+        EncryptedDataTemp data = new EncryptedDataTemp();
+        data.setId(id);
+        data.setRequestId(id);
+        data.setStatus(DataStatus.ERROR);
+        data.setVersion(version);
+        data.setErrorMessage(new SerialClob(errorMessage.toCharArray()));
+        return data;
+    }
+}
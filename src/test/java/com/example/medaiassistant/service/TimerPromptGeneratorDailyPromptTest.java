@@ -0,0 +1,157 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.dto.PatientPromptResultDTO;
+import com.example.medaiassistant.model.Diagnosis;
+import com.example.medaiassistant.model.Prompt;
+import com.example.medaiassistant.model.PromptTemplate;
+import com.example.medaiassistant.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 每日Prompt生成共享患者上下文快照测试
+ *
+ * 诊断分析、诊疗计划补充、病情小结三种Prompt按各自模板的requiredDataTypes拼接，
+ * 同一患者的每个数据板块只查询一次，模板每次运行只解析一次
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("每日Prompt生成 - 共享患者上下文快照")
+class TimerPromptGeneratorDailyPromptTest {
+
+    private static final String PATIENT_ID = "TEST_PATIENT_001";
+
+    @Mock
+    private PromptRepository promptRepository;
+
+    @Mock
+    private PromptGenerationLogService promptGenerationLogService;
+
+    @Mock
+    private PromptTemplateRepository promptTemplateRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private DiagnosisRepository diagnosisRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private LongTermOrderRepository longTermOrderRepository;
+
+    @Mock
+    private LabResultRepository labResultRepository;
+
+    @Mock
+    private PromptResultRepository promptResultRepository;
+
+    @Mock
+    private OrderFormatService orderFormatService;
+
+    @Mock
+    private ExaminationResultService examinationResultService;
+
+    @Mock
+    private EmrRecordService emrRecordService;
+
+    @Mock
+    private EmrContentRepository emrContentRepository;
+
+    private TimerPromptGenerator timerPromptGenerator;
+
+    @BeforeEach
+    void setUp() {
+        PatientContextAssembler assembler = new PatientContextAssembler(promptTemplateRepository, patientRepository,
+                diagnosisRepository, medicalRecordRepository, longTermOrderRepository, labResultRepository,
+                promptResultRepository, orderFormatService, examinationResultService, emrRecordService,
+                emrContentRepository, Runnable::run);
+        timerPromptGenerator = new TimerPromptGenerator(
+            null, null, null, patientRepository,
+            promptRepository,
+            null, null, null, null, null, null, null, null, null, null, null, null,
+            promptGenerationLogService, null,
+            assembler, null
+        );
+    }
+
+    @Test
+    @DisplayName("三种Prompt共用一份快照，每个数据板块只查询一次")
+    void testDailyPromptsShareOneSnapshot() {
+        stubTemplate("诊断分析", "诊断分析", "一般信息,诊断信息,入院记录,化验结果", "诊断分析模板");
+        stubTemplate("诊疗计划", "诊疗计划补充", "诊断信息,入院记录,长期医嘱", "诊疗计划模板");
+        stubTemplate("资料总结", "病情小结", "入院记录,化验结果,病情小结", "病情小结模板");
+        when(diagnosisRepository.findByPatientId(PATIENT_ID)).thenReturn(List.of(diagnosis("社区获得性肺炎")));
+        when(promptResultRepository.findMedicalSummaryByPatientId(PATIENT_ID)).thenReturn(List.of(admissionSummary()));
+        when(promptRepository.saveAndFlush(any(Prompt.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<TimerPromptGenerator.DailyPrompt> dailyPrompts = timerPromptGenerator.resolveDailyPrompts();
+        timerPromptGenerator.generateDailyPromptsForPatient(PATIENT_ID, dailyPrompts);
+
+        ArgumentCaptor<Prompt> captor = ArgumentCaptor.forClass(Prompt.class);
+        verify(promptRepository, times(3)).saveAndFlush(captor.capture());
+        List<Prompt> saved = captor.getAllValues();
+        assertEquals(List.of("诊断分析", "诊疗计划补充", "病情小结"),
+                List.of(saved.get(0).getPromptTemplateName(), saved.get(1).getPromptTemplateName(),
+                        saved.get(2).getPromptTemplateName()));
+        assertEquals("诊断分析模板", saved.get(0).getPromptTemplateContent());
+        assertTrue(saved.get(0).getObjectiveContent().startsWith("### 一般信息:"));
+        assertTrue(saved.get(1).getObjectiveContent().startsWith("### 目前诊断:\n社区获得性肺炎"));
+        assertTrue(saved.get(2).getObjectiveContent().contains("### 病情小结:"));
+        assertFalse(saved.get(1).getObjectiveContent().contains("### 化验结果:"));
+
+        verify(diagnosisRepository, times(1)).findByPatientId(PATIENT_ID);
+        verify(promptResultRepository, times(1)).findMedicalSummaryByPatientId(PATIENT_ID);
+        verify(labResultRepository, times(1)).findByPatientId(PATIENT_ID);
+        verify(emrContentRepository, times(1)).findOperationsByPatientId(PATIENT_ID);
+        verify(promptTemplateRepository, times(2)).findByPromptTypeAndPromptName("诊断分析", "诊断分析");
+    }
+
+    @Test
+    @DisplayName("无入院记录时三种Prompt都跳过保存")
+    void testSkipsAllPromptsWithoutAdmissionRecord() {
+        stubTemplate("诊断分析", "诊断分析", "诊断信息,入院记录", "诊断分析模板");
+        stubTemplate("诊疗计划", "诊疗计划补充", "诊断信息,入院记录", "诊疗计划模板");
+        stubTemplate("资料总结", "病情小结", "入院记录", "病情小结模板");
+
+        timerPromptGenerator.generateDailyPromptsForPatient(PATIENT_ID, timerPromptGenerator.resolveDailyPrompts());
+
+        verify(promptRepository, never()).saveAndFlush(any(Prompt.class));
+        verify(emrRecordService, times(1)).getAdmissionRecordContent(PATIENT_ID);
+    }
+
+    private void stubTemplate(String promptType, String promptName, String requiredDataTypes, String prompt) {
+        PromptTemplate template = new PromptTemplate();
+        template.setRequiredDataTypes(requiredDataTypes);
+        template.setPrompt(prompt);
+        when(promptTemplateRepository.findByPromptTypeAndPromptName(promptType, promptName)).thenReturn(template);
+    }
+
+    private static Diagnosis diagnosis(String text) {
+        Diagnosis diagnosis = new Diagnosis();
+        diagnosis.setDiagnosisText(text);
+        return diagnosis;
+    }
+
+    private static PatientPromptResultDTO admissionSummary() {
+        PatientPromptResultDTO summary = new PatientPromptResultDTO();
+        summary.setPromptTemplateName("入院记录总结");
+        summary.setOriginalResultContent("患者因发热咳嗽5天入院");
+        return summary;
+    }
+}
@@ -110,7 +110,9 @@ class TimerPromptGeneratorDepartmentFilterTest {
             emrContentRepository,
             surgeryRepository,
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            null, // patientContextAssembler - not needed for this test
+            null  // connectionPoolMonitor - not needed for this test
         );
     }
 
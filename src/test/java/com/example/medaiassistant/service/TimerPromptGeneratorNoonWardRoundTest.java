@@ -109,7 +109,9 @@ class TimerPromptGeneratorNoonWardRoundTest {
             emrContentRepository,
             null, // surgeryRepository - not needed for this test
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            null, // patientContextAssembler - not needed for this test
+            null  // connectionPoolMonitor - not needed for this test
         );
     }
 
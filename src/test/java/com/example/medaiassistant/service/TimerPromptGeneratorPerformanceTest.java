@@ -125,7 +125,9 @@ class TimerPromptGeneratorPerformanceTest {
             emrContentRepository,
             surgeryRepository,
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            null, // patientContextAssembler - not needed for this test
+            null  // connectionPoolMonitor - not needed for this test
         );
     }
     
@@ -38,7 +38,7 @@ class TimerPromptGeneratorWardRoundTask1Test {
         timerPromptGenerator = new TimerPromptGenerator(
             null, null, null, null, 
             promptRepository, // 只有promptRepository是必需的
-            null, null, null, null, null, null, null, null, null, null, null, null, null, null
+            null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null
         );
     }
 
@@ -90,7 +90,9 @@ class TimerPromptGeneratorWardRoundTask2Test {
             emrContentRepository,
             surgeryRepository,
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            null, // patientContextAssembler - not needed for this test
+            null  // connectionPoolMonitor - not needed for this test
         );
     }
 
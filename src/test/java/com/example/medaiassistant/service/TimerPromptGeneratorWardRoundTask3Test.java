@@ -96,7 +96,7 @@ class TimerPromptGeneratorWardRoundTask3Test {
             serverConfigService,
             restTemplate, apiProperties, schedulingProperties,
             emrRecordRepository, emrContentRepository, surgeryRepository,
-            promptGenerationLogService, promptsTaskUpdater
+            promptGenerationLogService, promptsTaskUpdater, null, null
         );
     }
     
@@ -126,7 +126,9 @@ class TimerPromptGeneratorWardRoundTask4Test {
             emrContentRepository,
             surgeryRepository,
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            null, // patientContextAssembler - not needed for this test
+            null  // connectionPoolMonitor - not needed for this test
         );
     }
     
@@ -45,13 +45,13 @@ class TimerPromptGeneratorWardRoundTask5Test {
         // medicalRecordRepository, labResultRepository, examinationResultRepository,
         // longTermOrderRepository, serverConfigService, restTemplate, apiProperties, schedulingProperties,
         // emrRecordRepository, emrContentRepository, surgeryRepository,
-        // promptGenerationLogService, promptsTaskUpdater
+        // promptGenerationLogService, promptsTaskUpdater, patientContextAssembler, connectionPoolMonitor
         timerPromptGenerator = new TimerPromptGenerator(
             null, null, null,
             null, null, null,
             null, null, null,
             longTermOrderRepository,
-            null, null, null, null, null, null, null, null, null
+            null, null, null, null, null, null, null, null, null, null, null
         );
     }
 
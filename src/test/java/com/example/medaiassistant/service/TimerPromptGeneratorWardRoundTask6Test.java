@@ -60,13 +60,13 @@ public class TimerPromptGeneratorWardRoundTask6Test {
 
     @BeforeEach
     void setUp() {
-        // 使用19个参数构造TimerPromptGenerator（其他参数传null，只需要用到的repository）
+        // 使用20个参数构造TimerPromptGenerator（其他参数传null，只需要用到的repository）
         timerPromptGenerator = new TimerPromptGenerator(
             null, null, null,
             patientRepository, promptRepository, promptResultRepository,
             medicalRecordRepository, labResultRepository, examinationResultRepository,
             longTermOrderRepository,
-            null, null, null, null, null, null, null, null, null
+            null, null, null, null, null, null, null, null, null, null, null
         );
     }
 
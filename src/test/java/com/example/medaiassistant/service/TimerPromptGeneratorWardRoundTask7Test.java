@@ -94,6 +94,9 @@ class TimerPromptGeneratorWardRoundTask7Test {
     @Mock
     private LongTermOrderRepository longTermOrderRepository;
 
+    @Mock
+    private PatientContextAssembler patientContextAssembler;
+
     private SchedulingProperties schedulingProperties;
     private TimerPromptGenerator timerPromptGenerator;
 
@@ -119,7 +122,9 @@ class TimerPromptGeneratorWardRoundTask7Test {
             emrContentRepository,
             null, // surgeryRepository - not needed for this test
             promptGenerationLogService,
-            promptsTaskUpdater
+            promptsTaskUpdater,
+            patientContextAssembler,
+            null
         );
     }
 
@@ -172,16 +177,8 @@ class TimerPromptGeneratorWardRoundTask7Test {
         // Mock promptRepository.saveAndFlush方法，使其返回保存的对象
         when(promptRepository.saveAndFlush(any(Prompt.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
-        // Mock ApiProperties配置，使得callPromptApi能正常工作
-        ApiProperties.Base baseConfig = new ApiProperties.Base();
-        baseConfig.setUrl("http://test-api");
-        ApiProperties.Retry retryConfig = new ApiProperties.Retry();
-        retryConfig.setMaxAttempts(3);
-        baseConfig.setRetry(retryConfig);
-        when(apiProperties.getBase()).thenReturn(baseConfig);
-        
-        // Mock restTemplate调用（用于callPromptApi）
-        when(restTemplate.getForObject(anyString(), eq(String.class)))
+        // Mock模板内容（进程内通过PatientContextAssembler获取）
+        when(patientContextAssembler.findPromptTemplate(anyString(), anyString()))
             .thenReturn("模板内容");
         
         // When - 调用方法
@@ -348,16 +345,8 @@ class TimerPromptGeneratorWardRoundTask7Test {
         // Mock promptRepository.saveAndFlush方法
         when(promptRepository.saveAndFlush(any(Prompt.class))).thenAnswer(invocation -> invocation.getArgument(0));
         
-        // Mock ApiProperties配置
-        ApiProperties.Base baseConfig = new ApiProperties.Base();
-        baseConfig.setUrl("http://test-api");
-        ApiProperties.Retry retryConfig = new ApiProperties.Retry();
-        retryConfig.setMaxAttempts(3);
-        baseConfig.setRetry(retryConfig);
-        when(apiProperties.getBase()).thenReturn(baseConfig);
-        
-        // Mock restTemplate调用（用于callPromptApi）
-        when(restTemplate.getForObject(anyString(), eq(String.class)))
+        // Mock模板内容（进程内通过PatientContextAssembler获取）
+        when(patientContextAssembler.findPromptTemplate(anyString(), anyString()))
             .thenReturn("模板内容");
         
         // When - 调用方法
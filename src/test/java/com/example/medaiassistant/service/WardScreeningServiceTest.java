@@ -0,0 +1,282 @@
+package com.example.medaiassistant.service;
+
+import com.example.medaiassistant.config.MccScreeningProperties;
+import com.example.medaiassistant.config.TextNormalizerConfig;
+import com.example.medaiassistant.drg.catalog.DiagnosisEntry;
+import com.example.medaiassistant.drg.catalog.DrgCatalog;
+import com.example.medaiassistant.drg.catalog.DrgCatalogLoader;
+import com.example.medaiassistant.drg.catalog.DrgParsedRecord;
+import com.example.medaiassistant.drg.catalog.ProcedureEntry;
+import com.example.medaiassistant.drg.matching.PrimaryDiagnosisProcedureMatcher;
+import com.example.medaiassistant.dto.drg.MatchingResult;
+import com.example.medaiassistant.dto.drg.PatientData;
+import com.example.medaiassistant.dto.drg.PatientProcedure;
+import com.example.medaiassistant.dto.drg.PatientScreeningResult;
+import com.example.medaiassistant.dto.drg.WardScreeningRequest;
+import com.example.medaiassistant.model.Diagnosis;
+import com.example.medaiassistant.model.DrgMcc;
+import com.example.medaiassistant.model.MccCandidate;
+import com.example.medaiassistant.model.Patient;
+import com.example.medaiassistant.model.PatientDiagnosis;
+import com.example.medaiassistant.model.Surgery;
+import com.example.medaiassistant.repository.DiagnosisRepository;
+import com.example.medaiassistant.repository.DrgMccRepository;
+import com.example.medaiassistant.repository.PatientRepository;
+import com.example.medaiassistant.repository.SurgeryRepository;
+import com.example.medaiassistant.util.LevenshteinUtil;
+import com.example.medaiassistant.util.TextNormalizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 病区批量DRG/MCC筛选服务测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("病区批量DRG/MCC筛选测试")
+class WardScreeningServiceTest {
+
+    private static final String DEPARTMENT = "心内科";
+    private static final int PATIENTS = 120;
+    private static final String[] DIAGNOSIS_NAMES = {
+        "阵发性心房颤动", "原发性高血压", "2型糖尿病", "急性心力衰竭", "肺部感染", "急性肾损伤"
+    };
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private DiagnosisRepository diagnosisRepository;
+
+    @Mock
+    private SurgeryRepository surgeryRepository;
+
+    @Mock
+    private DrgCatalogLoader drgCatalogLoader;
+
+    @Mock
+    private DrgMccRepository drgMccRepository;
+
+    private final List<Patient> patients = new ArrayList<>();
+    private final List<Diagnosis> diagnoses = new ArrayList<>();
+    private final List<Surgery> surgeries = new ArrayList<>();
+
+    private TextNormalizer textNormalizer;
+    private MccScreeningService mccScreeningService;
+    private PrimaryDiagnosisProcedureMatcher matcher;
+    private DrgCatalog catalog;
+    private WardScreeningService service;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PATIENTS; i++) {
+            String patientId = "P" + i;
+            Patient patient = new Patient();
+            patient.setPatientId(patientId);
+            patient.setName("患者" + i);
+            patient.setBedNumber(String.valueOf(i + 1));
+            patient.setDepartment(DEPARTMENT);
+            patients.add(patient);
+            for (int d = 0; d < 3; d++) {
+                String name = DIAGNOSIS_NAMES[(i + d) % DIAGNOSIS_NAMES.length];
+                diagnoses.add(diagnosis(patientId, d == 0 ? "I48.000" : null, name));
+            }
+            if (i % 3 == 0) {
+                Surgery surgery = new Surgery();
+                surgery.setPatientId(patientId);
+                surgery.setSurgeryCode("37.9000x001");
+                surgery.setSurgeryName("经皮左心耳封堵术");
+                surgeries.add(surgery);
+            }
+        }
+
+        lenient().when(patientRepository.findByDepartmentAndIsInHospital(DEPARTMENT, true)).thenReturn(patients);
+        lenient().when(patientRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return patients.stream().filter(p -> ids.contains(p.getPatientId())).toList();
+        });
+        lenient().when(diagnosisRepository.findByPatientIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return diagnoses.stream().filter(d -> ids.contains(d.getPatientId())).toList();
+        });
+        lenient().when(surgeryRepository.findByPatientIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return surgeries.stream().filter(s -> ids.contains(s.getPatientId())).toList();
+        });
+
+        catalog = new DrgCatalog("v1", List.of(
+            record("DRG1", List.of(new DiagnosisEntry("I48.000", "心房颤动")), List.of()),
+            record("DRG2", List.of(new DiagnosisEntry("I10.x00", "原发性高血压")), List.of()),
+            record("DRG3", List.of(new DiagnosisEntry("I48.000", "心房颤动")),
+                List.of(new ProcedureEntry("37.9000x001", "经皮左心耳封堵术")))));
+        lenient().when(drgCatalogLoader.getCurrentCatalog()).thenReturn(catalog);
+
+        when(drgMccRepository.findAll()).thenReturn(List.of(
+            new DrgMcc(1L, "I50.100", "急性左心衰竭", null, "MCC"),
+            new DrgMcc(2L, "N17.900", "急性肾衰竭", "N17.900", "MCC"),
+            new DrgMcc(3L, "J18.900", "肺炎", null, "CC")));
+
+        textNormalizer = spy(new TextNormalizer(new TextNormalizerConfig()));
+        mccScreeningService = new MccScreeningService();
+        ReflectionTestUtils.setField(mccScreeningService, "levenshteinUtil", new LevenshteinUtil());
+        ReflectionTestUtils.setField(mccScreeningService, "textNormalizer", textNormalizer);
+        ReflectionTestUtils.setField(mccScreeningService, "mccScreeningProperties", new MccScreeningProperties());
+        ReflectionTestUtils.setField(mccScreeningService, "drgMccRepository", drgMccRepository);
+        mccScreeningService.init();
+
+        matcher = new PrimaryDiagnosisProcedureMatcher();
+        service = new WardScreeningService(patientRepository, diagnosisRepository, surgeryRepository,
+            drgCatalogLoader, matcher, mccScreeningService, textNormalizer, 4);
+    }
+
+    @Test
+    @DisplayName("按科室批量筛选：结果与逐个患者筛选一致")
+    void shouldMatchPerPatientScreening() {
+        List<PatientScreeningResult> results = service.screen(departmentRequest()).collectList().block();
+
+        assertThat(results).hasSize(PATIENTS);
+        for (PatientScreeningResult result : results) {
+            assertThat(result.getError()).isNull();
+            assertThat(result.getCatalogVersion()).isEqualTo("v1");
+            assertThat(result.getName()).isEqualTo("患者" + result.getPatientId().substring(1));
+
+            List<Diagnosis> patientDiagnoses = diagnosesOf(result.getPatientId());
+            MatchingResult expectedDrg = matcher.match(patientData(result.getPatientId()), catalog.getMatchingCatalog());
+            Map<String, List<MccCandidate>> expectedMcc = mccScreeningService.screenMccCandidatesGrouped(
+                patientDiagnoses.stream()
+                    .map(d -> new PatientDiagnosis(d.getIcd10Code(), d.getDiagnosisText()))
+                    .toList());
+
+            assertThat(result.getDiagnosisCount()).isEqualTo(patientDiagnoses.size());
+            assertThat(result.getDrgMatching().getPrimaryDiagnoses()).isEqualTo(expectedDrg.getPrimaryDiagnoses());
+            assertThat(result.getDrgMatching().getPrimaryProcedures()).isEqualTo(expectedDrg.getPrimaryProcedures());
+            assertThat(result.getMccCandidates()).isEqualTo(expectedMcc);
+        }
+        assertThat(results).anyMatch(result -> !result.getMccCandidates().isEmpty());
+        assertThat(results).anyMatch(result -> result.getDrgMatching().hasPrimaryProcedures());
+    }
+
+    @Test
+    @DisplayName("诊断和手术各一次批量查询，每个不同的诊断名称只标准化一次")
+    void shouldLoadInBulkAndNormalizeDistinctNamesOnce() {
+        clearInvocations(textNormalizer);
+
+        List<PatientScreeningResult> results = service.screen(departmentRequest()).collectList().block();
+
+        assertThat(results).hasSize(PATIENTS);
+        verify(diagnosisRepository, times(1)).findByPatientIdIn(anyCollection());
+        verify(surgeryRepository, times(1)).findByPatientIdIn(anyCollection());
+        verify(diagnosisRepository, never()).findByPatientId(anyString());
+        verify(surgeryRepository, never()).findByPatientId(anyString());
+        for (String name : DIAGNOSIS_NAMES) {
+            verify(textNormalizer, times(1)).normalize(name);
+        }
+        verify(textNormalizer, times(DIAGNOSIS_NAMES.length)).normalize(anyString());
+    }
+
+    @Test
+    @DisplayName("按患者ID列表筛选：去重，不存在的患者也返回结果")
+    void shouldScreenGivenPatientIds() {
+        WardScreeningRequest request = new WardScreeningRequest();
+        request.setDepartment(DEPARTMENT);
+        request.setPatientIds(List.of("P1", "P2", "P1", "UNKNOWN"));
+
+        Map<String, PatientScreeningResult> results = service.screen(request).collectList().block().stream()
+            .collect(Collectors.toMap(PatientScreeningResult::getPatientId, result -> result));
+
+        assertThat(results).containsOnlyKeys("P1", "P2", "UNKNOWN");
+        assertThat(results.get("P2").getBedNumber()).isEqualTo("3");
+        assertThat(results.get("UNKNOWN").getName()).isNull();
+        assertThat(results.get("UNKNOWN").getDiagnosisCount()).isZero();
+        assertThat(results.get("UNKNOWN").getError()).isNull();
+        verify(patientRepository, never()).findByDepartmentAndIsInHospital(anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("科室和患者ID列表都为空时报错")
+    void shouldRejectEmptyRequest() {
+        assertThatThrownBy(() -> service.screen(new WardScreeningRequest()).collectList().block())
+            .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(diagnosisRepository, surgeryRepository);
+    }
+
+    @Test
+    @DisplayName("批量筛选与逐个患者查询筛选的耗时对比")
+    void shouldBeFasterThanPerPatientCalls() {
+        lenient().when(diagnosisRepository.findByPatientId(anyString()))
+            .thenAnswer(invocation -> diagnosesOf(invocation.getArgument(0)));
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (Patient patient : patients) {
+                List<Diagnosis> patientDiagnoses = diagnosisRepository.findByPatientId(patient.getPatientId());
+                matcher.match(patientData(patient.getPatientId()), catalog.getMatchingCatalog());
+                mccScreeningService.screenMccCandidatesGrouped(patientDiagnoses.stream()
+                    .map(d -> new PatientDiagnosis(d.getIcd10Code(), d.getDiagnosisText()))
+                    .toList());
+            }
+            long perPatientMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            List<PatientScreeningResult> results = service.screen(departmentRequest()).collectList().block();
+            long batchMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(results).hasSize(PATIENTS);
+            System.out.printf("第%d轮 %d名患者 - 逐个筛选: %dms, 批量筛选: %dms%n",
+                round + 1, PATIENTS, perPatientMs, batchMs);
+        }
+    }
+
+    private WardScreeningRequest departmentRequest() {
+        WardScreeningRequest request = new WardScreeningRequest();
+        request.setDepartment(DEPARTMENT);
+        return request;
+    }
+
+    private List<Diagnosis> diagnosesOf(String patientId) {
+        return diagnoses.stream().filter(d -> d.getPatientId().equals(patientId)).toList();
+    }
+
+    private PatientData patientData(String patientId) {
+        List<com.example.medaiassistant.dto.drg.PatientDiagnosis> drgDiagnoses = diagnosesOf(patientId).stream()
+            .map(d -> new com.example.medaiassistant.dto.drg.PatientDiagnosis(d.getIcd10Code(), d.getDiagnosisText()))
+            .toList();
+        List<PatientProcedure> procedures = surgeries.stream()
+            .filter(s -> s.getPatientId().equals(patientId))
+            .map(s -> new PatientProcedure(s.getSurgeryCode(), s.getSurgeryName()))
+            .toList();
+        return new PatientData(drgDiagnoses, procedures);
+    }
+
+    private static Diagnosis diagnosis(String patientId, String icdCode, String name) {
+        Diagnosis diagnosis = new Diagnosis();
+        diagnosis.setPatientId(patientId);
+        diagnosis.setIcd10Code(icdCode);
+        diagnosis.setDiagnosisText(name);
+        return diagnosis;
+    }
+
+    private static DrgParsedRecord record(String drgId, List<DiagnosisEntry> diagnoses, List<ProcedureEntry> procedures) {
+        return new DrgParsedRecord(drgId, diagnoses, procedures);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.medaiassistant.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AhoCorasickAutomaton单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("Aho–Corasick多模式匹配自动机测试")
+class AhoCorasickAutomatonTest {
+
+    @Test
+    @DisplayName("应返回文本中出现的最小编号模式")
+    void testFirstPatternFrom() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(
+            Arrays.asList("非典型", "典型", "重型", "危重型"));
+        char[] text = "危重型肺炎非典型".toCharArray();
+
+        assertEquals(0, automaton.firstPatternFrom(text, text.length, 0));
+        assertEquals(1, automaton.firstPatternFrom(text, text.length, 1), "后缀模式应通过失败链识别");
+        assertEquals(2, automaton.firstPatternFrom(text, text.length, 2));
+        assertEquals(3, automaton.firstPatternFrom(text, text.length, 3));
+        assertEquals(-1, automaton.firstPatternFrom(text, text.length, 4));
+    }
+
+    @Test
+    @DisplayName("只扫描指定长度范围内的文本")
+    void testRespectsLength() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(List.of("末期"));
+        char[] text = "肝硬化末期".toCharArray();
+
+        assertEquals(-1, automaton.firstPatternFrom(text, 4, 0));
+        assertEquals(0, automaton.firstPatternFrom(text, 5, 0));
+    }
+
+    @Test
+    @DisplayName("空模式串在任意文本中都视为出现")
+    void testEmptyPattern() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(Arrays.asList("高血压", ""));
+
+        assertEquals(1, automaton.firstPatternFrom(new char[0], 0, 0));
+        assertEquals(-1, automaton.firstPatternFrom(new char[0], 0, 2));
+        assertEquals("", automaton.pattern(1));
+        assertEquals(2, automaton.patternCount());
+    }
+
+    @Test
+    @DisplayName("无模式串时不命中任何文本")
+    void testNoPatterns() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(null);
+        char[] text = "高血压".toCharArray();
+
+        assertEquals(-1, automaton.firstPatternFrom(text, text.length, 0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.medaiassistant.util;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EditDistanceKernel单元测试
+ *
+ * @author MedAI Assistant Team
+ * @since 2025-11-09
+ */
+@DisplayName("编辑距离计算内核测试")
+class EditDistanceKernelTest {
+
+    private static final String ALPHABET = "心房颤动高血压糖尿病型慢性急性abc12";
+
+    @ParameterizedTest
+    @DisplayName("参数化测试编辑距离")
+    @CsvSource({
+        "kitten, sitting, 3",
+        "hello, hello, 0",
+        "'', test, 4",
+        "test, '', 4",
+        "'', '', 0",
+        "心房颤动, 心房扑动, 1",
+        "高血压, 低血压, 1",
+        "2型糖尿病, 糖尿病, 2"
+    })
+    void testDistance(String s1, String s2, int expected) {
+        assertEquals(expected, EditDistanceKernel.distance(s1, s2));
+        assertEquals(expected, EditDistanceKernel.distance(s2, s1), "编辑距离应满足对称性");
+    }
+
+    @Test
+    @DisplayName("测试带上界的距离计算")
+    void testBoundedDistance() {
+        assertEquals(3, EditDistanceKernel.boundedDistance("kitten", "sitting", 3));
+        assertEquals(-1, EditDistanceKernel.boundedDistance("kitten", "sitting", 2));
+        assertEquals(-1, EditDistanceKernel.boundedDistance("a", "abcdef", 4), "长度差超过上界应直接返回-1");
+        assertEquals(0, EditDistanceKernel.boundedDistance("", "", 0));
+    }
+
+    @Test
+    @DisplayName("测试非法参数")
+    void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> EditDistanceKernel.distance(null, "a"));
+        assertThrows(IllegalArgumentException.class, () -> EditDistanceKernel.boundedDistance("a", "b", -1));
+    }
+
+    @Test
+    @DisplayName("随机字符串的距离应与Commons Text结果一致（覆盖位并行与带宽受限两条路径）")
+    void testConsistencyWithCommonsText() {
+        Random random = new Random(20251109L);
+        LevenshteinDistance reference = LevenshteinDistance.getDefaultInstance();
+
+        for (int i = 0; i < 5000; i++) {
+            String s1 = randomString(random, random.nextInt(4) == 0 ? 150 : 70);
+            String s2 = random.nextBoolean() ? mutate(random, s1) : randomString(random, 70);
+            int expected = reference.apply(s1, s2);
+
+            assertEquals(expected, EditDistanceKernel.distance(s1, s2), () -> s1 + " / " + s2);
+
+            int bound = random.nextInt(expected * 2 + 2);
+            int expectedBounded = expected <= bound ? expected : -1;
+            assertEquals(expectedBounded, EditDistanceKernel.boundedDistance(s1, s2, bound),
+                () -> s1 + " / " + s2 + " bound=" + bound);
+        }
+    }
+
+    @Test
+    @DisplayName("测试相似度阈值推导的距离上界")
+    void testMaxDistanceForSimilarity() {
+        for (int maxLength = 1; maxLength <= 100; maxLength++) {
+            for (double threshold : new double[]{0.0, 0.3, 0.5, 0.7, 0.75, 0.8, 0.9, 1.0}) {
+                int expected = -1;
+                for (int distance = 0; distance <= maxLength; distance++) {
+                    if (1.0 - ((double) distance / maxLength) >= threshold) {
+                        expected = distance;
+                    }
+                }
+                assertEquals(expected, EditDistanceKernel.maxDistanceForSimilarity(maxLength, threshold),
+                    "maxLength=" + maxLength + ", threshold=" + threshold);
+            }
+        }
+    }
+
+    private String randomString(Random random, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private String mutate(Random random, String source) {
+        StringBuilder builder = new StringBuilder(source);
+        int edits = random.nextInt(8);
+        for (int i = 0; i < edits; i++) {
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            int op = random.nextInt(3);
+            if (op == 0 && builder.length() > 0) {
+                builder.deleteCharAt(random.nextInt(builder.length()));
+            } else if (op == 1) {
+                builder.insert(random.nextInt(builder.length() + 1), c);
+            } else if (builder.length() > 0) {
+                builder.setCharAt(random.nextInt(builder.length()), c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -5,6 +5,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -281,4 +289,71 @@ class TextNormalizerTest {
                 "复杂医疗文本标准化测试用例 " + (i + 1) + " 失败");
         }
     }
+    
+    @Test
+    @DisplayName("编译后的标准化结果应与逐步替换的结果完全一致")
+    void testCompiledRulesMatchSequentialReplacement() {
+        // 修饰词之间互相包含、数字转换之间存在级联，结果依赖替换顺序
+        TextNormalizerConfig config = new TextNormalizerConfig();
+        config.setModifiers(Arrays.asList("典型", "非典型", "重型", "危重型", "型", "早期", "期"));
+        config.setNumberConversions(Arrays.asList("Ⅰ:1", "Ⅱ:2", "型1:1型", "型2:2型", "11:1", "型:", "二:2"));
+        TextNormalizer normalizer = new TextNormalizer(config);
+        
+        String alphabet = "非典型重危早期型ⅠⅡ12二 　\t[]［］（）高血压\u2028";
+        Random random = new Random(20251109L);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String input = builder.toString();
+            
+            assertEquals(referenceNormalize(config, input), normalizer.normalize(input), "输入: " + input);
+        }
+    }
+    
+    /**
+     * 逐步替换的参考实现（规则编译前的标准化流程）
+     */
+    private String referenceNormalize(TextNormalizerConfig config, String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return "";
+        }
+        Set<String> modifiers = new HashSet<>(config.getModifiers());
+        Map<String, String> numberConversions = new HashMap<>();
+        for (String conversion : config.getNumberConversions()) {
+            String[] parts = conversion.split(":", 2);
+            if (parts.length == 2) {
+                numberConversions.put(parts[0], parts[1]);
+            }
+        }
+        String fullWidth = config.getFullWidthChars();
+        String halfWidth = config.getHalfWidthChars();
+        
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            int index = fullWidth.indexOf(chars[i]);
+            if (index >= 0) {
+                chars[i] = halfWidth.charAt(index);
+            }
+        }
+        Pattern spaces = Pattern.compile("\\s+");
+        String result = spaces.matcher(new String(chars).trim()).replaceAll(" ");
+        if (!result.isEmpty()) {
+            for (String modifier : modifiers) {
+                result = result.replace(modifier, "");
+            }
+            result = spaces.matcher(result.trim()).replaceAll(" ");
+        }
+        if (!result.isEmpty()) {
+            for (Map.Entry<String, String> conversion : numberConversions.entrySet()) {
+                result = result.replace(conversion.getKey(), conversion.getValue());
+            }
+        }
+        if (!result.isEmpty()) {
+            result = Pattern.compile("\\[.*?\\]").matcher(result).replaceAll("").trim();
+        }
+        return result.trim();
+    }
 }